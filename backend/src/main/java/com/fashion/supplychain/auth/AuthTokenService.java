@@ -204,6 +204,12 @@ public class AuthTokenService {
         } else {
             subject.setPwdVersion(0L);
         }
+        // 过期时间（JWT exp 为秒）
+        Object expObj = jwt.getPayload("exp");
+        if (expObj != null) {
+            try { subject.setExpiresAt(Long.parseLong(String.valueOf(expObj)) * 1000L); }
+            catch (NumberFormatException e) { subject.setExpiresAt(null); }
+        }
         return subject;
     }
 
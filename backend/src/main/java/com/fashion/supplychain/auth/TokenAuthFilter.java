@@ -25,6 +25,9 @@ import java.util.concurrent.atomic.AtomicLong;
  * 从请求头中解析Bearer Token并设置安全上下文
  * 同时加载用户权限代码作为Spring Security authorities，
  * 使得 @PreAuthorize("hasAuthority('MENU_XXX')") 能正确工作
+ *
+ * 验签、pwd:ver 校验与权限计算的结果写入 {@link VerifiedSessionCache}，
+ * 同一 token 的后续请求命中缓存时直接恢复认证信息，不再访问 Redis。
  */
 @Slf4j
 public class TokenAuthFilter extends OncePerRequestFilter {
@@ -41,12 +44,26 @@ public class TokenAuthFilter extends OncePerRequestFilter {
     private final AuthTokenService authTokenService;
     private final PermissionCalculationEngine permissionEngine;
     private final StringRedisTemplate stringRedisTemplate;
+    private final VerifiedSessionCache sessionCache;
 
     public TokenAuthFilter(AuthTokenService authTokenService, PermissionCalculationEngine permissionEngine,
-                           StringRedisTemplate stringRedisTemplate) {
+                           StringRedisTemplate stringRedisTemplate, VerifiedSessionCache sessionCache) {
         this.authTokenService = authTokenService;
         this.permissionEngine = permissionEngine;
         this.stringRedisTemplate = stringRedisTemplate;
+        this.sessionCache = sessionCache;
+    }
+
+    /** 从 Authorization: Bearer 头取 token（不读取请求参数，可在请求体包装之前的过滤器中安全调用） */
+    public static String bearerToken(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (StringUtils.hasText(header)) {
+            String h = header.trim();
+            if (h.regionMatches(true, 0, "Bearer ", 0, 7)) {
+                return h.substring(7).trim();
+            }
+        }
+        return null;
     }
 
     @Override
@@ -55,14 +72,7 @@ public class TokenAuthFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
 
         if (SecurityContextHolder.getContext().getAuthentication() == null) {
-            String header = request.getHeader("Authorization");
-            String token = null;
-            if (StringUtils.hasText(header)) {
-                String h = header.trim();
-                if (h.regionMatches(true, 0, "Bearer ", 0, 7)) {
-                    token = h.substring(7).trim();
-                }
-            }
+            String token = bearerToken(request);
 
             // 支持通过 URL 查询参数传递 token（用于文件下载等浏览器直接打开的场景）
             if (token == null) {
@@ -72,7 +82,20 @@ public class TokenAuthFilter extends OncePerRequestFilter {
                 }
             }
 
+            VerifiedSessionCache.Lookup lookup = sessionCache == null ? null : sessionCache.lookup(request, token);
+            VerifiedSessionCache.Entry cached = lookup == null ? null : lookup.getEntry();
+            if (cached != null) {
+                TokenSubject cachedSubject = cached.getSubject();
+                SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                        cachedSubject.getUsername(), cachedSubject.getUserId(), cached.getAuthorities()));
+                request.setAttribute(TOKEN_SUBJECT_ATTR, cachedSubject);
+                request.setAttribute(VerifiedSessionCache.ENTRY_ATTR, cached);
+                filterChain.doFilter(request, response);
+                return;
+            }
+
             TokenSubject subject = authTokenService == null ? null : authTokenService.verifyAndParse(token);
+            boolean pwdVersionChecked = false;
             // 校验密码版本号：改密后旧 token 立即失效
             if (subject != null && StringUtils.hasText(subject.getUserId()) && stringRedisTemplate != null) {
                 long failTs = redisFailedSince.get();
@@ -86,6 +109,7 @@ public class TokenAuthFilter extends OncePerRequestFilter {
                             log.warn("[TokenAuthFilter] token已失效（密码版本不匹配），tokenPwdVer={}, redisPwdVer={}, userId={}", tokenVer, expected, subject.getUserId());
                             subject = null; // token 已失效，视作未认证
                         }
+                        pwdVersionChecked = true;
                         redisFailedSince.set(0L); // 连接恢复，重置熔断
                     } catch (Exception e) {
                         // Redis 不可用时熔断 60s，避免每个请求都尝试连接
@@ -124,6 +148,11 @@ public class TokenAuthFilter extends OncePerRequestFilter {
 
                 // 将TokenSubject存储在request attribute中，供后续Interceptor使用
                 request.setAttribute(TOKEN_SUBJECT_ATTR, subject);
+
+                // pwd:ver 实际校验通过（或未接入 Redis）才缓存；熔断跳过校验时不缓存
+                if (lookup != null && (pwdVersionChecked || stringRedisTemplate == null)) {
+                    request.setAttribute(VerifiedSessionCache.ENTRY_ATTR, sessionCache.put(lookup, subject, authorities));
+                }
             }
         }
 
@@ -134,4 +134,15 @@ public class TokenSubject {
     public void setPosition(String position) {
         this.position = position;
     }
+
+    /** 令牌过期时间（毫秒时间戳），仅验签解析时填充，用于限制进程内会话缓存的存活时间 */
+    private Long expiresAt;
+
+    public Long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
 }
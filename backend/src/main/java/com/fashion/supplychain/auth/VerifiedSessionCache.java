@@ -0,0 +1,379 @@
+package com.fashion.supplychain.auth;
+
+import com.fashion.supplychain.config.UserInfoEnrichmentService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已验证会话缓存（进程内）
+ *
+ * 以 token 的 SHA-256 摘要为键，缓存验签解析后的 TokenSubject、权限 authorities 以及
+ * UserContextInterceptor 的用户信息补全结果。命中时整条鉴权链路（验签 + pwd:ver 校验 +
+ * 权限计算 + 信息补全）不再访问 Redis/DB。
+ *
+ * 失效：改密（pwd:ver 递增）、用户权限变更按 userId 失效；角色权限、租户天花板变更整体清空。
+ * 失效先在本节点执行，再经 Redis 频道 {@value #CHANNEL} 广播到所有节点。
+ * 订阅断开期间缓存自动旁路（回到逐请求校验），恢复订阅后先整体清空再启用，避免漏收广播留下旧会话。
+ * 条目最长存活 app.auth.session-cache.ttl-seconds，且不超过 token 自身的过期时间。
+ */
+@Slf4j
+@Component
+public class VerifiedSessionCache implements MessageListener {
+
+    /** Request Attribute Key: 本次请求对应的会话条目（命中或刚写入） */
+    public static final String ENTRY_ATTR = "VERIFIED_SESSION_ENTRY";
+    /** Request Attribute Key: 鉴权链路起始时间（System.nanoTime），由最外层限流过滤器写入 */
+    public static final String PIPELINE_START_ATTR = "AUTH_PIPELINE_START_NANOS";
+    private static final String LOOKUP_ATTR = "VERIFIED_SESSION_LOOKUP";
+
+    static final String CHANNEL = "auth:session:invalidate";
+    private static final String USER_PREFIX = "u:";
+    private static final String ALL = "*";
+
+    @Autowired(required = false)
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.auth.session-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.auth.session-cache.max-size:20000}")
+    private long maxSize;
+
+    @Value("${app.auth.session-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private Cache<String, Entry> cache;
+    private RedisMessageListenerContainer listenerContainer;
+    /** 订阅曾中断：恢复后需先清空再启用 */
+    private volatile boolean subscriptionLost;
+    /** 每次失效递增，未命中路径写入前比对，防止并发失效后写回旧会话 */
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong userInvalidations = new AtomicLong();
+    private final AtomicLong fullInvalidations = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+
+    private Timer hitTimer;
+    private Timer missTimer;
+
+    @PostConstruct
+    public void init() {
+        long ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, ttlSeconds));
+        cache = Caffeine.newBuilder()
+                .maximumSize(Math.max(100, maxSize))
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry value, long currentTime) {
+                        long untilTokenExpiry = TimeUnit.MILLISECONDS.toNanos(value.expiresAtMillis - System.currentTimeMillis());
+                        return Math.max(0L, Math.min(ttlNanos, untilTokenExpiry));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        MeterRegistry registry = meterRegistry != null ? meterRegistry : new SimpleMeterRegistry();
+        hitTimer = pipelineTimer(registry, "hit");
+        missTimer = pipelineTimer(registry, "miss");
+
+        if (enabled && redisConnectionFactory != null) {
+            try {
+                listenerContainer = new RedisMessageListenerContainer();
+                listenerContainer.setConnectionFactory(redisConnectionFactory);
+                listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+                listenerContainer.afterPropertiesSet();
+                listenerContainer.start();
+            } catch (Exception e) {
+                listenerContainer = null;
+                log.warn("[SessionCache] 失效广播订阅失败，会话缓存停用（逐请求校验）: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (listenerContainer != null) {
+            try {
+                listenerContainer.destroy();
+            } catch (Exception e) {
+                log.debug("[SessionCache] 关闭订阅容器失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static Timer pipelineTimer(MeterRegistry registry, String result) {
+        return Timer.builder("auth.pipeline.overhead")
+                .description("鉴权过滤链开销（限流 → 鉴权 → 用户上下文，不含业务处理）")
+                .tag("session", result)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    /**
+     * 缓存是否可用：有 Redis 时必须处于订阅状态，否则其他节点的失效广播收不到。
+     * 未配置 Redis 的单机部署只依赖本节点失效（原逻辑此时同样无法做 pwd:ver 校验）。
+     */
+    private boolean isActive() {
+        if (!enabled || cache == null) {
+            return false;
+        }
+        if (redisConnectionFactory == null) {
+            return true;
+        }
+        if (listenerContainer == null || !listenerContainer.isListening()) {
+            subscriptionLost = true;
+            return false;
+        }
+        if (subscriptionLost) {
+            subscriptionLost = false;
+            cache.invalidateAll();
+            generation.incrementAndGet();
+            log.info("[SessionCache] 失效广播订阅已恢复，清空会话缓存后重新启用");
+        }
+        return true;
+    }
+
+    /**
+     * 查找 token 对应的会话条目；同一请求内多次调用（限流过滤器、鉴权过滤器）只计算一次摘要。
+     * 缓存不可用或 token 为空时返回 null。
+     */
+    @Nullable
+    public Lookup lookup(HttpServletRequest request, @Nullable String token) {
+        if (!StringUtils.hasText(token)) {
+            return null;
+        }
+        Object memo = request.getAttribute(LOOKUP_ATTR);
+        if (memo instanceof Lookup l && token.equals(l.token)) {
+            return l;
+        }
+        if (!isActive()) {
+            bypassed.incrementAndGet();
+            return null;
+        }
+        long gen = generation.get();
+        String digest = digest(token);
+        Lookup lookup = new Lookup(token, digest, cache.getIfPresent(digest), gen);
+        request.setAttribute(LOOKUP_ATTR, lookup);
+        return lookup;
+    }
+
+    /**
+     * 未命中路径完成验签/版本校验/权限计算后写入。查找之后发生过失效则只返回条目不入缓存。
+     */
+    public Entry put(Lookup lookup, TokenSubject subject, List<GrantedAuthority> authorities) {
+        long expiresAt = subject.getExpiresAt() != null ? subject.getExpiresAt() : System.currentTimeMillis();
+        Entry entry = new Entry(subject, List.copyOf(authorities), expiresAt);
+        if (generation.get() == lookup.generation && isActive()) {
+            cache.put(lookup.digest, entry);
+        }
+        return entry;
+    }
+
+    /** 用户改密、被重置密码或个人权限变更：本节点失效并广播 */
+    public void invalidateUser(@Nullable Object userId) {
+        if (userId == null) {
+            return;
+        }
+        String uid = String.valueOf(userId);
+        evictUserLocal(uid);
+        publish(USER_PREFIX + uid);
+    }
+
+    /** 角色权限/租户天花板变更：影响面无法按用户定位，整体清空并广播 */
+    public void invalidateAll() {
+        evictAllLocal();
+        publish(ALL);
+    }
+
+    @Override
+    public void onMessage(Message message, @Nullable byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (ALL.equals(body)) {
+            evictAllLocal();
+        } else if (body.startsWith(USER_PREFIX)) {
+            evictUserLocal(body.substring(USER_PREFIX.length()));
+        }
+    }
+
+    private void evictUserLocal(String userId) {
+        generation.incrementAndGet();
+        userInvalidations.incrementAndGet();
+        if (cache != null) {
+            cache.asMap().values().removeIf(e -> userId.equals(e.subject.getUserId()));
+        }
+    }
+
+    private void evictAllLocal() {
+        generation.incrementAndGet();
+        fullInvalidations.incrementAndGet();
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private void publish(String message) {
+        if (stringRedisTemplate == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, message);
+        } catch (Exception e) {
+            // 本节点已失效；其他节点依赖条目 TTL 兜底
+            log.warn("[SessionCache] 失效广播发送失败 message={}, 其他节点最迟 {}s 后过期: {}",
+                    message, ttlSeconds, e.getMessage());
+        }
+    }
+
+    /** 由 UserContextInterceptor 在鉴权链路结束时调用 */
+    public void recordPipeline(HttpServletRequest request) {
+        Object start = request.getAttribute(PIPELINE_START_ATTR);
+        if (!(start instanceof Long startNanos)) {
+            return;
+        }
+        Object memo = request.getAttribute(LOOKUP_ATTR);
+        boolean hit = memo instanceof Lookup l && l.entry != null;
+        (hit ? hitTimer : missTimer).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("active", isActive());
+        stats.put("size", cache == null ? 0 : cache.estimatedSize());
+        if (cache != null) {
+            CacheStats cs = cache.stats();
+            stats.put("hitCount", cs.hitCount());
+            stats.put("missCount", cs.missCount());
+            stats.put("hitRate", Math.round(cs.hitRate() * 10000) / 10000.0);
+            stats.put("evictionCount", cs.evictionCount());
+        }
+        stats.put("bypassed", bypassed.get());
+        stats.put("userInvalidations", userInvalidations.get());
+        stats.put("fullInvalidations", fullInvalidations.get());
+        stats.put("pipelineHit", timerStats(hitTimer));
+        stats.put("pipelineMiss", timerStats(missTimer));
+        return stats;
+    }
+
+    private static Map<String, Object> timerStats(Timer timer) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        if (timer == null) {
+            return m;
+        }
+        var snapshot = timer.takeSnapshot();
+        m.put("count", snapshot.count());
+        m.put("meanMs", Math.round(snapshot.mean(TimeUnit.MICROSECONDS)) / 1000.0);
+        for (ValueAtPercentile p : snapshot.percentileValues()) {
+            String key = p.percentile() >= 0.99 ? "p99Ms" : "p50Ms";
+            m.put(key, Math.round(p.value(TimeUnit.MICROSECONDS)) / 1000.0);
+        }
+        m.put("maxMs", Math.round(snapshot.max(TimeUnit.MICROSECONDS)) / 1000.0);
+        return m;
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /** 单次请求的查找结果；entry 为 null 表示未命中 */
+    public static final class Lookup {
+        private final String token;
+        private final String digest;
+        private final Entry entry;
+        private final long generation;
+
+        private Lookup(String token, String digest, Entry entry, long generation) {
+            this.token = token;
+            this.digest = digest;
+            this.entry = entry;
+            this.generation = generation;
+        }
+
+        @Nullable
+        public Entry getEntry() {
+            return entry;
+        }
+    }
+
+    /** 已验证会话：TokenSubject 与 authorities 不可变；信息补全结果首个请求填充后复用 */
+    public static final class Entry {
+        private final TokenSubject subject;
+        private final List<GrantedAuthority> authorities;
+        private final long expiresAtMillis;
+        private volatile UserInfoEnrichmentService.EnrichmentResult enrichment;
+
+        private Entry(TokenSubject subject, List<GrantedAuthority> authorities, long expiresAtMillis) {
+            this.subject = subject;
+            this.authorities = authorities;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public TokenSubject getSubject() {
+            return subject;
+        }
+
+        public List<GrantedAuthority> getAuthorities() {
+            return authorities;
+        }
+
+        @Nullable
+        public UserInfoEnrichmentService.EnrichmentResult getEnrichment() {
+            return enrichment;
+        }
+
+        public void setEnrichment(UserInfoEnrichmentService.EnrichmentResult enrichment) {
+            this.enrichment = enrichment;
+        }
+    }
+}
@@ -296,6 +296,46 @@ public class CosService {
         }
     }
 
+    /**
+     * 写入与租户无关的共享对象（如 TTS 片段缓存），Key：shared/{key}；不计入租户存储配额。
+     * 未启用 COS 时不做任何事。
+     */
+    public void putSharedObject(String key, byte[] content, String contentType) {
+        if (!isEnabled() || cosClient == null) {
+            return;
+        }
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+        if (StringUtils.hasText(contentType)) {
+            metadata.setContentType(contentType);
+        }
+        try (InputStream is = new ByteArrayInputStream(content)) {
+            cosClient.putObject(bucket, "shared/" + key, is, metadata);
+        } catch (IOException e) {
+            throw new RuntimeException("COS 上传失败: shared/" + key, e);
+        }
+    }
+
+    /**
+     * 读取共享对象，不存在或未启用 COS 时返回 null
+     */
+    public byte[] getSharedObject(String key) {
+        if (!isEnabled() || cosClient == null) {
+            return null;
+        }
+        try (COSObject object = cosClient.getObject(new GetObjectRequest(bucket, "shared/" + key));
+             InputStream is = object.getObjectContent()) {
+            return is.readAllBytes();
+        } catch (com.qcloud.cos.exception.CosServiceException e) {
+            if ("NoSuchKey".equals(e.getErrorCode()) || e.getStatusCode() == 404) {
+                return null;
+            }
+            throw new RuntimeException("COS 读取失败(" + e.getErrorCode() + "): " + e.getErrorMessage(), e);
+        } catch (IOException e) {
+            throw new RuntimeException("COS 读取失败: shared/" + key, e);
+        }
+    }
+
     /**
      * 重新统计租户当前已使用存储，并回写到 t_tenant.storage_used_mb。
      * 统一在 COS/本地文件存储层统计，避免各业务上传链路重复累计导致口径漂移。
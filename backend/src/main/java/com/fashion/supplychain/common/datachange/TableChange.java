@@ -0,0 +1,18 @@
+package com.fashion.supplychain.common.datachange;
+
+/**
+ * 一次 Mapper 写入（INSERT / UPDATE / DELETE）
+ *
+ * @param mapper      执行写入的 Mapper 接口
+ * @param statementId MappedStatement ID
+ * @param entity      参数对象：insert 的实体、updateById 的 et 参数；按条件更新为 null，按 ID 删除为主键值。
+ *                    与执行时是同一对象，insert 回填的主键在提交后可读
+ * @param tenantId    执行写入线程上的租户
+ */
+public record TableChange(Class<?> mapper, String statementId, Object entity, Long tenantId) {
+
+    /** 指定类型的参数实体；取不到实体（按条件更新、按 ID 删除等）返回 null */
+    public <T> T entityAs(Class<T> type) {
+        return type.isInstance(entity) ? type.cast(entity) : null;
+    }
+}
@@ -0,0 +1,97 @@
+package com.fashion.supplychain.common.datachange;
+
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
+import com.fashion.supplychain.common.SpringContextHolder;
+import com.fashion.supplychain.common.UserContext;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表写入监听拦截器：INSERT / UPDATE / DELETE 时按 Mapper 命名空间查 {@link TableChangeListenerRegistry}，
+ * 命中则在事务提交后把 {@link TableChange} 分发给各监听（菜单红点等）。
+ *
+ * 本拦截器由 MybatisPlusConfig 直接 new 出来，不走 Spring 注入，
+ * 注册表通过 {@link SpringContextHolder} 延迟获取；上下文未就绪前的写入不分发。
+ */
+@Slf4j
+public class TableChangeInterceptor implements InnerInterceptor {
+
+    private volatile TableChangeListenerRegistry registry;
+
+    @Override
+    public void beforeUpdate(Executor executor, MappedStatement ms, Object parameter) {
+        String id = ms.getId();
+        int dot = id != null ? id.lastIndexOf('.') : -1;
+        if (dot <= 0) {
+            return;
+        }
+        TableChangeListenerRegistry r = registry();
+        TableChangeListenerRegistry.Watch watch = r != null ? r.lookup(id.substring(0, dot)) : null;
+        if (watch == null) {
+            return;
+        }
+        TableChange change = new TableChange(watch.mapper(), id, extractEntity(parameter), UserContext.tenantId());
+        List<TableChangeListener> accepted = new ArrayList<>(watch.listeners().size());
+        for (TableChangeListener listener : watch.listeners()) {
+            if (listener.accepts(change)) {
+                accepted.add(listener);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(accepted, change);
+                }
+            });
+        } else {
+            dispatch(accepted, change);
+        }
+    }
+
+    private static Object extractEntity(Object parameter) {
+        if (parameter instanceof Map<?, ?> map) {
+            return map.containsKey(Constants.ENTITY) ? map.get(Constants.ENTITY) : null;
+        }
+        return parameter;
+    }
+
+    private static void dispatch(List<TableChangeListener> listeners, TableChange change) {
+        for (TableChangeListener listener : listeners) {
+            try {
+                listener.onChange(change);
+            } catch (Exception e) {
+                log.debug("[TableChange] {} 处理失败 statement={}: {}",
+                        listener.getClass().getSimpleName(), change.statementId(), e.getMessage());
+            }
+        }
+    }
+
+    private TableChangeListenerRegistry registry() {
+        TableChangeListenerRegistry target = registry;
+        if (target == null) {
+            if (!SpringContextHolder.isReady()) {
+                return null;
+            }
+            try {
+                target = SpringContextHolder.getBean(TableChangeListenerRegistry.class);
+            } catch (Exception e) {
+                log.debug("[TableChange] 监听注册表未就绪: {}", e.getMessage());
+                return null;
+            }
+            registry = target;
+        }
+        return target;
+    }
+}
@@ -0,0 +1,22 @@
+package com.fashion.supplychain.common.datachange;
+
+import java.util.List;
+
+/**
+ * 表写入监听：实现类注册为 Spring Bean 即生效，由 {@link TableChangeInterceptor} 统一分发。
+ *
+ * 适合“写入后标记缓存 / 汇总 / 索引待重算”这类只观察、不改 SQL 的场景；
+ * 回调在事务提交后执行（无事务时写入前立即执行），异常只记日志，不影响业务写入。
+ */
+public interface TableChangeListener {
+
+    /** 关注的 Mapper 接口，按 MappedStatement 命名空间精确匹配 */
+    List<Class<?>> watchedMappers();
+
+    /** 在执行写入的线程上判断是否关心本次写入（如只改计数字段的更新可忽略） */
+    default boolean accepts(TableChange change) {
+        return true;
+    }
+
+    void onChange(TableChange change);
+}
@@ -0,0 +1,45 @@
+package com.fashion.supplychain.common.datachange;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表写入监听注册表：按 Mapper 命名空间索引全部 {@link TableChangeListener}
+ */
+@Slf4j
+@Component
+public class TableChangeListenerRegistry {
+
+    /** 同一 Mapper 的全部监听 */
+    public record Watch(Class<?> mapper, List<TableChangeListener> listeners) {}
+
+    private final Map<String, Watch> byNamespace;
+
+    @Autowired
+    public TableChangeListenerRegistry(List<TableChangeListener> listeners) {
+        Map<String, List<TableChangeListener>> grouped = new HashMap<>();
+        Map<String, Class<?>> mappers = new HashMap<>();
+        for (TableChangeListener listener : listeners) {
+            for (Class<?> mapper : listener.watchedMappers()) {
+                grouped.computeIfAbsent(mapper.getName(), k -> new ArrayList<>()).add(listener);
+                mappers.put(mapper.getName(), mapper);
+            }
+        }
+        Map<String, Watch> index = new HashMap<>();
+        grouped.forEach((ns, list) -> index.put(ns, new Watch(mappers.get(ns), List.copyOf(list))));
+        this.byNamespace = Collections.unmodifiableMap(index);
+        log.info("[TableChange] 已注册 {} 个写入监听，覆盖 {} 个 Mapper", listeners.size(), index.size());
+    }
+
+    /** @return 该命名空间的监听；未被监听返回 null */
+    public Watch lookup(String namespace) {
+        return byNamespace.get(namespace);
+    }
+}
@@ -4,37 +4,151 @@ import jakarta.servlet.ReadListener;
 import jakarta.servlet.ServletInputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletRequestWrapper;
-import org.springframework.util.StreamUtils;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
 
+/**
+ * 请求体只读一次、缓存一份：读取时可同时用 {@link XssPatternMatcher} 流式扫描，
+ * 下游 @RequestBody 绑定直接读取同一块缓冲区（不再复制）。
+ *
+ * 缓冲区取自固定大小的池，请求结束后由创建方调用 {@link #release()} 归还；
+ * 超过池缓冲区大小的请求体单独分配，不入池。Content-Length 由客户端声明，只作预分配参考且最多预分配 1 MB，
+ * 其余按实际读到的字节翻倍扩容；超过 maxBodyBytes 立即停止读取并抛出 {@link BodyTooLargeException}。
+ */
 public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
 
-    private final byte[] cachedBody;
+    private static final int POOLED_BUFFER_SIZE = 64 * 1024;
+    private static final int POOL_CAPACITY = 64;
+    private static final ArrayBlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(POOL_CAPACITY);
+    private static final int MAX_PRESIZE = 1024 * 1024;
+    /** 未指定上限时的默认最大请求体 */
+    public static final int DEFAULT_MAX_BODY_BYTES = 10 * 1024 * 1024;
+
+    private byte[] buffer;
+    private final int length;
+    private final boolean unsafe;
+
+    /** 请求体超过上限 */
+    public static class BodyTooLargeException extends IOException {
+        public BodyTooLargeException(int maxBodyBytes) {
+            super("请求体超过 " + maxBodyBytes + " 字节上限");
+        }
+    }
 
     public CachedBodyHttpServletRequest(HttpServletRequest request) throws IOException {
+        this(request, null, DEFAULT_MAX_BODY_BYTES);
+    }
+
+    /**
+     * @param matcher      非 null 时边读边扫描，结果见 {@link #containsXssPattern()}
+     * @param maxBodyBytes 请求体上限，超过抛出 {@link BodyTooLargeException}
+     */
+    public CachedBodyHttpServletRequest(HttpServletRequest request, XssPatternMatcher matcher, int maxBodyBytes)
+            throws IOException {
         super(request);
-        InputStream requestInputStream = request.getInputStream();
-        this.cachedBody = StreamUtils.copyToByteArray(requestInputStream);
+        int declared = request.getContentLength();
+        if (declared > maxBodyBytes) {
+            throw new BodyTooLargeException(maxBodyBytes);
+        }
+        // 容量最多 maxBodyBytes + 1：读满这 1 字节即说明超限
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8L, maxBodyBytes + 1L);
+        byte[] buf = acquire(declared, capacity);
+        int count = 0;
+        int state = XssPatternMatcher.INITIAL;
+        InputStream in = request.getInputStream();
+        int n;
+        while (true) {
+            if (count == buf.length) {
+                if (count >= capacity) {
+                    recycle(buf);
+                    throw new BodyTooLargeException(maxBodyBytes);
+                }
+                byte[] grown = Arrays.copyOf(buf, (int) Math.min(capacity, buf.length * 2L));
+                recycle(buf);
+                buf = grown;
+            }
+            n = in.read(buf, count, buf.length - count);
+            if (n < 0) {
+                break;
+            }
+            if (matcher != null) {
+                state = matcher.scan(state, buf, count, n);
+            }
+            count += n;
+        }
+        if (count > maxBodyBytes) {
+            recycle(buf);
+            throw new BodyTooLargeException(maxBodyBytes);
+        }
+        this.buffer = buf;
+        this.length = count;
+        this.unsafe = state == XssPatternMatcher.MATCHED;
+    }
+
+    /** 读取时是否命中 XSS 危险片段（未传匹配器时恒为 false） */
+    public boolean containsXssPattern() {
+        return unsafe;
     }
 
+    public int getBodyLength() {
+        return length;
+    }
+
+    /** 返回请求体副本（调试/日志用，热路径请用 {@link #getInputStream()}） */
     public byte[] getBody() {
-        return this.cachedBody;
+        return Arrays.copyOf(buffer, length);
     }
 
     @Override
     public ServletInputStream getInputStream() {
-        return new CachedBodyServletInputStream(this.cachedBody);
+        return new CachedBodyServletInputStream(buffer, length);
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        String encoding = getCharacterEncoding();
+        Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+
+    /** 请求处理完毕后归还缓冲区；异步请求仍在读取时不要调用 */
+    public void release() {
+        byte[] buf = buffer;
+        buffer = null;
+        if (buf != null) {
+            recycle(buf);
+        }
+    }
+
+    private static byte[] acquire(int contentLength, int capacity) {
+        if (contentLength >= POOLED_BUFFER_SIZE || capacity < POOLED_BUFFER_SIZE) {
+            // 多留 1 字节，读满 Content-Length 后探测 EOF 时无需扩容；声明值不可信，预分配封顶
+            return new byte[Math.max(1, Math.min(Math.min(contentLength, MAX_PRESIZE) + 1, capacity))];
+        }
+        byte[] pooled = POOL.poll();
+        return pooled != null ? pooled : new byte[POOLED_BUFFER_SIZE];
+    }
+
+    private static void recycle(byte[] buf) {
+        if (buf.length == POOLED_BUFFER_SIZE) {
+            POOL.offer(buf);
+        }
     }
 
     private static class CachedBodyServletInputStream extends ServletInputStream {
 
         private final ByteArrayInputStream inputStream;
 
-        public CachedBodyServletInputStream(byte[] cachedBody) {
-            this.inputStream = new ByteArrayInputStream(cachedBody);
+        public CachedBodyServletInputStream(byte[] buffer, int length) {
+            this.inputStream = new ByteArrayInputStream(buffer, 0, length);
         }
 
         @Override
@@ -56,5 +170,10 @@ public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
         public int read() {
             return inputStream.read();
         }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return inputStream.read(b, off, len);
+        }
     }
 }
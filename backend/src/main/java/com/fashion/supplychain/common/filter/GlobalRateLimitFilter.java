@@ -1,5 +1,7 @@
 package com.fashion.supplychain.common.filter;
 
+import com.fashion.supplychain.auth.TokenAuthFilter;
+import com.fashion.supplychain.auth.VerifiedSessionCache;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -20,7 +22,9 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Component
@@ -41,8 +45,45 @@ public class GlobalRateLimitFilter extends OncePerRequestFilter {
             "end " +
             "return current";
 
+    /**
+     * 批量预占：一次从全局计数中领取最多 block 个名额，返回 {实际领取数（0 = 已达上限）, 计数 key 剩余毫秒}。
+     * 与 LUA_SCRIPT 共用同一计数 key，全局上限不变。
+     */
+    private static final String LEASE_LUA_SCRIPT =
+            "local key = KEYS[1] " +
+            "local limit = tonumber(ARGV[1]) " +
+            "local window = tonumber(ARGV[2]) " +
+            "local block = tonumber(ARGV[3]) " +
+            "local current = tonumber(redis.call('get', key) or '0') " +
+            "if current >= limit then " +
+            "  return 0 " +
+            "end " +
+            "local grant = math.min(block, limit - current) " +
+            "current = redis.call('incrby', key, grant) " +
+            "if current == grant then " +
+            "  redis.call('expire', key, window) " +
+            "end " +
+            "return {grant, redis.call('pttl', key)}";
+
+    /**
+     * 归还租约内未用完的名额：只在计数 key 仍存在时扣减，且不扣成负数
+     * （窗口已过期重建时不能把上一窗口的余量算到新窗口头上，也不能留下无过期时间的负数 key）。
+     */
+    private static final String RETURN_LUA_SCRIPT =
+            "local current = tonumber(redis.call('get', KEYS[1]) or '0') " +
+            "local n = math.min(tonumber(ARGV[1]), current) " +
+            "if n > 0 then " +
+            "  redis.call('decrby', KEYS[1], n) " +
+            "end " +
+            "return n";
+
+    @SuppressWarnings("rawtypes")
+    static final DefaultRedisScript<List> LEASE_SCRIPT = new DefaultRedisScript<>(LEASE_LUA_SCRIPT, List.class);
+    static final DefaultRedisScript<Long> RETURN_SCRIPT = new DefaultRedisScript<>(RETURN_LUA_SCRIPT, Long.class);
+
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
+    private final VerifiedSessionCache sessionCache;
 
     @Value("${app.rate-limit.enabled:true}")
     private boolean enabled;
@@ -53,6 +94,21 @@ public class GlobalRateLimitFilter extends OncePerRequestFilter {
     @Value("${app.rate-limit.default-window-seconds:60}")
     private int defaultWindowSeconds;
 
+    /** 已验证会话走本地名额租约时，每次从 Redis 领取名额数的上限（<=1 关闭租约） */
+    @Value("${app.rate-limit.lease-block:10}")
+    int leaseBlock;
+
+    /**
+     * 租约有效期（不超过计数 key 的剩余窗口）。到期或被新租约替换时，未用完的名额用 RETURN_SCRIPT 退回全局计数；
+     * 每次领取的数量按上一租约的实际用量自适应（用完翻倍、没用完则按用量收缩），低频客户端每次只领 2 个。
+     */
+    private static final long LEASE_TTL_MS = 5_000L;
+    private static final int MIN_LEASE_BLOCK = 2;
+    /** 单次清扫最多退回的过期租约数，避免请求线程上做过多 Redis 调用 */
+    private static final int SWEEP_RETURN_LIMIT = 200;
+    private final ConcurrentHashMap<String, PermitLease> leases = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepAt = new AtomicLong();
+
     // 熔断器：Redis 连续失败 3 次后，60 秒内直接跳过 Redis 调用
     // 避免每个请求都等 5 秒 Redis 超时 → Tomcat 线程池耗尽 → 全站请求超时
     private static final int CIRCUIT_BREAK_THRESHOLD = 3;
@@ -86,14 +142,18 @@ public class GlobalRateLimitFilter extends OncePerRequestFilter {
             new RateLimitRule("/api/auth/register", "register", 5, 3600)
     );
 
-    public GlobalRateLimitFilter(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+    public GlobalRateLimitFilter(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                                 VerifiedSessionCache sessionCache) {
         this.redisTemplate = redisTemplate;
         this.objectMapper = objectMapper;
+        this.sessionCache = sessionCache;
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
+        // 鉴权链路开销计时起点（UserContextInterceptor 结束计时）
+        request.setAttribute(VerifiedSessionCache.PIPELINE_START_ATTR, System.nanoTime());
         if (!enabled) {
             filterChain.doFilter(request, response);
             return;
@@ -122,6 +182,21 @@ public class GlobalRateLimitFilter extends OncePerRequestFilter {
                 return;
             }
 
+            // 已验证会话 + 默认类别：消耗本地租约名额，租约用尽才访问 Redis
+            // ai/export/register 等小额度类别仍逐请求精确计数
+            if (leaseBlock > 1 && "default".equals(matchedRule.category) && isVerifiedSession(request)) {
+                if (!acquireLeased(key, maxRequests, windowSeconds)) {
+                    log.warn("[GlobalRateLimit] 限流触发(租约): key={}, limit={}per{}s, uri={}",
+                            key, maxRequests, windowSeconds, uri);
+                    sendRateLimitResponse(response, maxRequests, windowSeconds);
+                    return;
+                }
+                response.setHeader("X-RateLimit-Limit", String.valueOf(maxRequests));
+                response.setHeader("X-RateLimit-Reset", String.valueOf(windowSeconds));
+                filterChain.doFilter(request, response);
+                return;
+            }
+
             DefaultRedisScript<Long> script = new DefaultRedisScript<>(LUA_SCRIPT, Long.class);
             Long current = redisTemplate.execute(script,
                     Collections.singletonList(key),
@@ -154,6 +229,82 @@ public class GlobalRateLimitFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private boolean isVerifiedSession(HttpServletRequest request) {
+        if (sessionCache == null) {
+            return false;
+        }
+        VerifiedSessionCache.Lookup lookup = sessionCache.lookup(request, TokenAuthFilter.bearerToken(request));
+        return lookup != null && lookup.getEntry() != null;
+    }
+
+    /** 本地租约取一个名额；租约用尽或过期时先退回余量，再按自适应块大小向 Redis 批量领取 */
+    boolean acquireLeased(String key, int maxRequests, int windowSeconds) {
+        long now = System.currentTimeMillis();
+        sweepExpired(now);
+        PermitLease lease = leases.get(key);
+        if (lease != null && lease.tryTake(now)) {
+            return true;
+        }
+        int block = MIN_LEASE_BLOCK;
+        if (lease != null) {
+            block = lease.nextBlock();
+            returnUnused(key, lease);
+        }
+        List<?> reply = redisTemplate.execute(LEASE_SCRIPT,
+                Collections.singletonList(key),
+                String.valueOf(maxRequests),
+                String.valueOf(windowSeconds),
+                String.valueOf(Math.min(block, leaseBlock)));
+        onRedisSuccess();
+        long granted = reply != null && !reply.isEmpty() ? ((Number) reply.get(0)).longValue() : 0L;
+        if (granted <= 0) {
+            if (lease != null) {
+                leases.remove(key, lease);
+            }
+            return false;
+        }
+        long windowLeftMs = reply.size() > 1 ? ((Number) reply.get(1)).longValue() : -1L;
+        long expiresAt = now + (windowLeftMs > 0 ? Math.min(LEASE_TTL_MS, windowLeftMs) : LEASE_TTL_MS);
+        // 本次请求用掉一个，其余放入租约
+        PermitLease fresh = new PermitLease((int) granted, expiresAt);
+        fresh.tryTake(now);
+        PermitLease replaced = leases.put(key, fresh);
+        if (replaced != null && replaced != lease) {
+            // 并发请求同时续租，被挤掉的那份同样退回
+            returnUnused(key, replaced);
+        }
+        return true;
+    }
+
+    /** 退回租约余量；失败只记日志（余量已计入全局计数，只会更保守） */
+    private void returnUnused(String key, PermitLease lease) {
+        int unused = lease.drain();
+        if (unused <= 0) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RETURN_SCRIPT, Collections.singletonList(key), String.valueOf(unused));
+        } catch (Exception e) {
+            log.debug("[GlobalRateLimit] 退回租约余量失败: key={}, unused={}, err={}", key, unused, e.getMessage());
+        }
+    }
+
+    /** 每个租约周期清扫一次过期租约并退回余量（不再来的低频客户端不会再触发替换） */
+    private void sweepExpired(long now) {
+        long due = nextSweepAt.get();
+        if (now < due || !nextSweepAt.compareAndSet(due, now + LEASE_TTL_MS)) {
+            return;
+        }
+        int returned = 0;
+        for (Map.Entry<String, PermitLease> e : leases.entrySet()) {
+            PermitLease lease = e.getValue();
+            if (lease.expiresAt <= now && leases.remove(e.getKey(), lease) && returned < SWEEP_RETURN_LIMIT) {
+                returnUnused(e.getKey(), lease);
+                returned++;
+            }
+        }
+    }
+
     private boolean isCircuitBroken() {
         long now = System.currentTimeMillis();
         if (now < circuitBreakUntil) {
@@ -215,4 +366,34 @@ public class GlobalRateLimitFilter extends OncePerRequestFilter {
     }
 
     record RateLimitRule(String pathPrefix, String category, int maxRequests, int windowSeconds) {}
+
+    private static final class PermitLease {
+        private final int granted;
+        private final AtomicInteger remaining;
+        private final long expiresAt;
+
+        PermitLease(int granted, long expiresAt) {
+            this.granted = granted;
+            this.remaining = new AtomicInteger(granted);
+            this.expiresAt = expiresAt;
+        }
+
+        boolean tryTake(long now) {
+            if (now >= expiresAt) {
+                return false;
+            }
+            return remaining.getAndUpdate(r -> r > 0 ? r - 1 : r) > 0;
+        }
+
+        /** 取走全部余量（之后 tryTake 恒失败），返回取走的数量 */
+        int drain() {
+            return remaining.getAndSet(0);
+        }
+
+        /** 下一块大小：本租约用完说明速率高，翻倍；否则按实际用量 + 1 收缩 */
+        int nextBlock() {
+            int used = granted - Math.max(0, remaining.get());
+            return used >= granted ? granted * 2 : Math.max(MIN_LEASE_BLOCK, used + 1);
+        }
+    }
 }
@@ -1,11 +1,16 @@
 package com.fashion.supplychain.common.filter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.MediaType;
@@ -15,7 +20,13 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * XSS 过滤：JSON 请求体在读取时单次流式扫描（{@link XssPatternMatcher}），缓冲区即下游绑定读取的请求体；
+ * 其余请求对参数/请求头按需转义。
+ * 过滤器自身开销（读取 + 扫描）以 xss.filter.overhead / xss.filter.body.bytes 指标发布。
+ */
 @Slf4j
 @Component
 @Order(Ordered.HIGHEST_PRECEDENCE + 1)
@@ -32,6 +43,13 @@ public class XssFilter extends OncePerRequestFilter {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    /** JSON 请求体上限（超过返回 413，不再继续读取） */
+    @Value("${app.xss.max-json-body-bytes:10485760}")
+    private int maxJsonBodyBytes;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
@@ -45,27 +63,63 @@ public class XssFilter extends OncePerRequestFilter {
 
         String contentType = request.getContentType();
         if (contentType != null && contentType.contains(MediaType.APPLICATION_JSON_VALUE)) {
-            CachedBodyHttpServletRequest cachedRequest = new CachedBodyHttpServletRequest(request);
-            String body = new String(cachedRequest.getBody(), StandardCharsets.UTF_8);
-            if (XssHttpServletRequestWrapper.containsXssPattern(body)) {
-                log.warn("[XssFilter] 拦截含XSS攻击的JSON请求体: uri={}, body长度={}", uri, body.length());
-                sendXssBlockedResponse(response);
+            long start = System.nanoTime();
+            CachedBodyHttpServletRequest cachedRequest;
+            try {
+                cachedRequest = new CachedBodyHttpServletRequest(request, XssPatternMatcher.getDefault(), maxJsonBodyBytes);
+            } catch (CachedBodyHttpServletRequest.BodyTooLargeException e) {
+                log.warn("[XssFilter] JSON请求体超过上限: uri={}, contentLength={}", uri, request.getContentLength());
+                sendError(response, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "请求体过大");
+                return;
+            }
+            boolean blocked = cachedRequest.containsXssPattern();
+            recordOverhead(start, cachedRequest.getBodyLength(), blocked);
+            if (blocked) {
+                log.warn("[XssFilter] 拦截含XSS攻击的JSON请求体: uri={}, body长度={}", uri, cachedRequest.getBodyLength());
+                cachedRequest.release();
+                sendError(response, HttpServletResponse.SC_BAD_REQUEST, "请求包含不安全内容，已被拦截");
                 return;
             }
-            filterChain.doFilter(cachedRequest, response);
+            try {
+                filterChain.doFilter(cachedRequest, response);
+            } finally {
+                // 异步请求的处理线程可能仍在读取请求体，缓冲区交给 GC
+                if (!request.isAsyncStarted()) {
+                    cachedRequest.release();
+                }
+            }
         } else {
             XssHttpServletRequestWrapper wrappedRequest = new XssHttpServletRequestWrapper(request);
             filterChain.doFilter(wrappedRequest, response);
         }
     }
 
-    private void sendXssBlockedResponse(HttpServletResponse response) throws IOException {
-        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+    private void recordOverhead(long startNanos, int bodyBytes, boolean blocked) {
+        if (meterRegistry == null) {
+            return;
+        }
+        String result = blocked ? "blocked" : "pass";
+        Timer.builder("xss.filter.overhead")
+                .description("XSS 过滤器读取并扫描 JSON 请求体的耗时")
+                .tag("result", result)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("xss.filter.body.bytes")
+                .description("XSS 过滤器扫描的 JSON 请求体大小")
+                .baseUnit("bytes")
+                .tag("result", result)
+                .register(meterRegistry)
+                .record(bodyBytes);
+    }
+
+    private void sendError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
         response.setCharacterEncoding(StandardCharsets.UTF_8.name());
         Map<String, Object> result = Map.of(
-                "code", 400,
-                "message", "请求包含不安全内容，已被拦截",
+                "code", status,
+                "message", message,
                 "data", null
         );
         response.getWriter().write(objectMapper.writeValueAsString(result));
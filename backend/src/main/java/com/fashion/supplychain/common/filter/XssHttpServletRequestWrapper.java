@@ -62,13 +62,8 @@ public class XssHttpServletRequestWrapper extends HttpServletRequestWrapper {
         return HtmlUtils.htmlEscape(value, "UTF-8");
     }
 
+    /** 单次扫描、大小写不敏感，片段列表见 {@link XssPatternMatcher#PATTERNS} */
     static boolean containsXssPattern(String value) {
-        String lower = value.toLowerCase();
-        return lower.contains("<script") || lower.contains("javascript:")
-                || lower.contains("onerror=") || lower.contains("onload=")
-                || lower.contains("onclick=") || lower.contains("onmouseover=")
-                || lower.contains("<iframe") || lower.contains("<object")
-                || lower.contains("<embed") || lower.contains("expression(")
-                || lower.contains("vbscript:") || lower.contains("data:text/html");
+        return XssPatternMatcher.getDefault().matches(value);
     }
 }
@@ -0,0 +1,142 @@
+package com.fashion.supplychain.common.filter;
+
+import java.util.Arrays;
+
+/**
+ * XSS 危险片段多模式匹配器（Aho-Corasick，ASCII 大小写不敏感）
+ *
+ * 构建时把全部危险片段编译为一张 128 列的状态转移表，匹配时对输入只做一次线性扫描，
+ * 不生成小写副本。危险片段全部是 ASCII，UTF-8 多字节序列的每个字节都 >= 0x80，
+ * 直接回到根状态即可，因此字节流与字符串两种输入语义一致。
+ *
+ * 字节流可以分块输入：调用方保存上一块返回的状态，下一块从该状态继续，跨块边界的片段同样能命中。
+ */
+public final class XssPatternMatcher {
+
+    /** 与原 containsXssPattern 的 12 个片段一致 */
+    static final String[] PATTERNS = {
+            "<script", "javascript:", "onerror=", "onload=", "onclick=", "onmouseover=",
+            "<iframe", "<object", "<embed", "expression(", "vbscript:", "data:text/html"
+    };
+
+    /** 命中后返回的终止状态 */
+    public static final int MATCHED = -1;
+    public static final int INITIAL = 0;
+
+    private static final int ALPHABET = 128;
+    private static final XssPatternMatcher DEFAULT = new XssPatternMatcher(PATTERNS);
+
+    private final int[][] transitions;
+    private final boolean[] accepting;
+
+    XssPatternMatcher(String[] patterns) {
+        int maxStates = 1;
+        for (String p : patterns) {
+            maxStates += p.length();
+        }
+        int[][] gotoTable = new int[maxStates][ALPHABET];
+        boolean[] output = new boolean[maxStates];
+        for (int[] row : gotoTable) {
+            Arrays.fill(row, -1);
+        }
+        int states = 1;
+        for (String p : patterns) {
+            int s = 0;
+            for (int i = 0; i < p.length(); i++) {
+                int c = fold(p.charAt(i));
+                if (gotoTable[s][c] < 0) {
+                    gotoTable[s][c] = states++;
+                }
+                s = gotoTable[s][c];
+            }
+            output[s] = true;
+        }
+
+        // BFS 计算失配链，并把 goto + fail 展开成完整转移表
+        int[] fail = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = gotoTable[0][c];
+            if (next < 0) {
+                gotoTable[0][c] = 0;
+            } else {
+                fail[next] = 0;
+                queue[tail++] = next;
+            }
+        }
+        while (head < tail) {
+            int s = queue[head++];
+            output[s] |= output[fail[s]];
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = gotoTable[s][c];
+                if (next < 0) {
+                    gotoTable[s][c] = gotoTable[fail[s]][c];
+                } else {
+                    fail[next] = gotoTable[fail[s]][c];
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        this.transitions = new int[states][];
+        System.arraycopy(gotoTable, 0, this.transitions, 0, states);
+        this.accepting = new boolean[states];
+        System.arraycopy(output, 0, this.accepting, 0, states);
+        // 大写字母与小写共用转移
+        for (int[] row : this.transitions) {
+            for (int c = 'A'; c <= 'Z'; c++) {
+                row[c] = row[c + 32];
+            }
+        }
+    }
+
+    public static XssPatternMatcher getDefault() {
+        return DEFAULT;
+    }
+
+    private static int fold(char c) {
+        return (c >= 'A' && c <= 'Z') ? c + 32 : c;
+    }
+
+    /**
+     * 从 state 继续扫描 buf[off, off+len)。
+     *
+     * @return 命中时返回 {@link #MATCHED}，否则返回扫描结束时的状态（供下一块继续）
+     */
+    public int scan(int state, byte[] buf, int off, int len) {
+        if (state == MATCHED) {
+            return MATCHED;
+        }
+        int[][] t = transitions;
+        boolean[] acc = accepting;
+        int s = state;
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            int b = buf[i];
+            s = b < 0 ? 0 : t[s][b];
+            if (acc[s]) {
+                return MATCHED;
+            }
+        }
+        return s;
+    }
+
+    public boolean matches(CharSequence value) {
+        if (value == null) {
+            return false;
+        }
+        int[][] t = transitions;
+        boolean[] acc = accepting;
+        int s = 0;
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            s = c >= ALPHABET ? 0 : t[s][c];
+            if (acc[s]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -95,6 +95,26 @@ public class DistributedLockService {
         }
     }
 
+    /**
+     * 占用一次性认领标记（不释放，到期自动删除），用于多实例按租户分片执行定时任务。
+     *
+     * 与 {@link #tryLock} 的区别：能区分“已被其他实例认领”和“Redis 不可用”，
+     * 调用方可在 Redis 不可用时降级为本实例全量执行，而不是整轮跳过。
+     *
+     * @return true=本实例认领成功；false=已被其他实例认领；null=Redis 不可用
+     */
+    public Boolean tryClaim(String key, long timeout, TimeUnit unit) {
+        String lockKey = LOCK_PREFIX + key;
+        try {
+            Boolean success = redisTemplate.opsForValue()
+                    .setIfAbsent(lockKey, UUID.randomUUID().toString(), timeout, unit);
+            return success == null ? null : success;
+        } catch (Exception e) {
+            log.warn("Claim skipped (Redis unavailable): {} - {}", lockKey, e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * 自愈冷却时间（毫秒）：避免 Redis 真挂时每次定时任务都尝试 start() 风暴
      */
@@ -0,0 +1,254 @@
+package com.fashion.supplychain.common.serial;
+
+import com.fashion.supplychain.common.UserContext;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 统一单据号服务（号段分配）。
+ *
+ * 原状：PaymentNoGenerator 用进程内静态 AtomicLong（重启归 1、多实例各自计数，单号会重复）；
+ * 结算单/对账单每次取号都要分布式锁 + 查业务表最大号；仓库单据用“时间戳 + 随机数”，同一秒内可能撞号。
+ *
+ * 现流程：
+ * 1. 序列按 (租户, 前缀, 周期) 独立，周期一般为日期（yyyyMMdd）或月份（yyyyMM）；
+ * 2. 号段持久化在 t_document_no_segment：每次租约在独立事务里把 max_value 原子推进一个步长，
+ *    本节点独占 (max_value - step, max_value] 区间；
+ * 3. 区间内取号只是一次 AtomicLong 自增（无锁、无网络往返），用尽才再租一段；
+ * 4. 重启 / 多实例只会丢弃未用完的区间（单号出现空洞），永不重复；
+ * 5. 步长自适应：号段很快用完就翻倍（最大 segment-size），长时间才用完就减半，低频单据不至于一次重启跳过上千号。
+ *
+ * 首次租约可传入 floor（业务表中该周期已存在的最大序号），兼容上线当天旧方案已发出的单号。
+ */
+@Slf4j
+@Service
+public class DocumentNoService {
+
+    public static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+    public static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    /** 全局作用域（单号在全库唯一而非租户内唯一时使用）在表中的 tenant_id */
+    private static final long GLOBAL_SCOPE = 0L;
+
+    private static final int MIN_STEP = 10;
+
+    /** 号段在此时长内用完视为高频，下次步长翻倍 */
+    private static final long FAST_EXHAUST_MS = 60_000L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.document-no.segment-size:1000}")
+    private int maxStep;
+
+    private TransactionTemplate leaseTx;
+
+    /** 周期翻转后旧 key 自然过期 */
+    private final Cache<String, SegmentHolder> holders = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofDays(2))
+            .maximumSize(50_000)
+            .build();
+
+    /**
+     * 租户内按天递增的单号：prefix + yyyyMMdd + 6 位序号（如 FI20261019000001）
+     */
+    public String nextDailyNo(String prefix) {
+        String period = LocalDate.now().format(DAY);
+        return format(prefix, period, next(UserContext.tenantId(), prefix, period, null), 6);
+    }
+
+    /**
+     * 全库按天递增的单号：prefix + yyyyMMdd + 6 位序号。
+     *
+     * 单号列有全局唯一索引时使用（如入库单号），否则两个租户当天第一单都是 000001，后写入的撞唯一索引。
+     * 首次租约以业务表中当天全库已发出的最大序号为起点（JdbcTemplate 不经租户拦截器）。
+     *
+     * @param table  业务表（代码内常量，不接受外部输入）
+     * @param column 单号列
+     */
+    public String nextGlobalDailyNo(String prefix, String table, String column) {
+        String day = LocalDate.now().format(DAY);
+        String prefixWithDay = prefix + day;
+        return nextNo(prefix, day, 6, false, () -> DocumentNoService.parseSeq(jdbcTemplate.queryForObject(
+                "SELECT MAX(" + column + ") FROM " + table + " WHERE " + column + " LIKE ?",
+                String.class, prefixWithDay + "%"), prefixWithDay));
+    }
+
+    /**
+     * 通用取号：prefix + period + width 位序号（超出位数时按实际位数输出）
+     *
+     * @param tenantScoped true=租户内唯一；false=全库唯一（业务表单号有全局唯一索引时）
+     * @param floor        首次租约时该周期已存在的最大序号（可为 null）
+     */
+    public String nextNo(String prefix, String period, int width, boolean tenantScoped, LongSupplier floor) {
+        Long scope = tenantScoped ? UserContext.tenantId() : null;
+        return format(prefix, period, next(scope, prefix, period, floor), width);
+    }
+
+    /**
+     * 取下一个序号（从 1 开始）
+     */
+    public long next(Long tenantId, String prefix, String period, LongSupplier floor) {
+        if (!StringUtils.hasText(prefix)) {
+            throw new IllegalArgumentException("单号前缀不能为空");
+        }
+        long scope = tenantId != null ? tenantId : GLOBAL_SCOPE;
+        String p = period != null ? period : "";
+        SegmentHolder holder = holders.get(scope + "|" + prefix + "|" + p, k -> new SegmentHolder());
+
+        Segment seg = holder.current;
+        if (seg != null) {
+            long v = seg.next.getAndIncrement();
+            if (v <= seg.max) {
+                return v;
+            }
+        }
+        synchronized (holder) {
+            seg = holder.current;
+            if (seg != null) {
+                long v = seg.next.getAndIncrement();
+                if (v <= seg.max) {
+                    return v;
+                }
+            }
+            int step = nextStep(seg);
+            Segment fresh = lease(scope, prefix, p, step, floor);
+            holder.current = fresh;
+            return fresh.next.getAndIncrement();
+        }
+    }
+
+    private int nextStep(Segment exhausted) {
+        int cap = Math.max(MIN_STEP, maxStep);
+        if (exhausted == null) {
+            return MIN_STEP;
+        }
+        long lived = System.currentTimeMillis() - exhausted.leasedAt;
+        if (lived < FAST_EXHAUST_MS) {
+            return Math.min(cap, exhausted.step * 2);
+        }
+        return Math.max(MIN_STEP, exhausted.step / 2);
+    }
+
+    /**
+     * 独立事务推进号段：不受调用方业务事务回滚影响（回滚会让别的节点租到同一区间）
+     */
+    private Segment lease(long scope, String prefix, String period, int step, LongSupplier floor) {
+        Long max = leaseTx().execute(status -> jdbcTemplate.execute((ConnectionCallback<Long>) conn -> {
+            boolean exists;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT 1 FROM t_document_no_segment WHERE tenant_id = ? AND prefix = ? AND period = ?")) {
+                ps.setLong(1, scope);
+                ps.setString(2, prefix);
+                ps.setString(3, period);
+                try (ResultSet rs = ps.executeQuery()) {
+                    exists = rs.next();
+                }
+            }
+            long base = 0L;
+            if (!exists && floor != null) {
+                try {
+                    base = Math.max(0L, floor.getAsLong());
+                } catch (Exception e) {
+                    log.warn("[DocumentNo] 读取起始序号失败 prefix={} period={}: {}", prefix, period, e.getMessage());
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO t_document_no_segment (tenant_id, prefix, period, max_value, step, update_time) "
+                            + "VALUES (?, ?, ?, LAST_INSERT_ID(?), ?, NOW()) "
+                            + "ON DUPLICATE KEY UPDATE max_value = LAST_INSERT_ID(max_value + VALUES(step)), "
+                            + "step = VALUES(step), update_time = NOW()")) {
+                ps.setLong(1, scope);
+                ps.setString(2, prefix);
+                ps.setString(3, period);
+                ps.setLong(4, base + step);
+                ps.setInt(5, step);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT LAST_INSERT_ID()");
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }));
+        if (max == null) {
+            throw new IllegalStateException("单号号段分配失败: " + prefix + period);
+        }
+        log.debug("[DocumentNo] 租约号段 scope={} prefix={} period={} range=({}, {}]", scope, prefix, period, max - step, max);
+        return new Segment(max - step + 1, max, step);
+    }
+
+    private TransactionTemplate leaseTx() {
+        TransactionTemplate tx = leaseTx;
+        if (tx == null) {
+            tx = new TransactionTemplate(transactionManager);
+            tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            tx.setTimeout(5);
+            leaseTx = tx;
+        }
+        return tx;
+    }
+
+    private static String format(String prefix, String period, long seq, int width) {
+        String digits = Long.toString(seq);
+        StringBuilder sb = new StringBuilder(prefix.length() + period.length() + Math.max(width, digits.length()));
+        sb.append(prefix).append(period);
+        for (int i = digits.length(); i < width; i++) {
+            sb.append('0');
+        }
+        return sb.append(digits).toString();
+    }
+
+    /**
+     * 从已存在的单号中解析序号（用于 floor）：去掉 prefix+period 后的纯数字部分，无法解析返回 0
+     */
+    public static long parseSeq(String no, String prefixWithPeriod) {
+        if (no == null || prefixWithPeriod == null || !no.startsWith(prefixWithPeriod)
+                || no.length() == prefixWithPeriod.length()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(no.substring(prefixWithPeriod.length()));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static final class SegmentHolder {
+        volatile Segment current;
+    }
+
+    private static final class Segment {
+        final AtomicLong next;
+        final long max;
+        final int step;
+        final long leasedAt = System.currentTimeMillis();
+
+        Segment(long first, long max, int step) {
+            this.next = new AtomicLong(first);
+            this.max = max;
+            this.step = step;
+        }
+    }
+}
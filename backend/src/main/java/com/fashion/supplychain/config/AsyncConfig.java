@@ -74,6 +74,29 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    /**
+     * Webhook 投递专用线程池（与主业务 taskExecutor 隔离）。
+     *
+     * <p>慢客户端只会占满本池，不影响其他 @Async 任务；队列满时抛 RejectedExecutionException，
+     * 由 WebhookDispatcher 把事件归还发件箱等待下一轮，不使用 CallerRuns（会阻塞调度线程）。
+     */
+    @Bean("webhookDeliveryExecutor")
+    public Executor webhookDeliveryExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(500);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("webhook-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(15);
+        executor.initialize();
+        log.info("Webhook delivery thread pool initialized: core={}, max={}, queue={}",
+                executor.getCorePoolSize(), executor.getMaxPoolSize(), 500);
+        return executor;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return (Throwable ex, Method method, Object... params) -> {
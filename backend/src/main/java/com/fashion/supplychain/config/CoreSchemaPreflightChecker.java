@@ -155,6 +155,8 @@ public class CoreSchemaPreflightChecker implements ApplicationRunner, HealthIndi
 
     private final DataSource dataSource;
 
+    private final SchemaFingerprintGuard schemaFingerprintGuard;
+
     @Value("${fashion.db.schema-preflight-enabled:true}")
     private boolean enabled;
 
@@ -166,8 +168,9 @@ public class CoreSchemaPreflightChecker implements ApplicationRunner, HealthIndi
 
     private volatile LocalDateTime lastCheckedAt;
 
-    public CoreSchemaPreflightChecker(DataSource dataSource) {
+    public CoreSchemaPreflightChecker(DataSource dataSource, SchemaFingerprintGuard schemaFingerprintGuard) {
         this.dataSource = dataSource;
+        this.schemaFingerprintGuard = schemaFingerprintGuard;
     }
 
     @Override
@@ -205,8 +208,10 @@ public class CoreSchemaPreflightChecker implements ApplicationRunner, HealthIndi
         long zeroTenantScanCount = 0L;
         try (Connection conn = dataSource.getConnection()) {
             String schema = conn.getCatalog();
+            // 优先使用指纹守卫的批量元数据快照（内存比对），不可用时回退逐表查询
+            SchemaFingerprintGuard.SchemaSnapshot snapshot = schemaFingerprintGuard.snapshot();
             for (Map.Entry<String, List<String>> entry : REQUIRED_COLUMNS.entrySet()) {
-                List<String> tableMissing = findMissingColumns(conn, schema, entry.getKey(), entry.getValue());
+                List<String> tableMissing = findMissingColumns(conn, schema, snapshot, entry.getKey(), entry.getValue());
                 if (!tableMissing.isEmpty()) {
                     missing.put(entry.getKey(), tableMissing);
                 }
@@ -222,6 +227,10 @@ public class CoreSchemaPreflightChecker implements ApplicationRunner, HealthIndi
         lastZeroTenantScanCount = zeroTenantScanCount;
         lastCheckedAt = checkedAt;
 
+        if (!missing.isEmpty()) {
+            schemaFingerprintGuard.markDirty("核心表缺列: " + formatSummary(missing));
+        }
+
         if (missing.isEmpty()) {
             log.info("[SchemaPreflight] 核心表结构预检通过：生产/裁剪/质检入库/采购/领取/智能会议/智能信号/智能度量核心缺列为 0");
         } else {
@@ -236,12 +245,12 @@ public class CoreSchemaPreflightChecker implements ApplicationRunner, HealthIndi
         }
     }
 
-    private List<String> findMissingColumns(Connection conn, String schema, String table, List<String> expectedColumns)
-            throws Exception {
+    private List<String> findMissingColumns(Connection conn, String schema, SchemaFingerprintGuard.SchemaSnapshot snapshot,
+            String table, List<String> expectedColumns) throws Exception {
         if (expectedColumns == null || expectedColumns.isEmpty()) {
             return List.of();
         }
-        Set<String> actualColumns = loadActualColumns(conn, schema, table);
+        Set<String> actualColumns = snapshot != null ? snapshot.columns(table) : loadActualColumns(conn, schema, table);
         List<String> missing = new ArrayList<>();
         for (String column : expectedColumns) {
             if (!actualColumns.contains(column)) {
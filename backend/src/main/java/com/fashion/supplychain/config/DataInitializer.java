@@ -41,6 +41,9 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired
     private FinanceTableMigrator financeMigrator;
 
+    @Autowired
+    private SchemaFingerprintGuard schemaFingerprintGuard;
+
     @Override
     public void run(String... args) throws Exception {
         log.info("Checking database initialization...");
@@ -50,6 +53,16 @@ public class DataInitializer implements CommandLineRunner {
             return;
         }
 
+        if (schemaFingerprintGuard.isSchemaUpToDate()) {
+            // 指纹只覆盖表结构：种子数据可能被清理或新增租户，旧版本节点也可能写入缺派生列的行，仍需幂等补齐
+            log.info("Schema fingerprint unchanged, skip table migrators and only seed default data and backfill rows.");
+            systemMigrator.seedData();
+            templateMigrator.seedData();
+            productionMigrator.backfillData();
+            log.info("Database initialization completed.");
+            return;
+        }
+
         // 1. 系统基础表（用户、工厂、日志、权限、字典、管理员）
         systemMigrator.initialize();
 
@@ -26,6 +26,9 @@ public class DatabaseMigrationHelper {
     @Autowired
     private Environment environment;
 
+    @Autowired
+    private SchemaFingerprintGuard schemaFingerprintGuard;
+
     public JdbcTemplate getJdbcTemplate() {
         return jdbcTemplate;
     }
@@ -35,6 +38,10 @@ public class DatabaseMigrationHelper {
     }
 
     public boolean tableExists(String tableName) {
+        SchemaFingerprintGuard.SchemaSnapshot snapshot = schemaFingerprintGuard.snapshot();
+        if (snapshot != null && snapshot.hasTable(tableName)) {
+            return true;
+        }
         Integer count = jdbcTemplate.queryForObject(
                 "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?",
                 Integer.class,
@@ -43,6 +50,10 @@ public class DatabaseMigrationHelper {
     }
 
     public boolean columnExists(String tableName, String columnName) {
+        SchemaFingerprintGuard.SchemaSnapshot snapshot = schemaFingerprintGuard.snapshot();
+        if (snapshot != null && snapshot.hasColumn(tableName, columnName)) {
+            return true;
+        }
         Integer count = jdbcTemplate.queryForObject(
                 "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?",
                 Integer.class,
@@ -55,6 +66,7 @@ public class DatabaseMigrationHelper {
         if (sql == null || sql.trim().isEmpty()) {
             return;
         }
+        invalidateSnapshotIfDestructive(sql);
         try {
             jdbcTemplate.execute(sql);
         } catch (Exception e) {
@@ -62,6 +74,17 @@ public class DatabaseMigrationHelper {
         }
     }
 
+    /**
+     * 存在性判断会优先命中指纹快照（只认"存在"），删除/重命名类 DDL 会让快照中的"存在"失真，需丢弃重载
+     */
+    private void invalidateSnapshotIfDestructive(String sql) {
+        String upper = sql.trim().toUpperCase();
+        if (upper.startsWith("RENAME") || upper.startsWith("DROP") || upper.contains(" DROP ")
+                || upper.contains(" RENAME ")) {
+            schemaFingerprintGuard.invalidateSnapshot();
+        }
+    }
+
     public boolean waitForDatabaseReady() {
         long waitMs = resolveInitializerWaitMs();
         long deadline = waitMs <= 0 ? 0 : (System.currentTimeMillis() + waitMs);
@@ -136,6 +159,10 @@ public class DatabaseMigrationHelper {
     }
 
     public boolean indexExists(String tableName, String indexName) {
+        SchemaFingerprintGuard.SchemaSnapshot snapshot = schemaFingerprintGuard.snapshot();
+        if (snapshot != null && snapshot.hasIndex(tableName, indexName)) {
+            return true;
+        }
         Integer count = jdbcTemplate.queryForObject(
                 "SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
                 Integer.class,
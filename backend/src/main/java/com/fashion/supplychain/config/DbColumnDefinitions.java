@@ -535,6 +535,7 @@ public final class DbColumnDefinitions {
 
     private static void addFinanceColumns() {
         add("t_payable", "bill_aggregation_id", "VARCHAR(64) DEFAULT NULL COMMENT '关联账单汇总ID'");
+        add("t_payable", "paid_time", "DATETIME DEFAULT NULL COMMENT '结清时间'");
         add("t_shipment_reconciliation", "auditor_id", "VARCHAR(32) DEFAULT NULL");
         add("t_shipment_reconciliation", "auditor_name", "VARCHAR(100) DEFAULT NULL");
         add("t_shipment_reconciliation", "audit_time", "DATETIME DEFAULT NULL");
@@ -14,9 +14,15 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @ConditionalOnProperty(name = "fashion.db.repair-enabled", havingValue = "true", matchIfMissing = true)
 @Component
@@ -33,16 +39,46 @@ public class DbColumnRepairRunner implements ApplicationRunner {
     @Autowired
     private DatabaseMigrationHelper dbHelper;
 
+    @Autowired
+    private SchemaFingerprintGuard schemaFingerprintGuard;
+
+    /** 不同表的 ALTER 互不阻塞，按表并行；同一张表的列串行执行（避免元数据锁互等） */
+    private static final int REPAIR_PARALLELISM = 4;
+
     @Override
     public void run(ApplicationArguments args) {
+        if (schemaFingerprintGuard.isSchemaUpToDate()) {
+            log.info("[DbRepair] 表结构指纹未变化，跳过表/列修复");
+        } else {
+            repairSchema();
+        }
+
+        if (redisService != null) {
+            try {
+                long deleted = redisService.deleteByPattern("role:perms:*");
+                if (deleted > 0) {
+                    log.info("[DbRepair] 已清理 {} 个 role:perms:* 旧格式权限缓存", deleted);
+                }
+            } catch (Exception e) {
+                log.warn("[DbRepair] role:perms:* 缓存清理失败（忽略）: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void repairSchema() {
+        // 指纹比对时加载的快照早于 ViewMigrator 等前序 DDL，重新加载后再判断缺失项
+        schemaFingerprintGuard.invalidateSnapshot();
         try (Connection conn = dataSource.getConnection()) {
             String schema = conn.getCatalog();
+            SchemaFingerprintGuard.SchemaSnapshot snapshot = schemaFingerprintGuard.snapshot();
             int repaired = 0;
             int repairedTables = 0;
 
             // 2026-04-28：必须先建表再补列，避免列修复时表不存在导致 ALTER 失败 silently
             for (Map.Entry<String, String> entry : DbTableDefinitions.TABLE_FIXES.entrySet()) {
-                if (!tableExists(conn, schema, entry.getKey())) {
+                boolean exists = snapshot != null ? snapshot.hasTable(entry.getKey())
+                        : tableExists(conn, schema, entry.getKey());
+                if (!exists) {
                     try (Statement stmt = conn.createStatement()) {
                         stmt.execute(entry.getValue());
                     }
@@ -50,21 +86,28 @@ public class DbColumnRepairRunner implements ApplicationRunner {
                     repairedTables++;
                 }
             }
+            if (repairedTables > 0) {
+                schemaFingerprintGuard.invalidateSnapshot();
+                snapshot = schemaFingerprintGuard.snapshot();
+            }
 
+            // 只对快照中缺失的列生成 DDL，按表分组后并行执行
+            Map<String, List<String[]>> missingByTable = new LinkedHashMap<>();
             for (Map.Entry<String, List<String[]>> entry : DbColumnDefinitions.COLUMN_FIXES.entrySet()) {
                 String table = entry.getKey();
-                List<String[]> columns = entry.getValue();
-                Set<String> existingColumns = getExistingColumns(conn, schema, table);
+                Set<String> existingColumns = snapshot != null ? snapshot.columns(table)
+                        : getExistingColumns(conn, schema, table);
                 if (existingColumns.isEmpty()) {
                     // 表不存在（既不在 TABLE_FIXES 中，也未由 Flyway 创建），跳过列修复以免产生大量噪音错误日志
                     continue;
                 }
-                for (String[] col : columns) {
+                for (String[] col : entry.getValue()) {
                     if (!existingColumns.contains(col[0])) {
-                        repaired += addColumn(conn, table, col[0], col[1]);
+                        missingByTable.computeIfAbsent(table, k -> new ArrayList<>()).add(col);
                     }
                 }
             }
+            repaired += addMissingColumnsInParallel(missingByTable);
 
             repaired += DbViewRepairHelper.ensureSettlementViewHasCompleteTime(conn, schema);
             repaired += DbViewRepairHelper.ensureFlowStageSnapshotView(conn, schema);
@@ -87,20 +130,50 @@ public class DbColumnRepairRunner implements ApplicationRunner {
             }
         } catch (Exception e) {
             log.error("[DbRepair] 列修复失败，应用继续启动。原因: {}", e.getMessage());
+            schemaFingerprintGuard.markDirty("列修复失败: " + e.getMessage());
         }
 
-        if (redisService != null) {
-            try {
-                long deleted = redisService.deleteByPattern("role:perms:*");
-                if (deleted > 0) {
-                    log.info("[DbRepair] 已清理 {} 个 role:perms:* 旧格式权限缓存", deleted);
+        ensureCriticalCompositeIndexes();
+        // 修复后快照已过期，供后续预检/迁移器重新批量加载
+        schemaFingerprintGuard.invalidateSnapshot();
+    }
+
+    private int addMissingColumnsInParallel(Map<String, List<String[]>> missingByTable) {
+        if (missingByTable.isEmpty()) {
+            return 0;
+        }
+        int threads = Math.min(REPAIR_PARALLELISM, missingByTable.size());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (Map.Entry<String, List<String[]>> entry : missingByTable.entrySet()) {
+                futures.add(pool.submit(() -> {
+                    int added = 0;
+                    try (Connection tableConn = dataSource.getConnection()) {
+                        for (String[] col : entry.getValue()) {
+                            added += addColumn(tableConn, entry.getKey(), col[0], col[1]);
+                        }
+                    }
+                    return added;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> f : futures) {
+                try {
+                    total += f.get();
+                } catch (ExecutionException e) {
+                    String reason = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                    log.error("[DbRepair] 并行补列失败: {}", reason);
+                    schemaFingerprintGuard.markDirty("并行补列失败: " + reason);
                 }
-            } catch (Exception e) {
-                log.warn("[DbRepair] role:perms:* 缓存清理失败（忽略）: {}", e.getMessage());
             }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            pool.shutdown();
         }
-
-        ensureCriticalCompositeIndexes();
     }
 
     private void ensureCriticalCompositeIndexes() {
@@ -140,6 +213,7 @@ public class DbColumnRepairRunner implements ApplicationRunner {
             }
         } catch (Exception e) {
             log.error("[DbRepair] 查询表 {} 列信息失败: {}", table, e.getMessage());
+            schemaFingerprintGuard.markDirty("查询列信息失败: " + table);
             return java.util.Collections.emptySet();
         }
     }
@@ -154,6 +228,7 @@ public class DbColumnRepairRunner implements ApplicationRunner {
             return 1;
         } catch (Exception e) {
             log.error("[DbRepair] 添加列 {}.{} 失败: {}", table, column, e.getMessage());
+            schemaFingerprintGuard.markDirty("添加列失败: " + table + "." + column);
             return 0;
         }
     }
@@ -181,6 +256,7 @@ public class DbColumnRepairRunner implements ApplicationRunner {
             }
         } catch (Exception e) {
             log.error("[DbRepair] 检查/修复列可空性 {}.{} 失败: {}", table, column, e.getMessage());
+            schemaFingerprintGuard.markDirty("修复列可空性失败: " + table + "." + column);
         }
         return 0;
     }
@@ -200,6 +276,7 @@ public class DbColumnRepairRunner implements ApplicationRunner {
             return 1;
         } catch (Exception e) {
             log.error("[DbRepair] 修正列类型 {}.{} 失败: {}", table, column, e.getMessage());
+            schemaFingerprintGuard.markDirty("修正列类型失败: " + table + "." + column);
         }
         return 0;
     }
@@ -215,6 +292,7 @@ public class DbColumnRepairRunner implements ApplicationRunner {
             return 1;
         } catch (Exception e) {
             log.error("[DbRepair] 补列 {}.{} 失败: {}", table, column, e.getMessage());
+            schemaFingerprintGuard.markDirty("补列失败: " + table + "." + column);
             return 0;
         }
     }
@@ -3,6 +3,7 @@ package com.fashion.supplychain.config;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.OptimisticLockerInnerInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.fashion.supplychain.common.datachange.TableChangeInterceptor;
 import com.fashion.supplychain.common.datascope.DataPermissionInterceptor;
 import com.fashion.supplychain.common.tenant.TenantInterceptor;
 import org.springframework.context.annotation.Bean;
@@ -18,6 +19,8 @@ public class MybatisPlusConfig {
         interceptor.addInnerInterceptor(new TenantInterceptor());
         // 数据权限隔离（租户内的细粒度权限）
         interceptor.addInnerInterceptor(new DataPermissionInterceptor());
+        // 表写入监听：提交后分发给各 TableChangeListener（只观察，不改 SQL）
+        interceptor.addInnerInterceptor(new TableChangeInterceptor());
         // 乐观锁插件
         interceptor.addInnerInterceptor(new OptimisticLockerInnerInterceptor());
         // 分页插件（最后执行）
@@ -6,6 +6,8 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
  * 生产相关表迁移器
  */
@@ -26,6 +28,59 @@ public class ProductionTableMigrator {
         ensureCuttingBundleSplitLogTable();
         ensureProductionOrderTable();
         ensureCuttingTaskTable();
+        backfillData();
+    }
+
+    /**
+     * 数据回填：旧版本节点写入的行可能缺少派生列（扫码进度节点、菲号租户/主菲号/标签），
+     * 与表结构无关，表结构指纹一致时也要执行。先按 LIMIT 1 探测是否有待回填行，没有则不发 UPDATE。
+     */
+    public void backfillData() {
+        if (dbHelper.columnExists("t_scan_record", "progress_stage")
+                && dbHelper.columnExists("t_scan_record", "process_name")) {
+            String pending = "(progress_stage IS NULL OR progress_stage = '') "
+                    + "AND process_name IS NOT NULL AND process_name != ''";
+            backfillIfPending("t_scan_record", pending,
+                    "UPDATE t_scan_record SET progress_stage = process_name WHERE " + pending);
+        }
+        if (!dbHelper.tableExists("t_cutting_bundle")) {
+            return;
+        }
+        if (dbHelper.columnExists("t_cutting_bundle", "tenant_id")) {
+            backfillIfPending("t_cutting_bundle", "tenant_id IS NULL",
+                    "UPDATE t_cutting_bundle cb "
+                            + "JOIN t_production_order po ON ("
+                            + "((cb.production_order_id IS NOT NULL AND cb.production_order_id != '') AND cb.production_order_id = po.id) "
+                            + "OR (((cb.production_order_id IS NULL OR cb.production_order_id = '') "
+                            + "AND cb.production_order_no IS NOT NULL AND cb.production_order_no != '') "
+                            + "AND cb.production_order_no = po.order_no)) "
+                            + "SET cb.tenant_id = po.tenant_id "
+                            + "WHERE cb.tenant_id IS NULL AND po.tenant_id IS NOT NULL");
+        }
+        if (dbHelper.columnExists("t_cutting_bundle", "root_bundle_id")) {
+            String pending = "(root_bundle_id IS NULL OR root_bundle_id = '')";
+            backfillIfPending("t_cutting_bundle", pending,
+                    "UPDATE t_cutting_bundle SET root_bundle_id = id WHERE " + pending);
+        }
+        if (dbHelper.columnExists("t_cutting_bundle", "bundle_label")) {
+            String pending = "(bundle_label IS NULL OR bundle_label = '') AND bundle_no IS NOT NULL";
+            backfillIfPending("t_cutting_bundle", pending,
+                    "UPDATE t_cutting_bundle SET bundle_label = CAST(bundle_no AS CHAR) WHERE " + pending);
+        }
+    }
+
+    private void backfillIfPending(String table, String pendingWhere, String updateSql) {
+        try {
+            List<Integer> pending = dbHelper.getJdbcTemplate()
+                    .queryForList("SELECT 1 FROM " + table + " WHERE " + pendingWhere + " LIMIT 1", Integer.class);
+            if (pending.isEmpty()) {
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("回填探测失败，跳过: table={}, error={}", table, e.getMessage());
+            return;
+        }
+        dbHelper.execSilently(updateSql);
     }
 
     private void ensureScanRecordTable() {
@@ -136,13 +191,6 @@ public class ProductionTableMigrator {
         // Modify scan_code to VARCHAR(200) if it already exists
         dbHelper.execSilently("ALTER TABLE t_scan_record MODIFY COLUMN scan_code VARCHAR(200)");
 
-        // Update progress_stage from process_name where applicable
-        if (dbHelper.columnExists("t_scan_record", "progress_stage")
-                && dbHelper.columnExists("t_scan_record", "process_name")) {
-            dbHelper.execSilently("UPDATE t_scan_record SET progress_stage = process_name "
-                    + "WHERE (progress_stage IS NULL OR progress_stage = '') "
-                    + "AND process_name IS NOT NULL AND process_name != ''");
-        }
 
         // Drop old unique index
         dbHelper.dropIndexIfExists("t_scan_record", "uk_scan_code_process");
@@ -381,17 +429,6 @@ public class ProductionTableMigrator {
         dbHelper.execSilently("ALTER TABLE t_cutting_bundle MODIFY COLUMN root_bundle_id VARCHAR(64) NULL COMMENT '主菲号ID'");
         dbHelper.execSilently("ALTER TABLE t_cutting_bundle MODIFY COLUMN parent_bundle_id VARCHAR(64) NULL COMMENT '父菲号ID'");
         dbHelper.execSilently("ALTER TABLE t_cutting_bundle MODIFY COLUMN source_bundle_id VARCHAR(64) NULL COMMENT '拆分来源菲号ID'");
-        dbHelper.execSilently(
-                "UPDATE t_cutting_bundle cb "
-                        + "JOIN t_production_order po ON ("
-                        + "((cb.production_order_id IS NOT NULL AND cb.production_order_id != '') AND cb.production_order_id = po.id) "
-                        + "OR (((cb.production_order_id IS NULL OR cb.production_order_id = '') "
-                        + "AND cb.production_order_no IS NOT NULL AND cb.production_order_no != '') "
-                        + "AND cb.production_order_no = po.order_no)) "
-                        + "SET cb.tenant_id = po.tenant_id "
-                        + "WHERE cb.tenant_id IS NULL AND po.tenant_id IS NOT NULL");
-        dbHelper.execSilently("UPDATE t_cutting_bundle SET root_bundle_id = id WHERE (root_bundle_id IS NULL OR root_bundle_id = '')");
-        dbHelper.execSilently("UPDATE t_cutting_bundle SET bundle_label = CAST(bundle_no AS CHAR) WHERE (bundle_label IS NULL OR bundle_label = '') AND bundle_no IS NOT NULL");
         dbHelper.addIndexIfAbsent("t_cutting_bundle", "idx_cb_tenant_id", "tenant_id");
         dbHelper.addIndexIfAbsent("t_cutting_bundle", "idx_cb_root_bundle_id", "root_bundle_id");
         dbHelper.addIndexIfAbsent("t_cutting_bundle", "idx_cb_parent_bundle_id", "parent_bundle_id");
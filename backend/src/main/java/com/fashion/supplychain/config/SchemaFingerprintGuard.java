@@ -0,0 +1,299 @@
+package com.fashion.supplychain.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 启动期表结构指纹守卫。
+ *
+ * 原流程：ViewMigrator / DbColumnRepairRunner / CoreSchemaPreflightChecker / DataInitializer 下的
+ * 各 TableMigrator 逐表逐列探测 information_schema（数百次往返），每次滚动重启都全量跑一遍。
+ *
+ * 现流程：
+ * 1. 首次调用时一次性批量读取本库 COLUMNS + STATISTICS，构建内存快照；
+ * 2. 指纹 = SHA-256(修复代码版本 + 快照)，修复代码版本取各修复类 .class 字节和 init.sql；
+ * 3. 与 t_schema_fingerprint 中上次成功启动记录的指纹一致 → 所有修复流程直接跳过；
+ * 4. 不一致 → 各流程照常执行，但存在性判断优先查快照（只对缺失项发 DDL）；
+ *    应用就绪后重新读取并记录新指纹（视图/列修复任一失败或预检发现缺列时不记录，下次启动继续修复）；
+ * 5. 种子数据（默认角色权限、管理员、租户模板）与数据回填（如菲号主菲号/标签）不受指纹影响，每次启动幂等补齐。
+ *
+ * 开关：fashion.db.fingerprint-enabled=false 关闭；fashion.db.force-repair=true 强制全量修复。
+ */
+@Component
+@Slf4j
+public class SchemaFingerprintGuard {
+
+    private static final String FINGERPRINT_ID = "core";
+
+    /** 修复逻辑所在类：任一类代码变化都会使指纹失效，保证新增的修复项至少跑一次 */
+    private static final List<Class<?>> REPAIR_CLASSES = List.of(
+            DbTableDefinitions.class, DbColumnDefinitions.class, DbColumnRepairRunner.class,
+            DbViewRepairHelper.class, CoreSchemaPreflightChecker.class, DatabaseMigrationHelper.class,
+            SystemTableMigrator.class, TemplateTableMigrator.class, StyleTableMigrator.class,
+            ProductionTableMigrator.class, FinanceTableMigrator.class, ViewMigrator.class);
+
+    private final DataSource dataSource;
+
+    @Value("${fashion.db.fingerprint-enabled:true}")
+    private boolean enabled;
+
+    @Value("${fashion.db.force-repair:false}")
+    private boolean forceRepair;
+
+    private volatile SchemaSnapshot snapshot;
+
+    private volatile Boolean upToDate;
+
+    private volatile String dirtyReason;
+
+    public SchemaFingerprintGuard(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * 表结构是否与上次成功启动时一致（结果在本进程内只计算一次）。
+     * 必须在任何修复 DDL 之前首次调用，否则比较的是修复后的结构。
+     */
+    public boolean isSchemaUpToDate() {
+        Boolean cached = upToDate;
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (this) {
+            if (upToDate != null) {
+                return upToDate;
+            }
+            upToDate = computeUpToDate();
+            return upToDate;
+        }
+    }
+
+    private boolean computeUpToDate() {
+        if (!enabled) {
+            log.info("[SchemaFingerprint] 已禁用，执行全量表结构修复");
+            return false;
+        }
+        if (forceRepair) {
+            log.info("[SchemaFingerprint] fashion.db.force-repair=true，执行全量表结构修复");
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        try (Connection conn = dataSource.getConnection()) {
+            ensureFingerprintTable(conn);
+            SchemaSnapshot current = SchemaSnapshot.load(conn);
+            snapshot = current;
+            String fingerprint = fingerprint(current);
+            String stored = readStoredFingerprint(conn);
+            boolean match = fingerprint.equals(stored);
+            log.info("[SchemaFingerprint] {}（tables={}, cost={}ms）",
+                    match ? "指纹一致，跳过表结构修复" : "指纹变化，执行差异修复",
+                    current.tableCount(), System.currentTimeMillis() - start);
+            return match;
+        } catch (Exception e) {
+            log.warn("[SchemaFingerprint] 指纹计算失败，回退全量修复: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 批量元数据快照（懒加载；DDL 可能删除/重命名对象时调用 {@link #invalidateSnapshot()} 后重新加载）
+     *
+     * @return 快照；加载失败时返回 null，调用方回退逐项探测
+     */
+    public SchemaSnapshot snapshot() {
+        SchemaSnapshot s = snapshot;
+        if (s != null) {
+            return s;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                try (Connection conn = dataSource.getConnection()) {
+                    snapshot = SchemaSnapshot.load(conn);
+                } catch (Exception e) {
+                    log.debug("[SchemaFingerprint] 快照加载失败: {}", e.getMessage());
+                    return null;
+                }
+            }
+            return snapshot;
+        }
+    }
+
+    public void invalidateSnapshot() {
+        snapshot = null;
+    }
+
+    /**
+     * 标记本次启动的表结构仍有缺口：应用就绪后不记录指纹，下次启动继续修复
+     */
+    public void markDirty(String reason) {
+        dirtyReason = reason;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recordFingerprint() {
+        if (!enabled || Boolean.TRUE.equals(upToDate)) {
+            return;
+        }
+        if (dirtyReason != null) {
+            log.warn("[SchemaFingerprint] 表结构仍有缺口，本次不记录指纹: {}", dirtyReason);
+            return;
+        }
+        try (Connection conn = dataSource.getConnection()) {
+            ensureFingerprintTable(conn);
+            SchemaSnapshot current = SchemaSnapshot.load(conn);
+            snapshot = current;
+            String fingerprint = fingerprint(current);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "REPLACE INTO t_schema_fingerprint (id, fingerprint, table_count, update_time) VALUES (?, ?, ?, NOW())")) {
+                ps.setString(1, FINGERPRINT_ID);
+                ps.setString(2, fingerprint);
+                ps.setInt(3, current.tableCount());
+                ps.executeUpdate();
+            }
+            log.info("[SchemaFingerprint] 已记录表结构指纹: {}", fingerprint.substring(0, 12));
+        } catch (Exception e) {
+            log.warn("[SchemaFingerprint] 记录指纹失败（下次启动将重新修复）: {}", e.getMessage());
+        }
+    }
+
+    private void ensureFingerprintTable(Connection conn) throws Exception {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS `t_schema_fingerprint` ("
+                    + "`id` VARCHAR(32) NOT NULL,"
+                    + "`fingerprint` CHAR(64) NOT NULL,"
+                    + "`table_count` INT DEFAULT NULL,"
+                    + "`update_time` DATETIME DEFAULT NULL,"
+                    + "PRIMARY KEY (`id`)"
+                    + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='启动表结构指纹'");
+        }
+    }
+
+    private String readStoredFingerprint(Connection conn) throws Exception {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT fingerprint FROM t_schema_fingerprint WHERE id = ?")) {
+            ps.setString(1, FINGERPRINT_ID);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private String fingerprint(SchemaSnapshot s) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (Class<?> clazz : REPAIR_CLASSES) {
+            updateWithResource(digest, clazz, "/" + clazz.getName().replace('.', '/') + ".class");
+        }
+        updateWithResource(digest, getClass(), "/init.sql");
+        digest.update(s.canonical().getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void updateWithResource(MessageDigest digest, Class<?> anchor, String path) throws Exception {
+        try (InputStream in = anchor.getResourceAsStream(path)) {
+            if (in != null) {
+                digest.update(in.readAllBytes());
+            }
+        }
+        digest.update((byte) 0);
+    }
+
+    /**
+     * 当前库的表/列/索引内存快照（一次 COLUMNS + 一次 STATISTICS 查询构建）
+     */
+    public static final class SchemaSnapshot {
+
+        private final Map<String, Set<String>> columnsByTable;
+        private final Map<String, Set<String>> indexesByTable;
+        private final String canonical;
+
+        private SchemaSnapshot(Map<String, Set<String>> columnsByTable,
+                               Map<String, Set<String>> indexesByTable, String canonical) {
+            this.columnsByTable = columnsByTable;
+            this.indexesByTable = indexesByTable;
+            this.canonical = canonical;
+        }
+
+        static SchemaSnapshot load(Connection conn) throws Exception {
+            String schema = conn.getCatalog();
+            Map<String, Set<String>> columns = new HashMap<>();
+            Map<String, Set<String>> indexes = new HashMap<>();
+            StringBuilder canonical = new StringBuilder(256 * 1024);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT TABLE_NAME, COLUMN_NAME, COLUMN_TYPE, IS_NULLABLE FROM INFORMATION_SCHEMA.COLUMNS "
+                            + "WHERE TABLE_SCHEMA = ? ORDER BY TABLE_NAME, ORDINAL_POSITION")) {
+                ps.setString(1, schema);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String table = rs.getString(1);
+                        String column = rs.getString(2);
+                        String type = rs.getString(3);
+                        String nullable = rs.getString(4);
+                        columns.computeIfAbsent(table, k -> new HashSet<>()).add(column);
+                        canonical.append(table).append('.').append(column).append(' ')
+                                .append(type).append(' ').append(nullable).append('\n');
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT DISTINCT TABLE_NAME, INDEX_NAME FROM INFORMATION_SCHEMA.STATISTICS "
+                            + "WHERE TABLE_SCHEMA = ? ORDER BY TABLE_NAME, INDEX_NAME")) {
+                ps.setString(1, schema);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String table = rs.getString(1);
+                        String index = rs.getString(2);
+                        indexes.computeIfAbsent(table, k -> new HashSet<>()).add(index);
+                        canonical.append(table).append('#').append(index).append('\n');
+                    }
+                }
+            }
+            return new SchemaSnapshot(columns, indexes, canonical.toString());
+        }
+
+        public boolean hasTable(String table) {
+            return columnsByTable.containsKey(table);
+        }
+
+        public boolean hasColumn(String table, String column) {
+            Set<String> cols = columnsByTable.get(table);
+            return cols != null && cols.contains(column);
+        }
+
+        public boolean hasIndex(String table, String index) {
+            Set<String> idx = indexesByTable.get(table);
+            return idx != null && idx.contains(index);
+        }
+
+        /** 表的全部列名；表不存在返回空集合 */
+        public Set<String> columns(String table) {
+            Set<String> cols = columnsByTable.get(table);
+            return cols == null ? Collections.emptySet() : Collections.unmodifiableSet(cols);
+        }
+
+        public int tableCount() {
+            return columnsByTable.size();
+        }
+
+        String canonical() {
+            return canonical;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.fashion.supplychain.config;
 import com.fashion.supplychain.auth.AuthTokenService;
 import com.fashion.supplychain.auth.TokenAuthFilter;
 import com.fashion.supplychain.auth.TokenSubject;
+import com.fashion.supplychain.auth.VerifiedSessionCache;
 import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.system.orchestration.PermissionCalculationEngine;
 import lombok.extern.slf4j.Slf4j;
@@ -73,6 +74,10 @@ public class SecurityConfig implements WebMvcConfigurer {
     @Autowired
     private UserInfoEnrichmentService userInfoEnrichmentService;
 
+    /** 已验证会话缓存：TokenAuthFilter 写入，UserContextInterceptor 复用其中的信息补全结果 */
+    @Autowired
+    private VerifiedSessionCache verifiedSessionCache;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http, AuthTokenService authTokenService,
                                             PermissionCalculationEngine permissionEngine) throws Exception {
@@ -114,7 +119,7 @@ public class SecurityConfig implements WebMvcConfigurer {
                     res.getWriter().write("{\"code\":403,\"message\":\"权限不足，无法访问该资源\"}");
                 }));
 
-        http.addFilterBefore(new TokenAuthFilter(authTokenService, permissionEngine, stringRedisTemplate), UsernamePasswordAuthenticationFilter.class);
+        http.addFilterBefore(new TokenAuthFilter(authTokenService, permissionEngine, stringRedisTemplate, verifiedSessionCache), UsernamePasswordAuthenticationFilter.class);
         http.addFilterBefore(new RequestIdFilter(), TokenAuthFilter.class);
         http.addFilterAfter(new HeaderAuthFilter(), TokenAuthFilter.class);
 
@@ -326,7 +331,17 @@ public class SecurityConfig implements WebMvcConfigurer {
             //       导致 isTenantOwner 永远从 JWT 读到 false → isTopAdmin() 错误返回 false → 403
             if (ctx.getUserId() != null && !ctx.getSuperAdmin()) {
                 try {
-                    UserInfoEnrichmentService.EnrichmentResult result = userInfoEnrichmentService.enrichFromUserId(ctx.getUserId());
+                    // 会话缓存命中时复用首个请求的补全结果（随会话失效一并丢弃）
+                    Object entryAttr = request.getAttribute(VerifiedSessionCache.ENTRY_ATTR);
+                    VerifiedSessionCache.Entry sessionEntry = entryAttr instanceof VerifiedSessionCache.Entry cachedEntry ? cachedEntry : null;
+                    UserInfoEnrichmentService.EnrichmentResult result = sessionEntry == null ? null : sessionEntry.getEnrichment();
+                    boolean reused = result != null;
+                    if (!reused) {
+                        result = userInfoEnrichmentService.enrichFromUserId(ctx.getUserId());
+                        if (result != null && sessionEntry != null) {
+                            sessionEntry.setEnrichment(result);
+                        }
+                    }
                     if (result != null) {
                         if (ctx.getTenantId() == null && result.tenantId != null) {
                             ctx.setTenantId(result.tenantId);
@@ -340,7 +355,7 @@ public class SecurityConfig implements WebMvcConfigurer {
                         if (result.factoryId != null) {
                             ctx.setFactoryId(result.factoryId);
                         }
-                        if (result.wasCacheMiss) {
+                        if (!reused && result.wasCacheMiss) {
                             log.info("[UserContextInterceptor] 用户信息从 DB 补全: userId={}, tenantId={}, isTenantOwner={}, isSuperAdmin={}, factoryId={}",
                                     ctx.getUserId(), ctx.getTenantId(), ctx.getTenantOwner(), ctx.getSuperAdmin(), ctx.getFactoryId());
                         }
@@ -379,6 +394,7 @@ public class SecurityConfig implements WebMvcConfigurer {
             }
 
             UserContext.set(ctx);
+            verifiedSessionCache.recordPipeline(request);
             return true;
         }
 
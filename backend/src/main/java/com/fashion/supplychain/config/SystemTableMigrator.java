@@ -37,6 +37,17 @@ public class SystemTableMigrator {
         ensurePerformanceIndexes();
     }
 
+    /**
+     * 只执行种子数据与数据修正（幂等）：表结构指纹未变化、跳过建表补列时仍需保证默认角色/权限/管理员存在
+     */
+    public void seedData() {
+        JdbcTemplate jdbc = dbHelper.getJdbcTemplate();
+        seedDefaultAuthData();
+        createAdminUser(jdbc);
+        fixAppStorePrices(jdbc);
+        fixSystemTableEncoding(jdbc);
+    }
+
     private void ensurePerformanceIndexes() {
         dbHelper.addUniqueKeyIfAbsent("t_production_order", "idx_production_order_order_no", "order_no");
         dbHelper.addIndexIfAbsent("t_production_order", "idx_production_order_factory", "factory_id");
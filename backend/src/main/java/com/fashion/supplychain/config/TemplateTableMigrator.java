@@ -21,6 +21,13 @@ public class TemplateTableMigrator {
         ensureTemplateLibraryTable();
     }
 
+    /**
+     * 只补各租户的种子模板（幂等），表结构指纹未变化时使用
+     */
+    public void seedData() {
+        seedTemplatesForAllTenants();
+    }
+
     private void ensureTemplateLibraryTable() {
         String createTable = "CREATE TABLE IF NOT EXISTS t_template_library (" +
                 "id VARCHAR(36) PRIMARY KEY COMMENT '模板ID'," +
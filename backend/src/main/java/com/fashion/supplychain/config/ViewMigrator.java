@@ -25,9 +25,17 @@ public class ViewMigrator implements ApplicationRunner {
     @Autowired
     private DatabaseMigrationHelper dbHelper;
 
+    @Autowired
+    private SchemaFingerprintGuard schemaFingerprintGuard;
+
     @Override
     public void run(ApplicationArguments args) {
+        if (schemaFingerprintGuard.isSchemaUpToDate()) {
+            return;
+        }
         initialize();
+        // 视图 DDL 直接走 JdbcTemplate，快照需丢弃，供后续修复流程重新加载
+        schemaFingerprintGuard.invalidateSnapshot();
     }
 
     public void initialize() {
@@ -97,10 +105,12 @@ public class ViewMigrator implements ApplicationRunner {
                     } else {
                         log.warn("Failed to create view from init.sql: {}", e.getMessage());
                     }
+                    schemaFingerprintGuard.markDirty("视图创建失败: " + (viewName != null ? viewName : "init.sql"));
                 }
             }
         } catch (Exception e) {
             log.warn("Failed to load init.sql for views: {}", e.getMessage());
+            schemaFingerprintGuard.markDirty("init.sql 视图加载失败");
         }
     }
 
@@ -393,6 +403,7 @@ public class ViewMigrator implements ApplicationRunner {
                 log.info("[ViewMigrator] 视图 {} 重建成功", viewName);
             } catch (Exception retryEx) {
                 log.error("[ViewMigrator] FATAL: 视图 {} 重建失败: {}", viewName, retryEx.getMessage());
+                schemaFingerprintGuard.markDirty("视图重建失败: " + viewName);
             }
         }
     }
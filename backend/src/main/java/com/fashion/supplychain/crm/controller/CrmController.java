@@ -68,6 +68,12 @@ public class CrmController {
         return Result.success(customerOrchestrator.getCustomerOrders(id));
     }
 
+    /** 客户应收账龄（未到期/逾期分档，信用查看用） */
+    @GetMapping("/customers/{id}/aging")
+    public Result<?> getCustomerAging(@PathVariable String id) {
+        return Result.success(receivableOrchestrator.getCustomerAging(id));
+    }
+
     /** 统计数据（总数/本月新增/VIP数量） */
     @GetMapping("/stats")
     public Result<?> getStats() {
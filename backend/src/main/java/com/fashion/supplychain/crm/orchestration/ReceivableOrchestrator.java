@@ -1,6 +1,7 @@
 package com.fashion.supplychain.crm.orchestration;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.fashion.supplychain.common.DataPermissionHelper;
@@ -13,6 +14,8 @@ import com.fashion.supplychain.crm.helper.ReceivableLogAppendHelper;
 import com.fashion.supplychain.crm.service.CustomerService;
 import com.fashion.supplychain.crm.service.ReceivableService;
 import com.fashion.supplychain.finance.entity.BillAggregation;
+import com.fashion.supplychain.finance.orchestration.AgingBalanceOrchestrator;
+import com.fashion.supplychain.finance.orchestration.AgingBalanceOrchestrator.LedgerType;
 import com.fashion.supplychain.finance.service.BillAggregationService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +30,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * 应收账款编排层
@@ -51,11 +55,17 @@ public class ReceivableOrchestrator {
     @Autowired
     private ReceivableLogAppendHelper logAppendHelper;
 
+    @Autowired
+    private AgingBalanceOrchestrator agingBalanceOrchestrator;
+
     /** 懒加载避免与 BillAggregationOrchestrator 循环依赖 */
     @Autowired
     @org.springframework.context.annotation.Lazy
     private com.fashion.supplychain.finance.orchestration.BillAggregationOrchestrator billAggregationOrchestrator;
 
+    /** 逾期标记每批单据数（每批一条 UPDATE） */
+    private static final int OVERDUE_BATCH_SIZE = 500;
+
     private static final DateTimeFormatter NO_FMT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
     private static final java.util.concurrent.atomic.AtomicInteger NO_SEQ = new java.util.concurrent.atomic.AtomicInteger(0);
 
@@ -256,6 +266,28 @@ public class ReceivableOrchestrator {
         return stats;
     }
 
+    /**
+     * 客户账龄（信用查看）：读账龄汇总表主键行，不扫描应收明细
+     */
+    public Map<String, Object> getCustomerAging(String customerId) {
+        if (DataPermissionHelper.isFactoryAccount()) {
+            throw new org.springframework.security.access.AccessDeniedException("工厂账号无权查看应收账龄");
+        }
+        Long tenantId = TenantAssert.requireTenantId();
+        Customer customer = customerService.lambdaQuery()
+                .eq(Customer::getId, customerId)
+                .eq(Customer::getTenantId, tenantId)
+                .eq(Customer::getDeleteFlag, 0)
+                .one();
+        if (customer == null) {
+            throw new java.util.NoSuchElementException("客户不存在");
+        }
+        Map<String, Object> result = agingBalanceOrchestrator
+                .getPartyAging(tenantId, LedgerType.RECEIVABLE, customerId).toMap();
+        result.put("partyName", customer.getCompanyName());
+        return result;
+    }
+
     // ─── 写操作 ──────────────────────────────────────────────────────────────
 
     @Transactional(rollbackFor = Exception.class)
@@ -493,7 +525,8 @@ public class ReceivableOrchestrator {
      * 定时标记逾期：PENDING/PARTIAL 且 due_date < today → OVERDUE
      * <p>
      * P1-3 修复：原实现跨租户批量 update，违反 P0 铁律4多租户隔离
-     * 现改为逐条更新（UPDATE 语句显式带 tenant_id WHERE）
+     * 现按租户分批集合式更新（每批一条 UPDATE，显式带 tenant_id + id IN + 状态条件），
+     * 不再每条单据一次往返；账龄分档由 AgingBalanceOrchestrator 独立维护，与状态无关
      * 由 @Scheduled 任务每日调用，也可按需手动触发
      */
     @Transactional(rollbackFor = Exception.class)
@@ -501,37 +534,63 @@ public class ReceivableOrchestrator {
         Long tenantId = UserContext.tenantId();
         List<Receivable> list = receivableService.list(
                 new LambdaQueryWrapper<Receivable>()
+                        .select(Receivable::getId, Receivable::getTenantId, Receivable::getReceivableNo)
                         .eq(Receivable::getDeleteFlag, 0)
                         .eq(tenantId != null, Receivable::getTenantId, tenantId)
                         .in(Receivable::getStatus, "PENDING", "PARTIAL")
                         .lt(Receivable::getDueDate, LocalDate.now()));
+        Map<Long, List<Receivable>> byTenant = list.stream()
+                .filter(r -> r.getTenantId() != null)
+                .collect(Collectors.groupingBy(Receivable::getTenantId));
         int count = 0;
-        for (Receivable r : list) {
-            try {
-                // 逐条更新（显式带 id + tenant_id 双重 WHERE，确保多租户隔离）
-                boolean updated = receivableService.lambdaUpdate()
-                        .eq(Receivable::getId, r.getId())
-                        .eq(Receivable::getTenantId, r.getTenantId())
-                        .eq(Receivable::getDeleteFlag, 0)
-                        .set(Receivable::getStatus, "OVERDUE")
-                        .set(Receivable::getUpdateTime, LocalDateTime.now())
-                        .update();
-                if (updated) {
-                    r.setStatus("OVERDUE");
-                    logAppendHelper.appendMarkOverdue(r, null);
-                    count++;
-                }
-            } catch (Exception e) {
-                log.error("[ReceivableOrchestrator] 标记逾期失败（跳过）: receivableNo={}, tenantId={}, err={}",
-                        r.getReceivableNo(), r.getTenantId(), e.getMessage());
+        for (Map.Entry<Long, List<Receivable>> e : byTenant.entrySet()) {
+            List<Receivable> rows = e.getValue();
+            for (int i = 0; i < rows.size(); i += OVERDUE_BATCH_SIZE) {
+                List<Receivable> chunk = rows.subList(i, Math.min(rows.size(), i + OVERDUE_BATCH_SIZE));
+                count += markOverdueChunk(e.getKey(), chunk);
             }
         }
         if (count > 0) {
-            log.info("[ReceivableOrchestrator] 批量标记逾期 {} 条（按租户隔离逐条更新）", count);
+            log.info("[ReceivableOrchestrator] 批量标记逾期 {} 条（按租户隔离分批更新）", count);
         }
         return count;
     }
 
+    private int markOverdueChunk(Long tenantId, List<Receivable> chunk) {
+        List<String> ids = chunk.stream().map(Receivable::getId).collect(Collectors.toList());
+        try {
+            // 状态条件兜底：查询之后已到账/已结清的单据不会被改成逾期
+            int updated = receivableService.getBaseMapper().update(null, new LambdaUpdateWrapper<Receivable>()
+                    .in(Receivable::getId, ids)
+                    .eq(Receivable::getTenantId, tenantId)
+                    .eq(Receivable::getDeleteFlag, 0)
+                    .in(Receivable::getStatus, "PENDING", "PARTIAL")
+                    .set(Receivable::getStatus, "OVERDUE")
+                    .set(Receivable::getUpdateTime, LocalDateTime.now()));
+            if (updated <= 0) {
+                return 0;
+            }
+            List<Receivable> marked = chunk;
+            if (updated < chunk.size()) {
+                // 部分单据状态已变化：只给本次实际标记的单据记日志
+                marked = receivableService.list(new LambdaQueryWrapper<Receivable>()
+                        .select(Receivable::getId, Receivable::getTenantId, Receivable::getReceivableNo)
+                        .in(Receivable::getId, ids)
+                        .eq(Receivable::getTenantId, tenantId)
+                        .eq(Receivable::getStatus, "OVERDUE"));
+            }
+            for (Receivable r : marked) {
+                r.setStatus("OVERDUE");
+                logAppendHelper.appendMarkOverdue(r, null);
+            }
+            return updated;
+        } catch (Exception ex) {
+            log.error("[ReceivableOrchestrator] 标记逾期失败（跳过本批）: tenantId={}, size={}, err={}",
+                    tenantId, chunk.size(), ex.getMessage());
+            return 0;
+        }
+    }
+
     // ─── 工具方法 ────────────────────────────────────────────────────────────
 
     private int parseInt(Object val, int def) {
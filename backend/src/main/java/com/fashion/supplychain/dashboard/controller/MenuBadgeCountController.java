@@ -1,17 +1,9 @@
 package com.fashion.supplychain.dashboard.controller;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.fashion.supplychain.common.Result;
 import com.fashion.supplychain.common.UserContext;
-import com.fashion.supplychain.production.entity.MaterialPicking;
-import com.fashion.supplychain.production.entity.MaterialPurchase;
-import com.fashion.supplychain.production.entity.MaterialStock;
-import com.fashion.supplychain.production.service.MaterialPickingService;
-import com.fashion.supplychain.production.service.MaterialPurchaseService;
-import com.fashion.supplychain.production.service.MaterialStockService;
-import java.util.HashMap;
+import com.fashion.supplychain.dashboard.orchestration.MenuBadgeCountOrchestrator;
 import java.util.Map;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -31,62 +23,17 @@ import org.springframework.web.bind.annotation.RestController;
  * </ul>
  * 注意：/production/picking 不在侧边栏 menuConfig 中，其红点已合并到 /warehouse/material。
  */
-@Slf4j
 @RestController
 @RequestMapping("/api/dashboard")
 @PreAuthorize("isAuthenticated()")
 public class MenuBadgeCountController {
 
     @Autowired
-    private MaterialStockService materialStockService;
-
-    @Autowired
-    private MaterialPickingService materialPickingService;
-
-    @Autowired
-    private MaterialPurchaseService materialPurchaseService;
+    private MenuBadgeCountOrchestrator menuBadgeCountOrchestrator;
 
+    /** 首屏与 WebSocket 断线时的兜底读取；计数常驻内存，变更经 WebSocket {"type":"menu-badge"} 推送 */
     @GetMapping("/menu-badge-counts")
     public Result<Map<String, Long>> getMenuBadgeCounts() {
-        Long tenantId = UserContext.tenantId();
-        Map<String, Long> counts = new HashMap<>();
-
-        // 物料采购：待采购单数（status=pending，等采购员下单）
-        counts.put("/production/material", safeCount(() -> materialPurchaseService.count(
-                new LambdaQueryWrapper<MaterialPurchase>()
-                        .eq(MaterialPurchase::getTenantId, tenantId)
-                        .eq(MaterialPurchase::getDeleteFlag, 0)
-                        .eq(MaterialPurchase::getStatus, "pending"))));
-
-        // 物料出入库：待出库领料单数 + 库存预警数（仓库需处理的事项总和）
-        // 该菜单有两个 Tab：库存总览（库存预警）+ 领取记录（待出库），红点合并两者
-        long pendingPickupCount = safeCount(() -> materialPickingService.count(
-                new LambdaQueryWrapper<MaterialPicking>()
-                        .eq(MaterialPicking::getTenantId, tenantId)
-                        .eq(MaterialPicking::getDeleteFlag, 0)
-                        .eq(MaterialPicking::getStatus, "pending")));
-        long lowStockCount = safeCount(() -> materialStockService.count(
-                new LambdaQueryWrapper<MaterialStock>()
-                        .eq(MaterialStock::getTenantId, tenantId)
-                        .eq(MaterialStock::getDeleteFlag, 0)
-                        .apply("quantity < safety_stock")));
-        counts.put("/warehouse/material", pendingPickupCount + lowStockCount);
-        // 分拆计数：页面内 Tab 角标需要按语义独立展示，不能用合并值
-        // 领取记录 Tab 只关心待出库单数，库存总览 Tab 只关心库存预警数
-        counts.put("/warehouse/material-pickup", pendingPickupCount);
-        counts.put("/warehouse/material-lowstock", lowStockCount);
-
-        return Result.success(counts);
-    }
-
-    /** 安全计数：单表统计失败时返回 0，避免影响其他菜单红点 */
-    private long safeCount(java.util.function.Supplier<Long> supplier) {
-        try {
-            Long result = supplier.get();
-            return result != null ? result : 0L;
-        } catch (Exception e) {
-            log.warn("[菜单红点] 统计失败: {}", e.getMessage());
-            return 0L;
-        }
+        return Result.success(menuBadgeCountOrchestrator.getCounts(UserContext.tenantId()));
     }
 }
@@ -0,0 +1,39 @@
+package com.fashion.supplychain.dashboard.helper;
+
+import com.fashion.supplychain.common.datachange.TableChange;
+import com.fashion.supplychain.common.datachange.TableChangeListener;
+import com.fashion.supplychain.dashboard.orchestration.MenuBadgeCountOrchestrator;
+import com.fashion.supplychain.dashboard.orchestration.MenuBadgeCountOrchestrator.Badge;
+import com.fashion.supplychain.production.mapper.MaterialPickingMapper;
+import com.fashion.supplychain.production.mapper.MaterialPurchaseMapper;
+import com.fashion.supplychain.production.mapper.MaterialStockMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 红点相关表的写入监听：采购/领料/库存写入提交后，把对应 (租户, 红点) 标记为待重算。
+ */
+@Component
+public class MenuBadgeChangeListener implements TableChangeListener {
+
+    private static final Map<Class<?>, Badge> BADGES = Map.of(
+            MaterialPurchaseMapper.class, Badge.PENDING_PURCHASE,
+            MaterialPickingMapper.class, Badge.PENDING_PICKUP,
+            MaterialStockMapper.class, Badge.LOW_STOCK);
+
+    @Autowired
+    private MenuBadgeCountOrchestrator menuBadgeCountOrchestrator;
+
+    @Override
+    public List<Class<?>> watchedMappers() {
+        return List.copyOf(BADGES.keySet());
+    }
+
+    @Override
+    public void onChange(TableChange change) {
+        menuBadgeCountOrchestrator.markDirty(change.tenantId(), BADGES.get(change.mapper()));
+    }
+}
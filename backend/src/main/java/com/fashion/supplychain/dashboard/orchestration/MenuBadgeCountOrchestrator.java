@@ -0,0 +1,228 @@
+package com.fashion.supplychain.dashboard.orchestration;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.production.entity.MaterialPicking;
+import com.fashion.supplychain.production.entity.MaterialPurchase;
+import com.fashion.supplychain.production.entity.MaterialStock;
+import com.fashion.supplychain.production.executor.OrderProgressWebSocketServer;
+import com.fashion.supplychain.production.service.MaterialPickingService;
+import com.fashion.supplychain.production.service.MaterialPurchaseService;
+import com.fashion.supplychain.production.service.MaterialStockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 菜单红点计数（内存计数 + WebSocket 推送）。
+ *
+ * 原状：每个打开的浏览器标签每 30s 轮询一次 /menu-badge-counts，每次 3 条 COUNT，负载随在线人数增长。
+ *
+ * 现流程：
+ * 1. 每个租户首次读取时 COUNT 一次装载，之后读取只查内存；
+ * 2. 采购/领料/库存表发生写入时（{@link com.fashion.supplychain.dashboard.helper.MenuBadgeChangeListener}，
+ *    事务提交后）标记 (租户, 红点) 为脏，flush 每 2 秒合并重算脏项（每项一条 COUNT），数值变化才推送；
+ * 3. 每 5 分钟对已装载租户全量对账一次，修正漏标（多实例、直连 SQL 等）造成的偏差；
+ * 4. 30 分钟无人读取且无 WebSocket 连接的租户卸载，不再维护。
+ *
+ * COUNT 次数从“在线标签数 × 轮询频率”变为“数据变更次数（2 秒合并）+ 对账”。
+ */
+@Slf4j
+@Service
+public class MenuBadgeCountOrchestrator {
+
+    public enum Badge {
+        /** 物料采购：待采购单数（status=pending，等采购员下单） */
+        PENDING_PURCHASE,
+        /** 物料出入库：待出库领料单数 */
+        PENDING_PICKUP,
+        /** 物料出入库：库存预警数 */
+        LOW_STOCK
+    }
+
+    private static final long IDLE_EVICT_MS = 30 * 60 * 1000L;
+
+    @Autowired
+    private MaterialStockService materialStockService;
+
+    @Autowired
+    private MaterialPickingService materialPickingService;
+
+    @Autowired
+    private MaterialPurchaseService materialPurchaseService;
+
+    @Autowired(required = false)
+    private OrderProgressWebSocketServer webSocketServer;
+
+    private final Map<Long, TenantBadges> tenants = new ConcurrentHashMap<>();
+
+    /** 待重算的 (租户, 红点)；租户为 null 的写入（系统任务）对所有已装载租户生效 */
+    private final Map<Long, Set<Badge>> dirty = new ConcurrentHashMap<>();
+
+    /**
+     * 当前租户的红点计数（键与前端 menuConfig 路径对齐）
+     */
+    public Map<String, Long> getCounts(Long tenantId) {
+        if (tenantId == null) {
+            // 超管无租户：业务红点不适用
+            return new TenantBadges().toMenuCounts();
+        }
+        TenantBadges badges = tenants.computeIfAbsent(tenantId, this::load);
+        badges.lastReadAt = System.currentTimeMillis();
+        return badges.toMenuCounts();
+    }
+
+    /**
+     * 标记红点需要重算（由写入方调用，flush 时合并处理）
+     */
+    public void markDirty(Long tenantId, Badge badge) {
+        if (tenantId == null) {
+            for (Long loaded : tenants.keySet()) {
+                dirty.computeIfAbsent(loaded, k -> ConcurrentHashMap.newKeySet()).add(badge);
+            }
+            return;
+        }
+        if (tenants.containsKey(tenantId)) {
+            dirty.computeIfAbsent(tenantId, k -> ConcurrentHashMap.newKeySet()).add(badge);
+        }
+    }
+
+    @Scheduled(fixedDelay = 2000, initialDelay = 10_000)
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        for (Long tenantId : new ArrayList<>(dirty.keySet())) {
+            Set<Badge> changed = dirty.remove(tenantId);
+            TenantBadges badges = tenants.get(tenantId);
+            if (changed == null || badges == null) {
+                continue;
+            }
+            recount(tenantId, badges, changed);
+        }
+    }
+
+    /**
+     * 周期对账：已装载租户全量重算，同时卸载长时间无人使用的租户
+     */
+    @Scheduled(fixedDelay = 300_000, initialDelay = 300_000)
+    public void reconcile() {
+        long now = System.currentTimeMillis();
+        List<Long> evicted = new ArrayList<>();
+        for (Map.Entry<Long, TenantBadges> e : tenants.entrySet()) {
+            Long tenantId = e.getKey();
+            if (now - e.getValue().lastReadAt > IDLE_EVICT_MS
+                    && OrderProgressWebSocketServer.getConnectedCount(tenantId) == 0) {
+                evicted.add(tenantId);
+                continue;
+            }
+            recount(tenantId, e.getValue(), EnumSet.allOf(Badge.class));
+        }
+        evicted.forEach(id -> {
+            tenants.remove(id);
+            dirty.remove(id);
+        });
+    }
+
+    private TenantBadges load(Long tenantId) {
+        TenantBadges badges = new TenantBadges();
+        for (Badge b : Badge.values()) {
+            badges.counts.set(b.ordinal(), count(tenantId, b));
+        }
+        return badges;
+    }
+
+    private void recount(Long tenantId, TenantBadges badges, Set<Badge> which) {
+        boolean changed = false;
+        for (Badge b : which) {
+            long latest = count(tenantId, b);
+            if (latest >= 0 && badges.counts.getAndSet(b.ordinal(), latest) != latest) {
+                changed = true;
+            }
+        }
+        if (changed) {
+            push(tenantId, badges.toMenuCounts());
+        }
+    }
+
+    private void push(Long tenantId, Map<String, Long> counts) {
+        if (webSocketServer == null || OrderProgressWebSocketServer.getConnectedCount(tenantId) == 0) {
+            return;
+        }
+        Map<String, Object> msg = new LinkedHashMap<>();
+        msg.put("type", "menu-badge");
+        msg.put("counts", counts);
+        msg.put("timestamp", System.currentTimeMillis());
+        webSocketServer.broadcastMessage(tenantId, msg);
+    }
+
+    /**
+     * 单项计数；失败返回 -1（保留旧值，不影响其他红点）
+     * 定时任务线程没有登录上下文，这里临时设置租户以通过租户拦截器
+     */
+    private long count(Long tenantId, Badge badge) {
+        UserContext previous = UserContext.get();
+        if (previous == null) {
+            UserContext ctx = new UserContext();
+            ctx.setTenantId(tenantId);
+            ctx.setUserId("SYSTEM");
+            UserContext.set(ctx);
+        }
+        try {
+            Long result = switch (badge) {
+                case PENDING_PURCHASE -> materialPurchaseService.count(
+                        new LambdaQueryWrapper<MaterialPurchase>()
+                                .eq(MaterialPurchase::getTenantId, tenantId)
+                                .eq(MaterialPurchase::getDeleteFlag, 0)
+                                .eq(MaterialPurchase::getStatus, "pending"));
+                case PENDING_PICKUP -> materialPickingService.count(
+                        new LambdaQueryWrapper<MaterialPicking>()
+                                .eq(MaterialPicking::getTenantId, tenantId)
+                                .eq(MaterialPicking::getDeleteFlag, 0)
+                                .eq(MaterialPicking::getStatus, "pending"));
+                case LOW_STOCK -> materialStockService.count(
+                        new LambdaQueryWrapper<MaterialStock>()
+                                .eq(MaterialStock::getTenantId, tenantId)
+                                .eq(MaterialStock::getDeleteFlag, 0)
+                                .apply("quantity < safety_stock"));
+            };
+            return result != null ? result : 0L;
+        } catch (Exception e) {
+            log.warn("[菜单红点] 统计失败 tenantId={} badge={}: {}", tenantId, badge, e.getMessage());
+            return -1L;
+        } finally {
+            if (previous == null) {
+                UserContext.clear();
+            }
+        }
+    }
+
+    private static final class TenantBadges {
+        final AtomicLongArray counts = new AtomicLongArray(Badge.values().length);
+        volatile long lastReadAt = System.currentTimeMillis();
+
+        Map<String, Long> toMenuCounts() {
+            long pendingPurchase = Math.max(0, counts.get(Badge.PENDING_PURCHASE.ordinal()));
+            long pendingPickup = Math.max(0, counts.get(Badge.PENDING_PICKUP.ordinal()));
+            long lowStock = Math.max(0, counts.get(Badge.LOW_STOCK.ordinal()));
+            Map<String, Long> m = new LinkedHashMap<>();
+            m.put("/production/material", pendingPurchase);
+            // 该菜单有两个 Tab：库存总览（库存预警）+ 领取记录（待出库），红点合并两者
+            m.put("/warehouse/material", pendingPickup + lowStock);
+            // 分拆计数：页面内 Tab 角标按语义独立展示
+            m.put("/warehouse/material-pickup", pendingPickup);
+            m.put("/warehouse/material-lowstock", lowStock);
+            return m;
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.fashion.supplychain.finance.controller;
 
+import com.fashion.supplychain.common.DataPermissionHelper;
 import com.fashion.supplychain.common.Result;
 import com.fashion.supplychain.common.dto.IdReasonRequest;
 import com.fashion.supplychain.finance.orchestration.OrderProfitOrchestrator;
 import com.fashion.supplychain.finance.orchestration.ReconciliationStatusOrchestrator;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
@@ -50,4 +52,19 @@ public class ReconciliationCompatController {
         Map<String, Object> data = orderProfitOrchestrator.computeOrderProfit(orderId, orderNo);
         return Result.success(data);
     }
+
+    /**
+     * 跨订单利润列表（台账分页 + 款式成本快照），含全租户成本与利润，工厂账户禁止访问
+     */
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/order-profit/list")
+    public Result<?> orderProfitList(
+            @RequestParam(defaultValue = "1") long page,
+            @RequestParam(defaultValue = "20") long pageSize,
+            @RequestParam(value = "keyword", required = false) String keyword) {
+        if (DataPermissionHelper.isFactoryAccount()) {
+            throw new AccessDeniedException("工厂账户无权查看订单利润");
+        }
+        return Result.success(orderProfitOrchestrator.listOrderProfits(page, pageSize, keyword));
+    }
 }
@@ -52,6 +52,9 @@ public class Payable {
      */
     private String status;
 
+    /** 结清时间（状态首次变为 PAID 的时刻，财务日汇总按此归日） */
+    private LocalDateTime paidTime;
+
     private String description;
 
     private String billAggregationId;
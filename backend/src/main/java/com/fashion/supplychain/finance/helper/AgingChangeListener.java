@@ -0,0 +1,54 @@
+package com.fashion.supplychain.finance.helper;
+
+import com.fashion.supplychain.common.datachange.TableChange;
+import com.fashion.supplychain.common.datachange.TableChangeListener;
+import com.fashion.supplychain.crm.entity.Receivable;
+import com.fashion.supplychain.crm.mapper.ReceivableMapper;
+import com.fashion.supplychain.finance.entity.Payable;
+import com.fashion.supplychain.finance.mapper.PayableMapper;
+import com.fashion.supplychain.finance.orchestration.AgingBalanceOrchestrator;
+import com.fashion.supplychain.finance.orchestration.AgingBalanceOrchestrator.LedgerType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * 应收/应付表的写入监听：新建、到账/付款登记、删除等写入提交后，
+ * 把对应 (租户, 类型, 客户/供应商) 的账龄汇总标记为待重算。
+ *
+ * 能从参数实体取到往来单位时只重算该单位；按条件更新、按 ID 删除等取不到往来单位的写入，
+ * 按整租户重算（一条 GROUP BY）。
+ */
+@Component
+public class AgingChangeListener implements TableChangeListener {
+
+    @Autowired
+    private AgingBalanceOrchestrator agingBalanceOrchestrator;
+
+    @Override
+    public List<Class<?>> watchedMappers() {
+        return List.of(ReceivableMapper.class, PayableMapper.class);
+    }
+
+    @Override
+    public void onChange(TableChange change) {
+        LedgerType type = change.mapper() == ReceivableMapper.class ? LedgerType.RECEIVABLE : LedgerType.PAYABLE;
+        agingBalanceOrchestrator.markDirty(change.tenantId(), type, partyId(change.entity()));
+    }
+
+    /** 与 AgingBalanceOrchestrator.LedgerType 的往来单位口径一致：应付优先供应商，其次往来单位 */
+    private static String partyId(Object entity) {
+        if (entity instanceof Receivable r) {
+            return StringUtils.hasText(r.getCustomerId()) ? r.getCustomerId() : null;
+        }
+        if (entity instanceof Payable p) {
+            if (StringUtils.hasText(p.getSupplierId())) {
+                return p.getSupplierId();
+            }
+            return StringUtils.hasText(p.getCounterpartyId()) ? p.getCounterpartyId() : null;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.fashion.supplychain.finance.helper;
+
+import com.fashion.supplychain.common.datachange.TableChange;
+import com.fashion.supplychain.common.datachange.TableChangeListener;
+import com.fashion.supplychain.finance.orchestration.StyleCostSnapshotOrchestrator;
+import com.fashion.supplychain.style.entity.SecondaryProcess;
+import com.fashion.supplychain.style.entity.StyleBom;
+import com.fashion.supplychain.style.entity.StyleProcess;
+import com.fashion.supplychain.style.mapper.SecondaryProcessMapper;
+import com.fashion.supplychain.style.mapper.StyleBomMapper;
+import com.fashion.supplychain.style.mapper.StyleProcessMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 款式成本相关表的写入监听：BOM/工序/二次工艺写入提交后，把对应款式的成本快照标记为失效。
+ *
+ * 能从参数实体取到 styleId 时只失效该款式；按 ID 删除、按条件批量更新等取不到款式的写入，
+ * 整租户失效（快照惰性重算，代价很小）。
+ */
+@Component
+public class StyleCostChangeListener implements TableChangeListener {
+
+    @Autowired
+    private StyleCostSnapshotOrchestrator styleCostSnapshotOrchestrator;
+
+    @Override
+    public List<Class<?>> watchedMappers() {
+        return List.of(StyleBomMapper.class, StyleProcessMapper.class, SecondaryProcessMapper.class);
+    }
+
+    @Override
+    public void onChange(TableChange change) {
+        styleCostSnapshotOrchestrator.markStale(change.tenantId(), styleId(change.entity()));
+    }
+
+    private static Long styleId(Object entity) {
+        if (entity instanceof StyleBom b) {
+            return b.getStyleId();
+        }
+        if (entity instanceof StyleProcess p) {
+            return p.getStyleId();
+        }
+        if (entity instanceof SecondaryProcess s) {
+            return s.getStyleId();
+        }
+        return null;
+    }
+}
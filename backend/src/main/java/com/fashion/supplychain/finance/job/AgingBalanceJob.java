@@ -0,0 +1,45 @@
+package com.fashion.supplychain.finance.job;
+
+import com.fashion.supplychain.common.lock.DistributedLockService;
+import com.fashion.supplychain.finance.orchestration.AgingBalanceOrchestrator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 账龄跨档滚动：每天 00:05 对应收/应付各做一次全表集合式重算。
+ * 日间的单据变更由 AgingChangeListener 按往来单位增量重算，不经本任务。
+ */
+@Slf4j
+@Component
+public class AgingBalanceJob {
+
+    private static final String LOCK_KEY = "job:aging-balance-rollover";
+
+    @Autowired
+    private AgingBalanceOrchestrator agingBalanceOrchestrator;
+
+    @Autowired(required = false)
+    private DistributedLockService distributedLockService;
+
+    @Scheduled(cron = "0 5 0 * * ?")
+    public void rollover() {
+        if (distributedLockService == null) {
+            agingBalanceOrchestrator.rolloverAll();
+            return;
+        }
+        String lockValue = distributedLockService.tryLock(LOCK_KEY, 30, TimeUnit.MINUTES);
+        if (lockValue == null) {
+            log.debug("[Aging] 其他实例正在执行，跳过账龄滚动");
+            return;
+        }
+        try {
+            agingBalanceOrchestrator.rolloverAll();
+        } finally {
+            distributedLockService.unlock(LOCK_KEY, lockValue);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.fashion.supplychain.finance.job;
+
+import com.fashion.supplychain.common.lock.DistributedLockService;
+import com.fashion.supplychain.finance.orchestration.FinanceDailyFactOrchestrator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 财务日汇总事实维护：每 2 分钟增量刷新，每晚重算最近 40 天兜底。
+ * 两个任务共用一把分布式锁，避免多实例同时删写同一批事实行。
+ */
+@Slf4j
+@Component
+public class FinanceDailyFactJob {
+
+    private static final String LOCK_KEY = "job:finance-daily-fact";
+
+    /** 夜间兜底重算的天数（覆盖跨月对账调整） */
+    private static final int REBUILD_DAYS = 40;
+
+    @Autowired
+    private FinanceDailyFactOrchestrator financeDailyFactOrchestrator;
+
+    @Autowired(required = false)
+    private DistributedLockService distributedLockService;
+
+    @Scheduled(fixedDelay = 120_000, initialDelay = 90_000)
+    public void refreshChanged() {
+        runLocked("增量刷新", 10, financeDailyFactOrchestrator::refreshChanged);
+    }
+
+    @Scheduled(cron = "0 40 3 * * ?")
+    public void rebuildRecent() {
+        runLocked("夜间重算", 30, () -> financeDailyFactOrchestrator.rebuildRecent(REBUILD_DAYS));
+    }
+
+    private void runLocked(String action, long leaseMinutes, Runnable task) {
+        if (distributedLockService == null) {
+            task.run();
+            return;
+        }
+        String lockValue = distributedLockService.tryLock(LOCK_KEY, leaseMinutes, TimeUnit.MINUTES);
+        if (lockValue == null) {
+            log.debug("[FinanceFact] 其他实例正在执行，跳过{}", action);
+            return;
+        }
+        try {
+            task.run();
+        } finally {
+            distributedLockService.unlock(LOCK_KEY, lockValue);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.fashion.supplychain.finance.job;
+
+import com.fashion.supplychain.common.lock.DistributedLockService;
+import com.fashion.supplychain.finance.orchestration.OrderProfitLedgerOrchestrator;
+import com.fashion.supplychain.finance.orchestration.StyleCostSnapshotOrchestrator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单利润台账维护：每分钟增量刷新，每晚全量重建兜底。
+ * 夜间同时把款式成本快照全部标记失效，兜底绕过 Mapper 的 BOM/工序写入（下次读取时惰性重算）。
+ * 两个任务共用一把分布式锁，避免多实例同时写台账。
+ */
+@Slf4j
+@Component
+public class OrderProfitLedgerJob {
+
+    private static final String LOCK_KEY = "job:order-profit-ledger";
+
+    @Autowired
+    private OrderProfitLedgerOrchestrator orderProfitLedgerOrchestrator;
+
+    @Autowired
+    private StyleCostSnapshotOrchestrator styleCostSnapshotOrchestrator;
+
+    @Autowired(required = false)
+    private DistributedLockService distributedLockService;
+
+    @Scheduled(fixedDelay = 60_000, initialDelay = 120_000)
+    public void refreshChanged() {
+        runLocked("增量刷新", 10, orderProfitLedgerOrchestrator::refreshChanged);
+    }
+
+    @Scheduled(cron = "0 50 3 * * ?")
+    public void rebuildAll() {
+        runLocked("夜间重建", 60, () -> {
+            styleCostSnapshotOrchestrator.markStale(null, null);
+            orderProfitLedgerOrchestrator.rebuildAll();
+        });
+    }
+
+    private void runLocked(String action, long leaseMinutes, Runnable task) {
+        if (distributedLockService == null) {
+            task.run();
+            return;
+        }
+        String lockValue = distributedLockService.tryLock(LOCK_KEY, leaseMinutes, TimeUnit.MINUTES);
+        if (lockValue == null) {
+            log.debug("[ProfitLedger] 其他实例正在执行，跳过{}", action);
+            return;
+        }
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.warn("[ProfitLedger] {}失败: {}", action, e.getMessage());
+        } finally {
+            distributedLockService.unlock(LOCK_KEY, lockValue);
+        }
+    }
+}
@@ -14,6 +14,7 @@ public interface PayableMapper extends BaseMapper<Payable> {
     @Update("UPDATE t_payable SET " +
             "paid_amount = COALESCE(paid_amount, 0) + #{delta}, " +
             "status = CASE WHEN COALESCE(paid_amount, 0) + #{delta} >= COALESCE(amount, 0) THEN 'PAID' ELSE 'PARTIAL' END, " +
+            "paid_time = CASE WHEN status = 'PAID' THEN COALESCE(paid_time, NOW()) ELSE paid_time END, " +
             "update_time = NOW() " +
             "WHERE id = #{id} AND tenant_id = #{tenantId} AND delete_flag = 0")
     int atomicAddPaidAmount(@Param("id") String id, @Param("delta") BigDecimal delta, @Param("tenantId") Long tenantId);
@@ -30,6 +31,7 @@ public interface PayableMapper extends BaseMapper<Payable> {
             "returned_amount = COALESCE(returned_amount, 0) + #{delta}, " +
             "status = CASE WHEN COALESCE(returned_amount, 0) + #{delta} >= COALESCE(amount, 0) - COALESCE(paid_amount, 0) " +
             "  AND COALESCE(amount, 0) - COALESCE(paid_amount, 0) >= 0 THEN 'PAID' ELSE status END, " +
+            "paid_time = CASE WHEN status = 'PAID' THEN COALESCE(paid_time, NOW()) ELSE paid_time END, " +
             "update_time = NOW() " +
             "WHERE id = #{id} AND tenant_id = #{tenantId} AND delete_flag = 0")
     int atomicAddReturnedAmount(@Param("id") String id, @Param("delta") BigDecimal delta, @Param("tenantId") Long tenantId);
@@ -0,0 +1,298 @@
+package com.fashion.supplychain.finance.orchestration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 应收/应付账龄分档汇总（t_aging_balance）。
+ *
+ * 原状：账龄报表每次读租户全部未结清单据（最多 5000 条，超出部分丢失）在内存里按到期日分档。
+ *
+ * 现流程：
+ * 1. 按 (租户, 类型, 客户/供应商) 一行，保存未到期 + 5 个逾期档的笔数与余额，DB 内 GROUP BY 计算；
+ * 2. 应收/应付写入（{@link com.fashion.supplychain.finance.helper.AgingChangeListener}，事务提交后）
+ *    标记 (租户, 类型, 往来单位) 待重算，flush 每 3 秒合并处理；取不到往来单位的写入按整租户重算；
+ * 3. 跨档滚动：每天凌晨 {@link #rolloverAll()} 一次全表集合式重算（AgingBalanceJob 持锁驱动）；
+ * 4. 读取：租户账龄 = 汇总行求和，单个往来单位 = 主键读取；汇总早于今天（滚动任务尚未执行）时先重算该范围。
+ *
+ * 所有 SQL 走 JdbcTemplate（不经租户拦截器），租户条件显式拼接。
+ */
+@Slf4j
+@Service
+public class AgingBalanceOrchestrator {
+
+    public enum LedgerType {
+        /** 应收（按客户） */
+        RECEIVABLE("t_receivable", "received_amount",
+                "COALESCE(customer_id, '')", "customer_name", "customer_id = ?"),
+        /** 应付（按供应商，无供应商时按往来单位） */
+        PAYABLE("t_payable", "paid_amount",
+                "COALESCE(NULLIF(supplier_id, ''), NULLIF(counterparty_id, ''), '')",
+                "COALESCE(NULLIF(supplier_name, ''), counterparty_name)",
+                "COALESCE(NULLIF(supplier_id, ''), NULLIF(counterparty_id, ''), '') = ?");
+
+        final String table;
+        final String settledColumn;
+        final String partyExpr;
+        final String partyNameExpr;
+        final String partyFilter;
+
+        LedgerType(String table, String settledColumn, String partyExpr, String partyNameExpr, String partyFilter) {
+            this.table = table;
+            this.settledColumn = settledColumn;
+            this.partyExpr = partyExpr;
+            this.partyNameExpr = partyNameExpr;
+            this.partyFilter = partyFilter;
+        }
+    }
+
+    /** 逾期分档（与原报表一致：今天到期计入 0-30 档） */
+    private static final String[] BUCKET_LABELS = {"0-30天", "31-60天", "61-90天", "91-180天", "180天以上"};
+
+    private static final String[] BUCKET_CONDITIONS = {
+            "age IS NULL OR age < 0",
+            "age BETWEEN 0 AND 30",
+            "age BETWEEN 31 AND 60",
+            "age BETWEEN 61 AND 90",
+            "age BETWEEN 91 AND 180",
+            "age > 180"};
+
+    private static final String BALANCE_COLUMNS = "party_id, party_name, open_count, open_amount, "
+            + "not_due_count, not_due_amount, d0_30_count, d0_30_amount, d31_60_count, d31_60_amount, "
+            + "d61_90_count, d61_90_amount, d91_180_count, d91_180_amount, d180_plus_count, d180_plus_amount, as_of_date";
+
+    private static final RowMapper<AgingSummary> SUMMARY_MAPPER = (rs, i) -> {
+        List<Bucket> buckets = new ArrayList<>(BUCKET_LABELS.length);
+        for (int b = 0; b < BUCKET_LABELS.length; b++) {
+            buckets.add(new Bucket(BUCKET_LABELS[b], rs.getInt(7 + b * 2), nz(rs.getBigDecimal(8 + b * 2))));
+        }
+        Date asOf = rs.getDate(17);
+        return new AgingSummary(rs.getString(1), rs.getString(2), rs.getInt(3), nz(rs.getBigDecimal(4)),
+                rs.getInt(5), nz(rs.getBigDecimal(6)), buckets, asOf == null ? null : asOf.toLocalDate());
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /** 待重算范围；partyId 为 null 表示整租户，tenantId 为 null 表示全部租户 */
+    private final Set<Scope> dirty = ConcurrentHashMap.newKeySet();
+
+    private record Scope(Long tenantId, LedgerType type, String partyId) { }
+
+    public record Bucket(String range, int count, BigDecimal amount) { }
+
+    /**
+     * 账龄汇总（租户级时 partyId/partyName 为空）
+     */
+    public record AgingSummary(String partyId, String partyName, int openCount, BigDecimal openAmount,
+                               int notDueCount, BigDecimal notDueAmount, List<Bucket> buckets, LocalDate asOfDate) {
+
+        /** 逾期合计（5 个逾期档之和） */
+        public BigDecimal overdueAmount() {
+            BigDecimal total = BigDecimal.ZERO;
+            for (Bucket b : buckets) {
+                total = total.add(b.amount());
+            }
+            return total;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            if (partyId != null) {
+                m.put("partyId", partyId);
+                m.put("partyName", partyName);
+            }
+            m.put("asOfDate", asOfDate == null ? null : asOfDate.toString());
+            m.put("openCount", openCount);
+            m.put("openAmount", openAmount);
+            m.put("notDueCount", notDueCount);
+            m.put("notDueAmount", notDueAmount);
+            m.put("overdueAmount", overdueAmount());
+            List<Map<String, Object>> list = new ArrayList<>(buckets.size());
+            for (Bucket b : buckets) {
+                Map<String, Object> bm = new LinkedHashMap<>();
+                bm.put("range", b.range());
+                bm.put("amount", b.amount());
+                bm.put("count", b.count());
+                list.add(bm);
+            }
+            m.put("buckets", list);
+            return m;
+        }
+    }
+
+    // ─── 读取 ────────────────────────────────────────────────────────────────
+
+    /**
+     * 租户账龄（所有往来单位汇总行求和）
+     */
+    public AgingSummary getTenantAging(Long tenantId, LedgerType type) {
+        AgingSummary s = readTenant(tenantId, type);
+        if (s.asOfDate() == null || s.asOfDate().isBefore(LocalDate.now())) {
+            // 无汇总行（首次使用）或滚动任务尚未执行：先重算本租户
+            recompute(new Scope(tenantId, type, null));
+            s = readTenant(tenantId, type);
+        }
+        return s;
+    }
+
+    /**
+     * 单个客户/供应商账龄（主键读取），无未结清单据时各项为 0
+     */
+    public AgingSummary getPartyAging(Long tenantId, LedgerType type, String partyId) {
+        String pid = partyId == null ? "" : partyId.trim();
+        AgingSummary s = readParty(tenantId, type, pid);
+        if (s != null && s.asOfDate() != null && !s.asOfDate().isBefore(LocalDate.now())) {
+            return s;
+        }
+        recompute(new Scope(tenantId, type, pid));
+        s = readParty(tenantId, type, pid);
+        return s != null ? s : empty(pid);
+    }
+
+    private AgingSummary readTenant(Long tenantId, LedgerType type) {
+        StringBuilder sql = new StringBuilder("SELECT NULL, NULL");
+        for (String col : BALANCE_COLUMNS.split(", ")) {
+            if (col.startsWith("party_")) {
+                continue;
+            }
+            sql.append(", ").append(col.equals("as_of_date") ? "MIN(as_of_date)" : "COALESCE(SUM(" + col + "), 0)");
+        }
+        sql.append(" FROM t_aging_balance WHERE tenant_id = ? AND ledger_type = ?");
+        return jdbcTemplate.queryForObject(sql.toString(), SUMMARY_MAPPER, tenantId, type.name());
+    }
+
+    private AgingSummary readParty(Long tenantId, LedgerType type, String partyId) {
+        List<AgingSummary> rows = jdbcTemplate.query("SELECT " + BALANCE_COLUMNS
+                        + " FROM t_aging_balance WHERE tenant_id = ? AND ledger_type = ? AND party_id = ?",
+                SUMMARY_MAPPER, tenantId, type.name(), partyId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static AgingSummary empty(String partyId) {
+        List<Bucket> buckets = new ArrayList<>(BUCKET_LABELS.length);
+        for (String label : BUCKET_LABELS) {
+            buckets.add(new Bucket(label, 0, BigDecimal.ZERO));
+        }
+        return new AgingSummary(partyId, null, 0, BigDecimal.ZERO, 0, BigDecimal.ZERO, buckets, LocalDate.now());
+    }
+
+    // ─── 维护 ────────────────────────────────────────────────────────────────
+
+    /**
+     * 标记待重算（由写入方在事务提交后调用，flush 时合并处理）
+     */
+    public void markDirty(Long tenantId, LedgerType type, String partyId) {
+        dirty.add(new Scope(tenantId, type, tenantId == null ? null : partyId));
+    }
+
+    @Scheduled(fixedDelay = 3000, initialDelay = 15_000)
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Scope> batch = new ArrayList<>(dirty);
+        dirty.removeAll(batch);
+        // 大范围覆盖小范围：全部租户 > 整租户 > 单个往来单位
+        Set<LedgerType> allTenants = new HashSet<>();
+        Set<String> wholeTenants = new HashSet<>();
+        for (Scope s : batch) {
+            if (s.tenantId() == null) {
+                allTenants.add(s.type());
+            } else if (s.partyId() == null) {
+                wholeTenants.add(s.type() + ":" + s.tenantId());
+            }
+        }
+        for (Scope s : batch) {
+            if (allTenants.contains(s.type()) && s.tenantId() != null) {
+                continue;
+            }
+            if (s.partyId() != null && wholeTenants.contains(s.type() + ":" + s.tenantId())) {
+                continue;
+            }
+            recompute(s);
+        }
+    }
+
+    /**
+     * 跨档滚动：全部租户、两种类型各一次集合式重算
+     */
+    public void rolloverAll() {
+        for (LedgerType type : LedgerType.values()) {
+            long start = System.currentTimeMillis();
+            recompute(new Scope(null, type, null));
+            log.info("[Aging] {} 账龄滚动完成 elapsedMs={}", type, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 删除范围内的汇总行后按源表重新 GROUP BY 写入（同一事务，读方看到的要么是旧值要么是新值）
+     */
+    private void recompute(Scope scope) {
+        LedgerType t = scope.type();
+        StringBuilder deleteSql = new StringBuilder("DELETE FROM t_aging_balance WHERE ledger_type = ?");
+        StringBuilder sourceFilter = new StringBuilder();
+        List<Object> deleteArgs = new ArrayList<>(List.of(t.name()));
+        List<Object> insertArgs = new ArrayList<>(List.of(t.name()));
+        if (scope.tenantId() != null) {
+            deleteSql.append(" AND tenant_id = ?");
+            sourceFilter.append(" AND tenant_id = ?");
+            deleteArgs.add(scope.tenantId());
+            insertArgs.add(scope.tenantId());
+            if (scope.partyId() != null) {
+                deleteSql.append(" AND party_id = ?");
+                sourceFilter.append(" AND ").append(t.partyFilter);
+                deleteArgs.add(scope.partyId());
+                insertArgs.add(scope.partyId());
+            }
+        }
+        String insertSql = "INSERT INTO t_aging_balance (tenant_id, ledger_type, " + BALANCE_COLUMNS + ", update_time) "
+                + "SELECT tenant_id, ?, party_id, MAX(party_name), COUNT(*), SUM(remaining), "
+                + bucketSums() + "CURDATE(), NOW() FROM (SELECT tenant_id, " + t.partyExpr + " AS party_id, "
+                + t.partyNameExpr + " AS party_name, COALESCE(amount, 0) - COALESCE(" + t.settledColumn + ", 0) AS remaining, "
+                + "DATEDIFF(CURDATE(), due_date) AS age FROM " + t.table
+                + " WHERE delete_flag = 0 AND status <> 'PAID' AND tenant_id IS NOT NULL" + sourceFilter
+                + ") src GROUP BY tenant_id, party_id";
+        try {
+            transactionTemplate.executeWithoutResult(s -> {
+                jdbcTemplate.update(deleteSql.toString(), deleteArgs.toArray());
+                jdbcTemplate.update(insertSql, insertArgs.toArray());
+            });
+        } catch (Exception e) {
+            log.warn("[Aging] 重算失败 type={} tenantId={} partyId={}: {}",
+                    t, scope.tenantId(), scope.partyId(), e.getMessage());
+        }
+    }
+
+    private static String bucketSums() {
+        StringBuilder sb = new StringBuilder();
+        for (String cond : BUCKET_CONDITIONS) {
+            sb.append("SUM(CASE WHEN ").append(cond).append(" THEN 1 ELSE 0 END), ")
+                    .append("SUM(CASE WHEN ").append(cond).append(" THEN remaining ELSE 0 END), ");
+        }
+        return sb.toString();
+    }
+
+    private static BigDecimal nz(BigDecimal v) {
+        return v == null ? BigDecimal.ZERO : v;
+    }
+}
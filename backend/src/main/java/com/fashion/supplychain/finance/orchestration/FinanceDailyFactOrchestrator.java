@@ -0,0 +1,299 @@
+package com.fashion.supplychain.finance.orchestration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 财务日汇总事实层（t_finance_daily_fact）。
+ *
+ * 原状：报表每次把区间内 t_scan_record（无 LIMIT）和对账/发票/应付/报销实体全部读进内存再求和。
+ *
+ * 现流程：
+ * 1. 每个类别（{@link FactCategory}）按 (租户, 日期) 预汇总金额和单据数；
+ * 2. 增量刷新：按源表 update_time 水位找出变更过的 (租户, 日期)，只重算这些天（DB 内 GROUP BY）；
+ * 3. 每晚重算最近 N 天兜底（物理删除、日期字段被修改等水位捕捉不到的变化）；
+ * 4. 报表读取：昨天及以前读事实行，当天实时汇总；类别尚未完成首次同步时整段实时汇总（仍在 DB 内 SUM）。
+ *
+ * 所有 SQL 走 JdbcTemplate（不经租户拦截器），租户条件显式拼接。
+ */
+@Slf4j
+@Service
+public class FinanceDailyFactOrchestrator {
+
+    /** 增量刷新时向前回看的时长：覆盖 update_time 早于提交时刻的长事务 */
+    private static final long WATERMARK_OVERLAP_MINUTES = 5;
+
+    public enum FactCategory {
+        /** 工序成本（本厂扫码，口径同原 sumLaborCost） */
+        LABOR("t_scan_record", "scan_time",
+                "CASE WHEN total_amount > 0 THEN total_amount WHEN scan_cost > 0 THEN scan_cost "
+                        + "WHEN unit_price IS NOT NULL AND quantity IS NOT NULL THEN unit_price * quantity ELSE 0 END",
+                "scan_result = 'success' AND quantity > 0 AND factory_id IS NULL AND scan_type <> 'orchestration'"),
+        /** 成品对账收入 */
+        SHIPMENT_REVENUE("t_shipment_reconciliation", "create_time",
+                "COALESCE(final_amount, 0)", "status IN ('verified', 'paid') AND delete_flag = 0"),
+        /** 电商销售收入 */
+        EC_REVENUE("t_ec_sales_revenue", "create_time",
+                "COALESCE(pay_amount, 0)", "status = 'confirmed'"),
+        /** 物料对账成本 */
+        MATERIAL_COST("t_material_reconciliation", "create_time",
+                "CASE WHEN final_amount > 0 THEN final_amount ELSE COALESCE(total_amount, 0) END",
+                "status IN ('verified', 'paid') AND delete_flag = 0"),
+        /** 已批准报销 */
+        EXPENSE("t_expense_reimbursement", "create_time",
+                "COALESCE(amount, 0)", "status = 'approved' AND delete_flag = 0"),
+        /** 已开票税额 */
+        INVOICE_TAX("t_invoice", "create_time",
+                "COALESCE(tax_amount, 0)", "status = 'ISSUED' AND delete_flag = 0"),
+        /** 应付已付（按结清时间 paid_time 归日；update_time 会随结清后的编辑变化，不能用来归日） */
+        PAYABLE_PAID("t_payable", "paid_time",
+                "COALESCE(paid_amount, 0)", "status = 'PAID' AND delete_flag = 0");
+
+        final String table;
+        final String dayColumn;
+        final String amountExpr;
+        final String condition;
+
+        FactCategory(String table, String dayColumn, String amountExpr, String condition) {
+            this.table = table;
+            this.dayColumn = dayColumn;
+            this.amountExpr = amountExpr;
+            this.condition = condition;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // ─── 读取 ────────────────────────────────────────────────────────────────
+
+    /**
+     * 区间 [start, end] 内各类别合计（保留 2 位小数）
+     */
+    public Map<FactCategory, BigDecimal> sumRange(Long tenantId, LocalDate start, LocalDate end) {
+        Map<FactCategory, BigDecimal> result = new EnumMap<>(FactCategory.class);
+        for (FactCategory c : FactCategory.values()) {
+            result.put(c, BigDecimal.ZERO);
+        }
+        for (Map.Entry<LocalDate, Map<FactCategory, BigDecimal>> day
+                : dailyAmounts(tenantId, start, end, EnumSet.allOf(FactCategory.class)).entrySet()) {
+            day.getValue().forEach((c, v) -> result.merge(c, v, BigDecimal::add));
+        }
+        result.replaceAll((c, v) -> v.setScale(2, RoundingMode.HALF_UP));
+        return result;
+    }
+
+    /**
+     * 区间 [start, end] 内按日、按类别的金额（无数据的日期不出现）
+     */
+    public Map<LocalDate, Map<FactCategory, BigDecimal>> dailyAmounts(Long tenantId, LocalDate start, LocalDate end,
+                                                                      Set<FactCategory> categories) {
+        Map<LocalDate, Map<FactCategory, BigDecimal>> result = new TreeMap<>();
+        if (start == null || end == null || end.isBefore(start) || categories.isEmpty()) {
+            return result;
+        }
+        LocalDate today = LocalDate.now();
+        Set<String> synced = syncedCategories();
+
+        List<String> factCategories = new ArrayList<>();
+        for (FactCategory c : categories) {
+            if (synced.contains(c.name())) {
+                factCategories.add(c.name());
+            } else {
+                // 首次同步未完成：整段实时汇总
+                liveDaily(c, tenantId, start, end.plusDays(1)).forEach((d, v) -> put(result, d, c, v));
+            }
+        }
+
+        LocalDate factEnd = end.isBefore(today) ? end : today.minusDays(1);
+        if (!factCategories.isEmpty() && !factEnd.isBefore(start)) {
+            String in = String.join(",", factCategories.stream().map(c -> "?").toList());
+            List<Object> args = new ArrayList<>(List.of(tenantId, start, factEnd));
+            args.addAll(factCategories);
+            jdbcTemplate.query("SELECT fact_date, category, amount FROM t_finance_daily_fact "
+                            + "WHERE tenant_id = ? AND fact_date >= ? AND fact_date <= ? AND category IN (" + in + ")",
+                    rs -> {
+                        put(result, rs.getDate(1).toLocalDate(), FactCategory.valueOf(rs.getString(2)),
+                                rs.getBigDecimal(3));
+                    }, args.toArray());
+        }
+        if (!end.isBefore(today) && !today.isBefore(start)) {
+            for (FactCategory c : categories) {
+                if (synced.contains(c.name())) {
+                    liveDaily(c, tenantId, today, today.plusDays(1)).forEach((d, v) -> put(result, d, c, v));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void put(Map<LocalDate, Map<FactCategory, BigDecimal>> result, LocalDate day,
+                            FactCategory c, BigDecimal amount) {
+        if (amount == null) {
+            return;
+        }
+        result.computeIfAbsent(day, k -> new EnumMap<>(FactCategory.class)).merge(c, amount, BigDecimal::add);
+    }
+
+    /** 源表实时按日汇总 [from, toExclusive) */
+    private Map<LocalDate, BigDecimal> liveDaily(FactCategory c, Long tenantId, LocalDate from, LocalDate toExclusive) {
+        Map<LocalDate, BigDecimal> daily = new TreeMap<>();
+        jdbcTemplate.query("SELECT DATE(" + c.dayColumn + "), SUM(" + c.amountExpr + ") FROM " + c.table
+                        + " WHERE tenant_id = ? AND " + c.dayColumn + " >= ? AND " + c.dayColumn + " < ? AND "
+                        + c.condition + " GROUP BY DATE(" + c.dayColumn + ")",
+                rs -> {
+                    daily.put(rs.getDate(1).toLocalDate(), rs.getBigDecimal(2));
+                }, tenantId, from.atStartOfDay(), toExclusive.atStartOfDay());
+        return daily;
+    }
+
+    private Set<String> syncedCategories() {
+        return new TreeSet<>(jdbcTemplate.queryForList(
+                "SELECT category FROM t_finance_daily_fact_cursor", String.class));
+    }
+
+    // ─── 维护 ────────────────────────────────────────────────────────────────
+
+    /**
+     * 增量刷新：各类别从水位起找出变更过的 (租户, 日期) 并重算；无水位的类别做一次全量初始化
+     */
+    public synchronized void refreshChanged() {
+        for (FactCategory c : FactCategory.values()) {
+            try {
+                refreshCategory(c);
+            } catch (Exception e) {
+                log.warn("[FinanceFact] 增量刷新失败 category={}: {}", c, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 重算最近 days 天（全租户），兜底水位捕捉不到的变化
+     */
+    public synchronized void rebuildRecent(int days) {
+        LocalDate from = LocalDate.now().minusDays(days);
+        LocalDate to = LocalDate.now().plusDays(1);
+        for (FactCategory c : FactCategory.values()) {
+            try {
+                transactionTemplate.executeWithoutResult(s -> recompute(c, null, from, to));
+            } catch (Exception e) {
+                log.warn("[FinanceFact] 重算最近{}天失败 category={}: {}", days, c, e.getMessage());
+            }
+        }
+    }
+
+    private void refreshCategory(FactCategory c) {
+        LocalDateTime upper = jdbcTemplate.queryForObject("SELECT NOW()", LocalDateTime.class);
+        List<LocalDateTime> cursor = jdbcTemplate.queryForList(
+                "SELECT last_update_time FROM t_finance_daily_fact_cursor WHERE category = ?",
+                LocalDateTime.class, c.name());
+
+        if (cursor.isEmpty()) {
+            long start = System.currentTimeMillis();
+            transactionTemplate.executeWithoutResult(s -> {
+                recompute(c, null, null, null);
+                saveCursor(c, upper);
+            });
+            log.info("[FinanceFact] 全量初始化完成 category={} cost={}ms", c, System.currentTimeMillis() - start);
+            return;
+        }
+
+        LocalDateTime lower = cursor.get(0).minusMinutes(WATERMARK_OVERLAP_MINUTES);
+        Map<Long, TreeSet<LocalDate>> dirty = new TreeMap<>();
+        jdbcTemplate.query("SELECT DISTINCT tenant_id, DATE(" + c.dayColumn + ") FROM " + c.table
+                        + " WHERE update_time > ? AND update_time <= ? AND tenant_id IS NOT NULL AND "
+                        + c.dayColumn + " IS NOT NULL",
+                rs -> {
+                    dirty.computeIfAbsent(rs.getLong(1), k -> new TreeSet<>()).add(rs.getDate(2).toLocalDate());
+                }, lower, upper);
+
+        transactionTemplate.executeWithoutResult(s -> {
+            for (Map.Entry<Long, TreeSet<LocalDate>> e : dirty.entrySet()) {
+                for (LocalDate[] range : toRanges(e.getValue())) {
+                    recompute(c, e.getKey(), range[0], range[1]);
+                }
+            }
+            saveCursor(c, upper);
+        });
+        if (!dirty.isEmpty()) {
+            log.debug("[FinanceFact] 增量刷新 category={} tenants={}", c, dirty.size());
+        }
+    }
+
+    /**
+     * 重算 [from, toExclusive) 的事实行；tenantId 为 null 表示全租户，from 为 null 表示全量
+     */
+    private void recompute(FactCategory c, Long tenantId, LocalDate from, LocalDate toExclusive) {
+        StringBuilder delete = new StringBuilder("DELETE FROM t_finance_daily_fact WHERE category = ?");
+        StringBuilder where = new StringBuilder(" WHERE tenant_id IS NOT NULL AND ")
+                .append(c.dayColumn).append(" IS NOT NULL AND ").append(c.condition);
+        List<Object> deleteArgs = new ArrayList<>(List.of(c.name()));
+        List<Object> selectArgs = new ArrayList<>(List.of(c.name()));
+        if (tenantId != null) {
+            delete.append(" AND tenant_id = ?");
+            where.append(" AND tenant_id = ?");
+            deleteArgs.add(tenantId);
+            selectArgs.add(tenantId);
+        }
+        if (from != null) {
+            delete.append(" AND fact_date >= ? AND fact_date < ?");
+            where.append(" AND ").append(c.dayColumn).append(" >= ? AND ").append(c.dayColumn).append(" < ?");
+            deleteArgs.add(from);
+            deleteArgs.add(toExclusive);
+            selectArgs.add(from.atStartOfDay());
+            selectArgs.add(toExclusive.atStartOfDay());
+        }
+        jdbcTemplate.update(delete.toString(), deleteArgs.toArray());
+        jdbcTemplate.update("INSERT INTO t_finance_daily_fact (tenant_id, fact_date, category, amount, doc_count, update_time) "
+                        + "SELECT tenant_id, DATE(" + c.dayColumn + "), ?, SUM(" + c.amountExpr + "), COUNT(*), NOW() "
+                        + "FROM " + c.table + where + " GROUP BY tenant_id, DATE(" + c.dayColumn + ") "
+                        + "ON DUPLICATE KEY UPDATE amount = VALUES(amount), doc_count = VALUES(doc_count), "
+                        + "update_time = VALUES(update_time)",
+                selectArgs.toArray());
+    }
+
+    private void saveCursor(FactCategory c, LocalDateTime watermark) {
+        jdbcTemplate.update("INSERT INTO t_finance_daily_fact_cursor (category, last_update_time, update_time) "
+                + "VALUES (?, ?, NOW()) ON DUPLICATE KEY UPDATE last_update_time = VALUES(last_update_time), "
+                + "update_time = NOW()", c.name(), watermark);
+    }
+
+    /** 连续日期合并为 [from, toExclusive) 区间，减少重算语句数 */
+    private static List<LocalDate[]> toRanges(TreeSet<LocalDate> days) {
+        List<LocalDate[]> ranges = new ArrayList<>();
+        LocalDate from = null;
+        LocalDate prev = null;
+        for (LocalDate d : days) {
+            if (from == null) {
+                from = d;
+            } else if (!d.equals(prev.plusDays(1))) {
+                ranges.add(new LocalDate[]{from, prev.plusDays(1)});
+                from = d;
+            }
+            prev = d;
+        }
+        if (from != null) {
+            ranges.add(new LocalDate[]{from, prev.plusDays(1)});
+        }
+        return ranges;
+    }
+}
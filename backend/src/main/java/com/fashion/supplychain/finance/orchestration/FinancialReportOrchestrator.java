@@ -1,13 +1,12 @@
 package com.fashion.supplychain.finance.orchestration;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.fashion.supplychain.common.tenant.TenantAssert;
-import com.fashion.supplychain.crm.entity.Receivable;
-import com.fashion.supplychain.crm.service.ReceivableService;
 import com.fashion.supplychain.finance.entity.*;
+import com.fashion.supplychain.finance.orchestration.AgingBalanceOrchestrator.AgingSummary;
+import com.fashion.supplychain.finance.orchestration.AgingBalanceOrchestrator.LedgerType;
+import com.fashion.supplychain.finance.orchestration.FinanceDailyFactOrchestrator.FactCategory;
 import com.fashion.supplychain.finance.service.*;
-import com.fashion.supplychain.production.entity.ScanRecord;
-import com.fashion.supplychain.production.service.ScanRecordService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -15,8 +14,6 @@ import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.*;
 
 /**
@@ -27,20 +24,15 @@ import java.util.*;
 @Service
 public class FinancialReportOrchestrator {
 
-    @Autowired
-    private ShipmentReconciliationService shipmentReconciliationService;
-    @Autowired
-    private MaterialReconciliationService materialReconciliationService;
-    @Autowired
-    private EcSalesRevenueService ecSalesRevenueService;
-    @Autowired
-    private ExpenseReimbursementService expenseReimbursementService;
+    private static final Set<FactCategory> CASH_FLOW_CATEGORIES = EnumSet.of(
+            FactCategory.SHIPMENT_REVENUE, FactCategory.EC_REVENUE, FactCategory.PAYABLE_PAID, FactCategory.EXPENSE);
+
     @Autowired
     private PayableService payableService;
     @Autowired
     private InvoiceService invoiceService;
     @Autowired
-    private ScanRecordService scanRecordService;
+    private FinanceDailyFactOrchestrator financeDailyFactOrchestrator;
 
     /** 财务报表仅限管理层查看，工厂账户禁止访问 */
     private void assertNotFactoryAccount() {
@@ -55,24 +47,23 @@ public class FinancialReportOrchestrator {
     public Map<String, Object> generateProfitLoss(LocalDate startDate, LocalDate endDate) {
         assertNotFactoryAccount();
         Long tenantId = TenantAssert.requireTenantId();
-        LocalDateTime startDt = startDate.atStartOfDay();
-        LocalDateTime endDt   = endDate.atTime(LocalTime.MAX);
+        Map<FactCategory, BigDecimal> sums = financeDailyFactOrchestrator.sumRange(tenantId, startDate, endDate);
 
         // 1. 收入：成品对账已确认 + EC 销售收入已确认
-        BigDecimal shipmentRevenue = sumShipmentRevenue(tenantId, startDt, endDt);
-        BigDecimal ecRevenue       = sumEcRevenue(tenantId, startDt, endDt);
+        BigDecimal shipmentRevenue = sums.get(FactCategory.SHIPMENT_REVENUE);
+        BigDecimal ecRevenue       = sums.get(FactCategory.EC_REVENUE);
         BigDecimal totalRevenue    = shipmentRevenue.add(ecRevenue);
 
         // 2. 成本：物料对账 + 工序成本（扫码结算）
-        BigDecimal materialCost = sumMaterialCost(tenantId, startDt, endDt);
-        BigDecimal laborCost   = sumLaborCost(tenantId, startDt, endDt);
+        BigDecimal materialCost = sums.get(FactCategory.MATERIAL_COST);
+        BigDecimal laborCost   = sums.get(FactCategory.LABOR);
         BigDecimal totalCost   = materialCost.add(laborCost);
 
         // 3. 费用：已批准的报销
-        BigDecimal expenseTotal = sumExpense(tenantId, startDt, endDt);
+        BigDecimal expenseTotal = sums.get(FactCategory.EXPENSE);
 
         // 4. 税额：已开具发票的税额合计
-        BigDecimal taxTotal = sumIssuedTax(tenantId, startDt, endDt);
+        BigDecimal taxTotal = sums.get(FactCategory.INVOICE_TAX);
 
         BigDecimal grossProfit = totalRevenue.subtract(totalCost);
         BigDecimal operatingProfit = grossProfit.subtract(expenseTotal);
@@ -107,30 +98,21 @@ public class FinancialReportOrchestrator {
         assertNotFactoryAccount();
         Long tenantId = TenantAssert.requireTenantId();
 
-        // 应付余额（未结清）
-        BigDecimal payableBalance = BigDecimal.ZERO;
-        List<Payable> payables = payableService.list(
-                new LambdaQueryWrapper<Payable>()
-                        .eq(Payable::getDeleteFlag, 0)
-                        .in(Payable::getStatus, "PENDING", "PARTIAL", "OVERDUE")
-                        .eq(Payable::getTenantId, tenantId)
-                        .last("LIMIT 5000"));
-        for (Payable p : payables) {
-            BigDecimal paid = p.getPaidAmount() != null ? p.getPaidAmount() : BigDecimal.ZERO;
-            payableBalance = payableBalance.add(p.getAmount().subtract(paid));
-        }
+        // 应付余额（未结清）：余额是当前状态而非日流水，直接在 DB 内 SUM
+        BigDecimal payableBalance = sumColumn(payableService.getMap(
+                new QueryWrapper<Payable>()
+                        .select("COALESCE(SUM(COALESCE(amount, 0) - COALESCE(paid_amount, 0)), 0) AS total")
+                        .eq("delete_flag", 0)
+                        .in("status", "PENDING", "PARTIAL", "OVERDUE")
+                        .eq("tenant_id", tenantId)));
 
         // 已开具发票金额（资产侧 — 应收票据）
-        BigDecimal invoiceBalance = BigDecimal.ZERO;
-        List<Invoice> invoices = invoiceService.list(
-                new LambdaQueryWrapper<Invoice>()
-                        .eq(Invoice::getDeleteFlag, 0)
-                        .eq(Invoice::getStatus, "ISSUED")
-                        .eq(Invoice::getTenantId, tenantId)
-                        .last("LIMIT 5000"));
-        for (Invoice inv : invoices) {
-            invoiceBalance = invoiceBalance.add(inv.getTotalAmount() != null ? inv.getTotalAmount() : BigDecimal.ZERO);
-        }
+        BigDecimal invoiceBalance = sumColumn(invoiceService.getMap(
+                new QueryWrapper<Invoice>()
+                        .select("COALESCE(SUM(total_amount), 0) AS total")
+                        .eq("delete_flag", 0)
+                        .eq("status", "ISSUED")
+                        .eq("tenant_id", tenantId)));
 
         Map<String, Object> report = new LinkedHashMap<>();
         report.put("reportType", "BALANCE_SHEET");
@@ -147,27 +129,22 @@ public class FinancialReportOrchestrator {
     public Map<String, Object> generateCashFlow(LocalDate startDate, LocalDate endDate) {
         assertNotFactoryAccount();
         Long tenantId = TenantAssert.requireTenantId();
-        LocalDateTime startDt = startDate.atStartOfDay();
-        LocalDateTime endDt   = endDate.atTime(LocalTime.MAX);
-
-        // 现金流入：成品结算已收款 + EC 已确认
-        BigDecimal cashIn = sumShipmentRevenue(tenantId, startDt, endDt)
-                .add(sumEcRevenue(tenantId, startDt, endDt));
+        Map<LocalDate, Map<FactCategory, BigDecimal>> daily = financeDailyFactOrchestrator.dailyAmounts(
+                tenantId, startDate, endDate, CASH_FLOW_CATEGORIES);
 
-        // 现金流出：应付已付 + 报销已付
+        BigDecimal cashIn = BigDecimal.ZERO;
         BigDecimal payablePaid = BigDecimal.ZERO;
-        List<Payable> paidPayables = payableService.list(
-                new LambdaQueryWrapper<Payable>()
-                        .eq(Payable::getDeleteFlag, 0)
-                        .eq(Payable::getStatus, "PAID")
-                        .eq(Payable::getTenantId, tenantId)
-                        .ge(Payable::getUpdateTime, startDt)
-                        .le(Payable::getUpdateTime, endDt)
-                        .last("LIMIT 5000"));
-        for (Payable p : paidPayables) {
-            payablePaid = payablePaid.add(p.getPaidAmount() != null ? p.getPaidAmount() : BigDecimal.ZERO);
+        BigDecimal expensePaid = BigDecimal.ZERO;
+        for (Map<FactCategory, BigDecimal> day : daily.values()) {
+            // 现金流入：成品结算已收款 + EC 已确认
+            cashIn = cashIn.add(amountOf(day, FactCategory.SHIPMENT_REVENUE)).add(amountOf(day, FactCategory.EC_REVENUE));
+            // 现金流出：应付已付 + 报销已付
+            payablePaid = payablePaid.add(amountOf(day, FactCategory.PAYABLE_PAID));
+            expensePaid = expensePaid.add(amountOf(day, FactCategory.EXPENSE));
         }
-        BigDecimal expensePaid = sumExpense(tenantId, startDt, endDt);
+        cashIn = cashIn.setScale(2, RoundingMode.HALF_UP);
+        payablePaid = payablePaid.setScale(2, RoundingMode.HALF_UP);
+        expensePaid = expensePaid.setScale(2, RoundingMode.HALF_UP);
         BigDecimal cashOut = payablePaid.add(expensePaid);
 
         Map<String, Object> report = new LinkedHashMap<>();
@@ -179,281 +156,62 @@ public class FinancialReportOrchestrator {
         report.put("netCashFlow", cashIn.subtract(cashOut));
         report.put("payablePaid", payablePaid);
         report.put("expensePaid", expensePaid);
-        report.put("points", buildCashFlowPoints(tenantId, startDate, endDate));
+        report.put("points", buildCashFlowPoints(daily, startDate, endDate));
         return report;
     }
 
     /**
-     * 构建按日现金流分点数据（供前端折线图）
+     * 构建按日现金流分点数据（供前端折线图；图表口径：流出只计应付已付）
      */
-    private List<Map<String, Object>> buildCashFlowPoints(Long tenantId, LocalDate startDate, LocalDate endDate) {
-        List<ShipmentReconciliation> shipments = Collections.emptyList();
-        try {
-            shipments = shipmentReconciliationService.list(
-                    new LambdaQueryWrapper<ShipmentReconciliation>()
-                            .in(ShipmentReconciliation::getStatus, "verified", "paid")
-                            .eq(ShipmentReconciliation::getTenantId, tenantId)
-                            .ge(ShipmentReconciliation::getCreateTime, startDate.atStartOfDay())
-                            .le(ShipmentReconciliation::getCreateTime, endDate.atTime(LocalTime.MAX))
-                            .last("LIMIT 5000"));
-        } catch (Exception e) {
-            log.warn("[现金流] 查询出货收入失败", e);
-        }
-
-        List<EcSalesRevenue> ecSales = Collections.emptyList();
-        try {
-            ecSales = ecSalesRevenueService.list(
-                    new LambdaQueryWrapper<EcSalesRevenue>()
-                            .eq(EcSalesRevenue::getStatus, "confirmed")
-                            .eq(EcSalesRevenue::getTenantId, tenantId)
-                            .ge(EcSalesRevenue::getCreateTime, startDate.atStartOfDay())
-                            .le(EcSalesRevenue::getCreateTime, endDate.atTime(LocalTime.MAX))
-                            .last("LIMIT 5000"));
-        } catch (Exception e) {
-            log.warn("[现金流] 查询电商收入失败", e);
-        }
-
-        List<Payable> paidPayables = Collections.emptyList();
-        try {
-            paidPayables = payableService.list(
-                    new LambdaQueryWrapper<Payable>()
-                            .eq(Payable::getDeleteFlag, 0)
-                            .eq(Payable::getStatus, "PAID")
-                            .eq(Payable::getTenantId, tenantId)
-                            .ge(Payable::getUpdateTime, startDate.atStartOfDay())
-                            .le(Payable::getUpdateTime, endDate.atTime(LocalTime.MAX))
-                            .last("LIMIT 5000"));
-        } catch (Exception e) {
-            log.warn("[现金流] 查询已付应付失败", e);
-        }
-
-        LinkedHashMap<String, BigDecimal[]> dayBuckets = new LinkedHashMap<>();
+    private List<Map<String, Object>> buildCashFlowPoints(Map<LocalDate, Map<FactCategory, BigDecimal>> daily,
+                                                          LocalDate startDate, LocalDate endDate) {
+        List<Map<String, Object>> points = new ArrayList<>();
         LocalDate cursor = startDate;
         while (!cursor.isAfter(endDate)) {
-            dayBuckets.put(cursor.toString(), new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
-            cursor = cursor.plusDays(1);
-        }
-
-        for (ShipmentReconciliation s : shipments) {
-            if (s.getCreateTime() != null) {
-                String day = s.getCreateTime().toLocalDate().toString();
-                BigDecimal[] bucket = dayBuckets.get(day);
-                if (bucket != null && s.getFinalAmount() != null) {
-                    bucket[0] = bucket[0].add(s.getFinalAmount());
-                }
-            }
-        }
-        for (EcSalesRevenue e : ecSales) {
-            if (e.getCreateTime() != null) {
-                String day = e.getCreateTime().toLocalDate().toString();
-                BigDecimal[] bucket = dayBuckets.get(day);
-                if (bucket != null && e.getPayAmount() != null) {
-                    bucket[0] = bucket[0].add(e.getPayAmount());
-                }
-            }
-        }
-        for (Payable p : paidPayables) {
-            if (p.getUpdateTime() != null) {
-                String day = p.getUpdateTime().toLocalDate().toString();
-                BigDecimal[] bucket = dayBuckets.get(day);
-                if (bucket != null && p.getPaidAmount() != null) {
-                    bucket[1] = bucket[1].add(p.getPaidAmount());
-                }
-            }
-        }
-
-        List<Map<String, Object>> points = new ArrayList<>();
-        for (Map.Entry<String, BigDecimal[]> entry : dayBuckets.entrySet()) {
+            Map<FactCategory, BigDecimal> day = daily.getOrDefault(cursor, Collections.emptyMap());
             Map<String, Object> point = new LinkedHashMap<>();
-            point.put("date", entry.getKey().substring(5));
-            point.put("income", entry.getValue()[0]);
-            point.put("expense", entry.getValue()[1]);
+            point.put("date", cursor.toString().substring(5));
+            point.put("income", amountOf(day, FactCategory.SHIPMENT_REVENUE).add(amountOf(day, FactCategory.EC_REVENUE))
+                    .setScale(2, RoundingMode.HALF_UP));
+            point.put("expense", amountOf(day, FactCategory.PAYABLE_PAID).setScale(2, RoundingMode.HALF_UP));
             points.add(point);
+            cursor = cursor.plusDays(1);
         }
         return points;
     }
 
-    // ─── 汇总方法 ────────────────────────────────────────────────────────────
-
-    private BigDecimal sumShipmentRevenue(Long tenantId, LocalDateTime start, LocalDateTime end) {
-        List<ShipmentReconciliation> list = shipmentReconciliationService.list(
-                new LambdaQueryWrapper<ShipmentReconciliation>()
-                        .in(ShipmentReconciliation::getStatus, "verified", "paid")
-                        .eq(ShipmentReconciliation::getTenantId, tenantId)
-                        .ge(ShipmentReconciliation::getCreateTime, start)
-                        .le(ShipmentReconciliation::getCreateTime, end)
-                        .last("LIMIT 5000"));
-        return list.stream()
-                .map(s -> s.getFinalAmount() != null ? s.getFinalAmount() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private BigDecimal sumEcRevenue(Long tenantId, LocalDateTime start, LocalDateTime end) {
-        List<EcSalesRevenue> list = ecSalesRevenueService.list(
-                new LambdaQueryWrapper<EcSalesRevenue>()
-                        .eq(EcSalesRevenue::getStatus, "confirmed")
-                        .eq(EcSalesRevenue::getTenantId, tenantId)
-                        .ge(EcSalesRevenue::getCreateTime, start)
-                        .le(EcSalesRevenue::getCreateTime, end)
-                        .last("LIMIT 5000"));
-        return list.stream()
-                .map(e -> e.getPayAmount() != null ? e.getPayAmount() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private static BigDecimal amountOf(Map<FactCategory, BigDecimal> day, FactCategory category) {
+        BigDecimal v = day.get(category);
+        return v != null ? v : BigDecimal.ZERO;
     }
 
-    private BigDecimal sumMaterialCost(Long tenantId, LocalDateTime start, LocalDateTime end) {
-        List<MaterialReconciliation> list = materialReconciliationService.list(
-                new LambdaQueryWrapper<MaterialReconciliation>()
-                        .in(MaterialReconciliation::getStatus, "verified", "paid")
-                        .eq(MaterialReconciliation::getTenantId, tenantId)
-                        .ge(MaterialReconciliation::getCreateTime, start)
-                        .le(MaterialReconciliation::getCreateTime, end)
-                        .last("LIMIT 5000"));
-        return list.stream()
-                .map(m -> {
-                    BigDecimal finalAmt = m.getFinalAmount();
-                    if (finalAmt != null && finalAmt.compareTo(BigDecimal.ZERO) > 0) {
-                        return finalAmt;
-                    }
-                    return m.getTotalAmount() != null ? m.getTotalAmount() : BigDecimal.ZERO;
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private BigDecimal sumExpense(Long tenantId, LocalDateTime start, LocalDateTime end) {
-        List<ExpenseReimbursement> list = expenseReimbursementService.list(
-                new LambdaQueryWrapper<ExpenseReimbursement>()
-                        .eq(ExpenseReimbursement::getStatus, "approved")
-                        .eq(ExpenseReimbursement::getDeleteFlag, 0)
-                        .eq(ExpenseReimbursement::getTenantId, tenantId)
-                        .ge(ExpenseReimbursement::getCreateTime, start)
-                        .le(ExpenseReimbursement::getCreateTime, end)
-                        .last("LIMIT 5000"));
-        return list.stream()
-                .map(e -> e.getAmount() != null ? e.getAmount() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private BigDecimal sumIssuedTax(Long tenantId, LocalDateTime start, LocalDateTime end) {
-        List<Invoice> list = invoiceService.list(
-                new LambdaQueryWrapper<Invoice>()
-                        .eq(Invoice::getDeleteFlag, 0)
-                        .eq(Invoice::getStatus, "ISSUED")
-                        .eq(Invoice::getTenantId, tenantId)
-                        .ge(Invoice::getCreateTime, start)
-                        .le(Invoice::getCreateTime, end)
-                        .last("LIMIT 5000"));
-        return list.stream()
-                .map(i -> i.getTaxAmount() != null ? i.getTaxAmount() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private BigDecimal sumLaborCost(Long tenantId, LocalDateTime start, LocalDateTime end) {
-        LambdaQueryWrapper<ScanRecord> qw = new LambdaQueryWrapper<>();
-        qw.eq(ScanRecord::getScanResult, "success")
-          .gt(ScanRecord::getQuantity, 0)
-          .eq(ScanRecord::getTenantId, tenantId)
-          .isNull(ScanRecord::getFactoryId)
-          .ne(ScanRecord::getScanType, "orchestration")
-          .ge(ScanRecord::getScanTime, start)
-          .le(ScanRecord::getScanTime, end);
-        List<ScanRecord> records = scanRecordService.list(qw);
-        return records.stream()
-                .map(r -> {
-                    if (r.getTotalAmount() != null && r.getTotalAmount().compareTo(BigDecimal.ZERO) > 0) {
-                        return r.getTotalAmount();
-                    }
-                    if (r.getScanCost() != null && r.getScanCost().compareTo(BigDecimal.ZERO) > 0) {
-                        return r.getScanCost();
-                    }
-                    if (r.getUnitPrice() != null && r.getQuantity() != null) {
-                        return r.getUnitPrice().multiply(BigDecimal.valueOf(r.getQuantity()));
-                    }
-                    return BigDecimal.ZERO;
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .setScale(2, RoundingMode.HALF_UP);
+    private static BigDecimal sumColumn(Map<String, Object> row) {
+        Object v = row != null ? row.get("total") : null;
+        return v != null ? new BigDecimal(v.toString()).setScale(2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
     }
 
     @Autowired
-    private ReceivableService receivableService;
+    private AgingBalanceOrchestrator agingBalanceOrchestrator;
 
+    /**
+     * 账龄分析：读 t_aging_balance 往来单位汇总行求和（分档口径同原逐单计算，逾期 0 天计入 0-30 档）
+     */
     public Map<String, Object> generateAgingAnalysis(String type) {
         assertNotFactoryAccount();
         Long tenantId = TenantAssert.requireTenantId();
-        LocalDate today = LocalDate.now();
+        LedgerType ledgerType = "RECEIVABLE".equals(type) ? LedgerType.RECEIVABLE : LedgerType.PAYABLE;
+        AgingSummary summary = agingBalanceOrchestrator.getTenantAging(tenantId, ledgerType);
 
+        Map<String, Object> aging = summary.toMap();
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("reportType", "AGING_ANALYSIS");
         result.put("type", type);
-        result.put("asOfDate", today.toString());
-
-        int[][] bucketRanges = {{0, 30}, {31, 60}, {61, 90}, {91, 180}, {181, 99999}};
-        String[] bucketLabels = {"0-30天", "31-60天", "61-90天", "91-180天", "180天以上"};
-
-        List<Map<String, Object>> agingBuckets = new ArrayList<>();
-        BigDecimal totalAmount = BigDecimal.ZERO;
-
-        if ("RECEIVABLE".equals(type)) {
-            List<Receivable> receivables = receivableService.list(new LambdaQueryWrapper<Receivable>()
-                    .eq(Receivable::getDeleteFlag, 0)
-                    .ne(Receivable::getStatus, "PAID")
-                    .eq(Receivable::getTenantId, tenantId)
-                    .last("LIMIT 5000"));
-
-            for (int i = 0; i < bucketRanges.length; i++) {
-                BigDecimal bucketAmount = BigDecimal.ZERO;
-                int bucketCount = 0;
-                for (Receivable r : receivables) {
-                    if (r.getDueDate() == null) continue;
-                    long daysOverdue = java.time.temporal.ChronoUnit.DAYS.between(r.getDueDate(), today);
-                    if (daysOverdue < 0) continue;
-                    if (daysOverdue >= bucketRanges[i][0] && daysOverdue <= bucketRanges[i][1]) {
-                        BigDecimal remaining = (r.getAmount() != null ? r.getAmount() : BigDecimal.ZERO)
-                                .subtract(r.getReceivedAmount() != null ? r.getReceivedAmount() : BigDecimal.ZERO);
-                        bucketAmount = bucketAmount.add(remaining);
-                        bucketCount++;
-                    }
-                }
-                totalAmount = totalAmount.add(bucketAmount);
-                Map<String, Object> bucketMap = new LinkedHashMap<>();
-                bucketMap.put("range", bucketLabels[i]);
-                bucketMap.put("amount", bucketAmount);
-                bucketMap.put("count", bucketCount);
-                agingBuckets.add(bucketMap);
-            }
-        } else {
-            List<Payable> payables = payableService.list(new LambdaQueryWrapper<Payable>()
-                    .eq(Payable::getDeleteFlag, 0)
-                    .ne(Payable::getStatus, "PAID")
-                    .eq(Payable::getTenantId, tenantId)
-                    .last("LIMIT 5000"));
-
-            for (int i = 0; i < bucketRanges.length; i++) {
-                BigDecimal bucketAmount = BigDecimal.ZERO;
-                int bucketCount = 0;
-                for (Payable p : payables) {
-                    if (p.getDueDate() == null) continue;
-                    long daysOverdue = java.time.temporal.ChronoUnit.DAYS.between(p.getDueDate(), today);
-                    if (daysOverdue < 0) continue;
-                    if (daysOverdue >= bucketRanges[i][0] && daysOverdue <= bucketRanges[i][1]) {
-                        BigDecimal remaining = (p.getAmount() != null ? p.getAmount() : BigDecimal.ZERO)
-                                .subtract(p.getPaidAmount() != null ? p.getPaidAmount() : BigDecimal.ZERO);
-                        bucketAmount = bucketAmount.add(remaining);
-                        bucketCount++;
-                    }
-                }
-                totalAmount = totalAmount.add(bucketAmount);
-                Map<String, Object> bucketMap = new LinkedHashMap<>();
-                bucketMap.put("range", bucketLabels[i]);
-                bucketMap.put("amount", bucketAmount);
-                bucketMap.put("count", bucketCount);
-                agingBuckets.add(bucketMap);
-            }
-        }
-
-        result.put("buckets", agingBuckets);
-        result.put("totalAmount", totalAmount);
+        result.put("asOfDate", aging.get("asOfDate"));
+        result.put("buckets", aging.get("buckets"));
+        result.put("totalAmount", summary.overdueAmount());
+        result.put("notDueAmount", summary.notDueAmount());
+        result.put("openAmount", summary.openAmount());
+        result.put("openCount", summary.openCount());
         return result;
     }
 }
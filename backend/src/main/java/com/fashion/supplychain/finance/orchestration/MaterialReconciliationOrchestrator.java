@@ -10,7 +10,6 @@ import com.fashion.supplychain.production.entity.MaterialPurchase;
 import com.fashion.supplychain.production.entity.ProductionOrder;
 import com.fashion.supplychain.production.service.MaterialPurchaseService;
 import com.fashion.supplychain.production.service.ProductionOrderService;
-import com.fashion.supplychain.common.lock.DistributedLockService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
@@ -44,7 +43,7 @@ public class MaterialReconciliationOrchestrator {
     private ProductionOrderService productionOrderService;
 
     @Autowired
-    private DistributedLockService distributedLockService;
+    private ReconciliationNoGenerator reconciliationNoGenerator;
 
     @Autowired
     private MaterialReconciliationLogAppendHelper logAppendHelper;
@@ -666,7 +665,7 @@ public class MaterialReconciliationOrchestrator {
     private MaterialReconciliation buildNewReconciliation(MaterialPurchase purchase, int qty,
             BigDecimal unitPrice, BigDecimal totalAmount, LocalDateTime t, String uid) {
         MaterialReconciliation mr = new MaterialReconciliation();
-        mr.setReconciliationNo(buildFinanceNo("MR", t));
+        mr.setReconciliationNo(reconciliationNoGenerator.nextMaterialNo());
         mr.setSupplierId(resolveNotBlank(purchase.getSupplierId(), "UNKNOWN_SUPPLIER"));
         mr.setSupplierName(resolveNotBlank(purchase.getSupplierName(), "未填写供应商"));
         String materialId = materialPurchaseService.resolveMaterialId(purchase);
@@ -726,34 +725,4 @@ public class MaterialReconciliationOrchestrator {
         return fallback;
     }
 
-    private String buildFinanceNo(String prefix, LocalDateTime now) {
-        String p = StringUtils.hasText(prefix) ? prefix.trim() : "NO";
-        return distributedLockService.executeWithStrictLock(
-                p + ":generateNo", 5, java.util.concurrent.TimeUnit.SECONDS,
-                () -> doBuildFinanceNo(p));
-    }
-
-    private String doBuildFinanceNo(String prefix) {
-        String monthPrefix = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMM"));
-        String fullPrefix = prefix + monthPrefix;
-
-        MaterialReconciliation last = materialReconciliationService.lambdaQuery()
-                .likeRight(MaterialReconciliation::getReconciliationNo, fullPrefix)
-                .orderByDesc(MaterialReconciliation::getReconciliationNo)
-                .last("LIMIT 1")
-                .one();
-
-        int sequence = 1;
-        if (last != null && last.getReconciliationNo() != null) {
-            String lastNo = last.getReconciliationNo();
-            try {
-                String lastSequence = lastNo.substring(lastNo.length() - 4);
-                sequence = Integer.parseInt(lastSequence) + 1;
-            } catch (NumberFormatException e) {
-                log.warn("解析对账单号序号失败: {}", lastNo, e);
-            }
-        }
-
-        return String.format("%s%04d", fullPrefix, sequence);
-    }
 }
@@ -2,7 +2,6 @@ package com.fashion.supplychain.finance.orchestration;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.fashion.supplychain.common.UserContext;
-import com.fashion.supplychain.common.lock.DistributedLockService;
 import com.fashion.supplychain.common.tenant.TenantAssert;
 import com.fashion.supplychain.finance.entity.MaterialReconciliation;
 import com.fashion.supplychain.finance.service.MaterialReconciliationService;
@@ -19,7 +18,6 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 物料对账同步编排器
@@ -41,7 +39,7 @@ public class MaterialReconciliationSyncOrchestrator {
     private MaterialPurchaseService materialPurchaseService;
 
     @Autowired
-    private DistributedLockService distributedLockService;
+    private ReconciliationNoGenerator reconciliationNoGenerator;
 
     /**
      * 从入库记录同步到物料对账
@@ -291,36 +289,6 @@ public class MaterialReconciliationSyncOrchestrator {
      * 格式：MR+YYYYMM+4位序号（如：MR2026010001）
      */
     private String generateReconciliationNo() {
-        return distributedLockService.executeWithStrictLock(
-                "materialReconciliation:generateNo", 5, TimeUnit.SECONDS,
-                this::doGenerateReconciliationNo);
-    }
-
-    private String doGenerateReconciliationNo() {
-        Long tenantId = UserContext.tenantId();
-        String monthPrefix = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMM"));
-        String prefix = "MR" + monthPrefix;
-
-        // 查询当月最大序号
-        LambdaQueryWrapper<MaterialReconciliation> wrapper = new LambdaQueryWrapper<>();
-        wrapper.likeRight(MaterialReconciliation::getReconciliationNo, prefix)
-               .eq(MaterialReconciliation::getTenantId, tenantId)
-               .orderByDesc(MaterialReconciliation::getReconciliationNo)
-               .last("LIMIT 1");
-
-        MaterialReconciliation last = materialReconciliationService.getOne(wrapper);
-
-        int sequence = 1;
-        if (last != null && last.getReconciliationNo() != null) {
-            String lastNo = last.getReconciliationNo();
-            String lastSequence = lastNo.substring(lastNo.length() - 4);
-            try {
-                sequence = Integer.parseInt(lastSequence) + 1;
-            } catch (NumberFormatException e) {
-                log.warn("解析对账单号序号失败: {}", lastNo, e);
-            }
-        }
-
-        return String.format("%s%04d", prefix, sequence);
+        return reconciliationNoGenerator.nextMaterialNo();
     }
 }
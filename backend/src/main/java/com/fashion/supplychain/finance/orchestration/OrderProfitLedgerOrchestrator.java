@@ -0,0 +1,330 @@
+package com.fashion.supplychain.finance.orchestration;
+
+import com.fashion.supplychain.production.util.OrderPricingSnapshotUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 订单利润台账（t_order_profit_ledger）。
+ *
+ * 原状：利润只能逐单计算，每单读全部入库/采购/出货对账实体 + 款式 BOM/工序，跨订单列表无从谈起。
+ *
+ * 现流程：
+ * 1. 每个订单一行：入库合格数、出货对账金额（已付/全部）、采购计划/到货成本与数量、下单锁定价、款式 ID，
+ *    口径与 OrderProfitOrchestrator 单单计算一致，聚合全部在 DB 内 GROUP BY 完成；
+ * 2. 增量刷新：按订单/入库/出货对账/采购四张源表的 update_time 水位找出变化的订单，按批重算；
+ *    水位在本实例内存，首轮（含重启后）全量重建；
+ * 3. 每晚全量重建兜底（物理删除、绕过 update_time 的写入），订单已删除的台账行停用；
+ * 4. 读取：{@link #listPage} 台账 JOIN 订单分页，款式成本由调用方按页批量取 {@link StyleCostSnapshotOrchestrator} 快照。
+ *
+ * 写入侧由 OrderProfitLedgerJob 在持锁实例上驱动。SQL 走 JdbcTemplate（不经租户拦截器），租户条件显式拼接。
+ */
+@Slf4j
+@Service
+public class OrderProfitLedgerOrchestrator {
+
+    private static final int PAGE_SIZE = 500;
+
+    /** 水位回看：覆盖 update_time 早于提交时刻的长事务 */
+    private static final long OVERLAP_MINUTES = 2;
+
+    /** 以 order_id 关联订单、带 update_time 的源表 */
+    private static final List<String> SOURCE_TABLES = List.of(
+            "t_product_warehousing", "t_shipment_reconciliation", "t_material_purchase");
+
+    private static final String ORDER_COLUMNS = "id, tenant_id, style_id, style_no, order_quantity, "
+            + "factory_unit_price, order_details, delete_flag";
+
+    /** 口径同 OrderProfitOrchestrator 入库数：合格数 > 0 才计 */
+    private static final String WAREHOUSING_SQL = "SELECT tenant_id, order_id, "
+            + "SUM(GREATEST(COALESCE(qualified_quantity, 0), 0)) FROM t_product_warehousing "
+            + "WHERE delete_flag = 0 AND order_id IN (%s) GROUP BY tenant_id, order_id";
+
+    /** 金额优先取 final_amount，负数按 0；已付 = status 为 paid */
+    private static final String SHIPMENT_SQL = "SELECT tenant_id, order_id, "
+            + "SUM(CASE WHEN LOWER(TRIM(status)) = 'paid' THEN GREATEST(COALESCE(final_amount, total_amount, 0), 0) ELSE 0 END), "
+            + "SUM(GREATEST(COALESCE(final_amount, total_amount, 0), 0)) FROM t_shipment_reconciliation "
+            + "WHERE order_id IN (%s) GROUP BY tenant_id, order_id";
+
+    /**
+     * 口径同 MaterialPurchaseService.computeArrivalStats：
+     * 跳过已取消和采购量取整 ≤ 0 的行；有效到货 = min(max(到货, 已领用, 0), 采购量)；
+     * 计划金额 = 单价 × 采购量；到货金额 = 单价 × 有效到货，无单价时取 total_amount
+     */
+    private static final String MATERIAL_SQL = "SELECT tenant_id, order_id, "
+            + "SUM(pq), SUM(LEAST(GREATEST(aq, 0), pq)), SUM(LEAST(GREATEST(aq, uq, 0), pq)), "
+            + "SUM(CASE WHEN unit_price IS NOT NULL THEN unit_price * pq ELSE 0 END), "
+            + "SUM(CASE WHEN unit_price IS NOT NULL THEN unit_price * LEAST(GREATEST(aq, uq, 0), pq) "
+            + "ELSE COALESCE(total_amount, 0) END) "
+            + "FROM (SELECT tenant_id, order_id, unit_price, total_amount, TRUNCATE(purchase_quantity, 0) AS pq, "
+            + "COALESCE(arrived_quantity, 0) AS aq, TRUNCATE(COALESCE(used_quantity, 0), 0) AS uq "
+            + "FROM t_material_purchase WHERE delete_flag = 0 AND order_id IN (%s) "
+            + "AND LOWER(TRIM(COALESCE(status, ''))) <> 'cancelled') p "
+            + "WHERE pq > 0 GROUP BY tenant_id, order_id";
+
+    private static final String UPSERT_SQL = "INSERT INTO t_order_profit_ledger (tenant_id, order_id, style_id, "
+            + "order_qty, warehousing_qty, locked_unit_price, material_planned_qty, material_arrived_qty, "
+            + "material_effective_qty, material_planned_cost, material_arrived_cost, shipment_paid_amount, "
+            + "shipment_total_amount, active, update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, NOW()) "
+            + "ON DUPLICATE KEY UPDATE style_id = VALUES(style_id), order_qty = VALUES(order_qty), "
+            + "warehousing_qty = VALUES(warehousing_qty), locked_unit_price = VALUES(locked_unit_price), "
+            + "material_planned_qty = VALUES(material_planned_qty), material_arrived_qty = VALUES(material_arrived_qty), "
+            + "material_effective_qty = VALUES(material_effective_qty), "
+            + "material_planned_cost = VALUES(material_planned_cost), material_arrived_cost = VALUES(material_arrived_cost), "
+            + "shipment_paid_amount = VALUES(shipment_paid_amount), shipment_total_amount = VALUES(shipment_total_amount), "
+            + "active = VALUES(active), update_time = NOW()";
+
+    private static final String ENTRY_COLUMNS = "l.order_id, l.style_id, l.order_qty, l.warehousing_qty, "
+            + "l.locked_unit_price, l.material_planned_qty, l.material_arrived_qty, l.material_effective_qty, "
+            + "l.material_planned_cost, l.material_arrived_cost, l.shipment_paid_amount, l.shipment_total_amount, "
+            + "l.update_time, o.order_no, o.style_no, o.style_name, o.factory_name, o.status, o.create_time";
+
+    private static final RowMapper<OrderRow> ORDER_MAPPER = (rs, i) -> new OrderRow(
+            rs.getString("id"), rs.getLong("tenant_id"), rs.getString("style_id"), rs.getString("style_no"),
+            rs.getInt("order_quantity"), rs.getBigDecimal("factory_unit_price"), rs.getString("order_details"),
+            rs.getInt("delete_flag"));
+
+    private static final RowMapper<LedgerEntry> ENTRY_MAPPER = (rs, i) -> {
+        long styleId = rs.getLong("style_id");
+        return new LedgerEntry(rs.getString("order_id"), rs.wasNull() ? null : styleId,
+                rs.getString("order_no"), rs.getString("style_no"), rs.getString("style_name"),
+                rs.getString("factory_name"), rs.getString("status"), toLocal(rs.getTimestamp("create_time")),
+                rs.getInt("order_qty"), rs.getInt("warehousing_qty"), rs.getBigDecimal("locked_unit_price"),
+                rs.getInt("material_planned_qty"), rs.getInt("material_arrived_qty"),
+                rs.getInt("material_effective_qty"), rs.getBigDecimal("material_planned_cost"),
+                rs.getBigDecimal("material_arrived_cost"), rs.getBigDecimal("shipment_paid_amount"),
+                rs.getBigDecimal("shipment_total_amount"), toLocal(rs.getTimestamp("update_time")));
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** 写入侧水位（本实例内存；重启后首轮全量重建） */
+    private volatile LocalDateTime watermark;
+
+    /**
+     * 台账行 + 订单展示字段
+     */
+    public record LedgerEntry(String orderId, Long styleId, String orderNo, String styleNo, String styleName,
+                              String factoryName, String status, LocalDateTime createTime,
+                              int orderQty, int warehousingQty, BigDecimal lockedUnitPrice,
+                              int materialPlannedQty, int materialArrivedQty, int materialEffectiveQty,
+                              BigDecimal materialPlannedCost, BigDecimal materialArrivedCost,
+                              BigDecimal shipmentPaidAmount, BigDecimal shipmentTotalAmount,
+                              LocalDateTime updateTime) { }
+
+    private record OrderRow(String id, Long tenantId, String styleId, String styleNo, int orderQty,
+                            BigDecimal factoryUnitPrice, String orderDetails, int deleteFlag) { }
+
+    // ─── 读取 ────────────────────────────────────────────────────────────────
+
+    /**
+     * 当前租户有效订单的台账分页（按下单时间倒序），keyword 匹配订单号/款号
+     */
+    public List<LedgerEntry> listPage(Long tenantId, String keyword, long offset, int limit) {
+        List<Object> args = new ArrayList<>();
+        String where = pageCondition(tenantId, keyword, args);
+        args.add(offset);
+        args.add(limit);
+        return jdbcTemplate.query("SELECT " + ENTRY_COLUMNS + " FROM t_order_profit_ledger l "
+                + "JOIN t_production_order o ON o.id = l.order_id AND o.tenant_id = l.tenant_id " + where
+                + " ORDER BY o.create_time DESC, l.order_id LIMIT ?, ?", ENTRY_MAPPER, args.toArray());
+    }
+
+    public long count(Long tenantId, String keyword) {
+        List<Object> args = new ArrayList<>();
+        String where = pageCondition(tenantId, keyword, args);
+        Long n = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_order_profit_ledger l "
+                + "JOIN t_production_order o ON o.id = l.order_id AND o.tenant_id = l.tenant_id " + where,
+                Long.class, args.toArray());
+        return n == null ? 0 : n;
+    }
+
+    private static String pageCondition(Long tenantId, String keyword, List<Object> args) {
+        StringBuilder where = new StringBuilder("WHERE l.tenant_id = ? AND l.active = 1 AND o.delete_flag = 0");
+        args.add(tenantId);
+        if (StringUtils.hasText(keyword)) {
+            where.append(" AND (o.order_no LIKE ? OR o.style_no LIKE ?)");
+            String like = "%" + keyword.trim() + "%";
+            args.add(like);
+            args.add(like);
+        }
+        return where.toString();
+    }
+
+    // ─── 维护 ────────────────────────────────────────────────────────────────
+
+    /**
+     * 按四张源表的 update_time 水位重算变化的订单；首轮（含重启后）全量
+     */
+    public void refreshChanged() {
+        LocalDateTime upper = jdbcTemplate.queryForObject("SELECT NOW()", LocalDateTime.class);
+        LocalDateTime since = watermark;
+        int n;
+        if (since == null) {
+            n = rebuildAll();
+        } else {
+            LocalDateTime from = since.minusMinutes(OVERLAP_MINUTES);
+            Set<String> orderIds = new LinkedHashSet<>(jdbcTemplate.queryForList(
+                    "SELECT id FROM t_production_order WHERE update_time > ? AND update_time <= ?",
+                    String.class, from, upper));
+            for (String table : SOURCE_TABLES) {
+                orderIds.addAll(jdbcTemplate.queryForList("SELECT DISTINCT order_id FROM " + table
+                        + " WHERE update_time > ? AND update_time <= ? AND order_id IS NOT NULL",
+                        String.class, from, upper));
+            }
+            n = recompute(orderIds);
+        }
+        watermark = upper;
+        if (n > 0) {
+            log.debug("[ProfitLedger] 重算订单 {} 个", n);
+        }
+    }
+
+    /**
+     * 全量重建（按订单 id 分页），并停用订单已物理删除的台账行
+     */
+    public int rebuildAll() {
+        int total = 0;
+        String lastId = "";
+        while (true) {
+            List<OrderRow> page = jdbcTemplate.query("SELECT " + ORDER_COLUMNS
+                    + " FROM t_production_order WHERE id > ? AND tenant_id IS NOT NULL ORDER BY id LIMIT " + PAGE_SIZE,
+                    ORDER_MAPPER, lastId);
+            if (page.isEmpty()) {
+                break;
+            }
+            upsert(page);
+            total += page.size();
+            lastId = page.get(page.size() - 1).id();
+        }
+        jdbcTemplate.update("UPDATE t_order_profit_ledger l LEFT JOIN t_production_order o ON o.id = l.order_id "
+                + "SET l.active = 0, l.update_time = NOW() WHERE l.active = 1 AND o.id IS NULL");
+        log.info("[ProfitLedger] 全量重建完成: {} 个订单", total);
+        return total;
+    }
+
+    /**
+     * 重算指定订单（不存在的 id 忽略）
+     */
+    public int recompute(Collection<String> orderIds) {
+        List<String> ids = new ArrayList<>(orderIds);
+        int n = 0;
+        for (int i = 0; i < ids.size(); i += PAGE_SIZE) {
+            List<String> chunk = ids.subList(i, Math.min(ids.size(), i + PAGE_SIZE));
+            List<OrderRow> orders = jdbcTemplate.query("SELECT " + ORDER_COLUMNS + " FROM t_production_order WHERE id IN ("
+                    + placeholders(chunk.size()) + ") AND tenant_id IS NOT NULL", ORDER_MAPPER, chunk.toArray());
+            upsert(orders);
+            n += orders.size();
+        }
+        return n;
+    }
+
+    private void upsert(List<OrderRow> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Object[] ids = orders.stream().map(OrderRow::id).toArray();
+        String in = placeholders(ids.length);
+
+        Map<String, Integer> warehousing = new HashMap<>();
+        jdbcTemplate.query(String.format(WAREHOUSING_SQL, in), rs -> {
+            warehousing.put(key(rs.getLong(1), rs.getString(2)), (int) Math.min(Integer.MAX_VALUE, rs.getLong(3)));
+        }, ids);
+
+        Map<String, BigDecimal[]> shipment = new HashMap<>();
+        jdbcTemplate.query(String.format(SHIPMENT_SQL, in), rs -> {
+            shipment.put(key(rs.getLong(1), rs.getString(2)),
+                    new BigDecimal[]{nz(rs.getBigDecimal(3)), nz(rs.getBigDecimal(4))});
+        }, ids);
+
+        Map<String, Object[]> material = new HashMap<>();
+        jdbcTemplate.query(String.format(MATERIAL_SQL, in), rs -> {
+            material.put(key(rs.getLong(1), rs.getString(2)), new Object[]{
+                    rs.getInt(3), rs.getInt(4), rs.getInt(5), nz(rs.getBigDecimal(6)), nz(rs.getBigDecimal(7))});
+        }, ids);
+
+        Map<String, Long> styleIdsByNo = resolveStyleIdsByNo(orders);
+
+        List<Object[]> args = new ArrayList<>(orders.size());
+        for (OrderRow o : orders) {
+            String k = key(o.tenantId(), o.id());
+            BigDecimal[] ship = shipment.getOrDefault(k, new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            Object[] mat = material.getOrDefault(k, new Object[]{0, 0, 0, BigDecimal.ZERO, BigDecimal.ZERO});
+            BigDecimal locked = OrderPricingSnapshotUtils.resolveLockedOrderUnitPrice(
+                    o.factoryUnitPrice(), o.orderDetails());
+            Long styleId = numericStyleId(o.styleId());
+            if (styleId == null && StringUtils.hasText(o.styleNo())) {
+                styleId = styleIdsByNo.get(key(o.tenantId(), o.styleNo().trim()));
+            }
+            args.add(new Object[]{o.tenantId(), o.id(), styleId, Math.max(0, o.orderQty()),
+                    warehousing.getOrDefault(k, 0), locked == null ? BigDecimal.ZERO : locked,
+                    mat[0], mat[1], mat[2], mat[3], mat[4], ship[0], ship[1], o.deleteFlag() == 0 ? 1 : 0});
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+    }
+
+    /** 款式 ID 非数字的订单按 (租户, 款号) 反查款式 */
+    private Map<String, Long> resolveStyleIdsByNo(List<OrderRow> orders) {
+        Set<String> styleNos = new LinkedHashSet<>();
+        for (OrderRow o : orders) {
+            if (numericStyleId(o.styleId()) == null && StringUtils.hasText(o.styleNo())) {
+                styleNos.add(o.styleNo().trim());
+            }
+        }
+        Map<String, Long> result = new HashMap<>();
+        if (styleNos.isEmpty()) {
+            return result;
+        }
+        jdbcTemplate.query("SELECT tenant_id, style_no, MIN(id) FROM t_style_info WHERE style_no IN ("
+                + placeholders(styleNos.size()) + ") GROUP BY tenant_id, style_no", rs -> {
+            result.put(key(rs.getLong(1), rs.getString(2)), rs.getLong(3));
+        }, styleNos.toArray());
+        return result;
+    }
+
+    private static Long numericStyleId(String styleId) {
+        String s = styleId == null ? null : styleId.trim();
+        if (s == null || s.isEmpty() || s.length() > 18) {
+            return null;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return null;
+            }
+        }
+        return Long.parseLong(s);
+    }
+
+    private static String key(Long tenantId, String id) {
+        return tenantId + ":" + id;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+
+    private static BigDecimal nz(BigDecimal v) {
+        return v == null ? BigDecimal.ZERO : v;
+    }
+
+    private static LocalDateTime toLocal(Timestamp ts) {
+        return ts == null ? null : ts.toLocalDateTime();
+    }
+}
@@ -1,9 +1,12 @@
 package com.fashion.supplychain.finance.orchestration;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.common.tenant.TenantAssert;
 import com.fashion.supplychain.finance.entity.ShipmentReconciliation;
+import com.fashion.supplychain.finance.orchestration.OrderProfitLedgerOrchestrator.LedgerEntry;
+import com.fashion.supplychain.finance.orchestration.StyleCostSnapshotOrchestrator.StyleCost;
 import com.fashion.supplychain.finance.service.ShipmentReconciliationService;
 import com.fashion.supplychain.production.entity.MaterialPurchase;
 import com.fashion.supplychain.production.entity.ProductWarehousing;
@@ -12,15 +15,9 @@ import com.fashion.supplychain.production.util.OrderPricingSnapshotUtils;
 import com.fashion.supplychain.production.service.MaterialPurchaseService;
 import com.fashion.supplychain.production.service.ProductWarehousingService;
 import com.fashion.supplychain.production.service.ProductionOrderService;
-import com.fashion.supplychain.style.entity.SecondaryProcess;
-import com.fashion.supplychain.style.entity.StyleBom;
 import com.fashion.supplychain.style.entity.StyleInfo;
-import com.fashion.supplychain.style.entity.StyleProcess;
 import com.fashion.supplychain.style.entity.StyleQuotation;
-import com.fashion.supplychain.style.service.SecondaryProcessService;
-import com.fashion.supplychain.style.service.StyleBomService;
 import com.fashion.supplychain.style.service.StyleInfoService;
-import com.fashion.supplychain.style.service.StyleProcessService;
 import com.fashion.supplychain.style.service.StyleQuotationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -32,10 +29,13 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 /**
@@ -43,6 +43,10 @@ import java.util.TreeMap;
  * <p>
  * 编排跨服务调用：生产订单、物料采购、成品入库、出货对账、款式报价、模板工价
  * 从 ReconciliationCompatController.orderProfit 方法提取
+ * <p>
+ * 款式标准成本读 {@link StyleCostSnapshotOrchestrator} 快照（BOM/工序变更后失效重算），不再每单读 BOM/工序明细；
+ * 跨订单利润列表 {@link #listOrderProfits} 读 {@link OrderProfitLedgerOrchestrator} 台账分页，
+ * 每页只批量取一次款式成本，单单计算与列表共用 {@link #computeCostAndProfit} 口径。
  */
 @Slf4j
 @Service
@@ -61,12 +65,9 @@ public class OrderProfitOrchestrator {
 
     private final StyleQuotationService styleQuotationService;
 
+    private final StyleCostSnapshotOrchestrator styleCostSnapshotOrchestrator;
 
-    private final StyleBomService styleBomService;
-
-    private final StyleProcessService styleProcessService;
-
-    private final SecondaryProcessService secondaryProcessService;
+    private final OrderProfitLedgerOrchestrator orderProfitLedgerOrchestrator;
 
     /**
      * 计算订单利润分析数据
@@ -131,93 +132,57 @@ public class OrderProfitOrchestrator {
         BigDecimal shipmentRevenue = shipmentAmounts[0];
         BigDecimal shipmentRevenueTotal = shipmentAmounts[1];
 
-        // 7. 下游统一使用下单锁定价
+        // 7. 下游统一使用下单锁定价；款式标准成本读快照
         Long styleId = resolveStyleId(order);
-        StyleQuotation styleQuotation = styleId != null ? styleQuotationService.getByStyleId(styleId) : null;
-        BigDecimal quotationUnitCost = BigDecimal.ZERO;
         BigDecimal lockedOrderUnitPrice = OrderPricingSnapshotUtils.resolveLockedOrderUnitPrice(
                 order == null ? null : order.getFactoryUnitPrice(),
                 order == null ? null : order.getOrderDetails());
+        StyleCost styleCost = styleId == null ? null : styleCostSnapshotOrchestrator.getStyleCost(tenantId, styleId);
+        BigDecimal quotationUnitCost = resolveQuotationUnitCost(styleId, styleCost, null);
 
-        if (styleId != null) {
-            BigDecimal freshCost = computeLiveFreshCost(styleId);
-            if (freshCost.compareTo(BigDecimal.ZERO) > 0) {
-                quotationUnitCost = freshCost;
-            } else if (styleQuotation != null) {
-                if (styleQuotation.getTotalCost() != null) {
-                    quotationUnitCost = nonNeg(styleQuotation.getTotalCost());
-                }
-            }
-        }
-
-        // 8. 加工成本 / 收入口径统一走下单锁定价
+        // 8-9. 加工成本 / 收入口径统一走下单锁定价
+        CostProfitResult r = computeCostAndProfit(orderQty, warehousingQty,
+                materialPlannedCost, materialArrivedCost, lockedOrderUnitPrice, quotationUnitCost);
         boolean hasLockedOrderPrice = lockedOrderUnitPrice.compareTo(BigDecimal.ZERO) > 0;
         boolean hasWarehousing = warehousingQty > 0;
-        String calcBasis = hasWarehousing ? "warehousing" : "order";
-        int baseQty = hasWarehousing ? warehousingQty : Math.max(0, orderQty);
-
-        BigDecimal processingUnitPrice = resolveProcessingUnitPrice(order);
-        BigDecimal processingCost = nonNeg(processingUnitPrice).multiply(BigDecimal.valueOf(Math.max(0, baseQty)));
-        BigDecimal processingCostPaid = BigDecimal.ZERO;
-
-        // 9. 收入与利润计算
-        BigDecimal warehousingRevenue = hasLockedOrderPrice
-                ? lockedOrderUnitPrice.multiply(BigDecimal.valueOf(Math.max(0, warehousingQty)))
-                : BigDecimal.ZERO;
-        BigDecimal revenue = (hasLockedOrderPrice && baseQty > 0)
-                ? lockedOrderUnitPrice.multiply(BigDecimal.valueOf(baseQty))
-                : BigDecimal.ZERO;
-
-        BigDecimal profit = revenue.subtract(materialPlannedCost).subtract(processingCost);
-        BigDecimal unitRevenue = safeDivide(revenue, baseQty);
-        BigDecimal actualUnitCost = safeDivide(materialPlannedCost.add(processingCost), baseQty);
-        BigDecimal unitProfit = safeDivide(profit, baseQty);
-        BigDecimal marginPercent = BigDecimal.ZERO;
-        if (revenue.compareTo(BigDecimal.ZERO) > 0) {
-            marginPercent = profit.multiply(BigDecimal.valueOf(100)).divide(revenue, 2, RoundingMode.HALF_UP);
-        }
-
-        BigDecimal quotationTotalCost = quotationUnitCost.multiply(BigDecimal.valueOf(Math.max(0, baseQty)));
-        BigDecimal quotationTotalPrice = lockedOrderUnitPrice.multiply(BigDecimal.valueOf(Math.max(0, baseQty)));
-        BigDecimal unitCost = quotationUnitCost.compareTo(BigDecimal.ZERO) > 0 ? quotationUnitCost : actualUnitCost;
-        BigDecimal incurredCost = materialArrivedCost.add(processingCostPaid);
 
         // 10. 时间轴
         List<Map<String, Object>> timeline = buildTimeline(
                 purchases, warehousings, order,
-                processingCost, lockedOrderUnitPrice,
+                r.processingCost, lockedOrderUnitPrice,
                 hasWarehousing, hasLockedOrderPrice, orderQty);
 
         // 11. 组装返回数据
         Map<String, Object> orderInfo = buildOrderInfo(order, orderQty, warehousingQty);
 
         Map<String, Object> summary = new LinkedHashMap<>();
-        summary.put("revenue", scale2(revenue));
-        summary.put("warehousingRevenue", scale2(warehousingRevenue));
+        summary.put("revenue", scale2(r.revenue));
+        summary.put("warehousingRevenue", scale2(r.warehousingRevenue));
         summary.put("shipmentRevenue", scale2(shipmentRevenue));
         summary.put("profitReady", hasWarehousing);
-        summary.put("calcBasis", calcBasis);
-        summary.put("calcQty", baseQty);
+        summary.put("calcBasis", r.calcBasis);
+        summary.put("calcQty", r.baseQty);
         summary.put("materialPlannedQty", materialStats == null ? 0 : materialStats.getPlannedQty());
         summary.put("materialArrivedQty", materialStats == null ? 0 : materialStats.getArrivedQty());
         summary.put("materialEffectiveArrivedQty", materialStats == null ? 0 : materialStats.getEffectiveArrivedQty());
         summary.put("materialArrivalRate", materialStats == null ? 0 : materialStats.getArrivalRate());
         summary.put("materialPlannedCost", scale2(materialPlannedCost));
         summary.put("materialArrivedCost", scale2(materialArrivedCost));
-        summary.put("processingCost", scale2(processingCost));
-        summary.put("processingCostPaid", scale2(processingCostPaid));
+        summary.put("processingCost", scale2(r.processingCost));
+        summary.put("processingCostPaid", scale2(r.processingCostPaid));
         summary.put("shipmentRevenueTotal", scale2(shipmentRevenueTotal));
-        summary.put("incurredCost", scale2(incurredCost));
-        summary.put("profit", scale2(profit));
-        summary.put("unitRevenue", scale2(unitRevenue));
-        summary.put("unitCost", scale2(unitCost));
-        summary.put("actualUnitCost", scale2(actualUnitCost));
-        summary.put("unitProfit", scale2(unitProfit));
-        summary.put("marginPercent", marginPercent);
-        summary.put("quotationUnitCost", scale2(quotationUnitCost));
-        summary.put("quotationTotalCost", scale2(quotationTotalCost));
+        summary.put("incurredCost", scale2(r.incurredCost));
+        summary.put("profit", scale2(r.profit));
+        summary.put("unitRevenue", scale2(r.unitRevenue));
+        summary.put("unitCost", scale2(r.unitCost));
+        summary.put("actualUnitCost", scale2(r.actualUnitCost));
+        summary.put("unitProfit", scale2(r.unitProfit));
+        summary.put("marginPercent", r.marginPercent);
+        summary.put("quotationUnitCost", scale2(r.quotationUnitCost));
+        summary.put("quotationTotalCost", scale2(r.quotationTotalCost));
         summary.put("quotationUnitPrice", scale2(lockedOrderUnitPrice));
-        summary.put("quotationTotalPrice", scale2(quotationTotalPrice));
+        summary.put("quotationTotalPrice", scale2(r.quotationTotalPrice));
+        summary.put("styleCostVersion", styleCost == null ? null : styleCost.version());
 
         Map<String, Object> data = new HashMap<>();
         data.put("order", orderInfo);
@@ -230,6 +195,103 @@ public class OrderProfitOrchestrator {
         return data;
     }
 
+    /**
+     * 跨订单利润列表（分页）：台账 JOIN 订单 + 每页一次款式成本快照批量读取，不再逐单读明细
+     *
+     * @param keyword 订单号/款号模糊匹配（可选）
+     * @return 分页结果；台账由定时任务增量维护，新单/新单据约 1 分钟后体现
+     */
+    public Page<Map<String, Object>> listOrderProfits(long page, long pageSize, String keyword) {
+        TenantAssert.assertTenantContext();
+        Long tenantId = UserContext.tenantId();
+        long current = Math.max(1, page);
+        int size = (int) Math.min(200, Math.max(1, pageSize));
+
+        Page<Map<String, Object>> result = new Page<>(current, size);
+        long total = orderProfitLedgerOrchestrator.count(tenantId, keyword);
+        result.setTotal(total);
+        if (total == 0 || (current - 1) * size >= total) {
+            result.setRecords(new ArrayList<>());
+            return result;
+        }
+
+        List<LedgerEntry> entries = orderProfitLedgerOrchestrator.listPage(tenantId, keyword, (current - 1) * size, size);
+        Set<Long> styleIds = new LinkedHashSet<>();
+        for (LedgerEntry e : entries) {
+            if (e.styleId() != null) {
+                styleIds.add(e.styleId());
+            }
+        }
+        Map<Long, StyleCost> styleCosts = styleCostSnapshotOrchestrator.getStyleCosts(tenantId, styleIds);
+        Map<Long, StyleQuotation> quotations = loadQuotationsWithoutCost(styleIds, styleCosts);
+
+        List<Map<String, Object>> records = new ArrayList<>(entries.size());
+        for (LedgerEntry e : entries) {
+            StyleCost styleCost = e.styleId() == null ? null : styleCosts.get(e.styleId());
+            BigDecimal quotationUnitCost = resolveQuotationUnitCost(e.styleId(), styleCost, quotations);
+            CostProfitResult r = computeCostAndProfit(e.orderQty(), e.warehousingQty(),
+                    e.materialPlannedCost(), e.materialArrivedCost(), e.lockedUnitPrice(), quotationUnitCost);
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("orderId", e.orderId());
+            row.put("orderNo", e.orderNo());
+            row.put("styleNo", e.styleNo());
+            row.put("styleName", e.styleName());
+            row.put("factoryName", e.factoryName());
+            row.put("status", e.status());
+            row.put("createTime", e.createTime());
+            row.put("quantity", e.orderQty());
+            row.put("warehousingQuantity", e.warehousingQty());
+            row.put("profitReady", e.warehousingQty() > 0);
+            row.put("calcBasis", r.calcBasis);
+            row.put("calcQty", r.baseQty);
+            row.put("revenue", scale2(r.revenue));
+            row.put("shipmentRevenue", scale2(e.shipmentPaidAmount()));
+            row.put("shipmentRevenueTotal", scale2(e.shipmentTotalAmount()));
+            row.put("materialPlannedCost", scale2(e.materialPlannedCost()));
+            row.put("materialArrivedCost", scale2(e.materialArrivedCost()));
+            row.put("materialArrivalRate", e.materialPlannedQty() > 0
+                    ? Math.min(100, (int) Math.round(e.materialEffectiveQty() * 100.0 / e.materialPlannedQty())) : 0);
+            row.put("processingCost", scale2(r.processingCost));
+            row.put("incurredCost", scale2(r.incurredCost));
+            row.put("profit", scale2(r.profit));
+            row.put("marginPercent", r.marginPercent);
+            row.put("unitCost", scale2(r.unitCost));
+            row.put("unitProfit", scale2(r.unitProfit));
+            row.put("quotationUnitCost", scale2(r.quotationUnitCost));
+            row.put("quotationUnitPrice", scale2(e.lockedUnitPrice()));
+            row.put("styleCostVersion", styleCost == null ? null : styleCost.version());
+            row.put("ledgerUpdateTime", e.updateTime());
+            records.add(row);
+        }
+        result.setRecords(records);
+        return result;
+    }
+
+    /** 快照成本为 0 的款式才需要退回报价单，一页一次查询 */
+    private Map<Long, StyleQuotation> loadQuotationsWithoutCost(Set<Long> styleIds, Map<Long, StyleCost> styleCosts) {
+        List<Long> missing = new ArrayList<>();
+        for (Long styleId : styleIds) {
+            StyleCost c = styleCosts.get(styleId);
+            if (c == null || c.totalCost() == null || c.totalCost().compareTo(BigDecimal.ZERO) <= 0) {
+                missing.add(styleId);
+            }
+        }
+        Map<Long, StyleQuotation> result = new HashMap<>();
+        if (missing.isEmpty()) {
+            return result;
+        }
+        // 与 getByStyleId 一致：同款多份报价取最近更新的一份
+        List<StyleQuotation> list = styleQuotationService.list(new LambdaQueryWrapper<StyleQuotation>()
+                .in(StyleQuotation::getStyleId, missing));
+        list.sort(Comparator.comparing(StyleQuotation::getUpdateTime, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(StyleQuotation::getCreateTime, Comparator.nullsFirst(Comparator.naturalOrder())));
+        for (StyleQuotation q : list) {
+            result.put(q.getStyleId(), q);
+        }
+        return result;
+    }
+
     private static class CostProfitResult {
         BigDecimal revenue; BigDecimal warehousingRevenue;
         String calcBasis; int baseQty;
@@ -239,29 +301,24 @@ public class OrderProfitOrchestrator {
         BigDecimal quotationUnitCost; BigDecimal quotationTotalCost; BigDecimal quotationTotalPrice;
     }
 
-    private CostProfitResult computeCostAndProfit(ProductionOrder order, int orderQty, int warehousingQty,
-            BigDecimal materialPlannedCost, BigDecimal materialArrivedCost, BigDecimal lockedOrderUnitPrice) {
+    /**
+     * 成本与利润口径（单单计算与台账列表共用）；加工单价与收入单价均为下单锁定价
+     */
+    private static CostProfitResult computeCostAndProfit(int orderQty, int warehousingQty,
+            BigDecimal materialPlannedCost, BigDecimal materialArrivedCost,
+            BigDecimal lockedOrderUnitPrice, BigDecimal quotationUnitCost) {
         CostProfitResult r = new CostProfitResult();
-        Long styleId = resolveStyleId(order);
-        StyleQuotation styleQuotation = styleId != null ? styleQuotationService.getByStyleId(styleId) : null;
-        r.quotationUnitCost = BigDecimal.ZERO;
-
-        if (styleId != null) {
-            BigDecimal freshCost = computeLiveFreshCost(styleId);
-            if (freshCost.compareTo(BigDecimal.ZERO) > 0) {
-                r.quotationUnitCost = freshCost;
-            } else if (styleQuotation != null && styleQuotation.getTotalCost() != null) {
-                r.quotationUnitCost = nonNeg(styleQuotation.getTotalCost());
-            }
-        }
+        lockedOrderUnitPrice = nonNeg(lockedOrderUnitPrice);
+        materialPlannedCost = nonNeg(materialPlannedCost);
+        materialArrivedCost = nonNeg(materialArrivedCost);
+        r.quotationUnitCost = nonNeg(quotationUnitCost);
 
         boolean hasLockedOrderPrice = lockedOrderUnitPrice.compareTo(BigDecimal.ZERO) > 0;
         boolean hasWarehousing = warehousingQty > 0;
         r.calcBasis = hasWarehousing ? "warehousing" : "order";
         r.baseQty = hasWarehousing ? warehousingQty : Math.max(0, orderQty);
 
-        BigDecimal processingUnitPrice = resolveProcessingUnitPrice(order);
-        r.processingCost = nonNeg(processingUnitPrice).multiply(BigDecimal.valueOf(Math.max(0, r.baseQty)));
+        r.processingCost = lockedOrderUnitPrice.multiply(BigDecimal.valueOf(Math.max(0, r.baseQty)));
         r.processingCostPaid = BigDecimal.ZERO;
 
         r.warehousingRevenue = hasLockedOrderPrice
@@ -287,6 +344,26 @@ public class OrderProfitOrchestrator {
         return r;
     }
 
+    /**
+     * 款式单件成本：快照（BOM + 工序 + 二次工艺）> 0 时用快照，否则退回报价单总成本
+     *
+     * @param quotations 列表场景预取的报价单（按款式）；为 null 时单独查询
+     */
+    private BigDecimal resolveQuotationUnitCost(Long styleId, StyleCost styleCost,
+                                                Map<Long, StyleQuotation> quotations) {
+        if (styleId == null) {
+            return BigDecimal.ZERO;
+        }
+        if (styleCost != null && styleCost.totalCost() != null
+                && styleCost.totalCost().compareTo(BigDecimal.ZERO) > 0) {
+            return styleCost.totalCost();
+        }
+        StyleQuotation quotation = quotations != null
+                ? quotations.get(styleId)
+                : styleQuotationService.getByStyleId(styleId);
+        return quotation == null ? BigDecimal.ZERO : nonNeg(quotation.getTotalCost());
+    }
+
     // ========================== 私有辅助方法 ==========================
 
     private ProductionOrder resolveOrder(String orderId, String orderNo) {
@@ -367,70 +444,6 @@ public class OrderProfitOrchestrator {
         return styleId;
     }
 
-    /**
-     * 实时计算款式的真实成本（BOM + 工序 + 二次工艺），不使用报价单中可能过时的存储值
-     */
-    private BigDecimal computeLiveFreshCost(Long styleId) {
-        BigDecimal total = BigDecimal.ZERO;
-        try {
-            List<StyleBom> boms = styleBomService.lambdaQuery()
-                    .eq(StyleBom::getStyleId, styleId).last("LIMIT 5000").list();
-            if (boms != null) {
-                for (StyleBom b : boms) {
-                    if (b == null) continue;
-                    BigDecimal item = b.getTotalPrice();
-                    if (item == null || item.compareTo(BigDecimal.ZERO) <= 0) {
-                        BigDecimal usage = b.getUsageAmount() != null ? b.getUsageAmount() : BigDecimal.ZERO;
-                        BigDecimal loss  = b.getLossRate()    != null ? b.getLossRate()    : BigDecimal.ZERO;
-                        BigDecimal unit  = b.getUnitPrice()   != null ? b.getUnitPrice()   : BigDecimal.ZERO;
-                        item = usage.multiply(BigDecimal.ONE.add(loss.movePointLeft(2))).multiply(unit);
-                    }
-                    if (item != null && item.compareTo(BigDecimal.ZERO) > 0) {
-                        total = total.add(item);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            log.warn("computeLiveFreshCost: BOM query failed for styleId={}", styleId, e);
-        }
-        try {
-            List<StyleProcess> processes = styleProcessService.lambdaQuery()
-                    .eq(StyleProcess::getStyleId, styleId).last("LIMIT 5000").list();
-            if (processes != null) {
-                for (StyleProcess p : processes) {
-                    if (p == null || p.getPrice() == null) continue;
-                    if (p.getPrice().compareTo(BigDecimal.ZERO) > 0) {
-                        total = total.add(p.getPrice());
-                    }
-                }
-            }
-        } catch (Exception e) {
-            log.warn("computeLiveFreshCost: Process query failed for styleId={}", styleId, e);
-        }
-        try {
-            List<SecondaryProcess> secondaries = secondaryProcessService.lambdaQuery()
-                    .eq(SecondaryProcess::getStyleId, styleId).last("LIMIT 5000").list();
-            if (secondaries != null) {
-                for (SecondaryProcess s : secondaries) {
-                    if (s == null || s.getTotalPrice() == null) continue;
-                    if (s.getTotalPrice().compareTo(BigDecimal.ZERO) > 0) {
-                        total = total.add(s.getTotalPrice());
-                    }
-                }
-            }
-        } catch (Exception e) {
-            log.warn("computeLiveFreshCost: Secondary process query failed for styleId={}", styleId, e);
-        }
-        return total.setScale(2, java.math.RoundingMode.HALF_UP);
-    }
-
-    private BigDecimal resolveProcessingUnitPrice(ProductionOrder order) {
-        if (order == null) {
-            return BigDecimal.ZERO;
-        }
-        return nonNeg(OrderPricingSnapshotUtils.resolveLockedOrderUnitPrice(order.getFactoryUnitPrice(), order.getOrderDetails()));
-    }
-
     private List<Map<String, Object>> buildTimeline(
             List<MaterialPurchase> purchases,
             List<ProductWarehousing> warehousings,
@@ -267,6 +267,7 @@ public class PayableOrchestrator {
             merged.setDescription((merged.getDescription() != null ? merged.getDescription() + " | " : "") + reverseRemark);
             if (paid.compareTo(newAmount) >= 0) {
                 merged.setStatus("PAID");
+                if (merged.getPaidTime() == null) merged.setPaidTime(LocalDateTime.now());
             }
             merged.setUpdateTime(LocalDateTime.now());
             payableService.updateById(merged);
@@ -375,6 +376,7 @@ public class PayableOrchestrator {
 
         if (newPaid.compareTo(p.getAmount()) >= 0) {
             p.setStatus("PAID");
+            p.setPaidTime(LocalDateTime.now());
         } else {
             p.setStatus("PARTIAL");
         }
@@ -1,20 +1,39 @@
 package com.fashion.supplychain.finance.orchestration;
 
+import com.fashion.supplychain.common.serial.DocumentNoService;
+import com.fashion.supplychain.finance.entity.WagePayment;
+import com.fashion.supplychain.finance.service.WagePaymentService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.concurrent.atomic.AtomicLong;
+import java.time.LocalDate;
 
+/**
+ * 工资/应付付款单号：WP + yyyyMMdd + 6 位租户内日序号（号段分配，重启/多实例不重复）
+ */
 @Component
 public class PaymentNoGenerator {
 
-    private static final AtomicLong SEQ = new AtomicLong(1);
-    private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String PREFIX = "WP";
+
+    @Autowired
+    private DocumentNoService documentNoService;
+
+    @Autowired
+    private WagePaymentService wagePaymentService;
 
     public String generate() {
-        String datePart = LocalDateTime.now().format(DATE_FMT);
-        long seq = SEQ.getAndIncrement();
-        return String.format("WP%s%06d", datePart, seq);
+        String day = LocalDate.now().format(DocumentNoService.DAY);
+        return documentNoService.nextNo(PREFIX, day, 6, true, () -> latestSeq(PREFIX + day));
+    }
+
+    /** 当天已发出的最大序号（仅首次租约时调用，兼容旧方案已生成的单号） */
+    private long latestSeq(String prefixWithDay) {
+        WagePayment latest = wagePaymentService.lambdaQuery()
+                .likeRight(WagePayment::getPaymentNo, prefixWithDay)
+                .orderByDesc(WagePayment::getPaymentNo)
+                .last("limit 1")
+                .one();
+        return latest == null ? 0L : DocumentNoService.parseSeq(latest.getPaymentNo(), prefixWithDay);
     }
 }
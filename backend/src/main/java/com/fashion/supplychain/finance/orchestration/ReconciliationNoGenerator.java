@@ -0,0 +1,48 @@
+package com.fashion.supplychain.finance.orchestration;
+
+import com.fashion.supplychain.common.serial.DocumentNoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * 对账单号：物料对账 MR + yyyyMM + 4 位月序号，出货对账 SR + yyyyMM + 4 位月序号。
+ *
+ * t_material_reconciliation / t_shipment_reconciliation 的 reconciliation_no 是全库唯一索引，
+ * 因此序列为全局作用域而非租户内（与工资结算单号相同），否则两个租户同月对账会撞唯一索引。
+ */
+@Component
+public class ReconciliationNoGenerator {
+
+    private static final String MATERIAL_PREFIX = "MR";
+    private static final String SHIPMENT_PREFIX = "SR";
+
+    @Autowired
+    private DocumentNoService documentNoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public String nextMaterialNo() {
+        return next(MATERIAL_PREFIX, "t_material_reconciliation");
+    }
+
+    public String nextShipmentNo() {
+        return next(SHIPMENT_PREFIX, "t_shipment_reconciliation");
+    }
+
+    private String next(String prefix, String table) {
+        String month = LocalDate.now().format(DocumentNoService.MONTH);
+        return documentNoService.nextNo(prefix, month, 4, false, () -> latestSeq(table, prefix + month));
+    }
+
+    /** 本月全库已发出的最大序号（仅首次租约时调用；JdbcTemplate 不经租户拦截器） */
+    private long latestSeq(String table, String prefixWithMonth) {
+        String latest = jdbcTemplate.queryForObject(
+                "SELECT MAX(reconciliation_no) FROM " + table + " WHERE reconciliation_no LIKE ?",
+                String.class, prefixWithMonth + "%");
+        return DocumentNoService.parseSeq(latest, prefixWithMonth);
+    }
+}
@@ -3,7 +3,6 @@ package com.fashion.supplychain.finance.orchestration;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.fashion.supplychain.common.UserContext;
-import com.fashion.supplychain.common.lock.DistributedLockService;
 import com.fashion.supplychain.common.tenant.TenantAssert;
 import com.fashion.supplychain.finance.entity.DeductionItem;
 import com.fashion.supplychain.finance.entity.ShipmentReconciliation;
@@ -22,7 +21,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import com.fashion.supplychain.production.entity.ScanRecord;
 import com.fashion.supplychain.production.mapper.ScanRecordMapper;
@@ -32,7 +30,6 @@ import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
-import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
 @Service("financeShipmentReconciliationOrchestrator")
@@ -42,8 +39,8 @@ public class ShipmentReconciliationOrchestrator {
     @Autowired
     private ShipmentReconciliationService shipmentReconciliationService;
 
-    @Autowired(required = false)
-    private DistributedLockService distributedLockService;
+    @Autowired
+    private ReconciliationNoGenerator reconciliationNoGenerator;
 
     @Autowired
     private ProductionOrderService productionOrderService;
@@ -672,37 +669,7 @@ public class ShipmentReconciliationOrchestrator {
     }
 
     private String generateReconciliationNo() {
-        if (distributedLockService == null) {
-            return doGenerateReconciliationNo();
-        }
-        return distributedLockService.executeWithStrictLock(
-                "shipmentReconciliation:generateNo", 5, TimeUnit.SECONDS,
-                this::doGenerateReconciliationNo);
-    }
-
-    private String doGenerateReconciliationNo() {
-        String monthPrefix = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMM"));
-        String prefix = "SR" + monthPrefix;
-
-        LambdaQueryWrapper<ShipmentReconciliation> wrapper = new LambdaQueryWrapper<>();
-        wrapper.likeRight(ShipmentReconciliation::getReconciliationNo, prefix)
-               .orderByDesc(ShipmentReconciliation::getReconciliationNo)
-               .last("LIMIT 1");
-
-        ShipmentReconciliation last = shipmentReconciliationService.getOne(wrapper);
-
-        int sequence = 1;
-        if (last != null && last.getReconciliationNo() != null) {
-            String lastNo = last.getReconciliationNo();
-            String lastSequence = lastNo.substring(lastNo.length() - 4);
-            try {
-                sequence = Integer.parseInt(lastSequence) + 1;
-            } catch (NumberFormatException e) {
-                log.warn("解析出货对账单号序号失败: {}", lastNo, e);
-            }
-        }
-
-        return String.format("%s%04d", prefix, sequence);
+        return reconciliationNoGenerator.nextShipmentNo();
     }
 
     /**
@@ -0,0 +1,194 @@
+package com.fashion.supplychain.finance.orchestration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 款式标准成本快照（t_style_cost_snapshot）。
+ *
+ * 原状：每算一个订单利润，都按款式各读最多 5000 条 BOM/工序/二次工艺实体在内存里求和，
+ * 同一款式的多个订单重复计算。
+ *
+ * 现流程：
+ * 1. 读取：按 (租户, 款式) 读快照行，缺失或已失效时才重算（DB 内三条 SUM，口径同原逐行求和：BOM 行优先 total_price，
+ *    否则用量 × (1 + 损耗%) × 单价；工序取 price、二次工艺取 total_price；只计正数）；
+ * 2. 失效：BOM/工序/二次工艺写入后由 {@link com.fashion.supplychain.finance.helper.StyleCostChangeListener}
+ *    在事务提交后调用 {@link #markStale}，无法确定款式时整租户失效（惰性重算，代价只是下次读取多三条 SUM）；
+ * 3. 版本：重算结果与旧值不同时 version + 1，订单台账/列表可据此判断成本口径是否变化；
+ * 4. 并发：标记失效同时递增 invalidate_seq，重算写回时序号未变才清除 stale，重算期间的新失效不会被覆盖。
+ *    快照行不存在时 UPDATE 命中 0 行、失效会丢失，因此首次重算前先插入占位行（version = 0、stale = 1），
+ *    再以占位行的序号开始求和：求和期间提交的写入一定能递增到这一行。
+ *
+ * 所有 SQL 走 JdbcTemplate（不经租户拦截器），租户条件显式拼接。
+ */
+@Slf4j
+@Service
+public class StyleCostSnapshotOrchestrator {
+
+    private static final String BOM_COST_SQL = "SELECT COALESCE(SUM(CASE WHEN total_price > 0 THEN total_price "
+            + "ELSE GREATEST(COALESCE(usage_amount, 0) * (1 + COALESCE(loss_rate, 0) / 100) * COALESCE(unit_price, 0), 0) END), 0) "
+            + "FROM t_style_bom WHERE tenant_id = ? AND style_id = ?";
+
+    private static final String PROCESS_COST_SQL = "SELECT COALESCE(SUM(CASE WHEN price > 0 THEN price ELSE 0 END), 0) "
+            + "FROM t_style_process WHERE tenant_id = ? AND style_id = ?";
+
+    private static final String SECONDARY_COST_SQL = "SELECT COALESCE(SUM(CASE WHEN total_price > 0 THEN total_price ELSE 0 END), 0) "
+            + "FROM t_secondary_process WHERE tenant_id = ? AND style_id = ?";
+
+    private static final String SNAPSHOT_COLUMNS = "style_id, bom_cost, process_cost, secondary_cost, total_cost, "
+            + "version, stale, invalidate_seq";
+
+    private static final String UPSERT_SQL = "INSERT INTO t_style_cost_snapshot (tenant_id, style_id, bom_cost, "
+            + "process_cost, secondary_cost, total_cost, version, stale, invalidate_seq, update_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, 1, 0, 0, NOW()) ON DUPLICATE KEY UPDATE "
+            // version 必须放在最前：MySQL 按书写顺序赋值，此时比较的还是旧值
+            + "version = IF(version = 0 OR total_cost <> VALUES(total_cost) OR bom_cost <> VALUES(bom_cost) "
+            + "OR process_cost <> VALUES(process_cost) OR secondary_cost <> VALUES(secondary_cost), version + 1, version), "
+            + "bom_cost = VALUES(bom_cost), process_cost = VALUES(process_cost), "
+            + "secondary_cost = VALUES(secondary_cost), total_cost = VALUES(total_cost), "
+            + "stale = IF(invalidate_seq = ?, 0, stale), update_time = NOW()";
+
+    /** 首次重算前的占位行：version = 0 表示从未算出过成本 */
+    private static final String PLACEHOLDER_SQL = "INSERT IGNORE INTO t_style_cost_snapshot (tenant_id, style_id, "
+            + "version, stale, invalidate_seq, update_time) VALUES (?, ?, 0, 1, 0, NOW())";
+
+    private static final RowMapper<Row> ROW_MAPPER = (rs, i) -> new Row(
+            new StyleCost(rs.getLong("style_id"), rs.getBigDecimal("bom_cost"), rs.getBigDecimal("process_cost"),
+                    rs.getBigDecimal("secondary_cost"), rs.getBigDecimal("total_cost"), rs.getInt("version")),
+            rs.getInt("stale") != 0, rs.getInt("invalidate_seq"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 款式标准成本（单件）
+     *
+     * @param totalCost BOM + 工序 + 二次工艺，保留 2 位小数
+     * @param version   成本值每变化一次 + 1
+     */
+    public record StyleCost(Long styleId, BigDecimal bomCost, BigDecimal processCost,
+                            BigDecimal secondaryCost, BigDecimal totalCost, int version) { }
+
+    private record Row(StyleCost cost, boolean stale, int invalidateSeq) { }
+
+    // ─── 读取 ────────────────────────────────────────────────────────────────
+
+    /**
+     * 单个款式的标准成本；快照缺失或失效时重算。失败返回 null（调用方按无成本处理）
+     */
+    public StyleCost getStyleCost(Long tenantId, Long styleId) {
+        if (tenantId == null || styleId == null) {
+            return null;
+        }
+        return getStyleCosts(tenantId, List.of(styleId)).get(styleId);
+    }
+
+    /**
+     * 批量读取（利润列表一页的款式）；缺失或失效的逐个重算
+     */
+    public Map<Long, StyleCost> getStyleCosts(Long tenantId, Collection<Long> styleIds) {
+        Map<Long, StyleCost> result = new HashMap<>();
+        if (tenantId == null || styleIds == null || styleIds.isEmpty()) {
+            return result;
+        }
+        Set<Long> ids = new LinkedHashSet<>(styleIds);
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            return result;
+        }
+        Map<Long, Row> rows = new HashMap<>();
+        List<Object> args = new ArrayList<>(ids.size() + 1);
+        args.add(tenantId);
+        args.addAll(ids);
+        jdbcTemplate.query("SELECT " + SNAPSHOT_COLUMNS + " FROM t_style_cost_snapshot WHERE tenant_id = ? AND style_id IN ("
+                        + String.join(",", Collections.nCopies(ids.size(), "?")) + ")",
+                rs -> {
+                    Row row = ROW_MAPPER.mapRow(rs, 0);
+                    rows.put(row.cost().styleId(), row);
+                }, args.toArray());
+        for (Long styleId : ids) {
+            Row row = rows.get(styleId);
+            if (row != null && !row.stale()) {
+                result.put(styleId, row.cost());
+                continue;
+            }
+            StyleCost fresh = row == null ? refreshMissing(tenantId, styleId) : refresh(tenantId, styleId, row.invalidateSeq());
+            if (fresh != null) {
+                result.put(styleId, fresh);
+            } else if (row != null && row.cost().version() > 0) {
+                // 重算失败时退回旧快照，好过没有成本
+                result.put(styleId, row.cost());
+            }
+        }
+        return result;
+    }
+
+    // ─── 维护 ────────────────────────────────────────────────────────────────
+
+    /**
+     * 标记失效。styleId 为空表示整租户；tenantId 为空（系统任务写入）表示所有租户的该款式
+     */
+    public void markStale(Long tenantId, Long styleId) {
+        if (tenantId == null && styleId == null) {
+            jdbcTemplate.update("UPDATE t_style_cost_snapshot SET stale = 1, invalidate_seq = invalidate_seq + 1");
+        } else if (tenantId == null) {
+            jdbcTemplate.update("UPDATE t_style_cost_snapshot SET stale = 1, invalidate_seq = invalidate_seq + 1 "
+                    + "WHERE style_id = ?", styleId);
+        } else if (styleId == null) {
+            jdbcTemplate.update("UPDATE t_style_cost_snapshot SET stale = 1, invalidate_seq = invalidate_seq + 1 "
+                    + "WHERE tenant_id = ?", tenantId);
+        } else {
+            jdbcTemplate.update("UPDATE t_style_cost_snapshot SET stale = 1, invalidate_seq = invalidate_seq + 1 "
+                    + "WHERE tenant_id = ? AND style_id = ?", tenantId, styleId);
+        }
+    }
+
+    /** 快照行不存在：先落占位行让并发的 markStale 有行可更新，再按占位行当前序号重算 */
+    private StyleCost refreshMissing(Long tenantId, Long styleId) {
+        Integer seq;
+        try {
+            jdbcTemplate.update(PLACEHOLDER_SQL, tenantId, styleId);
+            seq = jdbcTemplate.queryForObject("SELECT invalidate_seq FROM t_style_cost_snapshot "
+                    + "WHERE tenant_id = ? AND style_id = ?", Integer.class, tenantId, styleId);
+        } catch (Exception e) {
+            log.warn("[StyleCost] 占位失败 tenantId={} styleId={}: {}", tenantId, styleId, e.getMessage());
+            return null;
+        }
+        return refresh(tenantId, styleId, seq == null ? 0 : seq);
+    }
+
+    private StyleCost refresh(Long tenantId, Long styleId, int seenInvalidateSeq) {
+        try {
+            BigDecimal bom = sum(BOM_COST_SQL, tenantId, styleId);
+            BigDecimal process = sum(PROCESS_COST_SQL, tenantId, styleId);
+            BigDecimal secondary = sum(SECONDARY_COST_SQL, tenantId, styleId);
+            BigDecimal total = bom.add(process).add(secondary).setScale(2, RoundingMode.HALF_UP);
+            jdbcTemplate.update(UPSERT_SQL, tenantId, styleId, bom, process, secondary, total, seenInvalidateSeq);
+            List<Row> rows = jdbcTemplate.query("SELECT " + SNAPSHOT_COLUMNS
+                    + " FROM t_style_cost_snapshot WHERE tenant_id = ? AND style_id = ?", ROW_MAPPER, tenantId, styleId);
+            return rows.isEmpty() ? null : rows.get(0).cost();
+        } catch (Exception e) {
+            log.warn("[StyleCost] 重算失败 tenantId={} styleId={}: {}", tenantId, styleId, e.getMessage());
+            return null;
+        }
+    }
+
+    private BigDecimal sum(String sql, Long tenantId, Long styleId) {
+        BigDecimal v = jdbcTemplate.queryForObject(sql, BigDecimal.class, tenantId, styleId);
+        return v == null ? BigDecimal.ZERO : v.setScale(4, RoundingMode.HALF_UP);
+    }
+}
@@ -7,6 +7,7 @@ import com.fashion.supplychain.integration.ecommerce.orchestration.ExpressOrderO
 import com.fashion.supplychain.integration.entity.ExpressOrder;
 import com.fashion.supplychain.integration.logistics.LogisticsManager;
 import com.fashion.supplychain.integration.logistics.LogisticsService;
+import com.fashion.supplychain.integration.logistics.ShippingQuote;
 import com.fashion.supplychain.integration.logistics.ShippingRequest;
 import com.fashion.supplychain.integration.logistics.TrackingInfo;
 import com.fashion.supplychain.integration.service.ExpressOrderService;
@@ -95,6 +96,26 @@ public class ExpressOrderController {
 
     @PostMapping("/estimate-fee")
     public Result<Map<String, Long>> estimateFee(@RequestBody Map<String, Object> body) {
+        try {
+            return Result.success(logisticsManager.compareShippingFees(buildEstimateRequest(body)));
+        } catch (Exception e) {
+            return Result.fail("估算失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 并行比价明细：每家物流公司的运费、状态（OK/FAILED/TIMEOUT）、是否命中缓存与耗时
+     */
+    @PostMapping("/estimate-fee/detail")
+    public Result<List<ShippingQuote>> estimateFeeDetail(@RequestBody Map<String, Object> body) {
+        try {
+            return Result.success(logisticsManager.compareShippingQuotes(buildEstimateRequest(body)));
+        } catch (Exception e) {
+            return Result.fail("估算失败: " + e.getMessage());
+        }
+    }
+
+    private ShippingRequest buildEstimateRequest(Map<String, Object> body) {
         String ecommerceOrderId = (String) body.get("ecommerceOrderId");
         BigDecimal weight = body.get("weight") != null
                 ? new BigDecimal(body.get("weight").toString()) : BigDecimal.valueOf(1.0);
@@ -103,17 +124,11 @@ public class ExpressOrderController {
                 .name("").mobile("").province("广东省").city("广州市").district("白云区").address("")
                 .build();
 
-        ShippingRequest request = ShippingRequest.builder()
+        return ShippingRequest.builder()
                 .orderId(ecommerceOrderId)
                 .sender(dummy).recipient(dummy)
                 .cargo(ShippingRequest.CargoInfo.builder().weight(weight).build())
                 .build();
-
-        try {
-            return Result.success(logisticsManager.compareShippingFees(request));
-        } catch (Exception e) {
-            return Result.fail("估算失败: " + e.getMessage());
-        }
     }
 
     private LogisticsService.LogisticsType resolveType(Integer code) {
@@ -2,12 +2,28 @@ package com.fashion.supplychain.integration.logistics;
 
 import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.integration.record.service.IntegrationRecordService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -44,6 +60,13 @@ import java.util.stream.Collectors;
  * 渠道启用控制：
  * - sf-express.enabled=false → 该渠道不可用
  * - sf-express.enabled=true + 密钥已填 → 使用真实API
+ *
+ * 比价与轨迹缓存：
+ * - 比价并行调用各物流公司（虚拟线程），整体受 logistics.quote.deadline-ms 截止时间约束，
+ *   超时的物流公司标记 TIMEOUT 返回部分结果；迟到的结果仍写入报价缓存供下次使用
+ * - 报价按 (物流类型, 寄/收省市区, 重量, 体积, 服务类型, 保价) 缓存 30 分钟
+ * - 轨迹按最新状态决定缓存时长：已签收 30 天（不再向物流公司轮询），派送中/异常 10 分钟，其余 30 分钟
+ * - 物流回调推送通过 {@link #onTrackingPushed} 追加到已缓存轨迹，保持缓存新鲜
  * ============================================================
  */
 @Slf4j
@@ -60,6 +83,27 @@ public class LogisticsManager {
     /** 按类型缓存 */
     private Map<LogisticsService.LogisticsType, LogisticsService> serviceMap;
 
+    /** 比价整体截止时间（毫秒） */
+    @Value("${logistics.quote.deadline-ms:3000}")
+    private long quoteDeadlineMs;
+
+    /** 物流公司调用都是阻塞 HTTP，使用虚拟线程并行 */
+    private static final ExecutorService CARRIER_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final Duration QUOTE_TTL = Duration.ofMinutes(30);
+
+    /** 报价缓存：只缓存成功报价 */
+    private final Cache<String, Long> quoteCache = Caffeine.newBuilder()
+            .expireAfterWrite(QUOTE_TTL)
+            .maximumSize(20_000)
+            .build();
+
+    /** 轨迹缓存：key=物流类型|运单号，按最新状态决定过期时间 */
+    private final Cache<String, List<TrackingInfo>> trackingCache = Caffeine.newBuilder()
+            .expireAfter(new TrackingExpiry())
+            .maximumSize(50_000)
+            .build();
+
     // =====================================================
     // 核心业务方法
     // =====================================================
@@ -104,7 +148,9 @@ public class LogisticsManager {
         LogisticsService service = getService(type);
         log.info("[物流] 取消运单 | company={} trackingNo={}", service.getCompanyName(), trackingNumber);
         try {
-            return service.cancelShipment(trackingNumber, reason);
+            boolean cancelled = service.cancelShipment(trackingNumber, reason);
+            trackingCache.invalidate(trackingKey(type, trackingNumber));
+            return cancelled;
         } catch (LogisticsService.LogisticsException e) {
             throw new LogisticsException("取消运单失败: " + e.getMessage(), e);
         }
@@ -116,42 +162,147 @@ public class LogisticsManager {
     public List<TrackingInfo> trackShipment(String trackingNumber,
                                              LogisticsService.LogisticsType type) {
         LogisticsService service = getService(type);
+        String key = trackingKey(type, trackingNumber);
+        List<TrackingInfo> cached = trackingCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
         log.debug("[物流] 查询轨迹 | company={} trackingNo={}", service.getCompanyName(), trackingNumber);
         try {
-            return service.trackShipment(trackingNumber);
+            List<TrackingInfo> tracks = service.trackShipment(trackingNumber);
+            List<TrackingInfo> snapshot = tracks != null ? List.copyOf(tracks) : List.of();
+            trackingCache.put(key, snapshot);
+            return snapshot;
         } catch (LogisticsService.LogisticsException e) {
             throw new LogisticsException("查询物流轨迹失败: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * 物流回调推送的轨迹节点：追加到已缓存的轨迹并按新状态刷新过期时间。
+     * 未缓存的运单不做处理（没有完整轨迹可拼），下次查询时拉取一次后按状态缓存。
+     */
+    public void onTrackingPushed(String trackingNumber, LogisticsService.LogisticsType type, TrackingInfo event) {
+        if (trackingNumber == null || trackingNumber.isEmpty() || type == null || event == null) {
+            return;
+        }
+        trackingCache.asMap().computeIfPresent(trackingKey(type, trackingNumber), (k, tracks) -> {
+            TrackingInfo last = tracks.isEmpty() ? null : tracks.get(tracks.size() - 1);
+            if (last != null && last.getStatus() == event.getStatus()
+                    && Objects.equals(last.getDescription(), event.getDescription())) {
+                return tracks;
+            }
+            List<TrackingInfo> merged = new ArrayList<>(tracks.size() + 1);
+            merged.addAll(tracks);
+            merged.add(event);
+            return Collections.unmodifiableList(merged);
+        });
+    }
+
     /**
      * 估算运费
      */
     public Long estimateShippingFee(ShippingRequest request,
                                      LogisticsService.LogisticsType type) {
         request.setLogisticsType(type);
+        String key = quoteKey(request);
+        Long cachedFee = quoteCache.getIfPresent(key);
+        if (cachedFee != null) {
+            return cachedFee;
+        }
         try {
-            return getService(type).estimateShippingFee(request);
+            Long fee = getService(type).estimateShippingFee(request);
+            if (fee != null && fee >= 0) {
+                quoteCache.put(key, fee);
+            }
+            return fee;
         } catch (LogisticsService.LogisticsException e) {
             throw new LogisticsException("估算运费失败: " + e.getMessage(), e);
         }
     }
 
     /**
-     * 批量估算所有可用物流公司运费（比价用）
+     * 批量估算所有可用物流公司运费（比价用），不可用或超时返回 -1
      */
     public Map<String, Long> compareShippingFees(ShippingRequest request) {
-        return services.stream().collect(Collectors.toMap(
-                LogisticsService::getCompanyName,
-                s -> {
-                    try {
-                        request.setLogisticsType(s.getLogisticsType());
-                        return s.estimateShippingFee(request);
-                    } catch (Exception e) {
-                        return -1L; // 不可用返回-1
-                    }
-                }
-        ));
+        Map<String, Long> fees = new LinkedHashMap<>();
+        for (ShippingQuote quote : compareShippingQuotes(request)) {
+            fees.put(quote.getCompanyName(), quote.getFee() != null ? quote.getFee() : -1L);
+        }
+        return fees;
+    }
+
+    /**
+     * 并行比价：命中缓存的直接返回，其余并行调用，整体不超过截止时间，返回每家物流公司的报价与耗时
+     */
+    public List<ShippingQuote> compareShippingQuotes(ShippingRequest request) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(quoteDeadlineMs);
+        List<ShippingQuote> quotes = new ArrayList<>(services.size());
+        Map<Integer, CompletableFuture<ShippingQuote>> pending = new LinkedHashMap<>();
+        for (LogisticsService s : services) {
+            ShippingRequest carrierRequest = request.toBuilder().logisticsType(s.getLogisticsType()).build();
+            String key = quoteKey(carrierRequest);
+            Long cachedFee = quoteCache.getIfPresent(key);
+            if (cachedFee != null) {
+                quotes.add(quote(s, cachedFee, ShippingQuote.QuoteStatus.OK, true, 0L, null));
+                continue;
+            }
+            quotes.add(null);
+            pending.put(quotes.size() - 1,
+                    CompletableFuture.supplyAsync(() -> callEstimate(s, carrierRequest, key), CARRIER_EXECUTOR));
+        }
+        for (Map.Entry<Integer, CompletableFuture<ShippingQuote>> e : pending.entrySet()) {
+            LogisticsService s = services.get(e.getKey());
+            long remaining = deadline - System.nanoTime();
+            ShippingQuote quote;
+            try {
+                quote = e.getValue().get(Math.max(0L, remaining), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException te) {
+                quote = quote(s, null, ShippingQuote.QuoteStatus.TIMEOUT, false, quoteDeadlineMs, "超过比价截止时间");
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                quote = quote(s, null, ShippingQuote.QuoteStatus.TIMEOUT, false, quoteDeadlineMs, "比价被中断");
+            } catch (ExecutionException ee) {
+                quote = quote(s, null, ShippingQuote.QuoteStatus.FAILED, false, 0L, ee.getCause().getMessage());
+            }
+            quotes.set(e.getKey(), quote);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("[物流] 比价完成 | {}", quotes.stream()
+                    .map(q -> q.getCompanyName() + "=" + q.getStatus() + "/" + q.getCostMs() + "ms")
+                    .collect(Collectors.joining(", ")));
+        }
+        return quotes;
+    }
+
+    private ShippingQuote callEstimate(LogisticsService s, ShippingRequest request, String key) {
+        long start = System.nanoTime();
+        try {
+            Long fee = s.estimateShippingFee(request);
+            long costMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (fee == null || fee < 0) {
+                return quote(s, null, ShippingQuote.QuoteStatus.FAILED, false, costMs, "未返回运费");
+            }
+            quoteCache.put(key, fee);
+            return quote(s, fee, ShippingQuote.QuoteStatus.OK, false, costMs, null);
+        } catch (Exception e) {
+            long costMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.debug("[物流] 估算运费失败 | company={}: {}", s.getCompanyName(), e.getMessage());
+            return quote(s, null, ShippingQuote.QuoteStatus.FAILED, false, costMs, e.getMessage());
+        }
+    }
+
+    private static ShippingQuote quote(LogisticsService s, Long fee, ShippingQuote.QuoteStatus status,
+                                       boolean cached, long costMs, String error) {
+        return ShippingQuote.builder()
+                .logisticsType(s.getLogisticsType())
+                .companyName(s.getCompanyName())
+                .fee(fee)
+                .status(status)
+                .cached(cached)
+                .costMs(costMs)
+                .errorMessage(error)
+                .build();
     }
 
     /**
@@ -187,6 +338,72 @@ public class LogisticsManager {
         return service;
     }
 
+    private static String trackingKey(LogisticsService.LogisticsType type, String trackingNumber) {
+        return type.name() + "|" + trackingNumber;
+    }
+
+    /**
+     * 报价缓存 key：同一线路、重量、规格的报价相同（运费与订单号、联系人无关）
+     */
+    private static String quoteKey(ShippingRequest r) {
+        ShippingRequest.CargoInfo cargo = r.getCargo();
+        return String.join("|",
+                String.valueOf(r.getLogisticsType()),
+                region(r.getSender()),
+                region(r.getRecipient()),
+                cargo != null ? decimal(cargo.getWeight()) : "",
+                cargo != null ? decimal(cargo.getVolume()) : "",
+                cargo != null ? String.valueOf(cargo.getType()) : "",
+                String.valueOf(r.getServiceType()),
+                String.valueOf(r.getPaymentMethod()),
+                Boolean.TRUE.equals(r.getNeedInsurance()) ? decimal(r.getInsuranceAmount()) : "");
+    }
+
+    private static String region(ShippingRequest.ContactInfo c) {
+        return c == null ? "" : c.getProvince() + "/" + c.getCity() + "/" + c.getDistrict();
+    }
+
+    private static String decimal(BigDecimal v) {
+        return v == null ? "" : v.stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * 轨迹缓存过期策略：按最后一条轨迹状态决定存活时间，回调追加节点后重新计算
+     */
+    private static final class TrackingExpiry implements Expiry<String, List<TrackingInfo>> {
+
+        @Override
+        public long expireAfterCreate(String key, List<TrackingInfo> tracks, long currentTime) {
+            return ttl(tracks).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, List<TrackingInfo> tracks, long currentTime, long currentDuration) {
+            return ttl(tracks).toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, List<TrackingInfo> tracks, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private static Duration ttl(List<TrackingInfo> tracks) {
+            if (tracks.isEmpty()) {
+                // 刚下单还没有揽件轨迹
+                return Duration.ofMinutes(5);
+            }
+            TrackingInfo.TrackingStatus status = tracks.get(tracks.size() - 1).getStatus();
+            if (status == null) {
+                return Duration.ofMinutes(30);
+            }
+            return switch (status) {
+                case DELIVERED -> Duration.ofDays(30);
+                case OUT_FOR_DELIVERY, EXCEPTION -> Duration.ofMinutes(10);
+                default -> Duration.ofMinutes(30);
+            };
+        }
+    }
+
     /** 物流管理器异常 */
     public static class LogisticsException extends RuntimeException {
         public LogisticsException(String message) { super(message); }
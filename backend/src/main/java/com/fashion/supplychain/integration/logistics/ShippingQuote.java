@@ -0,0 +1,72 @@
+package com.fashion.supplychain.integration.logistics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个物流公司的比价结果
+ * 并行比价时每家物流公司一条，超时/失败的也返回（fee 为空），便于前端展示部分结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShippingQuote {
+
+    /**
+     * 物流类型
+     */
+    private LogisticsService.LogisticsType logisticsType;
+
+    /**
+     * 物流公司名称
+     */
+    private String companyName;
+
+    /**
+     * 运费（分），失败或超时为 null
+     */
+    private Long fee;
+
+    /**
+     * 报价状态
+     */
+    private QuoteStatus status;
+
+    /**
+     * 是否命中报价缓存
+     */
+    private Boolean cached;
+
+    /**
+     * 本次调用耗时（毫秒），命中缓存为 0
+     */
+    private Long costMs;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 报价状态枚举
+     */
+    public enum QuoteStatus {
+        /**
+         * 报价成功
+         */
+        OK,
+
+        /**
+         * 物流公司返回失败
+         */
+        FAILED,
+
+        /**
+         * 超过比价截止时间未返回
+         */
+        TIMEOUT
+    }
+}
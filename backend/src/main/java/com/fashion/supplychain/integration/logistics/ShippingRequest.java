@@ -12,7 +12,7 @@ import java.math.BigDecimal;
  * 创建运单时传递的参数
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ShippingRequest {
@@ -3,6 +3,9 @@ package com.fashion.supplychain.integration.logistics.callback;
 import com.fashion.supplychain.integration.config.SFExpressProperties;
 import com.fashion.supplychain.integration.config.STOProperties;
 import com.fashion.supplychain.integration.ecommerce.orchestration.EcommerceOrderOrchestrator;
+import com.fashion.supplychain.integration.logistics.LogisticsManager;
+import com.fashion.supplychain.integration.logistics.LogisticsService;
+import com.fashion.supplychain.integration.logistics.TrackingInfo;
 import com.fashion.supplychain.integration.record.entity.IntegrationCallbackLog;
 import com.fashion.supplychain.integration.record.service.IntegrationRecordService;
 import com.fashion.supplychain.integration.util.SignatureUtils;
@@ -38,6 +41,7 @@ public class LogisticsCallbackController {
 
     private final IntegrationRecordService recordService;
     private final EcommerceOrderOrchestrator ecommerceOrderOrchestrator;
+    private final LogisticsManager logisticsManager;
 
     @Value("${spring.profiles.active:dev}")
     private String activeProfile;
@@ -208,6 +212,8 @@ public class LogisticsCallbackController {
         // String status = event.getOpCode() == 80 ? "DELIVERED" : "IN_TRANSIT";
         // LocalDateTime eventTime = event.getOpTime();
         // recordService.updateLogisticsStatus(trackingNumber, status, "顺丰路由: " + event.getOpCode(), eventTime);
+        // logisticsManager.onTrackingPushed(trackingNumber, LogisticsService.LogisticsType.SF, TrackingInfo.builder()
+        //         .time(eventTime).description(event.getRemark()).status(...).build());
         // if ("DELIVERED".equals(status)) {
         //     ecommerceOrderOrchestrator.onLogisticsDelivered(trackingNumber, "SF", eventTime);
         // }
@@ -246,6 +252,13 @@ public class LogisticsCallbackController {
         if (mappedStatus != null && trackingNumber != null && !trackingNumber.isEmpty()) {
             recordService.updateLogisticsStatus(
                     trackingNumber, mappedStatus, "申通状态: " + status, LocalDateTime.now());
+            // 推送节点追加到轨迹缓存：已签收的运单之后查询直接命中缓存，不再向申通轮询
+            logisticsManager.onTrackingPushed(trackingNumber, LogisticsService.LogisticsType.STO,
+                    TrackingInfo.builder()
+                            .time(LocalDateTime.now())
+                            .description("申通状态: " + status)
+                            .status(toTrackingStatus(status))
+                            .build());
             if ("DELIVERED".equals(mappedStatus)) {
                 try {
                     int updated = ecommerceOrderOrchestrator.onLogisticsDeliveredByTrackingNo(
@@ -258,6 +271,16 @@ public class LogisticsCallbackController {
         }
     }
 
+    private TrackingInfo.TrackingStatus toTrackingStatus(String stoStatus) {
+        return switch (stoStatus) {
+            case "ACCEPT" -> TrackingInfo.TrackingStatus.PICKED_UP;
+            case "DELIVERING" -> TrackingInfo.TrackingStatus.OUT_FOR_DELIVERY;
+            case "SIGNED" -> TrackingInfo.TrackingStatus.DELIVERED;
+            case "REJECTED" -> TrackingInfo.TrackingStatus.EXCEPTION;
+            default -> TrackingInfo.TrackingStatus.IN_TRANSIT;
+        };
+    }
+
     private boolean isProdProfile() {
         return activeProfile != null && activeProfile.contains("prod");
     }
@@ -7,6 +7,8 @@ import com.fashion.supplychain.integration.openapi.dto.TenantAppRequest;
 import com.fashion.supplychain.integration.openapi.dto.TenantAppResponse;
 import com.fashion.supplychain.integration.openapi.entity.TenantAppLog;
 import com.fashion.supplychain.integration.openapi.orchestration.TenantAppOrchestrator;
+import com.fashion.supplychain.integration.openapi.service.OpenApiGatewayGuard;
+import com.fashion.supplychain.integration.openapi.service.WebhookDispatcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -27,6 +29,12 @@ public class TenantAppController {
     @Autowired
     private TenantAppOrchestrator tenantAppOrchestrator;
 
+    @Autowired
+    private WebhookDispatcher webhookDispatcher;
+
+    @Autowired
+    private OpenApiGatewayGuard openApiGatewayGuard;
+
     /**
      * 创建应用
      * 返回含明文 appKey + appSecret（仅此一次）
@@ -120,6 +128,24 @@ public class TenantAppController {
         return Result.success(tenantAppOrchestrator.getStats(tenantId));
     }
 
+    /**
+     * Webhook 各端点投递统计（成功/失败次数、平均/最大耗时、在途请求数）
+     */
+    @GetMapping("/webhook-stats")
+    public Result<List<Map<String, Object>>> getWebhookStats() {
+        Long tenantId = UserContext.tenantId();
+        return Result.success(webhookDispatcher.getEndpointStats(tenantId));
+    }
+
+    /**
+     * 开放 API 网关本节点状态（凭证缓存命中率、拦截的重放、待刷回调用数、日志队列积压）
+     */
+    @PreAuthorize("hasAuthority('ROLE_SUPER_ADMIN')")
+    @GetMapping("/gateway-stats")
+    public Result<Map<String, Object>> getGatewayStats() {
+        return Result.success(openApiGatewayGuard.getStats());
+    }
+
     /**
      * 查询调用日志
      */
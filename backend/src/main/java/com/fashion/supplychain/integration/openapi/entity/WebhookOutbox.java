@@ -0,0 +1,68 @@
+package com.fashion.supplychain.integration.openapi.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Webhook 发件箱
+ * 业务事件在业务事务内写入本表（每个目标应用一行），由 WebhookDispatcher 异步投递
+ *
+ * 状态流转：PENDING → SENDING → SUCCESS
+ *                  ↘ PENDING（失败后按指数退避重排） → DEAD（超过最大重试次数）
+ */
+@Data
+@TableName("t_webhook_outbox")
+public class WebhookOutbox {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_SENDING = "SENDING";
+    public static final String STATUS_SUCCESS = "SUCCESS";
+    public static final String STATUS_DEAD = "DEAD";
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /** 所属租户ID（取自目标应用，不依赖上下文自动填充） */
+    private Long tenantId;
+
+    /** 目标应用ID（t_tenant_app.id） */
+    private String appId;
+
+    /** 应用类型 */
+    private String appType;
+
+    /** 事件类型，如 quality.inspected */
+    private String eventType;
+
+    /** 事件JSON */
+    private String payload;
+
+    /** 状态: PENDING / SENDING / SUCCESS / DEAD */
+    private String status;
+
+    /** 已尝试次数 */
+    private Integer attempts;
+
+    /** 下次可投递时间（退避） */
+    private LocalDateTime nextAttemptTime;
+
+    /** 投递租约到期时间（SENDING 超过此时间视为节点崩溃，可被重新认领） */
+    private LocalDateTime leaseUntil;
+
+    /** 最近一次响应码 */
+    private Integer lastResponseCode;
+
+    /** 最近一次错误信息 */
+    private String lastError;
+
+    /** 投递成功时间 */
+    private LocalDateTime sentTime;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updateTime;
+}
@@ -15,4 +15,23 @@ public interface TenantAppMapper extends BaseMapper<TenantApp> {
             "last_call_time = NOW() " +
             "WHERE id = #{id} AND tenant_id = #{tenantId}")
     int atomicIncrementCallCount(@Param("id") String id, @Param("tenantId") Long tenantId);
+
+    /**
+     * 网关批量刷回调用计数：同一天累加，跨日从 delta 重新计数。
+     * SET 按书写顺序求值，daily_used 先读取旧的 last_quota_reset_time 判断是否同日。
+     */
+    @Update("UPDATE t_tenant_app SET " +
+            "daily_used = CASE WHEN last_quota_reset_time IS NOT NULL AND DATE(last_quota_reset_time) = CURDATE() " +
+            "THEN COALESCE(daily_used, 0) + #{delta} ELSE #{delta} END, " +
+            "last_quota_reset_time = CASE WHEN last_quota_reset_time IS NOT NULL AND DATE(last_quota_reset_time) = CURDATE() " +
+            "THEN last_quota_reset_time ELSE NOW() END, " +
+            "total_calls = COALESCE(total_calls, 0) + #{delta}, " +
+            "last_call_time = NOW() " +
+            "WHERE id = #{id} AND tenant_id = #{tenantId}")
+    int flushCallCount(@Param("id") String id, @Param("tenantId") Long tenantId, @Param("delta") int delta);
+
+    /** 跨日后刷回昨日尚未落库的调用：只累计总调用数，不计入当日用量 */
+    @Update("UPDATE t_tenant_app SET total_calls = COALESCE(total_calls, 0) + #{delta} " +
+            "WHERE id = #{id} AND tenant_id = #{tenantId}")
+    int flushTotalCalls(@Param("id") String id, @Param("tenantId") Long tenantId, @Param("delta") int delta);
 }
@@ -0,0 +1,9 @@
+package com.fashion.supplychain.integration.openapi.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.fashion.supplychain.integration.openapi.entity.WebhookOutbox;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface WebhookOutboxMapper extends BaseMapper<WebhookOutbox> {
+}
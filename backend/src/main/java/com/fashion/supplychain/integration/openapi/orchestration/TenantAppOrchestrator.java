@@ -7,19 +7,19 @@ import com.fashion.supplychain.integration.openapi.dto.TenantAppRequest;
 import com.fashion.supplychain.integration.openapi.dto.TenantAppResponse;
 import com.fashion.supplychain.integration.openapi.entity.TenantApp;
 import com.fashion.supplychain.integration.openapi.entity.TenantAppLog;
+import com.fashion.supplychain.integration.openapi.service.OpenApiGatewayGuard;
 import com.fashion.supplychain.integration.openapi.service.TenantAppLogService;
 import com.fashion.supplychain.integration.openapi.service.TenantAppService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.net.InetAddress;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -69,6 +69,9 @@ public class TenantAppOrchestrator {
     @Autowired
     private AesEncryptor aesEncryptor;
 
+    @Autowired
+    private OpenApiGatewayGuard gatewayGuard;
+
     /**
      * 密钥迁移逻辑已移除。
      *
@@ -225,6 +228,7 @@ public class TenantAppOrchestrator {
         }
 
         tenantAppService.updateById(app);
+        invalidateCredentialAfterCommit(app.getAppKey());
         return toResponse(app);
     }
 
@@ -239,6 +243,7 @@ public class TenantAppOrchestrator {
         }
         app.setStatus("active".equals(app.getStatus()) ? "disabled" : "active");
         tenantAppService.updateById(app);
+        invalidateCredentialAfterCommit(app.getAppKey());
         return toResponse(app);
     }
 
@@ -257,6 +262,7 @@ public class TenantAppOrchestrator {
         app.setAppSecret(aesEncryptor.encrypt(newSecret));
         app.setCallbackSecret(aesEncryptor.encrypt(newCallbackSecret));
         tenantAppService.updateById(app);
+        invalidateCredentialAfterCommit(app.getAppKey());
 
         TenantAppResponse resp = toResponse(app);
         resp.setAppSecret(newSecret);
@@ -274,18 +280,33 @@ public class TenantAppOrchestrator {
             throw new IllegalArgumentException("应用不存在");
         }
         tenantAppService.removeById(appId);
+        invalidateCredentialAfterCommit(app.getAppKey());
+    }
+
+    /** 提交后再失效，避免并发请求在提交前把旧数据重新装入凭证缓存 */
+    private void invalidateCredentialAfterCommit(String appKey) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    gatewayGuard.invalidate(appKey);
+                }
+            });
+        } else {
+            gatewayGuard.invalidate(appKey);
+        }
     }
 
     // ========== 开放API鉴权 ==========
 
     /**
      * 通过 appKey 验证并获取应用信息（用于开放API网关鉴权）
+     * 凭证、签名 Mac、配额计数与重放窗口均由 {@link OpenApiGatewayGuard} 在内存维护，正常调用不访问 DB。
+     * 返回的是缓存中的应用快照，调用方只读。
      */
     public TenantApp authenticateByAppKey(String appKey, String signature, String timestamp, String body) {
-        LambdaQueryWrapper<TenantApp> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(TenantApp::getAppKey, appKey);
-        wrapper.eq(TenantApp::getDeleteFlag, 0);
-        TenantApp app = tenantAppService.getOne(wrapper);
+        OpenApiGatewayGuard.Credential credential = gatewayGuard.getCredential(appKey);
+        TenantApp app = credential == null ? null : credential.getApp();
 
         if (app == null) {
             throw new SecurityException("无效的 appKey");
@@ -308,14 +329,17 @@ public class TenantAppOrchestrator {
             }
         }
 
-        String decryptedSecret = aesEncryptor.decrypt(app.getAppSecret());
-        String expectedSignature = hmacSha256(decryptedSecret, timestamp + (body != null ? body : ""));
-        if (!expectedSignature.equals(signature)) {
+        if (!credential.verify(timestamp + (body != null ? body : ""), signature)) {
             throw new SecurityException("签名验证失败");
         }
 
+        // 防重放：写调用的签名在时间戳窗口内只接受一次
+        if (body != null && !body.isEmpty() && !gatewayGuard.acceptOnce(appKey, signature)) {
+            throw new SecurityException("重复的请求签名，请使用新的时间戳重新签名");
+        }
+
         // 检查配额
-        checkAndIncrementQuota(app);
+        gatewayGuard.acquireQuota(app);
 
         return app;
     }
@@ -323,7 +347,7 @@ public class TenantAppOrchestrator {
     // ========== 调用日志 ==========
 
     /**
-     * 记录API调用日志
+     * 记录API调用日志（入队异步批量写入，不阻塞调用方）
      */
     public void logApiCall(String appId, Long tenantId, String appType, String direction,
                            String method, String path, String requestBody,
@@ -343,7 +367,8 @@ public class TenantAppOrchestrator {
         log.setResult(result);
         log.setErrorMessage(truncate(errorMessage, 500));
         log.setClientIp(clientIp);
-        tenantAppLogService.save(log);
+        log.setCreateTime(LocalDateTime.now());
+        gatewayGuard.enqueueLog(log);
     }
 
     /**
@@ -558,23 +583,6 @@ public class TenantAppOrchestrator {
         }
     }
 
-    private void checkAndIncrementQuota(TenantApp app) {
-        // 重置每日配额
-        if (app.getLastQuotaResetTime() == null ||
-            app.getLastQuotaResetTime().toLocalDate().isBefore(LocalDateTime.now().toLocalDate())) {
-            app.setDailyUsed(0);
-            app.setLastQuotaResetTime(LocalDateTime.now());
-        }
-
-        // 检查限额
-        if (app.getDailyQuota() != null && app.getDailyQuota() > 0 && app.getDailyUsed() >= app.getDailyQuota()) {
-            throw new SecurityException("今日调用次数已达上限(" + app.getDailyQuota() + ")");
-        }
-
-        // 递增计数
-        tenantAppService.atomicIncrementCallCount(app.getId(), app.getTenantId());
-    }
-
     private String generateAppKey(String appType) {
         String prefix;
         switch (appType) {
@@ -606,21 +614,6 @@ public class TenantAppOrchestrator {
         return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes).substring(0, length);
     }
 
-    private String hmacSha256(String secret, String data) {
-        try {
-            Mac mac = Mac.getInstance("HmacSHA256");
-            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
-            byte[] result = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : result) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (Exception e) {
-            throw new RuntimeException("签名计算失败", e);
-        }
-    }
-
     private String truncate(String str, int maxLen) {
         if (str == null) return null;
         return str.length() > maxLen ? str.substring(0, maxLen) : str;
@@ -0,0 +1,398 @@
+package com.fashion.supplychain.integration.openapi.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fashion.supplychain.common.util.AesEncryptor;
+import com.fashion.supplychain.integration.openapi.entity.TenantApp;
+import com.fashion.supplychain.integration.openapi.entity.TenantAppLog;
+import com.fashion.supplychain.integration.openapi.mapper.TenantAppMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 开放 API 网关热路径：凭证缓存、内存配额、防重放、调用日志异步批量落库
+ *
+ * - 凭证：按 appKey 缓存应用快照与已解密密钥（30s 过期）。改密/停用/删除先在本节点失效，
+ *   再经 Redis 频道 {@value #CHANNEL} 广播到所有节点（广播失败时其他节点依赖缓存过期兜底）。
+ *   HMAC 每次从预置密钥的原型 Mac clone 一份（只复制已算好 ipad/opad 的摘要状态），
+ *   不再每次 getInstance + init，也不依赖 ThreadLocal（虚拟线程下 ThreadLocal 每请求都是新的）。
+ * - 配额：当日调用数在内存累加，每 5s 以一条原子 UPDATE 刷回（跨日自动归零），
+ *   刷回后回读 daily_used 作为各节点共同的基线；多节点下超额误差不超过一个刷新周期的调用量。
+ *   跨日时尚未刷回的昨日调用只计入 total_calls，不占今日配额。
+ * - 防重放：带请求体的写调用以 (appKey, 签名) 为一次性凭据，在时间戳允许的偏差窗口内只接受一次；
+ *   有 Redis 时再用 SET NX 跨节点去重（Redis 异常时仅本地去重）。
+ *   无请求体的查询调用不做去重（同一秒内重复查询签名相同，且查询本身幂等）。
+ * - 日志：入队后由定时任务 saveBatch，队列满时丢弃并计数。
+ */
+@Slf4j
+@Service
+public class OpenApiGatewayGuard implements MessageListener {
+
+    static final String CHANNEL = "openapi:credential:invalidate";
+
+    /** 与 authenticateByAppKey 的时间戳偏差上限一致 */
+    private static final Duration REPLAY_WINDOW = Duration.ofMinutes(5);
+    private static final String REPLAY_KEY_PREFIX = "openapi:sig:";
+    private static final int LOG_QUEUE_CAPACITY = 20_000;
+    private static final int LOG_BATCH_SIZE = 500;
+
+    @Autowired
+    private TenantAppService tenantAppService;
+
+    @Autowired
+    private TenantAppMapper tenantAppMapper;
+
+    @Autowired
+    private TenantAppLogService tenantAppLogService;
+
+    @Autowired
+    private AesEncryptor aesEncryptor;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired(required = false)
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Value("${app.openapi.credential-cache-seconds:30}")
+    private long credentialCacheSeconds;
+
+    private Cache<String, Optional<Credential>> credentials;
+    private RedisMessageListenerContainer listenerContainer;
+
+    private final Cache<String, Boolean> seenSignatures = Caffeine.newBuilder()
+            .maximumSize(500_000)
+            .expireAfterWrite(REPLAY_WINDOW.multipliedBy(2))
+            .build();
+
+    private final ConcurrentHashMap<String, QuotaCounter> quotas = new ConcurrentHashMap<>();
+    private final ArrayBlockingQueue<TenantAppLog> logQueue = new ArrayBlockingQueue<>(LOG_QUEUE_CAPACITY);
+    private final AtomicLong droppedLogs = new AtomicLong();
+    private final AtomicLong replaysRejected = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        credentials = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, credentialCacheSeconds)))
+                .recordStats()
+                .build();
+        if (redisConnectionFactory != null) {
+            try {
+                listenerContainer = new RedisMessageListenerContainer();
+                listenerContainer.setConnectionFactory(redisConnectionFactory);
+                listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+                listenerContainer.afterPropertiesSet();
+                listenerContainer.start();
+            } catch (Exception e) {
+                listenerContainer = null;
+                log.warn("[OpenApiGateway] 凭证失效广播订阅失败，其他节点的改密/停用最迟 {}s 后生效: {}",
+                        credentialCacheSeconds, e.getMessage());
+            }
+        }
+    }
+
+    // ========== 凭证 ==========
+
+    /** 按 appKey 取凭证；不存在的 appKey 同样短暂缓存，避免随机 key 打穿到 DB */
+    public Credential getCredential(String appKey) {
+        if (appKey == null || appKey.isBlank()) {
+            return null;
+        }
+        return credentials.get(appKey, this::loadCredential).orElse(null);
+    }
+
+    private Optional<Credential> loadCredential(String appKey) {
+        LambdaQueryWrapper<TenantApp> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(TenantApp::getAppKey, appKey);
+        wrapper.eq(TenantApp::getDeleteFlag, 0);
+        TenantApp app = tenantAppService.getOne(wrapper);
+        if (app == null) {
+            return Optional.empty();
+        }
+        String secret = aesEncryptor.decrypt(app.getAppSecret());
+        return Optional.of(new Credential(app, secret));
+    }
+
+    /** 应用更新/停用/改密/删除后调用：本节点失效并广播 */
+    public void invalidate(String appKey) {
+        if (appKey == null) {
+            return;
+        }
+        credentials.invalidate(appKey);
+        if (stringRedisTemplate == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, appKey);
+        } catch (Exception e) {
+            log.warn("[OpenApiGateway] 凭证失效广播发送失败 appKey={}, 其他节点最迟 {}s 后过期: {}",
+                    appKey, credentialCacheSeconds, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        credentials.invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    // ========== 防重放 ==========
+
+    /**
+     * 签名首次出现返回 true；窗口内重复出现返回 false
+     */
+    public boolean acceptOnce(String appKey, String signature) {
+        String key = appKey + ":" + signature;
+        if (seenSignatures.asMap().putIfAbsent(key, Boolean.TRUE) != null) {
+            replaysRejected.incrementAndGet();
+            return false;
+        }
+        if (stringRedisTemplate != null) {
+            try {
+                Boolean first = stringRedisTemplate.opsForValue()
+                        .setIfAbsent(REPLAY_KEY_PREFIX + key, "1", REPLAY_WINDOW.multipliedBy(2));
+                if (Boolean.FALSE.equals(first)) {
+                    replaysRejected.incrementAndGet();
+                    return false;
+                }
+            } catch (Exception e) {
+                log.debug("[OpenApiGateway] Redis 去重不可用，仅本地去重: {}", e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    // ========== 配额 ==========
+
+    /**
+     * 占用一次当日配额；超限抛 SecurityException
+     */
+    public void acquireQuota(TenantApp app) {
+        QuotaCounter counter = quotas.computeIfAbsent(app.getId(),
+                id -> new QuotaCounter(app.getTenantId(), initialUsed(app)));
+        counter.rollIfNewDay();
+        Integer quota = app.getDailyQuota();
+        if (quota != null && quota > 0) {
+            if (counter.baseline.get() + counter.pending.get() >= quota) {
+                throw new SecurityException("今日调用次数已达上限(" + quota + ")");
+            }
+        }
+        counter.pending.incrementAndGet();
+    }
+
+    private static int initialUsed(TenantApp app) {
+        if (app.getLastQuotaResetTime() == null
+                || !app.getLastQuotaResetTime().toLocalDate().equals(LocalDate.now())) {
+            return 0;
+        }
+        return app.getDailyUsed() != null ? app.getDailyUsed() : 0;
+    }
+
+    /** 把各应用累积的调用数原子刷回 DB，并回读 daily_used 同步其他节点的用量 */
+    @Scheduled(fixedDelayString = "${app.openapi.quota-flush-ms:5000}", initialDelay = 10_000)
+    public void flushQuotas() {
+        if (quotas.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, QuotaCounter> e : quotas.entrySet()) {
+            QuotaCounter counter = e.getValue();
+            // 零点后本节点还没有请求时也要先换日，否则昨日未刷回的调用会被记到今天
+            counter.rollIfNewDay();
+            int carried = counter.carried.getAndSet(0);
+            if (carried > 0) {
+                try {
+                    tenantAppMapper.flushTotalCalls(e.getKey(), counter.tenantId, carried);
+                } catch (Exception ex) {
+                    counter.carried.addAndGet(carried);
+                    log.warn("[OpenApiGateway] 昨日调用计数刷回失败 appId={}, delta={}: {}", e.getKey(), carried, ex.getMessage());
+                }
+            }
+            // 先计入 baseline 再从 pending 扣除：刷回期间 baseline + pending 只会多算不会少算，配额不被超发
+            int delta = counter.pending.get();
+            if (delta <= 0) {
+                continue;
+            }
+            try {
+                tenantAppMapper.flushCallCount(e.getKey(), counter.tenantId, delta);
+                counter.baseline.addAndGet(delta);
+                counter.pending.addAndGet(-delta);
+            } catch (Exception ex) {
+                log.warn("[OpenApiGateway] 调用计数刷回失败 appId={}, delta={}: {}", e.getKey(), delta, ex.getMessage());
+            }
+        }
+        // 本节点空闲的应用也回读，避免其他节点的用量在本节点长期不可见
+        try {
+            for (TenantApp app : tenantAppService.listByIds(new ArrayList<>(quotas.keySet()))) {
+                QuotaCounter counter = quotas.get(app.getId());
+                if (counter != null) {
+                    counter.baseline.set(initialUsed(app));
+                }
+            }
+        } catch (Exception ex) {
+            log.debug("[OpenApiGateway] 回读 daily_used 失败: {}", ex.getMessage());
+        }
+    }
+
+    // ========== 调用日志 ==========
+
+    public void enqueueLog(TenantAppLog entry) {
+        if (!logQueue.offer(entry)) {
+            long dropped = droppedLogs.incrementAndGet();
+            if (dropped % 1000 == 1) {
+                log.warn("[OpenApiGateway] 调用日志队列已满，累计丢弃 {} 条", dropped);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.openapi.log-flush-ms:2000}", initialDelay = 10_000)
+    public void flushLogs() {
+        List<TenantAppLog> batch = new ArrayList<>(LOG_BATCH_SIZE);
+        while (logQueue.drainTo(batch, LOG_BATCH_SIZE) > 0) {
+            try {
+                tenantAppLogService.saveBatch(batch, LOG_BATCH_SIZE);
+            } catch (Exception e) {
+                log.warn("[OpenApiGateway] 调用日志批量写入失败 size={}: {}", batch.size(), e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushQuotas();
+        flushLogs();
+        if (listenerContainer != null) {
+            try {
+                listenerContainer.destroy();
+            } catch (Exception e) {
+                log.debug("[OpenApiGateway] 关闭订阅容器失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        var cs = credentials.stats();
+        stats.put("credentialHitRate", Math.round(cs.hitRate() * 10000) / 10000.0);
+        stats.put("credentialLoads", cs.loadCount());
+        stats.put("replaysRejected", replaysRejected.get());
+        stats.put("pendingLogs", logQueue.size());
+        stats.put("droppedLogs", droppedLogs.get());
+        int pendingCalls = 0;
+        for (QuotaCounter c : quotas.values()) {
+            pendingCalls += c.pending.get();
+        }
+        stats.put("pendingQuotaCalls", pendingCalls);
+        return stats;
+    }
+
+    /** 缓存的应用凭证：应用快照（只读）+ 预置密钥的 HMAC 原型 */
+    public static final class Credential {
+        private final TenantApp app;
+        private final SecretKeySpec key;
+        /** 只用于 clone，本身从不 update/doFinal */
+        private final Mac prototype;
+
+        private Credential(TenantApp app, String secret) {
+            this.app = app;
+            this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+            this.prototype = newMac(key);
+        }
+
+        private static Mac newMac(SecretKeySpec key) {
+            try {
+                Mac m = Mac.getInstance("HmacSHA256");
+                m.init(key);
+                return m;
+            } catch (Exception e) {
+                throw new IllegalStateException("签名计算失败", e);
+            }
+        }
+
+        private Mac mac() {
+            try {
+                return (Mac) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                // 提供者不支持 clone 时退回逐次初始化
+                return newMac(key);
+            }
+        }
+
+        public TenantApp getApp() {
+            return app;
+        }
+
+        /** HMAC-SHA256 小写十六进制 */
+        public String sign(String data) {
+            Mac m = mac();
+            return HexFormat.of().formatHex(m.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        /** 常量时间比较，避免按字节提前返回泄露签名前缀 */
+        public boolean verify(String data, String signature) {
+            if (signature == null) {
+                return false;
+            }
+            return MessageDigest.isEqual(sign(data).getBytes(StandardCharsets.US_ASCII),
+                    signature.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    private static final class QuotaCounter {
+        private final Long tenantId;
+        /** 截至上次刷回时 DB 中的当日用量（含其他节点） */
+        private final AtomicInteger baseline;
+        /** 本节点尚未刷回的调用数 */
+        private final AtomicInteger pending = new AtomicInteger();
+        /** 换日时尚未刷回的昨日调用数：只计入 total_calls，不占今日配额 */
+        private final AtomicInteger carried = new AtomicInteger();
+        private volatile LocalDate day = LocalDate.now();
+
+        QuotaCounter(Long tenantId, int used) {
+            this.tenantId = tenantId;
+            this.baseline = new AtomicInteger(used);
+        }
+
+        void rollIfNewDay() {
+            LocalDate today = LocalDate.now();
+            if (!today.equals(day)) {
+                synchronized (this) {
+                    if (!today.equals(day)) {
+                        day = today;
+                        carried.addAndGet(pending.getAndSet(0));
+                        baseline.set(0);
+                    }
+                }
+            }
+        }
+    }
+}
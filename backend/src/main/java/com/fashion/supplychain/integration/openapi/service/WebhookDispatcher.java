@@ -0,0 +1,406 @@
+package com.fashion.supplychain.integration.openapi.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fashion.supplychain.integration.openapi.entity.TenantApp;
+import com.fashion.supplychain.integration.openapi.entity.WebhookOutbox;
+import com.fashion.supplychain.integration.openapi.orchestration.TenantAppOrchestrator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Webhook 投递调度器
+ * 从 t_webhook_outbox 认领到期事件，按目标应用（端点）分组后投递到独立线程池
+ *
+ * 隔离策略：
+ * - 每个端点一个信号量，最多 perEndpointConcurrency 个请求在途；额度用尽的事件归还发件箱，下轮再投
+ * - 独立 webhookDeliveryExecutor 线程池，慢客户端不再占用全局 @Async 线程
+ * - JDK HttpClient 复用连接（按主机保持长连接），连接/读取均有超时
+ *
+ * 重试：失败按 base * 2^attempts 指数退避（带 ±20% 抖动，上限 1 小时），超过 maxAttempts 置为 DEAD
+ *
+ * 批量（客户自愿开启）：应用 configJson 中配置 {"webhookBatchEnabled": true, "webhookBatchSize": 50}，
+ * 同一端点的多个事件合并为一次 POST：{"batch": true, "events": [...]}，请求头 X-Webhook-Event=batch
+ */
+@Slf4j
+@Component
+public class WebhookDispatcher {
+
+    @Autowired
+    private WebhookOutboxService webhookOutboxService;
+
+    @Autowired
+    private TenantAppService tenantAppService;
+
+    @Autowired
+    private TenantAppOrchestrator tenantAppOrchestrator;
+
+    @Autowired
+    @Qualifier("webhookDeliveryExecutor")
+    private Executor deliveryExecutor;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.webhook.per-endpoint-concurrency:2}")
+    private int perEndpointConcurrency;
+
+    @Value("${app.webhook.claim-batch-size:200}")
+    private int claimBatchSize;
+
+    @Value("${app.webhook.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.webhook.backoff-base-seconds:10}")
+    private long backoffBaseSeconds;
+
+    @Value("${app.webhook.connect-timeout-ms:3000}")
+    private long connectTimeoutMs;
+
+    @Value("${app.webhook.request-timeout-ms:5000}")
+    private long requestTimeoutMs;
+
+    @Value("${app.webhook.max-batch-size:50}")
+    private int maxBatchSize;
+
+    @Value("${app.webhook.retention-days:7}")
+    private int retentionDays;
+
+    private static final long MAX_BACKOFF_SECONDS = 3600L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicBoolean dispatching = new AtomicBoolean(false);
+
+    private final Map<String, Semaphore> endpointPermits = new ConcurrentHashMap<>();
+
+    private final Map<String, EndpointStats> endpointStats = new ConcurrentHashMap<>();
+
+    /** 端点配置缓存：应用状态/回调地址/批量开关变更后最多 60 秒生效 */
+    private final Cache<String, Optional<Endpoint>> endpointCache = Caffeine.newBuilder()
+            .maximumSize(2000)
+            .expireAfterWrite(60, TimeUnit.SECONDS)
+            .build();
+
+    private HttpClient httpClient;
+
+    @PostConstruct
+    public void initHttpClient() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    /**
+     * 业务事务提交后触发一次即时投递（不等轮询周期）
+     */
+    public void requestDispatch() {
+        try {
+            deliveryExecutor.execute(this::dispatchDue);
+        } catch (RejectedExecutionException e) {
+            log.debug("[Webhook] 投递线程池繁忙，等待下一轮轮询");
+        }
+    }
+
+    /**
+     * 轮询兜底：认领到期事件并投递（含重试和崩溃节点遗留的租约过期事件）
+     */
+    @Scheduled(fixedDelayString = "${app.webhook.poll-interval-ms:2000}", initialDelay = 30_000)
+    public void dispatchDue() {
+        if (!dispatching.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<WebhookOutbox> claimed = webhookOutboxService.claimDue(claimBatchSize, leaseSeconds());
+            if (claimed.isEmpty()) {
+                return;
+            }
+            Map<String, List<WebhookOutbox>> byApp = claimed.stream()
+                    .collect(Collectors.groupingBy(WebhookOutbox::getAppId, LinkedHashMap::new, Collectors.toList()));
+            byApp.forEach(this::dispatchEndpoint);
+        } catch (Exception e) {
+            log.error("[Webhook] 发件箱轮询失败: {}", e.getMessage(), e);
+        } finally {
+            dispatching.set(false);
+        }
+    }
+
+    private void dispatchEndpoint(String appId, List<WebhookOutbox> events) {
+        Endpoint endpoint = resolveEndpoint(appId);
+        if (endpoint == null) {
+            webhookOutboxService.markFailed(events, 0, "应用已停用/删除或未配置回调地址", 1, 0);
+            return;
+        }
+        int chunkSize = endpoint.batchEnabled() ? endpoint.batchSize() : 1;
+        Semaphore permits = endpointPermits.computeIfAbsent(appId, k -> new Semaphore(perEndpointConcurrency));
+        List<Long> deferred = new ArrayList<>();
+        for (int i = 0; i < events.size(); i += chunkSize) {
+            List<WebhookOutbox> chunk = events.subList(i, Math.min(i + chunkSize, events.size()));
+            if (!permits.tryAcquire()) {
+                chunk.forEach(e -> deferred.add(e.getId()));
+                continue;
+            }
+            try {
+                deliveryExecutor.execute(() -> {
+                    try {
+                        deliver(endpoint, chunk);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                chunk.forEach(ev -> deferred.add(ev.getId()));
+            }
+        }
+        if (!deferred.isEmpty()) {
+            webhookOutboxService.release(deferred);
+        }
+    }
+
+    private void deliver(Endpoint endpoint, List<WebhookOutbox> chunk) {
+        TenantApp app = endpoint.app();
+        boolean batch = chunk.size() > 1 || endpoint.batchEnabled();
+        String eventType = batch ? "batch" : chunk.get(0).getEventType();
+        String body = batch ? buildBatchBody(chunk) : chunk.get(0).getPayload();
+        String deliveryIds = chunk.stream().map(e -> String.valueOf(e.getId())).collect(Collectors.joining(","));
+
+        long start = System.nanoTime();
+        int responseCode = 0;
+        String responseBody = null;
+        String error = null;
+        try {
+            String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(app.getCallbackUrl()))
+                    .timeout(Duration.ofMillis(requestTimeoutMs))
+                    .header("Content-Type", "application/json")
+                    .header("X-Webhook-Event", eventType)
+                    .header("X-Webhook-Id", deliveryIds)
+                    .header("X-Timestamp", timestamp)
+                    .header("X-App-Key", app.getAppKey())
+                    .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+            if (StringUtils.hasText(app.getCallbackSecret())) {
+                request.header("X-Signature", hmacSha256(app.getCallbackSecret(), timestamp + body));
+            }
+            HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            responseCode = response.statusCode();
+            responseBody = response.body();
+            if (responseCode < 200 || responseCode >= 300) {
+                error = "HTTP " + responseCode;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "投递被中断";
+        } catch (Exception e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        long costMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        String result;
+        List<Long> ids = chunk.stream().map(WebhookOutbox::getId).collect(Collectors.toList());
+        if (error == null) {
+            result = "SUCCESS";
+            webhookOutboxService.markSuccess(ids, responseCode);
+            log.info("[Webhook] 推送成功: app={}, event={}, count={}, status={}, cost={}ms",
+                    app.getAppName(), eventType, chunk.size(), responseCode, costMs);
+        } else {
+            result = responseCode > 0 ? "FAILED" : "ERROR";
+            int attempts = chunk.get(0).getAttempts() == null ? 0 : chunk.get(0).getAttempts();
+            webhookOutboxService.markFailed(chunk, responseCode, error, maxAttempts, backoffSeconds(attempts));
+            log.warn("[Webhook] 推送失败: app={}, event={}, count={}, attempt={}, error={}",
+                    app.getAppName(), eventType, chunk.size(), attempts + 1, error);
+        }
+        recordMetrics(app, result, costMs, error);
+
+        // 记录推送日志（direction=OUTBOUND）
+        try {
+            tenantAppOrchestrator.logApiCall(
+                    app.getId(), app.getTenantId(), app.getAppType(),
+                    "OUTBOUND", "POST", app.getCallbackUrl(),
+                    body, responseCode, responseBody, costMs,
+                    result, error, "SYSTEM");
+        } catch (Exception e) {
+            log.warn("[Webhook] 审计日志写入失败: appId={}, url={}", app.getId(), app.getCallbackUrl(), e);
+        }
+    }
+
+    private String buildBatchBody(List<WebhookOutbox> chunk) {
+        // payload 本身已是 JSON，直接拼接，避免反序列化再序列化
+        StringBuilder sb = new StringBuilder(64 + chunk.size() * 256);
+        sb.append("{\"batch\":true,\"events\":[");
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(chunk.get(i).getPayload());
+        }
+        return sb.append("]}").toString();
+    }
+
+    long backoffSeconds(int attemptsSoFar) {
+        long base = backoffBaseSeconds << Math.min(attemptsSoFar, 16);
+        long capped = Math.min(base, MAX_BACKOFF_SECONDS);
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return Math.max(1L, (long) (capped * jitter));
+    }
+
+    private int leaseSeconds() {
+        // 租约需覆盖：排队 + 连接超时 + 请求超时，留足余量
+        return (int) Math.max(60, TimeUnit.MILLISECONDS.toSeconds(connectTimeoutMs + requestTimeoutMs) * 4);
+    }
+
+    private Endpoint resolveEndpoint(String appId) {
+        return endpointCache.get(appId, id -> Optional.ofNullable(loadEndpoint(id))).orElse(null);
+    }
+
+    private Endpoint loadEndpoint(String appId) {
+        TenantApp app = tenantAppService.getById(appId);
+        if (app == null || !"active".equals(app.getStatus())
+                || (app.getDeleteFlag() != null && app.getDeleteFlag() != 0)
+                || !StringUtils.hasText(app.getCallbackUrl())) {
+            return null;
+        }
+        boolean batchEnabled = false;
+        int batchSize = maxBatchSize;
+        if (StringUtils.hasText(app.getConfigJson())) {
+            try {
+                JsonNode config = objectMapper.readTree(app.getConfigJson());
+                batchEnabled = config.path("webhookBatchEnabled").asBoolean(false);
+                int configured = config.path("webhookBatchSize").asInt(maxBatchSize);
+                batchSize = Math.max(1, Math.min(configured, maxBatchSize));
+            } catch (Exception e) {
+                log.debug("[Webhook] 应用配置解析失败，按单条推送: appId={}", appId);
+            }
+        }
+        return new Endpoint(app, batchEnabled, batchSize);
+    }
+
+    private void recordMetrics(TenantApp app, String result, long costMs, String error) {
+        EndpointStats stats = endpointStats.computeIfAbsent(app.getId(),
+                k -> new EndpointStats(app.getTenantId(), app.getAppName()));
+        stats.record(costMs, "SUCCESS".equals(result), error);
+        if (meterRegistry != null) {
+            Timer.builder("webhook.delivery")
+                    .description("Webhook 投递耗时（按应用类型聚合，单端点明细见 webhook-stats）")
+                    .tag("appType", app.getAppType() != null ? app.getAppType() : "")
+                    .tag("result", result)
+                    .register(meterRegistry)
+                    .record(costMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 端点投递统计（本节点自启动以来）
+     *
+     * @param tenantId 租户ID，null 表示全部（超管）
+     */
+    public List<Map<String, Object>> getEndpointStats(Long tenantId) {
+        List<Map<String, Object>> list = new ArrayList<>();
+        endpointStats.forEach((appId, s) -> {
+            if (tenantId != null && !tenantId.equals(s.tenantId)) {
+                return;
+            }
+            long success = s.success.sum();
+            long failure = s.failure.sum();
+            long total = success + failure;
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("appId", appId);
+            row.put("appName", s.appName);
+            row.put("successCount", success);
+            row.put("failureCount", failure);
+            row.put("avgLatencyMs", total == 0 ? 0 : s.totalLatencyMs.sum() / total);
+            row.put("maxLatencyMs", s.maxLatencyMs.get());
+            row.put("lastLatencyMs", s.lastLatencyMs);
+            row.put("lastError", s.lastError);
+            row.put("inFlight", perEndpointConcurrency - endpointPermits
+                    .getOrDefault(appId, new Semaphore(perEndpointConcurrency)).availablePermits());
+            list.add(row);
+        });
+        return list;
+    }
+
+    /**
+     * 清理已投递成功的历史事件（DEAD 保留，便于人工排查）
+     */
+    @Scheduled(cron = "0 40 4 * * ?")
+    public void purgeDelivered() {
+        try {
+            boolean removed = webhookOutboxService.remove(new LambdaQueryWrapper<WebhookOutbox>()
+                    .eq(WebhookOutbox::getStatus, WebhookOutbox.STATUS_SUCCESS)
+                    .lt(WebhookOutbox::getSentTime, LocalDateTime.now().minusDays(retentionDays)));
+            log.info("[Webhook] 发件箱历史清理完成: removed={}", removed);
+        } catch (Exception e) {
+            log.warn("[Webhook] 发件箱历史清理失败: {}", e.getMessage());
+        }
+    }
+
+    private String hmacSha256(String secret, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new RuntimeException("签名计算失败", e);
+        }
+    }
+
+    private record Endpoint(TenantApp app, boolean batchEnabled, int batchSize) {
+    }
+
+    private static final class EndpointStats {
+        private final Long tenantId;
+        private final String appName;
+        private final LongAdder success = new LongAdder();
+        private final LongAdder failure = new LongAdder();
+        private final LongAdder totalLatencyMs = new LongAdder();
+        private final AtomicLong maxLatencyMs = new AtomicLong();
+        private volatile long lastLatencyMs;
+        private volatile String lastError;
+
+        private EndpointStats(Long tenantId, String appName) {
+            this.tenantId = tenantId;
+            this.appName = appName;
+        }
+
+        private void record(long costMs, boolean ok, String error) {
+            (ok ? success : failure).increment();
+            totalLatencyMs.add(costMs);
+            maxLatencyMs.accumulateAndGet(costMs, Math::max);
+            lastLatencyMs = costMs;
+            if (!ok) {
+                lastError = error;
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.fashion.supplychain.integration.openapi.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.fashion.supplychain.integration.openapi.entity.WebhookOutbox;
+
+import java.util.List;
+
+public interface WebhookOutboxService extends IService<WebhookOutbox> {
+
+    /**
+     * 认领一批到期事件（PENDING 且到达重试时间，或 SENDING 但租约已过期）
+     * 通过条件更新抢占，多实例部署时同一事件只会被一个节点认领
+     *
+     * @param limit        单次认领上限
+     * @param leaseSeconds 租约时长（秒）
+     * @return 本节点成功认领的事件
+     */
+    List<WebhookOutbox> claimDue(int limit, int leaseSeconds);
+
+    /**
+     * 归还认领（端点并发已满、线程池拒绝等非投递失败场景），不计入重试次数
+     */
+    void release(List<Long> ids);
+
+    void markSuccess(List<Long> ids, int responseCode);
+
+    /**
+     * 投递失败：未超过最大次数则按退避时间重排为 PENDING，否则置为 DEAD
+     */
+    void markFailed(List<WebhookOutbox> events, int responseCode, String error, int maxAttempts, long backoffSeconds);
+}
@@ -1,22 +1,26 @@
 package com.fashion.supplychain.integration.openapi.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.integration.openapi.entity.TenantApp;
-import com.fashion.supplychain.integration.openapi.orchestration.TenantAppOrchestrator;
+import com.fashion.supplychain.integration.openapi.entity.WebhookOutbox;
+import com.fashion.supplychain.integration.openapi.mapper.WebhookOutboxMapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.*;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
-import org.springframework.web.client.RestTemplate;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Webhook 推送服务
@@ -28,6 +32,9 @@ import java.util.*;
  * - order.status_changed: 订单状态变更 → 推送到 ORDER_SYNC 类型的应用回调地址
  * - payment.reconciled: 对账单生成 → 推送到 PAYMENT_SYNC 类型的应用回调地址
  *
+ * 投递方式：事件先写入 t_webhook_outbox（与业务同事务），由 WebhookDispatcher
+ * 按端点限流、指数退避重试地异步投递，进程重启不丢事件
+ *
  * 查看推送记录：【客户应用管理】→ 选择应用 → 查看调用日志（direction=OUTBOUND）
  */
 @Slf4j
@@ -38,11 +45,22 @@ public class WebhookPushService {
     private TenantAppService tenantAppService;
 
     @Autowired
-    private TenantAppOrchestrator tenantAppOrchestrator;
+    private WebhookOutboxMapper webhookOutboxMapper;
+
+    @Autowired
+    private WebhookDispatcher webhookDispatcher;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
 
-    private final RestTemplate restTemplate = new RestTemplate();
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    /** 租户+应用类型 → 活跃应用；应用启停/改回调地址后最多 30 秒生效 */
+    private final Cache<String, List<TenantApp>> activeAppCache = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(30, TimeUnit.SECONDS)
+            .build();
+
     /**
      * 质检完成推送 — 推送到所有 QUALITY_FEEDBACK 类型的活跃应用
      * 触发时机：质检入库完成后调用
@@ -54,7 +72,6 @@ public class WebhookPushService {
      * @param unqualifiedQty 不合格数量
      * @param details 附加详情
      */
-    @Async
     public void pushQualityResult(String orderNo, String processName,
                                   int qualifiedQty, int unqualifiedQty,
                                   Map<String, Object> details) {
@@ -83,7 +100,6 @@ public class WebhookPushService {
      * @param warehouse 发货仓库
      * @param details 附加详情（物流单号等）
      */
-    @Async
     public void pushLogisticsUpdate(String orderNo, String outstockNo,
                                     int quantity, String warehouse,
                                     Map<String, Object> details) {
@@ -106,7 +122,6 @@ public class WebhookPushService {
      * 触发时机：订单状态发生变化时调用
      * 客户在哪里看：客户系统收到 Webhook 回调；我方在【客户应用管理→调用日志】查看
      */
-    @Async
     public void pushOrderStatusChange(String orderNo, String oldStatus, String newStatus,
                                       Map<String, Object> details) {
         Map<String, Object> payload = new LinkedHashMap<>();
@@ -127,7 +142,6 @@ public class WebhookPushService {
      * 触发时机：对账单审批通过后调用
      * 客户在哪里看：客户系统收到 Webhook 回调；我方在【财务管理→订单结算】查看
      */
-    @Async
     public void pushReconciliationCreated(String orderNo, String reconciliationId,
                                           java.math.BigDecimal totalAmount,
                                           Map<String, Object> details) {
@@ -149,110 +163,76 @@ public class WebhookPushService {
     // ========== 内部推送逻辑 ==========
 
     /**
-     * 按应用类型推送给所有活跃应用
+     * 按应用类型写入发件箱（每个活跃应用一行）
+     * 在调用方事务内执行：业务回滚则事件一并回滚；提交后立即触发一次投递。
+     * 写入失败计数（webhook.outbox.insert.failed）并向调用方抛出，不静默丢弃事件
      */
     private void pushToAppsByType(String appType, Map<String, Object> payload) {
-        try {
-            // 查询所有该类型的活跃应用
-            LambdaQueryWrapper<TenantApp> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(TenantApp::getAppType, appType);
-            wrapper.eq(TenantApp::getStatus, "active");
-            wrapper.eq(TenantApp::getDeleteFlag, 0);
-            wrapper.isNotNull(TenantApp::getCallbackUrl);
-            List<TenantApp> apps = tenantAppService.list(wrapper);
-
-            if (apps.isEmpty()) {
-                log.debug("[Webhook] 无活跃的 {} 类型应用，跳过推送", appType);
-                return;
-            }
+        List<TenantApp> apps = activeAppsByType(appType);
+        if (apps.isEmpty()) {
+            log.debug("[Webhook] 无活跃的 {} 类型应用，跳过推送", appType);
+            return;
+        }
 
+        String eventType = (String) payload.get("event");
+        try {
+            String jsonBody = objectMapper.writeValueAsString(payload);
+            LocalDateTime now = LocalDateTime.now();
             for (TenantApp app : apps) {
-                if (!StringUtils.hasText(app.getCallbackUrl())) {
-                    continue;
-                }
-                pushToSingleApp(app, payload);
+                WebhookOutbox outbox = new WebhookOutbox();
+                outbox.setTenantId(app.getTenantId());
+                outbox.setAppId(app.getId());
+                outbox.setAppType(appType);
+                outbox.setEventType(eventType);
+                outbox.setPayload(jsonBody);
+                outbox.setStatus(WebhookOutbox.STATUS_PENDING);
+                outbox.setAttempts(0);
+                outbox.setNextAttemptTime(now);
+                webhookOutboxMapper.insert(outbox);
             }
         } catch (Exception e) {
-            log.error("[Webhook] 推送失败 type={}: {}", appType, e.getMessage());
+            if (meterRegistry != null) {
+                Counter.builder("webhook.outbox.insert.failed")
+                        .description("Webhook 发件箱写入失败次数")
+                        .tag("appType", appType)
+                        .register(meterRegistry)
+                        .increment();
+            }
+            log.error("[Webhook] 写入发件箱失败，事件未入队: type={}, event={}, apps={}",
+                    appType, eventType, apps.size(), e);
+            throw new IllegalStateException("Webhook 事件写入发件箱失败: " + eventType, e);
         }
+        triggerDispatchAfterCommit();
     }
 
     /**
-     * 推送到单个应用（带签名 + 重试）
+     * 当前租户下该类型的活跃应用（短时缓存，避免每个业务事件都查 t_tenant_app）
      */
-    private void pushToSingleApp(TenantApp app, Map<String, Object> payload) {
-        long start = System.currentTimeMillis();
-        String responseBody = null;
-        int responseCode = 0;
-        String result = "SUCCESS";
-        String errorMessage = null;
-
-        try {
-            String jsonBody = objectMapper.writeValueAsString(payload);
-            String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
-
-            // 构建请求头（带签名）
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("X-Webhook-Event", (String) payload.get("event"));
-            headers.set("X-Timestamp", timestamp);
-            headers.set("X-App-Key", app.getAppKey());
-
-            // 使用 callbackSecret 签名
-            if (StringUtils.hasText(app.getCallbackSecret())) {
-                String signature = hmacSha256(app.getCallbackSecret(), timestamp + jsonBody);
-                headers.set("X-Signature", signature);
-            }
-
-            HttpEntity<String> entity = new HttpEntity<>(jsonBody, headers);
-
-            // 发送请求（3秒超时）
-            ResponseEntity<String> response = restTemplate.exchange(
-                    app.getCallbackUrl(), HttpMethod.POST, entity, String.class);
-
-            responseCode = response.getStatusCode().value();
-            responseBody = response.getBody();
-
-            if (!response.getStatusCode().is2xxSuccessful()) {
-                result = "FAILED";
-                errorMessage = "HTTP " + responseCode;
-            }
-
-            log.info("[Webhook] 推送成功: app={}, event={}, url={}, status={}",
-                    app.getAppName(), payload.get("event"), app.getCallbackUrl(), responseCode);
-
-        } catch (Exception e) {
-            result = "ERROR";
-            responseCode = 0;
-            errorMessage = e.getMessage();
-            log.warn("[Webhook] 推送失败: app={}, event={}, url={}, error={}",
-                    app.getAppName(), payload.get("event"), app.getCallbackUrl(), e.getMessage());
-        }
-
-        // 记录推送日志（direction=OUTBOUND）
-        long costMs = System.currentTimeMillis() - start;
-        try {
-            String requestBody = objectMapper.writeValueAsString(payload);
-            tenantAppOrchestrator.logApiCall(
-                    app.getId(), app.getTenantId(), app.getAppType(),
-                    "OUTBOUND", "POST", app.getCallbackUrl(),
-                    requestBody, responseCode, responseBody, costMs,
-                    result, errorMessage, "SYSTEM");
-        } catch (Exception e) {
-            log.warn("[Webhook] 审计日志写入失败: appId={}, url={}", app.getId(), app.getCallbackUrl(), e);
-        }
+    private List<TenantApp> activeAppsByType(String appType) {
+        Long tenantId = UserContext.tenantId();
+        String cacheKey = (tenantId != null ? tenantId : "*") + ":" + appType;
+        return activeAppCache.get(cacheKey, k -> {
+            LambdaQueryWrapper<TenantApp> wrapper = new LambdaQueryWrapper<>();
+            wrapper.eq(TenantApp::getAppType, appType);
+            wrapper.eq(TenantApp::getStatus, "active");
+            wrapper.eq(TenantApp::getDeleteFlag, 0);
+            wrapper.isNotNull(TenantApp::getCallbackUrl);
+            return tenantAppService.list(wrapper).stream()
+                    .filter(app -> StringUtils.hasText(app.getCallbackUrl()))
+                    .collect(Collectors.toList());
+        });
     }
 
-    private String hmacSha256(String secret, String data) {
-        try {
-            Mac mac = Mac.getInstance("HmacSHA256");
-            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
-            byte[] bytes = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : bytes) sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (Exception e) {
-            throw new RuntimeException("签名计算失败", e);
+    private void triggerDispatchAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    webhookDispatcher.requestDispatch();
+                }
+            });
+        } else {
+            webhookDispatcher.requestDispatch();
         }
     }
 }
@@ -0,0 +1,91 @@
+package com.fashion.supplychain.integration.openapi.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.fashion.supplychain.integration.openapi.entity.WebhookOutbox;
+import com.fashion.supplychain.integration.openapi.mapper.WebhookOutboxMapper;
+import com.fashion.supplychain.integration.openapi.service.WebhookOutboxService;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class WebhookOutboxServiceImpl extends ServiceImpl<WebhookOutboxMapper, WebhookOutbox> implements WebhookOutboxService {
+
+    @Override
+    public List<WebhookOutbox> claimDue(int limit, int leaseSeconds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<WebhookOutbox> candidates = list(new LambdaQueryWrapper<WebhookOutbox>()
+                .and(w -> w.eq(WebhookOutbox::getStatus, WebhookOutbox.STATUS_PENDING)
+                        .le(WebhookOutbox::getNextAttemptTime, now)
+                        .or(o -> o.eq(WebhookOutbox::getStatus, WebhookOutbox.STATUS_SENDING)
+                                .lt(WebhookOutbox::getLeaseUntil, now)))
+                .orderByAsc(WebhookOutbox::getId)
+                .last("LIMIT " + limit));
+        List<WebhookOutbox> claimed = new ArrayList<>(candidates.size());
+        LocalDateTime leaseUntil = now.plusSeconds(leaseSeconds);
+        for (WebhookOutbox e : candidates) {
+            // 以读到的状态 + 次数做乐观抢占，失败说明已被其他节点认领
+            int updated = baseMapper.update(null, new LambdaUpdateWrapper<WebhookOutbox>()
+                    .set(WebhookOutbox::getStatus, WebhookOutbox.STATUS_SENDING)
+                    .set(WebhookOutbox::getLeaseUntil, leaseUntil)
+                    .eq(WebhookOutbox::getId, e.getId())
+                    .eq(WebhookOutbox::getStatus, e.getStatus())
+                    .eq(WebhookOutbox::getAttempts, e.getAttempts()));
+            if (updated == 1) {
+                e.setStatus(WebhookOutbox.STATUS_SENDING);
+                e.setLeaseUntil(leaseUntil);
+                claimed.add(e);
+            }
+        }
+        return claimed;
+    }
+
+    @Override
+    public void release(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        update(new LambdaUpdateWrapper<WebhookOutbox>()
+                .set(WebhookOutbox::getStatus, WebhookOutbox.STATUS_PENDING)
+                .set(WebhookOutbox::getLeaseUntil, null)
+                .in(WebhookOutbox::getId, ids)
+                .eq(WebhookOutbox::getStatus, WebhookOutbox.STATUS_SENDING));
+    }
+
+    @Override
+    public void markSuccess(List<Long> ids, int responseCode) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        update(new LambdaUpdateWrapper<WebhookOutbox>()
+                .set(WebhookOutbox::getStatus, WebhookOutbox.STATUS_SUCCESS)
+                .set(WebhookOutbox::getLastResponseCode, responseCode)
+                .set(WebhookOutbox::getLastError, null)
+                .set(WebhookOutbox::getSentTime, now)
+                .setSql("attempts = attempts + 1")
+                .in(WebhookOutbox::getId, ids));
+    }
+
+    @Override
+    public void markFailed(List<WebhookOutbox> events, int responseCode, String error, int maxAttempts, long backoffSeconds) {
+        LocalDateTime next = LocalDateTime.now().plusSeconds(backoffSeconds);
+        String truncated = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        for (WebhookOutbox e : events) {
+            int attempts = (e.getAttempts() == null ? 0 : e.getAttempts()) + 1;
+            boolean dead = attempts >= maxAttempts;
+            update(new LambdaUpdateWrapper<WebhookOutbox>()
+                    .set(WebhookOutbox::getStatus, dead ? WebhookOutbox.STATUS_DEAD : WebhookOutbox.STATUS_PENDING)
+                    .set(WebhookOutbox::getAttempts, attempts)
+                    .set(WebhookOutbox::getNextAttemptTime, next)
+                    .set(WebhookOutbox::getLeaseUntil, null)
+                    .set(WebhookOutbox::getLastResponseCode, responseCode)
+                    .set(WebhookOutbox::getLastError, truncated)
+                    .eq(WebhookOutbox::getId, e.getId()));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.fashion.supplychain.intelligence.agent;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+
+/**
+ * 智能体链路共享 JSON 层。
+ *
+ * <ul>
+ *   <li>{@link #MAPPER}：全链路共用一个 ObjectMapper（默认配置，与原各类 new ObjectMapper() 输出一致），
+ *       序列化器缓存只构建一次；ObjectMapper 线程安全，禁止调用方 configure/register 修改它</li>
+ *   <li>{@link #isError(String)}：流式扫描工具结果顶层字段判定失败，不建树、不依赖字段顺序
+ *       （替代 startsWith("{\"error\"")，后者对 {"success":false,"error":...} 判定失效）</li>
+ *   <li>{@link #write}/{@link #writeBytes}：直接用 JsonGenerator 输出，省去中间 Map / JsonNode 树</li>
+ * </ul>
+ */
+public final class AgentJson {
+
+    public static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+
+    /** 判定错误时最多扫描的顶层字段数；各处构造的错误结果 error/success 都在前几个字段 */
+    private static final int ERROR_PROBE_MAX_FIELDS = 16;
+
+    private AgentJson() {
+    }
+
+    @FunctionalInterface
+    public interface GeneratorWriter {
+        void write(JsonGenerator gen) throws IOException;
+    }
+
+    /** 用 JsonGenerator 直接写出 JSON 字符串（生成器的 codec 为 {@link #MAPPER}，可 writeObjectField 任意对象） */
+    public static String write(GeneratorWriter writer) throws IOException {
+        StringWriter out = new StringWriter(256);
+        try (JsonGenerator gen = FACTORY.createGenerator(out)) {
+            writer.write(gen);
+        }
+        return out.toString();
+    }
+
+    /** 同 {@link #write}，直接输出 UTF-8 字节（HTTP 请求体用，省去 String → byte[] 的二次编码） */
+    public static byte[] writeBytes(GeneratorWriter writer) throws IOException {
+        ByteArrayBuilder out = new ByteArrayBuilder(FACTORY._getBufferRecycler(), 4096);
+        try {
+            try (JsonGenerator gen = FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+                writer.write(gen);
+            }
+            return out.toByteArray();
+        } finally {
+            out.release();
+        }
+    }
+
+    /** {"error":message}，message 经过正确转义（原字符串拼接遇到引号会产出非法 JSON） */
+    public static String errorJson(String message) {
+        return errorJson(message, null);
+    }
+
+    /** {"error":error,"message":message} */
+    public static String errorJson(String error, String message) {
+        try {
+            return write(gen -> {
+                gen.writeStartObject();
+                gen.writeStringField("error", error == null ? "" : error);
+                if (message != null) {
+                    gen.writeStringField("message", message);
+                }
+                gen.writeEndObject();
+            });
+        } catch (IOException e) {
+            return "{\"error\":\"unknown\"}";
+        }
+    }
+
+    /**
+     * 工具结果是否为失败：顶层存在非空 error 字段，且没有 "success":true。
+     * 非 JSON 对象（纯文本结果）视为成功；null 视为失败。
+     */
+    public static boolean isError(String raw) {
+        if (raw == null) {
+            return true;
+        }
+        int i = 0;
+        int len = raw.length();
+        while (i < len && Character.isWhitespace(raw.charAt(i))) {
+            i++;
+        }
+        if (i >= len || raw.charAt(i) != '{') {
+            return false;
+        }
+        boolean hasError = false;
+        try (JsonParser p = FACTORY.createParser(raw)) {
+            p.nextToken();
+            int fields = 0;
+            while (p.nextToken() == JsonToken.FIELD_NAME && fields++ < ERROR_PROBE_MAX_FIELDS) {
+                String name = p.currentName();
+                JsonToken v = p.nextToken();
+                if ("success".equals(name)) {
+                    if (v == JsonToken.VALUE_TRUE) {
+                        return false;
+                    }
+                    if (v == JsonToken.VALUE_FALSE && hasError) {
+                        return true;
+                    }
+                } else if ("error".equals(name)) {
+                    hasError = v != JsonToken.VALUE_NULL && v != JsonToken.VALUE_FALSE
+                            && !(v == JsonToken.VALUE_STRING && p.getTextLength() == 0);
+                }
+                p.skipChildren();
+            }
+        } catch (IOException e) {
+            // 截断/非法 JSON：按已读到的字段判定
+        }
+        return hasError;
+    }
+
+    /** 逐个写出对象字段：值交给 MAPPER 流式序列化（Map / POJO / 集合均可） */
+    public static void writeFields(JsonGenerator gen, Map<String, ?> fields) throws IOException {
+        if (fields == null) {
+            return;
+        }
+        for (Map.Entry<String, ?> e : fields.entrySet()) {
+            gen.writeObjectField(e.getKey(), e.getValue());
+        }
+    }
+}
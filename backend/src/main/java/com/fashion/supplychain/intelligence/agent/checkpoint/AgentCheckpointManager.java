@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.checkpoint;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -27,7 +28,7 @@ import java.util.concurrent.TimeUnit;
 public class AgentCheckpointManager {
 
     private final AgentCheckpointMapper checkpointMapper;
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectMapper objectMapper = AgentJson.MAPPER;
 
     // checkpoint 异步写入线程池（响应慢根因TOP4优化：每轮同步DB insert → 异步）
     private final ExecutorService checkpointExecutor = new ThreadPoolExecutor(
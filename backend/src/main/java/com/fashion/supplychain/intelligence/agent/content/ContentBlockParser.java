@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.content;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
@@ -17,7 +18,7 @@ import java.util.regex.Pattern;
 @Lazy
 public class ContentBlockParser {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     private static final Pattern CHART_PATTERN = Pattern.compile(
             "【CHART】(.*?)【/CHART】", Pattern.DOTALL);
@@ -8,13 +8,11 @@ import com.fashion.supplychain.intelligence.agent.tool.AgentTool;
 import com.fashion.supplychain.intelligence.agent.tool.ToolDomain;
 import com.fashion.supplychain.intelligence.helper.AiAgentMemoryHelper;
 import com.fashion.supplychain.intelligence.helper.AiAgentPromptHelper;
-import com.fashion.supplychain.intelligence.helper.AiAgentToolExecHelper;
 import com.fashion.supplychain.intelligence.orchestration.AiAgentTraceOrchestrator;
 import com.fashion.supplychain.intelligence.orchestration.IntelligenceInferenceOrchestrator;
 import com.fashion.supplychain.intelligence.routing.AiAgentDomainRouter;
 import com.fashion.supplychain.intelligence.routing.AiAgentToolAdvisor;
 import com.fashion.supplychain.intelligence.service.AgentStateStore;
-import com.fashion.supplychain.intelligence.service.AiAgentToolAccessService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -32,15 +30,14 @@ import java.util.Set;
 public class AgentLoopContextBuilder {
 
     @Autowired private IntelligenceInferenceOrchestrator inferenceOrchestrator;
-    @Autowired private AiAgentToolAccessService aiAgentToolAccessService;
     @Autowired private AiAgentPromptHelper promptHelper;
-    @Autowired private AiAgentToolExecHelper toolExecHelper;
     @Autowired private AiAgentMemoryHelper memoryHelper;
     @Autowired private AiAgentDomainRouter domainRouter;
     @Autowired private AiAgentToolAdvisor toolAdvisor;
     @Autowired private AiAgentTraceOrchestrator aiAgentTraceOrchestrator;
     @Autowired private AgentStateStore agentStateStore;
     @Autowired private List<AgentTool> registeredTools;
+    @Autowired private AgentPromptCatalog promptCatalog;
 
     @Value("${xiaoyun.agent.token-budget:30000}")
     private int tokenBudget;
@@ -61,22 +58,23 @@ public class AgentLoopContextBuilder {
             log.debug("[ContextBuilder] 状态会话创建跳过: {}", e.getMessage());
         }
 
-        List<AgentTool> visibleTools = aiAgentToolAccessService.resolveVisibleTools(registeredTools);
         Set<ToolDomain> domains = domainRouter.route(userMessage);
         List<ToolDomain> multiDomains = domainRouter.routeMulti(userMessage);
         boolean isMultiDomain = domainRouter.isMultiDomain(userMessage);
+        // 可见工具 / API schema / 稳定前缀均取自预编译目录，只有预选（advise）按消息计算
+        List<AgentTool> visibleTools = promptCatalog.resolveDomainTools(registeredTools, domains);
         if (!domains.isEmpty()) {
-            visibleTools = aiAgentToolAccessService.filterByDomains(visibleTools, domains);
             log.info("[ContextBuilder] 领域路由裁剪: {} → {} 个工具", domains, visibleTools.size());
         }
-        visibleTools = toolAdvisor.advise(visibleTools, userMessage);
+        AgentPromptCatalog.CompiledCatalog catalog = promptCatalog.compile(toolAdvisor.advise(visibleTools, userMessage));
+        visibleTools = catalog.tools();
 
-        Map<String, AgentTool> visibleToolMap = toolExecHelper.toToolLookup(visibleTools);
-        List<AiTool> visibleApiTools = aiAgentToolAccessService.toApiTools(visibleTools);
-        visibleApiTools.sort(java.util.Comparator.comparing(t -> t.getFunction().getName()));
+        Map<String, AgentTool> visibleToolMap = catalog.toolMap();
+        List<AiTool> visibleApiTools = catalog.apiTools();
 
         List<AiMessage> messages = new ArrayList<>();
-        messages.add(AiMessage.system(promptHelper.buildSystemPrompt(userMessage, pageContext, visibleTools, isMultiDomain)));
+        messages.add(AiMessage.system(promptHelper.buildSystemPrompt(
+                userMessage, pageContext, visibleTools, isMultiDomain, catalog.stablePrefix())));
         if (isMultiDomain && multiDomains.size() > 1) {
             String domainHint = "用户的问题涉及" + domainRouter.describeDomains(multiDomains)
                     + "多个领域，请综合分析各领域数据，给出跨域关联洞察。";
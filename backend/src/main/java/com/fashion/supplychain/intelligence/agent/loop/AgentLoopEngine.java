@@ -450,7 +450,7 @@ public class AgentLoopEngine {
                         ctx.getCommandId(), ctx.getToolResultCache(),
                         rec -> {
                             int done = completedCount.incrementAndGet();
-                            String status = (rec.rawResult != null && rec.rawResult.startsWith("{\"error\""))
+                            String status = rec.failed
                                     ? "失败"
                                     : "完成";
                             cb.onThinking(iter, String.format("正在执行工具查询(%d/%d) [%s: %s]…",
@@ -480,7 +480,7 @@ public class AgentLoopEngine {
     private String checkAndRollback(AgentLoopContext ctx, AgentLoopCallback cb,
                                      List<AiAgentToolExecHelper.ToolExecRecord> execRecords) {
         boolean hasFailure = execRecords.stream()
-                .anyMatch(r -> r.rawResult != null && r.rawResult.startsWith("{\"error\""));
+                .anyMatch(r -> r.failed);
         if (!hasFailure) {
             return null;
         }
@@ -500,7 +500,7 @@ public class AgentLoopEngine {
                                     List<AiAgentToolExecHelper.ToolExecRecord> execRecords) {
         for (AiAgentToolExecHelper.ToolExecRecord rec : execRecords) {
             cb.onToolResult(rec.toolName,
-                    !rec.rawResult.startsWith("{\"error\""),
+                    !rec.failed,
                     AiAgentEvidenceHelper.truncateOneLine(rec.evidence, 200));
         }
     }
@@ -530,7 +530,7 @@ public class AgentLoopEngine {
         for (AiAgentToolExecHelper.ToolExecRecord rec : execRecords) {
             try {
                 if (rec.rawResult == null || rec.rawResult.isBlank()) continue;
-                if (rec.rawResult.startsWith("{\"error")) continue;
+                if (rec.failed) continue;
                 String factKey = "tool_result_" + rec.toolName;
                 String factValue = rec.rawResult.length() <= 1000
                         ? rec.rawResult
@@ -872,7 +872,7 @@ public class AgentLoopEngine {
                 if (seen.add(displayName)) {
                     toolNames.add(displayName);
                 }
-                if (isToolFailed(rec.rawResult)) {
+                if (rec.failed || rec.rawResult.isBlank()) {
                     if (!failedTools.contains(displayName)) {
                         failedTools.add(displayName);
                     }
@@ -900,13 +900,6 @@ public class AgentLoopEngine {
         return content;
     }
 
-    private boolean isToolFailed(String rawResult) {
-        if (rawResult == null || rawResult.isBlank()) return true;
-        return rawResult.contains("\"error\"")
-                && !rawResult.contains("\"success\":true")
-                && !rawResult.contains("\"success\": true");
-    }
-
     private String mapToolDisplayName(String toolName) {
         if (toolName == null) return "未知工具";
         switch (toolName) {
@@ -1022,7 +1015,7 @@ public class AgentLoopEngine {
         try {
             for (int ri = 0; ri < execRecords.size(); ri++) {
                 AiAgentToolExecHelper.ToolExecRecord rec = execRecords.get(ri);
-                boolean ok = rec.rawResult != null && !rec.rawResult.startsWith("{\"error\"");
+                boolean ok = !rec.failed;
                 processRewardOrchestrator.record(commandId, null, iteration * 10 + ri,
                         rec.toolName, "",
                         rec.evidence == null ? "" : rec.evidence.length() > 500 ? rec.evidence.substring(0, 500) : rec.evidence,
@@ -1065,7 +1058,7 @@ public class AgentLoopEngine {
                                          Map<String, com.fashion.supplychain.intelligence.agent.tool.AgentTool> toolMap,
                                          List<AiAgentToolExecHelper.ToolExecRecord> execRecords) {
         for (AiAgentToolExecHelper.ToolExecRecord rec : execRecords) {
-            if (rec.rawResult == null || rec.rawResult.startsWith("{\"error\"")) {
+            if (rec.failed) {
                 continue;
             }
             com.fashion.supplychain.intelligence.agent.tool.AgentTool tool = toolMap.get(rec.toolName);
@@ -1233,7 +1226,7 @@ public class AgentLoopEngine {
         if (records.size() >= 2) {
             long recentFailures = records.stream()
                     .skip(Math.max(0, records.size() - 2))
-                    .filter(r -> r.rawResult != null && r.rawResult.startsWith("{\"error\""))
+                    .filter(r -> r.failed)
                     .count();
             if (recentFailures >= 2) {
                 log.info("[PlanReplan] 触发重规划：连续工具失败 recentFailures={}", recentFailures);
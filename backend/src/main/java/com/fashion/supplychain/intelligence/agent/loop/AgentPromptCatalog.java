@@ -0,0 +1,161 @@
+package com.fashion.supplychain.intelligence.agent.loop;
+
+import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.intelligence.agent.AiTool;
+import com.fashion.supplychain.intelligence.agent.tool.AgentTool;
+import com.fashion.supplychain.intelligence.agent.tool.ToolDomain;
+import com.fashion.supplychain.intelligence.helper.AiAgentPromptHelper;
+import com.fashion.supplychain.intelligence.helper.AiAgentToolExecHelper;
+import com.fashion.supplychain.intelligence.service.AiAgentToolAccessService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Agent 工具目录 + 系统提示词稳定前缀的预编译缓存。
+ *
+ * 原状：每次请求都重新解析可见工具、按领域过滤、toApiTools 重建 ~113 个工具 schema、排序，
+ * 并重新拼装身份/原则/工具指南/领域规范（含读取 classpath 领域文档），前缀也可能因动态块插队而不稳定。
+ *
+ * 现流程：
+ * 1. 领域级：(角色可见性, 路由领域) → 过滤后的工具列表；
+ * 2. 编译级：(租户, 角色可见性, 预选后的工具名序列) → 工具查找表 + 按名称排序的 API 工具数组 + 稳定前缀；
+ * 3. 角色可见性 = 超管/管理权限/工厂账号三个开关，权限变化自然落到新 key；
+ *    工具注册表在启动时固定，其指纹纳入 key，热更新工具时同样不会命中旧条目；
+ * 4. 提示词模板、GEPA 个体等变更由 10 分钟过期兜底，也可调用 {@link #invalidateAll()} 立即失效。
+ *
+ * 每次请求的动态上下文只追加在稳定前缀之后，同一组合的前缀逐字节一致。
+ */
+@Slf4j
+@Component
+@Lazy
+public class AgentPromptCatalog {
+
+    private static final Duration COMPILED_TTL = Duration.ofMinutes(10);
+
+    @Autowired private AiAgentToolAccessService aiAgentToolAccessService;
+    @Autowired private AiAgentToolExecHelper toolExecHelper;
+    @Autowired private AiAgentPromptHelper promptHelper;
+
+    private final Cache<String, List<AgentTool>> domainTools = Caffeine.newBuilder()
+            .maximumSize(512)
+            .expireAfterWrite(COMPILED_TTL)
+            .recordStats()
+            .build();
+
+    private final Cache<String, CompiledCatalog> compiled = Caffeine.newBuilder()
+            .maximumSize(2_000)
+            .expireAfterWrite(COMPILED_TTL)
+            .recordStats()
+            .build();
+
+    /**
+     * 预编译结果（全部不可变，可在并发请求间共享）
+     */
+    public record CompiledCatalog(List<AgentTool> tools,
+                                  Map<String, AgentTool> toolMap,
+                                  List<AiTool> apiTools,
+                                  String stablePrefix) { }
+
+    /**
+     * 当前角色在指定领域下可见的工具（领域为空表示不裁剪）
+     */
+    public List<AgentTool> resolveDomainTools(List<AgentTool> registeredTools, Set<ToolDomain> domains) {
+        String key = registryFingerprint(registeredTools) + "|" + visibilityProfile() + "|" + domainKey(domains);
+        return domainTools.get(key, k -> {
+            List<AgentTool> visible = aiAgentToolAccessService.resolveVisibleTools(registeredTools);
+            if (domains != null && !domains.isEmpty()) {
+                visible = aiAgentToolAccessService.filterByDomains(visible, domains);
+            }
+            return List.copyOf(visible);
+        });
+    }
+
+    /**
+     * 取（或编译）预选后工具集对应的目录与稳定前缀
+     */
+    public CompiledCatalog compile(List<AgentTool> advisedTools) {
+        Long tenantId = UserContext.tenantId();
+        String key = (tenantId == null ? 0 : tenantId) + "|" + visibilityProfile() + "|"
+                + advisedTools.stream().map(AgentTool::getName).collect(Collectors.joining(","));
+        return compiled.get(key, k -> {
+            long start = System.currentTimeMillis();
+            List<AgentTool> tools = List.copyOf(advisedTools);
+            List<AiTool> apiTools = new ArrayList<>(aiAgentToolAccessService.toApiTools(tools));
+            apiTools.sort(Comparator.comparing(t -> t.getFunction().getName()));
+            CompiledCatalog catalog = new CompiledCatalog(
+                    tools,
+                    Map.copyOf(toolExecHelper.toToolLookup(tools)),
+                    List.copyOf(apiTools),
+                    promptHelper.buildStablePrefix(tools));
+            log.debug("[PromptCatalog] 编译完成 tools={} prefixChars={} elapsedMs={}",
+                    tools.size(), catalog.stablePrefix().length(), System.currentTimeMillis() - start);
+            return catalog;
+        });
+    }
+
+    public void invalidateAll() {
+        domainTools.invalidateAll();
+        compiled.invalidateAll();
+        log.info("[PromptCatalog] 已清空工具目录与前缀缓存");
+    }
+
+    /**
+     * 命中率统计（领域级 + 编译级）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("domainTools", toMap(domainTools.stats(), domainTools.estimatedSize()));
+        stats.put("compiled", toMap(compiled.stats(), compiled.estimatedSize()));
+        return stats;
+    }
+
+    private static Map<String, Object> toMap(CacheStats s, long size) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("size", size);
+        m.put("hits", s.hitCount());
+        m.put("misses", s.missCount());
+        m.put("hitRate", Math.round(s.hitRate() * 10000) / 100.0);
+        m.put("evictions", s.evictionCount());
+        m.put("avgLoadMs", Math.round(s.averageLoadPenalty() / 10_000.0) / 100.0);
+        return m;
+    }
+
+    /** 决定 resolveVisibleTools 结果的全部角色因素 */
+    private String visibilityProfile() {
+        return (UserContext.isSuperAdmin() ? "S" : "-")
+                + (aiAgentToolAccessService.hasManagerAccess() ? "M" : "W")
+                + (UserContext.factoryId() != null ? "F" : "-");
+    }
+
+    private static String registryFingerprint(List<AgentTool> registeredTools) {
+        if (registeredTools == null) {
+            return "0";
+        }
+        int h = 1;
+        for (AgentTool t : registeredTools) {
+            h = 31 * h + t.getName().hashCode();
+        }
+        return registeredTools.size() + ":" + Integer.toHexString(h);
+    }
+
+    private static String domainKey(Set<ToolDomain> domains) {
+        if (domains == null || domains.isEmpty()) {
+            return "*";
+        }
+        return domains.stream().map(Enum::name).sorted().collect(Collectors.joining(","));
+    }
+}
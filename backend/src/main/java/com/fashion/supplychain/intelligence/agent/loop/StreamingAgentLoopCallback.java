@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.loop;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.intelligence.agent.AiToolCall;
 import com.fashion.supplychain.intelligence.helper.AiAgentMemoryHelper;
@@ -16,7 +17,7 @@ import java.util.Map;
 @Slf4j
 public class StreamingAgentLoopCallback implements AgentLoopCallback {
 
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper JSON = AgentJson.MAPPER;
 
     private final SseEmitter emitter;
     private final AgentLoopContext ctx;
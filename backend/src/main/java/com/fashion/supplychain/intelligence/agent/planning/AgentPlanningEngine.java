@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.planning;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fashion.supplychain.intelligence.dto.IntelligenceInferenceResult;
 import com.fashion.supplychain.intelligence.gateway.AiInferenceGateway;
 import com.fashion.supplychain.intelligence.agent.AiMessage;
@@ -30,7 +31,7 @@ public class AgentPlanningEngine {
     @Value("${xiaoyun.planning.min-complexity-score:40}")
     private int minComplexityScore;
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     private static final String PLANNING_SYSTEM_PROMPT = """
 你是一个服装供应链AI的规划引擎。你需要分析用户的问题，判断其复杂度，并决定是否需要制定执行计划。
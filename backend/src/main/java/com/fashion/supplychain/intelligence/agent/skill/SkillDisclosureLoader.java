@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.skill;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.intelligence.entity.SkillTemplate;
@@ -33,7 +34,7 @@ import java.util.Map;
 @Lazy
 public class SkillDisclosureLoader {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     private static final int DEFAULT_TOKEN_BUDGET_METADATA = 50;
     private static final int DEFAULT_TOKEN_BUDGET_SKILL_MD = 500;
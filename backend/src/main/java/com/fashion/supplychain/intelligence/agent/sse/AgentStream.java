@@ -0,0 +1,325 @@
+package com.fashion.supplychain.intelligence.agent.sse;
+
+import com.fashion.supplychain.intelligence.agent.AgentJson;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 与 HTTP 连接解耦的一次 Agent 流式输出。
+ *
+ * <p>编排层照常向 {@link #producer()} 发送事件（仍是 SseEmitter，现有调用方无需改动）。
+ * 每个事件按流内序号编号后进入有界事件日志，再转发给当前挂着的客户端连接。
+ * 客户端掉线后带 Last-Event-ID（格式 {@code streamId:seq}）重连，先补发缺失事件，再继续跟随实时输出。
+ *
+ * <p>心跳与注释只转发不入日志。所有客户端都断开超过 abandonMillis、且没有其他节点在跟随时，
+ * 生产端发送抛出 IOException。编排层的心跳据此把 Agent 循环标记为取消，与原来断线即取消的语义一致，
+ * 只是多了一段重连宽限期。
+ */
+@Slf4j
+public final class AgentStream {
+
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
+
+    /** 流内事件（seq 从 1 递增；event 为空表示未命名的 message 事件） */
+    public record StreamEvent(long seq, String event, String data) {}
+
+    private final String id;
+    private final Long tenantId;
+    private final String userId;
+    private final long createdAt = System.currentTimeMillis();
+    private final int maxEvents;
+    private final long abandonMillis;
+    private final Predicate<AgentStream> remoteFollowed;
+    private final Producer producer = new Producer();
+
+    private final ArrayDeque<StreamEvent> events = new ArrayDeque<>();
+    private final List<SseEmitter> clients = new ArrayList<>();
+    private final List<StreamEvent> pendingMirror = new ArrayList<>();
+    private long seq;
+    private boolean finished;
+    private boolean endMirrored;
+    private long detachedSince;
+    private volatile long finishedAt;
+
+    AgentStream(String id, Long tenantId, String userId, int maxEvents, long abandonMillis,
+                Predicate<AgentStream> remoteFollowed) {
+        this.id = id;
+        this.tenantId = tenantId;
+        this.userId = userId;
+        this.maxEvents = maxEvents;
+        this.abandonMillis = abandonMillis;
+        this.remoteFollowed = remoteFollowed;
+        this.detachedSince = createdAt;
+    }
+
+    public String getId() { return id; }
+    Long getTenantId() { return tenantId; }
+    String getUserId() { return userId; }
+    long getCreatedAt() { return createdAt; }
+    long getFinishedAt() { return finishedAt; }
+
+    /** 交给编排层写入的发送端 */
+    public SseEmitter producer() {
+        return producer;
+    }
+
+    /** 事件 ID：流 ID + 流内序号，重连时据此定位流与断点 */
+    static String eventId(String streamId, long seq) {
+        return streamId + ":" + seq;
+    }
+
+    /**
+     * 挂上一个客户端连接：补发 afterSeq 之后的事件，流已结束则直接 complete，否则继续跟随。
+     * 补发与登记在同一把锁内完成，补发过程中产生的新事件不会丢失或重复。
+     */
+    synchronized void attach(SseEmitter client, long afterSeq) {
+        long firstRetained = events.isEmpty() ? seq + 1 : events.peekFirst().seq();
+        if (afterSeq + 1 < firstRetained && afterSeq < seq) {
+            sendGap(client, afterSeq + 1, firstRetained - 1);
+        }
+        for (StreamEvent e : events) {
+            if (e.seq() > afterSeq && !deliver(client, id, e)) {
+                return;
+            }
+        }
+        if (finished) {
+            SseEmitterHelper.complete(client);
+            return;
+        }
+        clients.add(client);
+        detachedSince = 0;
+    }
+
+    synchronized void detach(SseEmitter client) {
+        if (clients.remove(client) && clients.isEmpty()) {
+            detachedSince = System.currentTimeMillis();
+        }
+    }
+
+    synchronized boolean isFinished() {
+        return finished;
+    }
+
+    /** 取出待镜像到 Redis 的事件；流结束后额外返回一次 end=true */
+    synchronized MirrorBatch drainMirror() {
+        if (pendingMirror.isEmpty() && (!finished || endMirrored)) {
+            return null;
+        }
+        List<StreamEvent> batch = new ArrayList<>(pendingMirror);
+        pendingMirror.clear();
+        boolean end = finished && !endMirrored;
+        if (end) {
+            endMirrored = true;
+        }
+        return new MirrorBatch(batch, end);
+    }
+
+    /**
+     * 镜像写入失败：把取出的批次放回待镜像队列头部，下一轮与新事件一起重写。
+     * 队列按 maxEvents 截断最旧事件，Redis 长时间不可用时不会无限增长（跟随方据首个序号报告缺口）。
+     */
+    synchronized void requeueMirror(MirrorBatch batch) {
+        if (batch.events().isEmpty() && !batch.end()) {
+            return;
+        }
+        pendingMirror.addAll(0, batch.events());
+        int overflow = pendingMirror.size() - Math.max(1, maxEvents);
+        if (overflow > 0) {
+            pendingMirror.subList(0, overflow).clear();
+        }
+        if (batch.end()) {
+            endMirrored = false;
+        }
+    }
+
+    /** Redis 镜像批次（也是跨节点实时频道的消息体） */
+    public record MirrorBatch(List<StreamEvent> events, boolean end) {}
+
+    static boolean deliver(SseEmitter client, String streamId, StreamEvent e) {
+        try {
+            SseEmitter.SseEventBuilder builder = SseEmitter.event().id(eventId(streamId, e.seq()));
+            if (e.event() != null) {
+                builder.name(e.event());
+            }
+            client.send(builder.data(e.data()));
+            return true;
+        } catch (Exception ex) {
+            log.debug("[AgentStream] 客户端发送失败(可能已断开): stream={}, seq={}", streamId, e.seq());
+            return false;
+        }
+    }
+
+    static void sendGap(SseEmitter client, long from, long to) {
+        try {
+            client.send(SseEmitter.event().name("resume_gap")
+                    .data(MAPPER.writeValueAsString(Map.of("from", from, "to", to))));
+        } catch (Exception ex) {
+            log.debug("[AgentStream] resume_gap 发送失败: {}", ex.getMessage());
+        }
+    }
+
+    private void append(Parsed p) throws IOException {
+        if (isAbandoned()) {
+            throw new IOException("agent stream abandoned: " + id);
+        }
+        synchronized (this) {
+            if (finished) {
+                throw new IOException("agent stream closed: " + id);
+            }
+            if (p.data == null || "heartbeat".equals(p.event)) {
+                forwardLive(p);
+                return;
+            }
+            StreamEvent e = new StreamEvent(++seq, p.event, p.data);
+            if (maxEvents > 0) {
+                events.addLast(e);
+                while (events.size() > maxEvents) {
+                    events.pollFirst();
+                }
+                pendingMirror.add(e);
+            }
+            Iterator<SseEmitter> it = clients.iterator();
+            while (it.hasNext()) {
+                SseEmitter client = it.next();
+                if (!deliver(client, id, e)) {
+                    it.remove();
+                    markDetachedIfEmpty();
+                }
+            }
+        }
+    }
+
+    private void forwardLive(Parsed p) {
+        Iterator<SseEmitter> it = clients.iterator();
+        while (it.hasNext()) {
+            SseEmitter client = it.next();
+            try {
+                SseEmitter.SseEventBuilder builder = SseEmitter.event();
+                if (p.data == null) {
+                    builder.comment(p.comment != null ? p.comment : "");
+                } else {
+                    if (p.event != null) builder.name(p.event);
+                    builder.data(p.data);
+                }
+                client.send(builder);
+            } catch (Exception ex) {
+                it.remove();
+                markDetachedIfEmpty();
+            }
+        }
+    }
+
+    private void markDetachedIfEmpty() {
+        if (clients.isEmpty()) {
+            detachedSince = System.currentTimeMillis();
+        }
+    }
+
+    /** 断开超过宽限期且无其他节点跟随：视为用户已离开，流随之结束 */
+    private boolean isAbandoned() {
+        long since;
+        synchronized (this) {
+            since = detachedSince;
+        }
+        if (since == 0 || System.currentTimeMillis() - since < abandonMillis) {
+            return false;
+        }
+        if (remoteFollowed != null && remoteFollowed.test(this)) {
+            return false;
+        }
+        log.info("[AgentStream] 客户端断开超过 {}ms 未重连，停止输出: stream={}", abandonMillis, id);
+        finish();
+        return true;
+    }
+
+    private void finish() {
+        List<SseEmitter> toComplete;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            finishedAt = System.currentTimeMillis();
+            toComplete = new ArrayList<>(clients);
+            clients.clear();
+        }
+        for (SseEmitter client : toComplete) {
+            SseEmitterHelper.complete(client);
+        }
+    }
+
+    /** 解析 Spring 渲染好的 SSE 文本（id 行忽略，由流重新编号） */
+    private static Parsed parse(Set<SseEmitter.DataWithMediaType> items) throws IOException {
+        StringBuilder raw = new StringBuilder();
+        for (SseEmitter.DataWithMediaType item : items) {
+            Object d = item.getData();
+            raw.append(d instanceof String s ? s : MAPPER.writeValueAsString(d));
+        }
+        Parsed p = new Parsed();
+        StringBuilder data = null;
+        for (String line : raw.toString().split("\n", -1)) {
+            if (line.startsWith("data:")) {
+                if (data == null) {
+                    data = new StringBuilder();
+                } else {
+                    data.append('\n');
+                }
+                data.append(line, 5, line.length());
+            } else if (line.startsWith("event:")) {
+                p.event = line.substring(6);
+            } else if (line.startsWith(":")) {
+                p.comment = line.substring(1);
+            }
+        }
+        p.data = data != null ? data.toString() : null;
+        return p;
+    }
+
+    private static final class Parsed {
+        String event;
+        String data;
+        String comment;
+    }
+
+    /**
+     * 生产端：编排层把它当普通 SseEmitter 使用。它不会交给 Spring MVC 写响应，
+     * 所有发送都转入流日志，complete / completeWithError 结束整条流。
+     */
+    private final class Producer extends SseEmitter {
+
+        Producer() {
+            super(0L);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            append(parse(builder.build()));
+        }
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) throws IOException {
+            append(parse(items));
+        }
+
+        @Override
+        public void complete() {
+            finish();
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            log.debug("[AgentStream] 流异常结束: stream={}, error={}", id, ex != null ? ex.getMessage() : null);
+            finish();
+        }
+    }
+}
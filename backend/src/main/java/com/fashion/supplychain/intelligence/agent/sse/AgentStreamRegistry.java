@@ -0,0 +1,501 @@
+package com.fashion.supplychain.intelligence.agent.sse;
+
+import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.intelligence.agent.AgentJson;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 可续传 Agent 流的注册表。
+ *
+ * <p>每次流式问答开一条 {@link AgentStream}，编排层写生产端，控制器返回挂在流上的客户端连接。
+ * 客户端带 Last-Event-ID 重连时：
+ * <ul>
+ *   <li>流在本节点 — 从内存事件日志补发后继续跟随；</li>
+ *   <li>流在其他节点 — 从 Redis 镜像日志补发，再订阅该流的实时频道继续跟随。</li>
+ * </ul>
+ * 生产端每 {@value #MIRROR_INTERVAL_MS}ms 把新事件批量写入 Redis 列表并发布到频道（一次 pipeline），
+ * 写入失败的批次放回流的待镜像队列，下一轮重写（部分写入造成的重复由跟随方按序号去重）。
+ * 未配置 Redis 时只支持同节点续传。重连只补发与跟随，不会重新执行 AgentLoopEngine。
+ */
+@Slf4j
+@Service
+public class AgentStreamRegistry {
+
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
+    private static final String KEY_PREFIX = "ai:stream:";
+    private static final long MIRROR_INTERVAL_MS = 100;
+    private static final long REMOTE_CHECK_INTERVAL_MS = 5_000;
+    private static final long FOLLOWER_TOUCH_SECONDS = 10;
+
+    @Value("${xiaoyun.streaming.resume.enabled:true}")
+    private boolean enabled;
+
+    @Value("${xiaoyun.streaming.resume.max-events:2000}")
+    private int maxEvents;
+
+    @Value("${xiaoyun.streaming.resume.retain-seconds:600}")
+    private long retainSeconds;
+
+    @Value("${xiaoyun.streaming.resume.abandon-seconds:90}")
+    private long abandonSeconds;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired(required = false)
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, AgentStream> streams = new ConcurrentHashMap<>();
+    private final Map<String, Long> remoteCheckedAt = new ConcurrentHashMap<>();
+    private volatile RedisMessageListenerContainer listenerContainer;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newScheduledThreadPool(1, r -> {
+            Thread t = new Thread(r, "agent-stream-mirror");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::mirrorAndSweep, MIRROR_INTERVAL_MS, MIRROR_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        RedisMessageListenerContainer container = listenerContainer;
+        if (container != null) {
+            try {
+                container.destroy();
+            } catch (Exception e) {
+                log.debug("[AgentStream] 关闭订阅容器失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /** 为当前用户开一条新流（归属取自 UserContext） */
+    public AgentStream open() {
+        String id = UUID.randomUUID().toString().replace("-", "");
+        AgentStream stream = new AgentStream(id, UserContext.tenantId(), UserContext.userId(),
+                enabled ? Math.max(1, maxEvents) : 0,
+                enabled ? TimeUnit.SECONDS.toMillis(abandonSeconds) : 0L,
+                enabled ? this::isFollowedRemotely : null);
+        streams.put(id, stream);
+        if (enabled && stringRedisTemplate != null) {
+            try {
+                String metaKey = KEY_PREFIX + id;
+                stringRedisTemplate.opsForHash().putAll(metaKey, Map.of(
+                        "tenant", String.valueOf(stream.getTenantId()),
+                        "user", String.valueOf(stream.getUserId()),
+                        "done", "0"));
+                stringRedisTemplate.expire(metaKey, retainSeconds, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.debug("[AgentStream] 写入流元数据失败，仅支持同节点续传: {}", e.getMessage());
+            }
+        }
+        return stream;
+    }
+
+    /**
+     * 为新流挂上首个客户端连接。须在启动生产线程之前调用，
+     * 否则首批事件可能在无人跟随时到达而被当作已断开。
+     *
+     * @param hello 是否先发送一个 stream 事件告知 streamId（OpenAI 兼容流不发，客户端从事件 id 取得）
+     */
+    public SseEmitter attach(AgentStream stream, long timeoutMs, boolean hello) {
+        SseEmitter client = newClient(timeoutMs, stream.getId(), hello, false);
+        client.onCompletion(() -> stream.detach(client));
+        client.onTimeout(() -> stream.detach(client));
+        client.onError(ex -> stream.detach(client));
+        stream.attach(client, 0);
+        return client;
+    }
+
+    /**
+     * 按 Last-Event-ID（{@code streamId:seq}）续传。
+     *
+     * @return 续传连接；流不存在、已过期或不属于当前用户时返回 null，由调用方按新请求处理
+     */
+    public SseEmitter resume(String lastEventId, long timeoutMs, boolean hello) {
+        if (!enabled || lastEventId == null) {
+            return null;
+        }
+        int sep = lastEventId.lastIndexOf(':');
+        if (sep <= 0) {
+            return null;
+        }
+        String streamId = lastEventId.substring(0, sep).trim();
+        long afterSeq;
+        try {
+            afterSeq = Long.parseLong(lastEventId.substring(sep + 1).trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        AgentStream local = streams.get(streamId);
+        if (local != null) {
+            if (!isOwner(local.getTenantId(), local.getUserId())) {
+                return null;
+            }
+            SseEmitter client = newClient(timeoutMs, streamId, hello, true);
+            client.onCompletion(() -> local.detach(client));
+            client.onTimeout(() -> local.detach(client));
+            client.onError(ex -> local.detach(client));
+            local.attach(client, afterSeq);
+            countResume("local");
+            log.info("[AgentStream] 本节点续传: stream={}, afterSeq={}", streamId, afterSeq);
+            return client;
+        }
+        SseEmitter remote = resumeRemote(streamId, afterSeq, timeoutMs, hello);
+        if (remote != null) {
+            countResume("remote");
+            log.info("[AgentStream] 跨节点续传: stream={}, afterSeq={}", streamId, afterSeq);
+        }
+        return remote;
+    }
+
+    private SseEmitter newClient(long timeoutMs, String streamId, boolean hello, boolean resumed) {
+        SseEmitter client = createClient(timeoutMs);
+        if (hello) {
+            try {
+                client.send(SseEmitter.event().name("stream").reconnectTime(3000)
+                        .data(MAPPER.writeValueAsString(Map.of("streamId", streamId, "resumed", resumed))));
+            } catch (Exception e) {
+                log.debug("[AgentStream] stream 事件发送失败: {}", e.getMessage());
+            }
+        }
+        return client;
+    }
+
+    /** 创建客户端连接（测试中替换为记录发送内容的连接） */
+    SseEmitter createClient(long timeoutMs) {
+        return SseEmitterHelper.createEmitter(timeoutMs);
+    }
+
+    private boolean isOwner(Long tenantId, String userId) {
+        return Objects.equals(tenantId, UserContext.tenantId()) && Objects.equals(userId, UserContext.userId());
+    }
+
+    // ── 跨节点：Redis 镜像与跟随 ──
+
+    void mirrorAndSweep() {
+        long now = System.currentTimeMillis();
+        long retainMillis = TimeUnit.SECONDS.toMillis(retainSeconds);
+        for (AgentStream stream : streams.values()) {
+            try {
+                AgentStream.MirrorBatch batch = stream.drainMirror();
+                if (batch != null && enabled && stringRedisTemplate != null) {
+                    try {
+                        mirror(stream.getId(), batch);
+                    } catch (Exception e) {
+                        stream.requeueMirror(batch);
+                        log.debug("[AgentStream] 镜像失败，下一轮重试: stream={}, error={}", stream.getId(), e.getMessage());
+                    }
+                }
+                long finishedAt = stream.getFinishedAt();
+                if ((finishedAt > 0 && now - finishedAt > retainMillis)
+                        || (finishedAt == 0 && now - stream.getCreatedAt() > retainMillis * 6)) {
+                    streams.remove(stream.getId());
+                    remoteCheckedAt.remove(stream.getId());
+                }
+            } catch (Exception e) {
+                log.debug("[AgentStream] 镜像失败: stream={}, error={}", stream.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void mirror(String streamId, AgentStream.MirrorBatch batch) throws Exception {
+        String metaKey = KEY_PREFIX + streamId;
+        String logKey = metaKey + ":log";
+        String[] values = new String[batch.events().size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = MAPPER.writeValueAsString(batch.events().get(i));
+        }
+        String message = MAPPER.writeValueAsString(batch);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            if (values.length > 0) {
+                conn.rPush(logKey, values);
+                conn.lTrim(logKey, -maxEvents, -1);
+                conn.expire(logKey, retainSeconds);
+            }
+            if (batch.end()) {
+                conn.hSet(metaKey, "done", "1");
+                conn.expire(metaKey, retainSeconds);
+            }
+            conn.publish(metaKey + ":live", message);
+            return null;
+        });
+    }
+
+    /** 生产端判断是否有其他节点在跟随（节流，避免每个事件都访问 Redis） */
+    private boolean isFollowedRemotely(AgentStream stream) {
+        if (stringRedisTemplate == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        Long last = remoteCheckedAt.get(stream.getId());
+        if (last != null && last < 0 && now + last < REMOTE_CHECK_INTERVAL_MS) {
+            return true;
+        }
+        if (last != null && last > 0 && now - last < REMOTE_CHECK_INTERVAL_MS) {
+            return false;
+        }
+        boolean followed;
+        try {
+            followed = Boolean.TRUE.equals(stringRedisTemplate.hasKey(KEY_PREFIX + stream.getId() + ":sub"));
+        } catch (Exception e) {
+            followed = false;
+        }
+        // 正数记录"未被跟随"的检查时间，负数记录"被跟随"的检查时间
+        remoteCheckedAt.put(stream.getId(), followed ? -now : now);
+        return followed;
+    }
+
+    private SseEmitter resumeRemote(String streamId, long afterSeq, long timeoutMs, boolean hello) {
+        if (stringRedisTemplate == null) {
+            return null;
+        }
+        String metaKey = KEY_PREFIX + streamId;
+        Map<Object, Object> meta;
+        try {
+            meta = stringRedisTemplate.opsForHash().entries(metaKey);
+        } catch (Exception e) {
+            log.debug("[AgentStream] 读取流元数据失败: {}", e.getMessage());
+            return null;
+        }
+        if (meta == null || meta.isEmpty()) {
+            return null;
+        }
+        Long tenantId = parseLong(meta.get("tenant"));
+        String userId = "null".equals(meta.get("user")) ? null : (String) meta.get("user");
+        if (!isOwner(tenantId, userId)) {
+            return null;
+        }
+        SseEmitter client = newClient(timeoutMs, streamId, hello, true);
+        RemoteFollower follower = new RemoteFollower(streamId, client, afterSeq);
+        client.onCompletion(follower::close);
+        client.onTimeout(follower::close);
+        client.onError(ex -> follower.close());
+        follower.start();
+        return client;
+    }
+
+    private RedisMessageListenerContainer container() {
+        RedisMessageListenerContainer container = listenerContainer;
+        if (container != null || redisConnectionFactory == null) {
+            return container;
+        }
+        synchronized (this) {
+            if (listenerContainer == null) {
+                try {
+                    RedisMessageListenerContainer c = new RedisMessageListenerContainer();
+                    c.setConnectionFactory(redisConnectionFactory);
+                    c.afterPropertiesSet();
+                    c.start();
+                    listenerContainer = c;
+                } catch (Exception e) {
+                    log.warn("[AgentStream] 订阅容器启动失败，跨节点续传改为轮询: {}", e.getMessage());
+                }
+            }
+            return listenerContainer;
+        }
+    }
+
+    private static Long parseLong(Object value) {
+        try {
+            return value == null || "null".equals(value) ? null : Long.valueOf(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void countResume(String where) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("ai.stream.resume", "where", where).increment();
+        }
+    }
+
+    /**
+     * 在非生产节点跟随一条流：先订阅实时频道（期间收到的消息暂存），再从 Redis 日志补发，
+     * 之后放行暂存消息；按序号去重，保证不丢不重。
+     * 每 {@value #FOLLOWER_TOUCH_SECONDS}s 续期 sub 标记（生产端据此不判定为断开），
+     * 并对照日志补齐，兜底 Pub/Sub 订阅建立前或网络抖动期间漏掉的消息。
+     */
+    private final class RemoteFollower implements MessageListener {
+
+        private final String streamId;
+        private final SseEmitter client;
+        private final ChannelTopic topic;
+        private long lastSent;
+        private boolean replaying = true;
+        private boolean closed;
+        private boolean released;
+        private final List<AgentStream.MirrorBatch> buffered = new ArrayList<>();
+        private volatile ScheduledFuture<?> touchFuture;
+
+        RemoteFollower(String streamId, SseEmitter client, long afterSeq) {
+            this.streamId = streamId;
+            this.client = client;
+            this.topic = new ChannelTopic(KEY_PREFIX + streamId + ":live");
+            this.lastSent = afterSeq;
+        }
+
+        void start() {
+            touch();
+            RedisMessageListenerContainer container = container();
+            if (container != null) {
+                container.addMessageListener(this, topic);
+            }
+            boolean end = catchUp(true);
+            synchronized (this) {
+                replaying = false;
+                for (AgentStream.MirrorBatch batch : buffered) {
+                    end |= apply(batch);
+                }
+                buffered.clear();
+                end |= closed;
+            }
+            if (end) {
+                close();
+                return;
+            }
+            touchFuture = scheduler.scheduleWithFixedDelay(() -> {
+                touch();
+                if (catchUp(false)) {
+                    close();
+                }
+            }, FOLLOWER_TOUCH_SECONDS, FOLLOWER_TOUCH_SECONDS, TimeUnit.SECONDS);
+            synchronized (this) {
+                if (released) {
+                    touchFuture.cancel(false);
+                }
+            }
+        }
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            AgentStream.MirrorBatch batch;
+            try {
+                batch = MAPPER.readValue(new String(message.getBody(), StandardCharsets.UTF_8), AgentStream.MirrorBatch.class);
+            } catch (Exception e) {
+                log.debug("[AgentStream] 实时消息解析失败: {}", e.getMessage());
+                return;
+            }
+            boolean end;
+            synchronized (this) {
+                if (replaying) {
+                    buffered.add(batch);
+                    return;
+                }
+                end = apply(batch);
+            }
+            if (end) {
+                close();
+            }
+        }
+
+        /** 对照 Redis 日志补发；返回流是否已结束且已全部送达 */
+        private boolean catchUp(boolean first) {
+            try {
+                boolean done = "1".equals(stringRedisTemplate.opsForHash().get(KEY_PREFIX + streamId, "done"));
+                List<String> raw = stringRedisTemplate.opsForList().range(KEY_PREFIX + streamId + ":log", 0, -1);
+                synchronized (this) {
+                    if (closed) {
+                        return false;
+                    }
+                    if (raw != null && !raw.isEmpty()) {
+                        List<AgentStream.StreamEvent> events = new ArrayList<>(raw.size());
+                        for (String json : raw) {
+                            events.add(MAPPER.readValue(json, AgentStream.StreamEvent.class));
+                        }
+                        long firstSeq = events.get(0).seq();
+                        if (first && lastSent + 1 < firstSeq) {
+                            AgentStream.sendGap(client, lastSent + 1, firstSeq - 1);
+                        }
+                        apply(new AgentStream.MirrorBatch(events, false));
+                    }
+                    return done;
+                }
+            } catch (Exception e) {
+                log.debug("[AgentStream] 跨节点补发失败: stream={}, error={}", streamId, e.getMessage());
+                return false;
+            }
+        }
+
+        /** 按序号去重发送；返回是否收到结束标记 */
+        private boolean apply(AgentStream.MirrorBatch batch) {
+            for (AgentStream.StreamEvent e : batch.events()) {
+                if (e.seq() <= lastSent) {
+                    continue;
+                }
+                if (!AgentStream.deliver(client, streamId, e)) {
+                    closed = true;
+                    return true;
+                }
+                lastSent = e.seq();
+            }
+            return batch.end();
+        }
+
+        private void touch() {
+            try {
+                stringRedisTemplate.opsForValue().set(KEY_PREFIX + streamId + ":sub", "1",
+                        FOLLOWER_TOUCH_SECONDS * 3, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.debug("[AgentStream] sub 标记续期失败: {}", e.getMessage());
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                closed = true;
+            }
+            ScheduledFuture<?> future = touchFuture;
+            if (future != null) {
+                future.cancel(false);
+            }
+            RedisMessageListenerContainer container = listenerContainer;
+            if (container != null) {
+                container.removeMessageListener(this, topic);
+            }
+            SseEmitterHelper.complete(client);
+        }
+    }
+}
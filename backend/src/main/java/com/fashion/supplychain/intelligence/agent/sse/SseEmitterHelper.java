@@ -1,6 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.sse;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
@@ -13,7 +13,6 @@ import java.util.concurrent.atomic.AtomicInteger;
 @Slf4j
 public class SseEmitterHelper {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
     private static final AtomicInteger EVENT_SEQ = new AtomicInteger(0);
 
     private static final ScheduledExecutorService HEARTBEAT_SCHEDULER = new ScheduledThreadPoolExecutor(2, r -> {
@@ -22,10 +21,17 @@ public class SseEmitterHelper {
         return t;
     });
 
+    /**
+     * 发送一个事件。data 经 {@link AgentJson#write} 的 JsonGenerator 编码为一行 JSON 文本。
+     * <p>SseEmitter 只接受交给 HttpMessageConverter 转换的对象，拿不到响应输出流，无法边序列化边写出；
+     * 直接传对象会改用 Spring MVC 的 ObjectMapper（non_null、日期格式等配置不同），前端收到的字段会变，
+     * 因此这里保留“先编码成字符串再发送”，单个事件体量小（增量片段 / 工具摘要），代价可忽略。
+     */
     public static void send(SseEmitter emitter, SseEvent event) {
         if (emitter == null) return;
         try {
-            String jsonData = MAPPER.writeValueAsString(event.getData());
+            Object data = event.getData();
+            String jsonData = AgentJson.write(gen -> gen.writeObject(data));
             SseEmitter.SseEventBuilder builder = SseEmitter.event()
                     .id(String.valueOf(EVENT_SEQ.incrementAndGet()))
                     .name(event.getEvent())
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.BusinessException;
 import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.common.tenant.TenantAssert;
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fashion.supplychain.intelligence.agent.AiTool;
 import com.fashion.supplychain.intelligence.agent.command.CompensableTool;
 import com.fashion.supplychain.intelligence.agent.command.CompensationResult;
@@ -20,7 +21,7 @@ import java.util.concurrent.*;
 @Slf4j
 public abstract class AbstractAgentTool implements AgentTool, CompensableTool {
 
-    protected static final ObjectMapper MAPPER = new ObjectMapper();
+    protected static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     private static final ExecutorService TIMEOUT_EXECUTOR = new ThreadPoolExecutor(
             4, 16, 60L, TimeUnit.SECONDS,
@@ -104,7 +105,7 @@ public abstract class AbstractAgentTool implements AgentTool, CompensableTool {
             }
 
             if (operationAudit != null && auditId != null) {
-                boolean success = !result.contains("\"success\":false") && !result.contains("\"error\":");
+                boolean success = !AgentJson.isError(result) && !result.contains("\"success\":false");
                 operationAudit.recordComplete(auditId, success, truncate(result, 200));
             }
 
@@ -268,22 +269,38 @@ public abstract class AbstractAgentTool implements AgentTool, CompensableTool {
     }
 
     protected String successJson(String message) throws Exception {
-        return MAPPER.writeValueAsString(Map.of("success", true, "message", message));
+        return successJson(message, Map.of());
     }
 
+    /**
+     * 流式写出 {"success":true,"message":...,...data}，不再复制一份 LinkedHashMap。
+     * data 中的 success / message 覆盖默认值（与原 putAll 语义一致），字段顺序保持不变。
+     */
     protected String successJson(String message, Map<String, Object> data) throws Exception {
-        Map<String, Object> result = new LinkedHashMap<>();
-        result.put("success", true);
-        result.put("message", message);
-        result.putAll(data);
-        return MAPPER.writeValueAsString(result);
+        return AgentJson.write(gen -> {
+            gen.writeStartObject();
+            gen.writeObjectField("success", data.containsKey("success") ? data.get("success") : Boolean.TRUE);
+            gen.writeObjectField("message", data.containsKey("message") ? data.get("message") : message);
+            for (Map.Entry<String, Object> e : data.entrySet()) {
+                if (!"success".equals(e.getKey()) && !"message".equals(e.getKey())) {
+                    gen.writeObjectField(e.getKey(), e.getValue());
+                }
+            }
+            gen.writeEndObject();
+        });
     }
 
+    /** {"success":false,"error":...}：固定字段顺序（原 Map.of 的迭代顺序每次启动都不同） */
     protected String errorJson(String message) {
         try {
-            return MAPPER.writeValueAsString(Map.of("success", false, "error", message));
+            return AgentJson.write(gen -> {
+                gen.writeStartObject();
+                gen.writeBooleanField("success", false);
+                gen.writeStringField("error", message == null ? "" : message);
+                gen.writeEndObject();
+            });
         } catch (Exception e) {
-            return "{\"success\":false,\"error\":\"" + message.replace("\"", "'") + "\"}";
+            return "{\"success\":false,\"error\":\"" + String.valueOf(message).replace("\"", "'") + "\"}";
         }
     }
 
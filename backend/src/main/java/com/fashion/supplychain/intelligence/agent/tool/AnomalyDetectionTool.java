@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.intelligence.agent.AiTool;
 import com.fashion.supplychain.intelligence.dto.AnomalyDetectionResponse;
@@ -21,7 +22,7 @@ public class AnomalyDetectionTool extends AbstractAgentTool {
     @Autowired
     private AnomalyDetectionOrchestrator anomalyDetectionOrchestrator;
 
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper JSON = AgentJson.MAPPER;
 
     @Override
     public String getName() {
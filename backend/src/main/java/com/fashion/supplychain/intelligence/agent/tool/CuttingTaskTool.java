@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.intelligence.agent.AiTool;
@@ -31,7 +32,7 @@ public class CuttingTaskTool extends AbstractAgentTool {
     @Autowired
     private AiAgentToolAccessService aiAgentToolAccessService;
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     @Override
     public String getName() {
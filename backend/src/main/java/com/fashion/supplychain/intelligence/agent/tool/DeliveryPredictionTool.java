@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.intelligence.agent.AiTool;
@@ -22,7 +23,7 @@ public class DeliveryPredictionTool extends AbstractAgentTool {
     @Autowired
     private DeliveryPredictionOrchestrator deliveryPredictionOrchestrator;
 
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper JSON = AgentJson.MAPPER;
 
     @Override
     public String getName() {
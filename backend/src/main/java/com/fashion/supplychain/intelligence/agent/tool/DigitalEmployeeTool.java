@@ -251,7 +251,7 @@ public class DigitalEmployeeTool extends AbstractAgentTool {
         }
 
         com.fasterxml.jackson.databind.ObjectMapper mapper = objectMapper != null ?
-                objectMapper : new com.fasterxml.jackson.databind.ObjectMapper();
+                objectMapper : com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER;
         com.fashion.supplychain.intelligence.dto.ExecutableCommand originalCommand = mapper.readValue(
                 pendingLog.getResultData(), com.fashion.supplychain.intelligence.dto.ExecutableCommand.class);
 
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -34,7 +35,7 @@ import org.springframework.context.annotation.Lazy;
 @AgentToolDef(name = "tool_finance_workflow", description = "财务审批工作流：待付列表、审批列表、发起付款、确认线下付款、拒绝应付款、审批/拒绝报销、审批成品结算、批量执行", domain = ToolDomain.FINANCE, readOnly = false)
 public class FinanceWorkflowTool extends AbstractAgentTool {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     @Autowired private WagePaymentOrchestrator wagePaymentOrchestrator;
     @Autowired private ExpenseReimbursementService expenseReimbursementService;
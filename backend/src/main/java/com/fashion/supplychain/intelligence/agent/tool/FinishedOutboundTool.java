@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.UserContext;
@@ -28,7 +29,7 @@ import java.util.*;
 @AgentToolDef(name = "tool_finished_outbound", description = "成品大货出库工具，按SKU明细出库并写入审计日志", domain = ToolDomain.WAREHOUSE, readOnly = false)
 public class FinishedOutboundTool extends AbstractAgentTool {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     @Autowired
     private FinishedInventoryOrchestrator finishedInventoryOrchestrator;
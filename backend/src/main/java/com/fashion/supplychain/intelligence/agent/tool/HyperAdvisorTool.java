@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.tenant.TenantAssert;
@@ -21,7 +22,7 @@ import org.springframework.context.annotation.Lazy;
 @AgentToolDef(name = "tool_hyper_advisor", description = "高级供应链AI顾问工具，提供风险量化、延期推演、产能模拟、策略建议等专业分析", domain = ToolDomain.ANALYSIS)
 public class HyperAdvisorTool extends AbstractAgentTool {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     @Autowired
     private HyperAdvisorOrchestrator hyperAdvisorOrchestrator;
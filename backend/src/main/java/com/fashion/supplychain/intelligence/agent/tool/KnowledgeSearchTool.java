@@ -8,8 +8,10 @@ import com.fashion.supplychain.intelligence.agent.AiTool;
 import com.fashion.supplychain.intelligence.entity.KnowledgeBase;
 import com.fashion.supplychain.intelligence.service.KnowledgeBaseService;
 import com.fashion.supplychain.intelligence.service.CohereRerankService;
+import com.fashion.supplychain.intelligence.service.LexicalIndexService;
 import com.fashion.supplychain.intelligence.service.QdrantService;
 import com.fashion.supplychain.intelligence.orchestration.KnowledgeGraphOrchestrator;
+import com.fashion.supplychain.intelligence.util.LocalReranker;
 import com.fashion.supplychain.intelligence.util.RrfFusion;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +22,7 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -46,6 +49,10 @@ public class KnowledgeSearchTool extends AbstractAgentTool {
     @Autowired(required = false)
     private CohereRerankService cohereRerankService;
 
+    /** 本地 BM25 词法索引 — 关键词召回，不可用时降级为 LIKE 查询 */
+    @Autowired(required = false)
+    private LexicalIndexService lexicalIndexService;
+
     /** 知识图谱推理引擎 — 可用时提供第三路召回 */
     @Autowired(required = false)
     private KnowledgeGraphOrchestrator knowledgeGraphOrchestrator;
@@ -113,7 +120,20 @@ public class KnowledgeSearchTool extends AbstractAgentTool {
             return scoreMap;
         }, RECALL_EXECUTOR);
 
+        Map<String, Double> lexicalScoreMap = new ConcurrentHashMap<>();
         CompletableFuture<List<KnowledgeBase>> keywordFuture = CompletableFuture.supplyAsync(() -> {
+            if (lexicalIndexService != null) {
+                List<LexicalIndexService.Hit<KnowledgeBase>> hits = lexicalIndexService.searchKnowledge(
+                        tenantId, query, category.isEmpty() ? null : List.of(category), 10);
+                if (hits != null) {
+                    List<KnowledgeBase> kbs = new ArrayList<>(hits.size());
+                    for (LexicalIndexService.Hit<KnowledgeBase> hit : hits) {
+                        lexicalScoreMap.put(hit.item().getId(), hit.score());
+                        kbs.add(hit.item());
+                    }
+                    return kbs;
+                }
+            }
             QueryWrapper<KnowledgeBase> qw = new QueryWrapper<KnowledgeBase>()
                     .eq("delete_flag", 0)
                     .and(wrapper -> wrapper
@@ -244,9 +264,11 @@ public class KnowledgeSearchTool extends AbstractAgentTool {
             candidateHits.add(hit);
         }
 
+        // 本地特征精排始终执行；配置了 Cohere 时在本地排序基础上再精排，Cohere 失败即退回本地排序
+        List<KnowledgeHit> locallyRanked = localRerank(query, candidateHits, lexicalScoreMap);
         List<KnowledgeHit> rankedHits;
         if (cohereRerankService != null && cohereRerankService.isAvailable()) {
-            List<KnowledgeBase> candidateKbs = candidateHits.stream()
+            List<KnowledgeBase> candidateKbs = locallyRanked.stream()
                     .map(KnowledgeHit::getKnowledgeBase).collect(Collectors.toList());
             List<KnowledgeBase> rerankedKbs = cohereRerankService.rerank(query, candidateKbs, 5);
             Map<String, KnowledgeHit> hitMap = candidateHits.stream()
@@ -256,7 +278,7 @@ public class KnowledgeSearchTool extends AbstractAgentTool {
                     .filter(Objects::nonNull)
                     .collect(Collectors.toList());
         } else {
-            rankedHits = candidateHits;
+            rankedHits = locallyRanked;
         }
 
         List<KnowledgeBase> finalList = rankedHits.stream()
@@ -345,6 +367,21 @@ public class KnowledgeSearchTool extends AbstractAgentTool {
         return MAPPER.writeValueAsString(result);
     }
 
+    /** 词法分优先用 BM25 分数，LIKE 降级路径下用关键词匹配分 */
+    private List<KnowledgeHit> localRerank(String query, List<KnowledgeHit> hits, Map<String, Double> lexicalScoreMap) {
+        List<LocalReranker.Candidate<KnowledgeHit>> candidates = new ArrayList<>(hits.size());
+        for (KnowledgeHit hit : hits) {
+            KnowledgeBase kb = hit.getKnowledgeBase();
+            double lexical = lexicalScoreMap.isEmpty()
+                    ? hit.getKeywordScore() : lexicalScoreMap.getOrDefault(kb.getId(), 0d);
+            candidates.add(new LocalReranker.Candidate<>(hit, kb.getTitle(), kb.getKeywords(), kb.getContent(),
+                    lexical, hit.getSemanticScore(), kb.getViewCount()));
+        }
+        return LocalReranker.rerank(query, candidates, candidates.size()).stream()
+                .map(LocalReranker.Candidate::getItem)
+                .collect(Collectors.toList());
+    }
+
     private double computeKeywordScore(KnowledgeBase kb, String query) {
         String normalizedQuery = normalize(query);
         if (normalizedQuery.isEmpty()) {
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -27,7 +28,7 @@ import org.springframework.context.annotation.Lazy;
 @Lazy
 @AgentToolDef(name = "tool_material_audit", description = "面辅料审核与审批：查看待发起初审的采购单、待初审采购单、待审核领取单，支持发起采购初审、通过/驳回采购初审、通过/驳回领取审核", domain = ToolDomain.WAREHOUSE, readOnly = false)
 public class MaterialAuditTool extends AbstractAgentTool {
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
     @Autowired private MaterialPurchaseService materialPurchaseService;
     @Autowired private ProcurementOrchestrator procurementOrchestrator;
     @Autowired private MaterialPickupRecordMapper materialPickupRecordMapper;
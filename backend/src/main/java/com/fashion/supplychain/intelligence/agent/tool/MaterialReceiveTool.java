@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.UserContext;
@@ -24,7 +25,7 @@ import org.springframework.context.annotation.Lazy;
 @AgentToolDef(name = "tool_material_receive", description = "面辅料到货、入库、领取和智能收货：查看智能收货预览、一键智能收货、单条领取、仓库单项领取、更新到货数量、到货并入库、撤回收货", domain = ToolDomain.WAREHOUSE, readOnly = false)
 public class MaterialReceiveTool extends AbstractAgentTool {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     @Autowired private MaterialPurchaseOrchestrator materialPurchaseOrchestrator;
     @Autowired private ProcurementOrchestrator procurementOrchestrator;
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -30,7 +31,7 @@ import org.springframework.context.annotation.Lazy;
 @AgentToolDef(name = "tool_material_reconciliation", description = "物料对账链路：查看对账单、更新状态、退回上一步、解释异常、派发给财务/采购/跟单继续处理", domain = ToolDomain.FINANCE, readOnly = false)
 public class MaterialReconciliationTool extends AbstractAgentTool {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     @Autowired private MaterialReconciliationService materialReconciliationService;
     @Autowired private ReconciliationStatusOrchestrator reconciliationStatusOrchestrator;
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.intelligence.orchestration.AgentCardService;
 import com.fashion.supplychain.intelligence.service.AiAgentToolAccessService;
@@ -28,7 +29,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public class McpToolScanner {
 
     private final ApplicationContext applicationContext;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = AgentJson.MAPPER;
 
     /** 名称 → 注解元数据 */
     private final Map<String, McpToolMeta> toolMetaIndex = new ConcurrentHashMap<>();
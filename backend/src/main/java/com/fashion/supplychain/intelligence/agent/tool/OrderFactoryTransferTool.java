@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.tenant.TenantAssert;
@@ -37,7 +38,7 @@ import java.util.Map;
 @AgentToolDef(name = "tool_order_factory_transfer", description = "订单转厂工具，支持整单转厂和部分转厂，自动向原工厂和新工厂发送站内通知", domain = ToolDomain.PRODUCTION, readOnly = false)
 public class OrderFactoryTransferTool extends AbstractAgentTool {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     @Autowired
     private OrderFactoryTransferOrchestrator transferOrchestrator;
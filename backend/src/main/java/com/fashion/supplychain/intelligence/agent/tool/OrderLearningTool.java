@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -29,7 +30,7 @@ import org.springframework.context.annotation.Lazy;
 @AgentToolDef(name = "tool_order_learning", description = "订单学习建议/解释订单实际价格/刷新单笔或近期订单学习结果/刷新某款历史学习样本", domain = ToolDomain.ANALYSIS)
 public class OrderLearningTool extends AbstractAgentTool {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     @Autowired
     private ProductionOrderService productionOrderService;
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.UserContext;
@@ -23,7 +24,7 @@ import org.springframework.context.annotation.Lazy;
 public class PatternDiscoveryTool extends AbstractAgentTool {
 
     @Autowired private PatternDiscoveryOrchestrator patternOrchestrator;
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectMapper OBJECT_MAPPER = AgentJson.MAPPER;
 
     @Override
     public String getName() {
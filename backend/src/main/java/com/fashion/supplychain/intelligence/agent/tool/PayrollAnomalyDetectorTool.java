@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -34,7 +35,7 @@ import java.util.*;
 @AgentToolDef(name = "tool_payroll_anomaly_detector", description = "工资异常检测工具，对比工人当月产量与近60天基线，筛选出产量异常的工人，防止数据录入错误或恶意刷量", domain = ToolDomain.FINANCE)
 public class PayrollAnomalyDetectorTool extends AbstractAgentTool {
 
-    private static final ObjectMapper OM = new ObjectMapper();
+    private static final ObjectMapper OM = AgentJson.MAPPER;
     private static final DateTimeFormatter YM = DateTimeFormatter.ofPattern("yyyy-MM");
     private static final double ANOMALY_THRESHOLD = 2.0;  // 超过基线2倍标记为HIGH
     private static final int    NEW_HIGH_THRESHOLD = 500;  // 新工人单月产量上限（flags for review）
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -45,7 +46,7 @@ import java.util.stream.Collectors;
 @AgentToolDef(name = "tool_create_production_order", description = "AI完整建单工具，让用户在自然语言里直接给出款式/工厂/颜色尺码数量/开工日期/交期，按正式生产订单链路创建完整订单", domain = ToolDomain.PRODUCTION, readOnly = false)
 public class ProductionOrderCreationTool extends AbstractAgentTool {
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectMapper OBJECT_MAPPER = AgentJson.MAPPER;
     private static final String MATERIAL_PRICE_SOURCE = "物料采购系统";
     private static final String MATERIAL_PRICE_VERSION = "purchase.v1";
 
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.UserContext;
@@ -34,7 +35,7 @@ import java.util.*;
 @AgentToolDef(name = "tool_quality_inbound", description = "成品质检入库工具，支持查询待入库菲号汇总并执行质检入库", domain = ToolDomain.PRODUCTION, readOnly = false)
 public class QualityInboundTool extends AbstractAgentTool {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
     private static final String ACTION_QUERY = "query_pending";
     private static final String ACTION_SUBMIT = "submit";
 
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.UserContext;
@@ -32,7 +33,7 @@ import java.util.*;
 @AgentToolDef(name = "tool_sample_loan", description = "样衣借调与归还工具，支持借调loan和归还return操作，每次操作写入审计日志", domain = ToolDomain.WAREHOUSE, readOnly = false)
 public class SampleLoanTool extends AbstractAgentTool {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     @Autowired
     private SampleStockService sampleStockService;
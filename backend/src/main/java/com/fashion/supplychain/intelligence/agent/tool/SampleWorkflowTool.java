@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -31,7 +32,7 @@ import org.springframework.context.annotation.Lazy;
 @AgentToolDef(name = "tool_sample_workflow", description = "样衣工作流管理：样衣款式阶段动作、样衣审核保存、推送到下单管理、样板生产工作流动作", domain = ToolDomain.STYLE, readOnly = false)
 public class SampleWorkflowTool extends AbstractAgentTool {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     @Autowired private StyleInfoService styleInfoService;
     @Autowired private StyleInfoOrchestrator styleInfoOrchestrator;
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -31,7 +32,7 @@ import org.springframework.context.annotation.Lazy;
 @AgentToolDef(name = "tool_style_template", description = "款式模板工具：从款式生成模板、应用模板到款式、同步工序价格、查询/保存多码单价", domain = ToolDomain.STYLE, readOnly = false)
 public class StyleTemplateTool extends AbstractAgentTool {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     @Autowired private TemplateLibraryOrchestrator templateLibraryOrchestrator;
     @Autowired private StyleInfoService styleInfoService;
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.UserContext;
@@ -41,7 +42,7 @@ public class SystemOverviewTool extends AbstractAgentTool {
     @Autowired
     private MaterialStockService materialStockService;
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectMapper OBJECT_MAPPER = AgentJson.MAPPER;
 
     private static final java.util.Set<String> TERMINAL_STATUSES = java.util.Set.of("completed", "cancelled", "scrapped", "archived", "closed");
     private static final java.util.Set<String> TERMINAL_STATUSES_UPPER = java.util.Set.of("COMPLETED", "CANCELLED", "SCRAPPED", "ARCHIVED", "CLOSED");
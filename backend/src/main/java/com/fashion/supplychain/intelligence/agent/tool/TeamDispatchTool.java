@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.UserContext;
@@ -21,7 +22,7 @@ import org.springframework.context.annotation.Lazy;
 @AgentToolDef(name = "tool_team_dispatch", description = "团队任务派发工具，自动识别责任岗位、匹配系统内人员并发送站内通知，支持查询协同状态、接单、开始处理、完成回写", domain = ToolDomain.SYSTEM, readOnly = false)
 public class TeamDispatchTool extends AbstractAgentTool {
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectMapper OBJECT_MAPPER = AgentJson.MAPPER;
 
     @Autowired
     private CollaborationDispatchOrchestrator collaborationDispatchOrchestrator;
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.intelligence.agent.AiTool;
@@ -37,7 +38,7 @@ import java.util.Map;
 @AgentToolDef(name = "tool_think", description = "AI增强版完整推理引擎，支持结构化思考记录、问题复杂度分析、执行路径规划、风险识别与预警、推理质量自检", domain = ToolDomain.GENERAL)
 public class ThinkTool extends AbstractAgentTool {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = AgentJson.MAPPER;
 
     @Override
     public String getName() {
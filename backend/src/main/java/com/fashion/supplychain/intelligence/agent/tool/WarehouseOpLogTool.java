@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.agent.tool;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -31,7 +32,7 @@ import java.util.stream.Collectors;
 @AgentToolDef(name = "tool_warehouse_op_log", description = "仓库操作日志查询：样衣借调/归还、成品出库的历史审计记录，支持按操作人、操作类型、时间范围过滤", domain = ToolDomain.WAREHOUSE)
 public class WarehouseOpLogTool extends AbstractAgentTool {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     private static final List<String> WAREHOUSE_ACTIONS =
             List.of("sample_loan", "sample_return", "finished_outbound");
@@ -0,0 +1,38 @@
+package com.fashion.supplychain.intelligence.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 定时任务调度策略（由 JobScheduleGovernor 执行）。
+ *
+ * 可标注在类或 @Scheduled 方法上，方法优先；未标注时 intelligence 包下任务按 NORMAL，
+ * 其余业务任务按 HIGH。
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface JobPolicy {
+
+    Priority priority() default Priority.NORMAL;
+
+    /** cron 触发后的随机抖动上限（秒）；-1 = 使用全局配置，0 = 不抖动 */
+    int jitterSeconds() default -1;
+
+    /** 连接池繁忙时最多延后次数；-1 = 按优先级默认值 */
+    int maxDeferrals() default -1;
+
+    enum Priority {
+        /** 调度线程内直接执行：不排队、不抖动、不延后（高频心跳/刷盘类） */
+        CRITICAL,
+        /** 优先出队，不抖动、不因连接池繁忙延后 */
+        HIGH,
+        /** 普通 AI 后台任务：抖动，繁忙时有限延后，延后用尽仍执行 */
+        NORMAL,
+        /** 巡检/学习类重任务：抖动，繁忙时延后，延后用尽本轮跳过 */
+        LOW
+    }
+}
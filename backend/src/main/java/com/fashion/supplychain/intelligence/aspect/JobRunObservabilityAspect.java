@@ -1,27 +1,59 @@
 package com.fashion.supplychain.intelligence.aspect;
 
 import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.intelligence.annotation.JobPolicy;
+import com.fashion.supplychain.intelligence.annotation.JobPolicy.Priority;
+import com.fashion.supplychain.intelligence.job.JobScheduleGovernor;
+import com.fashion.supplychain.intelligence.job.JobScheduleGovernor.JobRun;
 import com.fashion.supplychain.intelligence.service.AiJobRunLogService;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Component;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.util.StringUtils;
 
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.Set;
 
+/**
+ * 定时任务观测 + 调度接管。
+ *
+ * 调度线程上的触发交给 {@link JobScheduleGovernor}（优先级/并发/抖动/负载延后），
+ * 手动调用、CRITICAL 任务、调度器关闭时在当前线程直接执行；两种路径都记录 t_ai_job_run_log。
+ */
 @Slf4j
 @Aspect
 @Component
 @Lazy
 public class JobRunObservabilityAspect {
 
+    private static final String SCHEDULER_THREAD_PREFIX = "scheduling-";
+
+    /** cron 表达式无法解析（含占位符）时的分片时间窗：各实例同一分钟触发即视为同一轮 */
+    private static final long CRON_SHARD_WINDOW_MS = 60_000L;
+
+    /** 推算 cron 名义触发时刻时容忍的调度延迟 */
+    private static final long CRON_FIRE_TOLERANCE_MS = 30_000L;
+
     @Autowired
     private AiJobRunLogService jobRunLogService;
 
+    @Autowired(required = false)
+    private JobScheduleGovernor jobScheduleGovernor;
+
     private static final Set<String> SKIP_LOGGING_METHODS = Set.of(
             "flush",
             "sendHeartbeat",
@@ -38,6 +70,31 @@ public class JobRunObservabilityAspect {
             return pjp.proceed();
         }
 
+        if (jobScheduleGovernor != null && jobScheduleGovernor.isEnabled()
+                && Thread.currentThread().getName().startsWith(SCHEDULER_THREAD_PREFIX)) {
+            Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+            Class<?> targetClass = AopUtils.getTargetClass(pjp.getTarget());
+            JobPolicy policy = resolvePolicy(method, targetClass);
+            Priority priority = policy != null ? policy.priority()
+                    : (targetClass.getName().contains(".intelligence.") ? Priority.NORMAL : Priority.HIGH);
+            if (priority != Priority.CRITICAL && method.getReturnType() == void.class) {
+                Scheduled scheduled = AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class);
+                boolean cron = scheduled != null && StringUtils.hasText(scheduled.cron());
+                long period = fixedPeriodMs(scheduled);
+                jobScheduleGovernor.dispatch(jobName, methodName, priority, cron,
+                        policy != null ? policy.jitterSeconds() : -1,
+                        policy != null ? policy.maxDeferrals() : -1,
+                        period > 0 ? JobScheduleGovernor.NO_SHARD_SLOT : cronSlot(scheduled, System.currentTimeMillis()),
+                        period > 0 ? Math.max(1_000L, period * 9 / 10) : -1L,
+                        run -> runObserved(pjp, jobName, methodName, run));
+                return null;
+            }
+        }
+        return runObserved(pjp, jobName, methodName, null);
+    }
+
+    private Object runObserved(ProceedingJoinPoint pjp, String jobName, String methodName,
+                               JobRun run) throws Throwable {
         LocalDateTime startTime = LocalDateTime.now();
         long startMs = System.currentTimeMillis();
         Long tenantId = UserContext.tenantId();
@@ -45,9 +102,13 @@ public class JobRunObservabilityAspect {
         try {
             Object result = pjp.proceed();
             long durationMs = System.currentTimeMillis() - startMs;
-            String summary = result != null ? truncate(result.toString(), 490) : "completed";
+            String summary = result != null ? result.toString() : "completed";
+            if (run != null) {
+                summary = String.format("wait=%dms defer=%d shardSkip=%d | %s",
+                        run.waitMs(), run.getDeferrals(), run.getShardSkipped(), summary);
+            }
             try {
-                jobRunLogService.logSuccess(jobName, methodName, startTime, durationMs, summary, tenantId);
+                jobRunLogService.logSuccess(jobName, methodName, startTime, durationMs, truncate(summary, 490), tenantId);
             } catch (Exception logEx) {
                 log.warn("[JobObserver] logSuccess调用异常(不影响任务): {}", logEx.getMessage());
             }
@@ -63,6 +124,49 @@ public class JobRunObservabilityAspect {
         }
     }
 
+    private JobPolicy resolvePolicy(Method method, Class<?> targetClass) {
+        Method specific = AopUtils.getMostSpecificMethod(method, targetClass);
+        JobPolicy policy = AnnotatedElementUtils.findMergedAnnotation(specific, JobPolicy.class);
+        return policy != null ? policy : AnnotatedElementUtils.findMergedAnnotation(targetClass, JobPolicy.class);
+    }
+
+    /** fixedRate / fixedDelay 周期（毫秒），cron 任务返回 0 */
+    private long fixedPeriodMs(Scheduled scheduled) {
+        if (scheduled == null) {
+            return 0L;
+        }
+        if (scheduled.fixedRate() > 0) {
+            return scheduled.timeUnit().toMillis(scheduled.fixedRate());
+        }
+        if (scheduled.fixedDelay() > 0) {
+            return scheduled.timeUnit().toMillis(scheduled.fixedDelay());
+        }
+        return 0L;
+    }
+
+    /**
+     * cron 任务的分片槽位 = 本次触发对应的名义触发时刻（不大于实际触发时刻的最近一次匹配），
+     * 各实例同一轮得到同一值，不受触发延迟跨越分钟边界影响
+     */
+    static long cronSlot(Scheduled scheduled, long firedAt) {
+        String expression = scheduled != null ? scheduled.cron() : null;
+        if (CronExpression.isValidExpression(expression)) {
+            ZoneId zone = StringUtils.hasText(scheduled.zone()) ? ZoneId.of(scheduled.zone()) : ZoneId.systemDefault();
+            CronExpression cron = CronExpression.parse(expression);
+            ZonedDateTime fired = Instant.ofEpochMilli(firedAt).atZone(zone);
+            ZonedDateTime nominal = cron.next(fired.minus(Duration.ofMillis(CRON_FIRE_TOLERANCE_MS)));
+            if (nominal != null && !nominal.isAfter(fired)) {
+                ZonedDateTime later = cron.next(nominal);
+                while (later != null && !later.isAfter(fired)) {
+                    nominal = later;
+                    later = cron.next(nominal);
+                }
+                return nominal.toInstant().toEpochMilli();
+            }
+        }
+        return firedAt / CRON_SHARD_WINDOW_MS * CRON_SHARD_WINDOW_MS;
+    }
+
     private String truncate(String s, int max) {
         if (s == null || s.length() <= max) return s;
         return s.substring(0, max) + "…";
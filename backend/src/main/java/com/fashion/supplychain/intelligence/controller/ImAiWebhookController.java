@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.controller;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.UserContext;
@@ -35,7 +36,7 @@ public class ImAiWebhookController {
     private final AiAgentOrchestrator aiAgentOrchestrator;
     private final UserService userService;
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ObjectMapper OBJECT_MAPPER = AgentJson.MAPPER;
     private static final Executor ASYNC_EXECUTOR = Executors.newFixedThreadPool(4, r -> {
         Thread t = new Thread(r, "feishu-ai-async");
         t.setDaemon(true);
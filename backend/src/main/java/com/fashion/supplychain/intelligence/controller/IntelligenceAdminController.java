@@ -184,6 +184,24 @@ public class IntelligenceAdminController {
         return Result.success(jobRunLogService.queryRecent(limit));
     }
 
+    @Autowired
+    private com.fashion.supplychain.intelligence.agent.loop.AgentPromptCatalog agentPromptCatalog;
+
+    /** Agent 工具目录/稳定前缀预编译缓存命中率 */
+    @PreAuthorize("hasAuthority('ROLE_SUPER_ADMIN')")
+    @GetMapping("/metrics/prompt-catalog")
+    public Result<Map<String, Object>> promptCatalogStats() {
+        return Result.success(agentPromptCatalog.getStats());
+    }
+
+    /** 提示词模板或工具权限规则调整后立即失效预编译缓存 */
+    @PreAuthorize("hasAuthority('ROLE_SUPER_ADMIN')")
+    @PostMapping("/metrics/prompt-catalog/invalidate")
+    public Result<?> invalidatePromptCatalog() {
+        agentPromptCatalog.invalidateAll();
+        return Result.success(Map.of("message", "已清空工具目录与前缀缓存"));
+    }
+
     // ── Qdrant 向量库补刷 ──
 
     @PreAuthorize("hasAuthority('ROLE_SUPER_ADMIN')")
@@ -4,6 +4,8 @@ import com.fashion.supplychain.common.Result;
 import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.common.util.RateLimitUtil;
 import com.fashion.supplychain.intelligence.agent.AgentMode;
+import com.fashion.supplychain.intelligence.agent.sse.AgentStream;
+import com.fashion.supplychain.intelligence.agent.sse.AgentStreamRegistry;
 import com.fashion.supplychain.intelligence.annotation.DataTruth;
 import com.fashion.supplychain.intelligence.dto.*;
 import com.fashion.supplychain.intelligence.orchestration.*;
@@ -68,6 +70,7 @@ public class IntelligenceAiAdvisorController {
     private final IntelligenceSignalOrchestrator intelligenceSignalOrchestrator;
     private final IntelligenceMemoryOrchestrator intelligenceMemoryOrchestrator;
     private final LearningLoopOrchestrator learningLoopOrchestrator;
+    private final AgentStreamRegistry agentStreamRegistry;
 
     @Autowired
     private com.fashion.supplychain.intelligence.orchestration.FileAnalysisOrchestrator fileAnalysisOrchestrator;
@@ -139,7 +142,10 @@ public class IntelligenceAiAdvisorController {
         return Result.success(resp);
     }
 
-    /** AI 顾问流式问答 — SSE 实时推送思考/工具调用/回答事件 */
+    /**
+     * AI 顾问流式问答 — SSE 实时推送思考/工具调用/回答事件。
+     * 断线重连（EventSource 自动带 Last-Event-ID）时续传原流，不重新执行 Agent。
+     */
     @PreAuthorize("isAuthenticated()")
     @GetMapping(value = "/ai-advisor/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public SseEmitter aiAdvisorChatStream(@RequestParam String question,
@@ -150,6 +156,7 @@ public class IntelligenceAiAdvisorController {
                                           @RequestParam(required = false) String processName,
                                           @RequestParam(required = false) String stage,
                                           @RequestParam(required = false) String mode,
+                                          @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
                                           jakarta.servlet.http.HttpServletResponse response) {
         response.setHeader("X-Accel-Buffering", "no");
         response.setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
@@ -157,6 +164,10 @@ public class IntelligenceAiAdvisorController {
         if (userId == null || userId.isBlank()) {
             throw new org.springframework.security.access.AccessDeniedException("登录已过期，请重新登录");
         }
+        SseEmitter resumed = agentStreamRegistry.resume(lastEventId, sseTimeout, true);
+        if (resumed != null) {
+            return resumed;
+        }
         if (!RateLimitUtil.checkRateLimit(stringRedisTemplate, "rl:ai:sse:" + userId, 30, 1)) {
             SseEmitter emitter = new SseEmitter(3000L);
             try { emitter.send(SseEmitter.event().name("error").data("AI对话请求过于频繁")); emitter.complete(); } catch (Exception e) { log.warn("[AI对话] SSE限流提示发送失败: userId={}", userId); }
@@ -170,20 +181,46 @@ public class IntelligenceAiAdvisorController {
             } catch (Exception e) { log.debug("Non-critical error: {}", e.getMessage()); }
             return emitter;
         }
+        AgentStream stream = agentStreamRegistry.open();
+        response.setHeader("X-Stream-Id", stream.getId());
+        SseEmitter client = agentStreamRegistry.attach(stream, sseTimeout, true);
+        SseEmitter producer = stream.producer();
         UserContext snapshot = UserContext.get() != null ? UserContext.get().copy() : null;
         Thread.startVirtualThread(() -> {
             try {
                 UserContext.set(snapshot);
-                aiAgentOrchestrator.executeAgentStreaming(question, pageContext, AgentMode.fromString(mode), emitter);
+                aiAgentOrchestrator.executeAgentStreaming(question, pageContext, AgentMode.fromString(mode), producer);
             } catch (Exception e) {
                 try {
-                    emitter.send(SseEmitter.event().name("error").data("{\"message\":\"" + e.getMessage() + "\"}"));
-                    emitter.complete();
+                    producer.send(SseEmitter.event().name("error").data("{\"message\":\"" + e.getMessage() + "\"}"));
                 } catch (Exception ex) { log.debug("Non-critical error: {}", ex.getMessage()); }
             } finally {
+                producer.complete();
                 UserContext.clear();
             }
         });
+        return client;
+    }
+
+    /**
+     * 续传流式问答 — 供无法自定义请求头的客户端（小程序等）使用，
+     * lastEventId 取最后收到的事件 ID（streamId:seq），只拿到 streamId 时传 streamId:0。
+     */
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping(value = "/ai-advisor/chat/stream/resume", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter resumeAiAdvisorChatStream(@RequestParam String lastEventId,
+                                                jakarta.servlet.http.HttpServletResponse response) {
+        response.setHeader("X-Accel-Buffering", "no");
+        response.setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
+        SseEmitter resumed = agentStreamRegistry.resume(lastEventId, sseTimeout, true);
+        if (resumed != null) {
+            return resumed;
+        }
+        SseEmitter emitter = new SseEmitter(3000L);
+        try {
+            emitter.send(SseEmitter.event().name("stream_expired").data("{\"message\":\"会话流已结束或已过期，请重新提问\"}"));
+            emitter.complete();
+        } catch (Exception e) { log.debug("Non-critical error: {}", e.getMessage()); }
         return emitter;
     }
 
@@ -5,6 +5,8 @@ import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.fashion.supplychain.common.Result;
 import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.common.tenant.TenantAssert;
+import com.fashion.supplychain.intelligence.agent.sse.AgentStream;
+import com.fashion.supplychain.intelligence.agent.sse.AgentStreamRegistry;
 import com.fashion.supplychain.intelligence.dto.GraphExecutionResult;
 import com.fashion.supplychain.intelligence.dto.MultiAgentRequest;
 import com.fashion.supplychain.intelligence.entity.AgentExecutionLog;
@@ -30,6 +32,7 @@ public class MultiAgentGraphController {
 
     @Autowired private MultiAgentGraphOrchestrator graphOrchestrator;
     @Autowired private com.fashion.supplychain.intelligence.orchestration.AgentCheckpointService checkpointService;
+    @Autowired private AgentStreamRegistry agentStreamRegistry;
 
     /** 同步执行多代理图分析 */
     @PostMapping("/run")
@@ -42,15 +45,22 @@ public class MultiAgentGraphController {
         return Result.success(result);
     }
 
-    /** SSE 流式执行 — 每个图节点完成后实时推送事件 */
+    /** SSE 流式执行 — 每个图节点完成后实时推送事件；带 Last-Event-ID 重连时续传原流 */
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public SseEmitter stream(@RequestParam(defaultValue = "full") String scene,
-                             @RequestParam(required = false) String question) {
-        SseEmitter emitter = new SseEmitter(120_000L);
+                             @RequestParam(required = false) String question,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        SseEmitter resumed = agentStreamRegistry.resume(lastEventId, 120_000L, true);
+        if (resumed != null) {
+            return resumed;
+        }
         MultiAgentRequest req = new MultiAgentRequest();
         req.setScene(scene);
         req.setQuestion(question);
 
+        AgentStream stream = agentStreamRegistry.open();
+        SseEmitter client = agentStreamRegistry.attach(stream, 120_000L, true);
+        SseEmitter emitter = stream.producer();
         UserContext snapshot = UserContext.get() != null ? UserContext.get().copy() : null;
         Thread.startVirtualThread(() -> {
             try {
@@ -58,12 +68,12 @@ public class MultiAgentGraphController {
                 graphOrchestrator.runGraphStreaming(req, emitter);
             } catch (Exception e) {
                 log.error("[Graph-SSE] 流式执行异常: {}", e.getMessage(), e);
-                try { emitter.complete(); } catch (Exception ex) { log.debug("Non-critical error: {}", ex.getMessage()); }
             } finally {
+                emitter.complete();
                 UserContext.clear();
             }
         });
-        return emitter;
+        return client;
     }
 
     /** 查询执行历史（最近 20 条） */
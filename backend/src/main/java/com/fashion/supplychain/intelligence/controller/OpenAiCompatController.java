@@ -1,6 +1,8 @@
 package com.fashion.supplychain.intelligence.controller;
 
 import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.intelligence.agent.sse.AgentStream;
+import com.fashion.supplychain.intelligence.agent.sse.AgentStreamRegistry;
 import com.fashion.supplychain.intelligence.orchestration.AiAgentOrchestrator;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +22,7 @@ import java.util.*;
 public class OpenAiCompatController {
 
     private final AiAgentOrchestrator aiAgentOrchestrator;
+    private final AgentStreamRegistry agentStreamRegistry;
 
     @Value("${ai.openai-compat.enabled:false}")
     private boolean enabled;
@@ -83,6 +86,7 @@ public class OpenAiCompatController {
     @PostMapping("/chat/completions")
     public Object chatCompletions(
             @RequestHeader(value = "Authorization", required = false) String auth,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
             @RequestBody ChatCompletionRequest request) {
         ResponseEntity<?> authCheck = checkAuthAndSetContext(auth);
         if (authCheck != null) return authCheck;
@@ -90,6 +94,13 @@ public class OpenAiCompatController {
             UserContext.clear();
             return ResponseEntity.status(404).body(Map.of("error", Map.of("message", "OpenAI compat API is disabled", "type", "not_found")));
         }
+        if (Boolean.TRUE.equals(request.getStream()) && lastEventId != null) {
+            SseEmitter resumed = agentStreamRegistry.resume(lastEventId, sseTimeout, false);
+            if (resumed != null) {
+                UserContext.clear();
+                return resumed;
+            }
+        }
 
         String userMessage = extractLastUserMessage(request);
         if (userMessage == null || userMessage.isBlank()) {
@@ -140,7 +151,9 @@ public class OpenAiCompatController {
     }
 
     private SseEmitter handleStreaming(String userMessage, String pageContext) {
-        SseEmitter emitter = new SseEmitter(sseTimeout);
+        AgentStream stream = agentStreamRegistry.open();
+        SseEmitter client = agentStreamRegistry.attach(stream, sseTimeout, false);
+        SseEmitter emitter = stream.producer();
         String chatId = "chatcmpl-" + UUID.randomUUID().toString().substring(0, 8);
 
         Thread.startVirtualThread(UserContext.wrap(() -> {
@@ -169,16 +182,16 @@ public class OpenAiCompatController {
             }
         }));
 
-        emitter.onTimeout(() -> {
+        client.onTimeout(() -> {
             log.warn("[OpenAI-Compat] SSE timeout chatId={}", chatId);
             UserContext.clear();
         });
-        emitter.onError(e -> {
+        client.onError(e -> {
             log.warn("[OpenAI-Compat] SSE error chatId={}: {}", chatId, e.getMessage());
             UserContext.clear();
         });
 
-        return emitter;
+        return client;
     }
 
     private void sendOpenAiChunk(SseEmitter emitter, String chatId, String finishReason, Map<String, Object> delta) {
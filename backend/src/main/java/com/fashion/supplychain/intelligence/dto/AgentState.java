@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.dto;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 import java.util.ArrayList;
@@ -68,7 +69,7 @@ public class AgentState {
 
     // ── 工具方法 ──────────────────────────────────────────────────────────
 
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper JSON = AgentJson.MAPPER;
 
     public String toJson() {
         try {
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.engine.multiint;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fashion.supplychain.intelligence.entity.IntentCompositionTemplateEntity;
 import com.fashion.supplychain.intelligence.mapper.IntentCompositionTemplateMapper;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -21,7 +22,7 @@ import java.util.regex.Pattern;
 public class IntentCompositionTemplateService {
 
     private final IntentCompositionTemplateMapper templateMapper;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = AgentJson.MAPPER;
 
     public List<MatchedTemplate> match(Long tenantId, String query) {
         if (tenantId == null || query == null || query.isBlank()) return new ArrayList<>();
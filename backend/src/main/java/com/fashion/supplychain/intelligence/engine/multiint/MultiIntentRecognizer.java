@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.engine.multiint;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fashion.supplychain.intelligence.engine.dto.MultiIntentResult;
 import com.fashion.supplychain.intelligence.orchestration.IntelligenceInferenceOrchestrator;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -23,7 +24,7 @@ public class MultiIntentRecognizer {
     @Autowired(required = false)
     private IntelligenceInferenceOrchestrator inferenceOrchestrator;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = AgentJson.MAPPER;
 
     private static final List<IntentDef> KNOWN_INTENTS = List.of(
         new IntentDef("overdue", List.of("延期", "逾期", "拖期", "超时", "推迟")),
@@ -17,6 +17,15 @@ public interface AiInferenceGateway {
 
     IntelligenceInferenceResult chatWithVision(String scene, String systemPrompt, String userMessage, String imageUrl);
 
+    /**
+     * 多图视觉调用：一次请求按顺序携带多张图片（批量质检）。
+     * 默认不支持，返回 null，调用方应降级为逐张 {@link #chatWithVision}。
+     */
+    default IntelligenceInferenceResult chatWithVisionMulti(String scene, String systemPrompt, String userMessage,
+                                                           List<String> imageUrls) {
+        return null;
+    }
+
     boolean isAvailable();
 
     boolean isVisionAvailable();
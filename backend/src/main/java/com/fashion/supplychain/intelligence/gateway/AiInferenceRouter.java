@@ -182,6 +182,29 @@ public class AiInferenceRouter implements AiInferenceGateway {
         return empty;
     }
 
+    /**
+     * 多图视觉调用只走 legacy adapter（真正的多个 image_url 部分）；
+     * Spring AI 适配器以文本方式嵌入图片，不支持多图，返回 null 由调用方逐张降级。
+     */
+    @Override
+    public IntelligenceInferenceResult chatWithVisionMulti(String scene, String systemPrompt, String userMessage,
+                                                          List<String> imageUrls) {
+        if (legacyAdapter == null || !legacyAdapter.isVisionAvailable()) {
+            return null;
+        }
+        try {
+            IntelligenceInferenceResult result =
+                    legacyAdapter.chatWithVisionMulti(scene, systemPrompt, userMessage, imageUrls);
+            if (result != null && result.isSuccess() && hasText(result.getContent())) {
+                recordCostAndAudit(scene, result);
+                return result;
+            }
+        } catch (Exception e) {
+            log.warn("[AiInferenceRouter] legacy多图视觉调用异常，降级逐张调用: {}", e.getMessage());
+        }
+        return null;
+    }
+
     @Override
     public boolean isAvailable() {
         return resolveGateway(null).isAvailable();
@@ -54,6 +54,24 @@ public class LegacyInferenceAdapter implements AiInferenceGateway {
         return result;
     }
 
+    @Override
+    public IntelligenceInferenceResult chatWithVisionMulti(String scene, String systemPrompt, String userMessage,
+                                                          List<String> imageUrls) {
+        String fullPrompt = (systemPrompt != null ? systemPrompt + "\n\n" : "") + userMessage;
+        String resultText = delegate.chatWithVisionMulti(imageUrls, fullPrompt);
+        if (resultText == null) {
+            return null;
+        }
+        IntelligenceInferenceResult result = new IntelligenceInferenceResult();
+        result.setSuccess(true);
+        result.setProvider("legacy");
+        result.setContent(resultText);
+        result.setPromptTokens(0);
+        result.setCompletionTokens(0);
+        result.setLatencyMs(0);
+        return result;
+    }
+
     @Override
     public boolean isAvailable() {
         return delegate.isAnyModelEnabled();
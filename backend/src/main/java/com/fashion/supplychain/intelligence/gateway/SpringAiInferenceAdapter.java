@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.gateway;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fashion.supplychain.intelligence.agent.AiMessage;
 import com.fashion.supplychain.intelligence.agent.AiTool;
 import com.fashion.supplychain.intelligence.agent.AiToolCall;
@@ -32,7 +33,7 @@ import org.springframework.context.annotation.Lazy;
 @ConditionalOnProperty(name = "spring-ai.adapter.enabled", havingValue = "true", matchIfMissing = true)
 public class SpringAiInferenceAdapter implements AiInferenceGateway {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     @Autowired
     @Qualifier("springAiChatClient")
@@ -244,8 +245,9 @@ public class SpringAiInferenceAdapter implements AiInferenceGateway {
                     return buildErrorResult(new IllegalStateException("ChatClient bean not available"), start);
                 }
                 
-                // 暂时以文本方式处理图片，后续添加完整 Media 支持
-                String fullPrompt = userMessage + "\n\n[图片地址: " + imageUrl + "]";
+                // 暂时以文本方式处理图片，后续添加完整 Media 支持；内联 data URI 不嵌入文本（避免把整张图的 Base64 当作 prompt）
+                String imageRef = imageUrl != null && imageUrl.startsWith("data:") ? "内联图片（已省略）" : imageUrl;
+                String fullPrompt = userMessage + "\n\n[图片地址: " + imageRef + "]";
 
                 ChatClient.ChatClientRequestSpec requestSpec = chatClient.prompt();
                 if (systemPrompt != null && !systemPrompt.isBlank()) {
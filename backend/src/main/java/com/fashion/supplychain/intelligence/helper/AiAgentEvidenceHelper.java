@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.helper;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
@@ -14,7 +15,7 @@ import java.util.List;
 @Lazy
 public class AiAgentEvidenceHelper {
 
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper JSON = AgentJson.MAPPER;
     public static final int MAX_TOOL_RAW_CHARS = 3000;
 
     public String buildToolEvidenceMessage(String toolName, String toolResult) {
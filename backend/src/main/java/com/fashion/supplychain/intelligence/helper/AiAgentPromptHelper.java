@@ -108,6 +108,15 @@ public class AiAgentPromptHelper {
     }
 
     public String buildSystemPrompt(String userMessage, String pageContext, List<AgentTool> visibleTools, boolean isMultiDomain) {
+        return buildSystemPrompt(userMessage, pageContext, visibleTools, isMultiDomain, buildStablePrefix(visibleTools));
+    }
+
+    /**
+     * @param stablePrefix 由 {@link #buildStablePrefix} 预编译的稳定前缀（身份/原则/工具指南/领域规范），
+     *                     原样放在最前面；本方法只追加随请求变化的动态块
+     */
+    public String buildSystemPrompt(String userMessage, String pageContext, List<AgentTool> visibleTools,
+                                    boolean isMultiDomain, String stablePrefix) {
         TenantAssert.assertTenantContext();
         Long tenantId = UserContext.tenantId();
         String userId = UserContext.userId();
@@ -246,19 +255,17 @@ public class AiAgentPromptHelper {
         String masFromCache = buildMasInsightBlock();
         String masInsightBlock = !masFromFuture.isBlank() ? masFromFuture
                 : (!masFromCache.isBlank() ? masFromCache : "");
-        // 智能工具筛选：工具太多时用 RAG 选最相关的
+        // 智能工具筛选：工具太多时用 RAG 选最相关的；工具指南已在稳定前缀中，这里只在动态区提示本轮重点工具
         List<AgentTool> effectiveTools = applyToolDiscovery(visibleTools, userMessage, pageContext);
-        String toolGuide = aiAgentToolAccessService.buildToolGuide(effectiveTools);
-        String domainHint = buildDomainHint(effectiveTools);
+        String toolFocusHint = buildToolFocusHint(visibleTools, effectiveTools);
         String roleBlock = buildRoleBlock(isManager, workerProfileBlock, mgmtInsightBlock);
         String formatHint = outputEnforcer != null ? outputEnforcer.getFormatHint(userMessage) : "";
 
-        String prompt = assemblePrompt(contextBlock, pageCtxBlock, roleBlock, exceptionReportBlock, activePatrolBlock,
+        String prompt = assemblePrompt(stablePrefix, contextBlock, pageCtxBlock, roleBlock, exceptionReportBlock, activePatrolBlock,
                 masInsightBlock, intelligenceContext, longTermMemBlock, memoryContext, ragContext,
                 userBehaviorBlock, contextFileBlockStr, userProfileBlockStr, memoryBankBlockStr, selfCritiqueBlock,
                 entityMemoryBlock, graphRagBlock, factoryProfileBlock, proceduralMemBlock, proceduralSopBlock,
-                archivalMemBlock, reflectiveMemBlock, formatHint,
-                toolGuide, domainHint);
+                archivalMemBlock, reflectiveMemBlock, formatHint, toolFocusHint);
 
         if (prompt.length() > maxSystemPromptChars) {
             int excess = prompt.length() - maxSystemPromptChars;
@@ -318,6 +325,21 @@ public class AiAgentPromptHelper {
         return prompt;
     }
 
+    /**
+     * 工具发现裁剪出的本轮重点工具（未裁剪时返回空串）
+     */
+    private String buildToolFocusHint(List<AgentTool> visibleTools, List<AgentTool> effectiveTools) {
+        if (effectiveTools == null || visibleTools == null || effectiveTools.isEmpty()
+                || effectiveTools.size() >= visibleTools.size()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder("【本轮优先考虑的工具】");
+        for (AgentTool tool : effectiveTools) {
+            sb.append(PromptToolLabelMapper.toolNameToLabel(tool.getName())).append("；");
+        }
+        return sb.append("\n").toString();
+    }
+
     /**
      * 工具智能筛选 — 工具超过阈值时用 RAG 选最相关的。
      */
@@ -641,15 +663,14 @@ public class AiAgentPromptHelper {
         return "";
     }
 
-    private String assemblePrompt(String contextBlock, String pageCtxBlock, String roleBlock,
-            String exceptionReportBlock, String activePatrolBlock,
-            String masInsightBlock, String intelligenceContext,
-            String longTermMemBlock, String memoryContext, String ragContext,
-            String userBehaviorBlock, String contextFileBlockStr, String userProfileBlockStr,
-            String memoryBankBlockStr, String selfCritiqueBlock, String entityMemoryBlock,
-            String graphRagBlock, String factoryProfileBlock, String proceduralMemBlock,
-            String proceduralSopBlock, String archivalMemBlock, String reflectiveMemBlock,
-            String formatHint, String toolGuide, String domainHint) {
+    /**
+     * 稳定前缀（第1层身份/原则 + 第2层工具指南/领域规范）。
+     *
+     * <p>只依赖 租户（GEPA 个体）+ 可见工具集 + 角色可见性，与用户消息、页面、时间无关，
+     * 由 AgentPromptCatalog 按 (租户, 角色可见性, 工具集) 预编译缓存，保证同一组合逐字节一致，
+     * 命中上游模型的前缀缓存。
+     */
+    public String buildStablePrefix(List<AgentTool> visibleTools) {
         String identity = promptTemplateLoader.getBaseIdentity();
         if (identity == null || identity.isBlank()) {
             identity = "你是小云——服装供应链首席运营顾问，由云裳智链Trivia团队开发。";
@@ -665,6 +686,8 @@ public class AiAgentPromptHelper {
         // 效果：每次调用仅需传输动态部分（约30%），成本降低60-80%。
 
         StringBuilder prompt = new StringBuilder(8000);
+        String toolGuide = aiAgentToolAccessService.buildToolGuide(visibleTools);
+        String domainHint = buildDomainHint(visibleTools);
 
         // ── 第1层：稳定前缀（可缓存 ~5000 tokens）──────────────
         prompt.append("<!--CACHE_STABLE_BEGIN-->");
@@ -685,13 +708,32 @@ public class AiAgentPromptHelper {
         // ── 第2层：工具/领域（半稳定，工具集变化时刷新）────
         prompt.append("<!--BLOCK:toolGuide-->").append(applyGepaGene("toolGuide", toolGuide, gepaInd)).append("<!--/BLOCK:toolGuide-->");
         prompt.append("<!--BLOCK:domainHint-->").append(applyGepaGene("domainHint", domainHint, gepaInd)).append("<!--/BLOCK:domainHint-->");
-        // P2升级: 结构化输出格式提示
+        return prompt.toString();
+    }
+
+    private String assemblePrompt(String stablePrefix, String contextBlock, String pageCtxBlock, String roleBlock,
+            String exceptionReportBlock, String activePatrolBlock,
+            String masInsightBlock, String intelligenceContext,
+            String longTermMemBlock, String memoryContext, String ragContext,
+            String userBehaviorBlock, String contextFileBlockStr, String userProfileBlockStr,
+            String memoryBankBlockStr, String selfCritiqueBlock, String entityMemoryBlock,
+            String graphRagBlock, String factoryProfileBlock, String proceduralMemBlock,
+            String proceduralSopBlock, String archivalMemBlock, String reflectiveMemBlock,
+            String formatHint, String toolFocusHint) {
+        com.fashion.supplychain.intelligence.service.GepaPromptOptimizer.PromptIndividual gepaInd = loadGepaIndividual();
+
+        StringBuilder prompt = new StringBuilder(stablePrefix.length() + 4000);
+        prompt.append(stablePrefix);
+
+        // ── 第3层：动态上下文（每次变化，不缓存；必须整体位于稳定前缀之后）──────────
+        prompt.append("<!--CACHE_DYNAMIC_BEGIN-->");
+        // P2升级: 结构化输出格式提示（随用户消息变化，属于动态块）
         if (formatHint != null && !formatHint.isBlank()) {
             prompt.append("<!--BLOCK:formatHint-->").append(formatHint).append("<!--/BLOCK:formatHint-->");
         }
-
-        // ── 第3层：动态上下文（每次变化，不缓存）──────────
-        prompt.append("<!--CACHE_DYNAMIC_BEGIN-->");
+        if (!toolFocusHint.isEmpty()) {
+            prompt.append("<!--BLOCK:toolFocus-->").append(toolFocusHint).append("<!--/BLOCK:toolFocus-->");
+        }
         prompt.append("<!--BLOCK:context-->").append(applyGepaGene("context", contextBlock, gepaInd)).append("<!--/BLOCK:context-->\n");
         prompt.append("<!--BLOCK:pageContext-->").append(pageCtxBlock).append("<!--/BLOCK:pageContext-->");
         prompt.append("<!--BLOCK:role-->").append(roleBlock).append("<!--/BLOCK:role-->");
@@ -1,6 +1,7 @@
 package com.fashion.supplychain.intelligence.helper;
 
 import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fashion.supplychain.intelligence.agent.AiToolCall;
 import com.fashion.supplychain.intelligence.agent.hook.ToolExecutionHook;
 import com.fashion.supplychain.intelligence.agent.tool.AgentTool;
@@ -111,9 +112,9 @@ public class AiAgentToolExecHelper {
 
     public String buildUnavailableToolResult(String toolName) {
         if (toolMap.containsKey(toolName) && !aiAgentToolAccessService.canUseTool(toolName)) {
-            return "{\"error\":\"当前角色无权使用工具: " + toolName + "\"}";
+            return AgentJson.errorJson("当前角色无权使用工具: " + toolName);
         }
-        return "{\"error\":\"未知工具: " + toolName + "\"}";
+        return AgentJson.errorJson("未知工具: " + toolName);
     }
 
     /** 工具执行结果记录（内部数据结构） */
@@ -124,6 +125,8 @@ public class AiAgentToolExecHelper {
         public final String rawResult;
         public final String evidence;
         public final long elapsedMs;
+        /** 构造时流式判定一次（{@link AgentJson#isError}），下游统一读此字段，不再各自 startsWith 扫描 */
+        public final boolean failed;
 
         public ToolExecRecord(String toolCallId, String toolName, String args,
                        String rawResult, String evidence, long elapsedMs) {
@@ -133,6 +136,7 @@ public class AiAgentToolExecHelper {
             this.rawResult = rawResult;
             this.evidence = evidence;
             this.elapsedMs = elapsedMs;
+            this.failed = AgentJson.isError(rawResult);
         }
     }
 
@@ -182,7 +186,7 @@ public class AiAgentToolExecHelper {
             } catch (Exception e) {
                 log.error("[AiAgent] 并发工具执行异常: {}", e.getMessage());
                 records.add(new ToolExecRecord("err", "unknown", "",
-                        "{\"error\":\"工具执行异常: " + e.getMessage() + "\"}",
+                        AgentJson.errorJson("工具执行异常: " + e.getMessage()),
                         "【工具证据】\n- 状态: 异常\n- 错误: " + e.getMessage(), 0));
             }
         }
@@ -263,7 +267,7 @@ public class AiAgentToolExecHelper {
                     } catch (Exception e) {
                         log.error("[AiAgent] 并发工具执行异常: {}", e.getMessage());
                         records.add(new ToolExecRecord("err", "unknown", "",
-                                "{\"error\":\"工具执行异常: " + e.getMessage() + "\"}",
+                                AgentJson.errorJson("工具执行异常: " + e.getMessage()),
                                 "【工具证据】\n- 状态: 异常\n- 错误: " + e.getMessage(), 0));
                     }
                     it.remove();
@@ -291,7 +295,7 @@ public class AiAgentToolExecHelper {
                 // 1. 熔断检查：5分钟内同工具失败≥5次 → 熔断10分钟
                 if (costExplosionGuard.isCircuitBroken(tenantId, toolName)) {
                     log.warn("[CostGuard] 熔断已触发，拒绝工具调用 tenantId={} tool={}", tenantId, toolName);
-                    rawResult = "{\"error\":\"cost_circuit_broken\",\"message\":\"当前会话成本超限，请稍后重试或开启新会话\"}";
+                    rawResult = AgentJson.errorJson("cost_circuit_broken", "当前会话成本超限，请稍后重试或开启新会话");
                     long elapsed = System.currentTimeMillis() - start;
                     return new ToolExecRecord(toolCallId, toolName, arguments, rawResult,
                             evidenceHelper.buildToolEvidenceMessage(toolName, rawResult), elapsed);
@@ -378,11 +382,11 @@ public class AiAgentToolExecHelper {
                         success = true;
                     } catch (Exception retryEx) {
                         log.error("[AiAgent] 工具重试仍失败: tool={}, error={}", toolName, retryEx.getMessage());
-                        rawResult = "{\"error\":\"工具执行异常(重试后): " + retryEx.getMessage() + "\"}";
+                        rawResult = AgentJson.errorJson("工具执行异常(重试后): " + retryEx.getMessage());
                     }
                 } else {
                     log.error("[AiAgent] 工具执行异常: tool={}, error={}", toolName, e.getMessage());
-                    rawResult = "{\"error\":\"工具执行异常: " + e.getMessage() + "\"}";
+                    rawResult = AgentJson.errorJson("工具执行异常: " + e.getMessage());
                 }
             }
         } else {
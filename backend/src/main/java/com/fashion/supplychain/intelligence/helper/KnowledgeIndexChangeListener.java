@@ -0,0 +1,52 @@
+package com.fashion.supplychain.intelligence.helper;
+
+import com.fashion.supplychain.common.datachange.TableChange;
+import com.fashion.supplychain.common.datachange.TableChangeListener;
+import com.fashion.supplychain.intelligence.entity.KnowledgeBase;
+import com.fashion.supplychain.intelligence.mapper.KnowledgeBaseMapper;
+import com.fashion.supplychain.intelligence.service.LexicalIndexService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 知识库表的写入监听：事务提交后把变更同步到本地词法索引（{@link LexicalIndexService}）。
+ *
+ * 参数是实体（insert / updateById）时按实体 ID 增量更新——insert 的 ID 由 MyBatis-Plus 在执行时回填，
+ * 因此到提交后再读取；只改浏览/有帮助次数的 updateById 不影响检索，直接忽略。
+ * 按条件更新、按 ID 删除等取不到实体的写入，丢弃当前租户与公共知识分片，下次检索时重新装载。
+ */
+@Component
+public class KnowledgeIndexChangeListener implements TableChangeListener {
+
+    @Autowired
+    private LexicalIndexService lexicalIndexService;
+
+    @Override
+    public List<Class<?>> watchedMappers() {
+        return List.of(KnowledgeBaseMapper.class);
+    }
+
+    @Override
+    public boolean accepts(TableChange change) {
+        KnowledgeBase kb = change.entityAs(KnowledgeBase.class);
+        return kb == null || affectsIndex(kb);
+    }
+
+    @Override
+    public void onChange(TableChange change) {
+        KnowledgeBase kb = change.entityAs(KnowledgeBase.class);
+        if (kb != null && kb.getId() != null) {
+            lexicalIndexService.onKnowledgeChanged(kb.getId());
+        } else {
+            lexicalIndexService.onKnowledgeBulkChanged(change.tenantId());
+        }
+    }
+
+    /** 只有计数字段的更新不改变可检索内容 */
+    private static boolean affectsIndex(KnowledgeBase kb) {
+        return kb.getTitle() != null || kb.getContent() != null || kb.getKeywords() != null
+                || kb.getCategory() != null || kb.getDeleteFlag() != null || kb.getTenantId() != null;
+    }
+}
@@ -1,6 +1,7 @@
 package com.fashion.supplychain.intelligence.job;
 
 import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.intelligence.annotation.JobPolicy;
 import com.fashion.supplychain.intelligence.orchestration.AiAgentTraceOrchestrator;
 import com.fashion.supplychain.intelligence.orchestration.PatrolClosedLoopOrchestrator;
 import com.fashion.supplychain.intelligence.service.AgentContextFileService;
@@ -21,7 +22,14 @@ import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * 巡检任务基类。
+ *
+ * 巡检为 LOW 优先级（连接池繁忙时延后/跳过）；循环租户时先 {@link #claimTenant} 认领，
+ * 多实例部署下同一轮巡检的租户由各实例分摊，不再每个实例全量跑一遍。
+ */
 @Slf4j
+@JobPolicy(priority = JobPolicy.Priority.LOW)
 public abstract class AbstractPatrolJob {
 
     protected static final Set<String> TERMINAL_STATUSES =
@@ -34,6 +42,12 @@ public abstract class AbstractPatrolJob {
     @Autowired protected AgentContextFileService agentContextFileService;
     @Autowired protected JdbcTemplate jdbcTemplate;
     @Autowired protected BackendActionFlagService backendActionFlagService;
+    @Autowired(required = false) protected JobScheduleGovernor jobScheduleGovernor;
+
+    /** 认领本轮对该租户的巡检（已被其他实例认领返回 false；手动触发/单实例恒为 true） */
+    protected boolean claimTenant(Long tenantId) {
+        return jobScheduleGovernor == null || jobScheduleGovernor.claimTenant(tenantId);
+    }
 
     protected boolean isPatrolEnabledForTenant(Long tenantId) {
         if (tenantId == null || backendActionFlagService == null) {
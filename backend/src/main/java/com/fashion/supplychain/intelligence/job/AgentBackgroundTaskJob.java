@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.job;
 
+import com.fashion.supplychain.intelligence.annotation.JobPolicy;
 import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.common.lock.DistributedLockService;
 import com.fashion.supplychain.intelligence.entity.AgentBackgroundTask;
@@ -25,6 +26,7 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 @Component
 @Lazy
+@JobPolicy(priority = JobPolicy.Priority.CRITICAL)
 public class AgentBackgroundTaskJob {
 
     @Autowired
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.job;
 
+import com.fashion.supplychain.intelligence.annotation.JobPolicy;
 import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.common.lock.DistributedLockService;
 import com.fashion.supplychain.intelligence.service.ProcessStatsEngine;
@@ -15,6 +16,7 @@ import org.springframework.context.annotation.Lazy;
 @Slf4j
 @Component
 @Lazy
+@JobPolicy(priority = JobPolicy.Priority.LOW)
 public class AiSelfEvolutionJob {
 
     /**
@@ -39,6 +39,9 @@ public class AnomalyDetectorPatrolJob extends AbstractPatrolJob {
         int totalFindings = 0;
 
         for (Long tenantId : tenants) {
+            if (!claimTenant(tenantId)) {
+                continue;
+            }
             long start = System.currentTimeMillis();
             String commandId = null;
             try {
@@ -24,6 +24,9 @@ public class CrewCoordinatorPatrolJob extends AbstractPatrolJob {
         List<Long> tenants = getActiveTenantIds();
 
         for (Long tenantId : tenants) {
+            if (!claimTenant(tenantId)) {
+                continue;
+            }
             long start = System.currentTimeMillis();
             String commandId = null;
             try {
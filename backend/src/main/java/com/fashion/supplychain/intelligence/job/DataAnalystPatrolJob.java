@@ -28,6 +28,9 @@ public class DataAnalystPatrolJob extends AbstractPatrolJob {
         int totalFindings = 0;
 
         for (Long tenantId : tenants) {
+            if (!claimTenant(tenantId)) {
+                continue;
+            }
             long start = System.currentTimeMillis();
             String commandId = null;
             try {
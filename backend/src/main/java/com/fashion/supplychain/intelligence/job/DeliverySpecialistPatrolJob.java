@@ -25,6 +25,9 @@ public class DeliverySpecialistPatrolJob extends AbstractPatrolJob {
         List<Long> tenants = getActiveTenantIds();
 
         for (Long tenantId : tenants) {
+            if (!claimTenant(tenantId)) {
+                continue;
+            }
             long start = System.currentTimeMillis();
             String commandId = null;
             try {
@@ -18,6 +18,9 @@ public class EvolutionEnginePatrolJob extends AbstractPatrolJob {
         List<Long> tenants = getActiveTenantIds();
 
         for (Long tenantId : tenants) {
+            if (!claimTenant(tenantId)) {
+                continue;
+            }
             long start = System.currentTimeMillis();
             String commandId = null;
             try {
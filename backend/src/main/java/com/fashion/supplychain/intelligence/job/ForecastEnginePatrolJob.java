@@ -29,6 +29,9 @@ public class ForecastEnginePatrolJob extends AbstractPatrolJob {
         int totalFindings = 0;
 
         for (Long tenantId : tenants) {
+            if (!claimTenant(tenantId)) {
+                continue;
+            }
             long start = System.currentTimeMillis();
             String commandId = null;
             try {
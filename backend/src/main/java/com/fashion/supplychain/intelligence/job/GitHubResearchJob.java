@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.job;
 
+import com.fashion.supplychain.intelligence.annotation.JobPolicy;
 import com.fashion.supplychain.intelligence.dto.IntelligenceInferenceResult;
 import com.fashion.supplychain.intelligence.orchestration.IntelligenceInferenceOrchestrator;
 import com.fashion.supplychain.intelligence.service.SelfEvolutionEngine;
@@ -22,6 +23,7 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 @Component
 @Lazy
+@JobPolicy(priority = JobPolicy.Priority.LOW)
 public class GitHubResearchJob {
 
     @Autowired
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.job;
 
+import com.fashion.supplychain.intelligence.annotation.JobPolicy;
 import com.fashion.supplychain.intelligence.mapper.IntelligencePredictionLogMapper;
 import com.fashion.supplychain.intelligence.orchestration.LongTermMemoryOrchestrator;
 import java.math.BigDecimal;
@@ -29,6 +30,7 @@ import org.springframework.context.annotation.Lazy;
 @Slf4j
 @Component
 @Lazy
+@JobPolicy(priority = JobPolicy.Priority.LOW)
 public class IntelligenceLearningJob {
 
     private static final int HIGH_BIAS_THRESHOLD_MINUTES = 60;
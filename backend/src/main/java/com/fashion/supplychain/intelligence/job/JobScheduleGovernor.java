@@ -0,0 +1,380 @@
+package com.fashion.supplychain.intelligence.job;
+
+import com.fashion.supplychain.common.lock.DistributedLockService;
+import com.fashion.supplychain.intelligence.annotation.JobPolicy.Priority;
+import com.fashion.supplychain.intelligence.service.AiJobRunLogService;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 定时任务中央调度器。
+ *
+ * 原状：全部 @Scheduled 共用 10 个调度线程，大量任务卡在 03:00–05:00 和整点同一秒触发，
+ * 数据库瞬时尖峰；一个长巡检占住调度线程会拖慢后面所有任务；多实例部署时巡检类任务每个实例都全量跑一遍。
+ *
+ * 现流程（由 JobRunObservabilityAspect 在调度线程上调用 {@link #dispatch}）：
+ * 1. 同一任务单飞：上一轮仍在排队/执行时本次触发直接丢弃；
+ * 2. cron 任务按随机抖动延后入队，打散整点尖峰；
+ * 3. 入独立工作池（优先级队列：HIGH &gt; NORMAL &gt; LOW，同级先到先执行），
+ *    NORMAL / LOW 另有并发上限，工作线程数不小于两者之和 + 1，HIGH 至少保留一个工作线程；
+ *    工作线程默认 10 个，与原调度线程数一致（原调度线程池现在只负责触发）；
+ * 4. 执行前检查 Hikari 连接池占用，繁忙时 NORMAL / LOW 退避延后（LOW 延后用尽本轮跳过，记 SKIPPED）；
+ * 5. 执行期间可调用 {@link #claimTenant} 按租户认领，多实例分摊同一轮的租户：
+ *    cron 任务按名义触发时刻认领（各实例同一轮同一槽位）；fixedRate / fixedDelay 各实例起点不同，
+ *    没有共同槽位，改为不带槽位、租约为 0.9 个周期的认领，即每个租户每个周期在整个集群内至多处理一次。
+ *
+ * 开关：app.job-scheduler.enabled=false 时所有任务回到调度线程内直接执行。
+ */
+@Slf4j
+@Component
+public class JobScheduleGovernor {
+
+    /** 并发已满时重新入队的间隔 */
+    private static final long CONCURRENCY_RETRY_MS = 5_000L;
+
+    private static final ThreadLocal<JobRun> CURRENT = new ThreadLocal<>();
+
+    /** 不按槽位分片（fixedRate / fixedDelay），认领只靠租约时长去重 */
+    public static final long NO_SHARD_SLOT = -1L;
+
+    @Value("${app.job-scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.job-scheduler.workers:10}")
+    private int workers;
+
+    @Value("${app.job-scheduler.normal-max-concurrent:4}")
+    private int normalMaxConcurrent;
+
+    @Value("${app.job-scheduler.low-max-concurrent:2}")
+    private int lowMaxConcurrent;
+
+    @Value("${app.job-scheduler.cron-jitter-seconds:120}")
+    private int cronJitterSeconds;
+
+    @Value("${app.job-scheduler.pool-busy-threshold:0.75}")
+    private double poolBusyThreshold;
+
+    @Value("${app.job-scheduler.defer-seconds:30}")
+    private int deferSeconds;
+
+    @Value("${app.job-scheduler.shard-lease-minutes:30}")
+    private int shardLeaseMinutes;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired(required = false)
+    private DistributedLockService distributedLockService;
+
+    @Autowired
+    @Lazy
+    private AiJobRunLogService jobRunLogService;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, JobRun> inFlight = new ConcurrentHashMap<>();
+
+    private final Map<Priority, AtomicInteger> running = new EnumMap<>(Priority.class);
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @FunctionalInterface
+    public interface JobBody {
+        void run(JobRun run) throws Throwable;
+    }
+
+    @PostConstruct
+    public void init() {
+        for (Priority p : Priority.values()) {
+            running.put(p, new AtomicInteger());
+        }
+        int size = Math.max(2, workers);
+        int reservedMin = Math.max(1, normalMaxConcurrent) + Math.max(1, lowMaxConcurrent) + 1;
+        if (size < reservedMin) {
+            log.warn("[JobGovernor] workers={} 不大于 normalMax + lowMax，HIGH 任务可能无空闲线程，按 {} 启动",
+                    workers, reservedMin);
+            size = reservedMin;
+        }
+        executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), new CustomizableThreadFactory("bg-job-"));
+        log.info("[JobGovernor] 初始化完成 enabled={}, workers={}, normalMax={}, lowMax={}, jitter={}s, busyThreshold={}",
+                enabled, size, normalMaxConcurrent, lowMaxConcurrent, cronJitterSeconds, poolBusyThreshold);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("[JobGovernor] 关闭超时，仍有 {} 个任务在执行", executor.getActiveCount());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 接管一次调度触发（立即返回，任务在工作池中异步执行）
+     *
+     * @param jobName       类名（简短名）
+     * @param methodName    方法名
+     * @param priority      优先级（不应为 CRITICAL，CRITICAL 由调用方直接执行）
+     * @param cron          是否 cron 触发（仅 cron 任务抖动）
+     * @param jitterSeconds 抖动上限，-1 = 全局配置
+     * @param maxDeferrals  繁忙延后上限，-1 = 按优先级默认值
+     * @param shardSlot     分片槽位：各实例同一轮触发得到同一值（cron 名义触发时刻）；{@link #NO_SHARD_SLOT} = 不按槽位
+     * @param shardLeaseMs  租户认领租约，-1 = 全局配置 shard-lease-minutes
+     */
+    public void dispatch(String jobName, String methodName, Priority priority, boolean cron,
+                         int jitterSeconds, int maxDeferrals, long shardSlot, long shardLeaseMs, JobBody body) {
+        long firedAt = System.currentTimeMillis();
+        JobRun run = new JobRun(jobName, methodName, priority, firedAt,
+                shardSlot, shardLeaseMs > 0 ? shardLeaseMs : TimeUnit.MINUTES.toMillis(shardLeaseMinutes),
+                resolveMaxDeferrals(priority, maxDeferrals), sequence.incrementAndGet(), body);
+        JobRun previous = inFlight.putIfAbsent(run.key, run);
+        if (previous != null) {
+            log.debug("[JobGovernor] {} 上一轮尚未结束（已排队{}ms），本次触发丢弃",
+                    run.key, firedAt - previous.firedAt);
+            return;
+        }
+        int jitter = !cron || priority == Priority.HIGH ? 0
+                : (jitterSeconds >= 0 ? jitterSeconds : cronJitterSeconds);
+        if (jitter > 0) {
+            long delayMs = ThreadLocalRandom.current().nextLong(jitter * 1000L);
+            schedule(run, delayMs);
+        } else {
+            enqueue(run);
+        }
+    }
+
+    /**
+     * 认领当前任务本轮对某租户的处理权（多实例分片）。
+     *
+     * 仅在调度器接管的执行中生效；手动触发、调度器关闭、Redis 不可用时恒返回 true（本实例全量执行，与原行为一致）。
+     */
+    public boolean claimTenant(Long tenantId) {
+        JobRun run = CURRENT.get();
+        if (run == null || tenantId == null || distributedLockService == null) {
+            return true;
+        }
+        String slot = run.shardSlot == NO_SHARD_SLOT ? "" : run.shardSlot + ":";
+        Boolean claimed = distributedLockService.tryClaim(
+                "job:shard:" + run.key + ":" + slot + tenantId, run.shardLeaseMs, TimeUnit.MILLISECONDS);
+        if (Boolean.FALSE.equals(claimed)) {
+            run.shardSkipped++;
+            return false;
+        }
+        return true;
+    }
+
+    /** 当前线程是否处于调度器接管的执行中（即 {@link #claimTenant} 会真正分片） */
+    public boolean isSharding() {
+        return CURRENT.get() != null && distributedLockService != null;
+    }
+
+    /** 连接池占用率（active / max），非 Hikari 或未初始化返回 0 */
+    public double poolUtilization() {
+        try {
+            HikariDataSource hikari = dataSource instanceof HikariDataSource h ? h
+                    : (dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null);
+            if (hikari == null) {
+                return 0D;
+            }
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            if (pool == null || hikari.getMaximumPoolSize() <= 0) {
+                return 0D;
+            }
+            if (pool.getThreadsAwaitingConnection() > 0) {
+                return 1D;
+            }
+            return pool.getActiveConnections() / (double) hikari.getMaximumPoolSize();
+        } catch (Exception e) {
+            log.debug("[JobGovernor] 读取连接池状态失败: {}", e.getMessage());
+            return 0D;
+        }
+    }
+
+    private void execute(JobRun run) {
+        AtomicInteger active = running.get(run.priority);
+        if (active.incrementAndGet() > concurrencyLimit(run.priority)) {
+            active.decrementAndGet();
+            schedule(run, CONCURRENCY_RETRY_MS);
+            return;
+        }
+        boolean finished = true;
+        try {
+            if (run.priority != Priority.HIGH) {
+                double utilization = poolUtilization();
+                if (utilization >= poolBusyThreshold) {
+                    if (run.deferrals < run.maxDeferrals) {
+                        run.deferrals++;
+                        finished = false;
+                        log.info("[JobGovernor] 连接池占用{}%，{} 第{}次延后",
+                                Math.round(utilization * 100), run.key, run.deferrals);
+                        schedule(run, deferSeconds * 1000L * run.deferrals);
+                        return;
+                    }
+                    if (run.priority == Priority.LOW) {
+                        logSkipped(run, String.format("连接池占用%d%%，延后%d次后本轮跳过",
+                                Math.round(utilization * 100), run.deferrals));
+                        return;
+                    }
+                }
+            }
+            run.startedAt = System.currentTimeMillis();
+            CURRENT.set(run);
+            run.body.run(run);
+        } catch (Throwable t) {
+            log.warn("[JobGovernor] {} 执行异常: {}", run.key, t.getMessage());
+        } finally {
+            CURRENT.remove();
+            active.decrementAndGet();
+            if (finished) {
+                inFlight.remove(run.key, run);
+            }
+        }
+    }
+
+    private void enqueue(JobRun run) {
+        try {
+            executor.execute(run);
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(run.key, run);
+            log.warn("[JobGovernor] {} 入队被拒绝（工作池已关闭）", run.key);
+        }
+    }
+
+    private void schedule(JobRun run, long delayMs) {
+        try {
+            taskScheduler.schedule(() -> enqueue(run), Instant.now().plusMillis(delayMs));
+        } catch (Exception e) {
+            enqueue(run);
+        }
+    }
+
+    private int concurrencyLimit(Priority priority) {
+        switch (priority) {
+            case LOW:
+                return Math.max(1, lowMaxConcurrent);
+            case NORMAL:
+                return Math.max(1, normalMaxConcurrent);
+            default:
+                return Integer.MAX_VALUE;
+        }
+    }
+
+    private int resolveMaxDeferrals(Priority priority, int configured) {
+        if (configured >= 0) {
+            return configured;
+        }
+        switch (priority) {
+            case LOW:
+                return 6;
+            case NORMAL:
+                return 3;
+            default:
+                return 0;
+        }
+    }
+
+    private void logSkipped(JobRun run, String reason) {
+        log.warn("[JobGovernor] {} {}", run.key, reason);
+        try {
+            jobRunLogService.logSkipped(run.jobName, run.methodName,
+                    LocalDateTime.now(), run.waitMs(), reason, null);
+        } catch (Exception e) {
+            log.warn("[JobGovernor] logSkipped调用异常: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 一次调度触发的执行单元（工作池优先级队列元素）
+     */
+    public final class JobRun implements Runnable, Comparable<JobRun> {
+
+        final String key;
+        final String jobName;
+        final String methodName;
+        final Priority priority;
+        final long firedAt;
+        final long shardSlot;
+        final long shardLeaseMs;
+        final int maxDeferrals;
+        final long seq;
+        final JobBody body;
+
+        volatile int deferrals;
+        volatile long startedAt;
+        volatile int shardSkipped;
+
+        private JobRun(String jobName, String methodName, Priority priority, long firedAt,
+                       long shardSlot, long shardLeaseMs, int maxDeferrals, long seq, JobBody body) {
+            this.key = jobName + "." + methodName;
+            this.jobName = jobName;
+            this.methodName = methodName;
+            this.priority = priority;
+            this.firedAt = firedAt;
+            this.shardSlot = shardSlot;
+            this.shardLeaseMs = shardLeaseMs;
+            this.maxDeferrals = maxDeferrals;
+            this.seq = seq;
+            this.body = body;
+        }
+
+        /** 从触发到开始执行的等待时长（抖动 + 排队 + 延后） */
+        public long waitMs() {
+            return (startedAt > 0 ? startedAt : System.currentTimeMillis()) - firedAt;
+        }
+
+        public int getDeferrals() {
+            return deferrals;
+        }
+
+        /** 本轮因其他实例已认领而跳过的租户数 */
+        public int getShardSkipped() {
+            return shardSkipped;
+        }
+
+        @Override
+        public void run() {
+            execute(this);
+        }
+
+        @Override
+        public int compareTo(JobRun o) {
+            int c = Integer.compare(priority.ordinal(), o.priority.ordinal());
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.job;
 
+import com.fashion.supplychain.intelligence.annotation.JobPolicy;
 import com.fashion.supplychain.common.lock.DistributedLockService;
 import com.fashion.supplychain.intelligence.orchestration.KnowledgeGraphOrchestrator;
 import com.fashion.supplychain.intelligence.service.ProcessStatsEngine;
@@ -46,6 +47,7 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 @Service
 @Lazy
+@JobPolicy(priority = JobPolicy.Priority.LOW)
 public class KnowledgeGraphBuildJob {
 
     /** 单次最多处理的租户数（容量保护，避免单次任务过长） */
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.job;
 
+import com.fashion.supplychain.intelligence.annotation.JobPolicy;
 import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.intelligence.dto.ConsolidationResult;
 import com.fashion.supplychain.intelligence.service.MemoryConsolidationService;
@@ -29,6 +30,7 @@ import org.springframework.stereotype.Component;
 @Slf4j
 @Component
 @Lazy
+@JobPolicy(priority = JobPolicy.Priority.LOW)
 public class MemoryConsolidationJob {
 
     /** 单次最多处理的租户数（容量保护） */
@@ -27,6 +27,9 @@ public class RiskSentinelPatrolJob extends AbstractPatrolJob {
         int totalFindings = 0;
 
         for (Long tenantId : tenants) {
+            if (!claimTenant(tenantId)) {
+                continue;
+            }
             long start = System.currentTimeMillis();
             String commandId = null;
             try {
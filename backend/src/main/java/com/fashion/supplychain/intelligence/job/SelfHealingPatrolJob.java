@@ -53,6 +53,9 @@ public class SelfHealingPatrolJob extends AbstractPatrolJob {
         int suggestions = 0;
 
         for (Long tenantId : tenants) {
+            if (!claimTenant(tenantId)) {
+                continue;
+            }
             if (!isPatrolEnabledForTenant(tenantId)) {
                 log.debug("[SelfHealing] 租户{}巡检开关未开启，跳过", tenantId);
                 continue;
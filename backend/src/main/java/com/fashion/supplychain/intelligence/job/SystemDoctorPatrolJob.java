@@ -42,6 +42,9 @@ public class SystemDoctorPatrolJob extends AbstractPatrolJob {
             List<Long> tenants = getActiveTenantIds();
 
             for (Long tenantId : tenants) {
+                if (!claimTenant(tenantId)) {
+                    continue;
+                }
                 long start = System.currentTimeMillis();
                 String commandId = null;
                 try {
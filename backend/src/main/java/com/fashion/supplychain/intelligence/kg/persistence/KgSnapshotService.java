@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.kg.persistence;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fashion.supplychain.intelligence.entity.KgSnapshotEntity;
 import com.fashion.supplychain.intelligence.engine.kg.KgRelation;
 import com.fashion.supplychain.intelligence.engine.kg.RelationExtractorRegistry;
@@ -26,7 +27,7 @@ import java.util.Map;
 public class KgSnapshotService {
 
     private final KgSnapshotMapper kgSnapshotMapper;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = AgentJson.MAPPER;
 
     @Autowired(required = false)
     RelationExtractorRegistry relationExtractorRegistry;
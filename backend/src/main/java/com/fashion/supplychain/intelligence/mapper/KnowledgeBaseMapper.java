@@ -1,9 +1,36 @@
 package com.fashion.supplychain.intelligence.mapper;
 
+import com.baomidou.mybatisplus.annotation.InterceptorIgnore;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.fashion.supplychain.intelligence.entity.KnowledgeBase;
+import java.util.Collection;
+import java.util.List;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
 @Mapper
 public interface KnowledgeBaseMapper extends BaseMapper<KnowledgeBase> {
+
+    String INDEX_COLUMNS = "id, tenant_id, category, title, content, keywords, source, view_count, helpful_count, "
+            + "delete_flag, created_at AS create_time, updated_at AS update_time";
+
+    /**
+     * 本地词法索引装载：指定租户（tenantId 为 NULL 时装载公共知识）的全部有效条目。
+     * 公共知识 tenant_id 为 NULL，租户拦截器会把它过滤掉，因此绕过拦截器、由 SQL 显式限定租户。
+     */
+    @InterceptorIgnore(tenantLine = "true")
+    @Select("SELECT " + INDEX_COLUMNS + " FROM t_knowledge_base WHERE delete_flag = 0 AND tenant_id <=> #{tenantId}")
+    List<KnowledgeBase> selectForIndex(@Param("tenantId") Long tenantId);
+
+    /** 本地词法索引增量更新：按 ID 读取单条（含已删除，用于从索引移除） */
+    @InterceptorIgnore(tenantLine = "true")
+    @Select("SELECT " + INDEX_COLUMNS + " FROM t_knowledge_base WHERE id = #{id}")
+    KnowledgeBase selectByIdForIndex(@Param("id") String id);
+
+    /** 本地词法索引命中回表：分片只保留 ID 与分类，正文按命中 ID 批量读取（含公共知识） */
+    @InterceptorIgnore(tenantLine = "true")
+    @Select("<script>SELECT " + INDEX_COLUMNS + " FROM t_knowledge_base WHERE delete_flag = 0 AND id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    List<KnowledgeBase> selectByIdsForIndex(@Param("ids") Collection<String> ids);
 }
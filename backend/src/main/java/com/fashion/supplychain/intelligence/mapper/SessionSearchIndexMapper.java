@@ -1,9 +1,29 @@
 package com.fashion.supplychain.intelligence.mapper;
 
+import com.baomidou.mybatisplus.annotation.InterceptorIgnore;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.fashion.supplychain.intelligence.entity.SessionSearchIndex;
+import java.util.Collection;
+import java.util.List;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
 @Mapper
 public interface SessionSearchIndexMapper extends BaseMapper<SessionSearchIndex> {
+
+    String INDEX_COLUMNS = "id, tenant_id, user_id, session_id, conversation_id, user_message, assistant_summary, "
+            + "key_entities, intent_category, resolved, created_at AS create_time";
+
+    /** 本地词法索引装载：租户最近 limit 条会话（显式限定租户，后台刷新线程无用户上下文） */
+    @InterceptorIgnore(tenantLine = "true")
+    @Select("SELECT " + INDEX_COLUMNS + " FROM t_session_search_index "
+            + "WHERE tenant_id = #{tenantId} ORDER BY created_at DESC LIMIT #{limit}")
+    List<SessionSearchIndex> selectRecentForIndex(@Param("tenantId") Long tenantId, @Param("limit") int limit);
+
+    /** 本地词法索引命中回表：分片只保留 ID 与用户，会话内容按命中 ID 批量读取 */
+    @InterceptorIgnore(tenantLine = "true")
+    @Select("<script>SELECT " + INDEX_COLUMNS + " FROM t_session_search_index WHERE tenant_id = #{tenantId} AND id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    List<SessionSearchIndex> selectByIdsForIndex(@Param("tenantId") Long tenantId, @Param("ids") Collection<String> ids);
 }
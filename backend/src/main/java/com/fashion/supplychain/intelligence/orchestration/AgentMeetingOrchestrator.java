@@ -157,7 +157,7 @@ public class AgentMeetingOrchestrator {
     }
 
     private String toJson(Object obj) {
-        try { return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(obj); }
+        try { return com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER.writeValueAsString(obj); }
         catch (Exception e) { return "[]"; }
     }
 
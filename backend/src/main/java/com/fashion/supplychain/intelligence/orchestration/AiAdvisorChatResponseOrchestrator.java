@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.orchestration;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.Result;
@@ -29,7 +30,7 @@ public class AiAdvisorChatResponseOrchestrator {
     @Autowired
     private FollowUpSuggestionEngine followUpSuggestionEngine;
 
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper JSON = AgentJson.MAPPER;
     private static final Pattern INSIGHT_CARD_PATTERN = Pattern.compile("【INSIGHT_CARDS】([\\s\\S]*?)【/INSIGHT_CARDS】");
     private static final Pattern CHART_PATTERN = Pattern.compile("【CHART】([\\s\\S]*?)【/CHART】");
     private static final Pattern AI_META_BLOCK_PATTERN = Pattern.compile("【(?:CHART|ACTIONS|TEAM_STATUS|BUNDLE_SPLIT|INSIGHT_CARDS|STEP_WIZARD|OVERDUE_FACTORY|REPORT_PREVIEW)】[\\s\\S]*?【/(?:CHART|ACTIONS|TEAM_STATUS|BUNDLE_SPLIT|INSIGHT_CARDS|STEP_WIZARD|OVERDUE_FACTORY|REPORT_PREVIEW)】|```ACTIONS_JSON\\s*\\n[\\s\\S]*?\\n```");
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.orchestration;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fashion.supplychain.common.Result;
 import com.fashion.supplychain.common.tenant.TenantAssert;
 import com.fashion.supplychain.common.UserContext;
@@ -76,7 +77,7 @@ public class AiAgentOrchestrator {
     private long quickPathTimeoutMs;
     @Value("${xiaoyun.agent.sse-heartbeat-interval-s:15}")
     private int sseHeartbeatIntervalS;
-    private static final ObjectMapper SSE_MAPPER = new ObjectMapper();
+    private static final ObjectMapper SSE_MAPPER = AgentJson.MAPPER;
 
     private final ExecutorService postTurnExecutor = new ThreadPoolExecutor(
             2, 4, 60L, TimeUnit.SECONDS,
@@ -790,11 +791,21 @@ public class AiAgentOrchestrator {
         com.fashion.supplychain.intelligence.service.JailbreakDetector jailbreakDetector = componentRegistry.getJailbreakDetector();
         com.fashion.supplychain.intelligence.service.PiiMaskingService piiMaskingService = componentRegistry.getPiiMaskingService();
 
+        // 越狱规则与 PII 规则共用一次预过滤扫描
+        com.fashion.supplychain.intelligence.service.GuardrailEngine.Inspection inspection = null;
+        try {
+            inspection = com.fashion.supplychain.intelligence.service.GuardrailEngine.getDefault().inspect(userInput,
+                    com.fashion.supplychain.intelligence.service.GuardrailEngine.Stage.BLOCK,
+                    com.fashion.supplychain.intelligence.service.GuardrailEngine.Stage.MASK);
+        } catch (Exception e) {
+            log.debug("[AiAgent-Security] 护栏扫描异常（逐项回退）: {}", e.getMessage());
+        }
+
         // 第 1 层：越狱检测 — 命中即拦截
         if (jailbreakDetector != null) {
             try {
-                com.fashion.supplychain.intelligence.service.JailbreakDetector.DetectionResult jr =
-                        jailbreakDetector.detect(userInput);
+                com.fashion.supplychain.intelligence.service.JailbreakDetector.DetectionResult jr = inspection != null
+                        ? jailbreakDetector.detect(inspection) : jailbreakDetector.detect(userInput);
                 if (jr.isBlocked()) {
                     log.warn("[AiAgent-Security] 越狱检测拦截: {}", jr.getReason());
                     return null;
@@ -807,7 +818,7 @@ public class AiAgentOrchestrator {
         // 第 2 层：PII 脱敏 — 防止用户输入的 PII 进入 LLM 上下文
         if (piiMaskingService != null) {
             try {
-                userInput = piiMaskingService.mask(userInput);
+                userInput = inspection != null ? inspection.getMasked() : piiMaskingService.mask(userInput);
             } catch (Exception e) {
                 log.debug("[AiAgent-Security] PII 脱敏异常（继续处理）: {}", e.getMessage());
             }
@@ -1578,7 +1589,7 @@ public class AiAgentOrchestrator {
             if (tenantId == null) return;
             for (AiAgentToolExecHelper.ToolExecRecord rec : toolRecords) {
                 String paramsHash = guard.hashParams(rec.args);
-                boolean failed = rec.rawResult != null && rec.rawResult.startsWith("{\"error\"");
+                boolean failed = rec.failed;
                 if (failed) {
                     guard.recordToolFailure(tenantId, rec.toolName);
                 } else {
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.orchestration;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -26,7 +27,7 @@ import org.springframework.context.annotation.Lazy;
 @Slf4j
 public class AiAgentTraceOrchestrator {
 
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper JSON = AgentJson.MAPPER;
 
     @Autowired
     private IntelligenceAuditLogMapper auditLogMapper;
@@ -7,6 +7,7 @@ import com.fashion.supplychain.production.service.ProductionOrderService;
 import com.fashion.supplychain.production.service.SysNoticeService;
 import com.fashion.supplychain.system.entity.Tenant;
 import com.fashion.supplychain.common.lock.DistributedLockService;
+import com.fashion.supplychain.intelligence.job.JobScheduleGovernor;
 import com.fashion.supplychain.system.service.TenantService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -47,6 +48,7 @@ public class AiPatrolOrchestrator {
     @Autowired private ScanRecordMapper scanRecordMapper;
     @Autowired private SysNoticeService sysNoticeService;
     @Autowired(required = false) private DistributedLockService distributedLockService;
+    @Autowired(required = false) private JobScheduleGovernor jobScheduleGovernor;
     @Autowired private AiAgentTraceOrchestrator traceOrchestrator;
 
     // ─── 定时调度 ─────────────────────────────────────────────────────────────
@@ -57,7 +59,10 @@ public class AiPatrolOrchestrator {
     // 初始延迟10分钟，错开与 IntelligenceSignalCollectionJob(:05/:35) 的触发时间
     @Scheduled(fixedRate = 30 * 60 * 1000, initialDelay = 10 * 60 * 1000)
     public void schedulePatrol() {
-        if (distributedLockService != null) {
+        if (jobScheduleGovernor != null && jobScheduleGovernor.isSharding()) {
+            // 由调度器接管：按租户认领分片，多实例分摊本轮租户
+            doPatrol();
+        } else if (distributedLockService != null) {
             String lockValue = distributedLockService.tryLock("job:ai-patrol", 25, TimeUnit.MINUTES);
             if (lockValue == null) {
                 log.debug("[AiPatrol] 其他实例正在执行，跳过");
@@ -79,6 +84,7 @@ public class AiPatrolOrchestrator {
         int total = 0;
         for (Tenant t : tenants) {
             if (isDisabled(t)) continue;
+            if (jobScheduleGovernor != null && !jobScheduleGovernor.claimTenant(t.getId())) continue;
             long start = System.currentTimeMillis();
             String commandId = null;
             try {
@@ -229,7 +229,7 @@ public class AuditTrailOrchestrator {
     private String convertToJson(Object obj) {
         if (obj == null) return "null";
         try {
-            return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(obj);
+            return com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER.writeValueAsString(obj);
         } catch (Exception e) {
             return obj.toString();
         }
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.orchestration;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.intelligence.dto.AgentState;
 import com.fashion.supplychain.production.dto.response.OrderHealthScoreDTO;
@@ -24,7 +25,7 @@ import java.util.*;
 @Lazy
 public class DigitalTwinBuilderOrchestrator {
 
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper JSON = AgentJson.MAPPER;
 
     @Autowired
     private ProductionOrderService productionOrderService;
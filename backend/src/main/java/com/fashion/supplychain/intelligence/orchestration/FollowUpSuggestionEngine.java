@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.orchestration;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fashion.supplychain.intelligence.dto.FollowUpAction;
 import com.fashion.supplychain.intelligence.dto.FollowUpAction.ActionField;
 import com.fashion.supplychain.intelligence.dto.FollowUpAction.ActionType;
@@ -24,7 +25,7 @@ import java.util.*;
 @Lazy
 public class FollowUpSuggestionEngine {
 
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper JSON = AgentJson.MAPPER;
     private static final int MAX_SUGGESTIONS = 4;
 
     /**
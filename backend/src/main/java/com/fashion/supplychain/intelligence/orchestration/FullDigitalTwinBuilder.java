@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.orchestration;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.UserContext;
 import lombok.RequiredArgsConstructor;
@@ -33,7 +34,7 @@ import java.util.concurrent.*;
 @RequiredArgsConstructor
 public class FullDigitalTwinBuilder {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = AgentJson.MAPPER;
 
     /** 各域数据获取器（按需注入，允许部分为 null） */
     private final List<DomainDataProvider> providers;
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fashion.supplychain.intelligence.agent.AiMessage;
 import com.fashion.supplychain.intelligence.agent.AiTool;
 import com.fashion.supplychain.intelligence.agent.AiToolCall;
@@ -38,7 +39,7 @@ import org.springframework.context.annotation.Lazy;
 @Slf4j
 public class IntelligenceInferenceOrchestrator {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
     private HttpClient sharedHttpClient;
 
     private static final Map<String, Double> SCENE_TEMPERATURE = Map.of(
@@ -281,19 +282,7 @@ public class IntelligenceInferenceOrchestrator {
             return null;
         }
 
-        // 规范化 imageUrl：优先用 StyleImageUrlResolver 处理（支持本地文件转Base64、COS预签名）
-        // 失败时回退到原有的 resolveImageUrl（拼接公网URL）
-        String resolvedUrl = null;
-        if (styleImageUrlResolver != null) {
-            resolvedUrl = styleImageUrlResolver.resolveForVision(imageUrl);
-            if (resolvedUrl != null) {
-                log.info("[Vision] imageUrl 已通过 StyleImageUrlResolver 规范化");
-            }
-        }
-        if (resolvedUrl == null) {
-            resolvedUrl = resolveImageUrl(imageUrl);
-        }
-        imageUrl = resolvedUrl;
+        imageUrl = normalizeVisionUrl(imageUrl);
 
         if (visionModels.isEmpty()) {
             log.warn("[Vision] 没有可用的视觉模型");
@@ -324,10 +313,60 @@ public class IntelligenceInferenceOrchestrator {
         return null;
     }
 
+    /**
+     * 多图视觉调用：一次请求按顺序携带多张图片（OpenAI 兼容 content 数组中的多个 image_url 部分），
+     * 用于批量质检。只走故障转移策略；全部模型失败或图片总量超限时返回 null，调用方应降级为逐张调用。
+     */
+    public String chatWithVisionMulti(List<String> imageUrls, String textPrompt) {
+        if (imageUrls == null || imageUrls.isEmpty() || visionModels.isEmpty()) {
+            return null;
+        }
+        List<String> resolved = new ArrayList<>(imageUrls.size());
+        long totalLength = 0;
+        for (String url : imageUrls) {
+            if (!hasText(url)) {
+                return null;
+            }
+            String normalized = normalizeVisionUrl(url);
+            totalLength += normalized.length();
+            resolved.add(normalized);
+        }
+        if (totalLength > 8L * 1024 * 1024) {
+            log.warn("[Vision] 多图请求总大小超过8MB({}MB)，改为逐张调用", totalLength / 1024 / 1024);
+            return null;
+        }
+        log.info("[Vision] 多图分析请求 图片数={} 总长度={}字符", resolved.size(), totalLength);
+        try {
+            return chatWithVisionFailover(resolved, textPrompt);
+        } catch (Exception e) {
+            log.warn("[Vision] 多图分析异常: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 规范化 imageUrl：优先用 StyleImageUrlResolver 处理（支持本地文件转Base64、COS预签名），
+     * 失败时回退到原有的 resolveImageUrl（拼接公网URL）
+     */
+    private String normalizeVisionUrl(String imageUrl) {
+        String resolvedUrl = null;
+        if (styleImageUrlResolver != null) {
+            resolvedUrl = styleImageUrlResolver.resolveForVision(imageUrl);
+            if (resolvedUrl != null && !resolvedUrl.equals(imageUrl)) {
+                log.info("[Vision] imageUrl 已通过 StyleImageUrlResolver 规范化");
+            }
+        }
+        return resolvedUrl != null ? resolvedUrl : resolveImageUrl(imageUrl);
+    }
+
     /**
      * 策略1: 故障转移（默认）- 逐个尝试，成功立即返回
      */
     private String chatWithVisionFailover(String imageUrl, String textPrompt) {
+        return chatWithVisionFailover(List.of(imageUrl), textPrompt);
+    }
+
+    private String chatWithVisionFailover(List<String> imageUrls, String textPrompt) {
         for (int i = 0; i < visionModels.size(); i++) {
             VisionModelConfig model = visionModels.get(i);
             // 401 熔断检查：熔断期内直接跳过，不发请求不刷日志
@@ -337,7 +376,7 @@ public class IntelligenceInferenceOrchestrator {
             }
             try {
                 log.info("[Vision] 尝试视觉模型: {} ({}/{})", model.name, i + 1, visionModels.size());
-                String result = invokeVisionModel(model, imageUrl, textPrompt);
+                String result = invokeVisionModel(model, imageUrls, textPrompt);
                 if (result != null) {
                     log.info("[Vision] 模型 {} 调用成功", model.name);
                     return result;
@@ -414,7 +453,11 @@ public class IntelligenceInferenceOrchestrator {
     }
 
     private String invokeVisionModel(VisionModelConfig model, String imageUrl, String textPrompt) throws Exception {
-        String payload = buildVisionPayload(model.model, imageUrl, textPrompt);
+        return invokeVisionModel(model, List.of(imageUrl), textPrompt);
+    }
+
+    private String invokeVisionModel(VisionModelConfig model, List<String> imageUrls, String textPrompt) throws Exception {
+        String payload = buildVisionPayload(model.model, imageUrls, textPrompt);
         // 视觉调用加 1 次重试：仅对超时(IOException) 和 5xx 重试，4xx（鉴权/参数错）不重试
         int maxAttempts = 2;
         Exception lastException = null;
@@ -504,7 +547,7 @@ public class IntelligenceInferenceOrchestrator {
         authCircuitOpenSince.remove(modelName);
     }
 
-    private String buildVisionPayload(String modelName, String imageUrl, String textPrompt) throws Exception {
+    private String buildVisionPayload(String modelName, List<String> imageUrls, String textPrompt) throws Exception {
         var root = MAPPER.createObjectNode();
         root.put("model", modelName);
         // 加 max_tokens：防超长返回省 token；加 temperature:0.2：识别/质检要稳不要创意
@@ -514,9 +557,11 @@ public class IntelligenceInferenceOrchestrator {
         var userMsg = messagesArr.addObject();
         userMsg.put("role", "user");
         var content = userMsg.putArray("content");
-        var imgPart = content.addObject();
-        imgPart.put("type", "image_url");
-        imgPart.putObject("image_url").put("url", imageUrl);
+        for (String imageUrl : imageUrls) {
+            var imgPart = content.addObject();
+            imgPart.put("type", "image_url");
+            imgPart.putObject("image_url").put("url", imageUrl);
+        }
         var textPart = content.addObject();
         textPart.put("type", "text");
         textPart.put("text", textPrompt);
@@ -578,35 +623,21 @@ public class IntelligenceInferenceOrchestrator {
 
     private HttpRequest buildStreamHttpRequest(String scene, StreamConfig cfg,
             List<AiMessage> messages, List<AiTool> tools, String traceId) throws Exception {
-        String body = buildStreamRequestBody(scene, cfg.model, messages, tools);
+        byte[] body = buildStreamRequestBody(scene, cfg.model, messages, tools);
         int effectiveTimeout = Math.max(Math.min(cfg.timeout, DEFAULT_MAX_TIMEOUT_SECONDS), MIN_TIMEOUT_SECONDS);
         return HttpRequest.newBuilder()
                 .uri(URI.create(cfg.endpoint))
                 .header("Content-Type", "application/json")
                 .header("Authorization", "Bearer " + cfg.apiKey)
                 .header("X-Trace-Id", traceId)
-                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
                 .timeout(Duration.ofSeconds(effectiveTimeout))
                 .build();
     }
 
-    private String buildStreamRequestBody(String scene, String model,
+    private byte[] buildStreamRequestBody(String scene, String model,
             List<AiMessage> messages, List<AiTool> tools) throws Exception {
-        var root = MAPPER.createObjectNode();
-        String actualModel = model;
-        String thinkingMode = null;
-        if (model != null && model.contains(":thinking")) {
-            actualModel = model.replace(":thinking", "");
-            thinkingMode = "thinking";
-        }
-        root.put("model", actualModel);
-        root.put("temperature", SCENE_TEMPERATURE.getOrDefault(scene, DEFAULT_TEMPERATURE));
-        root.put("max_tokens", SCENE_MAX_TOKENS.getOrDefault(scene, DEFAULT_MAX_TOKENS));
-        root.put("stream", true);
-        root.set("messages", MAPPER.valueToTree(messages));
-        if (tools != null && !tools.isEmpty()) root.set("tools", MAPPER.valueToTree(tools));
-        if (thinkingMode != null) root.put("thinking_mode", thinkingMode);
-        return MAPPER.writeValueAsString(root);
+        return buildRequestBody(scene, model, messages, tools, true);
     }
 
     private void readStreamErrorBody(HttpResponse<java.util.stream.Stream<String>> response,
@@ -703,7 +734,7 @@ public class IntelligenceInferenceOrchestrator {
         }
         result.setSuccess(true);
         result.setLatencyMs(System.currentTimeMillis() - start);
-        result.setPromptChars(length(messages.toString()));
+        result.setPromptChars(promptChars(messages));
         result.setResponseChars(acc.fullContent.length());
         int estimatedPrompt = result.getPromptChars() / 4;
         int estimatedCompletion = result.getResponseChars() / 2;
@@ -854,14 +885,14 @@ public class IntelligenceInferenceOrchestrator {
 
     private HttpRequest buildHttpRequest(String endpoint, String apiKey, String model, String scene,
             List<AiMessage> messages, List<AiTool> tools, String traceId, int effectiveTimeout) throws Exception {
-        String body = buildRequestBody(scene, model, messages, tools);
+        byte[] body = buildRequestBody(scene, model, messages, tools);
         return HttpRequest.newBuilder()
                 .uri(URI.create(endpoint))
                 .header("Content-Type", "application/json")
                 .header("Authorization", "Bearer " + apiKey)
                 .header("X-Trace-Id", traceId)
                 .header("X-Request-Id", traceId)
-                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
                 .timeout(Duration.ofSeconds(effectiveTimeout))
                 .build();
     }
@@ -881,7 +912,7 @@ public class IntelligenceInferenceOrchestrator {
         result.setTraceId(traceId);
         result.setTraceUrl(intelligenceObservabilityOrchestrator.buildTraceUrl(traceId));
         result.setLatencyMs(Math.max(0, System.currentTimeMillis() - start));
-        result.setPromptChars(length(messages.toString()));
+        result.setPromptChars(promptChars(messages));
         result.setResponseChars(length(result.getContent()));
         intelligenceObservabilityOrchestrator.recordInvocation(scene, result, UserContext.tenantId(), UserContext.userId());
         aiAgentTokenBudgetService.recordUsage(result.getPromptTokens(), result.getCompletionTokens());
@@ -901,21 +932,41 @@ public class IntelligenceInferenceOrchestrator {
         return effective;
     }
 
-    private String buildRequestBody(String scene, String model, List<AiMessage> messages, List<AiTool> tools) throws Exception {
-        var root = MAPPER.createObjectNode();
+    private byte[] buildRequestBody(String scene, String model, List<AiMessage> messages, List<AiTool> tools) throws Exception {
+        return buildRequestBody(scene, model, messages, tools, false);
+    }
+
+    /**
+     * 流式写出请求体：messages / tools 由 JsonGenerator 直接序列化为 UTF-8 字节，
+     * 不再经过 valueToTree 整棵 JsonNode 树 + 中间 String（多工具回合的工具结果会被复制两遍）。
+     */
+    private byte[] buildRequestBody(String scene, String model, List<AiMessage> messages,
+            List<AiTool> tools, boolean stream) throws Exception {
         String actualModel = model;
         String thinkingMode = null;
         if (model != null && model.contains(":thinking")) {
             actualModel = model.replace(":thinking", "");
             thinkingMode = "thinking";
         }
-        root.put("model", actualModel);
-        root.put("temperature", SCENE_TEMPERATURE.getOrDefault(scene, DEFAULT_TEMPERATURE));
-        root.put("max_tokens", SCENE_MAX_TOKENS.getOrDefault(scene, DEFAULT_MAX_TOKENS));
-        root.set("messages", MAPPER.valueToTree(messages));
-        if (tools != null && !tools.isEmpty()) root.set("tools", MAPPER.valueToTree(tools));
-        if (thinkingMode != null) root.put("thinking_mode", thinkingMode);
-        return MAPPER.writeValueAsString(root);
+        final String modelName = actualModel;
+        final String thinking = thinkingMode;
+        return AgentJson.writeBytes(gen -> {
+            gen.writeStartObject();
+            gen.writeStringField("model", modelName);
+            gen.writeNumberField("temperature", SCENE_TEMPERATURE.getOrDefault(scene, DEFAULT_TEMPERATURE));
+            gen.writeNumberField("max_tokens", SCENE_MAX_TOKENS.getOrDefault(scene, DEFAULT_MAX_TOKENS));
+            if (stream) {
+                gen.writeBooleanField("stream", true);
+            }
+            gen.writeObjectField("messages", messages);
+            if (tools != null && !tools.isEmpty()) {
+                gen.writeObjectField("tools", tools);
+            }
+            if (thinking != null) {
+                gen.writeStringField("thinking_mode", thinking);
+            }
+            gen.writeEndObject();
+        });
     }
 
     private void extractResponse(String responseBody, IntelligenceInferenceResult result) throws Exception {
@@ -963,6 +1014,25 @@ public class IntelligenceInferenceOrchestrator {
     }
 
     private int length(String value) { return value == null ? 0 : value.length(); }
+
+    /**
+     * 累加消息正文与 tool_calls 函数名、参数长度（原 messages.toString() 会把整段上下文再拼一遍，仅为取长度）；
+     * 助手轮次的工具调用参数同样计入上下文预算，漏算会低估
+     */
+    private int promptChars(List<AiMessage> messages) {
+        if (messages == null) return 0;
+        int total = 0;
+        for (AiMessage m : messages) {
+            if (m == null) continue;
+            total += length(m.getContent());
+            if (m.getTool_calls() == null) continue;
+            for (AiToolCall call : m.getTool_calls()) {
+                if (call == null || call.getFunction() == null) continue;
+                total += length(call.getFunction().getName()) + length(call.getFunction().getArguments());
+            }
+        }
+        return total;
+    }
     private boolean hasText(String value) { return value != null && !value.trim().isEmpty(); }
 
     /**
@@ -157,7 +157,7 @@ public class MemoryNudgeOrchestrator {
             if (start < 0 || end <= start) return null;
             String json = response.substring(start, end + 1);
 
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+            com.fasterxml.jackson.databind.ObjectMapper mapper = com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER;
             @SuppressWarnings("unchecked")
             Map<String, Object> map = mapper.readValue(json, Map.class);
 
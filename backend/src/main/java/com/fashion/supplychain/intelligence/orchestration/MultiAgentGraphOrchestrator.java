@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.orchestration;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -40,7 +41,7 @@ import com.fashion.supplychain.intelligence.agent.dag.SwarmExecutionEngine.Swarm
 public class MultiAgentGraphOrchestrator {
 
     private static final int CONFIDENCE_THRESHOLD = 70;
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper JSON = AgentJson.MAPPER;
 
     @Autowired private SupervisorAgentOrchestrator supervisor;
     @Autowired private ReflectionEngineOrchestrator reflector;
@@ -288,7 +288,7 @@ public class NlQueryDataHandlers {
             }
 
             try {
-                String factoryGroupsJson = new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(factoryGroups);
+                String factoryGroupsJson = com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER.writeValueAsString(factoryGroups);
                 sb.append("\n【OVERDUE_FACTORY】").append(factoryGroupsJson).append("【/OVERDUE_FACTORY】");
             } catch (Exception e) {
                 log.warn("[智能问答] 序列化工厂分组数据失败: {}", e.getMessage());
@@ -236,7 +236,7 @@ public class ReActLoopOrchestrator {
                     record.evidence, record.toolCallId, record.toolName));
             cb.onToolResult(
                     record.toolName,
-                    !record.rawResult.startsWith("{\"error\""),
+                    !record.failed,
                     record.evidence);
         }
 
@@ -259,7 +259,7 @@ public class ReActLoopOrchestrator {
 
         for (AiAgentToolExecHelper.ToolExecRecord record : execRecords) {
             // 检查工具执行是否成功
-            boolean hasError = record.rawResult != null && record.rawResult.startsWith("{\"error\"");
+            boolean hasError = record.failed;
             if (hasError) {
                 issues.add("工具 [" + record.toolName + "] 执行失败: " + record.rawResult);
             }
@@ -343,7 +343,7 @@ public class ReActLoopOrchestrator {
             int step = 1;
             for (ReActState.ExecutionEntry entry : state.getPreviousExecutions()) {
                 for (AiAgentToolExecHelper.ToolExecRecord record : entry.execRecords()) {
-                    String status = record.rawResult.startsWith("{\"error\"") ? "✗" : "✓";
+                    String status = record.failed ? "✗" : "✓";
                     answer.append(step++).append(". ").append(status).append(" ")
                             .append(record.toolName).append("\n");
                 }
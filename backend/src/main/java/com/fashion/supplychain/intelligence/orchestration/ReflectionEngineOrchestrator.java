@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.orchestration;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.intelligence.dto.AgentState;
 import com.fashion.supplychain.intelligence.entity.DecisionMemory;
@@ -23,7 +24,7 @@ import org.springframework.context.annotation.Lazy;
 @Lazy
 public class ReflectionEngineOrchestrator {
 
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper JSON = AgentJson.MAPPER;
 
     private static final String SYS_PROMPT =
         "你是服装供应链AI反思专家。请对以下决策进行严格的批判性分析。\n" +
@@ -47,7 +47,7 @@ public class SkillEvolutionOrchestrator {
             String stepsJson = template.getStepsJson();
             if (stepsJson != null) {
                 try {
-                    com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+                    com.fasterxml.jackson.databind.ObjectMapper mapper = com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER;
                     Object[] steps = mapper.readValue(stepsJson, Object[].class);
                     if (steps.length > MAX_EVOLUTION_STEPS) {
                         log.warn("[SkillEvolve] 技能步骤过多({}>{})，丢弃 {}", steps.length, MAX_EVOLUTION_STEPS, template.getSkillName());
@@ -170,7 +170,7 @@ public class SkillEvolutionOrchestrator {
             int end = json.lastIndexOf('}');
             if (start >= 0 && end > start) json = json.substring(start, end + 1);
 
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+            com.fasterxml.jackson.databind.ObjectMapper mapper = com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER;
             @SuppressWarnings("unchecked")
             Map<String, Object> map = mapper.readValue(json, Map.class);
 
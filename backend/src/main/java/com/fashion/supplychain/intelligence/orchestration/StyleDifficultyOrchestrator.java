@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.orchestration;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.intelligence.dto.StyleIntelligenceProfileResponse.DifficultyAssessment;
 import com.fashion.supplychain.intelligence.service.AiAdvisorService;
@@ -41,7 +42,7 @@ public class StyleDifficultyOrchestrator {
     @Value("${ai.agnes.model:agnes-2.5-flash}")
     private String agnesVisionModel;
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     public DifficultyAssessment assess(StyleInfo style) {
         if (style == null || style.getId() == null) return defaultAssessment();
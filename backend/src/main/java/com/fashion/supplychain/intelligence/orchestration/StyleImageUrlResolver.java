@@ -1,12 +1,35 @@
 package com.fashion.supplychain.intelligence.orchestration;
 
 import com.fashion.supplychain.common.CosService;
+import com.fashion.supplychain.common.UserContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.context.annotation.Lazy;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * 视觉分析取图地址规范化：本地上传文件、COS 直链、外链、data URI 统一转成模型可用的地址或 data URI。
+ *
+ * <p>租户文件路径（/api/file/tenant-download/{tenantId}/…、COS tenants/{tenantId}/…）只解析当前租户自己的文件，
+ * 路径中的租户与登录租户不一致时拒绝（超级管理员除外）。
+ * 外链取图（{@link #fetchImage}）只访问公网地址：每一跳（含重定向目标）解析出的 IP 都不能是回环、私网、
+ * 链路本地等内部地址；重定向由本类逐跳跟随，响应体边读边计数，超过上限立即中断。
+ */
 @Component
 @Lazy
 @Slf4j
@@ -18,8 +41,23 @@ public class StyleImageUrlResolver {
     @Value("${fashion.upload-dir:./uploads}")
     private String uploadPath;
 
+    private static final int MAX_EXTERNAL_BYTES = 8 * 1024 * 1024;
+    private static final int MAX_REDIRECTS = 3;
+
+    private static final HttpClient HTTP = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+
+    /** 禁止访问的目标地址（测试可替换） */
+    Predicate<InetAddress> blockedAddress = StyleImageUrlResolver::isInternalAddress;
+
+    /** 外链取图结果 */
+    public record FetchedImage(byte[] bytes, String contentType) {}
+
     public String resolveForVision(String rawUrl) {
         if (rawUrl == null || rawUrl.isBlank()) return null;
+        if (rawUrl.startsWith("data:")) return rawUrl;
         if (rawUrl.startsWith("https://") || rawUrl.startsWith("http://")) {
             if (rawUrl.contains(".cos.") && rawUrl.contains(".myqcloud.com/")) {
                 return resolveCosHttpsUrl(rawUrl);
@@ -38,6 +76,9 @@ public class StyleImageUrlResolver {
             String filename = rest.substring(slashIdx + 1);
             try {
                 Long tenantId = Long.parseLong(tenantIdStr);
+                if (!isAccessibleTenant(tenantId)) {
+                    return null;
+                }
                 if (cosService.isEnabled()) {
                     String presignedUrl = cosService.getPresignedUrl(tenantId, filename);
                     log.info("[StyleDifficulty][imageResolve] → COS 预签名 URL (tenantId={}, file={})", tenantId, filename);
@@ -67,6 +108,9 @@ public class StyleImageUrlResolver {
                 if (slashIdx > 0) {
                     Long tenantId = Long.parseLong(rest.substring(0, slashIdx));
                     String filename = rest.substring(slashIdx + 1);
+                    if (!isAccessibleTenant(tenantId)) {
+                        return null;
+                    }
                     if (cosService.isEnabled()) {
                         String presigned = cosService.getPresignedUrl(tenantId, filename);
                         log.info("[StyleDifficulty][imageResolve] COS直链 → 预签名URL (tenantId={}, file={})", tenantId, filename);
@@ -81,38 +125,128 @@ public class StyleImageUrlResolver {
         return cosUrl;
     }
 
+    /** 路径中的租户必须是当前登录租户（超级管理员可跨租户） */
+    private boolean isAccessibleTenant(Long pathTenantId) {
+        if (Objects.equals(pathTenantId, UserContext.tenantId()) || UserContext.isSuperAdmin()) {
+            return true;
+        }
+        log.warn("[StyleDifficulty][imageResolve] 拒绝读取其他租户文件: pathTenantId={}, currentTenantId={}",
+                pathTenantId, UserContext.tenantId());
+        return false;
+    }
+
     private String downloadExternalImageAsBase64(String url) {
         try {
-            java.net.http.HttpRequest req = java.net.http.HttpRequest.newBuilder()
-                    .uri(java.net.URI.create(url))
+            FetchedImage image = fetchImage(url, MAX_EXTERNAL_BYTES);
+            if (image == null) {
+                return null;
+            }
+            String contentType = image.contentType() != null ? image.contentType() : "image/jpeg";
+            String mimeType = contentType.contains("png") ? "image/png"
+                    : contentType.contains("webp") ? "image/webp"
+                    : contentType.contains("gif") ? "image/gif" : "image/jpeg";
+            String b64 = java.util.Base64.getEncoder().encodeToString(image.bytes());
+            log.info("[StyleDifficulty][imageResolve] 外链图片下载成功 → Base64({}KB, {})", image.bytes().length / 1024, mimeType);
+            return "data:" + mimeType + ";base64," + b64;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            log.warn("[StyleDifficulty][imageResolve] 外链图片下载异常: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 下载公网图片：逐跳校验目标地址并跟随最多 {@link #MAX_REDIRECTS} 次重定向，响应体超过 maxBytes 立即中断。
+     *
+     * @return 状态非 200、目标为内部地址、重定向过多或超过大小上限时返回 null
+     */
+    public FetchedImage fetchImage(String url, int maxBytes) throws IOException, InterruptedException {
+        URI uri = URI.create(url);
+        for (int hop = 0; hop <= MAX_REDIRECTS; hop++) {
+            if (!isAllowedTarget(uri)) {
+                log.warn("[StyleDifficulty][imageResolve] 拒绝访问内部地址: {}", uri.getHost());
+                return null;
+            }
+            HttpRequest req = HttpRequest.newBuilder(uri)
                     .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
                     .header("Accept", "image/*,*/*")
-                    .timeout(java.time.Duration.ofSeconds(20))
+                    .timeout(Duration.ofSeconds(20))
                     .GET()
                     .build();
-            java.net.http.HttpResponse<byte[]> resp = java.net.http.HttpClient.newHttpClient()
-                    .send(req, java.net.http.HttpResponse.BodyHandlers.ofByteArray());
-            if (resp.statusCode() == 200) {
-                byte[] bytes = resp.body();
-                if (bytes.length > 8 * 1024 * 1024) {
-                    log.warn("[StyleDifficulty][imageResolve] 外链图片过大({}MB>8MB)，跳过视觉", bytes.length / 1024 / 1024);
+            HttpResponse<InputStream> resp = HTTP.send(req, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = resp.body()) {
+                int status = resp.statusCode();
+                if (status == 301 || status == 302 || status == 303 || status == 307 || status == 308) {
+                    String location = resp.headers().firstValue("Location").orElse(null);
+                    if (location == null) {
+                        return null;
+                    }
+                    uri = uri.resolve(location);
+                    continue;
+                }
+                if (status != 200) {
+                    log.warn("[StyleDifficulty][imageResolve] 外链图片下载失败 status={} url={}",
+                            status, url.substring(0, Math.min(80, url.length())));
+                    return null;
+                }
+                long declared = resp.headers().firstValueAsLong("Content-Length").orElse(-1L);
+                byte[] bytes = declared > maxBytes ? null : readBounded(body, maxBytes);
+                if (bytes == null) {
+                    log.warn("[StyleDifficulty][imageResolve] 外链图片超过{}KB，跳过视觉", maxBytes / 1024);
                     return null;
                 }
-                String contentType = resp.headers().firstValue("Content-Type").orElse("image/jpeg");
-                String mimeType = contentType.contains("png") ? "image/png"
-                        : contentType.contains("webp") ? "image/webp"
-                        : contentType.contains("gif") ? "image/gif" : "image/jpeg";
-                String b64 = java.util.Base64.getEncoder().encodeToString(bytes);
-                log.info("[StyleDifficulty][imageResolve] 外链图片下载成功 → Base64({}KB, {})", bytes.length / 1024, mimeType);
-                return "data:" + mimeType + ";base64," + b64;
+                return new FetchedImage(bytes, resp.headers().firstValue("Content-Type").orElse(null));
             }
-            log.warn("[StyleDifficulty][imageResolve] 外链图片下载失败 status={} url={}",
-                    resp.statusCode(), url.substring(0, Math.min(80, url.length())));
-            return null;
-        } catch (Exception e) {
-            log.warn("[StyleDifficulty][imageResolve] 外链图片下载异常: {}", e.getMessage());
-            return null;
         }
+        log.warn("[StyleDifficulty][imageResolve] 外链图片重定向超过{}次", MAX_REDIRECTS);
+        return null;
+    }
+
+    /** 读取至多 maxBytes 字节；超过上限返回 null（调用方关闭流即中断连接） */
+    static byte[] readBounded(InputStream in, int maxBytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(maxBytes, 64 * 1024));
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            if (out.size() + n > maxBytes) {
+                return null;
+            }
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /** 仅允许 http/https，且主机解析出的每个地址都不是内部地址 */
+    private boolean isAllowedTarget(URI uri) {
+        String scheme = uri.getScheme();
+        if (uri.getHost() == null || !("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))) {
+            return false;
+        }
+        try {
+            for (InetAddress address : InetAddress.getAllByName(uri.getHost())) {
+                if (blockedAddress.test(address)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    /** 回环、未指定、私网、链路本地、组播、运营商 NAT（100.64/10）及 IPv6 唯一本地（fc00::/7）地址 */
+    static boolean isInternalAddress(InetAddress address) {
+        if (address.isLoopbackAddress() || address.isAnyLocalAddress() || address.isSiteLocalAddress()
+                || address.isLinkLocalAddress() || address.isMulticastAddress()) {
+            return true;
+        }
+        byte[] b = address.getAddress();
+        if (address instanceof Inet6Address) {
+            return (b[0] & 0xFE) == 0xFC;
+        }
+        return (b[0] & 0xFF) == 0 || ((b[0] & 0xFF) == 100 && (b[1] & 0xC0) == 64);
     }
 
     private String readLocalFileAsBase64DataUri(Long tenantId, String filename) {
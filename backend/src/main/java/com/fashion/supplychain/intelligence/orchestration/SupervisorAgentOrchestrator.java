@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.orchestration;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.intelligence.dto.AgentState;
 import com.fashion.supplychain.intelligence.orchestration.specialist.SpecialistAgent;
@@ -32,7 +33,7 @@ import java.util.stream.Collectors;
 @Lazy
 public class SupervisorAgentOrchestrator {
 
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper JSON = AgentJson.MAPPER;
 
     private static final List<String> VALID_ROUTES =
         Arrays.asList("delivery_risk", "sourcing", "compliance", "logistics", "production", "cost", "full");
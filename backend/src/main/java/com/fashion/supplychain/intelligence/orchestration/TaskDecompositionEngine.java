@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.orchestration;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fashion.supplychain.intelligence.agent.AiMessage;
 import com.fashion.supplychain.intelligence.dto.IntelligenceInferenceResult;
 import com.fashion.supplychain.intelligence.gateway.AiInferenceGateway;
@@ -39,7 +40,7 @@ public class TaskDecompositionEngine {
     @Value("${xiaoyun.decomposition.minComplexity:50}")
     private int minComplexityThreshold;
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     private static final String DECOMPOSITION_PROMPT = """
 你是一个任务分解专家。请将用户的复杂问题分解为多个可独立执行的子任务。
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.orchestration;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.fashion.supplychain.intelligence.entity.AiTaskTracker;
@@ -46,7 +47,7 @@ public class TaskTrackerOrchestrator {
     @Lazy
     private StringRedisTemplate redisTemplate;
 
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper JSON = AgentJson.MAPPER;
 
     /** Redis key 前缀，必含 tenantId 隔离（P0 铁律 4） */
     private static final String TASK_KEY_PREFIX = "agent:task:";
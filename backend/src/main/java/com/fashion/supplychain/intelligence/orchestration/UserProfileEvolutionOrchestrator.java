@@ -183,7 +183,7 @@ public class UserProfileEvolutionOrchestrator {
             if (start < 0 || end <= start) return result;
             String json = response.substring(start, end + 1);
 
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+            com.fasterxml.jackson.databind.ObjectMapper mapper = com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER;
             Map<String, Object> map = mapper.readValue(json, Map.class);
 
             for (Map.Entry<String, Object> entry : map.entrySet()) {
@@ -123,6 +123,41 @@ public class VisualAIOrchestrator {
         return resp;
     }
 
+    /**
+     * 批量缺陷检测（质检批量上传）：结果与 imageUrls 顺序一一对应。
+     * 未命中缓存的图片由 {@link VisionAnalysisService#analyzeDefectBatch} 合并为多图请求。
+     */
+    public List<VisualAIResponse> analyzeDefectBatch(List<String> imageUrls, String contextHint) {
+        List<VisionAnalysisService.VisionResult> visionResults;
+        try {
+            visionResults = visionAnalysisService.analyzeDefectBatch(imageUrls, contextHint);
+        } catch (Exception e) {
+            log.warn("[VisualAI] Batch vision call failed: {}", e.getMessage());
+            visionResults = null;
+        }
+        List<VisualAIResponse> responses = new ArrayList<>(imageUrls.size());
+        for (int i = 0; i < imageUrls.size(); i++) {
+            VisualAIRequest req = new VisualAIRequest();
+            req.setImageUrl(imageUrls.get(i));
+            req.setTaskType("DEFECT_DETECT");
+            VisionAnalysisService.VisionResult visionResult = visionResults != null ? visionResults.get(i) : null;
+            if (visionResult == null) {
+                responses.add(errorResponse("视觉AI服务暂时不可用", req));
+                continue;
+            }
+            if (!visionResult.isAvailable() || visionResult.getConfidence() == 0) {
+                responses.add(errorResponse(visionResult.getErrorMessage() != null ? visionResult.getErrorMessage() : "视觉AI分析失败", req));
+                continue;
+            }
+            String llmRaw = visionResult.getRawResponse() != null ? visionResult.getRawResponse() : visionResult.getReport();
+            VisualAIResponse resp = parseResponse(llmRaw, "DEFECT_DETECT");
+            resp.setTaskType("DEFECT_DETECT");
+            resp.setLogId(persistLog(req, resp));
+            responses.add(resp);
+        }
+        return responses;
+    }
+
     // ──────────────────────────────────────────────────────────────────
     // Prompt 构建
     // ──────────────────────────────────────────────────────────────────
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.orchestration.agent;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.intelligence.dto.SmartNotification;
 import com.fashion.supplychain.intelligence.orchestration.IntelligenceInferenceOrchestrator;
@@ -29,7 +30,7 @@ public class MultiAgentDebateOrchestrator {
     @Autowired
     private IntelligenceInferenceOrchestrator inferenceOrchestrator;
 
-    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final ObjectMapper JSON = AgentJson.MAPPER;
 
     /**
      * 对关键订单进行多维度联合诊断
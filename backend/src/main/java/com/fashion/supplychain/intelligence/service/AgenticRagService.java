@@ -5,6 +5,7 @@ import com.fashion.supplychain.intelligence.dto.IntelligenceMemoryResponse;
 import com.fashion.supplychain.intelligence.entity.KnowledgeBase;
 import com.fashion.supplychain.intelligence.orchestration.IntelligenceMemoryOrchestrator;
 import com.fashion.supplychain.intelligence.service.QdrantService.ScoredPoint;
+import com.fashion.supplychain.intelligence.util.LocalReranker;
 import com.fashion.supplychain.service.RedisService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,6 +46,7 @@ public class AgenticRagService {
     @Autowired(required = false) private EntityMemoryContextService entityMemoryContextService;
     @Autowired(required = false) private RedisService redisService;
     @Autowired(required = false) private AiAdvisorService aiAdvisorService;
+    @Autowired(required = false) private LexicalIndexService lexicalIndexService;
 
     private static final int DEFAULT_TOP_K = 5;
     private static final float MIN_SCORE = 0.35f;
@@ -693,7 +695,26 @@ public class AgenticRagService {
 
     // ── 工具方法 ──
 
+    /**
+     * 知识库关键词检索：优先走本地 BM25 索引（多取候选后本地特征精排），
+     * 索引不可用、查询无可检索词或没有命中时回退 LIKE 查询。
+     */
     private List<KnowledgeBase> searchKB(Long tenantId, String query, List<String> categories, int limit) {
+        if (lexicalIndexService != null) {
+            List<LexicalIndexService.Hit<KnowledgeBase>> hits =
+                    lexicalIndexService.searchKnowledge(tenantId, query, categories, limit * 3);
+            if (hits != null) {
+                List<LocalReranker.Candidate<KnowledgeBase>> candidates = new ArrayList<>(hits.size());
+                for (LexicalIndexService.Hit<KnowledgeBase> hit : hits) {
+                    KnowledgeBase kb = hit.item();
+                    candidates.add(new LocalReranker.Candidate<>(kb, kb.getTitle(), kb.getKeywords(),
+                            kb.getContent(), hit.score(), 0, kb.getViewCount()));
+                }
+                return LocalReranker.rerank(query, candidates, limit).stream()
+                        .map(LocalReranker.Candidate::getItem)
+                        .toList();
+            }
+        }
         try {
             QueryWrapper<KnowledgeBase> qw = new QueryWrapper<KnowledgeBase>()
                     .eq("delete_flag", 0)
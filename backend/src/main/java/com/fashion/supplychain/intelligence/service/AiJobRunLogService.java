@@ -105,6 +105,31 @@ public class AiJobRunLogService extends ServiceImpl<AiJobRunLogMapper, AiJobRunL
         }
     }
 
+    /**
+     * 异步记录任务跳过日志（调度器因负载等原因放弃本轮执行）
+     *
+     * @param waitMs 从触发到放弃的等待时长，记入 durationMs
+     */
+    @Async
+    public void logSkipped(String jobName, String methodName, LocalDateTime startTime,
+                           long waitMs, String reason, Long tenantId) {
+        if (!isWritable()) return;
+        try {
+            AiJobRunLog record = new AiJobRunLog()
+                    .setTenantId(tenantId)
+                    .setJobName(jobName)
+                    .setMethodName(methodName)
+                    .setStartTime(startTime)
+                    .setDurationMs(waitMs)
+                    .setStatus("SKIPPED")
+                    .setResultSummary(truncate(reason, 490));
+            save(record);
+            onWriteSuccess();
+        } catch (Exception e) {
+            onWriteFailure(e, "写入跳过日志失败");
+        }
+    }
+
     /**
      * 查询最近 N 条任务日志（默认 50 条）
      */
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.service;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
@@ -36,7 +37,7 @@ import java.util.stream.Collectors;
 @Lazy
 public class ConversationMemoryService {
 
-    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper JSON_MAPPER = AgentJson.MAPPER;
 
     private static final String CONVERSATION_PREFIX = "ai:conv:";
     private static final String SUMMARY_PREFIX = "ai:conv:summary:";
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.service;
 
+import com.fashion.supplychain.intelligence.annotation.JobPolicy;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.fashion.supplychain.intelligence.entity.CronJob;
 import com.fashion.supplychain.intelligence.gateway.AiInferenceRouter;
@@ -17,6 +18,7 @@ import java.util.List;
 @Service
 @Lazy
 @RequiredArgsConstructor
+@JobPolicy(priority = JobPolicy.Priority.HIGH)
 public class CronSchedulerService {
 
     private final CronJobMapper cronJobMapper;
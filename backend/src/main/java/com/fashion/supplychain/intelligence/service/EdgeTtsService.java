@@ -11,9 +11,9 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
@@ -32,7 +32,14 @@ public class EdgeTtsService {
     private static final String CHROMIUM_MAJOR = CHROMIUM_VERSION.split("\\.")[0];
     private static final long WIN_EPOCH = 11644473600L;
 
+    /** 空闲连接最多保留数与保留时长（服务端会关闭长时间空闲的连接） */
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+    private static final long IDLE_TTL_MS = 20_000;
+    /** 复用连接等待首个响应的时长，超时视为连接已失效，改用新连接重试 */
+    private static final long REUSE_FIRST_RESPONSE_MS = 3_000;
+
     private final HttpClient httpClient;
+    private final LinkedBlockingDeque<EdgeConnection> idleConnections = new LinkedBlockingDeque<>();
 
     public EdgeTtsService() {
         this.httpClient = HttpClient.newBuilder()
@@ -44,6 +51,10 @@ public class EdgeTtsService {
         return synthesize(text, DEFAULT_VOICE);
     }
 
+    /**
+     * 合成一段语音。连接在请求结束后放回空闲池，后续请求（包括分段合成的并发请求）直接复用，
+     * 省去每次 WebSocket 握手与 speech.config 往返；复用的连接失效时自动换新连接重试一次。
+     */
     public byte[] synthesize(String text, String voiceName) {
         if (text == null || text.isBlank()) {
             throw new IllegalArgumentException("文本不能为空");
@@ -53,140 +64,234 @@ public class EdgeTtsService {
             trimmed = trimmed.substring(0, 500);
         }
 
-        String requestId = UUID.randomUUID().toString().replace("-", "");
+        for (int attempt = 1; ; attempt++) {
+            EdgeConnection conn = borrowIdle();
+            boolean reused = conn != null;
+            try {
+                if (conn == null) {
+                    conn = openConnection();
+                }
+                byte[] audio = conn.synthesize(trimmed, voiceName, reused);
+                release(conn);
+                return audio;
+            } catch (Exception e) {
+                if (conn != null) {
+                    conn.close();
+                }
+                if (reused && attempt == 1) {
+                    log.debug("[EdgeTTS] 复用连接失效，改用新连接重试: {}", e.getMessage());
+                    continue;
+                }
+                log.warn("[EdgeTTS] 语音合成失败: text={}, voice={}, error={}",
+                        trimmed.substring(0, Math.min(30, trimmed.length())),
+                        voiceName, e.getMessage());
+                throw new RuntimeException("语音合成失败: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private EdgeConnection borrowIdle() {
+        EdgeConnection conn;
+        while ((conn = idleConnections.pollFirst()) != null) {
+            if (conn.isUsable()) {
+                return conn;
+            }
+            conn.close();
+        }
+        return null;
+    }
+
+    private void release(EdgeConnection conn) {
+        if (!conn.isUsable() || idleConnections.size() >= MAX_IDLE_CONNECTIONS) {
+            conn.close();
+            return;
+        }
+        conn.lastUsedAt = System.currentTimeMillis();
+        idleConnections.offerFirst(conn);
+    }
+
+    private EdgeConnection openConnection() throws Exception {
         String connectionId = UUID.randomUUID().toString().replace("-", "");
-        String secMsGec = generateSecMsGec();
-        String muid = generateMuid();
+        URI uri = new URI(WSS_URL
+                + "?TrustedClientToken=" + TRUSTED_TOKEN
+                + "&Sec-MS-GEC=" + generateSecMsGec()
+                + "&Sec-MS-GEC-Version=1-" + CHROMIUM_VERSION
+                + "&ConnectionId=" + connectionId);
+        EdgeConnection conn = new EdgeConnection();
+        java.net.http.WebSocket webSocket = httpClient.newWebSocketBuilder()
+                .header("Origin", "chrome-extension://jdiccldimpdaibmpdkjnbmckianbfold")
+                .header("User-Agent",
+                        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) "
+                                + "AppleWebKit/537.36 (KHTML, like Gecko) "
+                                + "Chrome/" + CHROMIUM_MAJOR + ".0.0.0 Safari/537.36"
+                                + " Edg/" + CHROMIUM_MAJOR + ".0.0.0")
+                .header("Pragma", "no-cache")
+                .header("Cache-Control", "no-cache")
+                .header("Accept-Encoding", "gzip, deflate, br, zstd")
+                .header("Accept-Language", "en-US,en;q=0.9")
+                .header("Cookie", "muid=" + generateMuid() + ";")
+                .buildAsync(uri, conn)
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        conn.webSocket = webSocket;
+        String config = "Content-Type:application/json; charset=utf-8\r\n"
+                + "Path:speech.config\r\n\r\n"
+                + "{\"context\":{\"synthesis\":{\"audio\":{"
+                + "\"metadataoptions\":{\"sentenceBoundaryEnabled\":\"false\",\"wordBoundaryEnabled\":\"true\"},"
+                + "\"outputFormat\":\"" + OUTPUT_FORMAT + "\"}}}}";
+        webSocket.sendText(config, true).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        return conn;
+    }
 
-        CompletableFuture<byte[]> future = new CompletableFuture<>();
-        List<byte[]> audioChunks = new java.util.concurrent.CopyOnWriteArrayList<>();
-        String finalText = trimmed;
+    /** 进行中的一次合成请求 */
+    private static final class PendingRequest {
+        final String requestId;
+        final CompletableFuture<byte[]> future = new CompletableFuture<>();
+        final CompletableFuture<Void> started = new CompletableFuture<>();
+        final java.io.ByteArrayOutputStream audio = new java.io.ByteArrayOutputStream();
 
-        try {
-            URI uri = new URI(WSS_URL
-                    + "?TrustedClientToken=" + TRUSTED_TOKEN
-                    + "&Sec-MS-GEC=" + secMsGec
-                    + "&Sec-MS-GEC-Version=1-" + CHROMIUM_VERSION
-                    + "&ConnectionId=" + connectionId);
-
-            java.net.http.WebSocket.Listener listener = new java.net.http.WebSocket.Listener() {
-                private final StringBuilder textBuffer = new StringBuilder();
-
-                @Override
-                public void onOpen(java.net.http.WebSocket webSocket) {
-                    webSocket.request(1);
-
-                    String config = "Content-Type:application/json; charset=utf-8\r\n"
-                            + "Path:speech.config\r\n\r\n"
-                            + "{\"context\":{\"synthesis\":{\"audio\":{"
-                            + "\"metadataoptions\":{\"sentenceBoundaryEnabled\":\"false\",\"wordBoundaryEnabled\":\"true\"},"
-                            + "\"outputFormat\":\"" + OUTPUT_FORMAT + "\"}}}}";
-                    webSocket.sendText(config, true);
-
-                    String ssml = "X-RequestId:" + requestId + "\r\n"
-                            + "Content-Type:application/ssml+xml\r\n"
-                            + "Path:ssml\r\n\r\n"
-                            + "<speak version='1.0' xmlns='http://www.w3.org/2001/10/synthesis' xml:lang='zh-CN'>"
-                            + "<voice name='" + voiceName + "'>"
-                            + escapeXml(finalText)
-                            + "</voice></speak>";
-                    webSocket.sendText(ssml, true);
+        PendingRequest(String requestId) {
+            this.requestId = requestId;
+        }
+
+        /** 服务端消息头带 X-RequestId 时只接收本请求的消息（丢弃超时请求的迟到数据） */
+        boolean owns(String header) {
+            return !header.contains("X-RequestId:") || header.contains("X-RequestId:" + requestId);
+        }
+
+        void finish() {
+            synchronized (audio) {
+                if (audio.size() > 0) {
+                    future.complete(audio.toByteArray());
+                } else {
+                    future.completeExceptionally(new RuntimeException("未收到音频"));
                 }
+            }
+        }
+    }
 
-                @Override
-                public java.util.concurrent.CompletionStage<?> onText(
-                        java.net.http.WebSocket webSocket, CharSequence data, boolean last) {
-                    textBuffer.append(data);
-                    if (last) {
-                        String payload = textBuffer.toString();
-                        textBuffer.setLength(0);
-                        if (payload.contains("Path:turn.end")) {
-                            try {
-                                java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-                                for (byte[] chunk : audioChunks) {
-                                    baos.write(chunk);
-                                }
-                                future.complete(baos.toByteArray());
-                            } catch (Exception e) {
-                                future.completeExceptionally(e);
-                            }
-                            webSocket.sendClose(java.net.http.WebSocket.NORMAL_CLOSURE, "done");
-                        }
-                    }
-                    webSocket.request(1);
-                    return null;
+    /** 一条 WebSocket 连接，同一时刻只承载一个请求 */
+    private final class EdgeConnection implements java.net.http.WebSocket.Listener {
+        private volatile java.net.http.WebSocket webSocket;
+        private volatile PendingRequest pending;
+        private volatile boolean closed;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+        private final StringBuilder textBuffer = new StringBuilder();
+        private final java.io.ByteArrayOutputStream binaryBuffer = new java.io.ByteArrayOutputStream();
+
+        boolean isUsable() {
+            return !closed && webSocket != null && !webSocket.isOutputClosed() && !webSocket.isInputClosed()
+                    && System.currentTimeMillis() - lastUsedAt < IDLE_TTL_MS;
+        }
+
+        byte[] synthesize(String text, String voiceName, boolean reused) throws Exception {
+            PendingRequest request = new PendingRequest(UUID.randomUUID().toString().replace("-", ""));
+            pending = request;
+            try {
+                String ssml = "X-RequestId:" + request.requestId + "\r\n"
+                        + "Content-Type:application/ssml+xml\r\n"
+                        + "Path:ssml\r\n\r\n"
+                        + "<speak version='1.0' xmlns='http://www.w3.org/2001/10/synthesis' xml:lang='zh-CN'>"
+                        + "<voice name='" + voiceName + "'>"
+                        + escapeXml(text)
+                        + "</voice></speak>";
+                webSocket.sendText(ssml, true).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                if (reused) {
+                    request.started.get(REUSE_FIRST_RESPONSE_MS, TimeUnit.MILLISECONDS);
                 }
+                return request.future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } finally {
+                pending = null;
+            }
+        }
 
-                @Override
-                public java.util.concurrent.CompletionStage<?> onBinary(
-                        java.net.http.WebSocket webSocket, ByteBuffer data, boolean last) {
-                    if (data.remaining() > 2) {
-                        byte b1 = data.get();
-                        byte b2 = data.get();
-                        int headerLen = ((b1 & 0xFF) << 8) | (b2 & 0xFF);
-                        if (data.remaining() >= headerLen) {
-                            data.position(data.position() + headerLen);
-                            byte[] audioData = new byte[data.remaining()];
-                            data.get(audioData);
-                            if (audioData.length > 0) {
-                                audioChunks.add(audioData);
-                            }
-                        }
+        void close() {
+            closed = true;
+            java.net.http.WebSocket ws = webSocket;
+            if (ws != null && !ws.isOutputClosed()) {
+                ws.sendClose(java.net.http.WebSocket.NORMAL_CLOSURE, "done");
+            }
+        }
+
+        @Override
+        public void onOpen(java.net.http.WebSocket webSocket) {
+            webSocket.request(1);
+        }
+
+        @Override
+        public java.util.concurrent.CompletionStage<?> onText(
+                java.net.http.WebSocket webSocket, CharSequence data, boolean last) {
+            textBuffer.append(data);
+            if (last) {
+                String payload = textBuffer.toString();
+                textBuffer.setLength(0);
+                PendingRequest request = pending;
+                if (request != null && request.owns(payload)) {
+                    request.started.complete(null);
+                    if (payload.contains("Path:turn.end")) {
+                        request.finish();
                     }
-                    webSocket.request(1);
-                    return null;
                 }
+            }
+            webSocket.request(1);
+            return null;
+        }
 
-                @Override
-                public java.util.concurrent.CompletionStage<?> onClose(
-                        java.net.http.WebSocket webSocket, int statusCode, String reason) {
-                    if (!future.isDone()) {
-                        if (audioChunks.isEmpty()) {
-                            future.completeExceptionally(
-                                    new RuntimeException("连接关闭但未收到音频: " + reason));
-                        } else {
-                            try {
-                                java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-                                for (byte[] chunk : audioChunks) {
-                                    baos.write(chunk);
-                                }
-                                future.complete(baos.toByteArray());
-                            } catch (Exception e) {
-                                future.completeExceptionally(e);
+        @Override
+        public java.util.concurrent.CompletionStage<?> onBinary(
+                java.net.http.WebSocket webSocket, ByteBuffer data, boolean last) {
+            byte[] part = new byte[data.remaining()];
+            data.get(part);
+            binaryBuffer.write(part, 0, part.length);
+            if (last) {
+                byte[] message = binaryBuffer.toByteArray();
+                binaryBuffer.reset();
+                if (message.length > 2) {
+                    int headerLen = ((message[0] & 0xFF) << 8) | (message[1] & 0xFF);
+                    if (message.length - 2 >= headerLen) {
+                        String header = new String(message, 2, headerLen, StandardCharsets.UTF_8);
+                        PendingRequest request = pending;
+                        int audioLen = message.length - 2 - headerLen;
+                        if (request != null && request.owns(header) && audioLen > 0) {
+                            request.started.complete(null);
+                            synchronized (request.audio) {
+                                request.audio.write(message, 2 + headerLen, audioLen);
                             }
                         }
                     }
-                    return null;
                 }
+            }
+            webSocket.request(1);
+            return null;
+        }
 
-                @Override
-                public void onError(java.net.http.WebSocket webSocket, Throwable error) {
-                    log.warn("[EdgeTTS] WebSocket错误: {}", error.getMessage());
-                    future.completeExceptionally(error);
+        @Override
+        public java.util.concurrent.CompletionStage<?> onClose(
+                java.net.http.WebSocket webSocket, int statusCode, String reason) {
+            closed = true;
+            PendingRequest request = pending;
+            if (request != null && !request.future.isDone()) {
+                synchronized (request.audio) {
+                    if (request.audio.size() == 0) {
+                        request.future.completeExceptionally(
+                                new RuntimeException("连接关闭但未收到音频: " + reason));
+                        request.started.completeExceptionally(new RuntimeException("连接已关闭"));
+                        return null;
+                    }
                 }
-            };
-
-            httpClient.newWebSocketBuilder()
-                    .header("Origin", "chrome-extension://jdiccldimpdaibmpdkjnbmckianbfold")
-                    .header("User-Agent",
-                            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) "
-                                    + "AppleWebKit/537.36 (KHTML, like Gecko) "
-                                    + "Chrome/" + CHROMIUM_MAJOR + ".0.0.0 Safari/537.36"
-                                    + " Edg/" + CHROMIUM_MAJOR + ".0.0.0")
-                    .header("Pragma", "no-cache")
-                    .header("Cache-Control", "no-cache")
-                    .header("Accept-Encoding", "gzip, deflate, br, zstd")
-                    .header("Accept-Language", "en-US,en;q=0.9")
-                    .header("Cookie", "muid=" + muid + ";")
-                    .buildAsync(uri, listener);
-
-            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                request.finish();
+            }
+            return null;
+        }
 
-        } catch (Exception e) {
-            log.warn("[EdgeTTS] 语音合成失败: text={}, voice={}, error={}",
-                    trimmed.substring(0, Math.min(30, trimmed.length())),
-                    voiceName, e.getMessage());
-            throw new RuntimeException("语音合成失败: " + e.getMessage(), e);
+        @Override
+        public void onError(java.net.http.WebSocket webSocket, Throwable error) {
+            closed = true;
+            log.warn("[EdgeTTS] WebSocket错误: {}", error.getMessage());
+            PendingRequest request = pending;
+            if (request != null) {
+                request.future.completeExceptionally(error);
+                request.started.completeExceptionally(error);
+            }
         }
     }
 
@@ -219,7 +324,7 @@ public class EdgeTtsService {
         return hex.toString();
     }
 
-    private String escapeXml(String text) {
+    private static String escapeXml(String text) {
         return text.replace("&", "&amp;")
                 .replace("<", "&lt;")
                 .replace(">", "&gt;")
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.service;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fashion.supplychain.common.lock.DistributedLockService;
 import com.fashion.supplychain.intelligence.helper.PromptTemplateLoader;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -54,7 +55,7 @@ public class GepaPromptOptimizer {
     private static final int MAX_GENERATIONS = 5;
     private static final double MUTATION_RATE = 0.3;
     private static final double MIN_FITNESS_IMPROVEMENT = 0.5;
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     /** 17 个 prompt 块基因（与 AiAgentPromptHelper.assemblePrompt 中的块对应） */
     private static final List<String> GENE_BLOCKS = List.of(
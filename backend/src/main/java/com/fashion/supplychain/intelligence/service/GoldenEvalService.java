@@ -134,7 +134,7 @@ public class GoldenEvalService {
         try {
             int start = content.indexOf('{'), end = content.lastIndexOf('}');
             if (start < 0 || end < 0) return 75;
-            var node = new com.fasterxml.jackson.databind.ObjectMapper().readTree(content.substring(start, end + 1));
+            var node = com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER.readTree(content.substring(start, end + 1));
             return node.path("overall").asDouble(75);
         } catch (Exception e) { return 75; }
     }
@@ -0,0 +1,563 @@
+package com.fashion.supplychain.intelligence.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 编译式护栏引擎：越狱/注入拦截、PII 脱敏、实体抽取三类规则在类加载时统一注册一次。
+ *
+ * <p>一次检查分两步：
+ * <ol>
+ *   <li>线性扫描一遍文本：Aho-Corasick 自动机匹配全部规则的字面锚点（ASCII 大小写不敏感），
+ *       同时统计字符特征（最长数字串、最长 Base64 字符串、是否含 @ / - / 控制字符 / 大写字母紧跟数字）；</li>
+ *   <li>只有锚点命中或特征满足的规则才执行精确正则；拦截规则只在锚点附近的候选窗口内匹配
+ *       （透明边界，\b 等断言仍看得到窗口外字符）。窗口半径取该模式的最大匹配长度
+ *       （锚点是每个匹配的必经部分，匹配不可能越过锚点前后各一个最大长度）；
+ *       含 +、*、{n,m} 等不定长量词的模式没有上界，锚点命中后按全文匹配，与逐条全文匹配的结论一致。脱敏规则按注册顺序在上一类的结果上逐类替换，
+ *       与原先逐类脱敏的结果逐字一致（脱敏只会删减字符，不会制造原文没有的锚点或特征，预过滤结论仍然成立）。</li>
+ * </ol>
+ * 规则增加时扫描成本只随文本长度增长，未命中的规则不会各自再把全文扫一遍。
+ *
+ * <p>规则本身仍由各自的类持有（{@link PromptInjectionPatterns}、{@link JailbreakDetector}、
+ * {@link PiiMaskingService}、{@link SessionSearchService}），本类只负责注册与调度。
+ */
+public final class GuardrailEngine {
+
+    public static final String GROUP_INJECTION = "injection";
+    public static final String GROUP_ENCODING = "encoding";
+    public static final String GROUP_ROLE_HIJACK = "role_hijack";
+
+    /** 最大匹配长度无上界 */
+    static final int UNBOUNDED = -1;
+
+    private static final Pattern MULTI_SPACE = Pattern.compile("\\s{2,}");
+
+    private static final GuardrailEngine DEFAULT = new GuardrailEngine();
+
+    /** 检查阶段 */
+    public enum Stage {
+        /** 拦截：按注册顺序取第一个命中的规则 */
+        BLOCK,
+        /** 脱敏：候选规则按注册顺序逐类替换 */
+        MASK,
+        /** 实体抽取：按注册顺序去重收集 */
+        ENTITY
+    }
+
+    /** 字符特征，扫描锚点时顺带统计 */
+    static final class Features {
+        int maxDigitRun;
+        int maxBase64Run;
+        boolean at;
+        boolean dash;
+        boolean control;
+        boolean upperDigit;
+    }
+
+    static final class Rule {
+        final int index;
+        final Stage stage;
+        final String id;
+        final String group;
+        final String severity;
+        final Pattern pattern;
+        final String[] anchors;
+        final Predicate<Features> gate;
+        final UnaryOperator<String> masker;
+        /** 最大匹配长度（字符数），{@link #UNBOUNDED} 表示不定长 */
+        final int span;
+
+        Rule(int index, Stage stage, String id, String group, String severity, Pattern pattern,
+             String[] anchors, Predicate<Features> gate, UnaryOperator<String> masker) {
+            this.index = index;
+            this.stage = stage;
+            this.id = id;
+            this.group = group;
+            this.severity = severity;
+            this.pattern = pattern;
+            this.anchors = anchors;
+            this.gate = gate;
+            this.masker = masker;
+            this.span = maxSpan(pattern);
+        }
+
+        boolean anchored() {
+            return anchors.length > 0;
+        }
+    }
+
+    private final List<Rule> rules = new ArrayList<>();
+    /** scrub 的移除顺序与原 PromptInjectionPatterns.scrub 一致：标签 → 英文 → 中文 */
+    private final List<Rule> scrubRules = new ArrayList<>();
+    private final Automaton automaton;
+
+    private GuardrailEngine() {
+        // ── 拦截：注入短语（HIGH）→ 编码绕过（MEDIUM）→ 角色劫持（MEDIUM），与 JailbreakDetector 原分层顺序一致 ──
+        List<Rule> english = new ArrayList<>();
+        for (int i = 0; i < PromptInjectionPatterns.ENGLISH_PATTERNS.size(); i++) {
+            Pattern p = PromptInjectionPatterns.ENGLISH_PATTERNS.get(i);
+            english.add(block("english:" + p.pattern(), GROUP_INJECTION, "HIGH", p,
+                    PromptInjectionPatterns.ENGLISH_ANCHORS.get(i), null));
+        }
+        List<Rule> chinese = new ArrayList<>();
+        for (int i = 0; i < PromptInjectionPatterns.CHINESE_PATTERNS.size(); i++) {
+            Pattern p = PromptInjectionPatterns.CHINESE_PATTERNS.get(i);
+            chinese.add(block("chinese:" + p.pattern(), GROUP_INJECTION, "HIGH", p,
+                    PromptInjectionPatterns.CHINESE_ANCHORS.get(i), null));
+        }
+        Rule tag = block("xml_tag", GROUP_INJECTION, "HIGH", PromptInjectionPatterns.TAG_PATTERN,
+                PromptInjectionPatterns.TAG_ANCHORS, null);
+        block("base64_encoding", GROUP_ENCODING, "MEDIUM", JailbreakDetector.BASE64_PATTERN,
+                new String[0], f -> f.maxBase64Run >= 60);
+        block("unicode_escape", GROUP_ENCODING, "MEDIUM", JailbreakDetector.UNICODE_ESCAPE_PATTERN,
+                new String[]{"\\u"}, null);
+        block("html_entity", GROUP_ENCODING, "MEDIUM", JailbreakDetector.HTML_ENTITY_PATTERN,
+                new String[]{"&#"}, null);
+        block("role_hijack", GROUP_ROLE_HIJACK, "MEDIUM", JailbreakDetector.ROLE_HIJACK_PATTERN,
+                new String[]{"从现在起", "从现在开始", "从此"}, null);
+        scrubRules.add(tag);
+        scrubRules.addAll(english);
+        scrubRules.addAll(chinese);
+
+        // ── 脱敏：顺序即原 maskDetailed 的逐类替换顺序 ──
+        mask("phone", PiiMaskingService.PHONE_PATTERN, new String[0],
+                f -> f.maxDigitRun >= 11, PiiMaskingService::maskPhone);
+        mask("id_card", PiiMaskingService.ID_CARD_PATTERN, new String[0],
+                f -> f.maxDigitRun >= 17, PiiMaskingService::maskIdCard);
+        mask("email", PiiMaskingService.EMAIL_PATTERN, new String[0],
+                f -> f.at, PiiMaskingService::maskEmail);
+        mask("bank_card", PiiMaskingService.BANK_CARD_PATTERN, new String[0],
+                f -> f.maxDigitRun >= 16, PiiMaskingService::maskBankCard);
+        mask("wechat", PiiMaskingService.WECHAT_PATTERN, new String[]{"wx_", "wechat_", "微信号"},
+                null, s -> "***");
+        mask("qq", PiiMaskingService.QQ_PATTERN, new String[]{"qq"},
+                f -> f.maxDigitRun >= 5, s -> "***");
+        mask("landline", PiiMaskingService.LANDLINE_PATTERN, new String[0],
+                f -> f.dash && f.maxDigitRun >= 7, PiiMaskingService::maskLandline);
+
+        // ── 实体：单号 / 款号 ──
+        entity("order_no", SessionSearchService.ORDER_NO_PATTERN);
+        entity("style_no", SessionSearchService.STYLE_NO_PATTERN);
+
+        List<String> anchorList = new ArrayList<>();
+        List<Integer> ruleOf = new ArrayList<>();
+        for (Rule r : rules) {
+            for (String a : r.anchors) {
+                anchorList.add(a);
+                ruleOf.add(r.index);
+            }
+        }
+        this.automaton = new Automaton(anchorList, ruleOf);
+    }
+
+    public static GuardrailEngine getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 模式最大匹配长度的保守上界：不含 +、*、{ 量词、反向引用、\X 与 CANON_EQ 时，每个原子至多匹配一个字符
+     * （代理对在模式与文本中同为两个 char），上界即模式串长度；否则视为不定长。
+     * 转义的 \+ 或字符类里的 [*] 也按不定长处理，只会让窗口变大。
+     */
+    static int maxSpan(Pattern pattern) {
+        if ((pattern.flags() & Pattern.CANON_EQ) != 0) {
+            return UNBOUNDED;
+        }
+        String p = pattern.pattern();
+        for (int i = 0; i < p.length(); i++) {
+            char c = p.charAt(i);
+            if (c == '\\' && i + 1 < p.length()) {
+                char e = p.charAt(++i);
+                if (e == 'Q') {
+                    int end = p.indexOf("\\E", i);
+                    i = end < 0 ? p.length() : end + 1;
+                } else if (e == 'X' || e == 'k' || (e >= '1' && e <= '9') || e == 'p' || e == 'P') {
+                    return UNBOUNDED;
+                }
+            } else if (c == '+' || c == '*' || c == '{') {
+                return UNBOUNDED;
+            }
+        }
+        return p.length();
+    }
+
+    private Rule block(String id, String group, String severity, Pattern pattern,
+                       String[] anchors, Predicate<Features> gate) {
+        return register(Stage.BLOCK, id, group, severity, pattern, anchors, gate, null);
+    }
+
+    private void mask(String id, Pattern pattern, String[] anchors,
+                      Predicate<Features> gate, UnaryOperator<String> masker) {
+        register(Stage.MASK, id, null, null, pattern, anchors, gate, masker);
+    }
+
+    private void entity(String id, Pattern pattern) {
+        register(Stage.ENTITY, id, null, null, pattern, new String[0], f -> f.upperDigit, null);
+    }
+
+    private Rule register(Stage stage, String id, String group, String severity, Pattern pattern,
+                          String[] anchors, Predicate<Features> gate, UnaryOperator<String> masker) {
+        Rule rule = new Rule(rules.size(), stage, id, group, severity, pattern, anchors, gate, masker);
+        rules.add(rule);
+        return rule;
+    }
+
+    /**
+     * 对文本做一次预过滤扫描，并只执行所需阶段的精确匹配。
+     *
+     * @param text   待检查文本
+     * @param stages 需要的阶段；为空时执行全部阶段
+     */
+    public Inspection inspect(String text, Stage... stages) {
+        Set<Stage> wanted = stages.length == 0 ? EnumSet.allOf(Stage.class) : EnumSet.copyOf(Arrays.asList(stages));
+        Inspection result = new Inspection(text);
+        if (text == null || text.isEmpty()) {
+            result.masked = text;
+            return result;
+        }
+        Scan scan = scan(text);
+        String masked = text;
+        Set<String> entities = wanted.contains(Stage.ENTITY) ? new LinkedHashSet<>() : null;
+        Matcher m = null;
+        for (Rule rule : rules) {
+            if (!wanted.contains(rule.stage)
+                    || (rule.stage == Stage.BLOCK && result.blockedBy != null)
+                    || !scan.candidate(rule)) {
+                continue;
+            }
+            if (rule.stage == Stage.MASK) {
+                masked = replace(masked, rule, result.maskCounts);
+                continue;
+            }
+            m = m == null ? rule.pattern.matcher(text) : m.usePattern(rule.pattern);
+            m.useTransparentBounds(true).useAnchoringBounds(false);
+            for (int[] w : scan.windows(rule, text.length())) {
+                m.region(w[0], w[1]);
+                if (rule.stage == Stage.BLOCK) {
+                    if (m.find()) {
+                        result.blockedBy = rule;
+                        break;
+                    }
+                    continue;
+                }
+                while (m.find()) {
+                    entities.add(m.group());
+                }
+            }
+        }
+        result.masked = masked;
+        if (entities != null) {
+            result.entities = new ArrayList<>(entities);
+        }
+        return result;
+    }
+
+    /**
+     * 清洗文本：移除控制字符、XML 标签与注入短语，压缩空白（语义同原 PromptInjectionPatterns.scrub）。
+     * 只有锚点命中的模式才做替换；每次移除后重新扫描，移除造成的新拼接同样能被后续模式命中。
+     */
+    public String scrub(String text) {
+        if (text == null || text.isEmpty()) return text;
+        String s = text;
+        Scan scan = scan(s);
+        if (scan.features.control) {
+            s = PromptInjectionPatterns.CONTROL_CHARS.matcher(s).replaceAll("");
+            scan = scan(s);
+        }
+        for (Rule rule : scrubRules) {
+            if (!scan.candidate(rule)) continue;
+            String next = rule.pattern.matcher(s).replaceAll("");
+            if (next.length() != s.length()) {
+                s = next;
+                scan = scan(s);
+            }
+        }
+        return MULTI_SPACE.matcher(s).replaceAll(" ").trim();
+    }
+
+    private static String replace(String text, Rule rule, Map<String, Integer> counts) {
+        Matcher m = rule.pattern.matcher(text);
+        if (!m.find()) return text;
+        StringBuilder sb = new StringBuilder(text.length());
+        int count = 0;
+        do {
+            m.appendReplacement(sb, Matcher.quoteReplacement(rule.masker.apply(m.group())));
+            count++;
+        } while (m.find());
+        m.appendTail(sb);
+        counts.put(rule.id, count);
+        return sb.toString();
+    }
+
+    private Scan scan(String text) {
+        Scan scan = new Scan(rules);
+        Features f = scan.features;
+        Automaton a = automaton;
+        int n = text.length();
+        int state = 0;
+        int digitRun = 0;
+        int base64Run = 0;
+        char prev = 0;
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digitRun > f.maxDigitRun) f.maxDigitRun = digitRun;
+                if (prev >= 'A' && prev <= 'Z') f.upperDigit = true;
+            } else {
+                digitRun = 0;
+            }
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/') {
+                if (++base64Run > f.maxBase64Run) f.maxBase64Run = base64Run;
+            } else {
+                base64Run = 0;
+            }
+            if (c == '@') {
+                f.at = true;
+            } else if (c == '-') {
+                f.dash = true;
+            } else if ((c < 0x20 && c != '\t' && c != '\n' && c != '\r') || c == 0x7f) {
+                f.control = true;
+            }
+            prev = c;
+
+            state = a.step(state, c);
+            for (int out : a.outputs[state]) {
+                int len = out & 0xFF;
+                scan.hit(rules.get(out >>> 8), i + 1 - len, i + 1, n);
+            }
+        }
+        return scan;
+    }
+
+    /** 一次扫描的结果：字符特征 + 每条规则的候选窗口（按位置递增，已合并） */
+    private static final class Scan {
+        final Features features = new Features();
+        final List<Rule> rules;
+        final List<int[]>[] windows;
+
+        @SuppressWarnings("unchecked")
+        Scan(List<Rule> rules) {
+            this.rules = rules;
+            this.windows = new List[rules.size()];
+        }
+
+        void hit(Rule rule, int start, int end, int n) {
+            int ws = rule.span == UNBOUNDED ? 0 : Math.max(0, start - rule.span);
+            int we = rule.span == UNBOUNDED ? n : Math.min(n, end + rule.span);
+            List<int[]> list = windows[rule.index];
+            if (list == null) {
+                list = new ArrayList<>(2);
+                windows[rule.index] = list;
+            } else {
+                int[] last = list.get(list.size() - 1);
+                // 锚点按结束位置递增上报，长度不同的锚点起点可能回退，合并时两端都要取并集
+                if (ws <= last[1]) {
+                    last[0] = Math.min(last[0], ws);
+                    last[1] = Math.max(last[1], we);
+                    return;
+                }
+            }
+            list.add(new int[]{ws, we});
+        }
+
+        boolean candidate(Rule rule) {
+            if (rule.anchored() && windows[rule.index] == null) return false;
+            return rule.gate == null || rule.gate.test(features);
+        }
+
+        List<int[]> windows(Rule rule, int n) {
+            return rule.anchored() ? windows[rule.index] : List.of(new int[]{0, n});
+        }
+    }
+
+    /**
+     * 锚点自动机：ASCII 部分展开为完整转移表（大写折叠到小写），
+     * 非 ASCII（中文锚点）按状态存有序字符数组，二分查找 + 失配链回退；
+     * 不出现在任何锚点中的非 ASCII 字符直接回到根状态。
+     */
+    private static final class Automaton {
+        private static final int ASCII = 128;
+        private static final int[] NONE = new int[0];
+
+        final int[][] ascii;
+        final char[][] wideKeys;
+        final int[][] wideNext;
+        final int[] fail;
+        /** 每个状态的输出：(规则下标 << 8) | 锚点长度 */
+        final int[][] outputs;
+        final BitSet wideAlphabet = new BitSet(Character.MAX_VALUE + 1);
+
+        Automaton(List<String> anchors, List<Integer> ruleOf) {
+            List<int[]> asciiGoto = new ArrayList<>();
+            List<TreeMap<Character, Integer>> wideGoto = new ArrayList<>();
+            List<List<Integer>> out = new ArrayList<>();
+            newState(asciiGoto, wideGoto, out);
+            for (int k = 0; k < anchors.size(); k++) {
+                String anchor = anchors.get(k);
+                if (anchor.isEmpty() || anchor.length() > 0xFF) {
+                    throw new IllegalArgumentException("锚点长度非法: " + anchor);
+                }
+                int s = 0;
+                for (int i = 0; i < anchor.length(); i++) {
+                    char c = fold(anchor.charAt(i));
+                    int next;
+                    if (c < ASCII) {
+                        next = asciiGoto.get(s)[c];
+                        if (next < 0) {
+                            next = newState(asciiGoto, wideGoto, out);
+                            asciiGoto.get(s)[c] = next;
+                        }
+                    } else {
+                        wideAlphabet.set(c);
+                        Integer existing = wideGoto.get(s).get(c);
+                        if (existing == null) {
+                            next = newState(asciiGoto, wideGoto, out);
+                            wideGoto.get(s).put(c, next);
+                        } else {
+                            next = existing;
+                        }
+                    }
+                    s = next;
+                }
+                out.get(s).add((ruleOf.get(k) << 8) | anchor.length());
+            }
+
+            int states = asciiGoto.size();
+            this.ascii = asciiGoto.toArray(new int[0][]);
+            this.fail = new int[states];
+            this.wideKeys = new char[states][];
+            this.wideNext = new int[states][];
+            for (int s = 0; s < states; s++) {
+                TreeMap<Character, Integer> map = wideGoto.get(s);
+                wideKeys[s] = new char[map.size()];
+                wideNext[s] = new int[map.size()];
+                int j = 0;
+                for (Map.Entry<Character, Integer> e : map.entrySet()) {
+                    wideKeys[s][j] = e.getKey();
+                    wideNext[s][j++] = e.getValue();
+                }
+            }
+
+            // BFS：计算失配链，ASCII 部分展开为完整转移，输出沿失配链合并
+            int[] queue = new int[states];
+            int head = 0;
+            int tail = 0;
+            for (int c = 0; c < ASCII; c++) {
+                int next = ascii[0][c];
+                if (next < 0) {
+                    ascii[0][c] = 0;
+                } else {
+                    queue[tail++] = next;
+                }
+            }
+            for (int next : wideNext[0]) {
+                queue[tail++] = next;
+            }
+            while (head < tail) {
+                int s = queue[head++];
+                if (fail[s] != s) {
+                    out.get(s).addAll(out.get(fail[s]));
+                }
+                for (int c = 0; c < ASCII; c++) {
+                    int next = ascii[s][c];
+                    if (next < 0) {
+                        ascii[s][c] = ascii[fail[s]][c];
+                    } else {
+                        fail[next] = ascii[fail[s]][c];
+                        queue[tail++] = next;
+                    }
+                }
+                for (int j = 0; j < wideKeys[s].length; j++) {
+                    int next = wideNext[s][j];
+                    fail[next] = stepWide(fail[s], wideKeys[s][j]);
+                    queue[tail++] = next;
+                }
+            }
+            for (int[] row : ascii) {
+                for (int c = 'A'; c <= 'Z'; c++) {
+                    row[c] = row[c + 32];
+                }
+            }
+            this.outputs = new int[states][];
+            for (int s = 0; s < states; s++) {
+                List<Integer> o = out.get(s);
+                outputs[s] = o.isEmpty() ? NONE : o.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+
+        private static int newState(List<int[]> asciiGoto, List<TreeMap<Character, Integer>> wideGoto,
+                                    List<List<Integer>> out) {
+            int[] row = new int[ASCII];
+            Arrays.fill(row, -1);
+            asciiGoto.add(row);
+            wideGoto.add(new TreeMap<>());
+            out.add(new ArrayList<>());
+            return asciiGoto.size() - 1;
+        }
+
+        private static char fold(char c) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+        }
+
+        int step(int state, char c) {
+            if (c < ASCII) {
+                return ascii[state][c];
+            }
+            if (!wideAlphabet.get(c)) {
+                return 0;
+            }
+            return stepWide(state, c);
+        }
+
+        private int stepWide(int state, char c) {
+            int s = state;
+            while (true) {
+                int j = Arrays.binarySearch(wideKeys[s], c);
+                if (j >= 0) {
+                    return wideNext[s][j];
+                }
+                if (s == 0) {
+                    return 0;
+                }
+                s = fail[s];
+            }
+        }
+    }
+
+    /** 一次检查的结果：拦截命中、脱敏文本与计数、抽取的实体 */
+    public static final class Inspection {
+        private final String text;
+        private Rule blockedBy;
+        private String masked;
+        private final Map<String, Integer> maskCounts = new LinkedHashMap<>();
+        private List<String> entities = Collections.emptyList();
+
+        private Inspection(String text) {
+            this.text = text;
+        }
+
+        public String getText() { return text; }
+        public boolean isBlocked() { return blockedBy != null; }
+        /** 命中的拦截规则描述（如 "english:..." / "xml_tag" / "base64_encoding" / "role_hijack"） */
+        public String getBlockRuleId() { return blockedBy != null ? blockedBy.id : null; }
+        /** 命中的拦截分组：{@link #GROUP_INJECTION} / {@link #GROUP_ENCODING} / {@link #GROUP_ROLE_HIJACK} */
+        public String getBlockGroup() { return blockedBy != null ? blockedBy.group : null; }
+        public String getSeverity() { return blockedBy != null ? blockedBy.severity : null; }
+        public String getMasked() { return masked; }
+        public Map<String, Integer> getMaskCounts() { return maskCounts; }
+        public List<String> getEntities() { return entities; }
+    }
+}
@@ -53,8 +53,8 @@ public class GuardrailsConfigService {
     public String checkOutput(String aiResponse) {
         if (aiResponse == null || aiResponse.isBlank()) return "回答为空";
         for (GuardrailRule rule : outputFilters) {
-            for (String p : rule.patterns) {
-                if (Pattern.compile(p, Pattern.CASE_INSENSITIVE).matcher(aiResponse).find()) {
+            for (Pattern p : rule.compiledPatterns) {
+                if (p.matcher(aiResponse).find()) {
                     return rule.action.equals("block") ? rule.message : null; // mask规则不拦截
                 }
             }
@@ -73,8 +73,8 @@ public class GuardrailsConfigService {
         if (content == null) return null;
         for (GuardrailRule rule : outputFilters) {
             if (!"mask".equals(rule.action)) continue;
-            for (String p : rule.patterns) {
-                content = content.replaceAll(p, rule.replacement != null ? rule.replacement : "***");
+            for (Pattern p : rule.compiledMasks) {
+                content = p.matcher(content).replaceAll(rule.replacement != null ? rule.replacement : "***");
             }
         }
         return content;
@@ -160,6 +160,9 @@ public class GuardrailsConfigService {
             gr.action = (String) r.getOrDefault("action", "block");
             gr.message = (String) r.getOrDefault("message", "内容不符合安全规范");
             gr.replacement = (String) r.getOrDefault("replacement", "***");
+            // 加载时编译一次：检查用大小写不敏感，屏蔽替换保持原大小写敏感语义
+            gr.compiledPatterns = gr.patterns.stream().map(p -> Pattern.compile(p, Pattern.CASE_INSENSITIVE)).toList();
+            gr.compiledMasks = gr.patterns.stream().map(Pattern::compile).toList();
             rules.add(gr);
         }
         this.outputFilters = List.copyOf(rules);
@@ -195,6 +198,8 @@ public class GuardrailsConfigService {
         String id, description, action, message, replacement;
         List<String> patterns = List.of();
         List<String> keywords = List.of();
+        List<Pattern> compiledPatterns = List.of();
+        List<Pattern> compiledMasks = List.of();
     }
 
     static class QualityRule {
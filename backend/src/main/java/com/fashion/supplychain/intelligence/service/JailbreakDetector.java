@@ -39,19 +39,19 @@ public class JailbreakDetector {
     private HighRiskAuditService highRiskAuditService;
 
     /** Base64 编码内容（长字符串疑似编码绕过） */
-    private static final Pattern BASE64_PATTERN = Pattern.compile(
+    static final Pattern BASE64_PATTERN = Pattern.compile(
             "[A-Za-z0-9+/]{60,}={0,2}");
 
     /** Unicode 转义序列（密集出现疑似编码绕过） */
-    private static final Pattern UNICODE_ESCAPE_PATTERN = Pattern.compile(
+    static final Pattern UNICODE_ESCAPE_PATTERN = Pattern.compile(
             "(\\\\u[0-9a-fA-F]{4}){5,}");
 
     /** HTML 实体编码（密集出现） */
-    private static final Pattern HTML_ENTITY_PATTERN = Pattern.compile(
+    static final Pattern HTML_ENTITY_PATTERN = Pattern.compile(
             "(&#[0-9]{2,4};){5,}");
 
     /** 疑似角色劫持关键词（中英文混合） */
-    private static final Pattern ROLE_HIJACK_PATTERN = Pattern.compile(
+    static final Pattern ROLE_HIJACK_PATTERN = Pattern.compile(
             "(?i)(从现在起|从现在开始|从此).{0,10}(你是|你将|act as|pretend)",
             Pattern.CASE_INSENSITIVE);
 
@@ -93,56 +93,44 @@ public class JailbreakDetector {
         if (userInput == null || userInput.isEmpty()) {
             return DetectionResult.pass();
         }
-
         long start = System.currentTimeMillis();
-
-        // 第 1 层：规则引擎 — 中英文注入模式
-        String matched = PromptInjectionPatterns.detect(userInput);
-        if (matched != null) {
-            auditDetection(userInput, matched, "HIGH");
-            return DetectionResult.block(
-                    "[安全拦截] 检测到 prompt injection 尝试，请求已被阻止",
-                    matched, "HIGH");
-        }
-
-        // 第 2 层：结构化特征 — 编码绕过检测
-        String encodingBypass = detectEncodingBypass(userInput);
-        if (encodingBypass != null) {
-            auditDetection(userInput, encodingBypass, "MEDIUM");
-            return DetectionResult.block(
-                    "[安全拦截] 检测到编码绕过攻击，请求已被阻止",
-                    encodingBypass, "MEDIUM");
-        }
-
-        // 第 3 层：角色劫持检测
-        if (ROLE_HIJACK_PATTERN.matcher(userInput).find()) {
-            String desc = "role_hijack";
-            auditDetection(userInput, desc, "MEDIUM");
-            return DetectionResult.block(
-                    "[安全拦截] 检测到角色劫持尝试，请求已被阻止",
-                    desc, "MEDIUM");
-        }
-
+        GuardrailEngine.Inspection inspection =
+                GuardrailEngine.getDefault().inspect(userInput, GuardrailEngine.Stage.BLOCK);
         long elapsed = System.currentTimeMillis() - start;
         if (elapsed > 10) {
             log.debug("[JailbreakDetector] 检测耗时 {}ms（>10ms 阈值）", elapsed);
         }
-
-        return DetectionResult.pass();
+        return detect(inspection);
     }
 
-    /** 检测编码绕过攻击 */
-    private String detectEncodingBypass(String text) {
-        if (BASE64_PATTERN.matcher(text).find()) {
-            return "base64_encoding";
-        }
-        if (UNICODE_ESCAPE_PATTERN.matcher(text).find()) {
-            return "unicode_escape";
+    /**
+     * 基于已完成的护栏检查给出拦截结论（调用方已对同一文本做过一次 {@link GuardrailEngine#inspect}，
+     * 脱敏与拦截共用一次扫描）。三层规则的先后顺序由引擎按注册顺序保证。
+     */
+    public DetectionResult detect(GuardrailEngine.Inspection inspection) {
+        if (inspection == null || !inspection.isBlocked()) {
+            return DetectionResult.pass();
         }
-        if (HTML_ENTITY_PATTERN.matcher(text).find()) {
-            return "html_entity";
+        String matched = inspection.getBlockRuleId();
+        String severity = inspection.getSeverity();
+        auditDetection(inspection.getText(), matched, severity);
+        switch (inspection.getBlockGroup()) {
+            case GuardrailEngine.GROUP_INJECTION:
+                // 第 1 层：规则引擎 — 中英文注入模式
+                return DetectionResult.block(
+                        "[安全拦截] 检测到 prompt injection 尝试，请求已被阻止",
+                        matched, severity);
+            case GuardrailEngine.GROUP_ENCODING:
+                // 第 2 层：结构化特征 — 编码绕过检测
+                return DetectionResult.block(
+                        "[安全拦截] 检测到编码绕过攻击，请求已被阻止",
+                        matched, severity);
+            default:
+                // 第 3 层：角色劫持检测
+                return DetectionResult.block(
+                        "[安全拦截] 检测到角色劫持尝试，请求已被阻止",
+                        matched, severity);
         }
-        return null;
     }
 
     /** 审计拦截事件（落库到 t_intelligence_high_risk_audit） */
@@ -0,0 +1,484 @@
+package com.fashion.supplychain.intelligence.service;
+
+import com.fashion.supplychain.intelligence.entity.KnowledgeBase;
+import com.fashion.supplychain.intelligence.entity.SessionSearchIndex;
+import com.fashion.supplychain.intelligence.mapper.KnowledgeBaseMapper;
+import com.fashion.supplychain.intelligence.mapper.SessionSearchIndexMapper;
+import com.fashion.supplychain.intelligence.util.ChineseTokenizer;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * 本地词法检索索引（进程内倒排 + BM25），替代知识库 / 会话检索的 LIKE 全表扫描。
+ *
+ * <p>分片：
+ * <ul>
+ *   <li>知识库 — 每租户一片，公共知识（tenant_id 为 NULL）单独一片，检索时两片合并统计 IDF；</li>
+ *   <li>会话 — 每租户一片，装载最近 session-max-docs 条，按用户过滤；
+ *       超出上限被截断的分片由 {@link #sessionShardTruncated} 告知调用方补充 LIKE 检索。</li>
+ * </ul>
+ * 分片只保存过滤所需的字段（知识库 {@link KnowledgeRef}：ID、租户与分类；会话 {@link SessionRef}：ID 与用户）
+ * 和词频，不持有正文；打分后按命中 ID 批量回表取完整条目。
+ * 分片首次检索时从库装载，之后：
+ * <ul>
+ *   <li>知识库写入由 {@code KnowledgeIndexChangeListener} 在事务提交后按 ID 增量更新；</li>
+ *   <li>新会话由 {@link SessionSearchService#indexConversation} 写库后直接加入；</li>
+ *   <li>refresh-minutes 到期后后台整片重载，兜底覆盖其他实例或库外写入。</li>
+ * </ul>
+ * 重载期间发生的增量变更记入短期日志，新分片装载完成后重放，避免被旧快照覆盖。
+ *
+ * <p>打分：BM25（k1=1.2, b=0.75），字段加权（知识库 标题×3 / 关键词×2 / 正文×1；
+ * 会话 实体×3 / 提问×2 / 摘要×1）。索引用 {@link ChineseTokenizer#tokenizeForIndex}（含单字），
+ * 查询用 {@link ChineseTokenizer#tokenize}。没有命中时同样返回 null，由调用方回退 LIKE。
+ */
+@Slf4j
+@Service
+@Lazy
+public class LexicalIndexService {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    /** 正文只索引前若干字符，控制内存 */
+    private static final int CONTENT_INDEX_CHARS = 4000;
+    /** 公共知识分片的键 */
+    private static final long PUBLIC_SHARD = -1L;
+    /** 增量日志保留时长：需覆盖一次整片装载的耗时 */
+    private static final long JOURNAL_RETENTION_MS = TimeUnit.MINUTES.toMillis(10);
+
+    @Autowired
+    private KnowledgeBaseMapper knowledgeBaseMapper;
+
+    @Autowired
+    private SessionSearchIndexMapper sessionSearchIndexMapper;
+
+    @Value("${xiaoyun.rag.lexical.enabled:true}")
+    private boolean enabled;
+
+    @Value("${xiaoyun.rag.lexical.refresh-minutes:30}")
+    private long refreshMinutes;
+
+    @Value("${xiaoyun.rag.lexical.max-shards:1000}")
+    private long maxShards;
+
+    @Value("${xiaoyun.rag.lexical.session-max-docs:20000}")
+    private int sessionMaxDocs;
+
+    private LoadingCache<Long, Shard<KnowledgeRef>> knowledgeShards;
+    private LoadingCache<Long, Shard<SessionRef>> sessionShards;
+
+    /** 知识库增量日志：id → 变更后的条目（null 表示已删除） */
+    private final Map<String, Change<KnowledgeRef>> knowledgeJournal = new ConcurrentHashMap<>();
+    /** 会话增量日志：id → 新会话 */
+    private final Map<String, Change<SessionRef>> sessionJournal = new ConcurrentHashMap<>();
+
+    /** 检索命中 */
+    public record Hit<T>(T item, double score) {}
+
+    /** 知识库分片中的条目：只留过滤与回表所需字段 */
+    record KnowledgeRef(String id, Long tenantId, String category) {}
+
+    /** 会话分片中的条目：只留按用户过滤所需字段 */
+    record SessionRef(String id, String userId) {}
+
+    /** 增量变更：词频在变更时算好，重放时不再回读条目正文 */
+    private record Change<T>(Long tenantId, T item, Map<String, Integer> terms, long at) {}
+
+    @PostConstruct
+    public void init() {
+        knowledgeShards = Caffeine.newBuilder()
+                .maximumSize(Math.max(10, maxShards))
+                .refreshAfterWrite(Math.max(1, refreshMinutes), TimeUnit.MINUTES)
+                .expireAfterAccess(6, TimeUnit.HOURS)
+                .build(this::loadKnowledgeShard);
+        sessionShards = Caffeine.newBuilder()
+                .maximumSize(Math.max(10, maxShards))
+                .refreshAfterWrite(Math.max(1, refreshMinutes), TimeUnit.MINUTES)
+                .expireAfterAccess(6, TimeUnit.HOURS)
+                .build(this::loadSessionShard);
+    }
+
+    // ── 检索 ──
+
+    /**
+     * 知识库检索：租户知识 + 公共知识。
+     *
+     * @param categories 分类过滤（null 或空表示不过滤）
+     * @return 按 BM25 降序的命中；索引关闭、装载失败、查询没有可检索词或没有命中时返回 null，调用方回退数据库检索
+     */
+    public List<Hit<KnowledgeBase>> searchKnowledge(Long tenantId, String query,
+                                                   Collection<String> categories, int limit) {
+        if (!enabled) return null;
+        List<String> terms = queryTerms(query);
+        if (terms.isEmpty()) return null;
+        try {
+            List<Shard<KnowledgeRef>> shards = new ArrayList<>(2);
+            shards.add(knowledgeShards.get(PUBLIC_SHARD));
+            if (tenantId != null) {
+                shards.add(knowledgeShards.get(tenantId));
+            }
+            Predicate<KnowledgeRef> filter = categories == null || categories.isEmpty()
+                    ? ref -> true : ref -> categories.contains(ref.category());
+            List<Hit<KnowledgeBase>> hits = hydrate(bm25(shards, terms, filter, limit), tenantId);
+            return hits.isEmpty() ? null : hits;
+        } catch (Exception e) {
+            log.debug("[LexicalIndex] 知识库检索失败，回退数据库: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 会话检索（限定租户 + 用户）。
+     *
+     * @return 按 BM25 降序的命中；不可用或没有命中时返回 null，调用方回退数据库检索
+     */
+    public List<Hit<SessionSearchIndex>> searchSessions(Long tenantId, String userId, String query, int limit) {
+        if (!enabled || tenantId == null) return null;
+        List<String> terms = queryTerms(query);
+        if (terms.isEmpty()) return null;
+        try {
+            List<Hit<SessionRef>> refs = bm25(List.of(sessionShards.get(tenantId)), terms,
+                    ref -> Objects.equals(ref.userId(), userId), limit);
+            List<Hit<SessionSearchIndex>> hits = hydrateSessions(refs, tenantId, userId);
+            return hits.isEmpty() ? null : hits;
+        } catch (Exception e) {
+            log.debug("[LexicalIndex] 会话检索失败，回退数据库: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 租户会话分片是否因 session-max-docs 上限截断（更早的会话不在索引中）。
+     * 分片未装载时返回 false。
+     */
+    public boolean sessionShardTruncated(Long tenantId) {
+        if (!enabled || tenantId == null) return false;
+        Shard<SessionRef> shard = sessionShards.getIfPresent(tenantId);
+        return shard != null && shard.truncated;
+    }
+
+    /** 按分数顺序回表：跳过已删除或已不属于可见范围（本租户 / 公共）的条目 */
+    private List<Hit<KnowledgeBase>> hydrate(List<Hit<KnowledgeRef>> refs, Long tenantId) {
+        if (refs.isEmpty()) return List.of();
+        List<String> ids = new ArrayList<>(refs.size());
+        for (Hit<KnowledgeRef> h : refs) ids.add(h.item().id());
+        Map<String, KnowledgeBase> rows = new HashMap<>();
+        for (KnowledgeBase kb : knowledgeBaseMapper.selectByIdsForIndex(ids)) {
+            rows.put(kb.getId(), kb);
+        }
+        List<Hit<KnowledgeBase>> hits = new ArrayList<>(refs.size());
+        for (Hit<KnowledgeRef> h : refs) {
+            KnowledgeBase kb = rows.get(h.item().id());
+            if (kb == null || (kb.getDeleteFlag() != null && kb.getDeleteFlag() != 0)) continue;
+            if (kb.getTenantId() != null && !kb.getTenantId().equals(tenantId)) continue;
+            hits.add(new Hit<>(kb, h.score()));
+        }
+        return hits;
+    }
+
+    /** 按分数顺序回表会话：跳过已删除或归属已变化的条目 */
+    private List<Hit<SessionSearchIndex>> hydrateSessions(List<Hit<SessionRef>> refs, Long tenantId, String userId) {
+        if (refs.isEmpty()) return List.of();
+        List<String> ids = new ArrayList<>(refs.size());
+        for (Hit<SessionRef> h : refs) ids.add(h.item().id());
+        Map<String, SessionSearchIndex> rows = new HashMap<>();
+        for (SessionSearchIndex s : sessionSearchIndexMapper.selectByIdsForIndex(tenantId, ids)) {
+            rows.put(s.getId(), s);
+        }
+        List<Hit<SessionSearchIndex>> hits = new ArrayList<>(refs.size());
+        for (Hit<SessionRef> h : refs) {
+            SessionSearchIndex s = rows.get(h.item().id());
+            if (s == null || !Objects.equals(s.getUserId(), userId)) continue;
+            hits.add(new Hit<>(s, h.score()));
+        }
+        return hits;
+    }
+
+    // ── 增量更新 ──
+
+    /** 知识条目写入已提交：按 ID 从库读取最新状态并更新所在分片（已删除则移除） */
+    public void onKnowledgeChanged(String id) {
+        if (!enabled || id == null) return;
+        KnowledgeBase kb = knowledgeBaseMapper.selectByIdForIndex(id);
+        boolean live = kb != null && (kb.getDeleteFlag() == null || kb.getDeleteFlag() == 0);
+        Long shardKey = live ? shardKey(kb.getTenantId()) : null;
+        KnowledgeRef ref = live ? knowledgeRef(kb) : null;
+        Map<String, Integer> terms = live ? knowledgeTerms(kb) : null;
+        record(knowledgeJournal, id, new Change<>(shardKey, ref, terms, System.currentTimeMillis()));
+        for (Map.Entry<Long, Shard<KnowledgeRef>> e : knowledgeShards.asMap().entrySet()) {
+            if (live && e.getKey().equals(shardKey)) {
+                e.getValue().put(id, ref, terms);
+            } else {
+                e.getValue().remove(id);
+            }
+        }
+    }
+
+    /** 按条件批量写入（取不到条目 ID）：丢弃相关分片，下次检索时重新装载 */
+    public void onKnowledgeBulkChanged(Long tenantId) {
+        if (!enabled) return;
+        if (tenantId == null) {
+            knowledgeShards.invalidateAll();
+        } else {
+            knowledgeShards.invalidate(tenantId);
+            knowledgeShards.invalidate(PUBLIC_SHARD);
+        }
+    }
+
+    /** 新会话已写库：加入所在租户分片（分片未装载时由下次装载读到） */
+    public void onSessionIndexed(SessionSearchIndex idx) {
+        if (!enabled || idx == null || idx.getId() == null || idx.getTenantId() == null) return;
+        Map<String, Integer> terms = sessionTerms(idx);
+        SessionRef ref = sessionRef(idx);
+        record(sessionJournal, idx.getId(), new Change<>(idx.getTenantId(), ref, terms, System.currentTimeMillis()));
+        Shard<SessionRef> shard = sessionShards.getIfPresent(idx.getTenantId());
+        if (shard != null) {
+            shard.put(idx.getId(), ref, terms);
+            shard.trimOldest(sessionMaxDocs);
+        }
+    }
+
+    // ── 装载 ──
+
+    private Shard<KnowledgeRef> loadKnowledgeShard(Long key) {
+        long started = System.currentTimeMillis();
+        List<KnowledgeBase> rows = knowledgeBaseMapper.selectForIndex(key == PUBLIC_SHARD ? null : key);
+        Shard<KnowledgeRef> shard = new Shard<>();
+        for (KnowledgeBase kb : rows) {
+            shard.put(kb.getId(), knowledgeRef(kb), knowledgeTerms(kb));
+        }
+        replay(knowledgeJournal, key, started, shard);
+        log.debug("[LexicalIndex] 知识库分片装载 key={} docs={} cost={}ms",
+                key, shard.size(), System.currentTimeMillis() - started);
+        return shard;
+    }
+
+    private Shard<SessionRef> loadSessionShard(Long tenantId) {
+        long started = System.currentTimeMillis();
+        List<SessionSearchIndex> rows = sessionSearchIndexMapper.selectRecentForIndex(tenantId, sessionMaxDocs);
+        Shard<SessionRef> shard = new Shard<>();
+        // 取满上限说明库里可能还有更早的会话
+        shard.truncated = rows.size() >= sessionMaxDocs;
+        // 按时间正序加入，trimOldest 按插入顺序淘汰
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            SessionSearchIndex s = rows.get(i);
+            shard.put(s.getId(), sessionRef(s), sessionTerms(s));
+        }
+        replay(sessionJournal, tenantId, started, shard);
+        shard.trimOldest(sessionMaxDocs);
+        log.debug("[LexicalIndex] 会话分片装载 tenantId={} docs={} cost={}ms",
+                tenantId, shard.size(), System.currentTimeMillis() - started);
+        return shard;
+    }
+
+    private static <T> void record(Map<String, Change<T>> journal, String id, Change<T> change) {
+        journal.put(id, change);
+        long expired = change.at() - JOURNAL_RETENTION_MS;
+        journal.values().removeIf(c -> c.at() < expired);
+    }
+
+    /** 重放装载开始之后（留 1 秒余量）发生的变更 */
+    private static <T> void replay(Map<String, Change<T>> journal, Long key, long started, Shard<T> shard) {
+        for (Map.Entry<String, Change<T>> e : journal.entrySet()) {
+            Change<T> c = e.getValue();
+            if (c.at() < started - 1000) continue;
+            if (c.item() != null && key.equals(c.tenantId())) {
+                shard.put(e.getKey(), c.item(), c.terms());
+            } else {
+                shard.remove(e.getKey());
+            }
+        }
+    }
+
+    private static Long shardKey(Long tenantId) {
+        return tenantId == null ? PUBLIC_SHARD : tenantId;
+    }
+
+    // ── 分词与打分 ──
+
+    private static List<String> queryTerms(String query) {
+        return new ArrayList<>(new LinkedHashSet<>(ChineseTokenizer.tokenize(query)));
+    }
+
+    private static KnowledgeRef knowledgeRef(KnowledgeBase kb) {
+        return new KnowledgeRef(kb.getId(), kb.getTenantId(), kb.getCategory());
+    }
+
+    private static SessionRef sessionRef(SessionSearchIndex s) {
+        return new SessionRef(s.getId(), s.getUserId());
+    }
+
+    private Map<String, Integer> knowledgeTerms(KnowledgeBase kb) {
+        Map<String, Integer> tf = new HashMap<>();
+        addTerms(tf, kb.getTitle(), 3);
+        addTerms(tf, kb.getKeywords(), 2);
+        String content = kb.getContent();
+        if (content != null && content.length() > CONTENT_INDEX_CHARS) {
+            content = content.substring(0, CONTENT_INDEX_CHARS);
+        }
+        addTerms(tf, content, 1);
+        return tf;
+    }
+
+    private Map<String, Integer> sessionTerms(SessionSearchIndex s) {
+        Map<String, Integer> tf = new HashMap<>();
+        addTerms(tf, s.getKeyEntities(), 3);
+        addTerms(tf, s.getUserMessage(), 2);
+        addTerms(tf, s.getAssistantSummary(), 1);
+        return tf;
+    }
+
+    private static void addTerms(Map<String, Integer> tf, String text, int weight) {
+        for (String t : ChineseTokenizer.tokenizeForIndex(text)) {
+            tf.merge(t, weight, Integer::sum);
+        }
+    }
+
+    /**
+     * 多分片 BM25：先汇总各分片的文档数、总长度与文档频率，再逐片打分，
+     * 保证公共知识与租户知识的分数可比。
+     */
+    private static <T> List<Hit<T>> bm25(List<Shard<T>> shards, List<String> terms,
+                                        Predicate<T> filter, int limit) {
+        long docCount = 0;
+        long totalLength = 0;
+        Map<String, Integer> df = new HashMap<>();
+        for (Shard<T> shard : shards) {
+            shard.lock.readLock().lock();
+            try {
+                docCount += shard.docs.size();
+                totalLength += shard.totalLength;
+                for (String t : terms) {
+                    Map<String, Integer> posting = shard.postings.get(t);
+                    if (posting != null) df.merge(t, posting.size(), Integer::sum);
+                }
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+        if (docCount == 0 || df.isEmpty()) return List.of();
+        double avgLength = Math.max(1.0, (double) totalLength / docCount);
+
+        PriorityQueue<Hit<T>> top = new PriorityQueue<>(Math.max(1, limit), (a, b) -> Double.compare(a.score(), b.score()));
+        for (Shard<T> shard : shards) {
+            shard.lock.readLock().lock();
+            try {
+                Map<String, Double> scores = new HashMap<>();
+                for (String t : terms) {
+                    Map<String, Integer> posting = shard.postings.get(t);
+                    Integer n = df.get(t);
+                    if (posting == null || n == null) continue;
+                    double idf = Math.log(1 + (docCount - n + 0.5) / (n + 0.5));
+                    for (Map.Entry<String, Integer> p : posting.entrySet()) {
+                        Doc<T> doc = shard.docs.get(p.getKey());
+                        int tf = p.getValue();
+                        double norm = K1 * (1 - B + B * doc.length() / avgLength);
+                        scores.merge(p.getKey(), idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                    }
+                }
+                for (Map.Entry<String, Double> s : scores.entrySet()) {
+                    T item = shard.docs.get(s.getKey()).item();
+                    if (!filter.test(item)) continue;
+                    top.offer(new Hit<>(item, s.getValue()));
+                    if (top.size() > limit) top.poll();
+                }
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+        List<Hit<T>> result = new ArrayList<>(top);
+        result.sort((a, b) -> Double.compare(b.score(), a.score()));
+        return result;
+    }
+
+    private record Doc<T>(T item, Map<String, Integer> terms, int length) {}
+
+    /** 单个分片：文档表 + 倒排表，读多写少，读写锁保护 */
+    private static final class Shard<T> {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        /** 按插入顺序保存，会话分片据此淘汰最旧条目 */
+        final LinkedHashMap<String, Doc<T>> docs = new LinkedHashMap<>();
+        final Map<String, Map<String, Integer>> postings = new HashMap<>();
+        long totalLength;
+        /** 装载或追加时因条数上限丢弃过条目 */
+        volatile boolean truncated;
+
+        void put(String id, T item, Map<String, Integer> terms) {
+            if (id == null) return;
+            int length = 0;
+            for (int tf : terms.values()) length += tf;
+            lock.writeLock().lock();
+            try {
+                removeLocked(id);
+                docs.put(id, new Doc<>(item, terms, length));
+                totalLength += length;
+                for (Map.Entry<String, Integer> e : terms.entrySet()) {
+                    postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(id, e.getValue());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String id) {
+            lock.writeLock().lock();
+            try {
+                removeLocked(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void trimOldest(int maxDocs) {
+            lock.writeLock().lock();
+            try {
+                while (docs.size() > maxDocs) {
+                    removeLocked(docs.keySet().iterator().next());
+                    truncated = true;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return docs.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void removeLocked(String id) {
+            Doc<T> old = docs.remove(id);
+            if (old == null) return;
+            totalLength -= old.length();
+            for (String term : old.terms().keySet()) {
+                Map<String, Integer> posting = postings.get(term);
+                if (posting == null) continue;
+                posting.remove(id);
+                if (posting.isEmpty()) postings.remove(term);
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.service;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.intelligence.entity.AiLongMemory;
 import com.fashion.supplychain.intelligence.mapper.AiLongMemoryMapper;
@@ -38,7 +39,7 @@ public class MemoryHierarchyService {
     @Value("${xiaoyun.memory.max-episodic-items:50}")
     private int maxEpisodicItems;
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     @Data
     public static class WorkingMemoryItem {
@@ -47,7 +47,7 @@ public class OfflineEvalService {
     private AiConversationMemoryMapper aiConversationMemoryMapper;
 
     private static final com.fasterxml.jackson.databind.ObjectMapper JSON =
-            new com.fasterxml.jackson.databind.ObjectMapper();
+            com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER;
 
     private static final Pattern CLICHE_PATTERN = Pattern.compile(
             "(建议关注|应注意|需注意|可能存在|值得关注|加强管理|持续优化|进一步提升|不断完善)");
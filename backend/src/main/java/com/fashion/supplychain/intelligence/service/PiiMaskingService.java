@@ -5,7 +5,6 @@ import org.springframework.stereotype.Service;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -33,38 +32,39 @@ import java.util.regex.Pattern;
  *   <li>{@code NlQueryOrchestrator} — Text-to-SQL 输入脱敏</li>
  * </ul>
  *
- * <p>性能：单次脱敏 ≤5ms（纯正则，无外部调用）。
+ * <p>性能：单次脱敏 ≤5ms（纯正则，无外部调用）。模式在 {@link GuardrailEngine} 中统一注册，
+ * 数字串长度 / @ 等特征不满足的模式不会执行。
  */
 @Service
 @Slf4j
 public class PiiMaskingService {
 
     /** 手机号 — 11 位中国大陆手机号 */
-    private static final Pattern PHONE_PATTERN = Pattern.compile(
+    static final Pattern PHONE_PATTERN = Pattern.compile(
             "1[3-9]\\d{9}");
 
     /** 身份证 — 18 位中国大陆身份证号（最后一位可为 X） */
-    private static final Pattern ID_CARD_PATTERN = Pattern.compile(
+    static final Pattern ID_CARD_PATTERN = Pattern.compile(
             "\\b[1-9]\\d{5}(?:19|20)\\d{2}(?:0[1-9]|1[0-2])(?:0[1-9]|[12]\\d|3[01])\\d{3}[\\dXx]\\b");
 
     /** 邮箱 */
-    private static final Pattern EMAIL_PATTERN = Pattern.compile(
+    static final Pattern EMAIL_PATTERN = Pattern.compile(
             "[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}");
 
     /** 银行卡 — 16-19 位连续数字（前后有边界） */
-    private static final Pattern BANK_CARD_PATTERN = Pattern.compile(
+    static final Pattern BANK_CARD_PATTERN = Pattern.compile(
             "\\b\\d{16,19}\\b");
 
     /** 微信号 — wx_ / wechat_ / 微信: 前缀 */
-    private static final Pattern WECHAT_PATTERN = Pattern.compile(
+    static final Pattern WECHAT_PATTERN = Pattern.compile(
             "(?i)(?:wx_|wechat_|微信号[:：]?\\s*)[a-zA-Z0-9_-]{4,20}");
 
     /** QQ 号 — qq/qq号/QQ: 前缀 + 5-12 位数字 */
-    private static final Pattern QQ_PATTERN = Pattern.compile(
+    static final Pattern QQ_PATTERN = Pattern.compile(
             "(?i)(?:qq|qq号|QQ[:：]?\\s*)[1-9]\\d{4,11}");
 
     /** 座机号 — 区号-号码 */
-    private static final Pattern LANDLINE_PATTERN = Pattern.compile(
+    static final Pattern LANDLINE_PATTERN = Pattern.compile(
             "0\\d{2,3}-\\d{7,8}");
 
     /** 脱敏统计结果 */
@@ -97,6 +97,7 @@ public class PiiMaskingService {
 
     /**
      * 脱敏输入文本（带统计）。
+     * 7 类模式一次预过滤后并行匹配，重叠片段按手机号 → 身份证 → … → 座机号的顺序取先者，结果与逐类替换一致。
      *
      * @param text 原始文本
      * @return 脱敏结果（含脱敏数量统计）
@@ -105,96 +106,49 @@ public class PiiMaskingService {
         if (text == null || text.isEmpty()) {
             return new MaskResult(text, new LinkedHashMap<>());
         }
-
-        Map<String, Integer> counts = new LinkedHashMap<>();
-        String result = text;
-
-        // 手机号 — 保留前 3 后 4
-        result = maskWithCount(result, PHONE_PATTERN, "phone", counts, this::maskPhone);
-
-        // 身份证 — 保留前 3 后 4
-        result = maskWithCount(result, ID_CARD_PATTERN, "id_card", counts, this::maskIdCard);
-
-        // 邮箱 — 保留前 3 后 4
-        result = maskWithCount(result, EMAIL_PATTERN, "email", counts, this::maskEmail);
-
-        // 银行卡 — 保留前 3 后 4
-        result = maskWithCount(result, BANK_CARD_PATTERN, "bank_card", counts, this::maskBankCard);
-
-        // 微信号 — 全替换
-        result = maskWithCount(result, WECHAT_PATTERN, "wechat", counts, m -> "***");
-
-        // QQ 号 — 全替换
-        result = maskWithCount(result, QQ_PATTERN, "qq", counts, m -> "***");
-
-        // 座机号 — 保留区号
-        result = maskWithCount(result, LANDLINE_PATTERN, "landline", counts, m -> {
-            String s = m.group();
-            int dash = s.indexOf('-');
-            if (dash > 0) return s.substring(0, dash) + "-****";
-            return "***";
-        });
-
-        return new MaskResult(result, counts);
-    }
-
-    /** 通用脱敏方法（带计数） */
-    private String maskWithCount(String text, Pattern pattern, String type,
-                                  Map<String, Integer> counts,
-                                  java.util.function.Function<Matcher, String> masker) {
-        Matcher m = pattern.matcher(text);
-        StringBuffer sb = new StringBuffer();
-        int count = 0;
-        while (m.find()) {
-            m.appendReplacement(sb, Matcher.quoteReplacement(masker.apply(m)));
-            count++;
-        }
-        m.appendTail(sb);
-        if (count > 0) counts.put(type, count);
-        return sb.toString();
+        GuardrailEngine.Inspection inspection =
+                GuardrailEngine.getDefault().inspect(text, GuardrailEngine.Stage.MASK);
+        return new MaskResult(inspection.getMasked(), inspection.getMaskCounts());
     }
 
     /** 手机号脱敏：138****1234 */
-    private String maskPhone(Matcher m) {
-        String s = m.group();
+    static String maskPhone(String s) {
         if (s.length() < 8) return "***";
         return s.substring(0, 3) + "****" + s.substring(s.length() - 4);
     }
 
     /** 身份证脱敏：110***********1234 */
-    private String maskIdCard(Matcher m) {
-        String s = m.group();
+    static String maskIdCard(String s) {
         if (s.length() < 8) return "***";
         return s.substring(0, 3) + "***********" + s.substring(s.length() - 4);
     }
 
     /** 邮箱脱敏：abc***@example.com */
-    private String maskEmail(Matcher m) {
-        String s = m.group();
+    static String maskEmail(String s) {
         int at = s.indexOf('@');
         if (at <= 3) return "***" + s.substring(at);
         return s.substring(0, 3) + "***" + s.substring(at);
     }
 
     /** 银行卡脱敏：621****1234 */
-    private String maskBankCard(Matcher m) {
-        String s = m.group();
+    static String maskBankCard(String s) {
         if (s.length() < 8) return "***";
         return s.substring(0, 3) + "****" + s.substring(s.length() - 4);
     }
 
+    /** 座机号脱敏：保留区号 */
+    static String maskLandline(String s) {
+        int dash = s.indexOf('-');
+        if (dash > 0) return s.substring(0, dash) + "-****";
+        return "***";
+    }
+
     /**
      * 检测文本中是否包含 PII（不脱敏，仅检测）。
      * 用于审计日志和告警。
      */
     public boolean containsPii(String text) {
         if (text == null || text.isEmpty()) return false;
-        return PHONE_PATTERN.matcher(text).find()
-                || ID_CARD_PATTERN.matcher(text).find()
-                || EMAIL_PATTERN.matcher(text).find()
-                || BANK_CARD_PATTERN.matcher(text).find()
-                || WECHAT_PATTERN.matcher(text).find()
-                || QQ_PATTERN.matcher(text).find()
-                || LANDLINE_PATTERN.matcher(text).find();
+        return !GuardrailEngine.getDefault().inspect(text, GuardrailEngine.Stage.MASK).getMaskCounts().isEmpty();
     }
 }
@@ -70,46 +70,81 @@ public final class PromptInjectionPatterns {
             Pattern.compile("(请|请直接|请立即)?显示(你的|系统)(初始|原始|完整)(提示词|prompt|规则)")
     );
 
+    /**
+     * 英文模式的字面锚点，与 {@link #ENGLISH_PATTERNS} 按下标一一对应：
+     * 模式的任一命中都必然包含其中至少一个锚点（大小写不敏感），供 {@link GuardrailEngine} 预过滤。
+     */
+    static final List<String[]> ENGLISH_ANCHORS = List.of(
+            new String[]{"ignore"},
+            new String[]{"disregard"},
+            new String[]{"you"},
+            new String[]{"forget"},
+            new String[]{"instruction"},
+            new String[]{"act"},
+            new String[]{"system"},
+            new String[]{"override"},
+            new String[]{"dan", "anything"},
+            new String[]{"jailbreak", "break"},
+            new String[]{"you"},
+            new String[]{"pretend"},
+            new String[]{"enter"},
+            new String[]{"bypass"}
+    );
+
+    /** 中文模式的字面锚点，与 {@link #CHINESE_PATTERNS} 按下标一一对应 */
+    static final List<String[]> CHINESE_ANCHORS = List.of(
+            new String[]{"忽略"},
+            new String[]{"无视"},
+            new String[]{"你现在是"},
+            new String[]{"忘记"},
+            new String[]{"指令"},
+            new String[]{"扮演", "假装"},
+            new String[]{"绕过", "突破", "解除"},
+            new String[]{"进入"},
+            new String[]{"你没有", "你无"},
+            new String[]{"模式"},
+            new String[]{"从现在起"},
+            new String[]{"我是", "这是"},
+            new String[]{"输出"},
+            new String[]{"显示"}
+    );
+
     /** XML 风格标签（开闭标签一起匹配） */
     public static final Pattern TAG_PATTERN = Pattern.compile(
             "</?(system|instruction|prompt|assistant|user|tool|function|im_start|im_end)\\s*>",
             Pattern.CASE_INSENSITIVE
     );
 
+    /** XML 标签的字面锚点（{@code <name} 与 {@code </name}） */
+    static final String[] TAG_ANCHORS = tagAnchors(
+            "system", "instruction", "prompt", "assistant", "user", "tool", "function", "im_start", "im_end");
+
     /** 控制字符（除普通空格） */
     public static final Pattern CONTROL_CHARS = Pattern.compile("[\\p{Cntrl}&&[^\\t\\n\\r]]");
 
     /**
-     * 检测文本是否命中任一注入模式。
+     * 检测文本是否命中任一注入模式（经 {@link GuardrailEngine} 预过滤，仅锚点命中的模式会执行正则）。
      * @param text 待检测文本
      * @return 命中的模式描述（如 "english:DAN"），未命中返回 null
      */
     public static String detect(String text) {
         if (text == null || text.isEmpty()) return null;
-
-        for (Pattern p : ENGLISH_PATTERNS) {
-            if (p.matcher(text).find()) {
-                return "english:" + p.pattern();
-            }
-        }
-        for (Pattern p : CHINESE_PATTERNS) {
-            if (p.matcher(text).find()) {
-                return "chinese:" + p.pattern();
-            }
-        }
-        if (TAG_PATTERN.matcher(text).find()) {
-            return "xml_tag";
-        }
-        return null;
+        GuardrailEngine.Inspection inspection =
+                GuardrailEngine.getDefault().inspect(text, GuardrailEngine.Stage.BLOCK);
+        return GuardrailEngine.GROUP_INJECTION.equals(inspection.getBlockGroup()) ? inspection.getBlockRuleId() : null;
     }
 
     /** 清洗文本：移除 XML 标签 + 控制字符 + 注入短语（不截断） */
     public static String scrub(String text) {
-        if (text == null || text.isEmpty()) return text;
-        String s = CONTROL_CHARS.matcher(text).replaceAll("");
-        s = TAG_PATTERN.matcher(s).replaceAll("");
-        for (Pattern p : ENGLISH_PATTERNS) s = p.matcher(s).replaceAll("");
-        for (Pattern p : CHINESE_PATTERNS) s = p.matcher(s).replaceAll("");
-        return s.replaceAll("\\s{2,}", " ").trim();
+        return GuardrailEngine.getDefault().scrub(text);
+    }
+
+    private static String[] tagAnchors(String... names) {
+        String[] anchors = new String[names.length * 2];
+        for (int i = 0; i < names.length; i++) {
+            anchors[i * 2] = "<" + names[i];
+            anchors[i * 2 + 1] = "</" + names[i];
+        }
+        return anchors;
     }
 }
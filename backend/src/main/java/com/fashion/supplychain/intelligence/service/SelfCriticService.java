@@ -729,7 +729,7 @@ public class SelfCriticService {
             int end = json.lastIndexOf('}');
             if (start < 0 || end < 0) return defaults;
             json = json.substring(start, end + 1);
-            var mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+            var mapper = com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER;
             var node = mapper.readTree(json);
             return new double[]{
                     clampScore(node.path("data_accuracy").asDouble(70)),
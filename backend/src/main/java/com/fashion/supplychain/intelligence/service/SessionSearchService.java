@@ -19,8 +19,15 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class SessionSearchService {
 
+    /** 关键实体：单号（由 {@link GuardrailEngine} 统一注册，仅含“大写字母紧跟数字”的文本才匹配） */
+    static final java.util.regex.Pattern ORDER_NO_PATTERN = java.util.regex.Pattern.compile("[A-Z]{2,6}\\d{6,12}");
+
+    /** 关键实体：款号 */
+    static final java.util.regex.Pattern STYLE_NO_PATTERN = java.util.regex.Pattern.compile("[A-Z]{2,4}\\d{4,8}");
+
     private final SessionSearchIndexMapper indexMapper;
     private final AiInferenceRouter inferenceRouter;
+    private final LexicalIndexService lexicalIndexService;
 
     public void indexConversation(Long tenantId, String userId, String sessionId,
                                    String conversationId, String userMessage, String assistantResponse) {
@@ -38,6 +45,7 @@ public class SessionSearchService {
             idx.setResolved(1);
             idx.setCreateTime(LocalDateTime.now());
             indexMapper.insert(idx);
+            lexicalIndexService.onSessionIndexed(idx);
         } catch (Exception e) {
             log.warn("[SessionSearch] 索引会话失败: {}", e.getMessage());
         }
@@ -56,15 +64,18 @@ public class SessionSearchService {
                         .last("LIMIT " + maxResults);
                 results = indexMapper.selectList(qw);
             } else {
-                QueryWrapper<SessionSearchIndex> qw = new QueryWrapper<>();
-                qw.eq("tenant_id", tenantId)
-                        .eq("user_id", userId)
-                        .and(w -> w.like("user_message", query)
-                                .or().like("assistant_summary", query)
-                                .or().like("key_entities", query))
-                        .orderByDesc("created_at")
-                        .last("LIMIT " + maxResults);
-                results = indexMapper.selectList(qw);
+                results = searchLocal(tenantId, userId, query, maxResults);
+                if (results == null) {
+                    results = likeSearch(tenantId, userId, query, maxResults);
+                } else if (results.size() < maxResults && lexicalIndexService.sessionShardTruncated(tenantId)) {
+                    // 索引只装了最近 session-max-docs 条，更早的会话用 LIKE 补足
+                    Set<String> seen = results.stream().map(SessionSearchIndex::getId).collect(Collectors.toSet());
+                    results = new ArrayList<>(results);
+                    for (SessionSearchIndex r : likeSearch(tenantId, userId, query, maxResults)) {
+                        if (results.size() >= maxResults) break;
+                        if (seen.add(r.getId())) results.add(r);
+                    }
+                }
             }
         } catch (Exception e) {
             log.warn("[SessionSearch] 搜索失败: {}", e.getMessage());
@@ -90,6 +101,26 @@ public class SessionSearchService {
         }).collect(Collectors.toList());
     }
 
+    private List<SessionSearchIndex> likeSearch(Long tenantId, String userId, String query, int maxResults) {
+        QueryWrapper<SessionSearchIndex> qw = new QueryWrapper<>();
+        qw.eq("tenant_id", tenantId)
+                .eq("user_id", userId)
+                .and(w -> w.like("user_message", query)
+                        .or().like("assistant_summary", query)
+                        .or().like("key_entities", query))
+                .orderByDesc("created_at")
+                .last("LIMIT " + maxResults);
+        return indexMapper.selectList(qw);
+    }
+
+    /** 本地 BM25 索引检索；索引不可用或没有命中时返回 null，由调用方回退 LIKE 查询 */
+    private List<SessionSearchIndex> searchLocal(Long tenantId, String userId, String query, int maxResults) {
+        List<LexicalIndexService.Hit<SessionSearchIndex>> hits =
+                lexicalIndexService.searchSessions(tenantId, userId, query, maxResults);
+        if (hits == null) return null;
+        return hits.stream().map(LexicalIndexService.Hit::item).collect(Collectors.toList());
+    }
+
     private String generateSummary(String response) {
         if (response == null || response.length() < 100) return truncate(response, 500);
         try {
@@ -105,11 +136,7 @@ public class SessionSearchService {
         Set<String> entities = new LinkedHashSet<>();
         String combined = (userMessage != null ? userMessage : "") + " " + (assistantResponse != null ? assistantResponse : "");
 
-        java.util.regex.Matcher orderMatcher = java.util.regex.Pattern.compile("[A-Z]{2,6}\\d{6,12}").matcher(combined);
-        while (orderMatcher.find()) entities.add(orderMatcher.group());
-
-        java.util.regex.Matcher styleMatcher = java.util.regex.Pattern.compile("[A-Z]{2,4}\\d{4,8}").matcher(combined);
-        while (styleMatcher.find()) entities.add(styleMatcher.group());
+        entities.addAll(GuardrailEngine.getDefault().inspect(combined, GuardrailEngine.Stage.ENTITY).getEntities());
 
         return String.join(",", entities);
     }
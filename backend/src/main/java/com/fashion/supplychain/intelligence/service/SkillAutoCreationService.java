@@ -171,7 +171,7 @@ public class SkillAutoCreationService {
             if (start < 0 || end <= start) return null;
             json = json.substring(start, end + 1);
 
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+            com.fasterxml.jackson.databind.ObjectMapper mapper = com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER;
             @SuppressWarnings("unchecked")
             Map<String, Object> map = mapper.readValue(json, Map.class);
 
@@ -198,7 +198,7 @@ public class SkillAutoCreationService {
     private String mergeSteps(String existingJson, String newJson) {
         if (isBlank(newJson)) return existingJson;
         try {
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+            com.fasterxml.jackson.databind.ObjectMapper mapper = com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER;
             @SuppressWarnings("unchecked")
             java.util.List<Object> existing = isBlank(existingJson)
                     ? new java.util.ArrayList<>()
@@ -245,7 +245,7 @@ public class SkillAutoCreationService {
     private String mergeReferences(String existingJson, String newJson) {
         if (isBlank(newJson)) return existingJson;
         try {
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+            com.fasterxml.jackson.databind.ObjectMapper mapper = com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER;
             java.util.List<Map<String, Object>> existing = isBlank(existingJson)
                     ? new java.util.ArrayList<>()
                     : mapper.readValue(existingJson, java.util.List.class);
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.service;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -17,7 +18,7 @@ import java.util.regex.Pattern;
 @Lazy
 public class StructuredResponseService {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
 
     private static final Pattern CONFIDENCE_PATTERN = Pattern.compile(
             "(?i)(置信度|可信度|把握)[：:]*\\s*(\\d{1,3})\\s*%");
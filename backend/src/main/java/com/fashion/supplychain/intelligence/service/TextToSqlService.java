@@ -2,6 +2,8 @@ package com.fashion.supplychain.intelligence.service;
 
 import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.intelligence.dto.NlQueryResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -11,6 +13,7 @@ import org.springframework.context.annotation.Lazy;
 
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
 import jakarta.annotation.PreDestroy;
@@ -29,6 +32,9 @@ public class TextToSqlService {
     @Autowired
     private SqlSecurityValidator sqlSecurityValidator;
 
+    @Autowired
+    private TextToSqlTemplateCache templateCache;
+
     /**
      * 【P0-1 安全说明】当前使用主数据源 JdbcTemplate（root 账号）执行 Text-to-SQL 生成的查询。
      *
@@ -61,7 +67,10 @@ public class TextToSqlService {
     private final Map<Long, long[]> rateLimitMap = new ConcurrentHashMap<>();
 
     /** 查询结果缓存: cacheKey → cached response（5分钟TTL，避免重复LLM调用） */
-    private final Map<String, CacheEntry> queryCache = new ConcurrentHashMap<>();
+    private final Cache<String, NlQueryResponse> queryCache = Caffeine.newBuilder()
+            .maximumSize(CACHE_MAX_SIZE)
+            .expireAfterWrite(Duration.ofMinutes(CACHE_TTL_MINUTES))
+            .build();
 
     /** 共享线程池（避免每次查询创建新ExecutorService） */
     private final ExecutorService queryExecutor = Executors.newFixedThreadPool(
@@ -71,18 +80,6 @@ public class TextToSqlService {
                 return t;
             });
 
-    private static class CacheEntry {
-        final NlQueryResponse response;
-        final long createdAt;
-        CacheEntry(NlQueryResponse response) {
-            this.response = response;
-            this.createdAt = System.currentTimeMillis();
-        }
-        boolean isExpired() {
-            return System.currentTimeMillis() - createdAt > CACHE_TTL_MINUTES * 60_000L;
-        }
-    }
-
     @PreDestroy
     public void destroy() {
         queryExecutor.shutdownNow();
@@ -133,10 +130,9 @@ public class TextToSqlService {
         // ── 缓存命中检查（5分钟内相同问题直接返回，跳过LLM调用） ──
         // 归一化缓存 key：去除标点、空格归一化、按中文分词排序
         String cacheKey = tenantId + ":" + normalizeForCache(question);
-        CacheEntry cached = queryCache.get(cacheKey);
-        if (cached != null && !cached.isExpired()) {
+        NlQueryResponse cachedResp = queryCache.getIfPresent(cacheKey);
+        if (cachedResp != null) {
             log.info("[TextToSql] 缓存命中: {}", question);
-            NlQueryResponse cachedResp = cached.response;
             // 深拷贝避免修改共享对象
             NlQueryResponse copy = new NlQueryResponse();
             copy.setIntent(cachedResp.getIntent());
@@ -147,12 +143,12 @@ public class TextToSqlService {
             }
             return copy;
         }
-        if (cached != null && cached.isExpired()) {
-            queryCache.remove(cacheKey);
-        }
-        // 清理过期缓存
-        if (queryCache.size() > CACHE_MAX_SIZE) {
-            queryCache.entrySet().removeIf(e -> e.getValue().isExpired());
+
+        // ── 模板命中：同形状问题（仅实体/日期/数字不同）直接绑定参数执行，跳过LLM与配额 ──
+        TextToSqlTemplateCache.QuestionShape shape = templateCache.shapeOf(question, tenantId);
+        TextToSqlTemplateCache.BoundQuery bound = templateCache.lookup(tenantId, shape);
+        if (bound != null) {
+            return queryByTemplate(question, tenantId, cacheKey, bound);
         }
 
         if (!aiAdvisorService.checkAndConsumeQuota(tenantId)) {
@@ -219,6 +215,17 @@ public class TextToSqlService {
             log.info("[TextToSql-Audit] VALIDATED tenantId={} userId={} validatedSql=\"{}\"",
                     tenantId, auditUserId, validatedSql);
 
+            // ── EXPLAIN 成本审核：大表全扫描/连接爆炸的计划在执行前拒绝 ──
+            String costViolation = templateCache.checkPlanCost(validatedSql);
+            if (costViolation != null) {
+                log.warn("[TextToSql-Audit] END status=too_expensive tenantId={} userId={} reason=\"{}\" validatedSql=\"{}\" elapsedMs={}",
+                        tenantId, auditUserId, costViolation, validatedSql, System.currentTimeMillis() - startTime);
+                response.setIntent("text_to_sql_too_expensive");
+                response.setConfidence(0);
+                response.setAnswer("查询范围过大（" + costViolation + "），请增加时间范围、订单号或工厂等筛选条件。");
+                return response;
+            }
+
             List<Map<String, Object>> resultData = executeQueryWithTimeout(
                     validatedSql,
                     sqlSecurityValidator.getQueryTimeoutSeconds()
@@ -229,32 +236,12 @@ public class TextToSqlService {
             log.info("[TextToSql-Audit] END status=success tenantId={} userId={} rowCount={} elapsedMs={} validatedSql=\"{}\"",
                     tenantId, auditUserId, resultData.size(), elapsed, validatedSql);
 
-            response.setIntent("text_to_sql_success");
-            response.setConfidence(85);
-
-            // ── 限制返回数据量：只返回前50行用于展示 + 汇总统计 ──
-            Map<String, Object> responseData = new LinkedHashMap<>();
-            responseData.put("sql", validatedSql);
-            responseData.put("rowCount", resultData.size());
-            responseData.put("displayRows", Math.min(resultData.size(), DISPLAY_ROWS));
-            responseData.put("rows", resultData.subList(0, Math.min(resultData.size(), DISPLAY_ROWS)));
-            if (resultData.size() > DISPLAY_ROWS) {
-                responseData.put("truncated", true);
-                responseData.put("totalRows", resultData.size());
-            }
-            response.setData(responseData);
-
-            String naturalAnswer = formatNaturalAnswer(question, resultData);
-            response.setAnswer(naturalAnswer);
-
-            if (resultData.size() >= sqlSecurityValidator.getMaxRows()) {
-                response.setAnswer(response.getAnswer()
-                        + "\n\n⚠️ 注意：结果已达上限 " + sqlSecurityValidator.getMaxRows() + " 条，可能还有更多数据。");
-            }
+            fillSuccessResponse(response, question, validatedSql, null, resultData);
 
-            // ── 写入缓存 ──
+            // ── 写入缓存：结果缓存 + 参数化模板（已通过安全校验与成本审核） ──
             if (response.getConfidence() > 50) {
-                queryCache.put(cacheKey, new CacheEntry(response));
+                queryCache.put(cacheKey, response);
+                templateCache.remember(tenantId, shape, validatedSql);
             }
 
         } catch (Exception e) {
@@ -269,6 +256,63 @@ public class TextToSqlService {
         return response;
     }
 
+    /**
+     * 模板命中路径：SQL 结构已在模板创建时通过安全校验与 EXPLAIN 审核，这里只绑定参数执行
+     */
+    private NlQueryResponse queryByTemplate(String question, Long tenantId, String cacheKey,
+                                            TextToSqlTemplateCache.BoundQuery bound) {
+        NlQueryResponse response = new NlQueryResponse();
+        long startTime = System.currentTimeMillis();
+        String auditUserId = UserContext.userId();
+        log.info("[TextToSql-Audit] START tenantId={} userId={} question=\"{}\" template=true",
+                tenantId, auditUserId, question);
+        try {
+            List<Map<String, Object>> resultData = executeQueryWithTimeout(
+                    bound.sql(), sqlSecurityValidator.getQueryTimeoutSeconds(), bound.args());
+            log.info("[TextToSql-Audit] END status=success tenantId={} userId={} rowCount={} elapsedMs={} templateSql=\"{}\" params={}",
+                    tenantId, auditUserId, resultData.size(), System.currentTimeMillis() - startTime,
+                    bound.sql(), Arrays.toString(bound.args()));
+            fillSuccessResponse(response, question, bound.sql(), bound.args(), resultData);
+            queryCache.put(cacheKey, response);
+        } catch (Exception e) {
+            log.error("[TextToSql-Audit] END status=error tenantId={} userId={} elapsedMs={} error=\"{}\" template=true",
+                    tenantId, auditUserId, System.currentTimeMillis() - startTime, e.getMessage(), e);
+            response.setIntent("text_to_sql_error");
+            response.setConfidence(0);
+            response.setAnswer("查询执行失败：" + e.getMessage() + "。请换一种问法试试。");
+        }
+        return response;
+    }
+
+    private void fillSuccessResponse(NlQueryResponse response, String question, String sql, Object[] params,
+                                     List<Map<String, Object>> resultData) {
+        response.setIntent("text_to_sql_success");
+        response.setConfidence(85);
+
+        // ── 限制返回数据量：只返回前50行用于展示 + 汇总统计 ──
+        Map<String, Object> responseData = new LinkedHashMap<>();
+        responseData.put("sql", sql);
+        if (params != null) {
+            responseData.put("sqlParams", Arrays.asList(params));
+        }
+        responseData.put("rowCount", resultData.size());
+        responseData.put("displayRows", Math.min(resultData.size(), DISPLAY_ROWS));
+        responseData.put("rows", resultData.subList(0, Math.min(resultData.size(), DISPLAY_ROWS)));
+        if (resultData.size() > DISPLAY_ROWS) {
+            responseData.put("truncated", true);
+            responseData.put("totalRows", resultData.size());
+        }
+        response.setData(responseData);
+
+        String naturalAnswer = formatNaturalAnswer(question, resultData);
+        response.setAnswer(naturalAnswer);
+
+        if (resultData.size() >= sqlSecurityValidator.getMaxRows()) {
+            response.setAnswer(response.getAnswer()
+                    + "\n\n⚠️ 注意：结果已达上限 " + sqlSecurityValidator.getMaxRows() + " 条，可能还有更多数据。");
+        }
+    }
+
     private String buildSystemPrompt(String schemaContext, Long tenantId) {
         return "你是一个专业的服装供应链数据库查询助手。将用户的自然语言问题转换为MySQL SELECT语句。\n\n"
                 + "【重要规则】\n"
@@ -332,11 +376,11 @@ public class TextToSqlService {
         return null;
     }
 
-    private List<Map<String, Object>> executeQueryWithTimeout(String sql, int timeoutSeconds) throws Exception {
+    private List<Map<String, Object>> executeQueryWithTimeout(String sql, int timeoutSeconds, Object... args) throws Exception {
         Callable<List<Map<String, Object>>> task = new Callable<List<Map<String, Object>>>() {
             @Override
             public List<Map<String, Object>> call() throws Exception {
-                return jdbcTemplate.query(sql, new ResultSetExtractor<List<Map<String, Object>>>() {
+                ResultSetExtractor<List<Map<String, Object>>> extractor = new ResultSetExtractor<List<Map<String, Object>>>() {
                     @Override
                     public List<Map<String, Object>> extractData(ResultSet rs) throws java.sql.SQLException {
                         List<Map<String, Object>> result = new ArrayList<>();
@@ -360,7 +404,10 @@ public class TextToSqlService {
                         }
                         return result;
                     }
-                });
+                };
+                return args.length == 0
+                        ? jdbcTemplate.query(sql, extractor)
+                        : jdbcTemplate.query(sql, extractor, args);
             }
         };
         Future<List<Map<String, Object>>> future = queryExecutor.submit(task);
@@ -0,0 +1,296 @@
+package com.fashion.supplychain.intelligence.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Text-to-SQL 参数化模板缓存。
+ *
+ * 原状：只按归一化后的问题原文缓存 5 分钟，"A 工厂上周产量" 与 "B 工厂上周产量" 各走一次 LLM。
+ *
+ * 现流程：
+ * 1. 从问题中提取字面量（引号内名称、本租户工厂名、单号、日期、数字），替换为占位符得到"问题形状"；
+ * 2. LLM 生成并通过安全校验的 SQL 中，若每个字面量都能唯一定位，则替换为 ? 存为模板（按 租户+形状 缓存）；
+ * 3. 之后同形状的问题直接用新字面量绑定参数执行，不再调用 LLM；
+ * 4. 新生成的 SQL 执行前先 EXPLAIN 估算扫描行数，超限直接拒绝；模板只在创建时审核一次。
+ *
+ * 无法唯一定位的字面量（如问"最近7天"而 SQL 写成 INTERVAL 1 WEEK）不生成模板，避免绑定新值后语义错位。
+ */
+@Component
+@Slf4j
+public class TextToSqlTemplateCache {
+
+    /** 单表全表扫描的估算行数上限 */
+    private static final long MAX_FULL_SCAN_ROWS = 500_000L;
+
+    /** 多表连接估算行数乘积上限 */
+    private static final long MAX_EXAMINED_ROWS = 5_000_000L;
+
+    private static final Pattern QUOTED = Pattern.compile("[“\"'「『‘]([^“”\"'「」『』‘’\\\\]{1,40})[”\"'」』’]");
+    private static final Pattern CODE = Pattern.compile("(?<![A-Za-z0-9])[A-Za-z]{1,6}\\d{4,}(?:-\\d{1,4})?(?![A-Za-z0-9])");
+    private static final Pattern DATE = Pattern.compile("(\\d{4})[-/年](\\d{1,2})[-/月](\\d{1,2})日?");
+    private static final Pattern NUMBER = Pattern.compile("(?<![A-Za-z0-9.])\\d{1,6}(?![0-9.])");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** 模板：租户:形状 → 模板 */
+    private final Cache<String, SqlTemplate> templates = Caffeine.newBuilder()
+            .maximumSize(2_000)
+            .expireAfterWrite(Duration.ofHours(12))
+            .build();
+
+    /** 租户工厂名词典（用于识别未加引号的工厂名） */
+    private final Cache<Long, List<String>> factoryNames = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    public enum LiteralKind { NAME, CODE, DATE, NUMBER }
+
+    public record Literal(LiteralKind kind, String value) { }
+
+    /** 问题提取结果：形状 + 按出现顺序排列的字面量 */
+    public record QuestionShape(String shape, List<Literal> literals) { }
+
+    private record Slot(int literalIndex, String prefix, String suffix) { }
+
+    private record SlotMatch(int start, int end, Slot slot) { }
+
+    private record SqlTemplate(String sql, List<Slot> slots, List<LiteralKind> kinds) {
+        Object[] bind(List<Literal> literals) {
+            Object[] args = new Object[slots.size()];
+            for (int i = 0; i < slots.size(); i++) {
+                Slot s = slots.get(i);
+                Literal lit = literals.get(s.literalIndex());
+                args[i] = lit.kind() == LiteralKind.NUMBER
+                        ? (Object) Long.parseLong(lit.value())
+                        : s.prefix() + lit.value() + s.suffix();
+            }
+            return args;
+        }
+    }
+
+    /** 模板命中结果 */
+    public record BoundQuery(String sql, Object[] args) { }
+
+    /**
+     * 提取问题中的字面量，得到问题形状
+     */
+    public QuestionShape shapeOf(String question, Long tenantId) {
+        List<Literal> literals = new ArrayList<>();
+        String shaped = question == null ? "" : question;
+        shaped = lift(shaped, QUOTED, LiteralKind.NAME, 1, literals);
+        shaped = liftFactoryNames(shaped, tenantId, literals);
+        shaped = lift(shaped, CODE, LiteralKind.CODE, 0, literals);
+        shaped = liftDates(shaped, literals);
+        shaped = lift(shaped, NUMBER, LiteralKind.NUMBER, 0, literals);
+        return new QuestionShape(shaped.replaceAll("[\\p{Punct}\\s]+", "").toLowerCase(), literals);
+    }
+
+    /**
+     * 查找同形状模板并绑定本次问题的字面量；未命中返回 null
+     */
+    public BoundQuery lookup(Long tenantId, QuestionShape shape) {
+        if (shape.literals().isEmpty()) {
+            // 无字面量的问题由结果缓存负责
+            return null;
+        }
+        SqlTemplate template = templates.getIfPresent(key(tenantId, shape));
+        if (template == null || !template.kinds().equals(kinds(shape.literals()))) {
+            return null;
+        }
+        return new BoundQuery(template.sql(), template.bind(shape.literals()));
+    }
+
+    /**
+     * 从已通过安全校验和成本审核的 SQL 生成模板；字面量不能唯一定位时不生成
+     */
+    public void remember(Long tenantId, QuestionShape shape, String validatedSql) {
+        if (shape.literals().isEmpty() || validatedSql.indexOf('?') >= 0 || hasDuplicateValues(shape.literals())) {
+            return;
+        }
+        List<SlotMatch> matches = new ArrayList<>();
+        for (int i = 0; i < shape.literals().size(); i++) {
+            Literal lit = shape.literals().get(i);
+            List<SlotMatch> found = locate(validatedSql, lit, i);
+            if (found.isEmpty() || (lit.kind() == LiteralKind.NUMBER && found.size() != 1)) {
+                log.debug("[TextToSql] 字面量无法唯一定位，不生成模板 literal={}", lit.value());
+                return;
+            }
+            matches.addAll(found);
+        }
+        matches.sort(Comparator.comparingInt(SlotMatch::start));
+        StringBuilder sql = new StringBuilder(validatedSql.length());
+        List<Slot> slots = new ArrayList<>(matches.size());
+        int pos = 0;
+        for (SlotMatch m : matches) {
+            if (m.start() < pos) {
+                return;
+            }
+            sql.append(validatedSql, pos, m.start()).append('?');
+            slots.add(m.slot());
+            pos = m.end();
+        }
+        sql.append(validatedSql.substring(pos));
+        if (tenantId != null && countTenantConditions(sql, tenantId) != countTenantConditions(validatedSql, tenantId)) {
+            // 数字字面量恰好等于租户 ID 时不能参数化租户条件（P0 铁律4）
+            return;
+        }
+        templates.put(key(tenantId, shape), new SqlTemplate(sql.toString(), List.copyOf(slots), kinds(shape.literals())));
+        log.info("[TextToSql] 生成查询模板 tenantId={} shape={} params={}", tenantId, shape.shape(), slots.size());
+    }
+
+    /**
+     * EXPLAIN 成本审核：大表全表扫描或连接行数乘积超限时返回拒绝原因，通过返回 null
+     */
+    public String checkPlanCost(String sql, Object... args) {
+        List<Map<String, Object>> plan;
+        try {
+            plan = jdbcTemplate.queryForList("EXPLAIN " + sql, args);
+        } catch (Exception e) {
+            // EXPLAIN 失败不阻断（执行阶段仍有超时保护）
+            log.warn("[TextToSql] EXPLAIN 失败，跳过成本审核: {}", e.getMessage());
+            return null;
+        }
+        long product = 1L;
+        for (Map<String, Object> row : plan) {
+            long rows = toLong(row.get("rows"));
+            String type = String.valueOf(row.get("type"));
+            if ("ALL".equalsIgnoreCase(type) && rows > MAX_FULL_SCAN_ROWS) {
+                return "表 " + row.get("table") + " 需全表扫描约 " + rows + " 行";
+            }
+            long r = Math.max(1L, rows);
+            if (product > MAX_EXAMINED_ROWS / r) {
+                return "预计扫描行数超过 " + MAX_EXAMINED_ROWS;
+            }
+            product *= r;
+        }
+        return null;
+    }
+
+    private static List<SlotMatch> locate(String sql, Literal lit, int index) {
+        List<SlotMatch> found = new ArrayList<>();
+        if (lit.kind() == LiteralKind.NUMBER) {
+            Matcher m = Pattern.compile("(?<![\\w.'])" + Pattern.quote(lit.value()) + "(?![\\w.'])").matcher(sql);
+            while (m.find()) {
+                found.add(new SlotMatch(m.start(), m.end(), new Slot(index, "", "")));
+            }
+            return found;
+        }
+        Matcher m = Pattern.compile("'(%?)" + Pattern.quote(lit.value()) + "(%?)'").matcher(sql);
+        while (m.find()) {
+            found.add(new SlotMatch(m.start(), m.end(), new Slot(index, m.group(1), m.group(2))));
+        }
+        return found;
+    }
+
+    private String lift(String text, Pattern pattern, LiteralKind kind, int group, List<Literal> out) {
+        Matcher m = pattern.matcher(text);
+        StringBuilder sb = new StringBuilder();
+        while (m.find()) {
+            out.add(new Literal(kind, m.group(group)));
+            m.appendReplacement(sb, placeholder(kind));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    private String liftDates(String text, List<Literal> out) {
+        Matcher m = DATE.matcher(text);
+        StringBuilder sb = new StringBuilder();
+        while (m.find()) {
+            String iso = String.format("%s-%02d-%02d", m.group(1),
+                    Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3)));
+            out.add(new Literal(LiteralKind.DATE, iso));
+            m.appendReplacement(sb, placeholder(LiteralKind.DATE));
+        }
+        m.appendTail(sb);
+        return sb.toString();
+    }
+
+    /** 最长优先匹配工厂名，避免"华美"抢先匹配"华美二厂" */
+    private String liftFactoryNames(String text, Long tenantId, List<Literal> out) {
+        if (tenantId == null) {
+            return text;
+        }
+        List<String> names = factoryNames.get(tenantId, this::loadFactoryNames);
+        String result = text;
+        for (String name : names) {
+            int idx = result.indexOf(name);
+            while (idx >= 0) {
+                out.add(new Literal(LiteralKind.NAME, name));
+                result = result.substring(0, idx) + placeholder(LiteralKind.NAME) + result.substring(idx + name.length());
+                idx = result.indexOf(name, idx + 1);
+            }
+        }
+        return result;
+    }
+
+    private List<String> loadFactoryNames(Long tenantId) {
+        try {
+            List<String> names = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT factory_name FROM t_factory WHERE tenant_id = ? AND delete_flag = 0 "
+                            + "AND factory_name IS NOT NULL LIMIT 2000",
+                    String.class, tenantId);
+            return names.stream()
+                    .filter(n -> n.length() >= 2 && n.indexOf('\'') < 0 && n.indexOf('\\') < 0)
+                    .sorted(Comparator.comparingInt(String::length).reversed())
+                    .toList();
+        } catch (Exception e) {
+            log.warn("[TextToSql] 加载工厂名词典失败 tenantId={}: {}", tenantId, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static String placeholder(LiteralKind kind) {
+        return "【" + kind.name() + "】";
+    }
+
+    private static String key(Long tenantId, QuestionShape shape) {
+        return tenantId + ":" + shape.shape();
+    }
+
+    private static List<LiteralKind> kinds(List<Literal> literals) {
+        return literals.stream().map(Literal::kind).toList();
+    }
+
+    private static boolean hasDuplicateValues(List<Literal> literals) {
+        Set<String> seen = new HashSet<>();
+        for (Literal lit : literals) {
+            if (!seen.add(lit.value())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int countTenantConditions(CharSequence sql, Long tenantId) {
+        Matcher m = Pattern.compile("tenant_id\\s*=\\s*" + tenantId + "(?!\\d)").matcher(sql);
+        int n = 0;
+        while (m.find()) {
+            n++;
+        }
+        return n;
+    }
+
+    private static long toLong(Object v) {
+        if (v instanceof Number n) {
+            return n.longValue();
+        }
+        try {
+            return v == null ? 0L : Long.parseLong(v.toString());
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
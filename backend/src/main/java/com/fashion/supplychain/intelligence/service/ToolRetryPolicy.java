@@ -98,8 +98,7 @@ public class ToolRetryPolicy {
                 AiAgentToolExecHelper.ToolExecRecord record = records.get(0);
 
                 // 检查是否成功
-                boolean hasError = record.rawResult != null &&
-                        record.rawResult.startsWith("{\"error\"");
+                boolean hasError = record.failed;
 
                 if (!hasError) {
                     // 成功
@@ -260,8 +260,7 @@ public class ToolTraceService {
 
         public void complete(AiAgentToolExecHelper.ToolExecRecord record) {
             this.endTime = Instant.now();
-            this.success = record.rawResult != null &&
-                    !record.rawResult.startsWith("{\"error\"");
+            this.success = !record.failed;
             this.result = record.evidence;
             if (!this.success) {
                 this.errorMessage = record.evidence;
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.service;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.UserContext;
@@ -8,6 +9,8 @@ import com.fashion.supplychain.intelligence.entity.VisualAiLog;
 import com.fashion.supplychain.intelligence.gateway.AiInferenceGateway;
 import com.fashion.supplychain.intelligence.mapper.VisualAiLogMapper;
 import com.fashion.supplychain.service.RedisService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -17,9 +20,13 @@ import org.springframework.context.annotation.Lazy;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -30,15 +37,29 @@ import java.util.concurrent.TimeUnit;
  * 2. Redis缓存相同图片的分析结果（7天）
  * 3. 成本和token追踪
  * 4. 置信度阈值检查（低于70%建议人工复核）
+ * 5. 本地预处理（{@link VisionImagePipeline}）：缩到模型有效分辨率再上传，
+ *    并按感知哈希在租户内复用近重复图片（重复上传/微信二次压缩/轻微裁剪）的分析结果
+ * 6. 批量质检图片合并为多图请求，模型不支持时逐张降级
  */
 @Service
 @Lazy
 @Slf4j
 public class VisionAnalysisService {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
     private static final String VISION_CACHE_PREFIX = "vision:cache:";
+    private static final String PHASH_INDEX_PREFIX = "vision:phash:";
     private static final int CACHE_TTL_DAYS = 7;
+    /** 单个租户/任务的感知哈希索引上限（近重复扫描是线性的，超过后不再登记新图片） */
+    private static final int PHASH_INDEX_MAX_ENTRIES = 20000;
+    /** 近重复图片宽高比允许的相对差异（千分比） */
+    private static final int ASPECT_TOLERANCE_PERMILLE = 80;
+
+    private static final String VISION_SYSTEM_PROMPT = "你是一名拥有20年经验的服装供应链质检专家，精通面料检验、缝制工艺、色差管理和尺寸测量。"
+            + "你的分析必须精确、专业、可操作。"
+            + "请严格按照要求的JSON格式返回结果，不要添加任何markdown标记或额外说明。"
+            + "对于不确定的判断，请降低置信度并标注需要人工复核。"
+            + "所有缺陷描述必须包含具体位置、大小估算和严重程度，便于质检员快速定位和处理。";
 
     @Autowired
     private AiInferenceGateway aiInferenceGateway;
@@ -49,12 +70,30 @@ public class VisionAnalysisService {
     @Autowired
     private VisualAiLogMapper visualAiLogMapper;
 
+    @Autowired
+    private VisionImagePipeline visionImagePipeline;
+
     @Value("${smart.vision.confidence-threshold:70}")
     private Integer confidenceThreshold;
 
     @Value("${smart.vision.real-model.enabled:true}")
     private Boolean realModelEnabled;
 
+    @Value("${smart.vision.dedup.enabled:true}")
+    private Boolean dedupEnabled;
+
+    @Value("${smart.vision.dedup.max-distance:6}")
+    private Integer dedupMaxDistance;
+
+    @Value("${smart.vision.batch.max-images:4}")
+    private Integer batchMaxImages;
+
+    /** 感知哈希索引的本地副本：indexKey → (pHash → 宽高比千分比)，从 Redis Hash 加载，5 分钟后重新同步其他节点的登记 */
+    private final Cache<String, Map<Long, Integer>> phashIndexCache = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
+
     public boolean isAvailable() {
         return realModelEnabled && aiInferenceGateway.isVisionAvailable();
     }
@@ -66,6 +105,15 @@ public class VisionAnalysisService {
         return analyze(imageUrl, prompt, "DEFECT_DETECT");
     }
 
+    /**
+     * 批量质检图片缺陷检测，结果与入参顺序一一对应。
+     * 未命中缓存的图片按 smart.vision.batch.max-images 分组合并为多图请求。
+     */
+    public List<VisionResult> analyzeDefectBatch(List<String> imageUrls, String contextHint) {
+        String prompt = buildDefectPrompt(contextHint);
+        return analyzeBatch(imageUrls, prompt, "DEFECT_DETECT");
+    }
+
     public VisionResult analyzeStyle(String imageUrl, String contextHint) {
         String prompt = buildStylePrompt(contextHint);
         return analyze(imageUrl, prompt, "STYLE_IDENTIFY");
@@ -103,8 +151,7 @@ public class VisionAnalysisService {
 
     private VisionResult analyze(String imageUrl, String textPrompt, String taskType) {
         Long tenantId = UserContext.tenantId();
-        String imageHash = computeImageHash(imageUrl);
-        String cacheKey = VISION_CACHE_PREFIX + tenantId + ":" + imageHash + ":" + taskType;
+        String cacheKey = urlCacheKey(tenantId, imageUrl, taskType);
 
         // 1. 检查 Redis 缓存
         VisionResult cachedResult = redisService.get(cacheKey);
@@ -113,36 +160,131 @@ public class VisionAnalysisService {
             return cachedResult;
         }
 
+        // 2. 本地预处理（缩图 + 感知哈希）
+        VisionImagePipeline.PreparedImage prepared = isAvailable() ? visionImagePipeline.prepare(imageUrl) : null;
+        return analyzePrepared(tenantId, imageUrl, cacheKey, textPrompt, taskType, prepared);
+    }
+
+    private VisionResult analyzePrepared(Long tenantId, String imageUrl, String cacheKey, String textPrompt,
+                                         String taskType, VisionImagePipeline.PreparedImage prepared) {
+        String promptKey = promptKey(textPrompt);
+
+        // 3. 租户内近重复图片复用
+        if (prepared != null) {
+            VisionResult similar = findNearDuplicate(tenantId, taskType, promptKey, prepared);
+            if (similar != null) {
+                redisService.set(cacheKey, similar, CACHE_TTL_DAYS, TimeUnit.DAYS);
+                return similar;
+            }
+        }
+
         VisionResult result;
         if (realModelEnabled && aiInferenceGateway.isVisionAvailable()) {
-            // 2. 真实视觉模型调用
-            result = callRealVisionModel(imageUrl, textPrompt, taskType, tenantId);
+            // 4. 真实视觉模型调用（有预处理结果时发送缩小后的图片）
+            result = callRealVisionModel(prepared != null ? prepared.dataUri() : imageUrl, textPrompt, taskType, tenantId);
         } else {
-            // 3. 降级逻辑：原有的模拟或 Legacy 调用（暂时保留兼容）
+            // 降级逻辑：原有的模拟或 Legacy 调用（暂时保留兼容）
             result = callLegacyVisionModel(imageUrl, textPrompt, taskType, tenantId);
         }
 
-        // 4. 缓存结果
-        redisService.set(cacheKey, result, CACHE_TTL_DAYS, TimeUnit.DAYS);
+        // 5. 缓存结果
+        cacheResult(tenantId, cacheKey, taskType, promptKey, prepared, result);
 
-        // 5. 保存日志
+        // 6. 保存日志
         saveVisionLog(tenantId, imageUrl, taskType, result);
 
         return result;
     }
 
+    private List<VisionResult> analyzeBatch(List<String> imageUrls, String textPrompt, String taskType) {
+        int n = imageUrls == null ? 0 : imageUrls.size();
+        VisionResult[] results = new VisionResult[n];
+        if (n == 0) {
+            return new ArrayList<>();
+        }
+        if (!isAvailable()) {
+            Arrays.fill(results, VisionResult.unavailable("真实视觉模型未启用，请联系管理员配置"));
+            return Arrays.asList(results);
+        }
+        Long tenantId = UserContext.tenantId();
+        String promptKey = promptKey(textPrompt);
+        VisionImagePipeline.PreparedImage[] prepared = new VisionImagePipeline.PreparedImage[n];
+        int[] sameAs = new int[n];
+        Arrays.fill(sameAs, -1);
+        List<Integer> pending = new ArrayList<>();
+
+        for (int i = 0; i < n; i++) {
+            String imageUrl = imageUrls.get(i);
+            String cacheKey = urlCacheKey(tenantId, imageUrl, taskType);
+            VisionResult cached = redisService.get(cacheKey);
+            if (cached != null) {
+                results[i] = cached;
+                continue;
+            }
+            prepared[i] = visionImagePipeline.prepare(imageUrl);
+            if (prepared[i] == null) {
+                // 无法本地解码的图片按原地址单张调用
+                results[i] = analyzePrepared(tenantId, imageUrl, cacheKey, textPrompt, taskType, null);
+                continue;
+            }
+            VisionResult similar = findNearDuplicate(tenantId, taskType, promptKey, prepared[i]);
+            if (similar != null) {
+                redisService.set(cacheKey, similar, CACHE_TTL_DAYS, TimeUnit.DAYS);
+                results[i] = similar;
+                continue;
+            }
+            // 同一批里的近重复图片只分析一次
+            for (int j : pending) {
+                if (isNearDuplicate(prepared[i], prepared[j].phash(), prepared[j].aspectPermille())) {
+                    sameAs[i] = j;
+                    break;
+                }
+            }
+            if (sameAs[i] < 0) {
+                pending.add(i);
+            }
+        }
+
+        int chunkSize = Math.max(1, batchMaxImages);
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            List<Integer> chunk = pending.subList(from, Math.min(pending.size(), from + chunkSize));
+            List<VisionResult> chunkResults = null;
+            if (chunk.size() > 1) {
+                List<String> dataUris = new ArrayList<>(chunk.size());
+                for (int i : chunk) {
+                    dataUris.add(prepared[i].dataUri());
+                }
+                chunkResults = callRealVisionModelMulti(dataUris, textPrompt, taskType);
+            }
+            for (int k = 0; k < chunk.size(); k++) {
+                int i = chunk.get(k);
+                VisionResult result = chunkResults != null
+                        ? chunkResults.get(k)
+                        : callRealVisionModel(prepared[i].dataUri(), textPrompt, taskType, tenantId);
+                results[i] = result;
+                cacheResult(tenantId, urlCacheKey(tenantId, imageUrls.get(i), taskType), taskType, promptKey, prepared[i], result);
+                saveVisionLog(tenantId, imageUrls.get(i), taskType, result);
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (sameAs[i] >= 0) {
+                VisionResult result = results[sameAs[i]];
+                results[i] = result;
+                if (result.isAvailable()) {
+                    redisService.set(urlCacheKey(tenantId, imageUrls.get(i), taskType), result, CACHE_TTL_DAYS, TimeUnit.DAYS);
+                }
+            }
+        }
+        log.info("[VisionAnalysis] Batch analyzed: tenant={}, images={}, modelCalls={}", tenantId, n, pending.size());
+        return Arrays.asList(results);
+    }
+
     private VisionResult callRealVisionModel(String imageUrl, String textPrompt, String taskType, Long tenantId) {
         try {
-            // 增强的系统 prompt — 给 AI 更专业的角色设定和分析框架
-            String systemPrompt = "你是一名拥有20年经验的服装供应链质检专家，精通面料检验、缝制工艺、色差管理和尺寸测量。"
-                + "你的分析必须精确、专业、可操作。"
-                + "请严格按照要求的JSON格式返回结果，不要添加任何markdown标记或额外说明。"
-                + "对于不确定的判断，请降低置信度并标注需要人工复核。"
-                + "所有缺陷描述必须包含具体位置、大小估算和严重程度，便于质检员快速定位和处理。";
-
             IntelligenceInferenceResult inferenceResult = aiInferenceGateway.chatWithVision(
                 "vision-analysis",
-                systemPrompt,
+                VISION_SYSTEM_PROMPT,
                 textPrompt,
                 imageUrl
             );
@@ -157,13 +299,7 @@ public class VisionAnalysisService {
             result.setRawResponse(rawResponse);
             // 暂时不设置 cost，因为 IntelligenceInferenceResult 没有该字段
             result.setTokens(inferenceResult.getPromptTokens() + inferenceResult.getCompletionTokens());
-
-            // 置信度检查
-            if (result.getConfidence() < confidenceThreshold) {
-                result.setNeedManualReview(true);
-                log.info("[VisionAnalysis] Low confidence result ({} < {}), marked for review", result.getConfidence(), confidenceThreshold);
-            }
-
+            applyConfidenceCheck(result);
             return result;
         } catch (Exception e) {
             log.error("[VisionAnalysis] Real model call exception: {}", e.getMessage(), e);
@@ -171,12 +307,152 @@ public class VisionAnalysisService {
         }
     }
 
+    /**
+     * 多图请求：要求模型按图片顺序返回 JSON 数组。网关不支持多图、调用失败或返回条数不符时返回 null，
+     * 由调用方逐张重试。
+     */
+    private List<VisionResult> callRealVisionModelMulti(List<String> imageUrls, String textPrompt, String taskType) {
+        int n = imageUrls.size();
+        String batchPrompt = textPrompt + "\n\n## 批量模式\n"
+                + "本次共提供 " + n + " 张图片，按上传顺序编号 1-" + n + "。请对每张图片分别、独立地按上述要求分析，"
+                + "不要把不同图片的缺陷混在一起。返回严格的 JSON 数组（不要markdown包裹），数组长度必须为 " + n
+                + "，第 i 个元素对应第 i 张图片，元素格式与上述单张返回格式相同，并增加字段 \"imageIndex\": i。";
+        try {
+            IntelligenceInferenceResult inferenceResult = aiInferenceGateway.chatWithVisionMulti(
+                    "vision-analysis", VISION_SYSTEM_PROMPT, batchPrompt, imageUrls);
+            if (inferenceResult == null || !inferenceResult.isSuccess() || inferenceResult.getContent() == null) {
+                log.info("[VisionAnalysis] Multi-image request unavailable, falling back to single calls: images={}", n);
+                return null;
+            }
+            List<VisionResult> results = parseBatchVisionResponse(inferenceResult.getContent(), taskType, n);
+            if (results == null) {
+                log.warn("[VisionAnalysis] Multi-image response mismatch, falling back to single calls: images={}", n);
+                return null;
+            }
+            int tokens = inferenceResult.getPromptTokens() + inferenceResult.getCompletionTokens();
+            for (VisionResult result : results) {
+                result.setTokens(tokens / n);
+                applyConfidenceCheck(result);
+            }
+            return results;
+        } catch (Exception e) {
+            log.warn("[VisionAnalysis] Multi-image call exception, falling back to single calls: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void applyConfidenceCheck(VisionResult result) {
+        if (result.getConfidence() < confidenceThreshold) {
+            result.setNeedManualReview(true);
+            log.info("[VisionAnalysis] Low confidence result ({} < {}), marked for review", result.getConfidence(), confidenceThreshold);
+        }
+    }
+
     private VisionResult callLegacyVisionModel(String imageUrl, String textPrompt, String taskType, Long tenantId) {
         // 暂时保持原有的模拟逻辑作为降级方案
         // 这里可以直接保留原有的 IntelligenceInferenceOrchestrator 调用
         return VisionResult.unavailable("真实视觉模型未启用，请联系管理员配置");
     }
 
+    // ==================== 缓存与感知哈希索引 ====================
+
+    private String urlCacheKey(Long tenantId, String imageUrl, String taskType) {
+        return VISION_CACHE_PREFIX + tenantId + ":" + computeImageHash(imageUrl) + ":" + taskType;
+    }
+
+    /** 近重复复用还要求 prompt 一致（上下文提示、自定义 prompt 不同的分析不能互相复用） */
+    private String promptKey(String textPrompt) {
+        return computeImageHash(textPrompt != null ? textPrompt : "").substring(0, 16);
+    }
+
+    private String phashCacheKey(Long tenantId, long phash, String taskType, String promptKey) {
+        return VISION_CACHE_PREFIX + tenantId + ":p" + phashHex(phash) + ":" + taskType + ":" + promptKey;
+    }
+
+    private String phashIndexKey(Long tenantId, String taskType, String promptKey) {
+        return PHASH_INDEX_PREFIX + tenantId + ":" + taskType + ":" + promptKey;
+    }
+
+    private static String phashHex(long phash) {
+        return String.format("%016x", phash);
+    }
+
+    /** 只缓存成功结果，失败/不可用的结果下次重新调用 */
+    private void cacheResult(Long tenantId, String cacheKey, String taskType, String promptKey,
+                             VisionImagePipeline.PreparedImage prepared, VisionResult result) {
+        if (result == null || !result.isAvailable()) {
+            return;
+        }
+        redisService.set(cacheKey, result, CACHE_TTL_DAYS, TimeUnit.DAYS);
+        if (prepared == null || !Boolean.TRUE.equals(dedupEnabled)) {
+            return;
+        }
+        redisService.set(phashCacheKey(tenantId, prepared.phash(), taskType, promptKey), result, CACHE_TTL_DAYS, TimeUnit.DAYS);
+        String indexKey = phashIndexKey(tenantId, taskType, promptKey);
+        Map<Long, Integer> index = loadPhashIndex(indexKey);
+        if (index.size() >= PHASH_INDEX_MAX_ENTRIES) {
+            log.debug("[VisionAnalysis] pHash index full: {}", indexKey);
+            return;
+        }
+        index.put(prepared.phash(), prepared.aspectPermille());
+        redisService.hSet(indexKey, phashHex(prepared.phash()), prepared.aspectPermille());
+        redisService.expire(indexKey, CACHE_TTL_DAYS, TimeUnit.DAYS);
+    }
+
+    /** 按汉明距离由近到远查找已分析过的近重复图片，结果已过期的索引项顺手清理 */
+    private VisionResult findNearDuplicate(Long tenantId, String taskType, String promptKey,
+                                           VisionImagePipeline.PreparedImage prepared) {
+        if (!Boolean.TRUE.equals(dedupEnabled)) {
+            return null;
+        }
+        String indexKey = phashIndexKey(tenantId, taskType, promptKey);
+        Map<Long, Integer> index = loadPhashIndex(indexKey);
+        List<long[]> candidates = new ArrayList<>();
+        for (Map.Entry<Long, Integer> e : index.entrySet()) {
+            if (isNearDuplicate(prepared, e.getKey(), e.getValue())) {
+                candidates.add(new long[]{e.getKey(), VisionImagePipeline.hammingDistance(prepared.phash(), e.getKey())});
+            }
+        }
+        candidates.sort(Comparator.comparingLong(c -> c[1]));
+        for (int i = 0; i < Math.min(3, candidates.size()); i++) {
+            long phash = candidates.get(i)[0];
+            VisionResult hit = redisService.get(phashCacheKey(tenantId, phash, taskType, promptKey));
+            if (hit != null) {
+                log.info("[VisionAnalysis] Near-duplicate hit: tenant={}, taskType={}, distance={}",
+                        tenantId, taskType, candidates.get(i)[1]);
+                return hit;
+            }
+            index.remove(phash);
+            redisService.hDelete(indexKey, phashHex(phash));
+        }
+        return null;
+    }
+
+    private boolean isNearDuplicate(VisionImagePipeline.PreparedImage image, long otherPhash, int otherAspect) {
+        if (VisionImagePipeline.hammingDistance(image.phash(), otherPhash) > dedupMaxDistance) {
+            return false;
+        }
+        int aspect = image.aspectPermille();
+        return Math.abs(aspect - otherAspect) * 1000L <= (long) ASPECT_TOLERANCE_PERMILLE * Math.max(aspect, otherAspect);
+    }
+
+    private Map<Long, Integer> loadPhashIndex(String indexKey) {
+        return phashIndexCache.get(indexKey, key -> {
+            Map<Long, Integer> index = new ConcurrentHashMap<>();
+            for (Map.Entry<Object, Object> e : redisService.hGetAll(key).entrySet()) {
+                try {
+                    long phash = Long.parseUnsignedLong(String.valueOf(e.getKey()), 16);
+                    Object v = e.getValue();
+                    int aspect = v instanceof Number num ? num.intValue() : Integer.parseInt(String.valueOf(v));
+                    index.put(phash, aspect);
+                } catch (NumberFormatException ex) {
+                    log.debug("[VisionAnalysis] Skip malformed pHash index entry: {}", e.getKey());
+                }
+            }
+            return index;
+        });
+    }
+
     // ==================== 图片哈希计算 ====================
 
     private String computeImageHash(String imageUrl) {
@@ -323,18 +599,7 @@ public class VisionAnalysisService {
             if (jsonStart >= 0 && jsonEnd > jsonStart) {
                 String jsonStr = raw.substring(jsonStart, jsonEnd + 1);
                 Map<String, Object> jsonMap = MAPPER.readValue(jsonStr, new TypeReference<Map<String, Object>>() {});
-
-                result.setSeverity(extractString(jsonMap, "severity", "NONE"));
-                result.setConfidence(extractInt(jsonMap, "confidence", 0));
-                result.setReport(extractString(jsonMap, "report", raw));
-                result.setRecommendation(extractString(jsonMap, "recommendation", "请人工复核"));
-
-                Object defectsObj = jsonMap.get("defects");
-                if (defectsObj instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> defectsList = (List<Map<String, Object>>) defectsObj;
-                    result.setDefects(defectsList);
-                }
+                applyJsonFields(result, jsonMap, raw);
             } else {
                 // JSON 解析失败，直接返回原始内容
                 result.setReport(raw);
@@ -351,6 +616,68 @@ public class VisionAnalysisService {
         return result;
     }
 
+    private void applyJsonFields(VisionResult result, Map<String, Object> jsonMap, String raw) {
+        result.setSeverity(extractString(jsonMap, "severity", "NONE"));
+        result.setConfidence(extractInt(jsonMap, "confidence", 0));
+        result.setReport(extractString(jsonMap, "report", raw));
+        result.setRecommendation(extractString(jsonMap, "recommendation", "请人工复核"));
+
+        Object defectsObj = jsonMap.get("defects");
+        if (defectsObj instanceof List) {
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> defectsList = (List<Map<String, Object>>) defectsObj;
+            result.setDefects(defectsList);
+        }
+    }
+
+    /** 解析多图请求返回的 JSON 数组；条数不符或无法解析时返回 null */
+    private List<VisionResult> parseBatchVisionResponse(String raw, String taskType, int expected) {
+        try {
+            int start = raw.indexOf('[');
+            int end = raw.lastIndexOf(']');
+            if (start < 0 || end <= start) {
+                return null;
+            }
+            List<Map<String, Object>> items = MAPPER.readValue(raw.substring(start, end + 1),
+                    new TypeReference<List<Map<String, Object>>>() {});
+            if (items.size() != expected) {
+                return null;
+            }
+            // 每项都带合法且不重复的 imageIndex 时按序号对齐，否则按数组顺序
+            Map<String, Object>[] ordered = orderByImageIndex(items);
+            List<VisionResult> results = new ArrayList<>(expected);
+            for (Map<String, Object> item : ordered != null ? Arrays.asList(ordered) : items) {
+                String itemJson = MAPPER.writeValueAsString(item);
+                VisionResult result = new VisionResult();
+                result.setTaskType(taskType);
+                applyJsonFields(result, item, itemJson);
+                result.setRawResponse(itemJson);
+                results.add(result);
+            }
+            return results;
+        } catch (Exception e) {
+            log.warn("[VisionAnalysis] Batch response parse exception: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object>[] orderByImageIndex(List<Map<String, Object>> items) {
+        Map<String, Object>[] ordered = new Map[items.size()];
+        for (Map<String, Object> item : items) {
+            Object idx = item.get("imageIndex");
+            if (!(idx instanceof Number num)) {
+                return null;
+            }
+            int i = num.intValue() - 1;
+            if (i < 0 || i >= ordered.length || ordered[i] != null) {
+                return null;
+            }
+            ordered[i] = item;
+        }
+        return ordered;
+    }
+
     private String extractString(Map<String, Object> map, String key, String defaultValue) {
         Object val = map.get(key);
         return val != null ? val.toString() : defaultValue;
@@ -0,0 +1,400 @@
+package com.fashion.supplychain.intelligence.service;
+
+import com.fashion.supplychain.intelligence.orchestration.StyleImageUrlResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+
+/**
+ * 视觉分析前的本地图片预处理（纯 CPU，仅用 JDK ImageIO / Java2D）。
+ *
+ * <p>1. 取图：复用 {@link StyleImageUrlResolver} 的地址规范化（本地文件/COS/外链/data URI）后取得原始字节；
+ * 2. 按 EXIF 方向摆正，长边缩到模型的有效分辨率（默认 1024px，多数视觉模型内部也会缩到这个量级，
+ * 多传的像素只增加上传耗时和 token）；
+ * 3. 计算 64 位 DCT 感知哈希（pHash），供 {@link VisionAnalysisService} 在租户内按汉明距离识别
+ * 重复上传、微信二次压缩、轻微裁剪的同一张照片。
+ *
+ * <p>ImageIO 解不了的格式（如 webp）返回 null，调用方按原逻辑直接把 URL 交给模型。
+ * 解码前先用 ImageReader 读出宽高：超过 {@link #MAX_SOURCE_PIXELS} 的图片（含伪造尺寸的解压炸弹）直接放弃，
+ * 超过 {@link #MAX_DECODE_PIXELS} 的按整数步长隔行隔列解码，内存占用与原图尺寸脱钩。
+ */
+@Component
+@Lazy
+@Slf4j
+public class VisionImagePipeline {
+
+    private static final int MAX_SOURCE_BYTES = 15 * 1024 * 1024;
+    /** 宽×高上限，超过不解码 */
+    static final long MAX_SOURCE_PIXELS = 100_000_000L;
+    /** 单次解码的像素上限（约 64MB 的 RGB 缓冲），更大的图片按步长抽样解码 */
+    static final long MAX_DECODE_PIXELS = 16_000_000L;
+    private static final int HASH_SIZE = 32;
+    private static final int HASH_LOW_FREQ = 8;
+    private static final double[][] DCT_COS = new double[HASH_LOW_FREQ][HASH_SIZE];
+
+    static {
+        for (int u = 0; u < HASH_LOW_FREQ; u++) {
+            for (int x = 0; x < HASH_SIZE; x++) {
+                DCT_COS[u][x] = Math.cos((2 * x + 1) * u * Math.PI / (2.0 * HASH_SIZE));
+            }
+        }
+    }
+
+    @Autowired
+    private StyleImageUrlResolver styleImageUrlResolver;
+
+    @Value("${smart.vision.preprocess.enabled:true}")
+    private boolean enabled;
+
+    @Value("${smart.vision.preprocess.max-edge:1024}")
+    private int maxEdge;
+
+    @Value("${smart.vision.preprocess.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    /**
+     * 预处理结果
+     *
+     * @param dataUri       发送给模型的图片（data URI）
+     * @param phash         64 位感知哈希
+     * @param aspectPermille 宽高比 ×1000（近重复匹配时排除构图差异过大的图片）
+     */
+    public record PreparedImage(String dataUri, long phash, int aspectPermille, int width, int height) {}
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** 预处理图片；取图或解码失败返回 null */
+    public PreparedImage prepare(String imageUrl) {
+        if (!enabled || imageUrl == null || imageUrl.isBlank()) {
+            return null;
+        }
+        try {
+            byte[] source = load(imageUrl);
+            if (source == null || source.length == 0) {
+                return null;
+            }
+            BufferedImage decoded = decode(source);
+            if (decoded == null) {
+                return null;
+            }
+            int orientation = exifOrientation(source);
+            BufferedImage upright = orient(toRgb(decoded), orientation);
+            int longEdge = Math.max(upright.getWidth(), upright.getHeight());
+
+            String dataUri;
+            BufferedImage scaled = upright;
+            if (longEdge > maxEdge || orientation > 1 || !isJpegOrPng(source)) {
+                double ratio = Math.min(1.0, (double) maxEdge / longEdge);
+                scaled = resize(upright,
+                        Math.max(1, (int) Math.round(upright.getWidth() * ratio)),
+                        Math.max(1, (int) Math.round(upright.getHeight() * ratio)));
+                byte[] jpeg = encodeJpeg(scaled, jpegQuality);
+                dataUri = "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(jpeg);
+                log.debug("[VisionPipeline] {}x{} ({}KB) → {}x{} ({}KB)", decoded.getWidth(), decoded.getHeight(),
+                        source.length / 1024, scaled.getWidth(), scaled.getHeight(), jpeg.length / 1024);
+            } else {
+                // 尺寸已在范围内且方向正常：原样发送，避免二次有损压缩
+                String mime = source[0] == (byte) 0x89 ? "image/png" : "image/jpeg";
+                dataUri = "data:" + mime + ";base64," + Base64.getEncoder().encodeToString(source);
+            }
+            int aspect = (int) Math.round(scaled.getWidth() * 1000.0 / scaled.getHeight());
+            return new PreparedImage(dataUri, phash(scaled), aspect, scaled.getWidth(), scaled.getHeight());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            log.warn("[VisionPipeline] 图片预处理失败，按原地址调用模型: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /** 先读尺寸再解码；无法识别的格式或尺寸超限返回 null */
+    private static BufferedImage decode(byte[] source) throws Exception {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(source))) {
+            Iterator<ImageReader> readers = iis != null ? ImageIO.getImageReaders(iis) : null;
+            if (readers == null || !readers.hasNext()) {
+                log.debug("[VisionPipeline] ImageIO 无法解码，跳过预处理");
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int step = decodeStep(width, height);
+                if (step == 0) {
+                    log.warn("[VisionPipeline] 图片尺寸 {}x{} 超过上限，跳过预处理", width, height);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 解码步长：1 为原尺寸解码；大于 1 时隔 step 取一个像素，使解码像素数不超过 {@link #MAX_DECODE_PIXELS}；
+     * 0 表示尺寸非法或超过 {@link #MAX_SOURCE_PIXELS}，不解码。
+     */
+    static int decodeStep(int width, int height) {
+        long pixels = (long) width * height;
+        if (width <= 0 || height <= 0 || pixels > MAX_SOURCE_PIXELS) {
+            return 0;
+        }
+        int step = 1;
+        while (pixels / ((long) step * step) > MAX_DECODE_PIXELS) {
+            step++;
+        }
+        return step;
+    }
+
+    private byte[] load(String imageUrl) throws Exception {
+        String resolved = imageUrl.startsWith("data:") ? imageUrl : styleImageUrlResolver.resolveForVision(imageUrl);
+        if (resolved == null) {
+            return null;
+        }
+        if (resolved.startsWith("data:")) {
+            int comma = resolved.indexOf(',');
+            if (comma < 0 || !resolved.substring(0, comma).contains(";base64")) {
+                return null;
+            }
+            // base64 长度约为原字节的 4/3，先按长度拒绝超大图片
+            if ((long) (resolved.length() - comma - 1) * 3 / 4 > MAX_SOURCE_BYTES) {
+                return null;
+            }
+            return Base64.getDecoder().decode(resolved.substring(comma + 1));
+        }
+        if (resolved.startsWith("http://") || resolved.startsWith("https://")) {
+            // 与外链同一取图通道：逐跳校验地址，超过上限即中断读取
+            StyleImageUrlResolver.FetchedImage image = styleImageUrlResolver.fetchImage(resolved, MAX_SOURCE_BYTES);
+            return image != null ? image.bytes() : null;
+        }
+        return null;
+    }
+
+    // ==================== 感知哈希 ====================
+
+    /**
+     * 64 位 DCT 感知哈希：缩到 32×32 灰度，取左上 8×8 低频系数，与其中 63 个交流分量的中位数比较得到各位。
+     * 对重新压缩、缩放、轻微裁剪和亮度变化稳定，内容不同的图片汉明距离通常在 20 以上。
+     */
+    static long phash(BufferedImage image) {
+        BufferedImage small = resize(image, HASH_SIZE, HASH_SIZE);
+        double[][] gray = new double[HASH_SIZE][HASH_SIZE];
+        for (int y = 0; y < HASH_SIZE; y++) {
+            for (int x = 0; x < HASH_SIZE; x++) {
+                int rgb = small.getRGB(x, y);
+                gray[y][x] = 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+            }
+        }
+        // 可分离二维 DCT，只算需要的 8×8 低频部分
+        double[][] rows = new double[HASH_SIZE][HASH_LOW_FREQ];
+        for (int y = 0; y < HASH_SIZE; y++) {
+            for (int u = 0; u < HASH_LOW_FREQ; u++) {
+                double sum = 0;
+                for (int x = 0; x < HASH_SIZE; x++) {
+                    sum += gray[y][x] * DCT_COS[u][x];
+                }
+                rows[y][u] = sum;
+            }
+        }
+        double[] coefficients = new double[HASH_LOW_FREQ * HASH_LOW_FREQ];
+        for (int v = 0; v < HASH_LOW_FREQ; v++) {
+            for (int u = 0; u < HASH_LOW_FREQ; u++) {
+                double sum = 0;
+                for (int y = 0; y < HASH_SIZE; y++) {
+                    sum += rows[y][u] * DCT_COS[v][y];
+                }
+                coefficients[v * HASH_LOW_FREQ + u] = sum;
+            }
+        }
+        double[] ac = Arrays.copyOfRange(coefficients, 1, coefficients.length);
+        Arrays.sort(ac);
+        double median = ac[ac.length / 2];
+        long hash = 0;
+        for (int i = 0; i < coefficients.length; i++) {
+            if (coefficients[i] > median) {
+                hash |= 1L << i;
+            }
+        }
+        return hash;
+    }
+
+    public static int hammingDistance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    // ==================== 图像处理 ====================
+
+    /** 去掉透明通道（透明区域按白底处理），统一为 RGB */
+    private static BufferedImage toRgb(BufferedImage src) {
+        if (src.getType() == BufferedImage.TYPE_INT_RGB) {
+            return src;
+        }
+        BufferedImage rgb = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, src.getWidth(), src.getHeight());
+            g.drawImage(src, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    /** 逐级减半再双线性收尾，避免一次大比例缩小的锯齿与细节丢失 */
+    static BufferedImage resize(BufferedImage src, int targetWidth, int targetHeight) {
+        BufferedImage current = src;
+        int w = src.getWidth();
+        int h = src.getHeight();
+        while (w / 2 >= targetWidth && h / 2 >= targetHeight) {
+            w /= 2;
+            h /= 2;
+            current = draw(current, w, h);
+        }
+        if (w != targetWidth || h != targetHeight) {
+            current = draw(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage src, int w, int h) {
+        BufferedImage dst = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    /** 按 EXIF 方向旋转（3=180°，6=顺时针90°，8=逆时针90°；镜像方向极少见，不处理） */
+    private static BufferedImage orient(BufferedImage src, int orientation) {
+        if (orientation != 3 && orientation != 6 && orientation != 8) {
+            return src;
+        }
+        int w = src.getWidth();
+        int h = src.getHeight();
+        boolean swap = orientation != 3;
+        BufferedImage dst = new BufferedImage(swap ? h : w, swap ? w : h, BufferedImage.TYPE_INT_RGB);
+        AffineTransform t = new AffineTransform();
+        switch (orientation) {
+            case 3 -> { t.translate(w, h); t.rotate(Math.PI); }
+            case 6 -> { t.translate(h, 0); t.rotate(Math.PI / 2); }
+            default -> { t.translate(0, w); t.rotate(-Math.PI / 2); }
+        }
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.drawImage(src, t, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws Exception {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IllegalStateException("JPEG 编码器不可用");
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(Math.max(0.1f, Math.min(1.0f, quality)));
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isJpegOrPng(byte[] bytes) {
+        return bytes.length > 3 && ((bytes[0] == (byte) 0xFF && bytes[1] == (byte) 0xD8)
+                || (bytes[0] == (byte) 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G'));
+    }
+
+    /** 读取 JPEG APP1/EXIF 中 IFD0 的 Orientation（0x0112），读不到返回 1 */
+    static int exifOrientation(byte[] jpeg) {
+        if (jpeg.length < 4 || jpeg[0] != (byte) 0xFF || jpeg[1] != (byte) 0xD8) {
+            return 1;
+        }
+        int pos = 2;
+        while (pos + 4 <= jpeg.length && jpeg[pos] == (byte) 0xFF) {
+            int marker = jpeg[pos + 1] & 0xFF;
+            int length = ((jpeg[pos + 2] & 0xFF) << 8) | (jpeg[pos + 3] & 0xFF);
+            if (marker == 0xDA || length < 2) {
+                break;
+            }
+            int segment = pos + 4;
+            if (marker == 0xE1 && segment + 14 <= jpeg.length
+                    && jpeg[segment] == 'E' && jpeg[segment + 1] == 'x' && jpeg[segment + 2] == 'i' && jpeg[segment + 3] == 'f') {
+                int tiff = segment + 6;
+                boolean little = jpeg[tiff] == 'I';
+                int ifd = tiff + readInt(jpeg, tiff + 4, little);
+                if (ifd + 2 > jpeg.length) {
+                    return 1;
+                }
+                int entries = readShort(jpeg, ifd, little);
+                for (int i = 0; i < entries; i++) {
+                    int entry = ifd + 2 + i * 12;
+                    if (entry + 12 > jpeg.length) {
+                        break;
+                    }
+                    if (readShort(jpeg, entry, little) == 0x0112) {
+                        int value = readShort(jpeg, entry + 8, little);
+                        return value >= 1 && value <= 8 ? value : 1;
+                    }
+                }
+                return 1;
+            }
+            pos += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] b, int off, boolean little) {
+        return little ? (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8)
+                : ((b[off] & 0xFF) << 8) | (b[off + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] b, int off, boolean little) {
+        return little
+                ? (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8) | ((b[off + 2] & 0xFF) << 16) | ((b[off + 3] & 0xFF) << 24)
+                : ((b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+}
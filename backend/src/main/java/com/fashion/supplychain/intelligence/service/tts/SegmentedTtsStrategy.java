@@ -0,0 +1,147 @@
+package com.fashion.supplychain.intelligence.service.tts;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 分段缓存的 TTS 装饰器（由 {@link TtsStrategyFactory} 包在实际提供方外层）。
+ *
+ * <p>文本经 {@link TtsPhraseSegmenter} 切成短语片段，逐段查 {@link TtsAudioCache}。
+ * 只有未命中的片段才交给底层提供方合成，并发数受 maxConcurrency 限制（Edge 提供方复用连接池）。
+ * 同一片段被多个请求同时需要时只合成一次。各段 MP3 帧按原顺序首尾拼接成完整音频，
+ * 同一输出格式的 MP3 帧流可直接串联播放。
+ */
+@Slf4j
+public class SegmentedTtsStrategy implements TtsStrategy {
+
+    private static final ExecutorService SYNTH_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final TtsStrategy delegate;
+    private final TtsAudioCache cache;
+    private final Semaphore permits;
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    public SegmentedTtsStrategy(TtsStrategy delegate, TtsAudioCache cache, int maxConcurrency) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.permits = new Semaphore(Math.max(1, maxConcurrency));
+    }
+
+    @Override
+    public byte[] synthesize(String text, String voiceName) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("文本不能为空");
+        }
+        List<String> segments = TtsPhraseSegmenter.split(text);
+        if (segments.isEmpty()) {
+            return delegate.synthesize(text, voiceName);
+        }
+
+        Map<String, String> keyToSegment = new LinkedHashMap<>();
+        List<String> keys = new ArrayList<>(segments.size());
+        for (String segment : segments) {
+            String key = TtsAudioCache.key(delegate.getProviderName(), voiceName, segment);
+            keys.add(key);
+            keyToSegment.putIfAbsent(key, segment);
+        }
+
+        Map<String, byte[]> audioByKey = new ConcurrentHashMap<>();
+        Map<String, CompletableFuture<byte[]>> pending = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : keyToSegment.entrySet()) {
+            byte[] cached = cache.get(e.getKey());
+            if (cached != null) {
+                audioByKey.put(e.getKey(), cached);
+            } else {
+                pending.put(e.getKey(), synthesizeMiss(e.getKey(), e.getValue(), voiceName));
+            }
+        }
+        try {
+            for (Map.Entry<String, CompletableFuture<byte[]>> e : pending.entrySet()) {
+                audioByKey.put(e.getKey(), e.getValue().join());
+            }
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof RuntimeException re ? re : new RuntimeException(cause.getMessage(), cause);
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("[TTS-Cache] segments={}, unique={}, synthesized={}",
+                    segments.size(), keyToSegment.size(), pending.size());
+        }
+        return stitch(keys, audioByKey);
+    }
+
+    /** 合成一个未命中片段；同一键已有进行中的合成时复用其结果 */
+    private CompletableFuture<byte[]> synthesizeMiss(String key, String segment, String voiceName) {
+        CompletableFuture<byte[]> created = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        SYNTH_EXECUTOR.execute(() -> {
+            try {
+                permits.acquire();
+                try {
+                    byte[] audio = delegate.synthesize(segment, voiceName);
+                    if (audio == null || audio.length == 0) {
+                        throw new RuntimeException("片段合成结果为空");
+                    }
+                    cache.put(key, audio);
+                    created.complete(audio);
+                } finally {
+                    permits.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                created.completeExceptionally(e);
+            } catch (Throwable t) {
+                created.completeExceptionally(t);
+            } finally {
+                inFlight.remove(key, created);
+            }
+        });
+        return created;
+    }
+
+    private static byte[] stitch(List<String> keys, Map<String, byte[]> audioByKey) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] audio = audioByKey.get(keys.get(i));
+            int offset = i == 0 ? 0 : id3v2Length(audio);
+            out.write(audio, offset, audio.length - offset);
+        }
+        return out.toByteArray();
+    }
+
+    /** 非首段去掉 ID3v2 标签头，避免播放器把中间的标签当作新文件 */
+    static int id3v2Length(byte[] audio) {
+        if (audio.length < 10 || audio[0] != 'I' || audio[1] != 'D' || audio[2] != '3') {
+            return 0;
+        }
+        int size = ((audio[6] & 0x7F) << 21) | ((audio[7] & 0x7F) << 14) | ((audio[8] & 0x7F) << 7) | (audio[9] & 0x7F);
+        boolean footer = (audio[5] & 0x10) != 0;
+        int total = 10 + size + (footer ? 10 : 0);
+        return total <= audio.length ? total : 0;
+    }
+
+    @Override
+    public String getDefaultVoice() {
+        return delegate.getDefaultVoice();
+    }
+
+    @Override
+    public String getProviderName() {
+        return delegate.getProviderName();
+    }
+}
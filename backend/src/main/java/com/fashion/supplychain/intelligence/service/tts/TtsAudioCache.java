@@ -0,0 +1,193 @@
+package com.fashion.supplychain.intelligence.service.tts;
+
+import com.fashion.supplychain.common.CosService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * TTS 片段音频的内容寻址缓存：键 = SHA-256(提供方 | 音色 | 归一化片段文本)。
+ *
+ * <p>三层：进程内 Caffeine（按字节计重）→ 本地磁盘 → COS（已启用 COS 且 tts.cache.cos=true 时）。
+ * 下层命中回填上层。键只由内容决定，跨租户、跨节点共享同一份音频。
+ * 磁盘文件命中时刷新修改时间，每天清理超过 disk-ttl-days 未被使用的片段。
+ */
+@Component
+@Slf4j
+public class TtsAudioCache {
+
+    private static final String COS_PREFIX = "tts-cache/";
+
+    private final boolean enabled;
+    private final Path dir;
+    private final boolean cosEnabled;
+    private final long diskTtlDays;
+    private final Cache<String, byte[]> memory;
+
+    @Autowired(required = false)
+    private CosService cosService;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong cosHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TtsAudioCache(@Value("${tts.cache.enabled:true}") boolean enabled,
+                         @Value("${tts.cache.dir:./uploads/tts-cache/}") String dir,
+                         @Value("${tts.cache.memory-max-mb:64}") long memoryMaxMb,
+                         @Value("${tts.cache.cos:false}") boolean cosEnabled,
+                         @Value("${tts.cache.disk-ttl-days:30}") long diskTtlDays) {
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+        this.cosEnabled = cosEnabled;
+        this.diskTtlDays = diskTtlDays;
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(Math.max(1, memoryMaxMb) * 1024 * 1024)
+                .weigher((String k, byte[] v) -> v.length)
+                .expireAfterAccess(Duration.ofHours(12))
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static String key(String provider, String voice, String segment) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((provider + "|" + voice + "|" + TtsPhraseSegmenter.normalize(segment))
+                    .getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /** 查找片段音频，未命中返回 null */
+    public byte[] get(String key) {
+        byte[] audio = memory.getIfPresent(key);
+        if (audio != null) {
+            memoryHits.incrementAndGet();
+            return audio;
+        }
+        Path file = fileOf(key);
+        try {
+            if (Files.isRegularFile(file)) {
+                audio = Files.readAllBytes(file);
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                memory.put(key, audio);
+                diskHits.incrementAndGet();
+                return audio;
+            }
+        } catch (IOException e) {
+            log.debug("[TTS-Cache] 读取磁盘缓存失败: key={}, error={}", key, e.getMessage());
+        }
+        audio = getFromCos(key);
+        if (audio != null) {
+            memory.put(key, audio);
+            writeFile(key, audio);
+            cosHits.incrementAndGet();
+            return audio;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, byte[] audio) {
+        if (audio == null || audio.length == 0) {
+            return;
+        }
+        memory.put(key, audio);
+        writeFile(key, audio);
+        if (useCos()) {
+            try {
+                cosService.putSharedObject(COS_PREFIX + key + ".mp3", audio, "audio/mpeg");
+            } catch (Exception e) {
+                log.debug("[TTS-Cache] 写入 COS 失败: key={}, error={}", key, e.getMessage());
+            }
+        }
+    }
+
+    private byte[] getFromCos(String key) {
+        if (!useCos()) {
+            return null;
+        }
+        try {
+            return cosService.getSharedObject(COS_PREFIX + key + ".mp3");
+        } catch (Exception e) {
+            log.debug("[TTS-Cache] 读取 COS 失败: key={}, error={}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean useCos() {
+        return cosEnabled && cosService != null && cosService.isEnabled();
+    }
+
+    private void writeFile(String key, byte[] audio) {
+        Path file = fileOf(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.write(tmp, audio);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.debug("[TTS-Cache] 写入磁盘缓存失败: key={}, error={}", key, e.getMessage());
+        }
+    }
+
+    /** 两级目录分散文件：{dir}/ab/abcdef….mp3 */
+    private Path fileOf(String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key + ".mp3");
+    }
+
+    /** 每天凌晨清理长期未使用的磁盘片段 */
+    @Scheduled(cron = "0 40 3 * * ?")
+    public void purgeStale() {
+        if (!enabled || !Files.isDirectory(dir)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(diskTtlDays);
+        AtomicLong removed = new AtomicLong();
+        try (Stream<Path> files = Files.walk(dir, 2)) {
+            files.filter(Files::isRegularFile).forEach(f -> {
+                try {
+                    if (Files.getLastModifiedTime(f).toMillis() < cutoff) {
+                        Files.deleteIfExists(f);
+                        removed.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    log.debug("[TTS-Cache] 清理失败: {}", f);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("[TTS-Cache] 清理磁盘缓存失败: {}", e.getMessage());
+        }
+        if (removed.get() > 0) {
+            log.info("[TTS-Cache] 清理过期片段 {} 个", removed.get());
+        }
+    }
+
+    public String stats() {
+        return String.format("memoryHits=%d, diskHits=%d, cosHits=%d, misses=%d",
+                memoryHits.get(), diskHits.get(), cosHits.get(), misses.get());
+    }
+}
@@ -0,0 +1,113 @@
+package com.fashion.supplychain.intelligence.service.tts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把播报文本切成稳定的短语片段，作为 TTS 音频缓存的粒度。
+ *
+ * <p>按句末与分句标点切分（标点留在片段末尾，保留停顿语气），过短的片段并入下一段，
+ * 过长的片段按空白或定长再切。日报、预警播报这类模板句每天只有数字、名称所在的分句不同，
+ * 其余分句的切分结果与归一化文本逐日不变，可直接命中缓存。
+ */
+public final class TtsPhraseSegmenter {
+
+    /** 短于此长度的片段并入下一段（单独合成时语调生硬，也没有复用价值） */
+    static final int MIN_SEGMENT_CHARS = 4;
+    static final int MAX_SEGMENT_CHARS = 120;
+
+    private TtsPhraseSegmenter() {}
+
+    public static List<String> split(String text) {
+        List<String> segments = new ArrayList<>();
+        if (text == null) return segments;
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) return segments;
+
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            current.append(c);
+            if (isBoundary(normalized, i) && !(i + 1 < normalized.length() && isBoundary(normalized, i + 1))) {
+                if (current.toString().trim().length() >= MIN_SEGMENT_CHARS) {
+                    addSegment(segments, current.toString());
+                    current.setLength(0);
+                }
+            }
+        }
+        if (!current.toString().isBlank()) {
+            if (current.toString().trim().length() < MIN_SEGMENT_CHARS && !segments.isEmpty()) {
+                String last = segments.remove(segments.size() - 1);
+                addSegment(segments, last + current);
+            } else {
+                addSegment(segments, current.toString());
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * 缓存键使用的归一化：全角数字、字母转半角，连续空白（含全角空格）合并为一个空格或换行。
+     * 中文标点保持原样——它决定停顿，换成半角会改变合成效果。
+     */
+    public static String normalize(String text) {
+        if (text == null) return "";
+        StringBuilder sb = new StringBuilder(text.length());
+        char pendingSpace = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c >= '０' && c <= '９') || (c >= 'Ａ' && c <= 'Ｚ') || (c >= 'ａ' && c <= 'ｚ')) {
+                c = (char) (c - 0xFEE0);
+            }
+            if (Character.isWhitespace(c) || c == '\u3000') {
+                // 换行保留（作为分段边界），其余空白合并为空格
+                if (c == '\n' || pendingSpace == 0) {
+                    pendingSpace = c == '\n' ? '\n' : ' ';
+                }
+                continue;
+            }
+            if (pendingSpace != 0 && sb.length() > 0) {
+                sb.append(pendingSpace);
+            }
+            pendingSpace = 0;
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static void addSegment(List<String> segments, String segment) {
+        String s = segment.trim();
+        while (s.length() > MAX_SEGMENT_CHARS) {
+            int cut = s.lastIndexOf(' ', MAX_SEGMENT_CHARS);
+            if (cut < MIN_SEGMENT_CHARS) cut = MAX_SEGMENT_CHARS;
+            segments.add(s.substring(0, cut).trim());
+            s = s.substring(cut).trim();
+        }
+        if (!s.isEmpty()) {
+            segments.add(s);
+        }
+    }
+
+    /**
+     * 第 i 个字符是否为分段边界。半角逗号、冒号两侧都是数字时属于数字本身
+     * （千分位 "12,345件"、时刻 "10:30"、全角 "10：30"），不切分；小数点从不作为边界。
+     */
+    static boolean isBoundary(String text, int i) {
+        char c = text.charAt(i);
+        if ((c == ',' || c == ':' || c == '：') && i > 0 && i + 1 < text.length()
+                && isDigit(text.charAt(i - 1)) && isDigit(text.charAt(i + 1))) {
+            return false;
+        }
+        switch (c) {
+            case '。': case '！': case '？': case '；': case '，': case '、': case '：':
+            case '!': case '?': case ';': case ',': case ':': case '\n':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
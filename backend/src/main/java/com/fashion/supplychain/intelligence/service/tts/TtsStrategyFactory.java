@@ -7,6 +7,7 @@ import org.springframework.context.annotation.Lazy;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -17,22 +18,35 @@ public class TtsStrategyFactory {
 
     private final Map<String, TtsStrategy> strategyMap;
     private final String activeProvider;
+    private final TtsAudioCache audioCache;
+    private final int cacheConcurrency;
+    private final Map<String, TtsStrategy> cachedStrategies = new ConcurrentHashMap<>();
 
     public TtsStrategyFactory(List<TtsStrategy> strategies,
-                              @Value("${tts.provider:edge}") String activeProvider) {
+                              @Value("${tts.provider:edge}") String activeProvider,
+                              TtsAudioCache audioCache,
+                              @Value("${tts.cache.concurrency:4}") int cacheConcurrency) {
         this.strategyMap = strategies.stream()
                 .collect(Collectors.toMap(TtsStrategy::getProviderName, Function.identity()));
         this.activeProvider = activeProvider;
-        log.info("[TTS] 已注册策略: {}, 当前使用: {}", strategyMap.keySet(), activeProvider);
+        this.audioCache = audioCache;
+        this.cacheConcurrency = cacheConcurrency;
+        log.info("[TTS] 已注册策略: {}, 当前使用: {}, 分段缓存: {}",
+                strategyMap.keySet(), activeProvider, audioCache.isEnabled());
     }
 
+    /** 当前提供方；启用分段缓存时返回包在外层的 {@link SegmentedTtsStrategy} */
     public TtsStrategy getActive() {
         TtsStrategy strategy = strategyMap.get(activeProvider);
         if (strategy == null) {
             throw new RuntimeException("未找到TTS策略: " + activeProvider
                     + ", 可用: " + strategyMap.keySet());
         }
-        return strategy;
+        if (!audioCache.isEnabled()) {
+            return strategy;
+        }
+        return cachedStrategies.computeIfAbsent(activeProvider,
+                p -> new SegmentedTtsStrategy(strategy, audioCache, cacheConcurrency));
     }
 
     public String getActiveProviderName() {
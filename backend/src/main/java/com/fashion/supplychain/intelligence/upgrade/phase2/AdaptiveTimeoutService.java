@@ -66,7 +66,7 @@ public class AdaptiveTimeoutService {
                 }
                 StringBuilder sb = new StringBuilder(trimmed);
                 for (int i = 0; i < depth; i++) sb.append("}");
-                com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+                com.fasterxml.jackson.databind.ObjectMapper mapper = com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER;
                 mapper.readTree(sb.toString());
                 result.recovered = true;
                 result.content = sb.toString();
@@ -1,5 +1,6 @@
 package com.fashion.supplychain.intelligence.upgrade.phase2;
 
+import com.fashion.supplychain.intelligence.agent.AgentJson;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -15,7 +16,7 @@ import java.util.Set;
 @Lazy
 public class StructuredOutputService {
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper MAPPER = AgentJson.MAPPER;
     private static final Set<String> JSON_MODE_SCENES = Set.of(
             "nl-intent", "agent-loop", "critic_review", "daily-brief"
     );
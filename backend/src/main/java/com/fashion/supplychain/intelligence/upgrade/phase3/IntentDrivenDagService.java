@@ -117,13 +117,13 @@ public class IntentDrivenDagService {
                 trimmed = trimmed.substring(3);
                 if (trimmed.endsWith("```")) trimmed = trimmed.substring(0, trimmed.length() - 3);
             }
-            return new com.fasterxml.jackson.databind.ObjectMapper().readTree(trimmed.trim());
+            return com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER.readTree(trimmed.trim());
         } catch (Exception e) {
             int start = content.indexOf('{');
             int end = content.lastIndexOf('}');
             if (start >= 0 && end > start) {
                 try {
-                    return new com.fasterxml.jackson.databind.ObjectMapper().readTree(content.substring(start, end + 1));
+                    return com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER.readTree(content.substring(start, end + 1));
                 } catch (Exception ex) {
                     log.warn("[IntentDag] 容错解析JSON失败: {}", ex.getMessage());
                 }
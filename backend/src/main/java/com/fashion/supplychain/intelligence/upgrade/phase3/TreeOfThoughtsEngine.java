@@ -152,7 +152,7 @@ public class TreeOfThoughtsEngine {
                 trimmed = trimmed.substring(trimmed.indexOf('\n') + 1);
                 if (trimmed.endsWith("```")) trimmed = trimmed.substring(0, trimmed.length() - 3);
             }
-            com.fasterxml.jackson.databind.JsonNode arr = new com.fasterxml.jackson.databind.ObjectMapper()
+            com.fasterxml.jackson.databind.JsonNode arr = com.fashion.supplychain.intelligence.agent.AgentJson.MAPPER
                     .readTree(trimmed);
             if (arr.isArray()) {
                 for (int i = 0; i < Math.min(arr.size(), count); i++) {
@@ -0,0 +1,72 @@
+package com.fashion.supplychain.intelligence.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 轻量中文分词（无词典）：
+ * <ul>
+ *   <li>连续汉字切成相邻二元组（"面料采购" → 面料/料采/采购），单个汉字保留原字；</li>
+ *   <li>连续英文/数字作为一个词并转小写（"FOB"、"PO20260101" 各为一个词）；</li>
+ *   <li>其余字符（标点、空白等）作为分隔符。</li>
+ * </ul>
+ * 二元组无需词典即可覆盖中文检索的绝大多数短语匹配。
+ *
+ * <p>建索引用 {@link #tokenizeForIndex}：在二元组之外再收录每个汉字的单字，
+ * 单字查询（"棉"）才能命中长词中的同一个字（"纯棉面料"）；
+ * 查询与精排仍用 {@link #tokenize}，多字短语只按二元组匹配，不被高频单字稀释。
+ */
+public final class ChineseTokenizer {
+
+    private ChineseTokenizer() {}
+
+    public static List<String> tokenize(String text) {
+        return tokenize(text, false);
+    }
+
+    /** 索引切分：二元组 + 全部单字 */
+    public static List<String> tokenizeForIndex(String text) {
+        return tokenize(text, true);
+    }
+
+    private static List<String> tokenize(String text, boolean unigrams) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) return tokens;
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (isHan(c)) {
+                int start = i;
+                while (i < n && isHan(text.charAt(i))) i++;
+                if (i - start == 1) {
+                    tokens.add(String.valueOf(c));
+                } else {
+                    for (int k = start; k + 1 < i; k++) {
+                        tokens.add(text.substring(k, k + 2));
+                    }
+                    if (unigrams) {
+                        for (int k = start; k < i; k++) {
+                            tokens.add(String.valueOf(text.charAt(k)));
+                        }
+                    }
+                }
+            } else if (isAsciiAlnum(c)) {
+                int start = i;
+                while (i < n && isAsciiAlnum(text.charAt(i))) i++;
+                tokens.add(text.substring(start, i).toLowerCase());
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isHan(char c) {
+        return c >= '\u4e00' && c <= '\u9fff';
+    }
+
+    private static boolean isAsciiAlnum(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+}
@@ -0,0 +1,111 @@
+package com.fashion.supplychain.intelligence.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 本地特征精排：不依赖外部 API，对初检候选按线性特征打分重排。
+ *
+ * <p>特征（均归一化到 0-1）：
+ * <ol>
+ *   <li>词法分 — BM25 分数 / 候选中最高分</li>
+ *   <li>语义分 — 向量相似度（无向量召回时为 0）</li>
+ *   <li>标题覆盖 — 查询词在标题中出现的比例</li>
+ *   <li>关键词命中 — 任一关键词与查询互相包含</li>
+ *   <li>整句命中 — 标题或正文包含完整查询</li>
+ *   <li>热度 — log(1+浏览次数) / 候选中最高值</li>
+ * </ol>
+ * 权重按"词法与语义为主，结构特征为辅"取值，无训练数据时也能给出稳定排序。
+ */
+public final class LocalReranker {
+
+    private static final double W_LEXICAL = 0.35;
+    private static final double W_SEMANTIC = 0.25;
+    private static final double W_TITLE = 0.15;
+    private static final double W_KEYWORD = 0.10;
+    private static final double W_EXACT = 0.10;
+    private static final double W_POPULARITY = 0.05;
+
+    private LocalReranker() {}
+
+    /** 精排候选 */
+    public static class Candidate<T> {
+        private final T item;
+        private final String title;
+        private final String keywords;
+        private final String content;
+        private final double lexicalScore;
+        private final double semanticScore;
+        private final int viewCount;
+        private double score;
+
+        public Candidate(T item, String title, String keywords, String content,
+                         double lexicalScore, double semanticScore, Integer viewCount) {
+            this.item = item;
+            this.title = title != null ? title : "";
+            this.keywords = keywords != null ? keywords : "";
+            this.content = content != null ? content : "";
+            this.lexicalScore = lexicalScore;
+            this.semanticScore = semanticScore;
+            this.viewCount = viewCount != null ? viewCount : 0;
+        }
+
+        public T getItem() { return item; }
+        public double getScore() { return score; }
+    }
+
+    /**
+     * @param query      用户查询
+     * @param candidates 初检候选（顺序即初检顺序，同分时保持）
+     * @param topN       返回条数
+     */
+    public static <T> List<Candidate<T>> rerank(String query, List<Candidate<T>> candidates, int topN) {
+        if (candidates == null || candidates.isEmpty()) return List.of();
+        String q = query != null ? query.trim() : "";
+        Set<String> queryTokens = new HashSet<>(ChineseTokenizer.tokenize(q));
+        double maxLexical = 0;
+        double maxPopularity = 0;
+        for (Candidate<T> c : candidates) {
+            maxLexical = Math.max(maxLexical, c.lexicalScore);
+            maxPopularity = Math.max(maxPopularity, Math.log1p(c.viewCount));
+        }
+        for (Candidate<T> c : candidates) {
+            double lexical = maxLexical > 0 ? c.lexicalScore / maxLexical : 0;
+            double semantic = Math.max(0, Math.min(1, c.semanticScore));
+            double title = coverage(queryTokens, c.title);
+            double keyword = keywordHit(q, c.keywords) ? 1 : 0;
+            double exact = q.length() >= 2 && (c.title.contains(q) || c.content.contains(q)) ? 1 : 0;
+            double popularity = maxPopularity > 0 ? Math.log1p(c.viewCount) / maxPopularity : 0;
+            c.score = W_LEXICAL * lexical + W_SEMANTIC * semantic + W_TITLE * title
+                    + W_KEYWORD * keyword + W_EXACT * exact + W_POPULARITY * popularity;
+        }
+        List<Candidate<T>> sorted = new ArrayList<>(candidates);
+        sorted.sort(Comparator.comparingDouble((Candidate<T> c) -> c.score).reversed());
+        return sorted.size() > topN ? sorted.subList(0, topN) : sorted;
+    }
+
+    private static double coverage(Set<String> queryTokens, String text) {
+        if (queryTokens.isEmpty() || text.isEmpty()) return 0;
+        Set<String> textTokens = new HashSet<>(ChineseTokenizer.tokenize(text));
+        int hit = 0;
+        for (String t : queryTokens) {
+            if (textTokens.contains(t)) hit++;
+        }
+        return (double) hit / queryTokens.size();
+    }
+
+    private static boolean keywordHit(String query, String keywords) {
+        if (query.isEmpty() || keywords.isEmpty()) return false;
+        String lowerQuery = query.toLowerCase();
+        for (String kw : keywords.split("[,，、\\s]+")) {
+            String k = kw.trim().toLowerCase();
+            if (k.length() >= 2 && (lowerQuery.contains(k) || k.contains(lowerQuery))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
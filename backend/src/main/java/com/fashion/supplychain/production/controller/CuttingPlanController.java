@@ -0,0 +1,42 @@
+package com.fashion.supplychain.production.controller;
+
+import com.fashion.supplychain.common.Result;
+import com.fashion.supplychain.production.orchestration.CuttingPlanOrchestrator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * 裁剪排床 Controller
+ *
+ * 提供：
+ *  1. 计算排床方案（唛架配比、层数、料卷/缸号分配）
+ *  2. 按方案逐床生成菲号
+ */
+@RestController
+@RequestMapping("/api/production/cutting-plan")
+@PreAuthorize("isAuthenticated()")
+public class CuttingPlanController {
+
+    @Autowired
+    private CuttingPlanOrchestrator cuttingPlanOrchestrator;
+
+    /**
+     * Body: { "orderId": "xxx", "materialCode": "可选", "maxPliesPerLay": 80, "maxPiecesPerMarker": 6,
+     *         "overcutRate": 0.03, "endAllowance": 0.04 }
+     */
+    @PostMapping("/preview")
+    public Result<?> preview(@RequestBody Map<String, Object> body) {
+        return Result.success(cuttingPlanOrchestrator.preview(body));
+    }
+
+    /**
+     * Body: preview 参数 + { "bundleSize": 20, "allowShortage": false }
+     */
+    @PostMapping("/apply")
+    public Result<?> apply(@RequestBody Map<String, Object> body) {
+        return Result.success(cuttingPlanOrchestrator.apply(body));
+    }
+}
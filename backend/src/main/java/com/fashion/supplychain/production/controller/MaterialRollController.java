@@ -31,7 +31,7 @@ public class MaterialRollController {
     /**
      * 为入库单批量生成料卷 QR 标签
      *
-     * Body: { "inboundId": "xxx", "rollCount": 5, "quantityPerRoll": 30.5, "unit": "米" }
+     * Body: { "inboundId": "xxx", "rollCount": 5, "quantityPerRoll": 30.5, "unit": "米", "dyeLot": "可选缸号" }
      */
     @PostMapping("/generate")
     public Result<?> generateRolls(@RequestBody Map<String, Object> params) {
@@ -40,9 +40,10 @@ public class MaterialRollController {
             int rollCount = ((Number) params.getOrDefault("rollCount", 1)).intValue();
             double quantityPerRoll = ((Number) params.getOrDefault("quantityPerRoll", 1.0)).doubleValue();
             String unit = (String) params.getOrDefault("unit", "件");
+            String dyeLot = params.get("dyeLot") != null ? String.valueOf(params.get("dyeLot")) : null;
 
             List<Map<String, Object>> rolls = materialRollOrchestrator.generateRolls(
-                    inboundId, rollCount, quantityPerRoll, unit);
+                    inboundId, rollCount, quantityPerRoll, unit, dyeLot);
             return Result.success(rolls);
         } catch (Exception e) {
             log.error("生成料卷标签失败", e);
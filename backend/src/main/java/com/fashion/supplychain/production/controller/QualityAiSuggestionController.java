@@ -13,6 +13,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -24,6 +26,8 @@ import java.util.Map;
 @Slf4j
 public class QualityAiSuggestionController {
 
+    private static final int MAX_BATCH_IMAGES = 20;
+
     @Autowired
     private QualityAiSuggestionOrchestrator qualityAiSuggestionOrchestrator;
 
@@ -85,4 +89,45 @@ public class QualityAiSuggestionController {
             return Result.fail("图片分析失败，请稍后重试");
         }
     }
+
+    /**
+     * 质检图片批量AI缺陷检测
+     * POST /api/quality/ai-defect-detect/batch
+     *
+     * 一次质检上传多张图片时使用，结果按 imageUrls 顺序返回；
+     * 重复/近似图片复用已有分析结果，其余图片合并为多图请求
+     *
+     * 请求体：{"imageUrls": ["xxx", "yyy"], "contextHint": "可选上下文"}
+     */
+    @PostMapping("/ai-defect-detect/batch")
+    public Result<List<VisualAIResponse>> detectDefectsBatch(@RequestBody Map<String, Object> params) {
+        try {
+            Object raw = params != null ? params.get("imageUrls") : null;
+            List<String> imageUrls = new ArrayList<>();
+            if (raw instanceof List<?> list) {
+                for (Object item : list) {
+                    String url = TextUtils.safeText(item);
+                    if (!TextUtils.isEmpty(url)) {
+                        imageUrls.add(url);
+                    }
+                }
+            }
+            if (imageUrls.isEmpty()) {
+                return Result.fail("图片URL不能为空");
+            }
+            if (imageUrls.size() > MAX_BATCH_IMAGES) {
+                return Result.fail("单次最多分析" + MAX_BATCH_IMAGES + "张图片");
+            }
+
+            if (!visionAnalysisService.isAvailable()) {
+                return Result.fail("视觉AI未配置，暂无法使用图片分析功能");
+            }
+
+            String contextHint = TextUtils.safeText(params.get("contextHint"));
+            return Result.success(visualAIOrchestrator.analyzeDefectBatch(imageUrls, contextHint));
+        } catch (Exception e) {
+            log.error("[QualityAI] 批量图片缺陷检测失败", e);
+            return Result.fail("图片分析失败，请稍后重试");
+        }
+    }
 }
@@ -15,8 +15,9 @@ import java.time.LocalDateTime;
  * 二维码内容 = roll_code（格式：MR + YYYYMMDD + 5位流水号）
  *
  * 状态流转：
- *   IN_STOCK → ISSUED  (仓管扫码确认发料)
- *   ISSUED   → IN_STOCK (退回入库，可选)
+ *   IN_STOCK  → ALLOCATED (排床生成菲号时占用，issued_order_id/no 记录生产订单)
+ *   IN_STOCK / ALLOCATED → ISSUED (仓管扫码确认发料)
+ *   ISSUED / ALLOCATED   → IN_STOCK (退回入库 / 释放排床占用)
  */
 @Data
 @TableName("t_material_roll")
@@ -48,6 +49,9 @@ public class MaterialRoll implements Serializable {
     /** 颜色 */
     private String color;
 
+    /** 缸号（色批），为空时排床按入库单号视为同缸 */
+    private String dyeLot;
+
     /** 规格 */
     private String specifications;
 
@@ -62,8 +66,9 @@ public class MaterialRoll implements Serializable {
 
     /**
      * 状态：
-     *   IN_STOCK - 在库
-     *   ISSUED   - 已发料（已扫码出库）
+     *   IN_STOCK  - 在库
+     *   ALLOCATED - 已排床（仍在仓库，已分配给某订单的裁床，不再参与其他排床）
+     *   ISSUED    - 已发料（已扫码出库）
      *   RETURNED - 已退回
      */
     private String status;
@@ -0,0 +1,59 @@
+package com.fashion.supplychain.production.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import java.time.LocalDateTime;
+import lombok.Data;
+
+/**
+ * 物料库存预留台账
+ * <p>一行 = 某次领料分配在某条库存记录上预留的数量。有效预留（RESERVED）的合计
+ * 同步体现在 t_material_stock.locked_quantity 上。
+ */
+@Data
+@TableName("t_material_stock_reservation")
+public class MaterialStockReservation {
+
+    public static final String STATUS_PLANNED = "PLANNED";
+    public static final String STATUS_RESERVED = "RESERVED";
+    public static final String STATUS_CONSUMED = "CONSUMED";
+    public static final String STATUS_RELEASED = "RELEASED";
+    public static final String STATUS_EXPIRED = "EXPIRED";
+    public static final String STATUS_RETURNED = "RETURNED";
+
+    @TableId(type = IdType.ASSIGN_UUID)
+    private String id;
+
+    private Long tenantId;
+
+    /** 一次预留调用的批次号（领料单保存前用它关联分配结果） */
+    private String batchId;
+
+    private String stockId;
+
+    private String materialCode;
+
+    private String purchaseId;
+
+    private String pickingId;
+
+    private Integer quantity;
+
+    private String status;
+
+    /** 分配策略：FIFO / BY_LOCATION */
+    private String strategy;
+
+    /** 分配顺序（同一批次内） */
+    private Integer seq;
+
+    /** 最近一次状态翻转的操作令牌，集合式回写库存时按它汇总 */
+    private String opToken;
+
+    private LocalDateTime expireTime;
+
+    private LocalDateTime createTime;
+
+    private LocalDateTime updateTime;
+}
@@ -139,6 +139,32 @@ public class OrderProgressWebSocketServer {
         }
     }
 
+    /**
+     * 向租户下所有连接推送任意带 type 字段的消息（如菜单红点 {"type":"menu-badge"}）
+     */
+    public void broadcastMessage(Long tenantId, Object message) {
+        CopyOnWriteArraySet<Session> sessions = tenantSessions.get(tenantId);
+        if (sessions == null || sessions.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = SpringContextHolder.getBean(ObjectMapper.class).writeValueAsString(message);
+        } catch (Exception e) {
+            log.error("[WS] 构建消息失败: tenantId={}", tenantId, e);
+            return;
+        }
+        for (Session session : sessions) {
+            if (session.isOpen()) {
+                try {
+                    session.getBasicRemote().sendText(json);
+                } catch (IOException e) {
+                    log.warn("[WS] 发送失败: sessionId={}, error={}", session.getId(), e.getMessage());
+                }
+            }
+        }
+    }
+
     public void broadcastOrderProgressFromOrder(ProductionOrder order) {
         if (order == null || order.getTenantId() == null || !org.springframework.util.StringUtils.hasText(order.getId())) {
             log.warn("[WS] 订单信息不完整，跳过推送: order={}", order);
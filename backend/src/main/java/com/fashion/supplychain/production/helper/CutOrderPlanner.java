@@ -0,0 +1,554 @@
+package com.fashion.supplychain.production.helper;
+
+import com.fashion.supplychain.production.util.ProductionOrderUtils;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 裁剪排床与料卷分配规划（纯计算，无数据库访问）
+ *
+ * <p>第一步按颜色排床：每床 = 一个唛架配比（各码件数）× 层数。每轮在候选层数上按剩余需求取整得到配比，
+ * 选覆盖剩余件数最多的一床；已做过的唛架（跨颜色通用）覆盖量不低于最优的 {@code markerReuseRatio} 时优先复用，
+ * 以减少换唛架次数。每个尺码允许按 {@code overcutRate} 少量超裁。
+ *
+ * <p>第二步按唛架长度从长到短给各床分配料卷：优先选能单缸铺满的缸号，缸内优先整层切完余料最少的料卷，
+ * 最后不足一卷的层数用“刚好够”的料卷补齐；料卷剩余长度留给后面更短的唛架。单缸铺不满时同唛架按缸号拆床，
+ * 一床只铺一个缸号。短于全部唛架长度的卷尾计为卷尾损耗。
+ *
+ * <p>面料按卷管理（{@link PlanInput#rollsManaged}）时，只有分到料卷的床计入已裁数量：
+ * 某颜色没有匹配的料卷、或料卷不够而少铺的层数，都体现为该颜色的缺口。
+ * 面料从未登记过料卷时只给出排床，不做料卷分配。
+ */
+@Component
+public class CutOrderPlanner {
+
+    private static final double EPS = 1e-6;
+    private static final int MAX_LAYS_PER_COLOR = 500;
+
+    /** 可互相换算的长度单位 → 米 */
+    private static final Map<String, Double> LENGTH_UNITS = Map.of(
+            "米", 1.0, "m", 1.0, "厘米", 0.01, "公分", 0.01, "cm", 0.01,
+            "码", 0.9144, "yd", 0.9144, "yard", 0.9144);
+
+    /**
+     * 规划参数
+     *
+     * @param maxPliesPerLay     单床最大层数（铺布高度 / 电剪能力）
+     * @param maxPiecesPerMarker 单个唛架最多件数（裁床长度）
+     * @param overcutRate        每个尺码允许超裁比例
+     * @param endAllowance       每层两端预留长度（与耗用同单位）
+     * @param markerReuseRatio   复用已有唛架的最低覆盖比例（相对新唛架最优覆盖量）
+     */
+    public record PlanOptions(int maxPliesPerLay, int maxPiecesPerMarker, double overcutRate,
+                              double endAllowance, double markerReuseRatio) {
+        public static PlanOptions defaults() {
+            return new PlanOptions(80, 6, 0.03, 0.04, 0.9);
+        }
+    }
+
+    /** 料卷（长度与单件耗用同单位） */
+    public record RollInput(String rollId, String rollCode, String shadeLot, double length) {}
+
+    /** 一个颜色的尺码需求与可用料卷 */
+    public record ColorDemand(String color, Map<String, Integer> sizeQty, List<String> rollIds) {}
+
+    /**
+     * @param consumption        各尺码单件耗用（含损耗）
+     * @param defaultConsumption 未单独配置尺码的单件耗用
+     * @param rollsManaged       面料是否按卷管理（登记过料卷，即使当前没有在库的卷）
+     */
+    public record PlanInput(List<ColorDemand> demands, List<RollInput> rolls,
+                            Map<String, Double> consumption, double defaultConsumption, boolean rollsManaged) {
+        public PlanInput(List<ColorDemand> demands, List<RollInput> rolls,
+                         Map<String, Double> consumption, double defaultConsumption) {
+            this(demands, rolls, consumption, defaultConsumption, !rolls.isEmpty());
+        }
+    }
+
+    /** 某床在某卷上铺的层数 */
+    public record RollCut(String rollId, String rollCode, String shadeLot, int plies,
+                          BigDecimal usedLength, BigDecimal remainingLength) {}
+
+    /**
+     * 一床
+     *
+     * @param markerNo      唛架编号（相同编号 = 同一唛架，可直接复用）
+     * @param ratio         唛架配比（尺码 → 每层件数）
+     * @param rollsAssigned 是否已分配料卷（面料按卷管理但该颜色没有匹配料卷时为 false，不计入已裁数量）
+     */
+    public record Lay(int layNo, String color, int markerNo, Map<String, Integer> ratio, int plies,
+                      BigDecimal markerLength, String shadeLot, boolean rollsAssigned, List<RollCut> rolls) {
+        public Map<String, Integer> pieces() {
+            Map<String, Integer> pieces = new LinkedHashMap<>();
+            ratio.forEach((size, r) -> pieces.put(size, r * plies));
+            return pieces;
+        }
+    }
+
+    public record ColorSummary(String color, Map<String, Integer> demand, Map<String, Integer> cut,
+                               Map<String, Integer> shortage, Map<String, Integer> overcut) {}
+
+    /**
+     * 规划结果
+     *
+     * @param markerCount   需要制作的唛架数
+     * @param markerChanges 按裁剪顺序换唛架的次数
+     * @param rollEndWaste  卷尾损耗（已动用料卷中短于全部唛架长度的剩余）
+     * @param remnant       已动用料卷中仍可再用的剩余长度
+     */
+    public record Plan(List<Lay> lays, List<ColorSummary> colors, int markerCount, int markerChanges,
+                       BigDecimal fabricUsed, BigDecimal rollEndWaste, BigDecimal remnant,
+                       long elapsedMs, List<String> warnings) {
+        public boolean hasShortage() {
+            return colors.stream().anyMatch(c -> c.shortage().values().stream().anyMatch(q -> q > 0));
+        }
+    }
+
+    // ──────────────────────────────────────────────────────────────
+
+    public Plan plan(PlanInput input, PlanOptions options) {
+        long start = System.currentTimeMillis();
+        PlanOptions o = options != null ? options : PlanOptions.defaults();
+        List<String> warnings = new ArrayList<>();
+        List<Map<String, Integer>> markers = new ArrayList<>();
+        List<Draft> drafts = new ArrayList<>();
+
+        for (ColorDemand demand : input.demands()) {
+            List<String> sizes = new ArrayList<>(demand.sizeQty().keySet());
+            sizes.sort(ProductionOrderUtils::compareSizeAsc);
+            drafts.addAll(planColor(demand.color(), sizes, demand.sizeQty(), o, markers, input, warnings));
+        }
+
+        Map<String, RollState> rollStates = new LinkedHashMap<>();
+        for (RollInput roll : input.rolls()) {
+            if (roll.length() > EPS) {
+                rollStates.put(roll.rollId(), new RollState(roll));
+            }
+        }
+        Map<String, List<String>> rollIdsByColor = new HashMap<>();
+        for (ColorDemand demand : input.demands()) {
+            rollIdsByColor.put(demand.color(), demand.rollIds() != null ? demand.rollIds() : List.of());
+        }
+        List<Part> parts = assignRolls(drafts, rollStates, rollIdsByColor, input.rollsManaged(), warnings);
+
+        // 裁剪顺序：唛架 → 颜色 → 缸号。唛架跨颜色通用，同唛架连续裁只需换布不需换唛架
+        Map<String, Integer> colorOrder = new HashMap<>();
+        for (ColorDemand demand : input.demands()) {
+            colorOrder.putIfAbsent(demand.color(), colorOrder.size());
+        }
+        parts.sort(Comparator.<Part>comparingInt(p -> p.draft.markerNo)
+                .thenComparingInt(p -> colorOrder.get(p.draft.color))
+                .thenComparing(p -> p.shadeLot == null ? "" : p.shadeLot));
+
+        List<Lay> lays = new ArrayList<>();
+        double fabricUsed = 0;
+        Set<Integer> usedMarkers = new TreeSet<>();
+        int markerChanges = 0;
+        Integer prevMarker = null;
+        for (Part part : parts) {
+            Draft d = part.draft;
+            lays.add(new Lay(lays.size() + 1, d.color, d.markerNo, d.ratio, part.plies, scale(d.markerLength),
+                    part.shadeLot, part.rollsAssigned, part.cuts));
+            if (part.rollsAssigned) {
+                fabricUsed += part.plies * d.markerLength;
+            }
+            usedMarkers.add(d.markerNo);
+            if (prevMarker != null && prevMarker != d.markerNo) {
+                markerChanges++;
+            }
+            prevMarker = d.markerNo;
+        }
+
+        double minMarker = drafts.stream().mapToDouble(d -> d.markerLength).min().orElse(0);
+        double endWaste = 0;
+        double remnant = 0;
+        for (RollState state : rollStates.values()) {
+            if (state.touched && state.remaining > EPS) {
+                if (state.remaining + EPS < minMarker) {
+                    endWaste += state.remaining;
+                } else {
+                    remnant += state.remaining;
+                }
+            }
+        }
+
+        List<ColorSummary> summaries = new ArrayList<>();
+        for (ColorDemand demand : input.demands()) {
+            Map<String, Integer> cut = new LinkedHashMap<>();
+            Map<String, Integer> shortage = new LinkedHashMap<>();
+            Map<String, Integer> overcut = new LinkedHashMap<>();
+            demand.sizeQty().keySet().forEach(size -> cut.put(size, 0));
+            for (Lay lay : lays) {
+                if (lay.color().equals(demand.color()) && (lay.rollsAssigned() || !input.rollsManaged())) {
+                    lay.pieces().forEach((size, q) -> cut.merge(size, q, Integer::sum));
+                }
+            }
+            demand.sizeQty().forEach((size, need) -> {
+                int c = cut.getOrDefault(size, 0);
+                shortage.put(size, Math.max(0, need - c));
+                overcut.put(size, Math.max(0, c - need));
+            });
+            summaries.add(new ColorSummary(demand.color(), demand.sizeQty(), cut, shortage, overcut));
+        }
+
+        return new Plan(lays, summaries, usedMarkers.size(), markerChanges, scale(fabricUsed), scale(endWaste),
+                scale(remnant), System.currentTimeMillis() - start, warnings);
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // 排床
+    // ──────────────────────────────────────────────────────────────
+
+    private List<Draft> planColor(String color, List<String> sizes, Map<String, Integer> demand, PlanOptions o,
+                                  List<Map<String, Integer>> markers, PlanInput input, List<String> warnings) {
+        int n = sizes.size();
+        int[] rem = new int[n];
+        int[] allow = new int[n];
+        double[] cons = new double[n];
+        for (int i = 0; i < n; i++) {
+            String size = sizes.get(i);
+            rem[i] = Math.max(0, demand.getOrDefault(size, 0));
+            allow[i] = (int) Math.floor(rem[i] * Math.max(0, o.overcutRate()) + EPS);
+            cons[i] = input.consumption().getOrDefault(size, input.defaultConsumption());
+        }
+
+        List<Draft> drafts = new ArrayList<>();
+        while (sum(rem) > 0) {
+            if (drafts.size() >= MAX_LAYS_PER_COLOR) {
+                warnings.add(color + "：排床数超过上限，剩余需求未排");
+                break;
+            }
+            Candidate best = bestNewMarker(rem, allow, o);
+            Candidate reuse = bestExistingMarker(sizes, rem, allow, o, markers);
+            Candidate pick = best;
+            if (reuse != null && (best == null || reuse.covered >= best.covered * o.markerReuseRatio())) {
+                pick = reuse;
+            }
+            if (pick == null || pick.covered <= 0) {
+                break;
+            }
+            Map<String, Integer> ratio = new LinkedHashMap<>();
+            double length = o.endAllowance();
+            for (int i = 0; i < n; i++) {
+                if (pick.ratio[i] > 0) {
+                    ratio.put(sizes.get(i), pick.ratio[i]);
+                    length += pick.ratio[i] * cons[i];
+                }
+                int produced = pick.ratio[i] * pick.plies;
+                allow[i] -= Math.max(0, produced - rem[i]);
+                rem[i] = Math.max(0, rem[i] - produced);
+            }
+            int markerNo = markers.indexOf(ratio) + 1;
+            if (markerNo == 0) {
+                markers.add(ratio);
+                markerNo = markers.size();
+            }
+            drafts.add(new Draft(color, markerNo, ratio, pick.plies, length));
+        }
+        return drafts;
+    }
+
+    /** 新唛架：在候选层数上按剩余需求取整得到配比，件数超限时去掉覆盖损失最小的件 */
+    private Candidate bestNewMarker(int[] rem, int[] allow, PlanOptions o) {
+        int maxPlies = Math.max(1, o.maxPliesPerLay());
+        int maxPieces = Math.max(1, o.maxPiecesPerMarker());
+        Set<Integer> pliesOptions = new HashSet<>();
+        pliesOptions.add(maxPlies);
+        for (int i = 0; i < rem.length; i++) {
+            if (rem[i] <= 0) continue;
+            for (int k = 1; k <= maxPieces; k++) {
+                pliesOptions.add(clamp((rem[i] + k - 1) / k, maxPlies));
+                pliesOptions.add(clamp(rem[i] / k, maxPlies));
+                pliesOptions.add(clamp((rem[i] + Math.max(0, allow[i])) / k, maxPlies));
+            }
+        }
+        Candidate best = null;
+        for (int plies : pliesOptions) {
+            int[] ratio = new int[rem.length];
+            int pieces = 0;
+            for (int i = 0; i < rem.length; i++) {
+                if (rem[i] > 0) {
+                    ratio[i] = (rem[i] + Math.max(0, allow[i])) / plies;
+                    pieces += ratio[i];
+                }
+            }
+            while (pieces > maxPieces) {
+                int drop = -1;
+                int dropLoss = Integer.MAX_VALUE;
+                for (int i = 0; i < rem.length; i++) {
+                    if (ratio[i] <= 0) continue;
+                    int loss = Math.min(ratio[i] * plies, rem[i]) - Math.min((ratio[i] - 1) * plies, rem[i]);
+                    if (loss < dropLoss) {
+                        dropLoss = loss;
+                        drop = i;
+                    }
+                }
+                ratio[drop]--;
+                pieces--;
+            }
+            Candidate c = evaluate(ratio, plies, rem, allow);
+            if (c != null && (best == null || c.betterThan(best))) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /** 复用已有唛架：层数取各码剩余需求（含超裁余量）能容纳的最大值 */
+    private Candidate bestExistingMarker(List<String> sizes, int[] rem, int[] allow, PlanOptions o,
+                                         List<Map<String, Integer>> markers) {
+        Candidate best = null;
+        for (Map<String, Integer> marker : markers) {
+            if (!sizes.containsAll(marker.keySet())) continue;
+            int[] ratio = new int[rem.length];
+            int plies = Math.max(1, o.maxPliesPerLay());
+            for (int i = 0; i < rem.length; i++) {
+                ratio[i] = marker.getOrDefault(sizes.get(i), 0);
+                if (ratio[i] > 0) {
+                    plies = Math.min(plies, (rem[i] + Math.max(0, allow[i])) / ratio[i]);
+                }
+            }
+            if (plies <= 0) continue;
+            Candidate c = evaluate(ratio, plies, rem, allow);
+            if (c != null && (best == null || c.betterThan(best))) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private Candidate evaluate(int[] ratio, int plies, int[] rem, int[] allow) {
+        int covered = 0;
+        int over = 0;
+        int pieces = 0;
+        for (int i = 0; i < rem.length; i++) {
+            int produced = ratio[i] * plies;
+            int extra = Math.max(0, produced - rem[i]);
+            if (extra > Math.max(0, allow[i])) {
+                return null;
+            }
+            covered += Math.min(produced, rem[i]);
+            over += extra;
+            pieces += ratio[i];
+        }
+        return pieces == 0 ? null : new Candidate(ratio, plies, covered, over, pieces);
+    }
+
+    // ──────────────────────────────────────────────────────────────
+    // 料卷分配
+    // ──────────────────────────────────────────────────────────────
+
+    private List<Part> assignRolls(List<Draft> drafts, Map<String, RollState> rollStates,
+                                   Map<String, List<String>> rollIdsByColor, boolean rollsManaged,
+                                   List<String> warnings) {
+        List<Draft> ordered = new ArrayList<>(drafts);
+        ordered.sort(Comparator.comparingDouble((Draft d) -> d.markerLength).reversed());
+        List<Part> parts = new ArrayList<>();
+        Map<String, Integer> unassigned = new LinkedHashMap<>();
+        for (int idx = 0; idx < ordered.size(); idx++) {
+            Draft draft = ordered.get(idx);
+            List<String> rollIds = rollIdsByColor.getOrDefault(draft.color, List.of());
+            if (rollIds.isEmpty()) {
+                parts.add(new Part(draft, draft.plies, null, false, List.of()));
+                if (rollsManaged) {
+                    unassigned.merge(draft.color, 1, Integer::sum);
+                }
+                continue;
+            }
+            double minFuture = draft.markerLength;
+            for (int j = idx + 1; j < ordered.size(); j++) {
+                minFuture = Math.min(minFuture, ordered.get(j).markerLength);
+            }
+            Map<String, List<RollState>> lots = new LinkedHashMap<>();
+            for (String rollId : rollIds) {
+                RollState state = rollStates.get(rollId);
+                if (state != null && state.remaining + EPS >= draft.markerLength) {
+                    lots.computeIfAbsent(state.roll.shadeLot(), k -> new ArrayList<>()).add(state);
+                }
+            }
+            int needed = draft.plies;
+            while (needed > 0) {
+                Allocation best = null;
+                for (Map.Entry<String, List<RollState>> lot : lots.entrySet()) {
+                    Allocation a = simulate(lot.getKey(), lot.getValue(), draft.markerLength, needed, minFuture);
+                    if (a.plies > 0 && (best == null || a.betterThan(best, needed))) {
+                        best = a;
+                    }
+                }
+                if (best == null) {
+                    break;
+                }
+                List<RollCut> cuts = new ArrayList<>();
+                for (Map.Entry<RollState, Integer> take : best.takes.entrySet()) {
+                    RollState state = take.getKey();
+                    double used = take.getValue() * draft.markerLength;
+                    state.remaining -= used;
+                    state.touched = true;
+                    cuts.add(new RollCut(state.roll.rollId(), state.roll.rollCode(), state.roll.shadeLot(),
+                            take.getValue(), scale(used), scale(state.remaining)));
+                }
+                lots.get(best.shadeLot).removeIf(s -> s.remaining + EPS < draft.markerLength);
+                parts.add(new Part(draft, best.plies, best.shadeLot, true, cuts));
+                needed -= best.plies;
+            }
+            if (needed > 0) {
+                warnings.add(String.format("%s 唛架#%d 面料不足，少铺 %d 层", draft.color, draft.markerNo, needed));
+            }
+        }
+        unassigned.forEach((color, lays) ->
+                warnings.add(String.format("%s 没有匹配的在库料卷，%d 床未分配料卷", color, lays)));
+        return parts;
+    }
+
+    /** 单缸内试分配（不改动料卷状态） */
+    private Allocation simulate(String shadeLot, List<RollState> rolls, double markerLength, int needed,
+                                double minFuture) {
+        List<RollState> usable = new ArrayList<>(rolls);
+        usable.sort(Comparator.comparingDouble((RollState s) -> tail(s.remaining, markerLength))
+                .thenComparing(Comparator.comparingDouble((RollState s) -> s.remaining).reversed()));
+        Map<RollState, Integer> takes = new LinkedHashMap<>();
+        int need = needed;
+        int capacity = 0;
+        for (RollState s : usable) {
+            int cap = capacity(s.remaining, markerLength);
+            capacity += cap;
+            if (need > 0 && cap > 0 && cap <= need) {
+                takes.put(s, cap);
+                need -= cap;
+            }
+        }
+        if (need > 0) {
+            RollState fit = null;
+            double fitLeft = Double.MAX_VALUE;
+            for (RollState s : usable) {
+                if (takes.containsKey(s) || capacity(s.remaining, markerLength) <= need) continue;
+                double left = s.remaining - need * markerLength;
+                if (left < fitLeft) {
+                    fitLeft = left;
+                    fit = s;
+                }
+            }
+            if (fit != null) {
+                takes.put(fit, need);
+                need = 0;
+            }
+        }
+        double deadWaste = 0;
+        for (Map.Entry<RollState, Integer> take : takes.entrySet()) {
+            double left = take.getKey().remaining - take.getValue() * markerLength;
+            if (left > EPS && left + EPS < minFuture) {
+                deadWaste += left;
+            }
+        }
+        return new Allocation(shadeLot, takes, needed - need, deadWaste, capacity);
+    }
+
+    // ──────────────────────────────────────────────────────────────
+
+    /**
+     * 料卷数量换算为单件耗用的单位（{@link RollInput#length} 须与耗用同单位）。
+     * 单位相同直接返回；两者都是长度单位时按米换算；料卷未填单位时视为与耗用同单位。
+     *
+     * @return 换算后的长度；单位不可比（如料卷按“件”“kg”登记而耗用按“米”）时返回 null，调用方不应让该卷参与排床
+     */
+    public static Double lengthInUnit(double quantity, String rollUnit, String targetUnit) {
+        String from = normalizeUnit(rollUnit);
+        String to = normalizeUnit(targetUnit);
+        if (from.isEmpty() || from.equals(to)) {
+            return quantity;
+        }
+        Double fromMeters = LENGTH_UNITS.get(from);
+        Double toMeters = LENGTH_UNITS.get(to);
+        if (fromMeters == null || toMeters == null) {
+            return null;
+        }
+        return quantity * fromMeters / toMeters;
+    }
+
+    private static String normalizeUnit(String unit) {
+        return unit == null ? "" : unit.trim().toLowerCase();
+    }
+
+    private static int capacity(double length, double markerLength) {
+        return (int) Math.floor((length + EPS) / markerLength);
+    }
+
+    private static double tail(double length, double markerLength) {
+        return length - capacity(length, markerLength) * markerLength;
+    }
+
+    private static int clamp(int plies, int maxPlies) {
+        return Math.max(1, Math.min(plies, maxPlies));
+    }
+
+    private static int sum(int[] values) {
+        int total = 0;
+        for (int v : values) total += v;
+        return total;
+    }
+
+    private static BigDecimal scale(double value) {
+        return BigDecimal.valueOf(Math.max(0, value)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private record Candidate(int[] ratio, int plies, int covered, int over, int pieces) {
+        boolean betterThan(Candidate other) {
+            if (covered != other.covered) return covered > other.covered;
+            if (over != other.over) return over < other.over;
+            return pieces < other.pieces;
+        }
+    }
+
+    private static final class Draft {
+        final String color;
+        final int markerNo;
+        final Map<String, Integer> ratio;
+        final int plies;
+        final double markerLength;
+
+        Draft(String color, int markerNo, Map<String, Integer> ratio, int plies, double markerLength) {
+            this.color = color;
+            this.markerNo = markerNo;
+            this.ratio = ratio;
+            this.plies = plies;
+            this.markerLength = markerLength;
+        }
+    }
+
+    private static final class RollState {
+        final RollInput roll;
+        double remaining;
+        boolean touched;
+
+        RollState(RollInput roll) {
+            this.roll = roll;
+            this.remaining = roll.length();
+        }
+    }
+
+    private record Part(Draft draft, int plies, String shadeLot, boolean rollsAssigned, List<RollCut> cuts) {}
+
+    private record Allocation(String shadeLot, Map<RollState, Integer> takes, int plies, double deadWaste,
+                              int capacity) {
+        /** 能铺满的优先；都能铺满时卷尾损耗少、缸内余量少（留大缸给后面的床）的优先；都铺不满时层数多的优先 */
+        boolean betterThan(Allocation other, int needed) {
+            boolean full = plies >= needed;
+            boolean otherFull = other.plies >= needed;
+            if (full != otherFull) return full;
+            if (!full) return plies > other.plies;
+            if (Math.abs(deadWaste - other.deadWaste) > EPS) return deadWaste < other.deadWaste;
+            return capacity < other.capacity;
+        }
+    }
+}
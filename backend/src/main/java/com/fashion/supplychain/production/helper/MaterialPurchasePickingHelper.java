@@ -26,6 +26,7 @@ import com.fashion.supplychain.production.service.MaterialPickingService;
 import com.fashion.supplychain.production.mapper.MaterialPickingItemMapper;
 import com.fashion.supplychain.production.service.MaterialPurchaseService;
 import com.fashion.supplychain.production.service.MaterialStockService;
+import com.fashion.supplychain.production.service.MaterialStockReservationService;
 import com.fashion.supplychain.production.service.ProductionOrderService;
 import com.fashion.supplychain.finance.orchestration.BillAggregationOrchestrator;
 import com.fashion.supplychain.warehouse.entity.MaterialPickupRecord;
@@ -54,6 +55,9 @@ public class MaterialPurchasePickingHelper {
     @Autowired
     private MaterialPickingService materialPickingService;
 
+    @Autowired
+    private MaterialStockReservationService materialStockReservationService;
+
     @Autowired
     private MaterialPickingItemMapper materialPickingItemMapper;
 
@@ -93,7 +97,8 @@ public class MaterialPurchasePickingHelper {
 
     /**
      * 智能一键领取全部（优先使用库存，不足时创建采购）
-     * @param body 包含 orderNo(订单号), receiverId, receiverName
+     * @param body 包含 orderNo(订单号), receiverId, receiverName，
+     *             可选 allocationStrategy(FIFO/BY_LOCATION), preferredLocation
      * @return 汇总结果 { outboundCount, purchaseCount, details }
      */
     // D-001 修复：移除 Helper 层 @Transactional（调用方 MaterialPurchaseOrchestrator.smartReceiveAll 已有事务保护）
@@ -126,20 +131,23 @@ public class MaterialPurchasePickingHelper {
             return result;
         }
 
+        MaterialStockReservationService.AllocationStrategy strategy = MaterialStockReservationService.AllocationStrategy
+            .of(body.get("allocationStrategy") == null ? null : String.valueOf(body.get("allocationStrategy")));
+        String preferredLocation = ParamUtils.toTrimmedString(body.get("preferredLocation"));
+
         int outboundCount = 0;
         int purchaseCount = 0;
         List<Map<String, Object>> details = new ArrayList<>();
 
-        java.util.Map<String, List<MaterialStock>> stockCache = batchQueryStockByPurchases(pendingPurchases);
-
         for (MaterialPurchase purchase : pendingPurchases) {
             int requiredQty = purchase.getPurchaseQuantity() != null ? purchase.getPurchaseQuantity().intValue() : 0;
-            String stockKey = stockCacheKey(purchase.getMaterialCode(), purchase.getColor(), purchase.getSize());
-            List<MaterialStock> stockList = stockCache.getOrDefault(stockKey, java.util.Collections.emptyList());
-            int availableStock = calcAvailableStock(stockList);
+            // 可用量判断与锁定在预留台账上一次完成，不再先读库存快照再逐行加锁
+            MaterialStockReservationService.ReservationResult reservation = materialStockReservationService.reserve(
+                purchase.getId(), purchase.getMaterialCode(), purchase.getColor(), purchase.getSize(),
+                requiredQty, strategy, preferredLocation, true);
 
-            Map<String, Object> detail = buildDetailBase(purchase, requiredQty, availableStock);
-            dispatchPurchase(purchase, receiverId, receiverName, stockList, requiredQty, availableStock, detail);
+            Map<String, Object> detail = buildDetailBase(purchase, requiredQty, reservation.reservedQty());
+            dispatchPurchase(purchase, receiverId, receiverName, reservation, detail);
 
             if ("outbound".equals(detail.get("action")) || "partial".equals(detail.get("action"))) {
                 outboundCount++;
@@ -205,12 +213,12 @@ public class MaterialPurchasePickingHelper {
     }
 
     private void dispatchPurchase(MaterialPurchase purchase, String receiverId, String receiverName,
-                                   List<MaterialStock> stockList, int requiredQty, int availableStock,
+                                   MaterialStockReservationService.ReservationResult reservation,
                                    Map<String, Object> detail) {
-        if (availableStock >= requiredQty && !stockList.isEmpty()) {
-            dispatchFullOutbound(purchase, receiverId, receiverName, stockList, detail);
-        } else if (availableStock > 0 && !stockList.isEmpty()) {
-            dispatchPartialOutbound(purchase, receiverId, receiverName, stockList, requiredQty, availableStock, detail);
+        if (!reservation.isEmpty() && reservation.reservedQty() >= reservation.requestedQty()) {
+            dispatchFullOutbound(purchase, receiverId, receiverName, reservation, detail);
+        } else if (!reservation.isEmpty()) {
+            dispatchPartialOutbound(purchase, receiverId, receiverName, reservation, detail);
         } else {
             detail.put("action", "purchase");
             detail.put("status", "pending");
@@ -219,13 +227,15 @@ public class MaterialPurchasePickingHelper {
     }
 
     private void dispatchFullOutbound(MaterialPurchase purchase, String receiverId, String receiverName,
-                                       List<MaterialStock> stockList, Map<String, Object> detail) {
+                                       MaterialStockReservationService.ReservationResult reservation,
+                                       Map<String, Object> detail) {
         try {
-            createOutboundPicking(purchase, receiverId, receiverName, stockList);
+            createOutboundPicking(purchase, receiverId, receiverName, reservation);
             detail.put("action", "outbound");
             detail.put("status", "success");
         } catch (Exception e) {
             log.error("创建出库单失败: materialCode={}, error={}", purchase.getMaterialCode(), e.getMessage());
+            releaseReservationQuietly(reservation);
             detail.put("action", "outbound");
             detail.put("status", "failed");
             detail.put("error", e.getMessage());
@@ -233,11 +243,12 @@ public class MaterialPurchasePickingHelper {
     }
 
     private void dispatchPartialOutbound(MaterialPurchase purchase, String receiverId, String receiverName,
-                                          List<MaterialStock> stockList, int requiredQty, int availableStock,
+                                          MaterialStockReservationService.ReservationResult reservation,
                                           Map<String, Object> detail) {
+        int availableStock = reservation.reservedQty();
         try {
-            createOutboundPicking(purchase, receiverId, receiverName, stockList, availableStock);
-            int deficitQty = requiredQty - availableStock;
+            createOutboundPicking(purchase, receiverId, receiverName, reservation);
+            int deficitQty = reservation.requestedQty() - availableStock;
             createDeficitPurchase(purchase, deficitQty, receiverId);
             detail.put("action", "partial");
             detail.put("pickedQty", availableStock);
@@ -248,12 +259,21 @@ public class MaterialPurchasePickingHelper {
                 deficitQty, purchase.getUnit() != null ? purchase.getUnit() : ""));
         } catch (Exception e) {
             log.error("创建部分出库单失败: materialCode={}, error={}", purchase.getMaterialCode(), e.getMessage());
+            releaseReservationQuietly(reservation);
             detail.put("action", "purchase");
             detail.put("status", "pending");
             detail.put("message", "部分出库失败，保持采购状态");
         }
     }
 
+    private void releaseReservationQuietly(MaterialStockReservationService.ReservationResult reservation) {
+        try {
+            materialStockReservationService.releaseBatch(reservation.batchId());
+        } catch (Exception e) {
+            log.warn("[智能领取] 释放库存预留失败，等待过期释放: batchId={}, err={}", reservation.batchId(), e.getMessage());
+        }
+    }
+
     private void createDeficitPurchase(MaterialPurchase original, int deficitQty, String receiverId) {
         MaterialPurchase deficitPurchase = new MaterialPurchase();
         deficitPurchase.setOrderId(original.getOrderId());
@@ -297,16 +317,11 @@ public class MaterialPurchasePickingHelper {
     // ──────────────────────────────────────────────────────────────
 
     /**
-     * 创建领料出库单并扣减库存
+     * 按预留结果创建领料出库单（库存已在预留台账上锁定）
      */
     private void createOutboundPicking(MaterialPurchase purchase, String receiverId, String receiverName,
-                                       List<MaterialStock> stockList) {
-        int pickQty = purchase.getPurchaseQuantity() != null ? purchase.getPurchaseQuantity().intValue() : 0;
-        createOutboundPicking(purchase, receiverId, receiverName, stockList, pickQty);
-    }
-
-    private void createOutboundPicking(MaterialPurchase purchase, String receiverId, String receiverName,
-                                       List<MaterialStock> stockList, int pickQty) {
+                                       MaterialStockReservationService.ReservationResult reservation) {
+        int pickQty = reservation.reservedQty();
         // 1. 创建主表（MaterialPicking）—— status="pending"，等待仓库确认后再扣库存
         MaterialPicking picking = new MaterialPicking();
         picking.setPickingNo("PICK-" + System.currentTimeMillis());
@@ -329,17 +344,11 @@ public class MaterialPurchasePickingHelper {
         List<MaterialPickingItem> items = new ArrayList<>();
 
         // 2. 仅准备明细（不扣库存，仓库确认出库时再扣）
-        int remainingQty = pickQty;
-        for (MaterialStock stock : stockList) {
-            if (remainingQty <= 0) break;
-
-            int stockAvailable = Math.max(0,
-                (stock.getQuantity() != null ? stock.getQuantity() : 0)
-                - (stock.getLockedQuantity() != null ? stock.getLockedQuantity() : 0));
-
-            if (stockAvailable <= 0) continue;
-
-            int pickFromThis = Math.min(remainingQty, stockAvailable);
+        Map<String, MaterialStock> stockMap = loadReservedStocks(reservation);
+        for (MaterialStockReservationService.Allocation allocation : reservation.allocations()) {
+            MaterialStock stock = stockMap.get(allocation.stockId());
+            if (stock == null) continue;
+            int pickFromThis = allocation.quantity();
 
             MaterialPickingItem item = new MaterialPickingItem();
             item.setMaterialStockId(stock.getId());
@@ -357,14 +366,11 @@ public class MaterialPurchasePickingHelper {
             item.setWarehouseLocation(stock.getLocation());
             item.setCreateTime(LocalDateTime.now());
             items.add(item);
-
-            materialStockService.lockStock(stock.getId(), pickFromThis);
-
-            remainingQty -= pickFromThis;
         }
 
-        // 3. 保存待出库单（不扣库存，但已锁定）
+        // 3. 保存待出库单（不扣库存，但已锁定），预留绑定到出库单
         String pickingId = materialPickingService.savePendingPicking(picking, items);
+        materialStockReservationService.bindPicking(reservation.batchId(), pickingId);
 
         // 4. 更新采购任务状态为「仓库待出库」（尚未完成，等仓库出库后变 completed）
         purchase.setStatus(MaterialConstants.STATUS_WAREHOUSE_PENDING);
@@ -377,6 +383,14 @@ public class MaterialPurchasePickingHelper {
             pickingId, purchase.getMaterialCode(), pickQty);
     }
 
+    private Map<String, MaterialStock> loadReservedStocks(MaterialStockReservationService.ReservationResult reservation) {
+        List<String> stockIds = reservation.allocations().stream()
+                .map(MaterialStockReservationService.Allocation::stockId).toList();
+        if (stockIds.isEmpty()) return Map.of();
+        return materialStockService.listByIds(stockIds).stream()
+                .collect(java.util.stream.Collectors.toMap(MaterialStock::getId, s -> s, (a, b) -> a));
+    }
+
     // ──────────────────────────────────────────────────────────────
     // 智能领取预览
     // ──────────────────────────────────────────────────────────────
@@ -470,20 +484,6 @@ public class MaterialPurchasePickingHelper {
         return item;
     }
 
-    private int calcAvailableStock(String materialCode, String color, String size) {
-        LambdaQueryWrapper<MaterialStock> stockWrapper = new LambdaQueryWrapper<>();
-        stockWrapper.eq(MaterialStock::getMaterialCode, materialCode);
-        if (StringUtils.hasText(color)) stockWrapper.eq(MaterialStock::getColor, color);
-        if (StringUtils.hasText(size)) stockWrapper.eq(MaterialStock::getSize, size);
-        List<MaterialStock> stockList = materialStockService.list(stockWrapper);
-        return stockList.stream()
-            .mapToInt(stock -> {
-                int qty = stock.getQuantity() != null ? stock.getQuantity() : 0;
-                int locked = stock.getLockedQuantity() != null ? stock.getLockedQuantity() : 0;
-                return Math.max(0, qty - locked);
-            }).sum();
-    }
-
     private List<Map<String, Object>> queryExistingPickingRecords(boolean byOrderNo, String orderNo, boolean byStyleNo, String styleNo) {
         LambdaQueryWrapper<MaterialPicking> pickingWrapper = new LambdaQueryWrapper<>();
         pickingWrapper.select(MaterialPicking::getId, MaterialPicking::getPickingNo,
@@ -530,7 +530,7 @@ public class MaterialPurchasePickingHelper {
 
     /**
      * 执行单项仓库领取（从仓库出库指定物料指定数量）
-     * @param body { purchaseId, pickQty, receiverId, receiverName }
+     * @param body { purchaseId, pickQty, receiverId, receiverName, allocationStrategy?, preferredLocation? }
      */
     // D-001 修复：移除 Helper 层 @Transactional（调用方 MaterialPurchaseOrchestrator.warehousePickSingle 已有事务保护）
     public Map<String, Object> warehousePickSingle(Map<String, Object> body) {
@@ -552,13 +552,15 @@ public class MaterialPurchasePickingHelper {
         }
 
         String materialCode = purchase.getMaterialCode();
-        int availableStock = calcAvailableStock(materialCode, purchase.getColor(), purchase.getSize());
-        if (availableStock < pickQty) {
-            throw new IllegalArgumentException("仓库库存不足，可用库存: " + availableStock + "，需领取: " + pickQty);
+        MaterialStockReservationService.ReservationResult reservation = materialStockReservationService.reserve(
+                purchaseId, materialCode, purchase.getColor(), purchase.getSize(), pickQty,
+                MaterialStockReservationService.AllocationStrategy.of(ParamUtils.toTrimmedString(body.get("allocationStrategy"))),
+                ParamUtils.toTrimmedString(body.get("preferredLocation")), false);
+        if (reservation.isEmpty() || reservation.reservedQty() < pickQty) {
+            throw new IllegalArgumentException("仓库库存不足，可用库存: " + reservation.reservedQty() + "，需领取: " + pickQty);
         }
 
-        List<MaterialStock> stockList = queryStockList(materialCode, purchase.getColor(), purchase.getSize());
-        String pickingId = createPendingPicking(purchase, stockList, pickQty, receiverId, receiverName);
+        String pickingId = createPendingPicking(purchase, reservation, receiverId, receiverName);
 
         purchase.setStatus(MaterialConstants.STATUS_WAREHOUSE_PENDING);
         purchase.setReceiverId(receiverId);
@@ -578,16 +580,9 @@ public class MaterialPurchasePickingHelper {
         return result;
     }
 
-    private List<MaterialStock> queryStockList(String materialCode, String color, String size) {
-        LambdaQueryWrapper<MaterialStock> stockWrapper = new LambdaQueryWrapper<>();
-        stockWrapper.eq(MaterialStock::getMaterialCode, materialCode);
-        if (StringUtils.hasText(color)) stockWrapper.eq(MaterialStock::getColor, color);
-        if (StringUtils.hasText(size)) stockWrapper.eq(MaterialStock::getSize, size);
-        return materialStockService.list(stockWrapper);
-    }
-
-    private String createPendingPicking(MaterialPurchase purchase, List<MaterialStock> stockList,
-                                         int pickQty, String receiverId, String receiverName) {
+    private String createPendingPicking(MaterialPurchase purchase,
+                                         MaterialStockReservationService.ReservationResult reservation,
+                                         String receiverId, String receiverName) {
         MaterialPicking picking = new MaterialPicking();
         picking.setPickingNo("PICK-" + System.currentTimeMillis());
         picking.setOrderId(purchase.getOrderId());
@@ -607,14 +602,11 @@ public class MaterialPurchasePickingHelper {
         picking.setDeleteFlag(0);
 
         List<MaterialPickingItem> items = new ArrayList<>();
-        int remainingQty = pickQty;
-        for (MaterialStock stock : stockList) {
-            if (remainingQty <= 0) break;
-            int stockAvailable = Math.max(0,
-                (stock.getQuantity() != null ? stock.getQuantity() : 0)
-                - (stock.getLockedQuantity() != null ? stock.getLockedQuantity() : 0));
-            if (stockAvailable <= 0) continue;
-            int pickFromThis = Math.min(remainingQty, stockAvailable);
+        Map<String, MaterialStock> stockMap = loadReservedStocks(reservation);
+        for (MaterialStockReservationService.Allocation allocation : reservation.allocations()) {
+            MaterialStock stock = stockMap.get(allocation.stockId());
+            if (stock == null) continue;
+            int pickFromThis = allocation.quantity();
 
             MaterialPickingItem item = new MaterialPickingItem();
             item.setMaterialStockId(stock.getId());
@@ -627,10 +619,10 @@ public class MaterialPurchasePickingHelper {
             item.setUnit(stock.getUnit());
             item.setCreateTime(LocalDateTime.now());
             items.add(item);
-            materialStockService.lockStock(stock.getId(), pickFromThis);
-            remainingQty -= pickFromThis;
         }
-        return materialPickingService.savePendingPicking(picking, items);
+        String pickingId = materialPickingService.savePendingPicking(picking, items);
+        materialStockReservationService.bindPicking(reservation.batchId(), pickingId);
+        return pickingId;
     }
 
     // ──────────────────────────────────────────────────────────────
@@ -702,6 +694,18 @@ public class MaterialPurchasePickingHelper {
                 ? Map.of()
                 : materialStockService.listByIds(stockIds).stream()
                         .collect(java.util.stream.Collectors.toMap(MaterialStock::getId, s -> s, (a, b) -> a));
+        if (materialStockReservationService.hasReservations(picking.getId())) {
+            // 走预留台账：预留整体转为已出库，库存一条语句扣减并释放锁定，明细只写出库日志
+            materialStockReservationService.consumeForPicking(picking.getId());
+            for (com.fashion.supplychain.production.entity.MaterialPickingItem item : items) {
+                if (item.getQuantity() != null && item.getQuantity() > 0) {
+                    pickedTotalQty += item.getQuantity();
+                    MaterialStock stock = item.getMaterialStockId() != null ? stockMap.get(item.getMaterialStockId()) : null;
+                    recordOutboundLog(picking, item, stock, outboundTime);
+                }
+            }
+            return pickedTotalQty;
+        }
         for (com.fashion.supplychain.production.entity.MaterialPickingItem item : items) {
             if (item.getQuantity() != null && item.getQuantity() > 0) {
                 pickedTotalQty += item.getQuantity();
@@ -797,7 +801,7 @@ public class MaterialPurchasePickingHelper {
         List<MaterialPickingItem> items = materialPickingService.getItemsByPickingId(pickingId);
         boolean wasCompleted = "completed".equalsIgnoreCase(picking.getStatus());
 
-        restoreStockForItems(items, wasCompleted);
+        restoreStockForItems(pickingId, items, wasCompleted);
 
         picking.setStatus(MaterialConstants.STATUS_CANCELLED);
         picking.setRemark("【撤销】" + reason + " | 操作人: " + UserContext.username() + " | 原备注: " + (picking.getRemark() != null ? picking.getRemark() : ""));
@@ -829,7 +833,11 @@ public class MaterialPurchasePickingHelper {
         return result;
     }
 
-    private void restoreStockForItems(List<MaterialPickingItem> items, boolean wasCompleted) {
+    private void restoreStockForItems(String pickingId, List<MaterialPickingItem> items, boolean wasCompleted) {
+        if (materialStockReservationService.hasReservations(pickingId)) {
+            materialStockReservationService.releaseForPicking(pickingId, wasCompleted);
+            return;
+        }
         for (MaterialPickingItem item : items) {
             if (item.getMaterialStockId() != null) {
                 if (wasCompleted) {
@@ -111,7 +111,22 @@ public class OrderPriceFillHelper {
             }
         }
 
+        // 未被扫码单价覆盖的内部订单按款号批量取模板合计（整页共用一份租户模板快照）
+        Set<String> tplStyleNos = records.stream()
+                .filter(r -> r != null && StringUtils.hasText(r.getId()) && !"EXTERNAL".equals(r.getFactoryType()))
+                .filter(r -> !fromScanRecordSum.containsKey(r.getId().trim()))
+                .map(ProductionOrder::getStyleNo)
+                .filter(StringUtils::hasText)
+                .map(String::trim)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
         Map<String, BigDecimal> tplSumByStyleNo = new HashMap<>();
+        if (!tplStyleNos.isEmpty()) {
+            try {
+                tplSumByStyleNo.putAll(templateLibraryService.resolveTotalUnitPricesFromProgressTemplate(tplStyleNos));
+            } catch (Exception e) {
+                log.warn("Failed to batch resolve unit price from progress template: styleNoCount={}", tplStyleNos.size(), e);
+            }
+        }
 
         for (ProductionOrder o : records) {
             if (o == null || !StringUtils.hasText(o.getId())) {
@@ -19,8 +19,10 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
@@ -101,7 +103,11 @@ public class TrackingPriceBatchHelper {
 
         int total = orders.size(), updatedCount = 0, skipCount = 0, errorCount = 0;
         List<Map<String, Object>> details = new ArrayList<>();
-        Map<String, List<Map<String, Object>>> templateCache = new HashMap<>();
+        Map<String, List<Map<String, Object>>> templateCache = new HashMap<>(
+                templateLibraryService.resolveProgressNodeUnitPrices(orders.stream()
+                        .map(ProductionOrder::getStyleNo)
+                        .filter(StringUtils::hasText)
+                        .collect(Collectors.toCollection(LinkedHashSet::new))));
 
         for (ProductionOrder order : orders) {
             try {
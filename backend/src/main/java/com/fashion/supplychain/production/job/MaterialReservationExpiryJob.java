@@ -0,0 +1,49 @@
+package com.fashion.supplychain.production.job;
+
+import com.fashion.supplychain.common.lock.DistributedLockService;
+import com.fashion.supplychain.production.service.MaterialStockReservationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 物料库存预留过期释放：到期未出库的预留转为 EXPIRED 并归还锁定量（多实例只由持锁者执行）。
+ */
+@Slf4j
+@Component
+public class MaterialReservationExpiryJob {
+
+    private static final String LOCK_KEY = "job:material-reservation-expiry";
+
+    @Autowired
+    private MaterialStockReservationService materialStockReservationService;
+
+    @Autowired(required = false)
+    private DistributedLockService distributedLockService;
+
+    @Scheduled(fixedDelay = 600_000, initialDelay = 120_000)
+    public void expireDue() {
+        String lockValue = null;
+        if (distributedLockService != null) {
+            lockValue = distributedLockService.tryLock(LOCK_KEY, 10, TimeUnit.MINUTES);
+            if (lockValue == null) {
+                return;
+            }
+        }
+        try {
+            int expired = materialStockReservationService.expireDue();
+            if (expired > 0) {
+                log.info("[库存预留] 释放过期预留 {} 条", expired);
+            }
+        } catch (Exception e) {
+            log.warn("[库存预留] 过期释放失败: {}", e.getMessage());
+        } finally {
+            if (lockValue != null) {
+                distributedLockService.unlock(LOCK_KEY, lockValue);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.fashion.supplychain.production.job;
+
+import com.fashion.supplychain.common.lock.DistributedLockService;
+import com.fashion.supplychain.production.orchestration.OrderHealthScoreIndexOrchestrator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单健康分维护（写入侧，多实例只由持锁者执行）：
+ * 每分钟按订单 update_time 增量重算，凌晨重算交期跨档订单，夜间全量重扫兜底。
+ * 内存索引的同步由各实例的 OrderHealthScoreIndexOrchestrator.syncIndex 自行完成。
+ */
+@Slf4j
+@Component
+public class OrderHealthScoreJob {
+
+    private static final String LOCK_KEY = "job:order-health-score";
+
+    @Autowired
+    private OrderHealthScoreIndexOrchestrator orderHealthScoreIndex;
+
+    @Autowired(required = false)
+    private DistributedLockService distributedLockService;
+
+    @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+    public void rescoreChanged() {
+        runLocked(5, orderHealthScoreIndex::rescoreChanged);
+    }
+
+    @Scheduled(cron = "0 5 0 * * ?")
+    public void rescoreDue() {
+        runLocked(30, orderHealthScoreIndex::rescoreDue);
+    }
+
+    @Scheduled(cron = "0 15 2 * * ?")
+    public void rescoreAll() {
+        runLocked(60, () -> log.info("[HealthScore] 夜间全量重扫完成: {} 个订单", orderHealthScoreIndex.rescoreAll()));
+    }
+
+    private void runLocked(long leaseMinutes, Runnable task) {
+        if (distributedLockService == null) {
+            task.run();
+            return;
+        }
+        String lockValue = distributedLockService.tryLock(LOCK_KEY, leaseMinutes, TimeUnit.MINUTES);
+        if (lockValue == null) {
+            return;
+        }
+        try {
+            task.run();
+        } finally {
+            distributedLockService.unlock(LOCK_KEY, lockValue);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.fashion.supplychain.production.mapper;
+
+import com.baomidou.mybatisplus.annotation.InterceptorIgnore;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.fashion.supplychain.production.entity.MaterialStockReservation;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+
+/**
+ * 物料库存预留台账 Mapper
+ * <p>自定义语句涉及 t_material_stock 与台账的多表 UPDATE / INSERT ... SELECT，
+ * 租户拦截器按文本追加条件会破坏语句结构，因此方法级 @InterceptorIgnore，
+ * 每条语句自行带 tenant_id 条件（过期清理为跨租户任务，按 op_token 定位行）。
+ */
+@Mapper
+public interface MaterialStockReservationMapper extends BaseMapper<MaterialStockReservation> {
+
+    /**
+     * 生成分配计划（PLANNED）：按策略排序后用窗口函数累计可用量，
+     * 取累计到需求量为止的库存行，每行分配 min(可用量, 剩余需求)。
+     */
+    @InterceptorIgnore(tenantLine = "true")
+    @Insert("<script>" +
+            "INSERT INTO t_material_stock_reservation " +
+            "  (id, tenant_id, batch_id, stock_id, material_code, purchase_id, quantity, status, strategy, seq, " +
+            "   expire_time, create_time, update_time) " +
+            "SELECT UUID(), #{tenantId}, #{batchId}, c.id, c.material_code, #{purchaseId}, " +
+            "       LEAST(c.avail, #{qty} - (c.cum - c.avail)), 'PLANNED', #{strategy}, #{seqBase} + c.rn, " +
+            "       #{expireTime}, NOW(), NOW() " +
+            "FROM (" +
+            "  SELECT id, material_code, (quantity - locked_quantity) AS avail, " +
+            "         SUM(quantity - locked_quantity) OVER w AS cum, " +
+            "         ROW_NUMBER() OVER w AS rn " +
+            "  FROM t_material_stock " +
+            "  WHERE tenant_id = #{tenantId} AND delete_flag = 0 " +
+            "    AND material_code = #{materialCode} " +
+            "    <if test='color != null and color != \"\"'>AND color = #{color} </if>" +
+            "    <if test='size != null and size != \"\"'>AND size = #{size} </if>" +
+            "    AND quantity - locked_quantity &gt; 0 " +
+            "  WINDOW w AS (ORDER BY " +
+            "    <choose>" +
+            "      <when test='strategy == \"BY_LOCATION\"'>" +
+            "        CASE WHEN location = #{location} THEN 0 ELSE 1 END, location, COALESCE(last_inbound_date, create_time), " +
+            "      </when>" +
+            "      <otherwise>COALESCE(last_inbound_date, create_time), create_time, </otherwise>" +
+            "    </choose>" +
+            "    id)" +
+            ") c " +
+            "WHERE c.cum - c.avail &lt; #{qty}" +
+            "</script>")
+    int insertPlan(@Param("tenantId") Long tenantId,
+                   @Param("batchId") String batchId,
+                   @Param("purchaseId") String purchaseId,
+                   @Param("materialCode") String materialCode,
+                   @Param("color") String color,
+                   @Param("size") String size,
+                   @Param("qty") int qty,
+                   @Param("strategy") String strategy,
+                   @Param("location") String location,
+                   @Param("seqBase") int seqBase,
+                   @Param("expireTime") LocalDateTime expireTime);
+
+    /**
+     * 计划落锁：可用量仍足够的库存行加锁并把计划转为 RESERVED；
+     * 被并发领取抢占的行保持 PLANNED，由调用方删除后按缺口重新分配。
+     */
+    @InterceptorIgnore(tenantLine = "true")
+    @Update("UPDATE t_material_stock s " +
+            "JOIN t_material_stock_reservation r ON r.stock_id = s.id " +
+            "SET s.locked_quantity = s.locked_quantity + r.quantity, s.update_time = NOW(), " +
+            "    r.status = 'RESERVED', r.update_time = NOW() " +
+            "WHERE r.batch_id = #{batchId} AND r.status = 'PLANNED' AND r.tenant_id = #{tenantId} " +
+            "  AND s.tenant_id = #{tenantId} AND s.delete_flag = 0 " +
+            "  AND s.quantity - s.locked_quantity >= r.quantity")
+    int applyPlan(@Param("tenantId") Long tenantId, @Param("batchId") String batchId);
+
+    @InterceptorIgnore(tenantLine = "true")
+    @Delete("DELETE FROM t_material_stock_reservation " +
+            "WHERE batch_id = #{batchId} AND status = 'PLANNED' AND tenant_id = #{tenantId}")
+    int deletePlanned(@Param("tenantId") Long tenantId, @Param("batchId") String batchId);
+
+    @InterceptorIgnore(tenantLine = "true")
+    @Select("SELECT COALESCE(SUM(quantity), 0) FROM t_material_stock_reservation " +
+            "WHERE batch_id = #{batchId} AND status = 'RESERVED' AND tenant_id = #{tenantId}")
+    int sumReserved(@Param("tenantId") Long tenantId, @Param("batchId") String batchId);
+
+    /** 领料单保存后绑定预留，并把过期时间从短暂占位延长到正式有效期 */
+    @InterceptorIgnore(tenantLine = "true")
+    @Update("UPDATE t_material_stock_reservation SET picking_id = #{pickingId}, expire_time = #{expireTime}, " +
+            "update_time = NOW() WHERE batch_id = #{batchId} AND tenant_id = #{tenantId}")
+    int bindPicking(@Param("tenantId") Long tenantId, @Param("batchId") String batchId,
+                    @Param("pickingId") String pickingId, @Param("expireTime") LocalDateTime expireTime);
+
+    @InterceptorIgnore(tenantLine = "true")
+    @Select("SELECT COUNT(*) FROM t_material_stock_reservation " +
+            "WHERE picking_id = #{pickingId} AND tenant_id = #{tenantId}")
+    int countByPicking(@Param("tenantId") Long tenantId, @Param("pickingId") String pickingId);
+
+    /**
+     * 状态翻转：把批次或领料单下 fromStatus 的行改为 toStatus，并打上本次操作令牌。
+     * 按批次翻转只作用于尚未绑定领料单的预留（已绑定的随领料单确认或撤销）。
+     * 行锁持有到事务结束，并发的另一次翻转会等待并在提交后匹配 0 行，因此同一预留只会被处理一次。
+     */
+    @InterceptorIgnore(tenantLine = "true")
+    @Update("<script>" +
+            "UPDATE t_material_stock_reservation SET status = #{toStatus}, op_token = #{opToken}, update_time = NOW() " +
+            "WHERE tenant_id = #{tenantId} AND status = #{fromStatus} " +
+            "<choose>" +
+            "  <when test='pickingId != null'>AND picking_id = #{pickingId}</when>" +
+            "  <otherwise>AND batch_id = #{batchId} AND picking_id IS NULL</otherwise>" +
+            "</choose>" +
+            "</script>")
+    int transition(@Param("tenantId") Long tenantId,
+                   @Param("batchId") String batchId,
+                   @Param("pickingId") String pickingId,
+                   @Param("fromStatus") String fromStatus,
+                   @Param("toStatus") String toStatus,
+                   @Param("opToken") String opToken);
+
+    /** 过期翻转（跨租户，每次限量） */
+    @InterceptorIgnore(tenantLine = "true")
+    @Update("UPDATE t_material_stock_reservation SET status = 'EXPIRED', op_token = #{opToken}, update_time = NOW() " +
+            "WHERE status = 'RESERVED' AND expire_time < NOW() LIMIT #{limit}")
+    int expireDue(@Param("opToken") String opToken, @Param("limit") int limit);
+
+    @InterceptorIgnore(tenantLine = "true")
+    @Select("SELECT COUNT(DISTINCT stock_id) FROM t_material_stock_reservation WHERE op_token = #{opToken}")
+    int countStocksByToken(@Param("opToken") String opToken);
+
+    /** 释放锁定：按令牌汇总到库存行，locked_quantity 减去预留量 */
+    @InterceptorIgnore(tenantLine = "true")
+    @Update("UPDATE t_material_stock s " +
+            "JOIN (SELECT stock_id, SUM(quantity) AS qty FROM t_material_stock_reservation " +
+            "      WHERE op_token = #{opToken} GROUP BY stock_id) r ON r.stock_id = s.id " +
+            "SET s.locked_quantity = GREATEST(0, s.locked_quantity - r.qty), s.update_time = NOW()")
+    int unlockByToken(@Param("opToken") String opToken);
+
+    /** 确认出库：扣减数量并释放锁定（库存不足的行不更新，调用方按影响行数判断） */
+    @InterceptorIgnore(tenantLine = "true")
+    @Update("UPDATE t_material_stock s " +
+            "JOIN (SELECT stock_id, SUM(quantity) AS qty FROM t_material_stock_reservation " +
+            "      WHERE op_token = #{opToken} GROUP BY stock_id) r ON r.stock_id = s.id " +
+            // 多表 UPDATE 不保证 SET 按书写顺序赋值，total_value 按扣减后的数量显式计算，不引用已赋值的 s.quantity
+            "SET s.total_value = ROUND(GREATEST(0, s.quantity - r.qty) * COALESCE(s.unit_price, 0), 2), " +
+            "    s.quantity = s.quantity - r.qty, " +
+            "    s.locked_quantity = GREATEST(0, s.locked_quantity - r.qty), " +
+            "    s.update_time = NOW() " +
+            "WHERE s.tenant_id = #{tenantId} AND s.delete_flag = 0 AND s.quantity >= r.qty")
+    int consumeReservedByToken(@Param("tenantId") Long tenantId, @Param("opToken") String opToken);
+
+    /** 过期后才确认出库：锁已释放，按当前可用量直接扣减 */
+    @InterceptorIgnore(tenantLine = "true")
+    @Update("UPDATE t_material_stock s " +
+            "JOIN (SELECT stock_id, SUM(quantity) AS qty FROM t_material_stock_reservation " +
+            "      WHERE op_token = #{opToken} GROUP BY stock_id) r ON r.stock_id = s.id " +
+            "SET s.total_value = ROUND(GREATEST(0, s.quantity - r.qty) * COALESCE(s.unit_price, 0), 2), " +
+            "    s.quantity = s.quantity - r.qty, " +
+            "    s.update_time = NOW() " +
+            "WHERE s.tenant_id = #{tenantId} AND s.delete_flag = 0 AND s.quantity - s.locked_quantity >= r.qty")
+    int consumeUnlockedByToken(@Param("tenantId") Long tenantId, @Param("opToken") String opToken);
+
+    /** 已出库的领料单撤销：数量加回库存 */
+    @InterceptorIgnore(tenantLine = "true")
+    @Update("UPDATE t_material_stock s " +
+            "JOIN (SELECT stock_id, SUM(quantity) AS qty FROM t_material_stock_reservation " +
+            "      WHERE op_token = #{opToken} GROUP BY stock_id) r ON r.stock_id = s.id " +
+            "SET s.total_value = ROUND(GREATEST(0, s.quantity + r.qty) * COALESCE(s.unit_price, 0), 2), " +
+            "    s.quantity = s.quantity + r.qty, " +
+            "    s.update_time = NOW() " +
+            "WHERE s.tenant_id = #{tenantId} AND s.delete_flag = 0")
+    int restockByToken(@Param("tenantId") Long tenantId, @Param("opToken") String opToken);
+}
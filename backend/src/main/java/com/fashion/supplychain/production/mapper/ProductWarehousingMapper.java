@@ -3,6 +3,7 @@ package com.fashion.supplychain.production.mapper;
 import com.baomidou.mybatisplus.annotation.InterceptorIgnore;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.fashion.supplychain.production.entity.ProductWarehousing;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -122,4 +123,23 @@ public interface ProductWarehousingMapper extends BaseMapper<ProductWarehousing>
             @Param("tenantId") Long tenantId,
             @Param("styleNo") String styleNo,
             @Param("start") java.time.LocalDateTime start);
+
+    /**
+     * 多行插入自由入库记录（批量入库用，只写入自由入库会赋值的列；creator/tenant 由调用方赋值）
+     */
+    @Insert("<script>INSERT INTO t_product_warehousing (id, warehousing_no, style_id, style_no, style_name, " +
+            "warehousing_quantity, qualified_quantity, unqualified_quantity, warehousing_type, warehouse, " +
+            "warehouse_area_id, warehouse_area_name, quality_status, warehousing_operator_id, warehousing_operator_name, " +
+            "warehousing_end_time, sku_code, defect_remark, factory_name, supplier_id, unit_price, total_amount, " +
+            "payment_status, paid_amount, batch_no, trace_id, qrcode, reversal_status, creator_id, creator_name, " +
+            "create_time, update_time, delete_flag, tenant_id) VALUES " +
+            "<foreach collection='rows' item='w' separator=','>" +
+            "(#{w.id}, #{w.warehousingNo}, #{w.styleId}, #{w.styleNo}, #{w.styleName}, " +
+            "#{w.warehousingQuantity}, #{w.qualifiedQuantity}, #{w.unqualifiedQuantity}, #{w.warehousingType}, #{w.warehouse}, " +
+            "#{w.warehouseAreaId}, #{w.warehouseAreaName}, #{w.qualityStatus}, #{w.warehousingOperatorId}, #{w.warehousingOperatorName}, " +
+            "#{w.warehousingEndTime}, #{w.skuCode}, #{w.defectRemark}, #{w.factoryName}, #{w.supplierId}, #{w.unitPrice}, #{w.totalAmount}, " +
+            "#{w.paymentStatus}, #{w.paidAmount}, #{w.batchNo}, #{w.traceId}, #{w.qrcode}, #{w.reversalStatus}, #{w.creatorId}, #{w.creatorName}, " +
+            "#{w.createTime}, #{w.updateTime}, #{w.deleteFlag}, #{w.tenantId})" +
+            "</foreach></script>")
+    int insertFreeInboundBatch(@Param("rows") List<ProductWarehousing> rows);
 }
@@ -58,6 +58,33 @@ public class CuttingBomOrchestrator {
      */
     @Transactional
     public List<CuttingBom> initFromStyle(String cuttingTaskId) {
+        CuttingTask task = requireTask(cuttingTaskId);
+        List<CuttingBom> existing = cuttingBomService.listByCuttingTaskId(task.getId());
+        if (existing != null && !existing.isEmpty()) {
+            return existing;
+        }
+        List<CuttingBom> rows = buildFromStyle(task);
+        if (!rows.isEmpty()) {
+            cuttingBomService.saveBatch(rows);
+            log.info("裁剪任务BOM已从款式BOM初始化(存量任务): taskId={}, orderNo={}, 条数={}",
+                    task.getId(), task.getProductionOrderNo(), rows.size());
+        }
+        return rows;
+    }
+
+    /**
+     * 只读版 initFromStyle：任务已有裁剪 BOM 时返回之，否则返回按款式 BOM 生成但不落库的行（供预览类计算使用）。
+     */
+    public List<CuttingBom> listOrStyleDefaults(String cuttingTaskId) {
+        CuttingTask task = requireTask(cuttingTaskId);
+        List<CuttingBom> existing = cuttingBomService.listByCuttingTaskId(task.getId());
+        if (existing != null && !existing.isEmpty()) {
+            return existing;
+        }
+        return buildFromStyle(task);
+    }
+
+    private CuttingTask requireTask(String cuttingTaskId) {
         if (!StringUtils.hasText(cuttingTaskId)) {
             throw new IllegalArgumentException("裁剪任务ID不能为空");
         }
@@ -69,10 +96,11 @@ public class CuttingBomOrchestrator {
         if (task == null) {
             throw new IllegalArgumentException("裁剪任务不存在");
         }
-        List<CuttingBom> existing = cuttingBomService.listByCuttingTaskId(task.getId());
-        if (existing != null && !existing.isEmpty()) {
-            return existing;
-        }
+        return task;
+    }
+
+    /** 按款式 BOM 生成裁剪 BOM 行（不落库） */
+    private List<CuttingBom> buildFromStyle(CuttingTask task) {
         String styleIdRaw = task.getStyleId();
         if (!StringUtils.hasText(styleIdRaw)) {
             return List.of();
@@ -122,11 +150,6 @@ public class CuttingBomOrchestrator {
             cb.setDeleteFlag(0);
             rows.add(cb);
         }
-        if (!rows.isEmpty()) {
-            cuttingBomService.saveBatch(rows);
-            log.info("裁剪任务BOM已从款式BOM初始化(存量任务): taskId={}, orderNo={}, 条数={}",
-                    task.getId(), task.getProductionOrderNo(), rows.size());
-        }
         return rows;
     }
 
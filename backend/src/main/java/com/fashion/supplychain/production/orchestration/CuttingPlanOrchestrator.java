@@ -0,0 +1,427 @@
+package com.fashion.supplychain.production.orchestration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fashion.supplychain.common.ParamUtils;
+import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.common.tenant.TenantAssert;
+import com.fashion.supplychain.production.entity.CuttingBom;
+import com.fashion.supplychain.production.entity.CuttingBundle;
+import com.fashion.supplychain.production.entity.CuttingTask;
+import com.fashion.supplychain.production.entity.MaterialRoll;
+import com.fashion.supplychain.production.entity.ProductionOrder;
+import com.fashion.supplychain.production.helper.CutOrderPlanner;
+import com.fashion.supplychain.production.service.CuttingBundleService;
+import com.fashion.supplychain.production.service.CuttingTaskService;
+import com.fashion.supplychain.production.service.MaterialRollService;
+import com.fashion.supplychain.production.service.ProductionOrderService;
+import com.fashion.supplychain.production.util.ProductionOrderUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 裁剪排床编排器
+ *
+ * 职责：
+ *  1. preview() - 按订单未生成菲号的颜色尺码、裁剪 BOM 单件耗用和在库料卷计算排床方案。
+ *                 只读：方案不落库，任务无裁剪 BOM 时按款式 BOM 取默认用量但不写入。
+ *  2. apply()   - 重新计算方案并逐床生成菲号：每床一组菲号共用一个子床号，按每扎件数拆成多扎；
+ *                 一床只铺一个缸号，因此同一子床号下的菲号缸号一致。该床用到的料卷标记为 ALLOCATED（已排床），
+ *                 不再参与后续排床。
+ */
+@Slf4j
+@Service
+public class CuttingPlanOrchestrator {
+
+    private static final int DEFAULT_BUNDLE_SIZE = 20;
+    /** 裁剪 BOM 未填单位时面料耗用按米计 */
+    private static final String DEFAULT_FABRIC_UNIT = "米";
+    /** 单位不符被跳过的料卷，提示中最多列出的卷号数 */
+    private static final int MAX_SKIPPED_ROLLS_LISTED = 10;
+
+    @Autowired
+    private ProductionOrderService productionOrderService;
+
+    @Autowired
+    private CuttingTaskService cuttingTaskService;
+
+    @Autowired
+    private CuttingBomOrchestrator cuttingBomOrchestrator;
+
+    @Autowired
+    private MaterialRollService materialRollService;
+
+    @Autowired
+    private CuttingBundleOrchestrator cuttingBundleOrchestrator;
+
+    @Autowired
+    private CuttingBundleService cuttingBundleService;
+
+    @Autowired
+    private CutOrderPlanner cutOrderPlanner;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 计算排床方案
+     *
+     * @param body { orderId, materialCode?, maxPliesPerLay?, maxPiecesPerMarker?, overcutRate?, endAllowance? }
+     */
+    public Map<String, Object> preview(Map<String, Object> body) {
+        PlanContext ctx = buildContext(body, false);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("orderId", ctx.order.getId());
+        result.put("orderNo", ctx.order.getOrderNo());
+        result.put("materialCode", ctx.materialCode);
+        result.put("rollCount", ctx.rollCount);
+        result.put("alreadyCut", ctx.alreadyCut);
+        result.put("plan", ctx.plan);
+        return result;
+    }
+
+    /**
+     * 按排床方案生成菲号：每床调用一次分扎生成，同一订单的后续床自动顺延子床号。
+     * 只排订单中尚未生成菲号的数量；面料按卷管理时跳过未分到料卷的床，并把已用料卷占用为 ALLOCATED，
+     * 料卷已被并发排床占用时整体回滚。
+     *
+     * @param body preview 参数 + bundleSize?（每扎件数，默认 20）+ allowShortage?（面料不足时是否按已排部分生成）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public Map<String, Object> apply(Map<String, Object> body) {
+        PlanContext ctx = buildContext(body, true);
+        CutOrderPlanner.Plan plan = ctx.plan;
+        if (plan.lays().isEmpty()) {
+            throw new IllegalStateException("没有可生成的排床");
+        }
+        if (plan.hasShortage() && !"true".equalsIgnoreCase(String.valueOf(body.get("allowShortage")))) {
+            throw new IllegalStateException("面料不足，排床无法覆盖订单数量：" + String.join("；", plan.warnings()));
+        }
+        int bundleSize = positiveInt(body.get("bundleSize"), DEFAULT_BUNDLE_SIZE);
+
+        List<Map<String, Object>> layResults = new ArrayList<>();
+        int bundleCount = 0;
+        int allocatedRolls = 0;
+        for (CutOrderPlanner.Lay lay : plan.lays()) {
+            if (ctx.rollsManaged && !lay.rollsAssigned()) continue;
+            List<Map<String, Object>> bundles = toBundles(lay, bundleSize);
+            if (bundles.isEmpty()) continue;
+            allocatedRolls += allocateRolls(lay, ctx.order);
+            Map<String, Object> generateBody = new LinkedHashMap<>();
+            generateBody.put("orderId", ctx.order.getId());
+            generateBody.put("bundles", bundles);
+            List<CuttingBundle> created = cuttingBundleOrchestrator.generate(generateBody);
+            bundleCount += created.size();
+
+            Map<String, Object> layResult = new LinkedHashMap<>();
+            layResult.put("layNo", lay.layNo());
+            layResult.put("color", lay.color());
+            layResult.put("markerNo", lay.markerNo());
+            layResult.put("plies", lay.plies());
+            layResult.put("shadeLot", lay.shadeLot());
+            if (!created.isEmpty()) {
+                layResult.put("bedNo", created.get(0).getBedNo());
+                layResult.put("bedSubNo", created.get(0).getBedSubNo());
+            }
+            layResult.put("bundleCount", created.size());
+            layResult.put("rollCodes", lay.rolls().stream().map(CutOrderPlanner.RollCut::rollCode).toList());
+            layResults.add(layResult);
+        }
+
+        if (layResults.isEmpty()) {
+            throw new IllegalStateException("没有分配到料卷的排床：" + String.join("；", plan.warnings()));
+        }
+
+        log.info("[排床] 按方案生成菲号: orderNo={}, 床数={}, 唛架数={}, 菲号数={}, 占用料卷={}",
+                ctx.order.getOrderNo(), layResults.size(), plan.markerCount(), bundleCount, allocatedRolls);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("orderId", ctx.order.getId());
+        result.put("orderNo", ctx.order.getOrderNo());
+        result.put("bundleCount", bundleCount);
+        result.put("allocatedRollCount", allocatedRolls);
+        result.put("lays", layResults);
+        result.put("plan", plan);
+        return result;
+    }
+
+    /**
+     * 占用一床用到的料卷：IN_STOCK → ALLOCATED，并记录生产订单。
+     * 条件更新；任何一卷已不在库（并发排床或已发料）即抛错回滚整个方案。
+     */
+    private int allocateRolls(CutOrderPlanner.Lay lay, ProductionOrder order) {
+        Long tenantId = UserContext.tenantId();
+        LocalDateTime now = LocalDateTime.now();
+        for (CutOrderPlanner.RollCut cut : lay.rolls()) {
+            boolean updated = materialRollService.lambdaUpdate()
+                    .set(MaterialRoll::getStatus, "ALLOCATED")
+                    .set(MaterialRoll::getIssuedOrderId, order.getId())
+                    .set(MaterialRoll::getIssuedOrderNo, order.getOrderNo())
+                    .set(MaterialRoll::getUpdateTime, now)
+                    .eq(MaterialRoll::getId, cut.rollId())
+                    .eq(MaterialRoll::getTenantId, tenantId)
+                    .eq(MaterialRoll::getStatus, "IN_STOCK")
+                    .update();
+            if (!updated) {
+                throw new IllegalStateException("料卷 " + cut.rollCode() + " 已被其他排床占用或已发料，请重新排床");
+            }
+        }
+        return lay.rolls().size();
+    }
+
+    // ----------------------------------------------------------------
+    // 组装规划输入
+    // ----------------------------------------------------------------
+
+    /**
+     * @param persistBom 任务尚无裁剪 BOM 时是否按款式 BOM 落库（preview 只读，apply 落库）
+     */
+    private PlanContext buildContext(Map<String, Object> body, boolean persistBom) {
+        TenantAssert.assertTenantContext();
+        Long tenantId = UserContext.tenantId();
+        String orderId = ParamUtils.toTrimmedString(body == null ? null : body.get("orderId"));
+        if (!StringUtils.hasText(orderId)) {
+            throw new IllegalArgumentException("订单ID不能为空");
+        }
+        ProductionOrder order = productionOrderService.lambdaQuery()
+                .eq(ProductionOrder::getId, orderId)
+                .eq(ProductionOrder::getTenantId, tenantId)
+                .eq(ProductionOrder::getDeleteFlag, 0)
+                .one();
+        if (order == null) {
+            throw new NoSuchElementException("生产订单不存在");
+        }
+
+        Map<String, Map<String, Integer>> demandByColor = resolveDemand(order);
+        if (demandByColor.isEmpty()) {
+            throw new IllegalStateException("订单缺少颜色尺码明细，无法排床");
+        }
+        Map<String, Map<String, Integer>> alreadyCut = cuttingBundleService.sumEffectiveQuantityByColorSize(order.getId());
+        subtractCut(demandByColor, alreadyCut);
+        if (demandByColor.isEmpty()) {
+            throw new IllegalStateException("订单各颜色尺码均已生成菲号，无需排床");
+        }
+
+        CuttingTask task = cuttingTaskService.lambdaQuery()
+                .eq(CuttingTask::getProductionOrderId, order.getId())
+                .eq(CuttingTask::getTenantId, tenantId)
+                .last("LIMIT 1")
+                .one();
+        if (task == null) {
+            throw new IllegalStateException("请先创建裁剪任务并维护面辅料后再排床");
+        }
+        List<CuttingBom> boms = persistBom
+                ? cuttingBomOrchestrator.initFromStyle(task.getId())
+                : cuttingBomOrchestrator.listOrStyleDefaults(task.getId());
+        String materialCode = resolveFabricCode(boms, ParamUtils.toTrimmedString(body.get("materialCode")));
+        if (!StringUtils.hasText(materialCode)) {
+            throw new IllegalStateException("裁剪BOM中没有面料，无法排床");
+        }
+
+        Map<String, Double> consumption = new LinkedHashMap<>();
+        double defaultConsumption = 0;
+        Set<String> bomColors = new LinkedHashSet<>();
+        String bomUnit = null;
+        for (CuttingBom bom : boms) {
+            if (!materialCode.equals(bom.getMaterialCode())) continue;
+            if (bomUnit == null && StringUtils.hasText(bom.getUnit())) {
+                bomUnit = bom.getUnit().trim();
+            }
+            double usage = perPieceUsage(bom);
+            if (StringUtils.hasText(bom.getColor())) {
+                bomColors.add(bom.getColor().trim());
+            }
+            if (!StringUtils.hasText(bom.getSize())) {
+                defaultConsumption = Math.max(defaultConsumption, usage);
+                continue;
+            }
+            for (String size : bom.getSize().split("[,，/、\\s]+")) {
+                if (StringUtils.hasText(size)) {
+                    consumption.merge(size.trim(), usage, Math::max);
+                }
+            }
+        }
+        for (Map<String, Integer> sizeQty : demandByColor.values()) {
+            for (String size : sizeQty.keySet()) {
+                if (consumption.getOrDefault(size, defaultConsumption) <= 0) {
+                    throw new IllegalStateException("面料 " + materialCode + " 未配置尺码 " + size + " 的单件用量");
+                }
+            }
+        }
+
+        List<MaterialRoll> rolls = materialRollService.lambdaQuery()
+                .eq(MaterialRoll::getTenantId, tenantId)
+                .eq(MaterialRoll::getMaterialCode, materialCode)
+                .eq(MaterialRoll::getStatus, "IN_STOCK")
+                .gt(MaterialRoll::getQuantity, BigDecimal.ZERO)
+                .orderByAsc(MaterialRoll::getRollCode)
+                .list();
+        if (bomUnit == null) {
+            bomUnit = DEFAULT_FABRIC_UNIT;
+        }
+        Map<String, List<String>> rollIdsByColor = new LinkedHashMap<>();
+        List<CutOrderPlanner.RollInput> rollInputs = new ArrayList<>();
+        List<String> skippedRolls = new ArrayList<>();
+        for (MaterialRoll roll : rolls) {
+            // 料卷数量须与单件耗用同单位：按“件”“kg”等登记的卷无法换算成长度，不参与排床
+            Double length = CutOrderPlanner.lengthInUnit(roll.getQuantity().doubleValue(), roll.getUnit(), bomUnit);
+            if (length == null) {
+                skippedRolls.add(roll.getRollCode() + "(" + roll.getUnit() + ")");
+                continue;
+            }
+            String shadeLot = StringUtils.hasText(roll.getDyeLot()) ? roll.getDyeLot().trim()
+                    : (StringUtils.hasText(roll.getInboundNo()) ? roll.getInboundNo() : "-");
+            rollInputs.add(new CutOrderPlanner.RollInput(roll.getId(), roll.getRollCode(), shadeLot, length));
+            String color = roll.getColor() == null ? "" : roll.getColor().trim();
+            rollIdsByColor.computeIfAbsent(color, k -> new ArrayList<>()).add(roll.getId());
+        }
+        // 面料登记过料卷（无论当前状态）即按卷管理：没有匹配在库料卷的床不计入已裁数量
+        boolean rollsManaged = !rolls.isEmpty() || materialRollService.lambdaQuery()
+                .eq(MaterialRoll::getTenantId, tenantId)
+                .eq(MaterialRoll::getMaterialCode, materialCode)
+                .exists();
+
+        List<CutOrderPlanner.ColorDemand> demands = new ArrayList<>();
+        demandByColor.forEach((color, sizeQty) ->
+                demands.add(new CutOrderPlanner.ColorDemand(color, sizeQty,
+                        matchRolls(color, bomColors, rollIdsByColor))));
+
+        CutOrderPlanner.PlanOptions defaults = CutOrderPlanner.PlanOptions.defaults();
+        CutOrderPlanner.PlanOptions options = new CutOrderPlanner.PlanOptions(
+                positiveInt(body.get("maxPliesPerLay"), defaults.maxPliesPerLay()),
+                positiveInt(body.get("maxPiecesPerMarker"), defaults.maxPiecesPerMarker()),
+                nonNegative(body.get("overcutRate"), defaults.overcutRate()),
+                nonNegative(body.get("endAllowance"), defaults.endAllowance()),
+                defaults.markerReuseRatio());
+        CutOrderPlanner.Plan plan = cutOrderPlanner.plan(
+                new CutOrderPlanner.PlanInput(demands, rollInputs, consumption, defaultConsumption, rollsManaged),
+                options);
+        if (!skippedRolls.isEmpty()) {
+            String listed = String.join("、", skippedRolls.subList(0, Math.min(skippedRolls.size(), MAX_SKIPPED_ROLLS_LISTED)));
+            String more = skippedRolls.size() > MAX_SKIPPED_ROLLS_LISTED ? " 等" + skippedRolls.size() + "卷" : "";
+            plan.warnings().add(0, "料卷单位与裁剪BOM单位(" + bomUnit + ")不符，未参与排床：" + listed + more);
+            log.warn("[排床] orderNo={}, materialCode={}, BOM单位={}, 跳过单位不符的料卷 {} 卷: {}",
+                    order.getOrderNo(), materialCode, bomUnit, skippedRolls.size(), skippedRolls);
+        }
+        log.info("[排床] orderNo={}, materialCode={}, 料卷={}, 床数={}, 唛架数={}, 耗时={}ms",
+                order.getOrderNo(), materialCode, rollInputs.size(), plan.lays().size(), plan.markerCount(), plan.elapsedMs());
+        return new PlanContext(order, materialCode, rollInputs.size(), rollsManaged, alreadyCut, plan);
+    }
+
+    /** 扣除已生成菲号的数量，只保留仍需裁剪的颜色尺码 */
+    private void subtractCut(Map<String, Map<String, Integer>> demandByColor,
+                             Map<String, Map<String, Integer>> alreadyCut) {
+        demandByColor.forEach((color, sizeQty) -> {
+            Map<String, Integer> cut = alreadyCut.getOrDefault(color, Map.of());
+            sizeQty.replaceAll((size, qty) -> qty - cut.getOrDefault(size, 0));
+            sizeQty.values().removeIf(qty -> qty <= 0);
+        });
+        demandByColor.values().removeIf(Map::isEmpty);
+    }
+
+    /** 订单明细 → 颜色 → 尺码 → 数量 */
+    private Map<String, Map<String, Integer>> resolveDemand(ProductionOrder order) {
+        Map<String, Map<String, Integer>> demand = new LinkedHashMap<>();
+        for (Map<String, Object> line : ProductionOrderUtils.resolveOrderLines(order.getOrderDetails(), objectMapper)) {
+            String color = ParamUtils.toTrimmedString(line.get("color"));
+            String size = ParamUtils.toTrimmedString(line.get("size"));
+            int qty = ParamUtils.toIntSafe(line.get("quantity"));
+            if (!StringUtils.hasText(color) || !StringUtils.hasText(size) || qty <= 0) continue;
+            demand.computeIfAbsent(color, k -> new LinkedHashMap<>()).merge(size, qty, Integer::sum);
+        }
+        return demand;
+    }
+
+    /** 指定面料优先；否则取 BOM 中用量最大的面料 */
+    private String resolveFabricCode(List<CuttingBom> boms, String requested) {
+        if (StringUtils.hasText(requested)) {
+            return requested;
+        }
+        Map<String, Double> usageByCode = new LinkedHashMap<>();
+        for (CuttingBom bom : boms) {
+            String type = bom.getMaterialType() == null ? "" : bom.getMaterialType().trim().toLowerCase();
+            if (StringUtils.hasText(bom.getMaterialCode()) && type.startsWith("fabric")) {
+                usageByCode.merge(bom.getMaterialCode(), perPieceUsage(bom), Double::sum);
+            }
+        }
+        return usageByCode.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
+    }
+
+    /** 单件耗用（含损耗率） */
+    private double perPieceUsage(CuttingBom bom) {
+        BigDecimal usage = bom.getUsageAmount() != null ? bom.getUsageAmount() : BigDecimal.ZERO;
+        BigDecimal loss = bom.getLossRate() != null ? bom.getLossRate() : BigDecimal.ZERO;
+        return usage.multiply(BigDecimal.ONE.add(loss.divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP)))
+                .doubleValue();
+    }
+
+    /** 料卷颜色匹配：成衣颜色 → BOM 面料颜色 → 单色面料的全部料卷 */
+    private List<String> matchRolls(String color, Set<String> bomColors, Map<String, List<String>> rollIdsByColor) {
+        List<String> matched = rollIdsByColor.get(color);
+        if (matched != null) {
+            return matched;
+        }
+        List<String> byBomColor = new ArrayList<>();
+        for (String bomColor : bomColors) {
+            byBomColor.addAll(rollIdsByColor.getOrDefault(bomColor, List.of()));
+        }
+        if (!byBomColor.isEmpty()) {
+            return byBomColor;
+        }
+        return rollIdsByColor.size() == 1 ? rollIdsByColor.values().iterator().next() : List.of();
+    }
+
+    /** 一床的菲号：每个尺码的件数（配比 × 层数）按每扎件数均分 */
+    private List<Map<String, Object>> toBundles(CutOrderPlanner.Lay lay, int bundleSize) {
+        List<Map<String, Object>> bundles = new ArrayList<>();
+        lay.pieces().forEach((size, total) -> {
+            if (total <= 0) return;
+            int count = (total + bundleSize - 1) / bundleSize;
+            int base = total / count;
+            int extra = total % count;
+            for (int i = 0; i < count; i++) {
+                Map<String, Object> bundle = new LinkedHashMap<>();
+                bundle.put("color", lay.color());
+                bundle.put("size", size);
+                bundle.put("quantity", base + (i < extra ? 1 : 0));
+                bundles.add(bundle);
+            }
+        });
+        return bundles;
+    }
+
+    private int positiveInt(Object value, int fallback) {
+        int v = ParamUtils.toIntSafe(value);
+        return v > 0 ? v : fallback;
+    }
+
+    private double nonNegative(Object value, double fallback) {
+        if (value == null || !StringUtils.hasText(String.valueOf(value))) {
+            return fallback;
+        }
+        try {
+            double v = Double.parseDouble(String.valueOf(value).trim());
+            return v >= 0 ? v : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private record PlanContext(ProductionOrder order, String materialCode, int rollCount, boolean rollsManaged,
+                               Map<String, Map<String, Integer>> alreadyCut, CutOrderPlanner.Plan plan) {}
+}
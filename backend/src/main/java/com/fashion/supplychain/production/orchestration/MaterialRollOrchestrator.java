@@ -28,8 +28,8 @@ import java.util.Map;
  * 职责：
  *  1. generateRolls()     - 为某入库单批量生成料卷记录（PC端调用）
  *  2. scanRoll()          - 仓管扫料卷二维码（小程序调用）
- *                           - action=issue: 确认发料（IN_STOCK → ISSUED）
- *                           - action=confirm_inbound: 重新上架（ISSUED → IN_STOCK）
+ *                           - action=issue: 确认发料（IN_STOCK / ALLOCATED → ISSUED）
+ *                           - action=return: 退回上架（ISSUED → IN_STOCK），或释放排床占用（ALLOCATED → IN_STOCK）
  */
 @Slf4j
 @Service
@@ -63,6 +63,21 @@ public class MaterialRollOrchestrator {
             int rollCount,
             double quantityPerRoll,
             String unit) {
+        return generateRolls(inboundId, rollCount, quantityPerRoll, unit, null);
+    }
+
+    /**
+     * 为某入库单批量生成料卷记录，并登记缸号（裁剪排床按缸号分床）
+     *
+     * @param dyeLot 缸号（可空）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<Map<String, Object>> generateRolls(
+            String inboundId,
+            int rollCount,
+            double quantityPerRoll,
+            String unit,
+            String dyeLot) {
 
         TenantAssert.assertTenantContext();
         Long tenantId = UserContext.tenantId();
@@ -92,6 +107,7 @@ public class MaterialRollOrchestrator {
             roll.setMaterialName(inbound.getMaterialName());
             roll.setMaterialType(inbound.getMaterialType());
             roll.setColor(inbound.getColor());
+            roll.setDyeLot(StringUtils.hasText(dyeLot) ? dyeLot.trim() : null);
             roll.setSpecifications(inbound.getSize());
             roll.setUnit(unit != null ? unit : "件");
             roll.setQuantity(new java.math.BigDecimal(String.valueOf(quantityPerRoll)));
@@ -114,6 +130,7 @@ public class MaterialRollOrchestrator {
             item.put("unit", roll.getUnit());
             item.put("warehouseLocation", roll.getWarehouseLocation());
             item.put("inboundNo", roll.getInboundNo());
+            item.put("dyeLot", roll.getDyeLot());
             result.add(item);
         }
 
@@ -161,6 +178,7 @@ public class MaterialRollOrchestrator {
         result.put("unit", roll.getUnit());
         result.put("warehouseLocation", roll.getWarehouseLocation());
         result.put("inboundNo", roll.getInboundNo());
+        result.put("dyeLot", roll.getDyeLot());
         result.put("currentStatus", roll.getStatus());
 
         if ("query".equals(action)) {
@@ -170,8 +188,8 @@ public class MaterialRollOrchestrator {
         }
 
         if ("issue".equals(action)) {
-            // 发料出库：IN_STOCK → ISSUED
-            if (!"IN_STOCK".equals(roll.getStatus())) {
+            // 发料出库：IN_STOCK / ALLOCATED（已排床）→ ISSUED
+            if (!"IN_STOCK".equals(roll.getStatus()) && !"ALLOCATED".equals(roll.getStatus())) {
                 throw new RuntimeException("该料卷已发料（状态：" + statusLabel(roll.getStatus()) + "），不能重复操作");
             }
             roll.setStatus("ISSUED");
@@ -191,14 +209,16 @@ public class MaterialRollOrchestrator {
             log.info("料卷发料: rollCode={}, operator={}, cuttingOrder={}", rollCode, operatorName, cuttingOrderNo);
 
         } else if ("return".equals(action)) {
-            // 退回：ISSUED → IN_STOCK
-            if (!"ISSUED".equals(roll.getStatus())) {
+            // 退回：ISSUED → IN_STOCK；ALLOCATED → IN_STOCK 为释放排床占用（未出库，库存不变）
+            boolean allocated = "ALLOCATED".equals(roll.getStatus());
+            if (!"ISSUED".equals(roll.getStatus()) && !allocated) {
                 throw new RuntimeException("该料卷当前状态为「" + statusLabel(roll.getStatus()) + "」，无需退回");
             }
             // ⚠️ 用 LambdaUpdateWrapper 显式 SET NULL（updateById 默认跳过 null 字段）
             LambdaUpdateWrapper<MaterialRoll> rollUw = new LambdaUpdateWrapper<>();
             rollUw.eq(MaterialRoll::getId, roll.getId())
                   .set(MaterialRoll::getStatus, "IN_STOCK")
+                  .set(MaterialRoll::getIssuedOrderId, null)
                   .set(MaterialRoll::getIssuedOrderNo, null)
                   .set(MaterialRoll::getIssuedTime, null)
                   .set(MaterialRoll::getIssuedById, null)
@@ -206,12 +226,16 @@ public class MaterialRollOrchestrator {
                   .set(MaterialRoll::getUpdateTime, LocalDateTime.now());
             materialRollService.update(rollUw);
 
-            // 退料归还库存数量
-            increaseStockForRoll(roll);
+            // 退料归还库存数量（排床占用从未扣减库存）
+            if (!allocated) {
+                increaseStockForRoll(roll);
+            }
 
             result.put("action", "return");
             result.put("newStatus", "IN_STOCK");
-            result.put("message", "退回成功！" + roll.getMaterialName() + " 已重新入库");
+            result.put("message", allocated
+                    ? "已释放排床占用！" + roll.getMaterialName() + " 可重新参与排床"
+                    : "退回成功！" + roll.getMaterialName() + " 已重新入库");
             log.info("料卷退回: rollCode={}, operator={}", rollCode, operatorName);
 
         } else {
@@ -290,10 +314,11 @@ public class MaterialRollOrchestrator {
 
     private String statusLabel(String status) {
         return switch (status) {
-            case "IN_STOCK" -> "在库";
-            case "ISSUED"   -> "已发料";
-            case "RETURNED" -> "已退回";
-            default         -> status;
+            case "IN_STOCK"  -> "在库";
+            case "ALLOCATED" -> "已排床";
+            case "ISSUED"    -> "已发料";
+            case "RETURNED"  -> "已退回";
+            default          -> status;
         };
     }
 }
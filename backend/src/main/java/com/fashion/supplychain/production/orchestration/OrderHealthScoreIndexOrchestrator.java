@@ -0,0 +1,365 @@
+package com.fashion.supplychain.production.orchestration;
+
+import com.fashion.supplychain.production.dto.response.OrderHealthScoreDTO;
+import com.fashion.supplychain.production.entity.ProductionOrder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 订单健康分持久化 + 内存有序索引。
+ *
+ * 写入侧（由 OrderHealthScoreJob 在持锁实例上驱动）：
+ * 1. 按 t_production_order.update_time 水位找出变化的订单重算，结果未变不改 update_time；
+ * 2. 交期分档跨界日（rescore_date）到期的订单每天凌晨重算（得分只随日期在 14/7/3/0 天边界变化）；
+ * 3. 每晚全量重扫兜底（绕过 update_time 的写入、物理删除）；
+ * 4. 扫码进度变化时 {@link #onOrderChanged} 立即重算单个订单。
+ *
+ * 读取侧（每个实例）：
+ * 租户首次查询时从 t_order_health_score 装载到按 (score, orderId) 排序的 TreeSet，
+ * 之后每 10 秒按 t_order_health_score.update_time 增量同步；top-N 与分档直方图只读内存。
+ *
+ * SQL 走 JdbcTemplate（不经租户拦截器），租户条件显式拼接。
+ */
+@Slf4j
+@Service
+public class OrderHealthScoreIndexOrchestrator {
+
+    private static final int PAGE_SIZE = 1000;
+
+    /** 水位回看：覆盖 update_time 早于提交时刻的长事务 */
+    private static final long OVERLAP_MINUTES = 2;
+
+    private static final String ORDER_COLUMNS = "id, tenant_id, order_no, production_progress, expected_ship_date, "
+            + "material_arrival_rate, procurement_manually_completed, delete_flag";
+
+    private static final String SCORE_COLUMNS = "tenant_id, order_id, order_no, score, progress_score, "
+            + "deadline_score, procurement_score, active";
+
+    private static final String UPSERT_SQL = "INSERT INTO t_order_health_score (tenant_id, order_id, order_no, score, "
+            + "progress_score, deadline_score, procurement_score, rescore_date, active, update_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, NOW()) ON DUPLICATE KEY UPDATE "
+            // update_time 必须放在最前：MySQL 按书写顺序赋值，此时比较的还是旧值
+            + "update_time = IF(score <> VALUES(score) OR progress_score <> VALUES(progress_score) "
+            + "OR deadline_score <> VALUES(deadline_score) OR procurement_score <> VALUES(procurement_score) "
+            + "OR active <> VALUES(active) OR NOT (order_no <=> VALUES(order_no)), NOW(), update_time), "
+            + "order_no = VALUES(order_no), score = VALUES(score), progress_score = VALUES(progress_score), "
+            + "deadline_score = VALUES(deadline_score), procurement_score = VALUES(procurement_score), "
+            + "rescore_date = VALUES(rescore_date), active = VALUES(active)";
+
+    private static final int[] DEADLINE_BOUNDARY_DAYS = {14, 7, 3, 0};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderHealthScoreOrchestrator scorer;
+
+    /** 写入侧水位（本实例内存；重启后首轮全量重扫） */
+    private volatile LocalDateTime orderWatermark;
+
+    /** 读取侧水位 */
+    private volatile LocalDateTime indexWatermark;
+
+    private final Map<Long, TenantIndex> tenants = new ConcurrentHashMap<>();
+
+    // ─── 读取 ────────────────────────────────────────────────────────────────
+
+    /**
+     * 租户全部订单得分（风险从高到低，即分数升序）
+     */
+    public List<OrderHealthScoreDTO> listAll(Long tenantId) {
+        return index(tenantId).head(Integer.MAX_VALUE, Integer.MAX_VALUE).stream().map(this::toDto).toList();
+    }
+
+    /**
+     * 分数低于 maxScoreExclusive 的风险最高 n 单
+     */
+    public List<OrderHealthScoreDTO> topRisk(Long tenantId, int n, int maxScoreExclusive) {
+        return index(tenantId).head(n, maxScoreExclusive).stream().map(this::toDto).toList();
+    }
+
+    /**
+     * 分档直方图：NORMAL / WARNING / CRITICAL → 订单数
+     */
+    public Map<String, Integer> bandHistogram(Long tenantId) {
+        int[] bands = index(tenantId).bands();
+        Map<String, Integer> m = new LinkedHashMap<>();
+        m.put("NORMAL", bands[0]);
+        m.put("WARNING", bands[1]);
+        m.put("CRITICAL", bands[2]);
+        return m;
+    }
+
+    private OrderHealthScoreDTO toDto(Entry e) {
+        OrderHealthScoreDTO dto = new OrderHealthScoreDTO();
+        dto.setOrderId(e.orderId);
+        dto.setOrderNo(e.orderNo);
+        dto.setScore(e.score);
+        dto.setLevel(scorer.scoreToLevel(e.score));
+        dto.setBadge(scorer.scoreToBadge(e.score));
+        dto.setProgressScore(e.progressScore);
+        dto.setDeadlineScore(e.deadlineScore);
+        dto.setProcurementScore(e.procurementScore);
+        return dto;
+    }
+
+    private TenantIndex index(Long tenantId) {
+        if (tenantId == null) {
+            return new TenantIndex();
+        }
+        return tenants.computeIfAbsent(tenantId, this::loadTenant);
+    }
+
+    private TenantIndex loadTenant(Long tenantId) {
+        List<Entry> rows = jdbcTemplate.query("SELECT " + SCORE_COLUMNS
+                + " FROM t_order_health_score WHERE tenant_id = ? AND active = 1", ENTRY_MAPPER, tenantId);
+        if (rows.isEmpty()) {
+            // 尚未完成首轮评分（新部署 / 新租户）：当场为该租户评分一次
+            rescoreWhere("tenant_id = ?", tenantId);
+            rows = jdbcTemplate.query("SELECT " + SCORE_COLUMNS
+                    + " FROM t_order_health_score WHERE tenant_id = ? AND active = 1", ENTRY_MAPPER, tenantId);
+        }
+        TenantIndex idx = new TenantIndex();
+        rows.forEach(idx::apply);
+        return idx;
+    }
+
+    /**
+     * 各实例把 t_order_health_score 的变化同步到已装载租户的内存索引
+     */
+    @Scheduled(fixedDelay = 10_000, initialDelay = 30_000)
+    public void syncIndex() {
+        LocalDateTime upper = jdbcTemplate.queryForObject("SELECT NOW()", LocalDateTime.class);
+        LocalDateTime since = indexWatermark;
+        indexWatermark = upper;
+        if (since == null || tenants.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query("SELECT " + SCORE_COLUMNS + " FROM t_order_health_score WHERE update_time > ? AND update_time <= ?",
+                rs -> {
+                    TenantIndex idx = tenants.get(rs.getLong("tenant_id"));
+                    if (idx != null) {
+                        idx.apply(ENTRY_MAPPER.mapRow(rs, 0));
+                    }
+                }, since.minusMinutes(OVERLAP_MINUTES), upper);
+    }
+
+    // ─── 写入 ────────────────────────────────────────────────────────────────
+
+    /**
+     * 按订单 update_time 水位重算变化的订单；首轮（含重启后）全量
+     */
+    public void rescoreChanged() {
+        LocalDateTime upper = jdbcTemplate.queryForObject("SELECT NOW()", LocalDateTime.class);
+        LocalDateTime since = orderWatermark;
+        int n;
+        if (since == null) {
+            n = rescoreAll();
+        } else {
+            n = rescoreWhere("update_time > ? AND update_time <= ?", since.minusMinutes(OVERLAP_MINUTES), upper);
+        }
+        orderWatermark = upper;
+        if (n > 0) {
+            log.debug("[HealthScore] 重算订单 {} 个", n);
+        }
+    }
+
+    /**
+     * 交期分档跨界日已到的订单重算
+     */
+    public void rescoreDue() {
+        List<String> ids = jdbcTemplate.queryForList(
+                "SELECT order_id FROM t_order_health_score WHERE active = 1 AND rescore_date <= CURDATE()", String.class);
+        int n = 0;
+        for (int i = 0; i < ids.size(); i += PAGE_SIZE) {
+            List<String> chunk = ids.subList(i, Math.min(ids.size(), i + PAGE_SIZE));
+            n += rescoreWhere("id IN (" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")",
+                    chunk.toArray());
+        }
+        log.info("[HealthScore] 交期跨档重算完成: {} 个订单", n);
+    }
+
+    /**
+     * 全量重扫（按 id 分页），并停用订单已物理删除的得分行
+     */
+    public int rescoreAll() {
+        int total = 0;
+        String lastId = "";
+        while (true) {
+            List<ProductionOrder> page = jdbcTemplate.query("SELECT " + ORDER_COLUMNS
+                    + " FROM t_production_order WHERE id > ? AND tenant_id IS NOT NULL ORDER BY id LIMIT " + PAGE_SIZE,
+                    ORDER_MAPPER, lastId);
+            if (page.isEmpty()) {
+                break;
+            }
+            upsert(page);
+            total += page.size();
+            lastId = page.get(page.size() - 1).getId();
+        }
+        jdbcTemplate.update("UPDATE t_order_health_score s LEFT JOIN t_production_order o ON o.id = s.order_id "
+                + "SET s.update_time = NOW(), s.active = 0 WHERE s.active = 1 AND o.id IS NULL");
+        return total;
+    }
+
+    /**
+     * 单个订单输入变化（扫码进度等）时立即重算
+     */
+    public void onOrderChanged(ProductionOrder order) {
+        if (order == null || order.getId() == null || order.getTenantId() == null) {
+            return;
+        }
+        try {
+            Entry e = upsert(List.of(order)).get(0);
+            TenantIndex idx = tenants.get(order.getTenantId());
+            if (idx != null) {
+                idx.apply(e);
+            }
+        } catch (Exception ex) {
+            log.warn("[HealthScore] 订单重算失败 orderId={}: {}", order.getId(), ex.getMessage());
+        }
+    }
+
+    private int rescoreWhere(String condition, Object... args) {
+        List<ProductionOrder> orders = jdbcTemplate.query(
+                "SELECT " + ORDER_COLUMNS + " FROM t_production_order WHERE " + condition, ORDER_MAPPER, args);
+        for (int i = 0; i < orders.size(); i += PAGE_SIZE) {
+            upsert(orders.subList(i, Math.min(orders.size(), i + PAGE_SIZE)));
+        }
+        return orders.size();
+    }
+
+    private List<Entry> upsert(List<ProductionOrder> orders) {
+        LocalDate today = LocalDate.now();
+        List<Entry> entries = new ArrayList<>(orders.size());
+        List<Object[]> args = new ArrayList<>(orders.size());
+        for (ProductionOrder o : orders) {
+            OrderHealthScoreDTO dto = scorer.calculateScoreDTO(o);
+            boolean active = o.getDeleteFlag() == null || o.getDeleteFlag() == 0;
+            Entry e = new Entry(o.getTenantId(), o.getId(), o.getOrderNo(), dto.getScore(),
+                    dto.getProgressScore(), dto.getDeadlineScore(), dto.getProcurementScore(), active);
+            entries.add(e);
+            LocalDate rescoreDate = nextDeadlineBoundary(o.getExpectedShipDate(), today);
+            args.add(new Object[]{e.tenantId, e.orderId, e.orderNo, e.score, e.progressScore, e.deadlineScore,
+                    e.procurementScore, rescoreDate, active ? 1 : 0});
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+        return entries;
+    }
+
+    /** 交期得分下一次变化的日期（剩余天数到达 14/7/3/0 的那天）；无交期或已逾期返回 null */
+    static LocalDate nextDeadlineBoundary(LocalDateTime expectedShipDate, LocalDate today) {
+        if (expectedShipDate == null) {
+            return null;
+        }
+        LocalDate shipDay = expectedShipDate.toLocalDate();
+        long remaining = ChronoUnit.DAYS.between(today, shipDay);
+        for (int boundary : DEADLINE_BOUNDARY_DAYS) {
+            if (remaining > boundary) {
+                return shipDay.minusDays(boundary);
+            }
+        }
+        return null;
+    }
+
+    private static final RowMapper<ProductionOrder> ORDER_MAPPER = (rs, i) -> {
+        ProductionOrder o = new ProductionOrder();
+        o.setId(rs.getString("id"));
+        o.setTenantId(rs.getLong("tenant_id"));
+        o.setOrderNo(rs.getString("order_no"));
+        o.setProductionProgress(rs.getObject("production_progress", Integer.class));
+        Timestamp ship = rs.getTimestamp("expected_ship_date");
+        o.setExpectedShipDate(ship != null ? ship.toLocalDateTime() : null);
+        o.setMaterialArrivalRate(rs.getObject("material_arrival_rate", Integer.class));
+        o.setProcurementManuallyCompleted(rs.getObject("procurement_manually_completed", Integer.class));
+        o.setDeleteFlag(rs.getObject("delete_flag", Integer.class));
+        return o;
+    };
+
+    private static final RowMapper<Entry> ENTRY_MAPPER = (rs, i) -> new Entry(
+            rs.getLong("tenant_id"), rs.getString("order_id"), rs.getString("order_no"), rs.getInt("score"),
+            rs.getInt("progress_score"), rs.getInt("deadline_score"), rs.getInt("procurement_score"),
+            rs.getInt("active") == 1);
+
+    private static final class Entry {
+        final Long tenantId;
+        final String orderId;
+        final String orderNo;
+        final int score;
+        final int progressScore;
+        final int deadlineScore;
+        final int procurementScore;
+        final boolean active;
+
+        Entry(Long tenantId, String orderId, String orderNo, int score, int progressScore,
+              int deadlineScore, int procurementScore, boolean active) {
+            this.tenantId = tenantId;
+            this.orderId = orderId;
+            this.orderNo = orderNo;
+            this.score = score;
+            this.progressScore = progressScore;
+            this.deadlineScore = deadlineScore;
+            this.procurementScore = procurementScore;
+            this.active = active;
+        }
+    }
+
+    /** 单租户有序索引：score 升序（风险高在前），同分按 orderId */
+    private static final class TenantIndex {
+        private final TreeSet<Entry> sorted = new TreeSet<>(
+                Comparator.comparingInt((Entry e) -> e.score).thenComparing(e -> e.orderId));
+        private final Map<String, Entry> byId = new HashMap<>();
+        private final int[] bands = new int[3];
+
+        synchronized void apply(Entry e) {
+            Entry old = byId.remove(e.orderId);
+            if (old != null) {
+                sorted.remove(old);
+                bands[band(old.score)]--;
+            }
+            if (e.active) {
+                byId.put(e.orderId, e);
+                sorted.add(e);
+                bands[band(e.score)]++;
+            }
+        }
+
+        synchronized List<Entry> head(int n, int maxScoreExclusive) {
+            List<Entry> out = new ArrayList<>(Math.min(n, sorted.size()));
+            for (Entry e : sorted) {
+                if (out.size() >= n || e.score >= maxScoreExclusive) {
+                    break;
+                }
+                out.add(e);
+            }
+            return out;
+        }
+
+        synchronized int[] bands() {
+            return bands.clone();
+        }
+
+        private static int band(int score) {
+            if (score >= 75) return 0;
+            if (score >= 50) return 1;
+            return 2;
+        }
+    }
+}
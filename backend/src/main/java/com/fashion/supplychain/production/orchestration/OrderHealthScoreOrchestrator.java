@@ -11,10 +11,12 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
- * 订单健康度评分编排器（纯计算，无 DB 写操作）
+ * 订单健康度评分编排器
+ *
+ * 评分规则在本类；租户级排行/分档读取 {@link OrderHealthScoreIndexOrchestrator} 维护的持久化得分索引，
+ * 不再每次加载订单现算（原实现最多 5000 单，超出部分被静默截断）。
  *
  * 三维度加权（总 100 分）：
  *   - 生产进度      40 分：productionProgress × 0.40
@@ -30,6 +32,9 @@ public class OrderHealthScoreOrchestrator {
     @Autowired
     private ProductionOrderService productionOrderService;
 
+    @Autowired
+    private OrderHealthScoreIndexOrchestrator healthScoreIndex;
+
     // ─────────────────────────────────────────────────────────────────────
     // 公开接口
     // ─────────────────────────────────────────────────────────────────────
@@ -68,35 +73,21 @@ public class OrderHealthScoreOrchestrator {
      * 获取租户所有订单的健康度评分（按风险排序）
      */
     public List<OrderHealthScoreDTO> getTenantOrdersHealthScores() {
-        Long tenantId = UserContext.tenantId();
-        List<ProductionOrder> orders = productionOrderService.lambdaQuery()
-                .eq(ProductionOrder::getTenantId, tenantId)
-                .eq(ProductionOrder::getDeleteFlag, 0)
-                .orderByAsc(ProductionOrder::getId)
-                .last("LIMIT 5000")
-                .list();
-
-        return orders.stream()
-                .map(this::calculateScoreDTO)
-                .sorted(Comparator.comparingInt(OrderHealthScoreDTO::getScore))
-                .collect(Collectors.toList());
+        return healthScoreIndex.listAll(UserContext.tenantId());
     }
 
+    /**
+     * 风险最高的 CRITICAL（<50 分）订单
+     */
     public List<OrderHealthScoreDTO> getHighRiskOrders(int limit) {
-        Long tenantId = UserContext.tenantId();
-        List<ProductionOrder> orders = productionOrderService.lambdaQuery()
-                .eq(ProductionOrder::getTenantId, tenantId)
-                .eq(ProductionOrder::getDeleteFlag, 0)
-                .orderByAsc(ProductionOrder::getId)
-                .last("LIMIT " + (limit > 0 ? limit : 100))
-                .list();
+        return healthScoreIndex.topRisk(UserContext.tenantId(), limit > 0 ? limit : 10, 50);
+    }
 
-        return orders.stream()
-                .map(this::calculateScoreDTO)
-                .filter(dto -> dto.getScore() < 50)
-                .sorted(Comparator.comparingInt(OrderHealthScoreDTO::getScore))
-                .limit(limit > 0 ? limit : 10)
-                .collect(Collectors.toList());
+    /**
+     * 健康分分档直方图：NORMAL / WARNING / CRITICAL → 订单数
+     */
+    public Map<String, Integer> getScoreBandHistogram() {
+        return healthScoreIndex.bandHistogram(UserContext.tenantId());
     }
 
     // ─────────────────────────────────────────────────────────────────────
@@ -106,10 +97,10 @@ public class OrderHealthScoreOrchestrator {
     /**
      * 将订单转换为评分 DTO
      */
-    private OrderHealthScoreDTO calculateScoreDTO(ProductionOrder order) {
+    public OrderHealthScoreDTO calculateScoreDTO(ProductionOrder order) {
         int score = calcScore(order);
         String level = scoreToLevel(score);
-        String badge = calculateBadge(score);
+        String badge = scoreToBadge(score);
 
         OrderHealthScoreDTO dto = new OrderHealthScoreDTO();
         dto.setOrderId(order.getId());
@@ -172,12 +163,32 @@ public class OrderHealthScoreOrchestrator {
      */
     private int calculateProcurementScore(ProductionOrder order) {
         Integer procRate = order.getProcurementCompletionRate();
+        if (procRate == null) {
+            procRate = persistedProcurementRate(order);
+        }
         if (procRate == null) {
             return 18;  // 无数据：18分
         }
         return Math.round(procRate * 0.25f);
     }
 
+    /**
+     * 未经 OrderFlowStageFillHelper 填充时，按持久化字段推导采购完成率（口径同 fillProcurementDisplay）：
+     * 直接裁剪单无采购 → null；人工确认完成 → 100；否则取物料到位率
+     */
+    private Integer persistedProcurementRate(ProductionOrder order) {
+        String orderNo = order.getOrderNo();
+        if (orderNo != null && orderNo.trim().toUpperCase().startsWith("CUT")) {
+            return null;
+        }
+        Integer manual = order.getProcurementManuallyCompleted();
+        if (manual != null && manual == 1) {
+            return 100;
+        }
+        Integer arrival = order.getMaterialArrivalRate();
+        return arrival != null ? Math.max(0, Math.min(100, arrival)) : null;
+    }
+
     /**
      * 分数到风险等级
      */
@@ -190,7 +201,7 @@ public class OrderHealthScoreOrchestrator {
     /**
      * 计算徽章
      */
-    private String calculateBadge(int score) {
+    public String scoreToBadge(int score) {
         if (score >= 75) return null;
         if (score >= 50) return "注";
         return "危";
@@ -20,6 +20,9 @@ public interface CuttingBundleService extends IService<CuttingBundle> {
 
     int sumEffectiveQuantity(String orderId);
 
+    /** 订单已生成菲号的有效数量：颜色 → 尺码 → 件数（不含已拆分的父菲号） */
+    Map<String, Map<String, Integer>> sumEffectiveQuantityByColorSize(String orderId);
+
     void deleteByOrderId(String orderId);
 
     int revertFactoryIdByOrderId(String orderId);
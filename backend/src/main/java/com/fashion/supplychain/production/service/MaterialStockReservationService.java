@@ -0,0 +1,81 @@
+package com.fashion.supplychain.production.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.fashion.supplychain.production.entity.MaterialStockReservation;
+
+import java.util.List;
+
+/**
+ * 物料库存预留台账 Service
+ * <p>领料分配先在台账上原子预留（同步累加 locked_quantity），确认出库、撤销、过期只翻转预留状态，
+ * 库存按本次翻转的预留集合做一次集合式回写。
+ */
+public interface MaterialStockReservationService extends IService<MaterialStockReservation> {
+
+    /** 分配策略 */
+    enum AllocationStrategy {
+        /** 先入库先出（按最近入库时间、创建时间） */
+        FIFO,
+        /** 按库位：优先指定库位，其余按库位聚集，减少跨库位拣货 */
+        BY_LOCATION;
+
+        public static AllocationStrategy of(String value) {
+            if (value != null) {
+                for (AllocationStrategy s : values()) {
+                    if (s.name().equalsIgnoreCase(value.trim())) {
+                        return s;
+                    }
+                }
+            }
+            return FIFO;
+        }
+    }
+
+    /** 单条库存记录上的预留数量 */
+    record Allocation(String stockId, int quantity) {}
+
+    /**
+     * 预留结果
+     *
+     * @param batchId     预留批次号（领料单保存后调用 {@link #bindPicking} 绑定）
+     * @param reservedQty 实际预留数量
+     * @param allocations 按分配顺序的库存行（同一库存行已合并）
+     */
+    record ReservationResult(String batchId, int requestedQty, int reservedQty, List<Allocation> allocations) {
+        public boolean isEmpty() {
+            return reservedQty <= 0;
+        }
+    }
+
+    /**
+     * 原子预留库存（独立短事务提交，不与调用方事务共享行锁）。
+     * 调用方事务回滚时自动释放本次预留；未绑定领料单的预留短时间后过期。
+     *
+     * @param allowPartial false 时不足即不预留（reservedQty 为当时最多可预留的数量）
+     */
+    ReservationResult reserve(String purchaseId, String materialCode, String color, String size, int quantity,
+                              AllocationStrategy strategy, String preferredLocation, boolean allowPartial);
+
+    /** 释放尚未绑定领料单的预留批次（调用方吞掉异常、不回滚时使用） */
+    void releaseBatch(String batchId);
+
+    /** 领料单保存后绑定预留批次 */
+    void bindPicking(String batchId, String pickingId);
+
+    /** 领料单是否走预留台账（旧单据无台账记录，走逐明细库存回写） */
+    boolean hasReservations(String pickingId);
+
+    /**
+     * 确认出库：预留转为已出库，并扣减库存、释放锁定。
+     * 已过期的预留按当前可用量补扣，不足时抛出异常。
+     */
+    void consumeForPicking(String pickingId);
+
+    /**
+     * 撤销领料单：未出库的预留释放锁定；已出库的预留数量加回库存
+     */
+    void releaseForPicking(String pickingId, boolean wasCompleted);
+
+    /** 释放到期的预留（跨租户，定时任务调用），返回释放行数 */
+    int expireDue();
+}
@@ -5,6 +5,7 @@ import com.fashion.supplychain.common.ProcessSynonymMapping;
 import com.fashion.supplychain.production.entity.ProductionOrder;
 import com.fashion.supplychain.production.entity.ScanRecord;
 import com.fashion.supplychain.production.executor.OrderProgressWebSocketServer;
+import com.fashion.supplychain.production.orchestration.OrderHealthScoreIndexOrchestrator;
 import com.fashion.supplychain.production.mapper.ProductionOrderMapper;
 import com.fashion.supplychain.production.mapper.ScanRecordMapper;
 import com.fashion.supplychain.template.service.TemplateLibraryService;
@@ -52,6 +53,9 @@ public class ProductionOrderProgressRecomputeService {
     @Autowired(required = false)
     private OrderProgressWebSocketServer orderProgressWebSocketServer;
 
+    @Autowired(required = false)
+    private OrderHealthScoreIndexOrchestrator orderHealthScoreIndex;
+
     @Async
     public void recomputeProgressAsync(String orderId) {
         try {
@@ -344,6 +348,10 @@ public class ProductionOrderProgressRecomputeService {
         if (updated <= 0) { log.error("进度更新失败（乐观锁冲突耗尽重试次数）: orderId={}", oid); return null; }
         ProductionOrder updatedOrder = productionOrderMapper.selectById(oid);
         broadcastProgressIfChanged(updatedOrder, prevProgress, prevStatus, prevDoneQty);
+        if (orderHealthScoreIndex != null && updatedOrder != null
+                && !Objects.equals(prevProgress, updatedOrder.getProductionProgress())) {
+            orderHealthScoreIndex.onOrderChanged(updatedOrder);
+        }
         return updatedOrder;
     }
 
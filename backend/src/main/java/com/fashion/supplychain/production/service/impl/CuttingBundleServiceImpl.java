@@ -27,6 +27,7 @@ import com.fashion.supplychain.production.orchestration.ProductionProcessTrackin
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -569,6 +570,27 @@ public class CuttingBundleServiceImpl extends ServiceImpl<CuttingBundleMapper, C
         return total;
     }
 
+    @Override
+    public Map<String, Map<String, Integer>> sumEffectiveQuantityByColorSize(String orderId) {
+        Map<String, Map<String, Integer>> result = new LinkedHashMap<>();
+        String oid = StringUtils.hasText(orderId) ? orderId.trim() : null;
+        if (!StringUtils.hasText(oid)) return result;
+        LambdaQueryWrapper<CuttingBundle> wrapper = new LambdaQueryWrapper<CuttingBundle>()
+                .select(CuttingBundle::getColor, CuttingBundle::getSize, CuttingBundle::getQuantity)
+                .eq(CuttingBundle::getProductionOrderId, oid)
+                .ne(CuttingBundle::getSplitStatus, "split_parent");
+        List<CuttingBundle> bundles = this.list(wrapper);
+        if (bundles != null) {
+            for (CuttingBundle b : bundles) {
+                if (b == null || b.getQuantity() == null) continue;
+                String color = b.getColor() == null ? "" : b.getColor().trim();
+                String size = b.getSize() == null ? "" : b.getSize().trim();
+                result.computeIfAbsent(color, k -> new LinkedHashMap<>()).merge(size, b.getQuantity(), Integer::sum);
+            }
+        }
+        return result;
+    }
+
     @Override
     public void deleteByOrderId(String orderId) {
         String oid = StringUtils.hasText(orderId) ? orderId.trim() : null;
@@ -0,0 +1,233 @@
+package com.fashion.supplychain.production.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.production.entity.MaterialStockReservation;
+import com.fashion.supplychain.production.mapper.MaterialStockReservationMapper;
+import com.fashion.supplychain.production.service.MaterialStockReservationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 物料库存预留台账实现
+ *
+ * <p>预留在独立的 READ COMMITTED 短事务里完成：分配计划是一条 INSERT ... SELECT（窗口函数累计可用量，
+ * 读最新已提交数据且不加共享锁），落锁是一条多表 UPDATE（只锁被分配的库存行，且在预留事务提交时即释放）。
+ * 并发领取抢占导致的冲突行删除后按缺口重新分配，最多 {@link #MAX_ATTEMPTS} 轮。
+ * 确认出库、撤销在调用方事务内执行：先翻转预留状态，再按操作令牌对库存做一次集合式回写。
+ */
+@Service
+@Slf4j
+public class MaterialStockReservationServiceImpl
+        extends ServiceImpl<MaterialStockReservationMapper, MaterialStockReservation>
+        implements MaterialStockReservationService {
+
+    private static final int MAX_ATTEMPTS = 3;
+    /** 未绑定领料单的预留占位时长：调用方事务异常中断且回滚回调未执行时，由过期任务兜底释放 */
+    private static final int UNBOUND_HOLD_MINUTES = 15;
+    private static final int EXPIRE_BATCH_SIZE = 500;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${material.reservation.ttl-hours:72}")
+    private long ttlHours;
+
+    private volatile TransactionTemplate reserveTx;
+
+    @Override
+    public ReservationResult reserve(String purchaseId, String materialCode, String color, String size, int quantity,
+                                     AllocationStrategy strategy, String preferredLocation, boolean allowPartial) {
+        String batchId = UUID.randomUUID().toString();
+        if (quantity <= 0 || !StringUtils.hasText(materialCode)) {
+            return new ReservationResult(batchId, quantity, 0, List.of());
+        }
+        Long tenantId = UserContext.tenantId();
+        AllocationStrategy s = strategy != null ? strategy : AllocationStrategy.FIFO;
+        LocalDateTime holdUntil = LocalDateTime.now().plusMinutes(UNBOUND_HOLD_MINUTES);
+
+        Integer reserved = reserveTx().execute(tx -> {
+            int total = 0;
+            int seqBase = 0;
+            for (int attempt = 0; attempt < MAX_ATTEMPTS && total < quantity; attempt++) {
+                int planned = baseMapper.insertPlan(tenantId, batchId, purchaseId, materialCode, color, size,
+                        quantity - total, s.name(), preferredLocation, seqBase, holdUntil);
+                if (planned == 0) {
+                    break;
+                }
+                baseMapper.applyPlan(tenantId, batchId);
+                int conflicts = baseMapper.deletePlanned(tenantId, batchId);
+                total = baseMapper.sumReserved(tenantId, batchId);
+                seqBase += planned;
+                if (conflicts == 0) {
+                    // 计划全部落锁：要么已满足，要么计划时可用量就不够，再分配也不会更多
+                    break;
+                }
+                log.debug("[库存预留] 并发冲突重新分配: materialCode={}, attempt={}, conflicts={}",
+                        materialCode, attempt + 1, conflicts);
+            }
+            if (total < quantity && !allowPartial) {
+                tx.setRollbackOnly();
+            }
+            return total;
+        });
+        int reservedQty = reserved != null ? reserved : 0;
+        if (reservedQty < quantity && !allowPartial) {
+            log.info("[库存预留] 库存不足未预留: materialCode={}, need={}, available={}", materialCode, quantity, reservedQty);
+            return new ReservationResult(batchId, quantity, reservedQty, List.of());
+        }
+        if (reservedQty > 0) {
+            releaseOnRollback(tenantId, batchId);
+        }
+        return new ReservationResult(batchId, quantity, reservedQty, loadAllocations(batchId));
+    }
+
+    private List<Allocation> loadAllocations(String batchId) {
+        List<MaterialStockReservation> rows = lambdaQuery()
+                .eq(MaterialStockReservation::getBatchId, batchId)
+                .eq(MaterialStockReservation::getStatus, MaterialStockReservation.STATUS_RESERVED)
+                .orderByAsc(MaterialStockReservation::getSeq)
+                .list();
+        Map<String, Integer> byStock = new LinkedHashMap<>();
+        for (MaterialStockReservation row : rows) {
+            byStock.merge(row.getStockId(), row.getQuantity() != null ? row.getQuantity() : 0, Integer::sum);
+        }
+        List<Allocation> allocations = new ArrayList<>(byStock.size());
+        byStock.forEach((stockId, qty) -> allocations.add(new Allocation(stockId, qty)));
+        return allocations;
+    }
+
+    /** 预留已独立提交：调用方事务回滚时在新事务里释放 */
+    private void releaseOnRollback(Long tenantId, String batchId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    try {
+                        reserveTx().executeWithoutResult(tx -> release(tenantId, batchId, null));
+                    } catch (Exception e) {
+                        log.warn("[库存预留] 回滚释放失败，等待过期任务释放: batchId={}, err={}", batchId, e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void releaseBatch(String batchId) {
+        if (StringUtils.hasText(batchId)) {
+            Long tenantId = UserContext.tenantId();
+            reserveTx().executeWithoutResult(tx -> release(tenantId, batchId, null));
+        }
+    }
+
+    @Override
+    public void bindPicking(String batchId, String pickingId) {
+        if (!StringUtils.hasText(batchId) || !StringUtils.hasText(pickingId)) {
+            return;
+        }
+        baseMapper.bindPicking(UserContext.tenantId(), batchId, pickingId, LocalDateTime.now().plusHours(ttlHours));
+    }
+
+    @Override
+    public boolean hasReservations(String pickingId) {
+        return StringUtils.hasText(pickingId) && baseMapper.countByPicking(UserContext.tenantId(), pickingId) > 0;
+    }
+
+    @Override
+    public void consumeForPicking(String pickingId) {
+        Long tenantId = UserContext.tenantId();
+        String token = UUID.randomUUID().toString();
+        if (baseMapper.transition(tenantId, null, pickingId, MaterialStockReservation.STATUS_RESERVED,
+                MaterialStockReservation.STATUS_CONSUMED, token) > 0) {
+            int stocks = baseMapper.countStocksByToken(token);
+            if (baseMapper.consumeReservedByToken(tenantId, token) < stocks) {
+                throw new IllegalStateException("库存不足，确认出库失败（库存记录已变更或不存在）");
+            }
+        }
+        String expiredToken = UUID.randomUUID().toString();
+        if (baseMapper.transition(tenantId, null, pickingId, MaterialStockReservation.STATUS_EXPIRED,
+                MaterialStockReservation.STATUS_CONSUMED, expiredToken) > 0) {
+            int stocks = baseMapper.countStocksByToken(expiredToken);
+            if (baseMapper.consumeUnlockedByToken(tenantId, expiredToken) < stocks) {
+                throw new IllegalStateException("领料预留已过期，且库存已被其他领料占用，请撤销后重新领取");
+            }
+            log.info("[库存预留] 过期预留按当前可用量出库: pickingId={}", pickingId);
+        }
+    }
+
+    @Override
+    public void releaseForPicking(String pickingId, boolean wasCompleted) {
+        Long tenantId = UserContext.tenantId();
+        if (wasCompleted) {
+            String token = UUID.randomUUID().toString();
+            if (baseMapper.transition(tenantId, null, pickingId, MaterialStockReservation.STATUS_CONSUMED,
+                    MaterialStockReservation.STATUS_RETURNED, token) > 0) {
+                baseMapper.restockByToken(tenantId, token);
+            }
+            return;
+        }
+        release(tenantId, null, pickingId);
+        // 已过期的预留锁定早已释放，只翻转状态
+        baseMapper.transition(tenantId, null, pickingId, MaterialStockReservation.STATUS_EXPIRED,
+                MaterialStockReservation.STATUS_RELEASED, UUID.randomUUID().toString());
+    }
+
+    private void release(Long tenantId, String batchId, String pickingId) {
+        String token = UUID.randomUUID().toString();
+        if (baseMapper.transition(tenantId, batchId, pickingId, MaterialStockReservation.STATUS_RESERVED,
+                MaterialStockReservation.STATUS_RELEASED, token) > 0) {
+            baseMapper.unlockByToken(token);
+        }
+    }
+
+    @Override
+    public int expireDue() {
+        int total = 0;
+        while (true) {
+            String token = UUID.randomUUID().toString();
+            Integer expired = reserveTx().execute(tx -> {
+                int n = baseMapper.expireDue(token, EXPIRE_BATCH_SIZE);
+                if (n > 0) {
+                    baseMapper.unlockByToken(token);
+                }
+                return n;
+            });
+            int n = expired != null ? expired : 0;
+            total += n;
+            if (n < EXPIRE_BATCH_SIZE) {
+                return total;
+            }
+        }
+    }
+
+    private TransactionTemplate reserveTx() {
+        TransactionTemplate tx = reserveTx;
+        if (tx == null) {
+            tx = new TransactionTemplate(transactionManager);
+            tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            tx.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+            tx.setTimeout(10);
+            reserveTx = tx;
+        }
+        return tx;
+    }
+}
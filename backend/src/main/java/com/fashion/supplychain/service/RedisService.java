@@ -12,7 +12,9 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -217,6 +219,19 @@ public class RedisService {
         }
     }
 
+    /**
+     * 获取整个Hash（Redis 不可用时返回空 Map）
+     */
+    public Map<Object, Object> hGetAll(String key) {
+        try {
+            Map<Object, Object> entries = redisTemplate.opsForHash().entries(key);
+            return entries != null ? entries : Collections.emptyMap();
+        } catch (Exception e) {
+            logger.error("Redis hGetAll error, key: {}", key, e);
+            return Collections.emptyMap();
+        }
+    }
+
     /**
      * 删除Hash缓存
      */
@@ -4,8 +4,13 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.fashion.supplychain.style.entity.ProductSku;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 @Mapper
 public interface ProductSkuMapper extends BaseMapper<ProductSku> {
 
@@ -38,4 +43,22 @@ public interface ProductSkuMapper extends BaseMapper<ProductSku> {
                                   @Param("inboundQty") int inboundQty,
                                   @Param("inboundUnitPrice") java.math.BigDecimal inboundUnitPrice,
                                   @Param("tenantId") Long tenantId);
+
+    /**
+     * 批量锁定 SKU 行：按 sku_code 排序加锁，所有批量路径加锁顺序一致，避免与出库交叉死锁
+     */
+    @Select("<script>SELECT * FROM t_product_sku WHERE tenant_id = #{tenantId} AND sku_code IN " +
+            "<foreach collection='skuCodes' item='code' open='(' separator=',' close=')'>#{code}</foreach> " +
+            "ORDER BY sku_code FOR UPDATE</script>")
+    List<ProductSku> selectBySkuCodesForUpdate(@Param("skuCodes") Collection<String> skuCodes,
+                                               @Param("tenantId") Long tenantId);
+
+    /**
+     * 一条 UPDATE 应用多个 SKU 的库存增量（key=sku_code, value=增量）
+     */
+    @Update("<script>UPDATE t_product_sku SET stock_quantity = GREATEST(COALESCE(stock_quantity, 0) + CASE sku_code " +
+            "<foreach collection='deltas' index='code' item='delta'>WHEN #{code} THEN #{delta} </foreach>" +
+            "ELSE 0 END, 0), update_time = NOW() WHERE tenant_id = #{tenantId} AND sku_code IN " +
+            "<foreach collection='deltas' index='code' item='delta' open='(' separator=',' close=')'>#{code}</foreach></script>")
+    int batchUpdateStockBySkuCode(@Param("deltas") Map<String, Integer> deltas, @Param("tenantId") Long tenantId);
 }
@@ -14,6 +14,16 @@ public interface ProductSkuService extends IService<ProductSku> {
 
     boolean decreaseStockBySkuCode(String skuCode, int delta);
 
+    /**
+     * 按 sku_code 顺序锁定当前租户的 SKU 行（SELECT ... FOR UPDATE，须在事务内调用）
+     */
+    List<ProductSku> lockBySkuCodes(java.util.Collection<String> skuCodes);
+
+    /**
+     * 一条 UPDATE 批量增加库存（key=skuCode, value=增量），SKU 须已存在
+     */
+    void batchIncreaseStock(java.util.Map<String, Integer> deltas);
+
     List<ProductSku> listByStyleId(Long styleId);
 
     void batchUpdateSkus(Long styleId, List<ProductSku> skuList);
@@ -255,6 +255,26 @@ public class ProductSkuServiceImpl extends ServiceImpl<ProductSkuMapper, Product
         log.info("Updated SKU stock by id: id={}, delta={}", id, delta);
     }
 
+    @Override
+    public List<ProductSku> lockBySkuCodes(java.util.Collection<String> skuCodes) {
+        if (skuCodes == null || skuCodes.isEmpty()) {
+            return java.util.Collections.emptyList();
+        }
+        return baseMapper.selectBySkuCodesForUpdate(skuCodes, UserContext.tenantId());
+    }
+
+    @Override
+    public void batchIncreaseStock(Map<String, Integer> deltas) {
+        if (deltas == null || deltas.isEmpty()) {
+            return;
+        }
+        int rows = baseMapper.batchUpdateStockBySkuCode(deltas, UserContext.tenantId());
+        if (rows < deltas.size()) {
+            throw new IllegalStateException("SKU库存批量更新失败: 期望" + deltas.size() + "行，实际" + rows + "行");
+        }
+        log.info("Batch updated stock for {} SKUs", rows);
+    }
+
     @Override
     public boolean decreaseStockBySkuCode(String skuCode, int delta) {
         if (delta <= 0 || !StringUtils.hasText(skuCode)) {
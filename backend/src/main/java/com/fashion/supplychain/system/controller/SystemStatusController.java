@@ -1,6 +1,7 @@
 package com.fashion.supplychain.system.controller;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fashion.supplychain.auth.VerifiedSessionCache;
 import com.fashion.supplychain.common.Result;
 import com.fashion.supplychain.system.entity.Tenant;
 import com.fashion.supplychain.system.entity.User;
@@ -49,6 +50,9 @@ public class SystemStatusController {
     @Autowired
     private DatabaseStructureHealthService databaseStructureHealthService;
 
+    @Autowired
+    private VerifiedSessionCache verifiedSessionCache;
+
     @Value("${spring.application.name:supplychain}")
     private String applicationName;
 
@@ -155,6 +159,14 @@ public class SystemStatusController {
         return Result.success(databaseStructureHealthService.inspect());
     }
 
+    /**
+     * 鉴权链路状态：会话缓存命中率、失效次数，命中/未命中两类请求的过滤链开销（p50/p99）
+     */
+    @GetMapping("/auth-pipeline")
+    public Result<?> authPipeline() {
+        return Result.success(verifiedSessionCache.getStats());
+    }
+
     /**
      * 数据库连接状态
      */
@@ -2,6 +2,7 @@ package com.fashion.supplychain.system.orchestration;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fashion.supplychain.auth.VerifiedSessionCache;
 import com.fashion.supplychain.service.RedisService;
 import com.fashion.supplychain.system.entity.Permission;
 import com.fashion.supplychain.system.service.PermissionService;
@@ -80,6 +81,10 @@ public class PermissionCalculationEngine {
     @Autowired
     private ObjectMapper objectMapper;
 
+    /** 已验证会话缓存中持有权限 authorities，权限缓存清除时同步失效（含跨节点广播） */
+    @Autowired(required = false)
+    private VerifiedSessionCache verifiedSessionCache;
+
     private final Set<String> brokenCacheWarnedKeys = ConcurrentHashMap.newKeySet();
 
     /**
@@ -563,6 +568,9 @@ public class PermissionCalculationEngine {
         } catch (Exception e) {
             log.warn("清除用户权限缓存失败: userId={}", userId);
         }
+        if (verifiedSessionCache != null) {
+            verifiedSessionCache.invalidateUser(userId);
+        }
     }
 
     /**
@@ -578,6 +586,9 @@ public class PermissionCalculationEngine {
         } catch (Exception e) {
             log.warn("清除角色权限缓存失败: roleId={}", roleId);
         }
+        if (verifiedSessionCache != null) {
+            verifiedSessionCache.invalidateAll();
+        }
     }
 
     /**
@@ -593,6 +604,9 @@ public class PermissionCalculationEngine {
         } catch (Exception e) {
             log.warn("清除租户天花板缓存失败: tenantId={}", tenantId);
         }
+        if (verifiedSessionCache != null) {
+            verifiedSessionCache.invalidateAll();
+        }
     }
 
     /**
@@ -608,6 +622,9 @@ public class PermissionCalculationEngine {
         } catch (Exception e) {
             log.warn("[PermissionCache] 批量清除用户权限缓存失败，权限变更将在 TTL(30分钟)后自动生效: {}", e.getMessage());
         }
+        if (verifiedSessionCache != null) {
+            verifiedSessionCache.invalidateAll();
+        }
     }
 
     private static final String ALL_PERMS_ENTITY_CACHE_KEY = "perm:all_entities";
@@ -2,6 +2,7 @@ package com.fashion.supplychain.system.orchestration;
 
 import com.fashion.supplychain.auth.AuthTokenService;
 import com.fashion.supplychain.auth.TokenSubject;
+import com.fashion.supplychain.auth.VerifiedSessionCache;
 import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.system.entity.LoginLog;
 import com.fashion.supplychain.system.entity.Tenant;
@@ -44,6 +45,8 @@ public class UserLoginHelper {
     private TenantService tenantService;
     @Autowired(required = false)
     private StringRedisTemplate stringRedisTemplate;
+    @Autowired(required = false)
+    private VerifiedSessionCache verifiedSessionCache;
     @Autowired
     private SmsLoginHelper smsLoginHelper;
 
@@ -198,6 +201,10 @@ public class UserLoginHelper {
                 log.warn("[密码版本] 更新失败（Redis 不可用），旧 token 不会立即失效 userId={}", userId);
             }
         }
+        // 各节点已缓存的会话立即丢弃，下次请求重新校验 pwd:ver
+        if (verifiedSessionCache != null && userId != null) {
+            verifiedSessionCache.invalidateUser(userId);
+        }
     }
 
     private Map<String, Object> buildLoginPayload(User user, String scene) {
@@ -12,6 +12,7 @@ import com.fashion.supplychain.template.entity.TemplateLibrary;
 import com.fashion.supplychain.template.entity.TemplateOperationLog;
 import com.fashion.supplychain.template.event.TemplatePriceChangedEvent;
 import com.fashion.supplychain.template.orchestration.TemplateStyleOrchestrator;
+import com.fashion.supplychain.template.resolver.TemplateResolver;
 import com.fashion.supplychain.template.service.TemplateLibraryService;
 import com.fashion.supplychain.template.service.TemplateOperationLogService;
 import lombok.extern.slf4j.Slf4j;
@@ -42,6 +43,7 @@ public class TemplateMutationHelper {
     @Autowired private ApplicationEventPublisher eventPublisher;
     @Autowired private ObjectMapper objectMapper;
     @Autowired private TemplateQueryHelper templateQueryHelper;
+    @Autowired private TemplateResolver templateResolver;
 
 
     public Map<String, Object> saveProcessPriceTemplate(Map<String, Object> body) {
@@ -255,6 +257,7 @@ public class TemplateMutationHelper {
         if (!ok) {
             throw new IllegalStateException("保存失败");
         }
+        templateResolver.invalidateTenantTemplates(UserContext.tenantId());
 
         // 发布价格变更事件，触发向下同步（报价单 + 订单工序 + 工序跟踪）
         if ("process".equalsIgnoreCase(type)) {
@@ -336,6 +339,8 @@ public class TemplateMutationHelper {
             }
         }
 
+        templateResolver.invalidateTenantTemplates(UserContext.tenantId());
+
         // 发布价格变更事件（如果是工序模板）
         if ("process".equalsIgnoreCase(type)) {
             String ssn = String.valueOf(tpl.getSourceStyleNo() == null ? "" : tpl.getSourceStyleNo()).trim();
@@ -371,6 +376,7 @@ public class TemplateMutationHelper {
         applyTemplateFields(tpl, current);
         boolean ok = templateLibraryService.updateById(current);
         if (!ok) throw new IllegalStateException("保存失败");
+        templateResolver.invalidateTenantTemplates(current.getTenantId());
 
         String type = current.getTemplateType();
         String ssn = current.getSourceStyleNo();
@@ -482,6 +488,9 @@ public class TemplateMutationHelper {
             s.setUpdateTime(now);
             templateLibraryService.updateById(s);
         }
+        if (!siblings.isEmpty()) {
+            templateResolver.invalidateTenantTemplates(current.getTenantId());
+        }
     }
 
     /** 取消修改：将模板重新锁定（不保存任何改动） */
@@ -506,6 +515,7 @@ public class TemplateMutationHelper {
         if (!ok) {
             throw new IllegalStateException("锁定失败");
         }
+        templateResolver.invalidateTenantTemplates(current.getTenantId());
         return true;
     }
 
@@ -549,6 +559,7 @@ public class TemplateMutationHelper {
         if (!ok) {
             throw new IllegalStateException("退回失败");
         }
+        templateResolver.invalidateTenantTemplates(current.getTenantId());
         saveRollbackLog(tid, remark);
         return true;
     }
@@ -569,6 +580,7 @@ public class TemplateMutationHelper {
             }
             throw new IllegalStateException("删除失败");
         }
+        templateResolver.invalidateTenantTemplates(snapshot != null ? snapshot.getTenantId() : UserContext.tenantId());
         // 若是工序模板，发布价格变更事件让下游订单同步清理
         if (snapshot != null && "process".equalsIgnoreCase(snapshot.getTemplateType())) {
             try {
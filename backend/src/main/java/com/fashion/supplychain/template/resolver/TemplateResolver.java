@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.fashion.supplychain.common.UserContext;
 import com.fashion.supplychain.common.ProcessSynonymMapping;
 import com.fashion.supplychain.production.service.ProcessParentMappingService;
+import com.fashion.supplychain.service.RedisService;
 import com.fashion.supplychain.template.entity.TemplateLibrary;
 import com.fashion.supplychain.template.helper.TemplateParseUtils;
 import com.fashion.supplychain.template.helper.TemplateStageNameHelper;
@@ -14,16 +15,21 @@ import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
@@ -34,21 +40,27 @@ public class TemplateResolver {
     private static final Pattern DECIMAL_PATTERN = Pattern.compile("[+-]?\\d+(\\.\\d+)?");
     private static final List<String> STAGE_ORDER = List.of("采购", "裁剪", "二次工艺", "车缝", "尾部", "入库");
 
-    private final Cache<String, TemplateLibrary> progressTemplateCache = Caffeine.newBuilder()
-            .expireAfterWrite(10, TimeUnit.MINUTES)
-            .maximumSize(200)
-            .build();
+    private static final String SUPERADMIN_KEY = "superadmin";
+    private static final String VERSION_KEY_PREFIX = "template:snapshot:ver:";
 
-    private final Cache<String, TemplateLibrary> processPriceTemplateCache = Caffeine.newBuilder()
+    /**
+     * 租户级模板快照：key = t{tenantId} / superadmin。
+     * 跨节点失效靠 Redis 版本号（见 {@link #snapshot()}），TTL 仅作 Redis 不可用时的兜底。
+     */
+    private final Cache<String, TemplateSnapshot> snapshotCache = Caffeine.newBuilder()
             .expireAfterWrite(10, TimeUnit.MINUTES)
-            .maximumSize(200)
+            .maximumSize(500)
             .build();
 
+    /** 派生结果缓存：key 带快照代号，快照重建后旧条目不再命中；空结果同样缓存 */
     private final Cache<String, List<Map<String, Object>>> progressNodeUnitPriceCache = Caffeine.newBuilder()
             .expireAfterWrite(5, TimeUnit.MINUTES)
-            .maximumSize(500)
+            .maximumSize(5000)
             .build();
 
+    @Value("${app.template.snapshot-version-check-ms:5000}")
+    private long versionCheckIntervalMs;
+
     @Autowired
     private TemplateLibraryMapper templateLibraryMapper;
 
@@ -61,11 +73,11 @@ public class TemplateResolver {
     @Autowired
     private ProcessParentMappingService processParentMappingService;
 
-    private String buildTemplateCacheKey(String styleNo) {
-        Long tenantId = UserContext.tenantId();
-        String tenantPart = tenantId == null ? "superadmin" : "t" + tenantId;
-        String stylePart = StringUtils.hasText(styleNo) ? styleNo.trim() : "__default__";
-        return tenantPart + ":" + stylePart;
+    @Autowired
+    private RedisService redisService;
+
+    private static String snapshotKey(Long tenantId) {
+        return tenantId == null ? SUPERADMIN_KEY : "t" + tenantId;
     }
 
     /**
@@ -77,82 +89,72 @@ public class TemplateResolver {
         return UserContext.tenantId();
     }
 
-    public TemplateLibrary resolveProgressTemplate(String styleNo) {
-        String sn = StringUtils.hasText(styleNo) ? styleNo.trim() : null;
-        String cacheKey = buildTemplateCacheKey(sn);
-        TemplateLibrary cached = progressTemplateCache.getIfPresent(cacheKey);
-        if (cached != null) {
-            return cached;
-        }
-        TemplateLibrary tpl = null;
+    /**
+     * 当前租户的模板快照。
+     * 每 versionCheckIntervalMs 最多读一次 Redis 版本号，版本变化（其他节点修改了模板）则重建；
+     * 加载失败返回空快照且不缓存，调用方按“无模板”处理（与原逐条查询失败时行为一致）。
+     */
+    private TemplateSnapshot snapshot() {
         Long tenantId = currentTenantId();
-        try {
-            if (StringUtils.hasText(sn)) {
-                tpl = templateLibraryMapper.selectOne(new LambdaQueryWrapper<TemplateLibrary>()
-                        .eq(TemplateLibrary::getTemplateType, "progress")
-                        .eq(TemplateLibrary::getSourceStyleNo, sn)
-                        .eq(tenantId != null, TemplateLibrary::getTenantId, tenantId)
-                        .orderByDesc(TemplateLibrary::getUpdateTime)
-                        .orderByDesc(TemplateLibrary::getCreateTime)
-                        .last("limit 1"));
-            }
-
-            if (tpl == null) {
-                tpl = templateLibraryMapper.selectOne(new LambdaQueryWrapper<TemplateLibrary>()
-                        .eq(TemplateLibrary::getTemplateType, "progress")
-                        .eq(TemplateLibrary::getTemplateKey, "default")
-                        .eq(tenantId != null, TemplateLibrary::getTenantId, tenantId)
-                        .orderByDesc(TemplateLibrary::getUpdateTime)
-                        .orderByDesc(TemplateLibrary::getCreateTime)
-                        .last("limit 1"));
-            }
-
-            if (tpl == null) {
-                tpl = templateLibraryMapper.selectOne(new LambdaQueryWrapper<TemplateLibrary>()
-                        .eq(TemplateLibrary::getTemplateType, "progress")
-                        .eq(tenantId != null, TemplateLibrary::getTenantId, tenantId)
-                        .orderByDesc(TemplateLibrary::getUpdateTime)
-                        .orderByDesc(TemplateLibrary::getCreateTime)
-                        .last("limit 1"));
+        String key = snapshotKey(tenantId);
+        TemplateSnapshot s = snapshotCache.getIfPresent(key);
+        long now = System.currentTimeMillis();
+        if (s != null && now - s.checkedAt < versionCheckIntervalMs) {
+            return s;
+        }
+        Long remoteVersion = readVersion(key);
+        if (s != null) {
+            if (Objects.equals(s.version, remoteVersion)) {
+                s.checkedAt = now;
+                return s;
             }
+            snapshotCache.asMap().remove(key, s);
+        }
+        try {
+            return snapshotCache.get(key, k -> loadSnapshot(tenantId, remoteVersion));
         } catch (Exception e) {
-            log.warn("resolveProgressTemplate failed: styleNo={}", sn, e);
+            log.warn("load template snapshot failed: tenant={}", key, e);
+            return TemplateSnapshot.EMPTY;
         }
+    }
 
-        if (tpl != null) {
-            progressTemplateCache.put(cacheKey, tpl);
-        }
-        return tpl;
+    private TemplateSnapshot loadSnapshot(Long tenantId, Long version) {
+        long start = System.currentTimeMillis();
+        List<TemplateLibrary> rows = templateLibraryMapper.selectList(new LambdaQueryWrapper<TemplateLibrary>()
+                .in(TemplateLibrary::getTemplateType, TemplateSnapshot.TYPES)
+                .eq(tenantId != null, TemplateLibrary::getTenantId, tenantId)
+                .orderByDesc(TemplateLibrary::getUpdateTime)
+                .orderByDesc(TemplateLibrary::getCreateTime));
+        TemplateSnapshot s = new TemplateSnapshot(rows == null ? List.of() : rows, version);
+        log.debug("template snapshot loaded: tenant={}, rows={}, cost={}ms",
+                snapshotKey(tenantId), s.size(), System.currentTimeMillis() - start);
+        return s;
     }
 
-    public TemplateLibrary resolveProcessPriceTemplate(String styleNo) {
-        String sn = StringUtils.hasText(styleNo) ? styleNo.trim() : null;
-        if (!StringUtils.hasText(sn)) {
-            return null;
+    private Long readVersion(String key) {
+        Object v = redisService.get(VERSION_KEY_PREFIX + key);
+        if (v instanceof Number n) {
+            return n.longValue();
         }
-        String cacheKey = buildTemplateCacheKey(sn);
-        TemplateLibrary cached = processPriceTemplateCache.getIfPresent(cacheKey);
-        if (cached != null) {
-            return cached;
-        }
-        TemplateLibrary tpl = null;
-        Long tenantId = currentTenantId();
-        try {
-            tpl = templateLibraryMapper.selectOne(new LambdaQueryWrapper<TemplateLibrary>()
-                    .eq(TemplateLibrary::getTemplateType, "process_price")
-                    .eq(TemplateLibrary::getSourceStyleNo, sn)
-                    .eq(tenantId != null, TemplateLibrary::getTenantId, tenantId)
-                    .orderByDesc(TemplateLibrary::getUpdateTime)
-                    .orderByDesc(TemplateLibrary::getCreateTime)
-                    .last("limit 1"));
-        } catch (Exception e) {
-            log.warn("resolveProcessPriceTemplate failed: styleNo={}", sn, e);
+        if (v != null) {
+            try {
+                return Long.parseLong(String.valueOf(v).trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
         }
+        return null;
+    }
 
-        if (tpl != null) {
-            processPriceTemplateCache.put(cacheKey, tpl);
+    public TemplateLibrary resolveProgressTemplate(String styleNo) {
+        return snapshot().progressFor(styleNo);
+    }
+
+    public TemplateLibrary resolveProcessPriceTemplate(String styleNo) {
+        if (!StringUtils.hasText(styleNo)) {
+            return null;
         }
-        return tpl;
+        return snapshot().byStyle(TemplateSnapshot.TYPE_PROCESS_PRICE, styleNo);
     }
 
     public List<String> resolveProgressNodes(String styleNo) {
@@ -230,14 +232,8 @@ public class TemplateResolver {
         if (!StringUtils.hasText(styleNo)) {
             return result;
         }
-        Long tenantId = currentTenantId();
         try {
-            TemplateLibrary tpl = templateLibraryMapper.selectOne(new LambdaQueryWrapper<TemplateLibrary>()
-                    .eq(TemplateLibrary::getTemplateType, "process")
-                    .eq(TemplateLibrary::getSourceStyleNo, styleNo.trim())
-                    .eq(tenantId != null, TemplateLibrary::getTenantId, tenantId)
-                    .orderByDesc(TemplateLibrary::getUpdateTime)
-                    .last("limit 1"));
+            TemplateLibrary tpl = snapshot().byStyle(TemplateSnapshot.TYPE_PROCESS, styleNo);
             if (tpl == null || !StringUtils.hasText(tpl.getTemplateContent())) {
                 return result;
             }
@@ -265,7 +261,10 @@ public class TemplateResolver {
     }
 
     public BigDecimal resolveTotalUnitPriceFromProgressTemplate(String styleNo) {
-        List<Map<String, Object>> nodes = resolveProgressNodeUnitPrices(styleNo);
+        return sumUnitPrice(resolveProgressNodeUnitPrices(styleNo));
+    }
+
+    private BigDecimal sumUnitPrice(List<Map<String, Object>> nodes) {
         if (nodes == null || nodes.isEmpty()) {
             return BigDecimal.ZERO;
         }
@@ -288,14 +287,55 @@ public class TemplateResolver {
     }
 
     public List<Map<String, Object>> resolveProgressNodeUnitPrices(String styleNo) {
-        String cacheKey = UserContext.tenantId() + ":progressNodes:" + (styleNo != null ? styleNo.trim() : "");
+        return resolveProgressNodeUnitPrices(snapshot(), styleNo);
+    }
+
+    /**
+     * 批量解析工序节点单价（列表页用）：整批共用同一份租户快照，最多一次数据库往返。
+     *
+     * @return key 为去空白后的款号（保持入参顺序，重复款号只解析一次）
+     */
+    public Map<String, List<Map<String, Object>>> resolveProgressNodeUnitPrices(Collection<String> styleNos) {
+        Map<String, List<Map<String, Object>>> out = new LinkedHashMap<>();
+        if (styleNos == null || styleNos.isEmpty()) {
+            return out;
+        }
+        TemplateSnapshot s = snapshot();
+        for (String styleNo : styleNos) {
+            if (!StringUtils.hasText(styleNo)) {
+                continue;
+            }
+            String sn = styleNo.trim();
+            if (!out.containsKey(sn)) {
+                out.put(sn, resolveProgressNodeUnitPrices(s, sn));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * 批量计算进度模板工序单价合计，语义同 {@link #resolveTotalUnitPriceFromProgressTemplate(String)}。
+     */
+    public Map<String, BigDecimal> resolveTotalUnitPricesFromProgressTemplate(Collection<String> styleNos) {
+        Map<String, BigDecimal> out = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Map<String, Object>>> e : resolveProgressNodeUnitPrices(styleNos).entrySet()) {
+            out.put(e.getKey(), sumUnitPrice(e.getValue()));
+        }
+        return out;
+    }
+
+    private List<Map<String, Object>> resolveProgressNodeUnitPrices(TemplateSnapshot s, String styleNo) {
+        String sn = StringUtils.hasText(styleNo) ? styleNo.trim() : "";
+        String cacheKey = s.generation + ":" + TemplateSnapshot.normalizeStyleNo(sn);
         List<Map<String, Object>> cached = progressNodeUnitPriceCache.getIfPresent(cacheKey);
         if (cached != null) {
-            return cached;
+            // 空结果也会命中缓存；返回新列表，避免调用方往共享空列表里追加
+            return cached.isEmpty() ? new ArrayList<>() : cached;
         }
-        List<Map<String, Object>> result = doResolveProgressNodeUnitPrices(styleNo);
-        if (!result.isEmpty()) {
-            progressNodeUnitPriceCache.put(cacheKey, result);
+        List<Map<String, Object>> result = doResolveProgressNodeUnitPrices(sn);
+        // 只缓存当前仍有效的快照对应的结果（快照加载失败时为 EMPTY，不缓存）
+        if (s != TemplateSnapshot.EMPTY) {
+            progressNodeUnitPriceCache.put(cacheKey, result.isEmpty() ? List.of() : result);
         }
         return result;
     }
@@ -328,15 +368,8 @@ public class TemplateResolver {
 
     private List<Map<String, Object>> resolveFromProcessTemplate(String sn, Map<String, BigDecimal> processPriceOverrides) {
         List<Map<String, Object>> out = new ArrayList<>();
-        Long tenantId = currentTenantId();
         try {
-            TemplateLibrary processTpl = templateLibraryMapper.selectOne(new LambdaQueryWrapper<TemplateLibrary>()
-                    .eq(TemplateLibrary::getTemplateType, "process")
-                    .eq(TemplateLibrary::getSourceStyleNo, sn)
-                    .eq(tenantId != null, TemplateLibrary::getTenantId, tenantId)
-                    .orderByDesc(TemplateLibrary::getUpdateTime)
-                    .orderByDesc(TemplateLibrary::getCreateTime)
-                    .last("LIMIT 1"));
+            TemplateLibrary processTpl = snapshot().byStyle(TemplateSnapshot.TYPE_PROCESS, sn);
             if (processTpl == null || !StringUtils.hasText(processTpl.getTemplateContent())) {
                 return out;
             }
@@ -753,21 +786,43 @@ public class TemplateResolver {
     }
 
     public void invalidateTemplateCache(String templateType, String sourceStyleNo) {
-        try {
-            if ("progress".equals(templateType)) {
-                if (StringUtils.hasText(sourceStyleNo)) {
-                    progressTemplateCache.invalidate(buildTemplateCacheKey(sourceStyleNo));
-                }
-                progressTemplateCache.invalidate(buildTemplateCacheKey(null));
-            } else if ("process_price".equals(templateType)) {
-                if (StringUtils.hasText(sourceStyleNo)) {
-                    processPriceTemplateCache.invalidate(buildTemplateCacheKey(sourceStyleNo));
+        invalidateTenantTemplates(currentTenantId());
+    }
+
+    /**
+     * 模板变更后使租户快照失效。
+     * 本节点立即丢弃快照；事务提交后（无事务则立即）递增 Redis 版本号，其他节点在下一次版本检查时重建。
+     * superadmin 快照跨租户，任何租户变更都一并失效。
+     */
+    public void invalidateTenantTemplates(Long tenantId) {
+        String key = snapshotKey(tenantId);
+        snapshotCache.invalidate(key);
+        snapshotCache.invalidate(SUPERADMIN_KEY);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    // 事务期间其他线程可能用旧数据重建了快照，提交/回滚后再丢弃一次
+                    snapshotCache.invalidate(key);
+                    snapshotCache.invalidate(SUPERADMIN_KEY);
+                    if (status == STATUS_COMMITTED) {
+                        bumpVersion(key);
+                    }
                 }
-                processPriceTemplateCache.invalidate(buildTemplateCacheKey(null));
+            });
+        } else {
+            bumpVersion(key);
+        }
+    }
+
+    private void bumpVersion(String key) {
+        try {
+            redisService.increment(VERSION_KEY_PREFIX + key, 1);
+            if (!SUPERADMIN_KEY.equals(key)) {
+                redisService.increment(VERSION_KEY_PREFIX + SUPERADMIN_KEY, 1);
             }
-            progressNodeUnitPriceCache.invalidateAll();
         } catch (Exception e) {
-            log.warn("invalidateTemplateCache failed: type={}, styleNo={}", templateType, sourceStyleNo);
+            log.warn("bump template snapshot version failed: tenant={}", key, e);
         }
     }
 
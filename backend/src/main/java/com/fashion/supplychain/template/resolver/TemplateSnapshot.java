@@ -0,0 +1,105 @@
+package com.fashion.supplychain.template.resolver;
+
+import com.fashion.supplychain.template.entity.TemplateLibrary;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单租户模板快照（不可变，一次查询构建）。
+ *
+ * 快照内包含该租户全部 progress / process_price / process 模板，按 (类型, 款号) 只保留最新一条，
+ * 款号未命中即代表“无模板”，天然实现负缓存；进度模板另外预置 default 和“最新任意”两级兜底。
+ */
+final class TemplateSnapshot {
+
+    static final String TYPE_PROGRESS = "progress";
+    static final String TYPE_PROCESS_PRICE = "process_price";
+    static final String TYPE_PROCESS = "process";
+    static final List<String> TYPES = List.of(TYPE_PROGRESS, TYPE_PROCESS_PRICE, TYPE_PROCESS);
+
+    private static final AtomicLong GENERATION_SEQ = new AtomicLong();
+
+    static final TemplateSnapshot EMPTY = new TemplateSnapshot(Collections.emptyList(), null);
+
+    /** 本进程内唯一的快照代号，用作派生缓存 key 前缀：快照重建后旧派生结果自然失效 */
+    final long generation;
+
+    /** 构建时读取到的 Redis 版本号（null = Redis 无记录或不可用） */
+    final Long version;
+
+    /** 最近一次确认版本号未变化的时间 */
+    volatile long checkedAt;
+
+    private final Map<String, Map<String, TemplateLibrary>> byTypeAndStyle;
+    private final TemplateLibrary defaultProgress;
+    private final TemplateLibrary latestProgress;
+    private final int size;
+
+    /**
+     * @param rows 已按 update_time DESC, create_time DESC 排序的模板行
+     */
+    TemplateSnapshot(List<TemplateLibrary> rows, Long version) {
+        this.generation = GENERATION_SEQ.incrementAndGet();
+        this.version = version;
+        this.checkedAt = System.currentTimeMillis();
+        Map<String, Map<String, TemplateLibrary>> index = new HashMap<>();
+        TemplateLibrary dft = null;
+        TemplateLibrary latest = null;
+        for (TemplateLibrary t : rows) {
+            if (t == null || t.getTemplateType() == null) {
+                continue;
+            }
+            String type = t.getTemplateType();
+            if (TYPE_PROGRESS.equals(type)) {
+                if (latest == null) {
+                    latest = t;
+                }
+                if (dft == null && "default".equals(t.getTemplateKey())) {
+                    dft = t;
+                }
+            }
+            String sn = normalizeStyleNo(t.getSourceStyleNo());
+            if (sn != null) {
+                index.computeIfAbsent(type, k -> new HashMap<>()).putIfAbsent(sn, t);
+            }
+        }
+        this.byTypeAndStyle = index;
+        this.defaultProgress = dft;
+        this.latestProgress = latest;
+        this.size = rows.size();
+    }
+
+    /** 款号专属模板；无则返回 null */
+    TemplateLibrary byStyle(String type, String styleNo) {
+        String sn = normalizeStyleNo(styleNo);
+        if (sn == null) {
+            return null;
+        }
+        Map<String, TemplateLibrary> m = byTypeAndStyle.get(type);
+        return m == null ? null : m.get(sn);
+    }
+
+    /** 进度模板：款号专属 → key=default → 最新任意一条 */
+    TemplateLibrary progressFor(String styleNo) {
+        TemplateLibrary tpl = byStyle(TYPE_PROGRESS, styleNo);
+        if (tpl == null) {
+            tpl = defaultProgress;
+        }
+        return tpl != null ? tpl : latestProgress;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** 与 MySQL 默认排序规则一致：忽略大小写与首尾空白 */
+    static String normalizeStyleNo(String styleNo) {
+        return StringUtils.hasText(styleNo) ? styleNo.trim().toLowerCase(Locale.ROOT) : null;
+    }
+}
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.fashion.supplychain.template.entity.TemplateLibrary;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +24,11 @@ public interface TemplateLibraryService extends IService<TemplateLibrary> {
 
     List<Map<String, Object>> resolveProgressNodeUnitPrices(String styleNo);
 
+    /** 批量解析（列表页用，整批共用一份租户模板快照）；key 为去空白后的款号 */
+    Map<String, List<Map<String, Object>>> resolveProgressNodeUnitPrices(Collection<String> styleNos);
+
+    Map<String, BigDecimal> resolveTotalUnitPricesFromProgressTemplate(Collection<String> styleNos);
+
     List<String> resolveProgressNodes(String styleNo);
 
     void loadProgressWeights(String styleNo, Map<String, java.math.BigDecimal> weights, List<String> processOrder);
@@ -12,6 +12,7 @@ import com.fashion.supplychain.template.resolver.TemplateResolver;
 import com.fashion.supplychain.template.service.TemplateLibraryService;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -67,6 +68,16 @@ public class TemplateLibraryServiceImpl extends ServiceImpl<TemplateLibraryMappe
         return templateResolver.resolveProgressNodeUnitPrices(styleNo);
     }
 
+    @Override
+    public Map<String, List<Map<String, Object>>> resolveProgressNodeUnitPrices(Collection<String> styleNos) {
+        return templateResolver.resolveProgressNodeUnitPrices(styleNos);
+    }
+
+    @Override
+    public Map<String, BigDecimal> resolveTotalUnitPricesFromProgressTemplate(Collection<String> styleNos) {
+        return templateResolver.resolveTotalUnitPricesFromProgressTemplate(styleNos);
+    }
+
     @Override
     public int resolveProgressNodeIndexFromPercent(int nodeCount, int progressPercent) {
         return templateResolver.resolveProgressNodeIndexFromPercent(nodeCount, progressPercent);
@@ -166,8 +177,6 @@ public class TemplateLibraryServiceImpl extends ServiceImpl<TemplateLibraryMappe
             throw new IllegalArgumentException("模板参数不完整");
         }
 
-        templateResolver.invalidateTemplateCache(template.getTemplateType(), template.getSourceStyleNo());
-
         LocalDateTime now = LocalDateTime.now();
 
         TemplateLibrary existing = getOne(new LambdaQueryWrapper<TemplateLibrary>()
@@ -182,7 +191,9 @@ public class TemplateLibraryServiceImpl extends ServiceImpl<TemplateLibraryMappe
             existing.setTemplateContent(template.getTemplateContent());
             existing.setLocked(template.getLocked() != null ? template.getLocked() : 1);
             existing.setUpdateTime(now);
-            return updateById(existing);
+            boolean ok = updateById(existing);
+            templateResolver.invalidateTemplateCache(template.getTemplateType(), template.getSourceStyleNo());
+            return ok;
         } else {
             if (!StringUtils.hasText(template.getId())) {
                 template.setId(UUID.randomUUID().toString());
@@ -190,7 +201,9 @@ public class TemplateLibraryServiceImpl extends ServiceImpl<TemplateLibraryMappe
             template.setLocked(template.getLocked() != null ? template.getLocked() : 1);
             template.setCreateTime(now);
             template.setUpdateTime(now);
-            return save(template);
+            boolean ok = save(template);
+            templateResolver.invalidateTemplateCache(template.getTemplateType(), template.getSourceStyleNo());
+            return ok;
         }
     }
 }
@@ -2,8 +2,25 @@ package com.fashion.supplychain.warehouse.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.fashion.supplychain.warehouse.entity.StockChangeLog;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface StockChangeLogMapper extends BaseMapper<StockChangeLog> {
+
+    /**
+     * 多行插入库存变动流水（批量入库用，tenant_id / create_time 由调用方赋值）
+     */
+    @Insert("<script>INSERT INTO t_stock_change_log (id, change_no, change_type, stock_type, style_no, color, size, " +
+            "before_quantity, change_quantity, after_quantity, biz_type, biz_no, unit_price, total_amount, trace_id, " +
+            "operator_id, operator_name, tenant_id, create_time) VALUES " +
+            "<foreach collection='rows' item='r' separator=','>" +
+            "(#{r.id}, #{r.changeNo}, #{r.changeType}, #{r.stockType}, #{r.styleNo}, #{r.color}, #{r.size}, " +
+            "#{r.beforeQuantity}, #{r.changeQuantity}, #{r.afterQuantity}, #{r.bizType}, #{r.bizNo}, #{r.unitPrice}, " +
+            "#{r.totalAmount}, #{r.traceId}, #{r.operatorId}, #{r.operatorName}, #{r.tenantId}, #{r.createTime})" +
+            "</foreach></script>")
+    int insertBatch(@Param("rows") List<StockChangeLog> rows);
 }
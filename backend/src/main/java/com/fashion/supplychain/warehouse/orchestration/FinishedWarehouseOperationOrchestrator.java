@@ -3,6 +3,7 @@ package com.fashion.supplychain.warehouse.orchestration;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.common.serial.DocumentNoService;
 import com.fashion.supplychain.common.tenant.TenantAssert;
 import com.fashion.supplychain.production.entity.ProductOutstock;
 import com.fashion.supplychain.production.entity.ProductWarehousing;
@@ -15,6 +16,7 @@ import com.fashion.supplychain.style.service.ProductSkuService;
 import com.fashion.supplychain.style.service.StyleInfoService;
 import com.fashion.supplychain.warehouse.entity.StockChangeLog;
 import com.fashion.supplychain.warehouse.entity.WarehouseArea;
+import com.fashion.supplychain.warehouse.mapper.StockChangeLogMapper;
 import com.fashion.supplychain.warehouse.service.StockChangeLogService;
 import com.fashion.supplychain.warehouse.service.WarehouseAreaService;
 import lombok.RequiredArgsConstructor;
@@ -41,12 +43,17 @@ public class FinishedWarehouseOperationOrchestrator {
     private final StyleInfoService styleInfoService;
     private final WarehouseAreaService warehouseAreaService;
     private final StockChangeLogService stockChangeLogService;
+    private final StockChangeLogMapper stockChangeLogMapper;
+    private final DocumentNoService documentNoService;
     private final WarehouseLocationOrchestrator warehouseLocationOrchestrator;
     private final ObjectMapper objectMapper;
 
     @Autowired(required = false)
     private ProductionOrderService productionOrderService;
 
+    /** 批量入库单条 INSERT 的最大行数 */
+    private static final int BATCH_INSERT_SIZE = 500;
+
     private static final Set<String> VALID_SOURCE_TYPES = Set.of(
             "external_purchase", "free_inbound", "transfer_in", "return_in", "other_in", "scan_inbound");
 
@@ -63,41 +70,13 @@ public class FinishedWarehouseOperationOrchestrator {
         String userId = UserContext.userId();
         String username = UserContext.username();
 
-        String skuCode = trimToNull(params.get("skuCode"));
-        Integer quantity = toInt(params.get("quantity"));
-        String warehouseLocation = trimToNull(params.get("warehouseLocation"));
-        String sourceType = trimToNull(params.get("sourceType"));
-        String remark = trimToNull(params.get("remark"));
-        String supplierName = trimToNull(params.get("supplierName"));
-        String supplierId = trimToNull(params.get("supplierId"));
-        BigDecimal unitPrice = toBigDecimal(params.get("unitPrice"));
-        Boolean autoCreateSku = params.get("autoCreateSku") != null
-                && Boolean.parseBoolean(String.valueOf(params.get("autoCreateSku")));
-        String styleNo = trimToNull(params.get("styleNo"));
-        String styleName = trimToNull(params.get("styleName"));
-        String color = trimToNull(params.get("color"));
-        String size = trimToNull(params.get("size"));
-        String warehouseAreaId = trimToNull(params.get("warehouseAreaId"));
-        String batchNo = trimToNull(params.get("batchNo"));
-        String traceId = trimToNull(params.get("traceId"));
-
-        if (!StringUtils.hasText(skuCode)) {
-            throw new IllegalArgumentException("SKU编码不能为空");
-        }
-        if (quantity == null || quantity <= 0) {
-            throw new IllegalArgumentException("入库数量必须大于0");
-        }
-        if (!StringUtils.hasText(warehouseLocation)) {
-            warehouseLocation = "默认仓";
-        }
-        if (!StringUtils.hasText(sourceType)) {
-            sourceType = "free_inbound";
-        }
-        if (!VALID_SOURCE_TYPES.contains(sourceType)) {
-            throw new IllegalArgumentException("不支持的入库来源类型: " + sourceType);
-        }
-
-        String warehouseAreaName = resolveWarehouseAreaName(warehouseAreaId);
+        InboundLine line = parseInboundLine(params);
+        String skuCode = line.skuCode;
+        int quantity = line.quantity;
+        String warehouseLocation = line.warehouseLocation;
+        String sourceType = line.sourceType;
+        BigDecimal unitPrice = line.unitPrice;
+        String warehouseAreaName = resolveWarehouseAreaName(line.warehouseAreaId);
 
         ProductSku sku = productSkuService.getOne(
                 new LambdaQueryWrapper<ProductSku>()
@@ -105,77 +84,50 @@ public class FinishedWarehouseOperationOrchestrator {
                         .eq(ProductSku::getTenantId, tenantId));
 
         if (sku == null) {
-            if (!autoCreateSku) {
+            if (!line.autoCreateSku) {
                 throw new IllegalArgumentException("SKU不存在: " + skuCode
                         + "。如需自动创建，请传入 autoCreateSku=true 并提供 styleNo/color/size");
             }
-            sku = autoCreateSkuAndStyle(skuCode, styleNo, styleName, color, size, unitPrice, tenantId);
+            sku = autoCreateSkuAndStyle(skuCode, line.styleNo, line.styleName, line.color, line.size, unitPrice, tenantId);
         }
 
         int beforeQty = sku.getStockQuantity() != null ? sku.getStockQuantity() : 0;
         productSkuService.updateStock(skuCode, quantity);
         int afterQty = beforeQty + quantity;
 
-        BigDecimal effectivePrice = unitPrice != null ? unitPrice : sku.getCostPrice();
-        BigDecimal totalAmount = effectivePrice != null ? effectivePrice.multiply(BigDecimal.valueOf(quantity)) : null;
-
-        String qrcode = generateInboundCode(skuCode);
-        if (!StringUtils.hasText(traceId)) {
-            traceId = "TR-" + UUID.randomUUID().toString().replace("-", "").substring(0, 16).toUpperCase();
-        }
-
-        ProductWarehousing w = new ProductWarehousing();
         LocalDateTime now = LocalDateTime.now();
-        w.setId(UUID.randomUUID().toString().replace("-", ""));
-        w.setWarehousingNo(buildNo("FI", now));
-        w.setStyleId(sku.getStyleId() != null ? String.valueOf(sku.getStyleId()) : null);
-        w.setStyleNo(sku.getStyleNo());
         StyleInfo style = sku.getStyleId() != null ? styleInfoService.getById(sku.getStyleId()) : null;
-        w.setStyleName(style != null ? style.getStyleName() : (styleName != null ? styleName : null));
-        w.setWarehousingQuantity(quantity);
-        w.setQualifiedQuantity(quantity);
-        w.setUnqualifiedQuantity(0);
-        w.setWarehousingType(sourceType);
-        w.setWarehouse(warehouseLocation);
-        w.setWarehouseAreaId(warehouseAreaId);
-        w.setWarehouseAreaName(warehouseAreaName);
-        w.setQualityStatus("qualified");
-        w.setWarehousingOperatorId(userId);
-        w.setWarehousingOperatorName(username);
-        w.setWarehousingEndTime(now);
-        w.setSkuCode(skuCode);
-        w.setColor(sku.getColor());
-        w.setSize(sku.getSize());
-        w.setDefectRemark(remark);
-        w.setFactoryName(supplierName);
-        w.setSupplierId(supplierId);
-        w.setUnitPrice(effectivePrice);
-        w.setTotalAmount(totalAmount);
-        w.setPaymentStatus("unpaid");
-        w.setPaidAmount(BigDecimal.ZERO);
-        w.setBatchNo(batchNo);
-        w.setTraceId(traceId);
-        w.setQrcode(qrcode);
-        w.setReversalStatus("NONE");
-        w.setCreateTime(now);
-        w.setUpdateTime(now);
-        w.setDeleteFlag(0);
-        w.setTenantId(tenantId);
+        ProductWarehousing w = buildFreeInboundRecord(line, sku, style, buildWarehousingNo("FI"), warehouseAreaName,
+                userId, username, tenantId, now);
         productWarehousingMapper.insert(w);
 
         logStockChange("INBOUND", sku, beforeQty, quantity, afterQty, w.getWarehousingNo(),
-                sourceType, effectivePrice, totalAmount, traceId, userId, username, tenantId);
+                sourceType, w.getUnitPrice(), w.getTotalAmount(), w.getTraceId(), userId, username, tenantId);
 
         warehouseLocationOrchestrator.incrementUsedCapacity(warehouseLocation, "FINISHED", 1);
 
-        log.info("[成品入库] skuCode={} +{} 来源={} 金额={} traceId={}", skuCode, quantity, sourceType, totalAmount, traceId);
+        log.info("[成品入库] skuCode={} +{} 来源={} 金额={} traceId={}", skuCode, quantity, sourceType, w.getTotalAmount(), w.getTraceId());
         return w;
     }
 
+    /**
+     * 批量成品入库（PDA 大单收货）。
+     *
+     * 原实现逐行调用 freeInbound：每行各自 updateStock + insert 入库单 + insert 流水，500 行约 1500 次往返，
+     * 且按明细顺序逐个锁 SKU，与并发出库交叉加锁时容易死锁。
+     *
+     * 现流程（整批一个事务）：
+     * 1. 逐行校验，任一行不合法整单拒绝；
+     * 2. 一条 SELECT ... FOR UPDATE 按 sku_code 顺序锁定涉及的全部 SKU（固定加锁顺序），缺失 SKU 按需自动创建；
+     * 3. 内存中按行序累加生成入库单与库存流水（同一 SKU 多行的 before/after 连续）；
+     * 4. 一条 UPDATE 按 SKU 应用汇总增量，入库单 / 流水多行插入，库位占用按库位汇总更新。
+     */
     @Transactional(rollbackFor = Exception.class)
     public List<ProductWarehousing> batchInbound(Map<String, Object> body) {
         TenantAssert.assertTenantContext();
         Long tenantId = UserContext.tenantId();
+        String userId = UserContext.userId();
+        String username = UserContext.username();
 
         String warehouseLocation = trimToNull(body.get("warehouseLocation"));
         String warehouseAreaId = trimToNull(body.get("warehouseAreaId"));
@@ -183,7 +135,8 @@ public class FinishedWarehouseOperationOrchestrator {
         if (!StringUtils.hasText(sourceType)) sourceType = "free_inbound";
         if (!StringUtils.hasText(warehouseLocation)) warehouseLocation = "默认仓";
 
-        String batchNo = buildNo("BN", LocalDateTime.now());
+        LocalDateTime now = LocalDateTime.now();
+        String batchNo = buildNo("BN");
         String traceId = "TR-" + UUID.randomUUID().toString().replace("-", "").substring(0, 16).toUpperCase();
 
         Object itemsRaw = body.get("items");
@@ -196,7 +149,7 @@ public class FinishedWarehouseOperationOrchestrator {
             throw new IllegalArgumentException("入库明细不能为空");
         }
 
-        List<ProductWarehousing> results = new ArrayList<>();
+        List<InboundLine> lines = new ArrayList<>(rawList.size());
         for (Object obj : rawList) {
             if (!(obj instanceof Map)) continue;
             Map<String, Object> item = new HashMap<>((Map<String, Object>) obj);
@@ -205,10 +158,87 @@ public class FinishedWarehouseOperationOrchestrator {
             item.putIfAbsent("sourceType", sourceType);
             item.putIfAbsent("batchNo", batchNo);
             item.putIfAbsent("traceId", traceId);
-            results.add(freeInbound(item));
+            try {
+                lines.add(parseInboundLine(item));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("第" + (lines.size() + 1) + "行: " + e.getMessage());
+            }
+        }
+        if (lines.isEmpty()) {
+            throw new IllegalArgumentException("入库明细不能为空");
+        }
+
+        // SKU 编码与 MySQL 默认排序规则一致按大小写不敏感匹配
+        Set<String> skuCodes = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        lines.forEach(l -> skuCodes.add(l.skuCode));
+        Map<String, ProductSku> skuMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (ProductSku sku : productSkuService.lockBySkuCodes(skuCodes)) {
+            skuMap.putIfAbsent(sku.getSkuCode(), sku);
+        }
+        for (InboundLine l : lines) {
+            if (!skuMap.containsKey(l.skuCode)) {
+                if (!l.autoCreateSku) {
+                    throw new IllegalArgumentException("SKU不存在: " + l.skuCode
+                            + "。如需自动创建，请传入 autoCreateSku=true 并提供 styleNo/color/size");
+                }
+                skuMap.put(l.skuCode, autoCreateSkuAndStyle(l.skuCode, l.styleNo, l.styleName,
+                        l.color, l.size, l.unitPrice, tenantId));
+            }
         }
 
-        log.info("[批量成品入库] batchNo={} count={} traceId={}", batchNo, results.size(), traceId);
+        Set<Long> styleIds = new HashSet<>();
+        skuMap.values().forEach(sku -> {
+            if (sku.getStyleId() != null) styleIds.add(sku.getStyleId());
+        });
+        Map<Long, StyleInfo> styles = new HashMap<>();
+        if (!styleIds.isEmpty()) {
+            styleInfoService.listByIds(styleIds).forEach(st -> styles.put(st.getId(), st));
+        }
+        Map<String, String> areaNames = new HashMap<>();
+
+        List<ProductWarehousing> results = new ArrayList<>(lines.size());
+        List<StockChangeLog> changeLogs = new ArrayList<>(lines.size());
+        Map<String, Integer> runningQty = new HashMap<>();
+        Map<String, Integer> stockDeltas = new TreeMap<>();
+        Map<String, Integer> capacityDeltas = new LinkedHashMap<>();
+        for (InboundLine l : lines) {
+            ProductSku sku = skuMap.get(l.skuCode);
+            String code = sku.getSkuCode();
+            int beforeQty = runningQty.computeIfAbsent(code,
+                    k -> sku.getStockQuantity() != null ? sku.getStockQuantity() : 0);
+            int afterQty = beforeQty + l.quantity;
+            runningQty.put(code, afterQty);
+            stockDeltas.merge(code, l.quantity, Integer::sum);
+            capacityDeltas.merge(l.warehouseLocation, 1, Integer::sum);
+
+            String areaName = l.warehouseAreaId == null ? null
+                    : areaNames.computeIfAbsent(l.warehouseAreaId, this::resolveWarehouseAreaName);
+            StyleInfo style = sku.getStyleId() != null ? styles.get(sku.getStyleId()) : null;
+            ProductWarehousing w = buildFreeInboundRecord(l, sku, style, buildWarehousingNo("FI"),
+                    areaName, userId, username, tenantId, now);
+            w.setCreatorId(userId);
+            w.setCreatorName(username);
+            results.add(w);
+            changeLogs.add(buildStockChangeLog("INBOUND", sku, beforeQty, l.quantity, afterQty,
+                    w.getWarehousingNo(), l.sourceType, w.getUnitPrice(), w.getTotalAmount(), w.getTraceId(),
+                    userId, username, tenantId, buildNo("SC"), now));
+        }
+
+        productSkuService.batchIncreaseStock(stockDeltas);
+        for (int i = 0; i < results.size(); i += BATCH_INSERT_SIZE) {
+            productWarehousingMapper.insertFreeInboundBatch(results.subList(i, Math.min(i + BATCH_INSERT_SIZE, results.size())));
+        }
+        try {
+            for (int i = 0; i < changeLogs.size(); i += BATCH_INSERT_SIZE) {
+                stockChangeLogMapper.insertBatch(changeLogs.subList(i, Math.min(i + BATCH_INSERT_SIZE, changeLogs.size())));
+            }
+        } catch (Exception e) {
+            log.warn("[StockChangeLog] 批量保存库存变动日志失败: {}", e.getMessage());
+        }
+        capacityDeltas.forEach((location, count) ->
+                warehouseLocationOrchestrator.incrementUsedCapacity(location, "FINISHED", count));
+
+        log.info("[批量成品入库] batchNo={} count={} skus={} traceId={}", batchNo, results.size(), stockDeltas.size(), traceId);
         return results;
     }
 
@@ -278,7 +308,7 @@ public class FinishedWarehouseOperationOrchestrator {
         LocalDateTime now = LocalDateTime.now();
         ProductWarehousing reversal = new ProductWarehousing();
         reversal.setId(UUID.randomUUID().toString().replace("-", ""));
-        reversal.setWarehousingNo(buildNo("RV", now));
+        reversal.setWarehousingNo(buildWarehousingNo("RV"));
         reversal.setOrderId(original.getOrderId());
         reversal.setOrderNo(original.getOrderNo());
         reversal.setStyleId(original.getStyleId());
@@ -593,7 +623,7 @@ public class FinishedWarehouseOperationOrchestrator {
         ProductOutstock o = new ProductOutstock();
         LocalDateTime now = LocalDateTime.now();
         StyleInfo styleInfo = sku.getStyleId() != null ? styleInfoService.getById(sku.getStyleId()) : null;
-        o.setOutstockNo(buildNo("FO", now));
+        o.setOutstockNo(buildOutstockNo());
         o.setStyleId(sku.getStyleId() != null ? String.valueOf(sku.getStyleId()) : null);
         o.setStyleNo(sku.getStyleNo());
         o.setStyleName(styleInfo != null ? styleInfo.getStyleName() : null);
@@ -780,32 +810,134 @@ public class FinishedWarehouseOperationOrchestrator {
                                  String bizNo, String bizType, BigDecimal unitPrice, BigDecimal totalAmount,
                                  String traceId, String operatorId, String operatorName, Long tenantId) {
         try {
-            StockChangeLog scl = new StockChangeLog();
-            scl.setId(UUID.randomUUID().toString().replace("-", ""));
-            scl.setChangeNo(buildNo("SC", LocalDateTime.now()));
-            scl.setChangeType(changeType);
-            scl.setStockType("FINISHED");
-            scl.setStyleNo(sku.getStyleNo());
-            scl.setColor(sku.getColor());
-            scl.setSize(sku.getSize());
-            scl.setBeforeQuantity(BigDecimal.valueOf(beforeQty));
-            scl.setChangeQuantity(BigDecimal.valueOf(delta));
-            scl.setAfterQuantity(BigDecimal.valueOf(afterQty));
-            scl.setBizType(bizType);
-            scl.setBizNo(bizNo);
-            scl.setUnitPrice(unitPrice);
-            scl.setTotalAmount(totalAmount);
-            scl.setTraceId(traceId);
-            scl.setOperatorId(operatorId);
-            scl.setOperatorName(operatorName);
-            scl.setTenantId(tenantId);
-            scl.setCreateTime(LocalDateTime.now());
-            stockChangeLogService.save(scl);
+            LocalDateTime now = LocalDateTime.now();
+            stockChangeLogService.save(buildStockChangeLog(changeType, sku, beforeQty, delta, afterQty, bizNo, bizType,
+                    unitPrice, totalAmount, traceId, operatorId, operatorName, tenantId, buildNo("SC"), now));
         } catch (Exception e) {
             log.warn("[StockChangeLog] 保存库存变动日志失败: {}", e.getMessage());
         }
     }
 
+    private StockChangeLog buildStockChangeLog(String changeType, ProductSku sku, int beforeQty, int delta, int afterQty,
+                                               String bizNo, String bizType, BigDecimal unitPrice, BigDecimal totalAmount,
+                                               String traceId, String operatorId, String operatorName, Long tenantId,
+                                               String changeNo, LocalDateTime now) {
+        StockChangeLog scl = new StockChangeLog();
+        scl.setId(UUID.randomUUID().toString().replace("-", ""));
+        scl.setChangeNo(changeNo);
+        scl.setChangeType(changeType);
+        scl.setStockType("FINISHED");
+        scl.setStyleNo(sku.getStyleNo());
+        scl.setColor(sku.getColor());
+        scl.setSize(sku.getSize());
+        scl.setBeforeQuantity(BigDecimal.valueOf(beforeQty));
+        scl.setChangeQuantity(BigDecimal.valueOf(delta));
+        scl.setAfterQuantity(BigDecimal.valueOf(afterQty));
+        scl.setBizType(bizType);
+        scl.setBizNo(bizNo);
+        scl.setUnitPrice(unitPrice);
+        scl.setTotalAmount(totalAmount);
+        scl.setTraceId(traceId);
+        scl.setOperatorId(operatorId);
+        scl.setOperatorName(operatorName);
+        scl.setTenantId(tenantId);
+        scl.setCreateTime(now);
+        return scl;
+    }
+
+    /**
+     * 自由入库单（freeInbound / batchInbound 共用）
+     */
+    private ProductWarehousing buildFreeInboundRecord(InboundLine line, ProductSku sku, StyleInfo style, String warehousingNo,
+                                                      String warehouseAreaName, String userId, String username,
+                                                      Long tenantId, LocalDateTime now) {
+        int quantity = line.quantity;
+        BigDecimal effectivePrice = line.unitPrice != null ? line.unitPrice : sku.getCostPrice();
+        BigDecimal totalAmount = effectivePrice != null ? effectivePrice.multiply(BigDecimal.valueOf(quantity)) : null;
+        String traceId = StringUtils.hasText(line.traceId) ? line.traceId
+                : "TR-" + UUID.randomUUID().toString().replace("-", "").substring(0, 16).toUpperCase();
+
+        ProductWarehousing w = new ProductWarehousing();
+        w.setId(UUID.randomUUID().toString().replace("-", ""));
+        w.setWarehousingNo(warehousingNo);
+        w.setStyleId(sku.getStyleId() != null ? String.valueOf(sku.getStyleId()) : null);
+        w.setStyleNo(sku.getStyleNo());
+        w.setStyleName(style != null ? style.getStyleName() : line.styleName);
+        w.setWarehousingQuantity(quantity);
+        w.setQualifiedQuantity(quantity);
+        w.setUnqualifiedQuantity(0);
+        w.setWarehousingType(line.sourceType);
+        w.setWarehouse(line.warehouseLocation);
+        w.setWarehouseAreaId(line.warehouseAreaId);
+        w.setWarehouseAreaName(warehouseAreaName);
+        w.setQualityStatus("qualified");
+        w.setWarehousingOperatorId(userId);
+        w.setWarehousingOperatorName(username);
+        w.setWarehousingEndTime(now);
+        w.setSkuCode(sku.getSkuCode());
+        w.setColor(sku.getColor());
+        w.setSize(sku.getSize());
+        w.setDefectRemark(line.remark);
+        w.setFactoryName(line.supplierName);
+        w.setSupplierId(line.supplierId);
+        w.setUnitPrice(effectivePrice);
+        w.setTotalAmount(totalAmount);
+        w.setPaymentStatus("unpaid");
+        w.setPaidAmount(BigDecimal.ZERO);
+        w.setBatchNo(line.batchNo);
+        w.setTraceId(traceId);
+        w.setQrcode(generateInboundCode(sku.getSkuCode()));
+        w.setReversalStatus("NONE");
+        w.setCreateTime(now);
+        w.setUpdateTime(now);
+        w.setDeleteFlag(0);
+        w.setTenantId(tenantId);
+        return w;
+    }
+
+    /**
+     * 解析并校验一行自由入库参数
+     */
+    private InboundLine parseInboundLine(Map<String, Object> params) {
+        InboundLine line = new InboundLine();
+        line.skuCode = trimToNull(params.get("skuCode"));
+        Integer quantity = toInt(params.get("quantity"));
+        line.warehouseLocation = trimToNull(params.get("warehouseLocation"));
+        line.sourceType = trimToNull(params.get("sourceType"));
+        line.remark = trimToNull(params.get("remark"));
+        line.supplierName = trimToNull(params.get("supplierName"));
+        line.supplierId = trimToNull(params.get("supplierId"));
+        line.unitPrice = toBigDecimal(params.get("unitPrice"));
+        line.autoCreateSku = params.get("autoCreateSku") != null
+                && Boolean.parseBoolean(String.valueOf(params.get("autoCreateSku")));
+        line.styleNo = trimToNull(params.get("styleNo"));
+        line.styleName = trimToNull(params.get("styleName"));
+        line.color = trimToNull(params.get("color"));
+        line.size = trimToNull(params.get("size"));
+        line.warehouseAreaId = trimToNull(params.get("warehouseAreaId"));
+        line.batchNo = trimToNull(params.get("batchNo"));
+        line.traceId = trimToNull(params.get("traceId"));
+
+        if (!StringUtils.hasText(line.skuCode)) {
+            throw new IllegalArgumentException("SKU编码不能为空");
+        }
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("入库数量必须大于0");
+        }
+        line.quantity = quantity;
+        if (!StringUtils.hasText(line.warehouseLocation)) {
+            line.warehouseLocation = "默认仓";
+        }
+        if (!StringUtils.hasText(line.sourceType)) {
+            line.sourceType = "free_inbound";
+        }
+        if (!VALID_SOURCE_TYPES.contains(line.sourceType)) {
+            throw new IllegalArgumentException("不支持的入库来源类型: " + line.sourceType);
+        }
+        return line;
+    }
+
+
     private Map<String, Object> buildChangeMap(Object oldValue, Object newValue) {
         Map<String, Object> map = new LinkedHashMap<>();
         map.put("old", oldValue);
@@ -823,10 +955,18 @@ public class FinishedWarehouseOperationOrchestrator {
         }
     }
 
-    private String buildNo(String prefix, LocalDateTime now) {
-        return prefix + now.format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
-                + Integer.toHexString(ThreadLocalRandom.current().nextInt(0x1000, 0x10000))
-                .toUpperCase(Locale.ROOT);
+    private String buildNo(String prefix) {
+        return documentNoService.nextDailyNo(prefix);
+    }
+
+    /** 入库单 / 冲销单号：warehousing_no 全库唯一，按全局序列取号 */
+    private String buildWarehousingNo(String prefix) {
+        return documentNoService.nextGlobalDailyNo(prefix, "t_product_warehousing", "warehousing_no");
+    }
+
+    /** 出库单号：outstock_no 全库唯一，按全局序列取号 */
+    private String buildOutstockNo() {
+        return documentNoService.nextGlobalDailyNo("FO", "t_product_outstock", "outstock_no");
     }
 
     private String trimToNull(Object value) {
@@ -849,4 +989,24 @@ public class FinishedWarehouseOperationOrchestrator {
         try { return new BigDecimal(String.valueOf(value).trim()); }
         catch (NumberFormatException e) { return null; }
     }
+
+    /** 一行自由入库参数（已校验、已补默认值） */
+    private static final class InboundLine {
+        String skuCode;
+        int quantity;
+        String warehouseLocation;
+        String sourceType;
+        String remark;
+        String supplierName;
+        String supplierId;
+        BigDecimal unitPrice;
+        boolean autoCreateSku;
+        String styleNo;
+        String styleName;
+        String color;
+        String size;
+        String warehouseAreaId;
+        String batchNo;
+        String traceId;
+    }
 }
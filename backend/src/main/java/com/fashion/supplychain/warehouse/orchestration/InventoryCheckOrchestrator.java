@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.common.serial.DocumentNoService;
 import com.fashion.supplychain.production.entity.MaterialStock;
 import com.fashion.supplychain.production.service.MaterialStockService;
 import com.fashion.supplychain.stock.entity.SampleStock;
@@ -27,9 +28,7 @@ import org.springframework.util.StringUtils;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
 
 @Slf4j
 @Service
@@ -56,6 +55,9 @@ public class InventoryCheckOrchestrator {
     @Autowired
     private InventoryCheckLogAppendHelper logAppendHelper;
 
+    @Autowired
+    private DocumentNoService documentNoService;
+
     @Autowired
     private com.fashion.supplychain.finance.orchestration.BillAggregationOrchestrator billAggregationOrchestrator;
 
@@ -72,7 +74,7 @@ public class InventoryCheckOrchestrator {
 
         InventoryCheck check = new InventoryCheck();
         check.setId(UUID.randomUUID().toString().replace("-", ""));
-        check.setCheckNo(generateCheckNo(tenantId));
+        check.setCheckNo(generateCheckNo());
         check.setCheckType(checkType);
         check.setStatus("draft");
         check.setCheckDate(checkDate);
@@ -557,9 +559,7 @@ public class InventoryCheckOrchestrator {
         return result;
     }
 
-    private String generateCheckNo(Long tenantId) {
-        String date = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String rand = String.format("%04d", ThreadLocalRandom.current().nextInt(10000));
-        return "IC" + date + rand;
+    private String generateCheckNo() {
+        return documentNoService.nextDailyNo("IC");
     }
 }
@@ -2,6 +2,7 @@ package com.fashion.supplychain.warehouse.orchestration;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.common.serial.DocumentNoService;
 import com.fashion.supplychain.common.tenant.TenantAssert;
 import com.fashion.supplychain.production.entity.MaterialInbound;
 import com.fashion.supplychain.production.entity.MaterialOutboundLog;
@@ -21,9 +22,7 @@ import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @Slf4j
@@ -34,6 +33,7 @@ public class MaterialWarehouseOperationOrchestrator {
     private final MaterialInboundMapper materialInboundMapper;
     private final MaterialOutboundLogMapper materialOutboundLogMapper;
     private final StockChangeLogService stockChangeLogService;
+    private final DocumentNoService documentNoService;
     private final WarehouseAreaService warehouseAreaService;
 
     private static final Set<String> VALID_SOURCE_TYPES = Set.of(
@@ -107,7 +107,7 @@ public class MaterialWarehouseOperationOrchestrator {
         LocalDateTime now = LocalDateTime.now();
         MaterialInbound inbound = new MaterialInbound();
         inbound.setId(UUID.randomUUID().toString().replace("-", ""));
-        inbound.setInboundNo(buildNo("MI", now));
+        inbound.setInboundNo(buildInboundNo("MI"));
         inbound.setMaterialCode(materialCode);
         inbound.setMaterialName(stock.getMaterialName());
         inbound.setQuantity(quantity);
@@ -160,7 +160,7 @@ public class MaterialWarehouseOperationOrchestrator {
         if (!StringUtils.hasText(sourceType)) sourceType = "free_inbound";
         if (!StringUtils.hasText(warehouseLocation)) warehouseLocation = "默认仓";
 
-        String batchNo = buildNo("MBN", LocalDateTime.now());
+        String batchNo = buildNo("MBN");
         String traceId = "TR-" + UUID.randomUUID().toString().replace("-", "").substring(0, 16).toUpperCase();
 
         Object itemsRaw = body.get("items");
@@ -241,7 +241,7 @@ public class MaterialWarehouseOperationOrchestrator {
         LocalDateTime now = LocalDateTime.now();
         MaterialInbound reversal = new MaterialInbound();
         reversal.setId(UUID.randomUUID().toString().replace("-", ""));
-        reversal.setInboundNo(buildNo("MRV", now));
+        reversal.setInboundNo(buildInboundNo("MRV"));
         reversal.setMaterialCode(materialCode);
         reversal.setMaterialName(original.getMaterialName());
         reversal.setQuantity(reverseQty);
@@ -370,7 +370,7 @@ public class MaterialWarehouseOperationOrchestrator {
         MaterialOutboundLog logEntry = new MaterialOutboundLog();
         LocalDateTime now = LocalDateTime.now();
         logEntry.setId(UUID.randomUUID().toString().replace("-", ""));
-        logEntry.setOutboundNo(buildNo("MOB", now));
+        logEntry.setOutboundNo(buildNo("MOB"));
         logEntry.setSourceType(outstockType);
         logEntry.setStockId(stock.getId());
         logEntry.setMaterialCode(stock.getMaterialCode());
@@ -525,7 +525,7 @@ public class MaterialWarehouseOperationOrchestrator {
         try {
             StockChangeLog scl = new StockChangeLog();
             scl.setId(UUID.randomUUID().toString().replace("-", ""));
-            scl.setChangeNo(buildNo("MSC", LocalDateTime.now()));
+            scl.setChangeNo(buildNo("MSC"));
             scl.setChangeType(changeType);
             scl.setStockType("MATERIAL");
             scl.setStyleNo(stock.getMaterialCode());
@@ -590,10 +590,13 @@ public class MaterialWarehouseOperationOrchestrator {
         return stock;
     }
 
-    private String buildNo(String prefix, LocalDateTime now) {
-        return prefix + now.format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
-                + Integer.toHexString(ThreadLocalRandom.current().nextInt(0x1000, 0x10000))
-                .toUpperCase(Locale.ROOT);
+    private String buildNo(String prefix) {
+        return documentNoService.nextDailyNo(prefix);
+    }
+
+    /** 入库单 / 冲销单号：inbound_no 全库唯一，按全局序列取号 */
+    private String buildInboundNo(String prefix) {
+        return documentNoService.nextGlobalDailyNo(prefix, "t_material_inbound", "inbound_no");
     }
 
     private String trimToNull(Object value) {
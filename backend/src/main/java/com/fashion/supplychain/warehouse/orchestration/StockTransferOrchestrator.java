@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.fashion.supplychain.common.Result;
 import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.common.serial.DocumentNoService;
 import com.fashion.supplychain.common.tenant.TenantAssert;
 import com.fashion.supplychain.production.entity.MaterialStock;
 import com.fashion.supplychain.production.service.MaterialStockService;
@@ -17,8 +18,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.concurrent.ThreadLocalRandom;
 
 @Slf4j
 @Component
@@ -28,6 +27,7 @@ public class StockTransferOrchestrator {
     private final StockTransferService transferService;
     private final MaterialStockService materialStockService;
     private final StockTransferLogAppendHelper logAppendHelper;
+    private final DocumentNoService documentNoService;
 
     public Result<Page<StockTransfer>> list(int page, int pageSize, String status,
                                              String transferType, String keyword) {
@@ -276,8 +276,6 @@ public class StockTransferOrchestrator {
     }
 
     private String generateTransferNo() {
-        String date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        int seq = ThreadLocalRandom.current().nextInt(1000, 9999);
-        return "TF" + date + seq;
+        return documentNoService.nextDailyNo("TF");
     }
 }
@@ -0,0 +1,27 @@
+-- ==================================================================
+-- V202710190001: 创建 Webhook 发件箱表 t_webhook_outbox
+-- ==================================================================
+-- 背景：
+--   原 WebhookPushService 在 @Async 共享线程池里逐个同步 POST 客户回调地址，
+--   无超时、无重试，一个慢客户端会占满全局 async 线程；进程重启时未发送的事件直接丢失。
+--   现改为「业务事务内写发件箱 → WebhookDispatcher 按端点限流投递 + 指数退避重试」。
+--
+-- 状态流转：PENDING → SENDING → SUCCESS
+--                    ↘ PENDING（失败，next_attempt_time 退避） → DEAD（超过最大重试次数）
+--
+-- 策略（参考 V202707221002）：
+--   1. information_schema 检查表是否存在，存在则跳过（幂等）
+--   2. CREATE TABLE 不含 COMMENT，表级 COMMENT 用独立 ALTER 追加
+--   3. 多租户安全（P0 铁律4）：强制 tenant_id 字段 + 索引
+-- ==================================================================
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_webhook_outbox') = 0,
+    'CREATE TABLE `t_webhook_outbox` ( `id` BIGINT NOT NULL AUTO_INCREMENT, `tenant_id` BIGINT NOT NULL, `app_id` VARCHAR(64) NOT NULL, `app_type` VARCHAR(32) DEFAULT NULL, `event_type` VARCHAR(64) NOT NULL, `payload` MEDIUMTEXT NOT NULL, `status` VARCHAR(16) NOT NULL, `attempts` INT NOT NULL DEFAULT 0, `next_attempt_time` DATETIME NOT NULL, `lease_until` DATETIME DEFAULT NULL, `last_response_code` INT DEFAULT NULL, `last_error` VARCHAR(500) DEFAULT NULL, `sent_time` DATETIME DEFAULT NULL, `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP, `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, PRIMARY KEY (`id`), KEY `idx_status_next` (`status`, `next_attempt_time`), KEY `idx_tenant_app` (`tenant_id`, `app_id`, `status`) ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+ALTER TABLE `t_webhook_outbox` COMMENT 'Webhook发件箱（业务事务内写入，异步按端点投递）';
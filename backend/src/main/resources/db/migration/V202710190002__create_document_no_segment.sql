@@ -0,0 +1,26 @@
+-- ==================================================================
+-- V202710190002: 创建单据号号段表 t_document_no_segment
+-- ==================================================================
+-- 背景：
+--   PaymentNoGenerator 使用进程内 AtomicLong，重启归 1、多实例各自计数，WP 单号会重复；
+--   结算单/对账单每次取号都要分布式锁 + 查业务表最大号，仓库单据用时间戳 + 随机数可能撞号。
+--   现改为 DocumentNoService 号段分配：每次租约原子推进 max_value 一个步长，区间内在内存中取号。
+--
+-- 主键：(tenant_id, prefix, period)，tenant_id = 0 表示全库唯一的单号序列
+--
+-- 策略（参考 V202710190001）：
+--   1. information_schema 检查表是否存在，存在则跳过（幂等）
+--   2. CREATE TABLE 不含 COMMENT，表级 COMMENT 用独立 ALTER 追加
+--   3. 多租户安全（P0 铁律4）：强制 tenant_id 字段（主键首列）
+-- ==================================================================
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_document_no_segment') = 0,
+    'CREATE TABLE `t_document_no_segment` ( `tenant_id` BIGINT NOT NULL, `prefix` VARCHAR(32) NOT NULL, `period` VARCHAR(16) NOT NULL, `max_value` BIGINT NOT NULL, `step` INT NOT NULL, `update_time` DATETIME DEFAULT NULL, PRIMARY KEY (`tenant_id`, `prefix`, `period`) ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+ALTER TABLE `t_document_no_segment` COMMENT '单据号号段（按租户/前缀/周期租约分配）';
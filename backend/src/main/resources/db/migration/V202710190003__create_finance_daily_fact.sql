@@ -0,0 +1,120 @@
+-- ==================================================================
+-- V202710190003: 创建财务日汇总事实表 t_finance_daily_fact / t_finance_daily_fact_cursor
+-- ==================================================================
+-- 背景：
+--   FinancialReportOrchestrator 每次出利润表/现金流量表都要把整个区间的 t_scan_record
+--   （无 LIMIT）和对账/发票/应付/报销各最多 5000 条实体读进内存再求和，查一个季度就是几十万行。
+--   现改为 FinanceDailyFactOrchestrator 增量维护按 (租户, 日期, 类别) 预汇总的事实行，
+--   报表只读几百行事实 + 当天实时汇总。
+--
+-- t_finance_daily_fact        主键 (tenant_id, fact_date, category)
+-- t_finance_daily_fact_cursor 每个类别已同步到的源表 update_time 水位
+-- 源表 update_time 索引：增量刷新按 update_time 找变更日期，避免每轮全表扫描
+--
+-- 策略（参考 V202710190002）：
+--   1. information_schema 检查表/索引是否存在，存在则跳过（幂等）
+--   2. CREATE TABLE 不含 COMMENT，表级 COMMENT 用独立 ALTER 追加
+--   3. 多租户安全（P0 铁律4）：事实表强制 tenant_id 字段（主键首列）
+-- ==================================================================
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_finance_daily_fact') = 0,
+    'CREATE TABLE `t_finance_daily_fact` ( `tenant_id` BIGINT NOT NULL, `fact_date` DATE NOT NULL, `category` VARCHAR(32) NOT NULL, `amount` DECIMAL(20,4) NOT NULL DEFAULT 0, `doc_count` INT NOT NULL DEFAULT 0, `update_time` DATETIME DEFAULT NULL, PRIMARY KEY (`tenant_id`, `fact_date`, `category`) ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+ALTER TABLE `t_finance_daily_fact` COMMENT '财务日汇总事实（按租户/日期/类别预汇总）';
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_finance_daily_fact_cursor') = 0,
+    'CREATE TABLE `t_finance_daily_fact_cursor` ( `category` VARCHAR(32) NOT NULL, `last_update_time` DATETIME NOT NULL, `update_time` DATETIME DEFAULT NULL, PRIMARY KEY (`category`) ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+ALTER TABLE `t_finance_daily_fact_cursor` COMMENT '财务日汇总增量同步水位（全局，按类别）';
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_scan_record'
+       AND INDEX_NAME   = 'idx_scan_record_update_time') = 0,
+    'CREATE INDEX idx_scan_record_update_time ON t_scan_record (update_time)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_scan_record'
+       AND INDEX_NAME   = 'idx_scan_record_tenant_scan_time') = 0,
+    'CREATE INDEX idx_scan_record_tenant_scan_time ON t_scan_record (tenant_id, scan_time)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_shipment_reconciliation'
+       AND INDEX_NAME   = 'idx_shipment_recon_update_time') = 0,
+    'CREATE INDEX idx_shipment_recon_update_time ON t_shipment_reconciliation (update_time)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_material_reconciliation'
+       AND INDEX_NAME   = 'idx_material_recon_update_time') = 0,
+    'CREATE INDEX idx_material_recon_update_time ON t_material_reconciliation (update_time)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_ec_sales_revenue'
+       AND INDEX_NAME   = 'idx_ec_sales_revenue_update_time') = 0,
+    'CREATE INDEX idx_ec_sales_revenue_update_time ON t_ec_sales_revenue (update_time)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_expense_reimbursement'
+       AND INDEX_NAME   = 'idx_expense_reimb_update_time') = 0,
+    'CREATE INDEX idx_expense_reimb_update_time ON t_expense_reimbursement (update_time)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_invoice'
+       AND INDEX_NAME   = 'idx_invoice_update_time') = 0,
+    'CREATE INDEX idx_invoice_update_time ON t_invoice (update_time)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_payable'
+       AND INDEX_NAME   = 'idx_payable_update_time') = 0,
+    'CREATE INDEX idx_payable_update_time ON t_payable (update_time)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
@@ -0,0 +1,38 @@
+-- ==================================================================
+-- V202710190004: 创建订单健康分表 t_order_health_score
+-- ==================================================================
+-- 背景：
+--   OrderHealthScoreOrchestrator 每次请求都加载最多 5000 条 ProductionOrder 现算健康分，
+--   超过 5000 个订单的租户结果被静默截断。
+--   现改为 OrderHealthScoreIndexOrchestrator 持久化每单得分，仅在输入（进度/交期/物料到位）变化
+--   或交期分档跨界（rescore_date）时重算；各实例按 update_time 同步到内存有序索引，
+--   “风险最高 N 单”和分档直方图不再访问订单表。
+--
+-- 主键：(tenant_id, order_id)；active = 0 表示订单已删除
+--
+-- 策略（参考 V202710190003）：
+--   1. information_schema 检查表是否存在，存在则跳过（幂等）
+--   2. CREATE TABLE 不含 COMMENT，表级 COMMENT 用独立 ALTER 追加
+--   3. 多租户安全（P0 铁律4）：强制 tenant_id 字段（主键首列）
+-- ==================================================================
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_order_health_score') = 0,
+    'CREATE TABLE `t_order_health_score` ( `tenant_id` BIGINT NOT NULL, `order_id` VARCHAR(64) NOT NULL, `order_no` VARCHAR(64) DEFAULT NULL, `score` INT NOT NULL, `progress_score` INT NOT NULL, `deadline_score` INT NOT NULL, `procurement_score` INT NOT NULL, `rescore_date` DATE DEFAULT NULL, `active` TINYINT NOT NULL DEFAULT 1, `update_time` DATETIME NOT NULL, PRIMARY KEY (`tenant_id`, `order_id`), KEY `idx_order_health_score_update_time` (`update_time`), KEY `idx_order_health_score_rescore_date` (`rescore_date`) ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+ALTER TABLE `t_order_health_score` COMMENT '订单健康分（增量维护，供风险排行/分档统计）';
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_production_order'
+       AND INDEX_NAME   = 'idx_production_order_update_time') = 0,
+    'CREATE INDEX idx_production_order_update_time ON t_production_order (update_time)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
@@ -0,0 +1,65 @@
+-- ==================================================================
+-- V202710190005: 创建款式标准成本快照 t_style_cost_snapshot / 订单利润台账 t_order_profit_ledger
+-- ==================================================================
+-- 背景：
+--   OrderProfitOrchestrator 每算一个订单都要按款式各读最多 5000 条 BOM/工序/二次工艺
+--   实体在内存里求和，同一款式被多个订单反复计算；跨订单的利润列表只能逐单重算。
+--   现改为：
+--   1. StyleCostSnapshotOrchestrator 按 (租户, 款式) 持久化标准成本快照，DB 内 SUM 计算，
+--      BOM/工序/二次工艺写入后标记失效（stale），下次读取时重算，值变化时 version + 1；
+--   2. OrderProfitLedgerOrchestrator 按订单维护入库/出货/采购聚合与下单锁定价，
+--      由源表 update_time 水位增量刷新；利润列表 = 台账 JOIN 订单 JOIN 成本快照。
+--
+-- t_style_cost_snapshot  主键 (tenant_id, style_id)
+--   invalidate_seq：每次标记失效 + 1，重算写回时只有序号未变才清除 stale，避免覆盖并发失效
+-- t_order_profit_ledger  主键 (tenant_id, order_id)
+-- 源表 update_time 索引：t_product_warehousing / t_material_purchase
+--   （t_shipment_reconciliation 见 V202710190003，t_production_order 见 V202710190004）
+--
+-- 策略（参考 V202710190003）：
+--   1. information_schema 检查表/索引是否存在，存在则跳过（幂等）
+--   2. CREATE TABLE 不含 COMMENT，表级 COMMENT 用独立 ALTER 追加
+--   3. 多租户安全（P0 铁律4）：快照与台账强制 tenant_id 字段（主键首列）
+-- ==================================================================
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_style_cost_snapshot') = 0,
+    'CREATE TABLE `t_style_cost_snapshot` ( `tenant_id` BIGINT NOT NULL, `style_id` BIGINT NOT NULL, `bom_cost` DECIMAL(20,4) NOT NULL DEFAULT 0, `process_cost` DECIMAL(20,4) NOT NULL DEFAULT 0, `secondary_cost` DECIMAL(20,4) NOT NULL DEFAULT 0, `total_cost` DECIMAL(20,2) NOT NULL DEFAULT 0, `version` INT NOT NULL DEFAULT 1, `stale` TINYINT NOT NULL DEFAULT 0, `invalidate_seq` INT NOT NULL DEFAULT 0, `update_time` DATETIME DEFAULT NULL, PRIMARY KEY (`tenant_id`, `style_id`) ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+ALTER TABLE `t_style_cost_snapshot` COMMENT '款式标准成本快照（BOM+工序+二次工艺，按租户/款式）';
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_order_profit_ledger') = 0,
+    'CREATE TABLE `t_order_profit_ledger` ( `tenant_id` BIGINT NOT NULL, `order_id` VARCHAR(64) NOT NULL, `style_id` BIGINT DEFAULT NULL, `order_qty` INT NOT NULL DEFAULT 0, `warehousing_qty` INT NOT NULL DEFAULT 0, `locked_unit_price` DECIMAL(20,4) NOT NULL DEFAULT 0, `material_planned_qty` INT NOT NULL DEFAULT 0, `material_arrived_qty` INT NOT NULL DEFAULT 0, `material_effective_qty` INT NOT NULL DEFAULT 0, `material_planned_cost` DECIMAL(20,4) NOT NULL DEFAULT 0, `material_arrived_cost` DECIMAL(20,4) NOT NULL DEFAULT 0, `shipment_paid_amount` DECIMAL(20,4) NOT NULL DEFAULT 0, `shipment_total_amount` DECIMAL(20,4) NOT NULL DEFAULT 0, `active` TINYINT NOT NULL DEFAULT 1, `update_time` DATETIME DEFAULT NULL, PRIMARY KEY (`tenant_id`, `order_id`), KEY `idx_order_profit_ledger_style` (`tenant_id`, `style_id`) ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+ALTER TABLE `t_order_profit_ledger` COMMENT '订单利润台账（入库/出货/采购聚合 + 下单锁定价）';
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_product_warehousing'
+       AND INDEX_NAME   = 'idx_product_warehousing_update_time') = 0,
+    'CREATE INDEX idx_product_warehousing_update_time ON t_product_warehousing (update_time)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_material_purchase'
+       AND INDEX_NAME   = 'idx_material_purchase_update_time') = 0,
+    'CREATE INDEX idx_material_purchase_update_time ON t_material_purchase (update_time)',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
@@ -0,0 +1,31 @@
+-- ==================================================================
+-- V202710190006: 创建应收/应付账龄汇总表 t_aging_balance
+-- ==================================================================
+-- 背景：
+--   FinancialReportOrchestrator.generateAgingAnalysis 每次把租户全部未结清应收/应付
+--   （最多 5000 条）读进内存按到期日分档，超过 5000 条的部分直接丢失；
+--   客户账龄/信用查看同样只能逐单读取。
+--   现改为 AgingBalanceOrchestrator 按 (租户, 类型, 客户/供应商) 维护分档合计：
+--   应收/应付写入后按往来单位重算（DB 内 GROUP BY），每天凌晨一次全表集合式重算完成跨档滚动。
+--   账龄报表 = 对租户几十~几百行往来单位汇总行求和；单个客户账龄 = 主键读取。
+--
+-- 分档（逾期天数 = 今天 - 到期日）：
+--   未到期（含无到期日） / 0-30 / 31-60 / 61-90 / 91-180 / 180 以上
+--   与原报表一致：逾期 0 天（今天到期）计入 0-30 档
+--
+-- 策略（参考 V202710190003）：
+--   1. information_schema 检查表是否存在，存在则跳过（幂等）
+--   2. CREATE TABLE 不含 COMMENT，表级 COMMENT 用独立 ALTER 追加
+--   3. 多租户安全（P0 铁律4）：汇总表强制 tenant_id 字段（主键首列）
+-- ==================================================================
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_aging_balance') = 0,
+    'CREATE TABLE `t_aging_balance` ( `tenant_id` BIGINT NOT NULL, `ledger_type` VARCHAR(16) NOT NULL, `party_id` VARCHAR(64) NOT NULL, `party_name` VARCHAR(200) DEFAULT NULL, `open_count` INT NOT NULL DEFAULT 0, `open_amount` DECIMAL(20,2) NOT NULL DEFAULT 0, `not_due_count` INT NOT NULL DEFAULT 0, `not_due_amount` DECIMAL(20,2) NOT NULL DEFAULT 0, `d0_30_count` INT NOT NULL DEFAULT 0, `d0_30_amount` DECIMAL(20,2) NOT NULL DEFAULT 0, `d31_60_count` INT NOT NULL DEFAULT 0, `d31_60_amount` DECIMAL(20,2) NOT NULL DEFAULT 0, `d61_90_count` INT NOT NULL DEFAULT 0, `d61_90_amount` DECIMAL(20,2) NOT NULL DEFAULT 0, `d91_180_count` INT NOT NULL DEFAULT 0, `d91_180_amount` DECIMAL(20,2) NOT NULL DEFAULT 0, `d180_plus_count` INT NOT NULL DEFAULT 0, `d180_plus_amount` DECIMAL(20,2) NOT NULL DEFAULT 0, `as_of_date` DATE NOT NULL, `update_time` DATETIME DEFAULT NULL, PRIMARY KEY (`tenant_id`, `ledger_type`, `party_id`) ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+ALTER TABLE `t_aging_balance` COMMENT '应收/应付账龄分档汇总（按租户/类型/往来单位）';
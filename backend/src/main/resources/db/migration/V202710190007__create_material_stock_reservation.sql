@@ -0,0 +1,34 @@
+-- ==================================================================
+-- V202710190007: 创建物料库存预留台账 t_material_stock_reservation
+-- ==================================================================
+-- 背景：
+--   MaterialPurchasePickingHelper.smartReceiveAll / warehousePickSingle 在 Java 里按
+--   quantity - locked_quantity 计算可用量，再逐行 lockStock 拼出领料明细；并发领取同一物料时
+--   读到的可用量已过期，逐行锁定失败会留下部分锁定。确认出库/撤销再逐明细回写库存。
+--   现改为预留台账（MaterialStockReservationService）：
+--     1. 分配：按策略（FIFO / 按库位）用窗口函数累计可用量，一条 INSERT ... SELECT 生成分配计划；
+--     2. 落锁：一条多表 UPDATE 把计划行的数量加到 locked_quantity（可用量不足的行不落锁），
+--        冲突部分删除后按缺口重新分配（乐观重试，不持有长时间行锁）；
+--     3. 确认出库 / 撤销 / 过期：先翻转台账状态（op_token 标记本次翻转的行），
+--        再按 op_token 汇总对库存做一条集合式 UPDATE。
+--   t_material_stock.locked_quantity 仍是有效预留量的汇总，原有可用量读取口径不变。
+--
+-- 状态：PLANNED（分配计划，同一事务内即转为 RESERVED 或删除）/ RESERVED / CONSUMED（已出库）
+--       / RELEASED（撤销释放）/ EXPIRED（过期释放）/ RETURNED（已出库后撤销回库）
+--
+-- 策略（参考 V202710190006）：
+--   1. information_schema 检查表是否存在，存在则跳过（幂等）
+--   2. CREATE TABLE 不含 COMMENT，表级 COMMENT 用独立 ALTER 追加
+--   3. 多租户安全（P0 铁律4）：强制 tenant_id 字段
+-- ==================================================================
+
+SET @s = IF(
+    (SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES
+     WHERE TABLE_SCHEMA = DATABASE()
+       AND TABLE_NAME   = 't_material_stock_reservation') = 0,
+    'CREATE TABLE `t_material_stock_reservation` ( `id` VARCHAR(36) NOT NULL, `tenant_id` BIGINT NOT NULL, `batch_id` VARCHAR(36) NOT NULL, `stock_id` VARCHAR(36) NOT NULL, `material_code` VARCHAR(100) DEFAULT NULL, `purchase_id` VARCHAR(36) DEFAULT NULL, `picking_id` VARCHAR(36) DEFAULT NULL, `quantity` INT NOT NULL, `status` VARCHAR(16) NOT NULL, `strategy` VARCHAR(16) DEFAULT NULL, `seq` INT NOT NULL DEFAULT 0, `op_token` VARCHAR(36) DEFAULT NULL, `expire_time` DATETIME DEFAULT NULL, `create_time` DATETIME DEFAULT NULL, `update_time` DATETIME DEFAULT NULL, PRIMARY KEY (`id`), KEY `idx_msr_batch` (`batch_id`, `status`), KEY `idx_msr_picking` (`tenant_id`, `picking_id`, `status`), KEY `idx_msr_status_expire` (`status`, `expire_time`), KEY `idx_msr_op_token` (`op_token`), KEY `idx_msr_stock` (`stock_id`, `status`) ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4',
+    'SELECT 1'
+);
+PREPARE stmt FROM @s; EXECUTE stmt; DEALLOCATE PREPARE stmt;
+
+ALTER TABLE `t_material_stock_reservation` COMMENT '物料库存预留台账（领料分配/确认出库/撤销/过期）';
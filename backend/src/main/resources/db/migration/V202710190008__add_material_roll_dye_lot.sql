@@ -0,0 +1,19 @@
+-- ============================================================
+-- V202710190008 料卷增加缸号列 dye_lot
+-- 背景：裁剪排床按缸号分配料卷，同一床只铺同一缸号，避免色差混入同一批菲号
+-- 影响范围：t_material_roll 表结构，新增列默认 NULL（存量料卷按入库单号视为同缸）
+-- 回滚方案：ALTER TABLE t_material_roll DROP COLUMN dye_lot;
+-- ============================================================
+
+SET @col_exists = (
+  SELECT COUNT(*) FROM information_schema.COLUMNS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 't_material_roll'
+    AND COLUMN_NAME = 'dye_lot'
+);
+SET @ddl = IF(@col_exists = 0,
+  'ALTER TABLE t_material_roll ADD COLUMN dye_lot VARCHAR(64) DEFAULT NULL COMMENT ''缸号（色批）'' AFTER color',
+  'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
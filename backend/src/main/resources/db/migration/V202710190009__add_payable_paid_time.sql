@@ -0,0 +1,27 @@
+-- ============================================================
+-- V202710190009 应付单增加结清时间 paid_time，财务事实按结清日归日
+-- 背景：PAYABLE_PAID 原按 update_time 归日，结清后任何一次编辑都会把金额挪到编辑当天；
+--       编辑日距结清日超过夜间重算窗口时，原日期的事实行不再重算，同一笔金额被计两次。
+--       同时 MATERIAL_COST / SHIPMENT_REVENUE 补 delete_flag = 0，软删除的对账单不再计入。
+-- 影响范围：t_payable 新增列（存量已结清行以 update_time 回填）；
+--           清空上述三个类别的事实行与水位，下一轮增量刷新按新口径全量初始化
+-- 回滚方案：ALTER TABLE t_payable DROP COLUMN paid_time;（事实行同样清空后重建）
+-- ============================================================
+
+SET @col_exists = (
+  SELECT COUNT(*) FROM information_schema.COLUMNS
+  WHERE TABLE_SCHEMA = DATABASE()
+    AND TABLE_NAME = 't_payable'
+    AND COLUMN_NAME = 'paid_time'
+);
+SET @ddl = IF(@col_exists = 0,
+  'ALTER TABLE t_payable ADD COLUMN paid_time DATETIME DEFAULT NULL COMMENT ''结清时间（状态首次变为 PAID 的时刻）'' AFTER status',
+  'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+UPDATE t_payable SET paid_time = update_time WHERE status = 'PAID' AND paid_time IS NULL;
+
+DELETE FROM t_finance_daily_fact WHERE category IN ('PAYABLE_PAID', 'MATERIAL_COST', 'SHIPMENT_REVENUE');
+DELETE FROM t_finance_daily_fact_cursor WHERE category IN ('PAYABLE_PAID', 'MATERIAL_COST', 'SHIPMENT_REVENUE');
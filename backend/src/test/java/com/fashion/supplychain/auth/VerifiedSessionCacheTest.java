@@ -0,0 +1,146 @@
+package com.fashion.supplychain.auth;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VerifiedSessionCacheTest {
+
+    @Mock
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private VerifiedSessionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new VerifiedSessionCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 1000L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+        cache.init();
+    }
+
+    @Test
+    void hit_returnsEntryCachedByPreviousRequest() {
+        VerifiedSessionCache.Lookup miss = cache.lookup(new MockHttpServletRequest(), "tok-a");
+        assertNull(miss.getEntry());
+        cache.put(miss, subject("u-1", 60_000), List.of(new SimpleGrantedAuthority("ROLE_admin")));
+
+        VerifiedSessionCache.Entry hit = cache.lookup(new MockHttpServletRequest(), "tok-a").getEntry();
+
+        assertNotNull(hit);
+        assertEquals("u-1", hit.getSubject().getUserId());
+        assertEquals("ROLE_admin", hit.getAuthorities().get(0).getAuthority());
+        assertNull(cache.lookup(new MockHttpServletRequest(), "tok-b").getEntry());
+    }
+
+    @Test
+    void expiry_isCappedAtTokenExp() throws Exception {
+        cache.put(cache.lookup(new MockHttpServletRequest(), "short"), subject("u-1", 200), List.of());
+        cache.put(cache.lookup(new MockHttpServletRequest(), "expired"), subject("u-1", -1_000), List.of());
+
+        assertNotNull(cache.lookup(new MockHttpServletRequest(), "short").getEntry(), "TTL 300s 内、token 未过期");
+        assertNull(cache.lookup(new MockHttpServletRequest(), "expired").getEntry(), "已过期 token 不入缓存");
+
+        Thread.sleep(400);
+        assertNull(cache.lookup(new MockHttpServletRequest(), "short").getEntry(), "token 过期即失效，不等 TTL");
+    }
+
+    @Test
+    void put_afterConcurrentInvalidation_returnsEntryWithoutCaching() {
+        VerifiedSessionCache.Lookup lookup = cache.lookup(new MockHttpServletRequest(), "tok-a");
+        // 验签期间发生失效（改密 / 权限变更广播）
+        cache.invalidateUser("u-9");
+
+        VerifiedSessionCache.Entry entry = cache.put(lookup, subject("u-1", 60_000), List.of());
+
+        assertNotNull(entry);
+        assertNull(cache.lookup(new MockHttpServletRequest(), "tok-a").getEntry());
+        // 新一轮查找拿到新代次后可以正常写入
+        cache.put(cache.lookup(new MockHttpServletRequest(), "tok-a"), subject("u-1", 60_000), List.of());
+        assertNotNull(cache.lookup(new MockHttpServletRequest(), "tok-a").getEntry());
+    }
+
+    @Test
+    void sameRequest_reusesLookupAcrossFilters() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        assertSame(cache.lookup(request, "tok-a"), cache.lookup(request, "tok-a"));
+        assertNotSame(cache.lookup(request, "tok-a"), cache.lookup(request, "tok-b"));
+        assertNull(cache.lookup(request, " "));
+    }
+
+    @Test
+    void subscriptionDown_bypassesCacheThenClearsOnRecovery() {
+        ReflectionTestUtils.setField(cache, "redisConnectionFactory", redisConnectionFactory);
+        ReflectionTestUtils.setField(cache, "listenerContainer", listenerContainer);
+        when(listenerContainer.isListening()).thenReturn(true);
+        cache.put(cache.lookup(new MockHttpServletRequest(), "tok-a"), subject("u-1", 60_000), List.of());
+        assertNotNull(cache.lookup(new MockHttpServletRequest(), "tok-a").getEntry());
+
+        when(listenerContainer.isListening()).thenReturn(false);
+        VerifiedSessionCache.Lookup down = cache.lookup(new MockHttpServletRequest(), "tok-a");
+
+        assertNull(down, "订阅断开期间旁路缓存，逐请求校验");
+        assertEquals(false, cache.getStats().get("active"));
+        assertEquals(1L, cache.getStats().get("bypassed"));
+
+        when(listenerContainer.isListening()).thenReturn(true);
+        VerifiedSessionCache.Lookup recovered = cache.lookup(new MockHttpServletRequest(), "tok-a");
+
+        assertNotNull(recovered);
+        assertNull(recovered.getEntry(), "恢复订阅后先整体清空，断开期间可能漏收失效广播");
+    }
+
+    @Test
+    void subscriptionNeverStarted_keepsCacheOff() {
+        ReflectionTestUtils.setField(cache, "redisConnectionFactory", redisConnectionFactory);
+
+        assertNull(cache.lookup(new MockHttpServletRequest(), "tok-a"));
+    }
+
+    @Test
+    void broadcast_evictsSingleUserOrEverything() {
+        cache.put(cache.lookup(new MockHttpServletRequest(), "tok-a"), subject("u-1", 60_000), List.of());
+        cache.put(cache.lookup(new MockHttpServletRequest(), "tok-b"), subject("u-2", 60_000), List.of());
+
+        cache.onMessage(message("u:u-1"), null);
+
+        assertNull(cache.lookup(new MockHttpServletRequest(), "tok-a").getEntry());
+        assertNotNull(cache.lookup(new MockHttpServletRequest(), "tok-b").getEntry());
+
+        cache.onMessage(message("*"), null);
+        assertNull(cache.lookup(new MockHttpServletRequest(), "tok-b").getEntry());
+    }
+
+    private static TokenSubject subject(String userId, long expiresInMs) {
+        TokenSubject s = new TokenSubject();
+        s.setUserId(userId);
+        s.setTenantId(1L);
+        s.setExpiresAt(System.currentTimeMillis() + expiresInMs);
+        return s;
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(VerifiedSessionCache.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,119 @@
+package com.fashion.supplychain.common.datachange;
+
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.fashion.supplychain.common.SpringContextHolder;
+import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.crm.mapper.ReceivableMapper;
+import com.fashion.supplychain.finance.entity.Payable;
+import com.fashion.supplychain.finance.mapper.PayableMapper;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TableChangeInterceptorTest {
+
+    private final List<TableChange> payableChanges = new ArrayList<>();
+    private final List<TableChange> allChanges = new ArrayList<>();
+
+    private MockedStatic<SpringContextHolder> mockedContext;
+    private MockedStatic<UserContext> mockedUserContext;
+    private TableChangeInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        TableChangeListenerRegistry registry = new TableChangeListenerRegistry(List.of(
+                new Recorder(List.of(PayableMapper.class), payableChanges, true),
+                new Recorder(List.of(PayableMapper.class, ReceivableMapper.class), allChanges, false)));
+        mockedContext = mockStatic(SpringContextHolder.class);
+        mockedContext.when(SpringContextHolder::isReady).thenReturn(true);
+        mockedContext.when(() -> SpringContextHolder.getBean(TableChangeListenerRegistry.class)).thenReturn(registry);
+        mockedUserContext = mockStatic(UserContext.class);
+        mockedUserContext.when(UserContext::tenantId).thenReturn(7L);
+        interceptor = new TableChangeInterceptor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        mockedContext.close();
+        mockedUserContext.close();
+    }
+
+    @Test
+    void entityWrite_dispatchedToEveryListenerOfThatMapper() {
+        Payable payable = new Payable();
+        interceptor.beforeUpdate(null, statement(PayableMapper.class.getName() + ".updateById"),
+                Map.of(Constants.ENTITY, payable));
+
+        assertEquals(1, payableChanges.size());
+        TableChange change = payableChanges.get(0);
+        assertSame(PayableMapper.class, change.mapper());
+        assertSame(payable, change.entityAs(Payable.class));
+        assertEquals(7L, change.tenantId());
+        assertEquals(1, allChanges.size());
+    }
+
+    @Test
+    void deleteById_hasNoEntity_andListenerMayDecline() {
+        interceptor.beforeUpdate(null, statement(PayableMapper.class.getName() + ".deleteById"), "P-1");
+
+        assertTrue(payableChanges.isEmpty(), "accepts=false 的监听不应收到");
+        assertEquals(1, allChanges.size());
+        assertNull(allChanges.get(0).entityAs(Payable.class));
+    }
+
+    @Test
+    void unwatchedMapper_isIgnored() {
+        interceptor.beforeUpdate(null, statement("com.fashion.supplychain.style.mapper.StyleInfoMapper.updateById"),
+                new Object());
+
+        assertTrue(payableChanges.isEmpty());
+        assertTrue(allChanges.isEmpty());
+    }
+
+    @Test
+    void insideTransaction_dispatchedOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        interceptor.beforeUpdate(null, statement(ReceivableMapper.class.getName() + ".insert"), new Object());
+        assertTrue(allChanges.isEmpty());
+
+        for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            sync.afterCommit();
+        }
+        assertEquals(1, allChanges.size());
+        assertSame(ReceivableMapper.class, allChanges.get(0).mapper());
+    }
+
+    private static MappedStatement statement(String id) {
+        MappedStatement ms = mock(MappedStatement.class);
+        when(ms.getId()).thenReturn(id);
+        return ms;
+    }
+
+    private record Recorder(List<Class<?>> watchedMappers, List<TableChange> sink, boolean entityOnly)
+            implements TableChangeListener {
+
+        @Override
+        public boolean accepts(TableChange change) {
+            return !entityOnly || change.entityAs(Payable.class) != null;
+        }
+
+        @Override
+        public void onChange(TableChange change) {
+            sink.add(change);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.fashion.supplychain.common.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedBodyHttpServletRequestTest {
+
+    @Test
+    void smallBody_isCachedAndReadableTwice() throws Exception {
+        byte[] body = "{\"name\":\"款式A\"}".getBytes(StandardCharsets.UTF_8);
+        CachedBodyHttpServletRequest req = new CachedBodyHttpServletRequest(request(body, body.length),
+                XssPatternMatcher.getDefault(), 1024);
+
+        assertFalse(req.containsXssPattern());
+        assertArrayEquals(body, req.getInputStream().readAllBytes());
+        assertArrayEquals(body, req.getInputStream().readAllBytes());
+        req.release();
+    }
+
+    @Test
+    void bodyLargerThanPooledBuffer_growsFromBytesRead() throws Exception {
+        byte[] body = new byte[300 * 1024];
+        Arrays.fill(body, (byte) 'a');
+        // 分块传输：未声明 Content-Length
+        CachedBodyHttpServletRequest req = new CachedBodyHttpServletRequest(request(body, -1),
+                XssPatternMatcher.getDefault(), 1024 * 1024);
+
+        assertEquals(body.length, req.getBodyLength());
+        assertArrayEquals(body, req.getBody());
+    }
+
+    @Test
+    void lyingContentLength_doesNotPreallocateDeclaredSize() throws Exception {
+        byte[] body = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+        // 声明 1.9 GB、实际只有几个字节：按声明值预分配会直接 OOM
+        CachedBodyHttpServletRequest req = new CachedBodyHttpServletRequest(request(body, Integer.MAX_VALUE - 16),
+                null, Integer.MAX_VALUE - 16);
+
+        assertArrayEquals(body, req.getBody());
+    }
+
+    @Test
+    void declaredLengthOverLimit_rejectedBeforeReading() {
+        byte[] body = new byte[10];
+        assertThrows(CachedBodyHttpServletRequest.BodyTooLargeException.class,
+                () -> new CachedBodyHttpServletRequest(request(body, 2048), null, 1024));
+    }
+
+    @Test
+    void actualBodyOverLimit_rejectedEvenWithoutContentLength() {
+        byte[] body = new byte[100 * 1024];
+        assertThrows(CachedBodyHttpServletRequest.BodyTooLargeException.class,
+                () -> new CachedBodyHttpServletRequest(request(body, -1), null, 80 * 1024));
+    }
+
+    @Test
+    void bodyExactlyAtLimit_accepted() throws Exception {
+        byte[] body = new byte[80 * 1024];
+        CachedBodyHttpServletRequest req = new CachedBodyHttpServletRequest(request(body, -1), null, 80 * 1024);
+        assertEquals(body.length, req.getBodyLength());
+    }
+
+    @Test
+    void xssSplitAcrossReads_detected() throws Exception {
+        byte[] prefix = new byte[64 * 1024 - 3];
+        Arrays.fill(prefix, (byte) ' ');
+        byte[] tail = "<script>".getBytes(StandardCharsets.US_ASCII);
+        byte[] body = Arrays.copyOf(prefix, prefix.length + tail.length);
+        System.arraycopy(tail, 0, body, prefix.length, tail.length);
+
+        CachedBodyHttpServletRequest req = new CachedBodyHttpServletRequest(request(body, -1),
+                XssPatternMatcher.getDefault(), 1024 * 1024);
+        assertTrue(req.containsXssPattern());
+    }
+
+    private static MockHttpServletRequest request(byte[] body, int declaredLength) {
+        MockHttpServletRequest request = new MockHttpServletRequest() {
+            @Override
+            public int getContentLength() {
+                return declaredLength;
+            }
+        };
+        request.setContentType("application/json");
+        request.setContent(body);
+        return request;
+    }
+}
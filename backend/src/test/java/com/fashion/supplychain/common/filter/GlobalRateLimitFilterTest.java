@@ -0,0 +1,107 @@
+package com.fashion.supplychain.common.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GlobalRateLimitFilterTest {
+
+    private static final String KEY = "rl:global:default:10.0.0.1";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private GlobalRateLimitFilter filter;
+
+    /** 内存版计数 key：只模拟租约与退回两个脚本 */
+    private long counter;
+    private long windowLeftMs = 60_000L;
+    private final List<Integer> requestedBlocks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        filter = new GlobalRateLimitFilter(redisTemplate, new ObjectMapper(), null);
+        filter.leaseBlock = 10;
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+            Object[] args = inv.getArguments();
+            if (args[0] == GlobalRateLimitFilter.LEASE_SCRIPT) {
+                long limit = Long.parseLong((String) args[2]);
+                int block = Integer.parseInt((String) args[4]);
+                requestedBlocks.add(block);
+                if (counter >= limit) {
+                    return List.of(0L, windowLeftMs);
+                }
+                long grant = Math.min(block, limit - counter);
+                counter += grant;
+                return List.of(grant, windowLeftMs);
+            }
+            long n = Math.min(Long.parseLong((String) args[2]), counter);
+            counter -= Math.max(0, n);
+            return n;
+        });
+    }
+
+    @Test
+    void lowRateClient_unusedPermitsAreReturned() throws Exception {
+        windowLeftMs = 1L;
+        for (int i = 0; i < 5; i++) {
+            assertTrue(filter.acquireLeased(KEY, 200, 60));
+            Thread.sleep(5);
+        }
+        // 每次只领 2 个、用掉 1 个，余量在续租前退回：全局计数 = 实际请求数 + 当前租约余量
+        assertEquals(6, counter);
+        assertTrue(requestedBlocks.stream().allMatch(b -> b == 2), requestedBlocks.toString());
+    }
+
+    @Test
+    void busyClient_blockGrowsUpToConfiguredLease() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(filter.acquireLeased(KEY, 200, 60));
+        }
+        assertEquals(List.of(2, 4, 8, 10), requestedBlocks.subList(0, 4));
+        assertTrue(requestedBlocks.stream().allMatch(b -> b <= 10));
+        // 多占的名额不超过一个租约块
+        assertTrue(counter >= 100 && counter < 110, "counter=" + counter);
+    }
+
+    @Test
+    void globalLimitIsStillEnforced() {
+        int allowed = 0;
+        for (int i = 0; i < 20; i++) {
+            if (filter.acquireLeased(KEY, 5, 60)) {
+                allowed++;
+            }
+        }
+        assertEquals(5, allowed);
+        assertEquals(5, counter);
+    }
+
+    @Test
+    void expiredLeaseOfAnotherClient_isReturnedBySweep() throws Exception {
+        windowLeftMs = 1L;
+        assertTrue(filter.acquireLeased(KEY, 200, 60));
+        assertEquals(2, counter);
+        Thread.sleep(5);
+        // 清扫按租约周期触发；首轮请求已把下次清扫推迟到 5 秒后，这里直接推到现在
+        ((AtomicLong) ReflectionTestUtils.getField(filter, "nextSweepAt")).set(0L);
+        windowLeftMs = 60_000L;
+        assertTrue(filter.acquireLeased("rl:global:default:10.0.0.2", 200, 60));
+        // 10.0.0.1 的 1 个余量已退回，10.0.0.2 新领 2 个
+        assertEquals(3, counter);
+    }
+}
@@ -0,0 +1,80 @@
+package com.fashion.supplychain.common.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XssPatternMatcherTest {
+
+    private final XssPatternMatcher matcher = XssPatternMatcher.getDefault();
+
+    @Test
+    void everyPattern_matchesCaseInsensitively() {
+        for (String p : XssPatternMatcher.PATTERNS) {
+            assertTrue(matcher.matches("{\"remark\":\"x" + p.toUpperCase(Locale.ROOT) + "y\"}"), p);
+            assertTrue(scanBytes("前缀" + p + "后缀"), p);
+        }
+    }
+
+    @Test
+    void harmlessText_notMatched() {
+        assertFalse(matcher.matches("{\"description\":\"onload 事件说明\",\"script\":\"<scrip t>\"}"));
+        assertFalse(matcher.matches(null));
+        assertFalse(scanBytes("款式：连衣裙，颜色：红色，尺码：XL"));
+    }
+
+    @Test
+    void patternSplitAcrossChunks_stillMatched() {
+        byte[] body = "{\"a\":\"<scr".getBytes(StandardCharsets.UTF_8);
+        byte[] rest = "IPT>alert(1)\"}".getBytes(StandardCharsets.UTF_8);
+        int state = matcher.scan(XssPatternMatcher.INITIAL, body, 0, body.length);
+        assertNotEquals(XssPatternMatcher.MATCHED, state);
+        assertEquals(XssPatternMatcher.MATCHED, matcher.scan(state, rest, 0, rest.length));
+    }
+
+    @Test
+    void multiByteCharacterInsidePattern_breaksMatch() {
+        assertFalse(scanBytes("<scr中ipt"));
+        assertFalse(matcher.matches("<scr中ipt"));
+    }
+
+    @Test
+    void randomInputs_agreeWithLowercaseContains() {
+        Random random = new Random(42);
+        String alphabet = "<>:=(scriptjavaonerloadclkmuvifbxdhtSCRIPTJ/ 中";
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int len = random.nextInt(40);
+            for (int j = 0; j < len; j++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            if (random.nextInt(10) == 0) {
+                String p = XssPatternMatcher.PATTERNS[random.nextInt(XssPatternMatcher.PATTERNS.length)];
+                sb.insert(random.nextInt(sb.length() + 1), p);
+            }
+            String value = sb.toString();
+            boolean expected = naive(value);
+            assertEquals(expected, matcher.matches(value), value);
+            assertEquals(expected, scanBytes(value), value);
+        }
+    }
+
+    private boolean scanBytes(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return matcher.scan(XssPatternMatcher.INITIAL, bytes, 0, bytes.length) == XssPatternMatcher.MATCHED;
+    }
+
+    private static boolean naive(String value) {
+        String lower = value.toLowerCase(Locale.ROOT);
+        for (String p : XssPatternMatcher.PATTERNS) {
+            if (lower.contains(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,263 @@
+package com.fashion.supplychain.common.serial;
+
+import com.fashion.supplychain.common.UserContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentNoServiceTest {
+
+    private final SegmentTable table = new SegmentTable();
+
+    private final String day = LocalDate.now().format(DocumentNoService.DAY);
+
+    private DocumentNoService service;
+
+    @BeforeEach
+    void setUp() {
+        service = newNode();
+        login(1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        UserContext.clear();
+    }
+
+    @Test
+    void dailyNo_isTenantScopedWhileGlobalDailyNoSharesOneSequence() {
+        assertEquals("IC" + day + "000001", service.nextDailyNo("IC"));
+        login(2L);
+        assertEquals("IC" + day + "000001", service.nextDailyNo("IC"));
+
+        login(1L);
+        assertEquals("FI" + day + "000001", service.nextGlobalDailyNo("FI", "t_product_warehousing", "warehousing_no"));
+        login(2L);
+        assertEquals("FI" + day + "000002", service.nextGlobalDailyNo("FI", "t_product_warehousing", "warehousing_no"));
+
+        assertTrue(table.rows.containsKey("1|IC|" + day));
+        assertTrue(table.rows.containsKey("2|IC|" + day));
+        assertTrue(table.rows.containsKey("0|FI|" + day), "全局序列落在 tenant_id=0");
+        assertFalse(table.rows.containsKey("1|FI|" + day));
+    }
+
+    @Test
+    void segmentExhausted_leasesNextRangeWithDoubledStep() {
+        for (long i = 1; i <= 10; i++) {
+            assertEquals(i, service.next(1L, "SC", day, null));
+        }
+        assertEquals(10L, table.rows.get("1|SC|" + day));
+
+        assertEquals(11L, service.next(1L, "SC", day, null));
+        // 首段 60 秒内用完，步长 10 → 20
+        assertEquals(30L, table.rows.get("1|SC|" + day));
+        assertEquals(2, table.leases);
+    }
+
+    @Test
+    void twoNodes_neverHandOutTheSameNumber() {
+        DocumentNoService other = newNode();
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            assertTrue(seen.add(service.next(null, "PAY", day, null)));
+            assertTrue(seen.add(other.next(null, "PAY", day, null)));
+        }
+    }
+
+    @Test
+    void floor_isReadFromBusinessTableOnlyOnFirstLease() {
+        table.latestNo = "FI" + day + "000123";
+
+        assertEquals("FI" + day + "000124", service.nextGlobalDailyNo("FI", "t_product_warehousing", "warehousing_no"));
+        assertEquals(List.of("SELECT MAX(warehousing_no) FROM t_product_warehousing WHERE warehousing_no LIKE ?|FI" + day + "%"),
+                table.floorQueries);
+
+        // 号段用完续租：行已存在，不再查业务表
+        for (int i = 0; i < 10; i++) {
+            service.nextGlobalDailyNo("FI", "t_product_warehousing", "warehousing_no");
+        }
+        assertEquals(1, table.floorQueries.size());
+        assertEquals(2, table.leases);
+
+        // 重启（新节点）同样不再查
+        assertEquals("FI" + day + "000154", newNode().nextGlobalDailyNo("FI", "t_product_warehousing", "warehousing_no"));
+        assertEquals(1, table.floorQueries.size());
+    }
+
+    @Test
+    void floorFailure_startsFromOne() {
+        table.floorError = true;
+
+        assertEquals("MI" + day + "000001", service.nextGlobalDailyNo("MI", "t_material_inbound", "inbound_no"));
+    }
+
+    @Test
+    void nextNo_widensWhenSequenceOutgrowsWidth() {
+        table.latestNo = "MR" + "202610" + "9999";
+
+        assertEquals("MR20261010000", service.nextNo("MR", "202610", 4, false,
+                () -> DocumentNoService.parseSeq(table.latestNo, "MR202610")));
+    }
+
+    @Test
+    void parseSeq_ignoresForeignOrMalformedNumbers() {
+        assertEquals(123L, DocumentNoService.parseSeq("FI20261019000123", "FI20261019"));
+        assertEquals(0L, DocumentNoService.parseSeq("FO20261019000123", "FI20261019"));
+        assertEquals(0L, DocumentNoService.parseSeq("FI20261019", "FI20261019"));
+        assertEquals(0L, DocumentNoService.parseSeq("FI20261019A1B2", "FI20261019"));
+        assertEquals(0L, DocumentNoService.parseSeq(null, "FI20261019"));
+    }
+
+    @Test
+    void blankPrefix_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.next(1L, " ", day, null));
+    }
+
+    private DocumentNoService newNode() {
+        DocumentNoService node = new DocumentNoService();
+        ReflectionTestUtils.setField(node, "jdbcTemplate", table);
+        ReflectionTestUtils.setField(node, "transactionManager", new NoopTransactionManager());
+        ReflectionTestUtils.setField(node, "maxStep", 1000);
+        return node;
+    }
+
+    private static void login(Long tenantId) {
+        UserContext ctx = new UserContext();
+        ctx.setTenantId(tenantId);
+        ctx.setUserId("u-1");
+        UserContext.set(ctx);
+    }
+
+    /**
+     * 内存版 t_document_no_segment：按 DocumentNoService 的三条语句（查存在、upsert、LAST_INSERT_ID）模拟 MySQL 行为
+     */
+    static final class SegmentTable extends JdbcTemplate {
+        final Map<String, Long> rows = new HashMap<>();
+        final List<String> floorQueries = new ArrayList<>();
+        String latestNo;
+        boolean floorError;
+        int leases;
+        private long lastInsertId;
+
+        @Override
+        public <T> T execute(ConnectionCallback<T> action) {
+            try {
+                return action.doInConnection(connection());
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            floorQueries.add(sql + "|" + args[0]);
+            if (floorError) {
+                throw new IllegalStateException("业务表不可用");
+            }
+            return requiredType.cast(latestNo);
+        }
+
+        private Connection connection() {
+            return proxy(Connection.class, (method, args) -> {
+                if ("prepareStatement".equals(method)) {
+                    return statement((String) args[0]);
+                }
+                return null;
+            });
+        }
+
+        private PreparedStatement statement(String sql) {
+            Map<Integer, Object> params = new HashMap<>();
+            return proxy(PreparedStatement.class, (method, args) -> {
+                switch (method) {
+                    case "setLong":
+                    case "setString":
+                    case "setInt":
+                        params.put((Integer) args[0], args[1]);
+                        return null;
+                    case "executeQuery":
+                        if (sql.startsWith("SELECT LAST_INSERT_ID()")) {
+                            return resultSet(true, lastInsertId);
+                        }
+                        return resultSet(rows.containsKey(key(params)), 1L);
+                    case "executeUpdate":
+                        leases++;
+                        String key = key(params);
+                        Long max = rows.get(key);
+                        lastInsertId = max == null ? (Long) params.get(4) : max + (Integer) params.get(5);
+                        rows.put(key, lastInsertId);
+                        return 1;
+                    default:
+                        return null;
+                }
+            });
+        }
+
+        private static String key(Map<Integer, Object> params) {
+            return params.get(1) + "|" + params.get(2) + "|" + params.get(3);
+        }
+
+        private static ResultSet resultSet(boolean hasRow, long value) {
+            boolean[] consumed = {false};
+            return proxy(ResultSet.class, (method, args) -> {
+                switch (method) {
+                    case "next":
+                        boolean next = hasRow && !consumed[0];
+                        consumed[0] = true;
+                        return next;
+                    case "getLong":
+                        return value;
+                    default:
+                        return null;
+                }
+            });
+        }
+
+        private interface Handler {
+            Object handle(String method, Object[] args);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, Handler handler) {
+            return (T) Proxy.newProxyInstance(DocumentNoServiceTest.class.getClassLoader(), new Class<?>[]{type},
+                    (p, method, args) -> handler.handle(method.getName(), args));
+        }
+    }
+
+    static final class NoopTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.fashion.supplychain.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DataInitializerTest {
+
+    @Mock
+    private DatabaseMigrationHelper dbHelper;
+
+    @Mock
+    private SystemTableMigrator systemMigrator;
+
+    @Mock
+    private TemplateTableMigrator templateMigrator;
+
+    @Mock
+    private StyleTableMigrator styleMigrator;
+
+    @Mock
+    private ProductionTableMigrator productionMigrator;
+
+    @Mock
+    private FinanceTableMigrator financeMigrator;
+
+    @Mock
+    private SchemaFingerprintGuard schemaFingerprintGuard;
+
+    @InjectMocks
+    private DataInitializer initializer;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(dbHelper.waitForDatabaseReady()).thenReturn(true);
+    }
+
+    @Test
+    void fingerprintUnchanged_skipsMigratorsButStillSeedsAndBackfills() throws Exception {
+        when(schemaFingerprintGuard.isSchemaUpToDate()).thenReturn(true);
+
+        initializer.run();
+
+        verify(systemMigrator).seedData();
+        verify(templateMigrator).seedData();
+        verify(productionMigrator).backfillData();
+        verify(systemMigrator, never()).initialize();
+        verify(templateMigrator, never()).initialize();
+        verify(productionMigrator, never()).initialize();
+        verifyNoInteractions(styleMigrator, financeMigrator);
+    }
+
+    @Test
+    void fingerprintChanged_runsEveryMigratorInOrder() throws Exception {
+        when(schemaFingerprintGuard.isSchemaUpToDate()).thenReturn(false);
+
+        initializer.run();
+
+        InOrder order = inOrder(systemMigrator, templateMigrator, styleMigrator, productionMigrator, financeMigrator);
+        order.verify(systemMigrator).initialize();
+        order.verify(templateMigrator).initialize();
+        order.verify(styleMigrator).initialize();
+        order.verify(productionMigrator).initialize();
+        order.verify(financeMigrator).initialize();
+    }
+
+    @Test
+    void databaseNotReady_touchesNothing() throws Exception {
+        when(dbHelper.waitForDatabaseReady()).thenReturn(false);
+
+        initializer.run();
+
+        verifyNoInteractions(schemaFingerprintGuard, systemMigrator, templateMigrator, styleMigrator,
+                productionMigrator, financeMigrator);
+    }
+}
@@ -0,0 +1,101 @@
+package com.fashion.supplychain.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductionTableMigratorTest {
+
+    @Mock
+    private DatabaseMigrationHelper dbHelper;
+
+    @InjectMocks
+    private ProductionTableMigrator migrator;
+
+    private final ProbeJdbc jdbc = new ProbeJdbc();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(dbHelper.getJdbcTemplate()).thenReturn(jdbc);
+        lenient().when(dbHelper.tableExists(anyString())).thenReturn(true);
+        lenient().when(dbHelper.columnExists(anyString(), anyString())).thenReturn(true);
+    }
+
+    @Test
+    void backfillData_issuesNoUpdateWhenNothingIsPending() {
+        migrator.backfillData();
+
+        assertEquals(4, jdbc.probes.size());
+        assertTrue(jdbc.probes.stream().allMatch(sql -> sql.startsWith("SELECT 1 FROM ") && sql.endsWith(" LIMIT 1")));
+        verify(dbHelper, never()).execSilently(anyString());
+    }
+
+    @Test
+    void backfillData_updatesOnlyColumnsWithPendingRows() {
+        jdbc.pendingMarkers.add("progress_stage IS NULL");
+        jdbc.pendingMarkers.add("bundle_label IS NULL");
+
+        migrator.backfillData();
+
+        ArgumentCaptor<String> updates = ArgumentCaptor.forClass(String.class);
+        verify(dbHelper, times(2)).execSilently(updates.capture());
+        assertTrue(updates.getAllValues().get(0).startsWith("UPDATE t_scan_record SET progress_stage = process_name WHERE "));
+        assertTrue(updates.getAllValues().get(1).startsWith("UPDATE t_cutting_bundle SET bundle_label = CAST(bundle_no AS CHAR) WHERE "));
+    }
+
+    @Test
+    void backfillData_skipsTablesAndColumnsNotYetCreated() {
+        when(dbHelper.tableExists("t_cutting_bundle")).thenReturn(false);
+        when(dbHelper.columnExists("t_scan_record", "progress_stage")).thenReturn(false);
+        jdbc.pendingMarkers.add("IS NULL");
+
+        migrator.backfillData();
+
+        assertTrue(jdbc.probes.isEmpty());
+        verify(dbHelper, never()).execSilently(anyString());
+    }
+
+    @Test
+    void failedProbe_skipsThatBackfillOnly() {
+        jdbc.failingMarker = "tenant_id IS NULL";
+        jdbc.pendingMarkers.add("root_bundle_id IS NULL");
+
+        migrator.backfillData();
+
+        verify(dbHelper).execSilently(startsWith("UPDATE t_cutting_bundle SET root_bundle_id = id"));
+        verify(dbHelper, never()).execSilently(contains("SET cb.tenant_id"));
+    }
+
+    /** 只应答 "SELECT 1 ... LIMIT 1" 探测：WHERE 含 pendingMarkers 任一片段即视为有待回填行 */
+    static final class ProbeJdbc extends JdbcTemplate {
+        final List<String> probes = new ArrayList<>();
+        final Set<String> pendingMarkers = new HashSet<>();
+        String failingMarker;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType) {
+            probes.add(sql);
+            if (failingMarker != null && sql.contains(failingMarker)) {
+                throw new IllegalStateException("Lock wait timeout exceeded");
+            }
+            boolean pending = pendingMarkers.stream().anyMatch(sql::contains);
+            return pending ? (List<T>) List.of(1) : List.of();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.fashion.supplychain.finance.helper;
+
+import com.fashion.supplychain.common.datachange.TableChange;
+import com.fashion.supplychain.crm.entity.Receivable;
+import com.fashion.supplychain.crm.mapper.ReceivableMapper;
+import com.fashion.supplychain.finance.entity.Payable;
+import com.fashion.supplychain.finance.mapper.PayableMapper;
+import com.fashion.supplychain.finance.orchestration.AgingBalanceOrchestrator;
+import com.fashion.supplychain.finance.orchestration.AgingBalanceOrchestrator.LedgerType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AgingChangeListenerTest {
+
+    @Mock
+    private AgingBalanceOrchestrator agingBalanceOrchestrator;
+
+    @InjectMocks
+    private AgingChangeListener listener;
+
+    @Test
+    void watchesReceivableAndPayableMappers() {
+        assertEquals(List.of(ReceivableMapper.class, PayableMapper.class), listener.watchedMappers());
+    }
+
+    @Test
+    void receivableWrite_marksCustomer() {
+        Receivable r = new Receivable();
+        r.setCustomerId("C-1");
+
+        listener.onChange(new TableChange(ReceivableMapper.class, "insert", r, 7L));
+
+        verify(agingBalanceOrchestrator).markDirty(7L, LedgerType.RECEIVABLE, "C-1");
+    }
+
+    @Test
+    void payableWrite_prefersSupplierThenCounterparty() {
+        Payable withSupplier = new Payable();
+        withSupplier.setSupplierId("S-1");
+        withSupplier.setCounterpartyId("P-1");
+        Payable counterpartyOnly = new Payable();
+        counterpartyOnly.setSupplierId("");
+        counterpartyOnly.setCounterpartyId("P-2");
+
+        listener.onChange(new TableChange(PayableMapper.class, "updateById", withSupplier, 7L));
+        listener.onChange(new TableChange(PayableMapper.class, "updateById", counterpartyOnly, 7L));
+
+        verify(agingBalanceOrchestrator).markDirty(7L, LedgerType.PAYABLE, "S-1");
+        verify(agingBalanceOrchestrator).markDirty(7L, LedgerType.PAYABLE, "P-2");
+    }
+
+    @Test
+    void writeWithoutEntity_marksWholeTenant() {
+        listener.onChange(new TableChange(PayableMapper.class, "update", null, 7L));
+        listener.onChange(new TableChange(ReceivableMapper.class, "deleteById", "r-9", 7L));
+        listener.onChange(new TableChange(ReceivableMapper.class, "insert", new Receivable(), 8L));
+
+        verify(agingBalanceOrchestrator).markDirty(7L, LedgerType.PAYABLE, null);
+        verify(agingBalanceOrchestrator).markDirty(7L, LedgerType.RECEIVABLE, null);
+        verify(agingBalanceOrchestrator).markDirty(8L, LedgerType.RECEIVABLE, null);
+    }
+}
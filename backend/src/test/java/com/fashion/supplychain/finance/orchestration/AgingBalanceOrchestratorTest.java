@@ -0,0 +1,194 @@
+package com.fashion.supplychain.finance.orchestration;
+
+import com.fashion.supplychain.finance.orchestration.AgingBalanceOrchestrator.AgingSummary;
+import com.fashion.supplychain.finance.orchestration.AgingBalanceOrchestrator.Bucket;
+import com.fashion.supplychain.finance.orchestration.AgingBalanceOrchestrator.LedgerType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgingBalanceOrchestratorTest {
+
+    private final RecordingJdbc jdbc = new RecordingJdbc();
+
+    private AgingBalanceOrchestrator orchestrator;
+
+    @BeforeEach
+    void setUp() {
+        orchestrator = new AgingBalanceOrchestrator();
+        ReflectionTestUtils.setField(orchestrator, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(orchestrator, "transactionTemplate", new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return action.doInTransaction(null);
+            }
+        });
+    }
+
+    @Test
+    void flush_wholeTenantScopeSupersedesPartyScopes() {
+        orchestrator.markDirty(7L, LedgerType.RECEIVABLE, "C-1");
+        orchestrator.markDirty(7L, LedgerType.RECEIVABLE, "C-2");
+        orchestrator.markDirty(7L, LedgerType.RECEIVABLE, null);
+        orchestrator.markDirty(7L, LedgerType.PAYABLE, "S-1");
+        orchestrator.markDirty(7L, LedgerType.PAYABLE, "S-1");
+
+        orchestrator.flush();
+
+        assertEquals(List.of(List.of("PAYABLE", 7L, "S-1"), List.of("RECEIVABLE", 7L)), sortedDeletes());
+        orchestrator.flush();
+        assertEquals(2, jdbc.deletes.size(), "已处理的标记不重复重算");
+    }
+
+    @Test
+    void flush_allTenantsScopeSupersedesTenantScopesOfSameType() {
+        orchestrator.markDirty(7L, LedgerType.PAYABLE, "S-1");
+        orchestrator.markDirty(8L, LedgerType.PAYABLE, null);
+        // 无租户的标记丢弃往来单位，按全部租户重算
+        orchestrator.markDirty(null, LedgerType.PAYABLE, "S-1");
+        orchestrator.markDirty(8L, LedgerType.RECEIVABLE, null);
+
+        orchestrator.flush();
+
+        assertEquals(List.of(List.of("PAYABLE"), List.of("RECEIVABLE", 8L)), sortedDeletes());
+    }
+
+    @Test
+    void recompute_deletesAndRegroupsOnlyTheParty() {
+        orchestrator.markDirty(7L, LedgerType.PAYABLE, "S-1");
+        orchestrator.flush();
+
+        RecordingJdbc.Call insert = jdbc.inserts.get(0);
+        assertEquals(List.of("PAYABLE", 7L, "S-1"), List.of(insert.args()));
+        assertTrue(insert.sql().contains("FROM t_payable WHERE delete_flag = 0 AND status <> 'PAID'"), insert.sql());
+        assertTrue(insert.sql().contains("AND tenant_id = ? AND COALESCE(NULLIF(supplier_id, ''), NULLIF(counterparty_id, ''), '') = ?"),
+                insert.sql());
+        assertTrue(insert.sql().contains("SUM(CASE WHEN age BETWEEN 0 AND 30 THEN remaining ELSE 0 END)"), insert.sql());
+        assertEquals("DELETE FROM t_aging_balance WHERE ledger_type = ? AND tenant_id = ? AND party_id = ?",
+                jdbc.deletes.get(0).sql());
+    }
+
+    @Test
+    void recomputeFailure_isSwallowedAndLaterScopesStillRun() {
+        jdbc.failFor = "RECEIVABLE";
+        orchestrator.markDirty(7L, LedgerType.RECEIVABLE, null);
+        orchestrator.markDirty(7L, LedgerType.PAYABLE, null);
+
+        assertDoesNotThrow(() -> orchestrator.flush());
+
+        assertEquals(1, jdbc.inserts.size());
+        assertEquals("PAYABLE", jdbc.inserts.get(0).args()[0]);
+    }
+
+    @Test
+    void rolloverAll_recomputesEveryTypeForAllTenants() {
+        orchestrator.rolloverAll();
+
+        assertEquals(List.of(List.of("PAYABLE"), List.of("RECEIVABLE")), sortedDeletes());
+        assertEquals("DELETE FROM t_aging_balance WHERE ledger_type = ?", jdbc.deletes.get(0).sql());
+    }
+
+    @Test
+    void tenantAging_recomputesWhenSummaryIsFromBeforeToday() {
+        jdbc.tenantRows.add(summary(null, LocalDate.now().minusDays(1), "100"));
+        jdbc.tenantRows.add(summary(null, LocalDate.now(), "80"));
+
+        AgingSummary s = orchestrator.getTenantAging(7L, LedgerType.RECEIVABLE);
+
+        assertEquals(new BigDecimal("80"), s.openAmount());
+        assertEquals(List.of(List.of("RECEIVABLE", 7L)), sortedDeletes());
+    }
+
+    @Test
+    void tenantAging_freshSummaryIsServedWithoutRecompute() {
+        jdbc.tenantRows.add(summary(null, LocalDate.now(), "80"));
+
+        assertEquals(new BigDecimal("80"), orchestrator.getTenantAging(7L, LedgerType.RECEIVABLE).openAmount());
+        assertTrue(jdbc.deletes.isEmpty());
+    }
+
+    @Test
+    void partyAging_withNoOpenDocumentsReturnsZeroBuckets() {
+        AgingSummary s = orchestrator.getPartyAging(7L, LedgerType.RECEIVABLE, " C-9 ");
+
+        assertEquals("C-9", s.partyId());
+        assertEquals(0, s.openCount());
+        assertEquals(BigDecimal.ZERO, s.overdueAmount());
+        assertEquals(5, s.buckets().size());
+        assertEquals(List.of(List.of("RECEIVABLE", 7L, "C-9")), sortedDeletes());
+        Map<String, Object> map = s.toMap();
+        assertEquals("C-9", map.get("partyId"));
+        assertEquals(LocalDate.now().toString(), map.get("asOfDate"));
+    }
+
+    @Test
+    void overdueAmount_sumsFiveOverdueBucketsOnly() {
+        AgingSummary s = new AgingSummary("C-1", "华美", 3, new BigDecimal("600"), 1, new BigDecimal("100"),
+                List.of(new Bucket("0-30天", 1, new BigDecimal("200")), new Bucket("31-60天", 0, BigDecimal.ZERO),
+                        new Bucket("61-90天", 0, BigDecimal.ZERO), new Bucket("91-180天", 0, BigDecimal.ZERO),
+                        new Bucket("180天以上", 1, new BigDecimal("300"))), LocalDate.now());
+
+        assertEquals(new BigDecimal("500"), s.overdueAmount());
+    }
+
+    private List<List<Object>> sortedDeletes() {
+        List<List<Object>> scopes = new ArrayList<>();
+        for (RecordingJdbc.Call c : jdbc.deletes) {
+            scopes.add(List.of(c.args()));
+        }
+        scopes.sort((a, b) -> a.toString().compareTo(b.toString()));
+        return scopes;
+    }
+
+    private static AgingSummary summary(String partyId, LocalDate asOf, String open) {
+        List<Bucket> buckets = new ArrayList<>();
+        for (String label : new String[]{"0-30天", "31-60天", "61-90天", "91-180天", "180天以上"}) {
+            buckets.add(new Bucket(label, 0, BigDecimal.ZERO));
+        }
+        return new AgingSummary(partyId, null, 1, new BigDecimal(open), 1, new BigDecimal(open), buckets, asOf);
+    }
+
+    /** 记录重算语句；租户级读取按顺序返回预置的汇总行，单位级读取恒为空 */
+    static final class RecordingJdbc extends JdbcTemplate {
+        record Call(String sql, Object[] args) { }
+
+        final List<Call> deletes = new ArrayList<>();
+        final List<Call> inserts = new ArrayList<>();
+        final List<AgingSummary> tenantRows = new ArrayList<>();
+        String failFor;
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (args[0].equals(failFor)) {
+                throw new IllegalStateException("Lock wait timeout exceeded");
+            }
+            (sql.startsWith("DELETE") ? deletes : inserts).add(new Call(sql, args));
+            return 1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... args) {
+            assertTrue(sql.endsWith("FROM t_aging_balance WHERE tenant_id = ? AND ledger_type = ?"), sql);
+            return (T) tenantRows.remove(0);
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            assertTrue(sql.endsWith("FROM t_aging_balance WHERE tenant_id = ? AND ledger_type = ? AND party_id = ?"), sql);
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.fashion.supplychain.finance.orchestration;
+
+import com.fashion.supplychain.finance.orchestration.FinanceDailyFactOrchestrator.FactCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FinanceDailyFactOrchestratorTest {
+
+    private final FactStore db = new FactStore();
+
+    private final LocalDate today = LocalDate.now();
+
+    private FinanceDailyFactOrchestrator orchestrator;
+
+    @BeforeEach
+    void setUp() {
+        orchestrator = new FinanceDailyFactOrchestrator();
+        ReflectionTestUtils.setField(orchestrator, "jdbcTemplate", db);
+        ReflectionTestUtils.setField(orchestrator, "transactionTemplate", new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return action.doInTransaction(null);
+            }
+        });
+    }
+
+    @Test
+    void rebuildRecent_isIdempotent() {
+        db.add("t_material_reconciliation", 1L, "create_time", daysAgo(3), "1200.00");
+        db.add("t_material_reconciliation", 1L, "create_time", daysAgo(3), "300.00");
+        db.add("t_shipment_reconciliation", 2L, "create_time", daysAgo(5), "800.00");
+        db.add("t_payable", 1L, "paid_time", daysAgo(7), "450.00");
+
+        orchestrator.rebuildRecent(40);
+        Map<String, BigDecimal> first = new TreeMap<>(db.facts);
+        orchestrator.rebuildRecent(40);
+
+        assertEquals(first, db.facts);
+        assertEquals(new BigDecimal("1500.00"), db.fact(1L, today.minusDays(3), FactCategory.MATERIAL_COST));
+        assertEquals(new BigDecimal("800.00"), db.fact(2L, today.minusDays(5), FactCategory.SHIPMENT_REVENUE));
+        assertEquals(new BigDecimal("450.00"), db.fact(1L, today.minusDays(7), FactCategory.PAYABLE_PAID));
+    }
+
+    @Test
+    void softDeletedReconciliations_areNotCounted() {
+        db.add("t_material_reconciliation", 1L, "create_time", daysAgo(2), "500.00");
+        db.add("t_material_reconciliation", 1L, "create_time", daysAgo(2), "70.00").deleted = true;
+        db.add("t_shipment_reconciliation", 1L, "create_time", daysAgo(2), "900.00").deleted = true;
+        db.add("t_payable", 1L, "paid_time", daysAgo(2), "60.00").deleted = true;
+        db.add("t_invoice", 1L, "create_time", daysAgo(2), "13.00").deleted = true;
+        db.add("t_expense_reimbursement", 1L, "create_time", daysAgo(2), "40.00").deleted = true;
+
+        orchestrator.refreshChanged();
+
+        assertEquals(new BigDecimal("500.00"), db.fact(1L, today.minusDays(2), FactCategory.MATERIAL_COST));
+        assertNull(db.fact(1L, today.minusDays(2), FactCategory.SHIPMENT_REVENUE));
+        assertNull(db.fact(1L, today.minusDays(2), FactCategory.PAYABLE_PAID));
+        assertNull(db.fact(1L, today.minusDays(2), FactCategory.INVOICE_TAX));
+        assertNull(db.fact(1L, today.minusDays(2), FactCategory.EXPENSE));
+    }
+
+    @Test
+    void softDeleteAfterSync_isPickedUpByIncrementalRefresh() {
+        Row row = db.add("t_material_reconciliation", 1L, "create_time", daysAgo(4), "500.00");
+        db.add("t_material_reconciliation", 1L, "create_time", daysAgo(4), "20.00");
+        orchestrator.refreshChanged();
+        assertEquals(new BigDecimal("520.00"), db.fact(1L, today.minusDays(4), FactCategory.MATERIAL_COST));
+
+        row.deleted = true;
+        row.updateTime = LocalDateTime.now();
+        orchestrator.refreshChanged();
+
+        assertEquals(new BigDecimal("20.00"), db.fact(1L, today.minusDays(4), FactCategory.MATERIAL_COST));
+    }
+
+    @Test
+    void payablePaidLongAgo_staysOnPaidDayWhenEditedLater() {
+        Row payable = db.add("t_payable", 1L, "paid_time", daysAgo(60), "450.00");
+        orchestrator.refreshChanged();
+
+        // 结清 60 天后修改备注：update_time 变为今天，超出夜间重算的 40 天窗口
+        payable.updateTime = LocalDateTime.now();
+        orchestrator.refreshChanged();
+        orchestrator.rebuildRecent(40);
+
+        assertEquals(new BigDecimal("450.00"), db.fact(1L, today.minusDays(60), FactCategory.PAYABLE_PAID));
+        assertEquals(new BigDecimal("450.00"), db.total(FactCategory.PAYABLE_PAID), "金额只计一次");
+        assertTrue(db.groupColumns.get(FactCategory.PAYABLE_PAID.name()).stream().allMatch("paid_time"::equals));
+    }
+
+    @Test
+    void firstRefresh_initializesEveryCategoryAndSavesCursor() {
+        db.add("t_invoice", 3L, "create_time", daysAgo(100), "17.00");
+
+        orchestrator.refreshChanged();
+        orchestrator.refreshChanged();
+
+        assertEquals(FactCategory.values().length, db.cursors.size());
+        assertEquals(new BigDecimal("17.00"), db.fact(3L, today.minusDays(100), FactCategory.INVOICE_TAX));
+        // 第二轮只重算变更日期：没有变更就没有 DELETE
+        assertEquals(FactCategory.values().length, db.deletes);
+    }
+
+    private LocalDateTime daysAgo(int days) {
+        return today.minusDays(days).atTime(10, 30);
+    }
+
+    static final class Row {
+        final long tenantId;
+        final Map<String, LocalDateTime> times = new HashMap<>();
+        final BigDecimal amount;
+        LocalDateTime updateTime;
+        boolean deleted;
+
+        Row(long tenantId, BigDecimal amount) {
+            this.tenantId = tenantId;
+            this.amount = amount;
+        }
+    }
+
+    /**
+     * 内存版源表 + 事实表：按 FinanceDailyFactOrchestrator 发出的 SQL 形状求值，
+     * 归日列取自 SQL 中的 DATE(...)，软删除行只有在条件带 delete_flag = 0 时才被排除。
+     */
+    static final class FactStore extends JdbcTemplate {
+        private static final Pattern GROUP_DAY = Pattern.compile("GROUP BY tenant_id, DATE\\((\\w+)\\)");
+        private static final Pattern SOURCE = Pattern.compile("FROM (t_\\w+) WHERE");
+        private static final Pattern DIRTY_DAY = Pattern.compile("SELECT DISTINCT tenant_id, DATE\\((\\w+)\\) FROM (t_\\w+)");
+
+        final Map<String, List<Row>> sources = new HashMap<>();
+        final Map<String, BigDecimal> facts = new TreeMap<>();
+        final Map<String, LocalDateTime> cursors = new HashMap<>();
+        final Map<String, List<String>> groupColumns = new HashMap<>();
+        int deletes;
+
+        Row add(String table, long tenantId, String dayColumn, LocalDateTime day, String amount) {
+            Row row = new Row(tenantId, new BigDecimal(amount));
+            row.times.put(dayColumn, day);
+            row.updateTime = day;
+            sources.computeIfAbsent(table, k -> new ArrayList<>()).add(row);
+            return row;
+        }
+
+        BigDecimal fact(long tenantId, LocalDate day, FactCategory c) {
+            return facts.get(tenantId + "|" + day + "|" + c.name());
+        }
+
+        BigDecimal total(FactCategory c) {
+            return facts.entrySet().stream().filter(e -> e.getKey().endsWith("|" + c.name()))
+                    .map(Map.Entry::getValue).reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.startsWith("DELETE FROM t_finance_daily_fact ")) {
+                deletes++;
+                String category = (String) args[0];
+                Long tenantId = sql.contains("AND tenant_id = ?") ? (Long) args[1] : null;
+                LocalDate from = sql.contains("fact_date >= ?") ? (LocalDate) args[args.length - 2] : null;
+                LocalDate to = from != null ? (LocalDate) args[args.length - 1] : null;
+                facts.keySet().removeIf(k -> {
+                    String[] p = k.split("\\|");
+                    LocalDate d = LocalDate.parse(p[1]);
+                    return p[2].equals(category)
+                            && (tenantId == null || p[0].equals(String.valueOf(tenantId)))
+                            && (from == null || (!d.isBefore(from) && d.isBefore(to)));
+                });
+                return 1;
+            }
+            if (sql.startsWith("INSERT INTO t_finance_daily_fact (")) {
+                insertSelect(sql, args);
+                return 1;
+            }
+            if (sql.startsWith("INSERT INTO t_finance_daily_fact_cursor")) {
+                cursors.put((String) args[0], (LocalDateTime) args[1]);
+                return 1;
+            }
+            throw new IllegalStateException("unexpected update: " + sql);
+        }
+
+        private void insertSelect(String sql, Object[] args) {
+            String category = (String) args[0];
+            Matcher day = GROUP_DAY.matcher(sql);
+            Matcher source = SOURCE.matcher(sql);
+            assertTrue(day.find() && source.find(), sql);
+            String dayColumn = day.group(1);
+            groupColumns.computeIfAbsent(category, k -> new ArrayList<>()).add(dayColumn);
+            Long tenantId = sql.contains("AND tenant_id = ?") ? (Long) args[1] : null;
+            boolean ranged = sql.contains(dayColumn + " >= ?");
+            LocalDateTime from = ranged ? (LocalDateTime) args[args.length - 2] : null;
+            LocalDateTime to = ranged ? (LocalDateTime) args[args.length - 1] : null;
+            boolean excludeDeleted = sql.contains("delete_flag = 0");
+            for (Row r : sources.getOrDefault(source.group(1), List.of())) {
+                LocalDateTime t = r.times.get(dayColumn);
+                if (t == null || (excludeDeleted && r.deleted)
+                        || (tenantId != null && r.tenantId != tenantId)
+                        || (ranged && (t.isBefore(from) || !t.isBefore(to)))) {
+                    continue;
+                }
+                // ON DUPLICATE KEY UPDATE amount = VALUES(amount)：同一轮内按组累加，跨轮覆盖（已由 DELETE 清掉）
+                facts.merge(r.tenantId + "|" + t.toLocalDate() + "|" + category, r.amount, BigDecimal::add);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            assertEquals("SELECT NOW()", sql);
+            return (T) LocalDateTime.now();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            assertTrue(sql.startsWith("SELECT last_update_time FROM t_finance_daily_fact_cursor"), sql);
+            LocalDateTime c = cursors.get((String) args[0]);
+            return c == null ? List.of() : (List<T>) List.of(c);
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+            Matcher m = DIRTY_DAY.matcher(sql);
+            assertTrue(m.find(), sql);
+            LocalDateTime lower = (LocalDateTime) args[0];
+            LocalDateTime upper = (LocalDateTime) args[1];
+            for (Row r : sources.getOrDefault(m.group(2), List.of())) {
+                LocalDateTime t = r.times.get(m.group(1));
+                if (t != null && r.updateTime.isAfter(lower) && !r.updateTime.isAfter(upper)) {
+                    try {
+                        rch.processRow(resultSet(r.tenantId, t.toLocalDate()));
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        }
+
+        private static ResultSet resultSet(long tenantId, LocalDate day) {
+            return (ResultSet) Proxy.newProxyInstance(FactStore.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (p, method, a) -> switch (method.getName()) {
+                        case "getLong" -> tenantId;
+                        case "getDate" -> Date.valueOf(day);
+                        default -> null;
+                    });
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.fashion.supplychain.finance.orchestration;
+
+import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.common.serial.DocumentNoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReconciliationNoGeneratorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SegmentTable segmentTable = new SegmentTable();
+
+    private MockedStatic<UserContext> mockedUserContext;
+
+    private String month;
+
+    @BeforeEach
+    void setUp() {
+        // 单号走全局序列，不应读取租户；宽松模式下切换租户的桩未被调用也不报错
+        mockedUserContext = mockStatic(UserContext.class, withSettings().strictness(Strictness.LENIENT));
+        month = LocalDate.now().format(DocumentNoService.MONTH);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(inv -> ((ConnectionCallback<?>) inv.getArgument(0)).doInConnection(segmentTable.connection()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        mockedUserContext.close();
+    }
+
+    @Test
+    void twoTenantsInSameMonth_shareOneGlobalSequence() {
+        // 上线前本月已发出 MR…0007（属于任意租户）
+        when(jdbcTemplate.queryForObject(startsWith("SELECT MAX(reconciliation_no) FROM t_material_reconciliation"),
+                eq(String.class), any(Object[].class))).thenReturn("MR" + month + "0007");
+        ReconciliationNoGenerator generator = generator(node());
+
+        mockedUserContext.when(UserContext::tenantId).thenReturn(1L);
+        String tenant1First = generator.nextMaterialNo();
+        mockedUserContext.when(UserContext::tenantId).thenReturn(2L);
+        String tenant2First = generator.nextMaterialNo();
+        mockedUserContext.when(UserContext::tenantId).thenReturn(1L);
+        String tenant1Second = generator.nextMaterialNo();
+
+        assertEquals("MR" + month + "0008", tenant1First);
+        assertEquals("MR" + month + "0009", tenant2First);
+        assertEquals("MR" + month + "0010", tenant1Second);
+        // 起始序号按全库查一次，不带租户条件
+        verify(jdbcTemplate, times(1)).queryForObject(
+                eq("SELECT MAX(reconciliation_no) FROM t_material_reconciliation WHERE reconciliation_no LIKE ?"),
+                eq(String.class), eq("MR" + month + "%"));
+    }
+
+    @Test
+    void twoNodesAndTenants_neverIssueTheSameNo() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT MAX(reconciliation_no)"), eq(String.class), any(Object[].class)))
+                .thenReturn(null);
+        ReconciliationNoGenerator nodeA = generator(node());
+        ReconciliationNoGenerator nodeB = generator(node());
+
+        Set<String> issued = new HashSet<>();
+        for (int i = 0; i < 60; i++) {
+            mockedUserContext.when(UserContext::tenantId).thenReturn(i % 2 == 0 ? 1L : 2L);
+            ReconciliationNoGenerator node = i % 3 == 0 ? nodeB : nodeA;
+            assertTrue(issued.add(node.nextShipmentNo()), "出货对账单号重复");
+            assertTrue(issued.add(node.nextMaterialNo()), "物料对账单号重复");
+        }
+        assertTrue(issued.contains("SR" + month + "0001"));
+        assertTrue(issued.contains("MR" + month + "0001"));
+    }
+
+    private DocumentNoService node() {
+        DocumentNoService service = new DocumentNoService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+        return service;
+    }
+
+    private ReconciliationNoGenerator generator(DocumentNoService documentNoService) {
+        ReconciliationNoGenerator generator = new ReconciliationNoGenerator();
+        ReflectionTestUtils.setField(generator, "documentNoService", documentNoService);
+        ReflectionTestUtils.setField(generator, "jdbcTemplate", jdbcTemplate);
+        return generator;
+    }
+
+    /** 内存版 t_document_no_segment：按号段租约的三条 SQL 模拟 INSERT ... ON DUPLICATE KEY + LAST_INSERT_ID */
+    static final class SegmentTable {
+        private final Map<List<Object>, Long> maxValues = new HashMap<>();
+        private long lastInsertId;
+
+        Connection connection() {
+            return proxy(Connection.class, (name, args) ->
+                    "prepareStatement".equals(name) ? statement((String) args[0]) : null);
+        }
+
+        private PreparedStatement statement(String sql) {
+            Object[] params = new Object[6];
+            return proxy(PreparedStatement.class, (name, args) -> {
+                switch (name) {
+                    case "setLong", "setString", "setInt" -> params[(Integer) args[0]] = args[1];
+                    case "executeUpdate" -> {
+                        upsert(params);
+                        return 1;
+                    }
+                    case "executeQuery" -> {
+                        if (sql.startsWith("SELECT 1")) {
+                            return resultSet(maxValues.containsKey(key(params)) ? 1L : null);
+                        }
+                        return resultSet(lastInsertId);
+                    }
+                    default -> {
+                        return null;
+                    }
+                }
+                return null;
+            });
+        }
+
+        private synchronized void upsert(Object[] params) {
+            List<Object> key = key(params);
+            Long current = maxValues.get(key);
+            long max = current == null ? (Long) params[4] : current + (Integer) params[5];
+            maxValues.put(key, max);
+            lastInsertId = max;
+        }
+
+        private static List<Object> key(Object[] params) {
+            return List.of(params[1], params[2], params[3]);
+        }
+
+        private static ResultSet resultSet(Long value) {
+            boolean[] consumed = {false};
+            return proxy(ResultSet.class, (name, args) -> switch (name) {
+                case "next" -> {
+                    boolean hasRow = value != null && !consumed[0];
+                    consumed[0] = true;
+                    yield hasRow;
+                }
+                case "getLong" -> value;
+                default -> null;
+            });
+        }
+
+        @FunctionalInterface
+        interface Handler {
+            Object handle(String method, Object[] args) throws Exception;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, Handler handler) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    (p, method, args) -> handler.handle(method.getName(), args));
+        }
+    }
+}
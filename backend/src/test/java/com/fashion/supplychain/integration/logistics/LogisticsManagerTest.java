@@ -0,0 +1,212 @@
+package com.fashion.supplychain.integration.logistics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogisticsManagerTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final Carrier sf = new Carrier(LogisticsService.LogisticsType.SF);
+    private final Carrier sto = new Carrier(LogisticsService.LogisticsType.STO);
+    private final Carrier yto = new Carrier(LogisticsService.LogisticsType.YTO);
+
+    private LogisticsManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new LogisticsManager(List.of(sf, sto, yto), null);
+        ReflectionTestUtils.setField(manager, "quoteDeadlineMs", 300L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    void compareShippingQuotes_returnsPartialResultsAtDeadline() {
+        sf.fee = 1200L;
+        sto.blockUntil = release;
+        yto.failure = "接口签名错误";
+
+        long start = System.nanoTime();
+        List<ShippingQuote> quotes = manager.compareShippingQuotes(request("PO-1", "1.5"));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs < 2000, "比价应在截止时间附近返回，实际 " + elapsedMs + "ms");
+        assertEquals(List.of(ShippingQuote.QuoteStatus.OK, ShippingQuote.QuoteStatus.TIMEOUT, ShippingQuote.QuoteStatus.FAILED),
+                quotes.stream().map(ShippingQuote::getStatus).toList());
+        assertEquals(1200L, quotes.get(0).getFee());
+        assertNull(quotes.get(1).getFee());
+        assertEquals("接口签名错误", quotes.get(2).getErrorMessage());
+    }
+
+    @Test
+    void compareShippingFees_mapsUnavailableCarriersToMinusOne() {
+        sf.fee = 1200L;
+        sto.fee = 900L;
+        yto.failure = "线路不支持";
+
+        Map<String, Long> fees = manager.compareShippingFees(request("PO-1", "1.5"));
+
+        assertEquals(1200L, fees.get("SF"));
+        assertEquals(900L, fees.get("STO"));
+        assertEquals(-1L, fees.get("YTO"));
+    }
+
+    @Test
+    void quotes_areCachedPerRouteAndWeightNotPerOrder() {
+        sf.fee = 1200L;
+        sto.fee = 900L;
+        yto.fee = 800L;
+
+        manager.compareShippingQuotes(request("PO-1", "1.5"));
+        List<ShippingQuote> again = manager.compareShippingQuotes(request("PO-2", "1.50"));
+
+        assertTrue(again.stream().allMatch(ShippingQuote::getCached));
+        assertEquals(1, sf.quoteCalls.get());
+        assertEquals(1200L, manager.estimateShippingFee(request("PO-3", "1.5"), LogisticsService.LogisticsType.SF));
+        assertEquals(1, sf.quoteCalls.get());
+
+        manager.compareShippingQuotes(request("PO-1", "3"));
+        assertEquals(2, sf.quoteCalls.get());
+    }
+
+    @Test
+    void failedQuotes_areNotCached() {
+        sf.failure = "限流";
+        manager.compareShippingQuotes(request("PO-1", "1.5"));
+        sf.failure = null;
+        sf.fee = 1200L;
+
+        ShippingQuote quote = manager.compareShippingQuotes(request("PO-1", "1.5")).get(0);
+
+        assertEquals(ShippingQuote.QuoteStatus.OK, quote.getStatus());
+        assertFalse(quote.getCached());
+        assertEquals(2, sf.quoteCalls.get());
+    }
+
+    @Test
+    void trackShipment_servesCachedTimelineAndAppendsPushedEvents() {
+        sto.tracks = List.of(track(TrackingInfo.TrackingStatus.PICKED_UP, "已揽收"),
+                track(TrackingInfo.TrackingStatus.OUT_FOR_DELIVERY, "派送中"));
+
+        assertEquals(2, manager.trackShipment("STO123", LogisticsService.LogisticsType.STO).size());
+        manager.onTrackingPushed("STO123", LogisticsService.LogisticsType.STO, track(TrackingInfo.TrackingStatus.DELIVERED, "已签收"));
+        // 重复推送同一节点不重复追加
+        manager.onTrackingPushed("STO123", LogisticsService.LogisticsType.STO, track(TrackingInfo.TrackingStatus.DELIVERED, "已签收"));
+        List<TrackingInfo> timeline = manager.trackShipment("STO123", LogisticsService.LogisticsType.STO);
+
+        assertEquals(1, sto.trackCalls.get());
+        assertEquals(3, timeline.size());
+        assertEquals(TrackingInfo.TrackingStatus.DELIVERED, timeline.get(2).getStatus());
+    }
+
+    @Test
+    void pushForUncachedWaybill_isIgnoredAndCancelInvalidates() {
+        sto.tracks = List.of(track(TrackingInfo.TrackingStatus.PICKED_UP, "已揽收"));
+        manager.onTrackingPushed("STO456", LogisticsService.LogisticsType.STO, track(TrackingInfo.TrackingStatus.IN_TRANSIT, "运输中"));
+
+        assertEquals(1, manager.trackShipment("STO456", LogisticsService.LogisticsType.STO).size());
+        assertTrue(manager.cancelShipment("STO456", "客户取消", LogisticsService.LogisticsType.STO));
+        manager.trackShipment("STO456", LogisticsService.LogisticsType.STO);
+
+        assertEquals(2, sto.trackCalls.get());
+    }
+
+    private static ShippingRequest request(String orderId, String weightKg) {
+        return ShippingRequest.builder()
+                .orderId(orderId)
+                .sender(ShippingRequest.ContactInfo.builder().name("仓库" + orderId)
+                        .province("广东省").city("广州市").district("番禺区").build())
+                .recipient(ShippingRequest.ContactInfo.builder().name("客户" + orderId)
+                        .province("浙江省").city("杭州市").district("余杭区").build())
+                .cargo(ShippingRequest.CargoInfo.builder().name("成衣").weight(new BigDecimal(weightKg)).build())
+                .build();
+    }
+
+    private static TrackingInfo track(TrackingInfo.TrackingStatus status, String description) {
+        return TrackingInfo.builder().time(LocalDateTime.now()).status(status).description(description).build();
+    }
+
+    /** 可控的物流公司：固定运费 / 抛错 / 阻塞到截止时间之后 */
+    static final class Carrier implements LogisticsService {
+        private final LogisticsType type;
+        volatile Long fee;
+        volatile String failure;
+        volatile CountDownLatch blockUntil;
+        volatile List<TrackingInfo> tracks = List.of();
+        final AtomicInteger quoteCalls = new AtomicInteger();
+        final AtomicInteger trackCalls = new AtomicInteger();
+
+        Carrier(LogisticsType type) {
+            this.type = type;
+        }
+
+        @Override
+        public String getCompanyName() {
+            return type.name();
+        }
+
+        @Override
+        public String getCompanyCode() {
+            return type.getCode();
+        }
+
+        @Override
+        public LogisticsType getLogisticsType() {
+            return type;
+        }
+
+        @Override
+        public ShippingResponse createShipment(ShippingRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean cancelShipment(String trackingNumber, String reason) {
+            return true;
+        }
+
+        @Override
+        public List<TrackingInfo> trackShipment(String trackingNumber) {
+            trackCalls.incrementAndGet();
+            return new ArrayList<>(tracks);
+        }
+
+        @Override
+        public Long estimateShippingFee(ShippingRequest request) throws LogisticsException {
+            quoteCalls.incrementAndGet();
+            if (blockUntil != null) {
+                try {
+                    blockUntil.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failure != null) {
+                throw new LogisticsException("E500", failure);
+            }
+            return fee;
+        }
+
+        @Override
+        public boolean validateAddress(String province, String city, String district) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.fashion.supplychain.integration.openapi.service;
+
+import com.fashion.supplychain.common.util.AesEncryptor;
+import com.fashion.supplychain.integration.openapi.entity.TenantApp;
+import com.fashion.supplychain.integration.openapi.mapper.TenantAppMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OpenApiGatewayGuardTest {
+
+    private static final String APP_KEY = "ak_test";
+    private static final String SECRET = "s3cret-key";
+
+    @Mock
+    private TenantAppService tenantAppService;
+
+    @Mock
+    private TenantAppMapper tenantAppMapper;
+
+    @Mock
+    private AesEncryptor aesEncryptor;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @InjectMocks
+    private OpenApiGatewayGuard guard;
+
+    private TenantApp app;
+
+    @BeforeEach
+    void setUp() {
+        guard.init();
+        app = new TenantApp();
+        app.setId("app-1");
+        app.setTenantId(9L);
+        app.setAppKey(APP_KEY);
+        app.setDailyQuota(100);
+    }
+
+    @Test
+    void sign_isStandardHmacAndSafeAcrossVirtualThreads() throws Exception {
+        stubCredentialLoad();
+        OpenApiGatewayGuard.Credential credential = guard.getCredential(APP_KEY);
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                String data = "payload-" + i;
+                results.add(executor.submit(() -> credential.sign(data).equals(reference(data))));
+            }
+            for (Future<Boolean> r : results) {
+                assertTrue(r.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(credential.verify("payload-1", reference("payload-1")));
+        assertFalse(credential.verify("payload-1", reference("payload-2")));
+    }
+
+    @Test
+    void invalidate_evictsLocallyAndBroadcasts() {
+        stubCredentialLoad();
+        guard.getCredential(APP_KEY);
+
+        guard.invalidate(APP_KEY);
+        guard.getCredential(APP_KEY);
+
+        verify(stringRedisTemplate).convertAndSend(OpenApiGatewayGuard.CHANNEL, APP_KEY);
+        verify(tenantAppService, times(2)).getOne(any());
+    }
+
+    @Test
+    void broadcastFromOtherNode_evictsCachedCredential() {
+        stubCredentialLoad();
+        guard.getCredential(APP_KEY);
+
+        guard.onMessage(new DefaultMessage(OpenApiGatewayGuard.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                APP_KEY.getBytes(StandardCharsets.UTF_8)), null);
+        guard.getCredential(APP_KEY);
+
+        verify(tenantAppService, times(2)).getOne(any());
+        verify(stringRedisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void dayRollover_yesterdaysPendingCallsDoNotCountAgainstToday() {
+        for (int i = 0; i < 7; i++) {
+            guard.acquireQuota(app);
+        }
+        backdateCounter();
+        when(tenantAppService.listByIds(anyList())).thenReturn(List.of());
+
+        guard.acquireQuota(app);
+        guard.flushQuotas();
+
+        verify(tenantAppMapper).flushTotalCalls("app-1", 9L, 7);
+        verify(tenantAppMapper).flushCallCount("app-1", 9L, 1);
+    }
+
+    @Test
+    void flushAfterMidnightWithoutRequests_stillRollsTheDay() {
+        for (int i = 0; i < 3; i++) {
+            guard.acquireQuota(app);
+        }
+        backdateCounter();
+        when(tenantAppService.listByIds(anyList())).thenReturn(List.of());
+
+        guard.flushQuotas();
+
+        verify(tenantAppMapper).flushTotalCalls("app-1", 9L, 3);
+        verify(tenantAppMapper, never()).flushCallCount(anyString(), anyLong(), anyInt());
+    }
+
+    @Test
+    void flush_neverUnderCountsQuotaWhileWriting() {
+        app.setDailyQuota(5);
+        for (int i = 0; i < 5; i++) {
+            guard.acquireQuota(app);
+        }
+        when(tenantAppService.listByIds(anyList())).thenReturn(List.of());
+        doAnswer(inv -> {
+            // 刷回进行中：并发请求仍应看到 5 次已用
+            assertThrows(SecurityException.class, () -> guard.acquireQuota(app));
+            return 1;
+        }).when(tenantAppMapper).flushCallCount("app-1", 9L, 5);
+
+        guard.flushQuotas();
+
+        assertThrows(SecurityException.class, () -> guard.acquireQuota(app));
+        verify(tenantAppMapper).flushCallCount("app-1", 9L, 5);
+    }
+
+    @Test
+    void flushFailure_keepsPendingForNextRound() {
+        for (int i = 0; i < 4; i++) {
+            guard.acquireQuota(app);
+        }
+        when(tenantAppService.listByIds(anyList())).thenReturn(List.of());
+        doThrow(new IllegalStateException("DB down")).doReturn(1)
+                .when(tenantAppMapper).flushCallCount(anyString(), anyLong(), anyInt());
+
+        guard.flushQuotas();
+        guard.acquireQuota(app);
+        guard.flushQuotas();
+
+        verify(tenantAppMapper).flushCallCount("app-1", 9L, 4);
+        verify(tenantAppMapper).flushCallCount("app-1", 9L, 5);
+    }
+
+    private void stubCredentialLoad() {
+        when(tenantAppService.getOne(any())).thenReturn(app);
+        when(aesEncryptor.decrypt(any())).thenReturn(SECRET);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void backdateCounter() {
+        Map<String, Object> quotas = (Map<String, Object>) ReflectionTestUtils.getField(guard, "quotas");
+        ReflectionTestUtils.setField(quotas.get("app-1"), "day", LocalDate.now().minusDays(1));
+    }
+
+    private static String reference(String data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+    }
+}
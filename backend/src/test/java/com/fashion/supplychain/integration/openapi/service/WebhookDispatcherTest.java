@@ -0,0 +1,223 @@
+package com.fashion.supplychain.integration.openapi.service;
+
+import com.fashion.supplychain.integration.openapi.entity.TenantApp;
+import com.fashion.supplychain.integration.openapi.entity.WebhookOutbox;
+import com.fashion.supplychain.integration.openapi.orchestration.TenantAppOrchestrator;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookDispatcherTest {
+
+    private static final String SECRET = "cb-secret";
+
+    @Mock
+    private WebhookOutboxService webhookOutboxService;
+
+    @Mock
+    private TenantAppService tenantAppService;
+
+    @Mock
+    private TenantAppOrchestrator tenantAppOrchestrator;
+
+    @InjectMocks
+    private WebhookDispatcher dispatcher;
+
+    /** 入队但不执行的任务；inline=true 时直接在调用线程执行 */
+    private final List<Runnable> queued = new ArrayList<>();
+    private boolean inline;
+    private boolean reject;
+
+    private final List<Map<String, String>> received = new CopyOnWriteArrayList<>();
+    private volatile int responseCode = 200;
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(dispatcher, "deliveryExecutor", (java.util.concurrent.Executor) task -> {
+            if (reject) {
+                throw new RejectedExecutionException("full");
+            }
+            if (inline) {
+                task.run();
+            } else {
+                queued.add(task);
+            }
+        });
+        ReflectionTestUtils.setField(dispatcher, "perEndpointConcurrency", 2);
+        ReflectionTestUtils.setField(dispatcher, "claimBatchSize", 200);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 8);
+        ReflectionTestUtils.setField(dispatcher, "backoffBaseSeconds", 10L);
+        ReflectionTestUtils.setField(dispatcher, "connectTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(dispatcher, "requestTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(dispatcher, "maxBatchSize", 50);
+        dispatcher.initHttpClient();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/hook", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            received.add(Map.of(
+                    "body", body,
+                    "event", String.valueOf(exchange.getRequestHeaders().getFirst("X-Webhook-Event")),
+                    "timestamp", String.valueOf(exchange.getRequestHeaders().getFirst("X-Timestamp")),
+                    "signature", String.valueOf(exchange.getRequestHeaders().getFirst("X-Signature"))));
+            exchange.sendResponseHeaders(responseCode, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void dispatchDue_limitsInFlightPerEndpointAndReleasesTheRest() {
+        when(tenantAppService.getById("app-1")).thenReturn(app("app-1", null));
+        when(webhookOutboxService.claimDue(eq(200), anyInt())).thenReturn(events("app-1", 1, 5));
+
+        dispatcher.dispatchDue();
+
+        assertEquals(2, queued.size());
+        verify(webhookOutboxService).release(List.of(3L, 4L, 5L));
+        verify(webhookOutboxService, never()).markFailed(anyList(), anyInt(), any(), anyInt(), anyLong());
+    }
+
+    @Test
+    void executorRejection_releasesChunkWithoutCountingAttempt() {
+        reject = true;
+        when(tenantAppService.getById("app-1")).thenReturn(app("app-1", null));
+        when(webhookOutboxService.claimDue(eq(200), anyInt())).thenReturn(events("app-1", 1, 1));
+
+        dispatcher.dispatchDue();
+
+        verify(webhookOutboxService).release(List.of(1L));
+        verify(webhookOutboxService, never()).markFailed(anyList(), anyInt(), any(), anyInt(), anyLong());
+    }
+
+    @Test
+    void inactiveApp_failsEventsImmediatelyWithoutRetry() {
+        TenantApp disabled = app("app-1", null);
+        disabled.setStatus("disabled");
+        when(tenantAppService.getById("app-1")).thenReturn(disabled);
+        List<WebhookOutbox> claimed = events("app-1", 1, 2);
+        when(webhookOutboxService.claimDue(eq(200), anyInt())).thenReturn(claimed);
+
+        dispatcher.dispatchDue();
+
+        verify(webhookOutboxService).markFailed(eq(claimed), eq(0), anyString(), eq(1), eq(0L));
+        assertTrue(queued.isEmpty());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void batchEnabledEndpoint_receivesSignedBatchesAndEventsMarkedSuccess() throws Exception {
+        inline = true;
+        when(tenantAppService.getById("app-1"))
+                .thenReturn(app("app-1", "{\"webhookBatchEnabled\": true, \"webhookBatchSize\": 2}"));
+        when(webhookOutboxService.claimDue(eq(200), anyInt())).thenReturn(events("app-1", 1, 3));
+
+        dispatcher.dispatchDue();
+
+        assertEquals(2, received.size());
+        Map<String, String> first = received.get(0);
+        assertEquals("batch", first.get("event"));
+        assertEquals("{\"batch\":true,\"events\":[{\"n\":1},{\"n\":2}]}", first.get("body"));
+        assertEquals(hmac(first.get("timestamp") + first.get("body")), first.get("signature"));
+        // 开启批量后末尾单条也按批量格式发送，客户只需解析一种结构
+        assertEquals("{\"batch\":true,\"events\":[{\"n\":3}]}", received.get(1).get("body"));
+        verify(webhookOutboxService).markSuccess(List.of(1L, 2L), 200);
+        verify(webhookOutboxService).markSuccess(List.of(3L), 200);
+        verify(tenantAppOrchestrator, times(2)).logApiCall(eq("app-1"), eq(9L), any(), eq("OUTBOUND"), eq("POST"),
+                any(), any(), eq(200), any(), anyLong(), eq("SUCCESS"), isNull(), eq("SYSTEM"));
+    }
+
+    @Test
+    void non2xxResponse_reschedulesWithBackoff() {
+        inline = true;
+        responseCode = 503;
+        when(tenantAppService.getById("app-1")).thenReturn(app("app-1", null));
+        List<WebhookOutbox> claimed = events("app-1", 1, 1);
+        claimed.get(0).setAttempts(2);
+        when(webhookOutboxService.claimDue(eq(200), anyInt())).thenReturn(claimed);
+
+        dispatcher.dispatchDue();
+
+        ArgumentCaptor<Long> backoff = ArgumentCaptor.forClass(Long.class);
+        verify(webhookOutboxService).markFailed(eq(claimed), eq(503), eq("HTTP 503"), eq(8), backoff.capture());
+        // 第 3 次尝试：10 * 2^2 = 40 秒，±20% 抖动
+        assertTrue(backoff.getValue() >= 32 && backoff.getValue() <= 48, "backoff=" + backoff.getValue());
+        verify(webhookOutboxService, never()).markSuccess(anyList(), anyInt());
+        assertEquals("order.status_changed", received.get(0).get("event"));
+    }
+
+    @Test
+    void backoffSeconds_growsExponentiallyAndIsCappedAtOneHour() {
+        for (int i = 0; i < 50; i++) {
+            long first = dispatcher.backoffSeconds(0);
+            assertTrue(first >= 8 && first <= 12, "first=" + first);
+            long capped = dispatcher.backoffSeconds(30);
+            assertTrue(capped >= 2880 && capped <= 4320, "capped=" + capped);
+        }
+    }
+
+    private TenantApp app(String id, String configJson) {
+        TenantApp app = new TenantApp();
+        app.setId(id);
+        app.setTenantId(9L);
+        app.setAppName("客户 ERP");
+        app.setAppType("ORDER_SYNC");
+        app.setAppKey("ak_" + id);
+        app.setStatus("active");
+        app.setDeleteFlag(0);
+        app.setCallbackUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/hook");
+        app.setCallbackSecret(SECRET);
+        app.setConfigJson(configJson);
+        return app;
+    }
+
+    private static List<WebhookOutbox> events(String appId, int fromId, int toId) {
+        List<WebhookOutbox> list = new ArrayList<>();
+        for (int i = fromId; i <= toId; i++) {
+            WebhookOutbox e = new WebhookOutbox();
+            e.setId((long) i);
+            e.setAppId(appId);
+            e.setEventType("order.status_changed");
+            e.setPayload("{\"n\":" + i + "}");
+            e.setStatus(WebhookOutbox.STATUS_SENDING);
+            e.setAttempts(0);
+            list.add(e);
+        }
+        return list;
+    }
+
+    private static String hmac(String data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,99 @@
+package com.fashion.supplychain.integration.openapi.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.integration.openapi.entity.TenantApp;
+import com.fashion.supplychain.integration.openapi.entity.WebhookOutbox;
+import com.fashion.supplychain.integration.openapi.mapper.WebhookOutboxMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookPushServiceTest {
+
+    @Mock
+    private TenantAppService tenantAppService;
+
+    @Mock
+    private WebhookOutboxMapper webhookOutboxMapper;
+
+    @Mock
+    private WebhookDispatcher webhookDispatcher;
+
+    @InjectMocks
+    private WebhookPushService pushService;
+
+    @BeforeEach
+    void setUp() {
+        UserContext ctx = new UserContext();
+        ctx.setTenantId(9L);
+        UserContext.set(ctx);
+    }
+
+    @AfterEach
+    void tearDown() {
+        UserContext.clear();
+    }
+
+    @Test
+    void push_writesOneOutboxRowPerActiveAppThenTriggersDispatch() {
+        when(tenantAppService.list(any(LambdaQueryWrapper.class))).thenReturn(List.of(app("a1"), app("a2")));
+
+        pushService.pushOrderStatusChange("PO-1", "CUTTING", "SEWING", Map.of("factory", "华美"));
+
+        ArgumentCaptor<WebhookOutbox> rows = ArgumentCaptor.forClass(WebhookOutbox.class);
+        verify(webhookOutboxMapper, times(2)).insert(rows.capture());
+        assertEquals(List.of("a1", "a2"), rows.getAllValues().stream().map(WebhookOutbox::getAppId).toList());
+        WebhookOutbox first = rows.getAllValues().get(0);
+        assertEquals(WebhookOutbox.STATUS_PENDING, first.getStatus());
+        assertEquals(0, first.getAttempts());
+        assertEquals("order.status_changed", first.getEventType());
+        assertTrue(first.getPayload().contains("\"newStatus\":\"SEWING\""));
+        verify(webhookDispatcher).requestDispatch();
+    }
+
+    @Test
+    void outboxInsertFailure_isThrownToCallerAndNothingDispatched() {
+        when(tenantAppService.list(any(LambdaQueryWrapper.class))).thenReturn(List.of(app("a1")));
+        when(webhookOutboxMapper.insert(any(WebhookOutbox.class))).thenThrow(new IllegalStateException("DB down"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> pushService.pushOrderStatusChange("PO-1", "CUTTING", "SEWING", null));
+
+        assertTrue(e.getMessage().contains("order.status_changed"));
+        verify(webhookDispatcher, never()).requestDispatch();
+    }
+
+    @Test
+    void activeApps_areCachedPerTenantAndType() {
+        when(tenantAppService.list(any(LambdaQueryWrapper.class))).thenReturn(List.of());
+
+        pushService.pushOrderStatusChange("PO-1", "CUTTING", "SEWING", null);
+        pushService.pushOrderStatusChange("PO-2", "CUTTING", "SEWING", null);
+        pushService.pushQualityResult("PO-1", "车缝", 10, 0, null);
+
+        verify(tenantAppService, times(2)).list(any(LambdaQueryWrapper.class));
+        verifyNoInteractions(webhookOutboxMapper, webhookDispatcher);
+    }
+
+    private static TenantApp app(String id) {
+        TenantApp app = new TenantApp();
+        app.setId(id);
+        app.setTenantId(9L);
+        app.setCallbackUrl("https://erp.example.com/hook/" + id);
+        return app;
+    }
+}
@@ -0,0 +1,52 @@
+package com.fashion.supplychain.intelligence.agent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgentJsonTest {
+
+    @Test
+    void isError_detectsErrorRegardlessOfFieldOrder() {
+        assertTrue(AgentJson.isError("{\"error\":\"未知工具: x\"}"));
+        assertTrue(AgentJson.isError("{\"success\":false,\"error\":\"参数错误\"}"));
+        assertTrue(AgentJson.isError("  {\"error\":\"cost_circuit_broken\",\"message\":\"超限\"}"));
+    }
+
+    @Test
+    void isError_treatsSuccessAndPlainTextAsOk() {
+        assertFalse(AgentJson.isError("{\"success\":true,\"data\":{\"error\":\"nested\"}}"));
+        assertFalse(AgentJson.isError("{\"success\":true,\"error\":null}"));
+        assertFalse(AgentJson.isError("{\"success\":false,\"needsConfirmation\":true}"));
+        assertFalse(AgentJson.isError("[{\"error\":\"x\"}]"));
+        assertFalse(AgentJson.isError("纯文本结果"));
+        assertTrue(AgentJson.isError(null));
+    }
+
+    @Test
+    void errorJson_escapesMessage() throws Exception {
+        String json = AgentJson.errorJson("工具执行异常: column \"qty\" not found");
+        JsonNode node = AgentJson.MAPPER.readTree(json);
+        assertEquals("工具执行异常: column \"qty\" not found", node.path("error").asText());
+        assertTrue(AgentJson.isError(json));
+    }
+
+    @Test
+    void writeBytes_streamsObjectFieldsAsUtf8() throws Exception {
+        byte[] body = AgentJson.writeBytes(gen -> {
+            gen.writeStartObject();
+            gen.writeStringField("model", "m");
+            gen.writeObjectField("messages", List.of(AiMessage.user("你好")));
+            AgentJson.writeFields(gen, Map.of("stream", true));
+            gen.writeEndObject();
+        });
+        JsonNode node = AgentJson.MAPPER.readTree(new String(body, StandardCharsets.UTF_8));
+        assertEquals("你好", node.path("messages").get(0).path("content").asText());
+        assertTrue(node.path("stream").asBoolean());
+    }
+}
@@ -0,0 +1,165 @@
+package com.fashion.supplychain.intelligence.agent.loop;
+
+import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.intelligence.agent.AiTool;
+import com.fashion.supplychain.intelligence.agent.tool.AgentTool;
+import com.fashion.supplychain.intelligence.agent.tool.ToolDomain;
+import com.fashion.supplychain.intelligence.helper.AiAgentPromptHelper;
+import com.fashion.supplychain.intelligence.helper.AiAgentToolExecHelper;
+import com.fashion.supplychain.intelligence.service.AiAgentToolAccessService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AgentPromptCatalogTest {
+
+    @Mock
+    private AiAgentToolAccessService accessService;
+
+    @Mock
+    private AiAgentToolExecHelper toolExecHelper;
+
+    @Mock
+    private AiAgentPromptHelper promptHelper;
+
+    private final List<AgentTool> registered = List.of(tool("query_order"), tool("check_stock"), tool("calc_payroll"));
+
+    private AgentPromptCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        login(1L, null);
+        catalog = new AgentPromptCatalog();
+        ReflectionTestUtils.setField(catalog, "aiAgentToolAccessService", accessService);
+        ReflectionTestUtils.setField(catalog, "toolExecHelper", toolExecHelper);
+        ReflectionTestUtils.setField(catalog, "promptHelper", promptHelper);
+        lenient().when(accessService.hasManagerAccess()).thenReturn(true);
+        lenient().when(accessService.resolveVisibleTools(anyList())).thenAnswer(inv -> new ArrayList<>(inv.<List<AgentTool>>getArgument(0)));
+        lenient().when(accessService.filterByDomains(anyList(), anySet())).thenAnswer(inv -> inv.<List<AgentTool>>getArgument(0).subList(0, 2));
+        lenient().when(accessService.toApiTools(anyList())).thenAnswer(inv -> inv.<List<AgentTool>>getArgument(0).stream()
+                .map(t -> apiTool(t.getName())).collect(Collectors.toCollection(ArrayList::new)));
+        lenient().when(toolExecHelper.toToolLookup(anyList())).thenAnswer(inv -> {
+            Map<String, AgentTool> lookup = new LinkedHashMap<>();
+            inv.<List<AgentTool>>getArgument(0).forEach(t -> lookup.put(t.getName(), t));
+            return lookup;
+        });
+        lenient().when(promptHelper.buildStablePrefix(anyList())).thenAnswer(inv -> "PREFIX:" + inv.<List<AgentTool>>getArgument(0)
+                .stream().map(AgentTool::getName).collect(Collectors.joining(",")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        UserContext.clear();
+    }
+
+    @Test
+    void compile_reusesImmutableCatalogForSameToolSet() {
+        AgentPromptCatalog.CompiledCatalog first = catalog.compile(registered);
+        AgentPromptCatalog.CompiledCatalog second = catalog.compile(List.copyOf(registered));
+
+        assertSame(first, second);
+        verify(promptHelper, times(1)).buildStablePrefix(anyList());
+        verify(accessService, times(1)).toApiTools(anyList());
+        assertEquals(List.of("calc_payroll", "check_stock", "query_order"),
+                first.apiTools().stream().map(t -> t.getFunction().getName()).toList());
+        assertEquals("PREFIX:query_order,check_stock,calc_payroll", first.stablePrefix());
+        assertThrows(UnsupportedOperationException.class, () -> first.apiTools().add(apiTool("x")));
+        assertThrows(UnsupportedOperationException.class, () -> first.toolMap().remove("query_order"));
+    }
+
+    @Test
+    void compile_recompilesWhenTenantRoleOrToolSetChanges() {
+        AgentPromptCatalog.CompiledCatalog base = catalog.compile(registered);
+
+        login(2L, null);
+        assertNotSame(base, catalog.compile(registered));
+        login(1L, "F-01");
+        assertNotSame(base, catalog.compile(registered));
+        login(1L, null);
+        when(accessService.hasManagerAccess()).thenReturn(false);
+        assertNotSame(base, catalog.compile(registered));
+        when(accessService.hasManagerAccess()).thenReturn(true);
+        assertNotSame(base, catalog.compile(registered.subList(0, 2)));
+
+        assertSame(base, catalog.compile(registered));
+        verify(promptHelper, times(5)).buildStablePrefix(anyList());
+    }
+
+    @Test
+    void resolveDomainTools_cachesByVisibilityAndDomainSet() {
+        Set<ToolDomain> domains = new LinkedHashSet<>(List.of(ToolDomain.WAREHOUSE, ToolDomain.PRODUCTION));
+
+        List<AgentTool> first = catalog.resolveDomainTools(registered, domains);
+        List<AgentTool> sameDomainsOtherOrder = catalog.resolveDomainTools(registered,
+                EnumSet.of(ToolDomain.PRODUCTION, ToolDomain.WAREHOUSE));
+
+        assertSame(first, sameDomainsOtherOrder);
+        assertEquals(2, first.size());
+        verify(accessService, times(1)).resolveVisibleTools(anyList());
+        verify(accessService, times(1)).filterByDomains(anyList(), anySet());
+
+        // 领域为空不裁剪
+        assertEquals(3, catalog.resolveDomainTools(registered, Set.of()).size());
+        verify(accessService, times(1)).filterByDomains(anyList(), anySet());
+
+        // 工具注册表变化（热更新）落到新 key
+        List<AgentTool> grown = new ArrayList<>(registered);
+        grown.add(tool("export_report"));
+        assertEquals(4, catalog.resolveDomainTools(grown, Set.of()).size());
+        verify(accessService, times(3)).resolveVisibleTools(anyList());
+    }
+
+    @Test
+    void invalidateAll_forcesRecompileAndStatsCountHits() {
+        catalog.compile(registered);
+        catalog.compile(registered);
+        catalog.invalidateAll();
+        catalog.compile(registered);
+
+        verify(promptHelper, times(2)).buildStablePrefix(anyList());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> compiled = (Map<String, Object>) catalog.getStats().get("compiled");
+        assertEquals(1L, compiled.get("hits"));
+        assertEquals(2L, compiled.get("misses"));
+    }
+
+    private static void login(Long tenantId, String factoryId) {
+        UserContext ctx = new UserContext();
+        ctx.setTenantId(tenantId);
+        ctx.setUserId("u-1");
+        ctx.setFactoryId(factoryId);
+        UserContext.set(ctx);
+    }
+
+    private static AgentTool tool(String name) {
+        AgentTool tool = mock(AgentTool.class);
+        lenient().when(tool.getName()).thenReturn(name);
+        return tool;
+    }
+
+    private static AiTool apiTool(String name) {
+        AiTool.AiFunction function = new AiTool.AiFunction();
+        function.setName(name);
+        AiTool tool = new AiTool();
+        tool.setFunction(function);
+        return tool;
+    }
+}
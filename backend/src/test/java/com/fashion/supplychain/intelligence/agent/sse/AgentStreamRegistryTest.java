@@ -0,0 +1,301 @@
+package com.fashion.supplychain.intelligence.agent.sse;
+
+import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.intelligence.agent.AgentJson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AgentStreamRegistryTest {
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOps;
+
+    @Mock
+    private ListOperations<String, String> listOps;
+
+    @Mock
+    private ValueOperations<String, String> valueOps;
+
+    /** 不调用 init()：镜像由测试手动触发，调度器只给跨节点跟随续期用 */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private AgentStreamRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        UserContext ctx = new UserContext();
+        ctx.setTenantId(9L);
+        ctx.setUserId("u1");
+        UserContext.set(ctx);
+
+        registry = new AgentStreamRegistry() {
+            @Override
+            SseEmitter createClient(long timeoutMs) {
+                return new RecordingEmitter();
+            }
+        };
+        ReflectionTestUtils.setField(registry, "enabled", true);
+        ReflectionTestUtils.setField(registry, "maxEvents", 3);
+        ReflectionTestUtils.setField(registry, "retainSeconds", 600L);
+        ReflectionTestUtils.setField(registry, "abandonSeconds", 90L);
+        ReflectionTestUtils.setField(registry, "scheduler", scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+        UserContext.clear();
+    }
+
+    @Test
+    void attach_sendsHelloThenLiveEventsWithStreamScopedIds() throws Exception {
+        AgentStream stream = registry.open();
+        RecordingEmitter client = (RecordingEmitter) registry.attach(stream, 60_000L, true);
+
+        stream.producer().send(SseEmitter.event().name("delta").data("a"));
+        stream.producer().send(SseEmitter.event().name("delta").data("b"));
+
+        assertEquals(3, client.sent.size());
+        assertTrue(client.sent.get(0).contains("event:stream"));
+        assertTrue(client.sent.get(0).contains(stream.getId()));
+        assertTrue(client.sent.get(1).contains("id:" + stream.getId() + ":1"));
+        assertTrue(client.sent.get(2).contains("id:" + stream.getId() + ":2"));
+        assertTrue(client.sent.get(2).contains("data:b"));
+    }
+
+    @Test
+    void resume_replaysOnlyEventsAfterLastEventIdThenFollowsLive() throws Exception {
+        AgentStream stream = registry.open();
+        RecordingEmitter first = (RecordingEmitter) registry.attach(stream, 60_000L, false);
+        for (String d : List.of("a", "b", "c")) {
+            stream.producer().send(SseEmitter.event().name("delta").data(d));
+        }
+        stream.detach(first);
+
+        RecordingEmitter resumed = (RecordingEmitter) registry.resume(stream.getId() + ":1", 60_000L, false);
+        stream.producer().send(SseEmitter.event().name("delta").data("d"));
+
+        assertNotNull(resumed);
+        assertEquals(List.of(stream.getId() + ":2", stream.getId() + ":3", stream.getId() + ":4"), resumed.ids());
+        assertEquals(3, first.sent.size(), "已断开的连接不再收到事件");
+    }
+
+    @Test
+    void resume_pastEvictedEvents_reportsGapBeforeReplay() throws Exception {
+        AgentStream stream = registry.open();
+        for (int i = 1; i <= 5; i++) {
+            stream.producer().send(SseEmitter.event().name("delta").data("e" + i));
+        }
+
+        RecordingEmitter resumed = (RecordingEmitter) registry.resume(stream.getId() + ":0", 60_000L, false);
+
+        assertNotNull(resumed);
+        assertTrue(resumed.sent.get(0).contains("event:resume_gap"));
+        assertTrue(resumed.sent.get(0).contains("\"from\":1"));
+        assertTrue(resumed.sent.get(0).contains("\"to\":2"));
+        assertEquals(List.of(stream.getId() + ":3", stream.getId() + ":4", stream.getId() + ":5"), resumed.ids());
+    }
+
+    @Test
+    void resume_finishedStream_replaysAndCompletes() throws Exception {
+        AgentStream stream = registry.open();
+        stream.producer().send(SseEmitter.event().name("delta").data("a"));
+        stream.producer().complete();
+
+        RecordingEmitter resumed = (RecordingEmitter) registry.resume(stream.getId() + ":0", 60_000L, false);
+
+        assertEquals(List.of(stream.getId() + ":1"), resumed.ids());
+        assertTrue(resumed.completed);
+    }
+
+    @Test
+    void resume_rejectsOtherUsersStreamAndMalformedIds() {
+        AgentStream stream = registry.open();
+        UserContext.get().setUserId("u2");
+
+        assertNull(registry.resume(stream.getId() + ":0", 60_000L, false));
+        assertNull(registry.resume("no-separator", 60_000L, false));
+        assertNull(registry.resume(stream.getId() + ":x", 60_000L, false));
+    }
+
+    @Test
+    void abandonedStream_failsProducerUnlessFollowedRemotely() throws Exception {
+        AgentStream abandoned = new AgentStream("s1", 9L, "u1", 10, 20L, null);
+        AgentStream followed = new AgentStream("s2", 9L, "u1", 10, 20L, s -> true);
+        Thread.sleep(40);
+
+        assertThrows(IOException.class, () -> abandoned.producer().send(SseEmitter.event().data("x")));
+        assertTrue(abandoned.isFinished());
+        followed.producer().send(SseEmitter.event().data("x"));
+        assertFalse(followed.isFinished());
+    }
+
+    @Test
+    void sweep_dropsFinishedStreamsAfterRetention() throws Exception {
+        ReflectionTestUtils.setField(registry, "retainSeconds", 0L);
+        AgentStream stream = registry.open();
+        stream.producer().complete();
+        Thread.sleep(5);
+
+        registry.mirrorAndSweep();
+
+        assertNull(registry.resume(stream.getId() + ":0", 60_000L, false));
+    }
+
+    @Test
+    void pipelineFailure_requeuesBatchAndEndMarkerForNextRound() throws Exception {
+        ReflectionTestUtils.setField(registry, "stringRedisTemplate", stringRedisTemplate);
+        lenient().when(stringRedisTemplate.opsForHash()).thenReturn(hashOps);
+        List<String> calls = new ArrayList<>();
+        StringRedisConnection conn = recordingConnection(calls);
+        doThrow(new RedisConnectionFailureException("down"))
+                .doAnswer(inv -> {
+                    RedisCallback<?> cb = inv.getArgument(0);
+                    cb.doInRedis(conn);
+                    return List.of();
+                })
+                .when(stringRedisTemplate).executePipelined(any(RedisCallback.class));
+
+        AgentStream stream = registry.open();
+        stream.producer().send(SseEmitter.event().name("delta").data("a"));
+        stream.producer().send(SseEmitter.event().name("delta").data("b"));
+        stream.producer().complete();
+
+        registry.mirrorAndSweep();
+        registry.mirrorAndSweep();
+        registry.mirrorAndSweep();
+
+        verify(stringRedisTemplate, times(2)).executePipelined(any(RedisCallback.class));
+        String logKey = "ai:stream:" + stream.getId() + ":log";
+        assertEquals("rPush " + logKey + " " + List.of(
+                AgentJson.MAPPER.writeValueAsString(new AgentStream.StreamEvent(1, "delta", "a")),
+                AgentJson.MAPPER.writeValueAsString(new AgentStream.StreamEvent(2, "delta", "b"))), calls.get(0));
+        assertTrue(calls.contains("hSet ai:stream:" + stream.getId() + " [done, 1]"));
+        assertTrue(calls.stream().anyMatch(c -> c.startsWith("publish ai:stream:" + stream.getId() + ":live")
+                && c.contains("\"end\":true")));
+    }
+
+    @Test
+    void resumeOnOtherNode_replaysRedisLogWithGapAndCompletesFinishedStream() throws Exception {
+        ReflectionTestUtils.setField(registry, "stringRedisTemplate", stringRedisTemplate);
+        when(stringRedisTemplate.opsForHash()).thenReturn(hashOps);
+        when(stringRedisTemplate.opsForList()).thenReturn(listOps);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOps);
+        when(hashOps.entries("ai:stream:remote")).thenReturn(Map.of("tenant", "9", "user", "u1", "done", "1"));
+        when(hashOps.get("ai:stream:remote", "done")).thenReturn("1");
+        when(listOps.range("ai:stream:remote:log", 0, -1)).thenReturn(List.of(
+                AgentJson.MAPPER.writeValueAsString(new AgentStream.StreamEvent(3, "delta", "c")),
+                AgentJson.MAPPER.writeValueAsString(new AgentStream.StreamEvent(4, "delta", "d"))));
+
+        RecordingEmitter resumed = (RecordingEmitter) registry.resume("remote:1", 60_000L, false);
+
+        assertNotNull(resumed);
+        assertTrue(resumed.sent.get(0).contains("event:resume_gap"));
+        assertTrue(resumed.sent.get(0).contains("\"from\":2"));
+        assertEquals(List.of("remote:3", "remote:4"), resumed.ids());
+        assertTrue(resumed.completed);
+        verify(valueOps).set("ai:stream:remote:sub", "1", 30L, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void resumeOnOtherNode_ofOtherUsersStream_returnsNull() {
+        ReflectionTestUtils.setField(registry, "stringRedisTemplate", stringRedisTemplate);
+        when(stringRedisTemplate.opsForHash()).thenReturn(hashOps);
+        when(hashOps.entries("ai:stream:remote")).thenReturn(Map.of("tenant", "9", "user", "u2", "done", "0"));
+
+        assertNull(registry.resume("remote:1", 60_000L, false));
+        verifyNoInteractions(valueOps);
+    }
+
+    /** 记录 pipeline 内的 Redis 命令：方法名 + key + 其余参数 */
+    private static StringRedisConnection recordingConnection(List<String> calls) {
+        return (StringRedisConnection) Proxy.newProxyInstance(AgentStreamRegistryTest.class.getClassLoader(),
+                new Class<?>[]{StringRedisConnection.class}, (proxy, method, args) -> {
+                    if (args != null && args.length > 1) {
+                        List<Object> rest = new ArrayList<>();
+                        for (int i = 1; i < args.length; i++) {
+                            if (args[i] instanceof String[] values) {
+                                rest.addAll(Arrays.asList(values));
+                            } else {
+                                rest.add(args[i]);
+                            }
+                        }
+                        String tail = rest.size() == 1 && !method.getName().equals("hSet")
+                                ? String.valueOf(rest.get(0)) : rest.toString();
+                        calls.add(method.getName() + " " + args[0] + " " + tail);
+                    }
+                    return null;
+                });
+    }
+
+    /** 记录发送内容的客户端连接（不经 Spring MVC 写响应） */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        final List<String> sent = new ArrayList<>();
+        volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            send(builder.build());
+        }
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) {
+            StringBuilder raw = new StringBuilder();
+            for (DataWithMediaType item : items) {
+                raw.append(item.getData());
+            }
+            sent.add(raw.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        /** 已发送事件的 id（不含 stream / resume_gap 等无 id 事件） */
+        List<String> ids() {
+            List<String> ids = new ArrayList<>();
+            for (String s : sent) {
+                for (String line : s.split("\n")) {
+                    if (line.startsWith("id:")) {
+                        ids.add(line.substring(3));
+                    }
+                }
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.fashion.supplychain.intelligence.job;
+
+import com.fashion.supplychain.common.lock.DistributedLockService;
+import com.fashion.supplychain.intelligence.annotation.JobPolicy.Priority;
+import com.fashion.supplychain.intelligence.service.AiJobRunLogService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JobScheduleGovernorTest {
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @Mock
+    private DistributedLockService distributedLockService;
+
+    @Mock
+    private AiJobRunLogService jobRunLogService;
+
+    private volatile double utilization;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private JobScheduleGovernor governor;
+
+    @BeforeEach
+    void setUp() {
+        governor = new JobScheduleGovernor() {
+            @Override
+            public double poolUtilization() {
+                return utilization;
+            }
+        };
+        ReflectionTestUtils.setField(governor, "enabled", true);
+        ReflectionTestUtils.setField(governor, "workers", 4);
+        ReflectionTestUtils.setField(governor, "normalMaxConcurrent", 1);
+        ReflectionTestUtils.setField(governor, "lowMaxConcurrent", 1);
+        ReflectionTestUtils.setField(governor, "cronJitterSeconds", 120);
+        ReflectionTestUtils.setField(governor, "poolBusyThreshold", 0.75);
+        ReflectionTestUtils.setField(governor, "deferSeconds", 30);
+        ReflectionTestUtils.setField(governor, "shardLeaseMinutes", 30);
+        ReflectionTestUtils.setField(governor, "taskScheduler", taskScheduler);
+        ReflectionTestUtils.setField(governor, "distributedLockService", distributedLockService);
+        ReflectionTestUtils.setField(governor, "jobRunLogService", jobRunLogService);
+        governor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        governor.shutdown();
+    }
+
+    @Test
+    void sameJobStillInFlight_dropsNewTrigger() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        JobScheduleGovernor.JobBody body = run -> {
+            runs.incrementAndGet();
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+        };
+
+        dispatch("PatrolJob", Priority.HIGH, false, body);
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        dispatch("PatrolJob", Priority.HIGH, false, body);
+        release.countDown();
+        CountDownLatch after = new CountDownLatch(1);
+        dispatch("OtherJob", Priority.HIGH, false, run -> after.countDown());
+        assertTrue(after.await(2, TimeUnit.SECONDS));
+
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void normalAtLimit_isRequeuedWhileHighStillRuns() throws Exception {
+        CountDownLatch normalStarted = new CountDownLatch(1);
+        dispatch("SlowNormal", Priority.NORMAL, false, run -> {
+            normalStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+        });
+        assertTrue(normalStarted.await(2, TimeUnit.SECONDS));
+
+        AtomicInteger secondNormal = new AtomicInteger();
+        dispatch("SecondNormal", Priority.NORMAL, false, run -> secondNormal.incrementAndGet());
+        CountDownLatch high = new CountDownLatch(1);
+        dispatch("Heartbeat", Priority.HIGH, false, run -> high.countDown());
+
+        assertTrue(high.await(2, TimeUnit.SECONDS), "HIGH 任务不应被 NORMAL 并发上限阻塞");
+        Instant at = scheduledAt(1).get(0);
+        long delayMs = at.toEpochMilli() - System.currentTimeMillis();
+        assertTrue(delayMs > 3_000 && delayMs <= 5_000, "并发已满应约 5 秒后重新入队，实际 " + delayMs + "ms");
+        assertEquals(0, secondNormal.get());
+    }
+
+    @Test
+    void busyPool_defersLowThenSkipsAndRecordsIt() throws Exception {
+        utilization = 0.9;
+        AtomicInteger runs = new AtomicInteger();
+
+        governor.dispatch("LearnJob", "run", Priority.LOW, false, 0, 1, JobScheduleGovernor.NO_SHARD_SLOT, -1,
+                run -> runs.incrementAndGet());
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler, timeout(2000)).schedule(retry.capture(), any(Instant.class));
+        retry.getValue().run();
+
+        verify(jobRunLogService, timeout(2000)).logSkipped(eq("LearnJob"), eq("run"), any(), anyLong(),
+                contains("本轮跳过"), isNull());
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void busyPool_normalRunsAfterDeferralsAndHighNeverDefers() throws Exception {
+        utilization = 0.9;
+        CountDownLatch normalRan = new CountDownLatch(1);
+        CountDownLatch highRan = new CountDownLatch(1);
+
+        governor.dispatch("ReportJob", "run", Priority.NORMAL, false, 0, 0, JobScheduleGovernor.NO_SHARD_SLOT, -1,
+                run -> normalRan.countDown());
+        dispatch("FlushJob", Priority.HIGH, false, run -> highRan.countDown());
+
+        assertTrue(normalRan.await(2, TimeUnit.SECONDS));
+        assertTrue(highRan.await(2, TimeUnit.SECONDS));
+        verifyNoInteractions(taskScheduler, jobRunLogService);
+    }
+
+    @Test
+    void cronTrigger_isJitteredButHighCronIsNot() throws Exception {
+        governor.dispatch("NightlyJob", "run", Priority.NORMAL, true, 60, -1, 1_700_000_000_000L, -1, run -> { });
+        Instant at = scheduledAt(1).get(0);
+        assertTrue(at.toEpochMilli() - System.currentTimeMillis() <= 60_000);
+
+        CountDownLatch highRan = new CountDownLatch(1);
+        governor.dispatch("SettleJob", "run", Priority.HIGH, true, 60, -1, 1_700_000_000_000L, -1,
+                run -> highRan.countDown());
+        assertTrue(highRan.await(2, TimeUnit.SECONDS));
+        verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    void claimTenant_keysCronBySlotAndFixedRateByLeaseOnly() throws Exception {
+        when(distributedLockService.tryClaim(anyString(), anyLong(), eq(TimeUnit.MILLISECONDS)))
+                .thenAnswer(inv -> !inv.<String>getArgument(0).endsWith(":2"));
+        List<Boolean> cronClaims = new CopyOnWriteArrayList<>();
+        List<Integer> skipped = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+
+        governor.dispatch("PatrolJob", "run", Priority.HIGH, true, 0, -1, 1_700_000_000_000L, -1, run -> {
+            cronClaims.add(governor.claimTenant(1L));
+            cronClaims.add(governor.claimTenant(2L));
+            skipped.add(run.getShardSkipped());
+            done.countDown();
+        });
+        governor.dispatch("SyncJob", "tick", Priority.HIGH, false, 0, -1, JobScheduleGovernor.NO_SHARD_SLOT, 54_000L,
+                run -> {
+                    governor.claimTenant(3L);
+                    done.countDown();
+                });
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+
+        assertEquals(List.of(true, false), cronClaims);
+        assertEquals(List.of(1), skipped);
+        verify(distributedLockService).tryClaim("job:shard:PatrolJob.run:1700000000000:1", TimeUnit.MINUTES.toMillis(30),
+                TimeUnit.MILLISECONDS);
+        verify(distributedLockService).tryClaim("job:shard:SyncJob.tick:3", 54_000L, TimeUnit.MILLISECONDS);
+        // 调度器之外（手动触发）不分片
+        assertTrue(governor.claimTenant(2L));
+        assertFalse(governor.isSharding());
+    }
+
+    private void dispatch(String job, Priority priority, boolean cron, JobScheduleGovernor.JobBody body) {
+        governor.dispatch(job, "run", priority, cron, 0, -1, JobScheduleGovernor.NO_SHARD_SLOT, -1, body);
+    }
+
+    private List<Instant> scheduledAt(int times) {
+        ArgumentCaptor<Instant> at = ArgumentCaptor.forClass(Instant.class);
+        verify(taskScheduler, timeout(2000).times(times)).schedule(any(Runnable.class), at.capture());
+        return at.getAllValues();
+    }
+}
@@ -0,0 +1,154 @@
+package com.fashion.supplychain.intelligence.orchestration;
+
+import com.fashion.supplychain.common.CosService;
+import com.fashion.supplychain.common.UserContext;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StyleImageUrlResolverTest {
+
+    @Mock
+    private CosService cosService;
+
+    @InjectMocks
+    private StyleImageUrlResolver resolver;
+
+    private MockedStatic<UserContext> mockedUserContext;
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        mockedUserContext = mockStatic(UserContext.class, withSettings().strictness(Strictness.LENIENT));
+        mockedUserContext.when(UserContext::tenantId).thenReturn(1L);
+        mockedUserContext.when(UserContext::isSuperAdmin).thenReturn(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mockedUserContext.close();
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void tenantDownloadOfOtherTenant_isRejected() {
+        assertNull(resolver.resolveForVision("/api/file/tenant-download/2/style.jpg"));
+        verify(cosService, never()).getPresignedUrl(anyLong(), anyString());
+    }
+
+    @Test
+    void tenantDownloadOfOwnTenant_isPresigned() {
+        when(cosService.isEnabled()).thenReturn(true);
+        when(cosService.getPresignedUrl(1L, "style.jpg")).thenReturn("https://signed");
+
+        assertEquals("https://signed", resolver.resolveForVision("/api/file/tenant-download/1/style.jpg"));
+    }
+
+    @Test
+    void superAdmin_mayResolveAnyTenant() {
+        mockedUserContext.when(UserContext::isSuperAdmin).thenReturn(true);
+        when(cosService.isEnabled()).thenReturn(true);
+        when(cosService.getPresignedUrl(2L, "style.jpg")).thenReturn("https://signed");
+
+        assertEquals("https://signed", resolver.resolveForVision("/api/file/tenant-download/2/style.jpg"));
+    }
+
+    @Test
+    void cosDirectLinkOfOtherTenant_isRejected() {
+        assertNull(resolver.resolveForVision("https://bucket.cos.ap-guangzhou.myqcloud.com/tenants/2/style.jpg"));
+        verify(cosService, never()).getPresignedUrl(anyLong(), anyString());
+    }
+
+    @Test
+    void internalAddresses_areClassifiedAsInternal() throws Exception {
+        for (String ip : new String[]{"127.0.0.1", "10.1.2.3", "172.16.0.1", "192.168.1.1", "169.254.169.254",
+                "100.64.0.1", "0.0.0.0", "224.0.0.1", "::1", "fe80::1", "fd00::1", "::ffff:10.0.0.1"}) {
+            assertTrue(StyleImageUrlResolver.isInternalAddress(InetAddress.getByName(ip)), ip);
+        }
+        for (String ip : new String[]{"8.8.8.8", "100.128.0.1", "2001:4860:4860::8888"}) {
+            assertFalse(StyleImageUrlResolver.isInternalAddress(InetAddress.getByName(ip)), ip);
+        }
+    }
+
+    @Test
+    void loopbackExternalUrl_isNeverRequested() throws Exception {
+        int port = startServer(200, new byte[16], true);
+
+        assertNull(resolver.resolveForVision("http://127.0.0.1:" + port + "/a.jpg"));
+        assertNull(resolver.resolveForVision("http://localhost:" + port + "/a.jpg"));
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    void redirectToInternalAddress_isNotFollowed() throws Exception {
+        // 只把 127.0.0.2 视为内部地址：首跳放行，重定向目标拦截
+        resolver.blockedAddress = a -> a.getHostAddress().equals("127.0.0.2");
+        int port = startServer(302, null, true);
+
+        assertNull(resolver.fetchImage("http://127.0.0.1:" + port + "/a.jpg", 1024));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void bodyOverLimit_isAbortedWithOrWithoutContentLength() throws Exception {
+        resolver.blockedAddress = a -> false;
+        int fixed = startServer(200, new byte[200], true);
+        String url = "http://127.0.0.1:" + fixed + "/a.jpg";
+
+        assertEquals(200, resolver.fetchImage(url, 1024).bytes().length);
+        assertNull(resolver.fetchImage(url, 100));
+
+        server.stop(0);
+        int chunked = startServer(200, new byte[200], false);
+        assertNull(resolver.fetchImage("http://127.0.0.1:" + chunked + "/a.jpg", 100));
+    }
+
+    @Test
+    void readBounded_stopsPastLimit() throws Exception {
+        assertEquals(10, StyleImageUrlResolver.readBounded(new ByteArrayInputStream(new byte[10]), 10).length);
+        assertNull(StyleImageUrlResolver.readBounded(new ByteArrayInputStream(new byte[11]), 10));
+    }
+
+    /** 本地 HTTP 服务：302 时跳到 127.0.0.2，200 时返回 body（fixedLength=false 走分块编码） */
+    private int startServer(int status, byte[] body, boolean fixedLength) throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            int port = server.getAddress().getPort();
+            if (status == 302) {
+                exchange.getResponseHeaders().add("Location", "http://127.0.0.2:" + port + "/b.jpg");
+                exchange.sendResponseHeaders(302, -1);
+            } else {
+                exchange.getResponseHeaders().add("Content-Type", "image/jpeg");
+                exchange.sendResponseHeaders(status, fixedLength ? body.length : 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        return server.getAddress().getPort();
+    }
+}
@@ -0,0 +1,180 @@
+package com.fashion.supplychain.intelligence.service;
+
+import com.fashion.supplychain.intelligence.entity.KnowledgeBase;
+import com.fashion.supplychain.intelligence.entity.SessionSearchIndex;
+import com.fashion.supplychain.intelligence.mapper.KnowledgeBaseMapper;
+import com.fashion.supplychain.intelligence.mapper.SessionSearchIndexMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LexicalIndexServiceTest {
+
+    @Mock
+    private KnowledgeBaseMapper knowledgeBaseMapper;
+
+    @Mock
+    private SessionSearchIndexMapper sessionSearchIndexMapper;
+
+    @InjectMocks
+    private LexicalIndexService service;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "refreshMinutes", 30L);
+        ReflectionTestUtils.setField(service, "maxShards", 100L);
+        ReflectionTestUtils.setField(service, "sessionMaxDocs", 2);
+        service.init();
+    }
+
+    @Test
+    void singleCharQuery_matchesCharInsideLongerWord() {
+        KnowledgeBase loaded = kb("k1", 1L, "纯棉面料的缩水率", "全棉针织");
+        when(knowledgeBaseMapper.selectForIndex(isNull())).thenReturn(List.of());
+        when(knowledgeBaseMapper.selectForIndex(1L)).thenReturn(List.of(loaded));
+        when(knowledgeBaseMapper.selectByIdsForIndex(anyCollection()))
+                .thenReturn(List.of(kb("k1", 1L, "纯棉面料的缩水率", "全棉针织")));
+
+        List<LexicalIndexService.Hit<KnowledgeBase>> hits = service.searchKnowledge(1L, "棉", null, 10);
+
+        assertNotNull(hits);
+        assertEquals(1, hits.size());
+        assertEquals("k1", hits.get(0).item().getId());
+    }
+
+    @Test
+    void hits_areHydratedFromDatabaseNotFromShard() {
+        KnowledgeBase loaded = kb("k1", 1L, "面料克重说明", "旧正文");
+        KnowledgeBase fresh = kb("k1", 1L, "面料克重说明", "新正文");
+        when(knowledgeBaseMapper.selectForIndex(isNull())).thenReturn(List.of());
+        when(knowledgeBaseMapper.selectForIndex(1L)).thenReturn(List.of(loaded));
+        when(knowledgeBaseMapper.selectByIdsForIndex(List.of("k1"))).thenReturn(List.of(fresh));
+
+        List<LexicalIndexService.Hit<KnowledgeBase>> hits = service.searchKnowledge(1L, "面料克重", null, 10);
+
+        assertNotNull(hits);
+        assertSame(fresh, hits.get(0).item());
+        assertEquals("新正文", hits.get(0).item().getContent());
+    }
+
+    @Test
+    void noHits_returnsNullSoCallerFallsBackToLike() {
+        when(knowledgeBaseMapper.selectForIndex(isNull())).thenReturn(List.of());
+        when(knowledgeBaseMapper.selectForIndex(1L)).thenReturn(List.of(kb("k1", 1L, "面料克重说明", "正文")));
+
+        assertNull(service.searchKnowledge(1L, "交期", null, 10));
+        verify(knowledgeBaseMapper, never()).selectByIdsForIndex(anyCollection());
+    }
+
+    @Test
+    void hitDeletedBeforeHydration_isDroppedAndEmptyResultFallsBack() {
+        KnowledgeBase deleted = kb("k1", 1L, "面料克重说明", "正文");
+        deleted.setDeleteFlag(1);
+        when(knowledgeBaseMapper.selectForIndex(isNull())).thenReturn(List.of());
+        when(knowledgeBaseMapper.selectForIndex(1L)).thenReturn(List.of(kb("k1", 1L, "面料克重说明", "正文")));
+        when(knowledgeBaseMapper.selectByIdsForIndex(anyCollection())).thenReturn(List.of(deleted));
+
+        assertNull(service.searchKnowledge(1L, "面料", null, 10));
+    }
+
+    @Test
+    void sessionShardLoadedAtLimit_isReportedTruncated() {
+        when(sessionSearchIndexMapper.selectRecentForIndex(7L, 2))
+                .thenReturn(List.of(session("s2", 7L, "面料交期"), session("s1", 7L, "面料克重")));
+        when(sessionSearchIndexMapper.selectRecentForIndex(8L, 2))
+                .thenReturn(List.of(session("s3", 8L, "面料交期")));
+        stubSessionHydration(session("s1", 7L, "面料克重"), session("s2", 7L, "面料交期"), session("s3", 8L, "面料交期"));
+
+        assertNotNull(service.searchSessions(7L, "u1", "面料", 10));
+        assertNotNull(service.searchSessions(8L, "u1", "面料", 10));
+
+        assertTrue(service.sessionShardTruncated(7L));
+        assertFalse(service.sessionShardTruncated(8L));
+        assertFalse(service.sessionShardTruncated(9L), "未装载的分片不算截断");
+    }
+
+    @Test
+    void sessionAppendBeyondLimit_marksShardTruncated() {
+        when(sessionSearchIndexMapper.selectRecentForIndex(8L, 2))
+                .thenReturn(List.of(session("s1", 8L, "面料交期")));
+        stubSessionHydration(session("s1", 8L, "面料交期"), session("s2", 8L, "面料克重"), session("s3", 8L, "面料色差"));
+        service.searchSessions(8L, "u1", "面料", 10);
+        assertFalse(service.sessionShardTruncated(8L));
+
+        service.onSessionIndexed(session("s2", 8L, "面料克重"));
+        service.onSessionIndexed(session("s3", 8L, "面料色差"));
+
+        assertTrue(service.sessionShardTruncated(8L));
+        assertEquals(2, service.searchSessions(8L, "u1", "面料", 10).size());
+    }
+
+    @Test
+    void sessionHits_areHydratedByIdAndFilteredByUser() {
+        SessionSearchIndex other = session("s2", 8L, "面料克重");
+        other.setUserId("u2");
+        when(sessionSearchIndexMapper.selectRecentForIndex(8L, 2))
+                .thenReturn(List.of(other, session("s1", 8L, "面料交期")));
+        SessionSearchIndex fresh = session("s1", 8L, "面料交期");
+        fresh.setAssistantSummary("下周三出货");
+        when(sessionSearchIndexMapper.selectByIdsForIndex(8L, List.of("s1"))).thenReturn(List.of(fresh));
+
+        List<LexicalIndexService.Hit<SessionSearchIndex>> hits = service.searchSessions(8L, "u1", "面料", 10);
+
+        assertNotNull(hits);
+        assertEquals(1, hits.size());
+        assertSame(fresh, hits.get(0).item());
+    }
+
+    @Test
+    void sessionHitMissingOnHydration_isDroppedAndEmptyResultFallsBack() {
+        when(sessionSearchIndexMapper.selectRecentForIndex(8L, 2))
+                .thenReturn(List.of(session("s1", 8L, "面料交期")));
+        when(sessionSearchIndexMapper.selectByIdsForIndex(eq(8L), anyCollection())).thenReturn(List.of());
+
+        assertNull(service.searchSessions(8L, "u1", "面料", 10));
+    }
+
+    private void stubSessionHydration(SessionSearchIndex... rows) {
+        when(sessionSearchIndexMapper.selectByIdsForIndex(anyLong(), anyCollection())).thenAnswer(inv -> {
+            Long tenantId = inv.getArgument(0);
+            Collection<String> ids = inv.getArgument(1);
+            return Arrays.stream(rows)
+                    .filter(r -> r.getTenantId().equals(tenantId) && ids.contains(r.getId()))
+                    .toList();
+        });
+    }
+
+    private static KnowledgeBase kb(String id, Long tenantId, String title, String content) {
+        KnowledgeBase kb = new KnowledgeBase();
+        kb.setId(id);
+        kb.setTenantId(tenantId);
+        kb.setCategory("faq");
+        kb.setTitle(title);
+        kb.setContent(content);
+        kb.setDeleteFlag(0);
+        return kb;
+    }
+
+    private static SessionSearchIndex session(String id, Long tenantId, String message) {
+        SessionSearchIndex s = new SessionSearchIndex();
+        s.setId(id);
+        s.setTenantId(tenantId);
+        s.setUserId("u1");
+        s.setUserMessage(message);
+        return s;
+    }
+}
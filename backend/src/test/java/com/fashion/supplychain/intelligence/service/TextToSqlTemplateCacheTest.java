@@ -0,0 +1,146 @@
+package com.fashion.supplychain.intelligence.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextToSqlTemplateCacheTest {
+
+    private final FakeJdbc jdbc = new FakeJdbc();
+
+    private TextToSqlTemplateCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new TextToSqlTemplateCache();
+        ReflectionTestUtils.setField(cache, "jdbcTemplate", jdbc);
+        jdbc.factoryNames = List.of("华美", "华美二厂", "宏达");
+    }
+
+    @Test
+    void shapeOf_liftsLiteralsSoQuestionsDifferingOnlyInValuesShareShape() {
+        TextToSqlTemplateCache.QuestionShape a = cache.shapeOf("“春季款”在2026年3月5日之后的订单PO20260001数量超过100吗?", 7L);
+        TextToSqlTemplateCache.QuestionShape b = cache.shapeOf("\"秋季款\" 在 2026-10-01 之后的订单 PO20269999 数量超过 30 吗", 7L);
+
+        assertEquals(List.of(
+                new TextToSqlTemplateCache.Literal(TextToSqlTemplateCache.LiteralKind.NAME, "春季款"),
+                new TextToSqlTemplateCache.Literal(TextToSqlTemplateCache.LiteralKind.CODE, "PO20260001"),
+                new TextToSqlTemplateCache.Literal(TextToSqlTemplateCache.LiteralKind.DATE, "2026-03-05"),
+                new TextToSqlTemplateCache.Literal(TextToSqlTemplateCache.LiteralKind.NUMBER, "100")), a.literals());
+        assertEquals(a.shape(), b.shape());
+    }
+
+    @Test
+    void shapeOf_prefersLongestTenantFactoryName() {
+        TextToSqlTemplateCache.QuestionShape shape = cache.shapeOf("华美二厂本月产量", 7L);
+
+        assertEquals(List.of(new TextToSqlTemplateCache.Literal(TextToSqlTemplateCache.LiteralKind.NAME, "华美二厂")),
+                shape.literals());
+    }
+
+    @Test
+    void rememberedTemplate_bindsNewValuesInSqlOrder() {
+        TextToSqlTemplateCache.QuestionShape first = cache.shapeOf("华美二厂 2026-03-01 以来的入库数量", 7L);
+        cache.remember(7L, first, "SELECT SUM(w.quantity) FROM t_product_warehousing w "
+                + "WHERE w.tenant_id = 7 AND w.create_time >= '2026-03-01' AND w.factory_name LIKE '%华美二厂%'");
+
+        TextToSqlTemplateCache.BoundQuery bound = cache.lookup(7L, cache.shapeOf("宏达 2026-04-01 以来的入库数量", 7L));
+
+        assertNotNull(bound);
+        assertEquals("SELECT SUM(w.quantity) FROM t_product_warehousing w "
+                + "WHERE w.tenant_id = 7 AND w.create_time >= ? AND w.factory_name LIKE ?", bound.sql());
+        assertArrayEquals(new Object[]{"2026-04-01", "%宏达%"}, bound.args());
+        // 模板按租户隔离
+        assertNull(cache.lookup(8L, cache.shapeOf("宏达 2026-04-01 以来的入库数量", 8L)));
+    }
+
+    @Test
+    void numberLiteral_isBoundAsLong() {
+        cache.remember(7L, cache.shapeOf("延期超过5天的订单", 7L),
+                "SELECT order_no FROM t_production_order WHERE tenant_id = 7 AND DATEDIFF(NOW(), planned_end_date) > 5");
+
+        TextToSqlTemplateCache.BoundQuery bound = cache.lookup(7L, cache.shapeOf("延期超过12天的订单", 7L));
+
+        assertNotNull(bound);
+        assertArrayEquals(new Object[]{12L}, bound.args());
+    }
+
+    @Test
+    void literalThatCannotBeLocatedUniquely_isNotTemplated() {
+        // SQL 没有出现 7
+        cache.remember(7L, cache.shapeOf("最近7天的订单", 7L),
+                "SELECT order_no FROM t_production_order WHERE tenant_id = 7 AND create_time >= NOW() - INTERVAL 1 WEEK");
+        // 数字在 SQL 中出现两次
+        cache.remember(7L, cache.shapeOf("数量超过50的订单", 7L),
+                "SELECT order_no FROM t_production_order WHERE tenant_id = 7 AND order_quantity > 50 LIMIT 50");
+
+        assertNull(cache.lookup(7L, cache.shapeOf("最近30天的订单", 7L)));
+        assertNull(cache.lookup(7L, cache.shapeOf("数量超过80的订单", 7L)));
+    }
+
+    @Test
+    void numberEqualToTenantId_neverParameterizesTenantCondition() {
+        cache.remember(100L, cache.shapeOf("列出前100个订单", 100L),
+                "SELECT order_no FROM t_production_order WHERE tenant_id = 100 ORDER BY create_time DESC");
+
+        assertNull(cache.lookup(100L, cache.shapeOf("列出前20个订单", 100L)));
+    }
+
+    @Test
+    void sqlWithPlaceholders_isNotTemplated() {
+        cache.remember(7L, cache.shapeOf("宏达本月入库", 7L),
+                "SELECT COUNT(*) FROM t_product_warehousing WHERE tenant_id = 7 AND factory_name = '宏达' AND remark <> '?'");
+
+        assertNull(cache.lookup(7L, cache.shapeOf("华美本月入库", 7L)));
+    }
+
+    @Test
+    void checkPlanCost_rejectsLargeFullScansAndJoinExplosions() {
+        jdbc.plan = List.of(row("t_scan_record", "ALL", 800_000L));
+        assertTrue(cache.checkPlanCost("SELECT * FROM t_scan_record").contains("全表扫描"));
+
+        jdbc.plan = List.of(row("o", "ref", 4_000L), row("s", "ref", 3_000L));
+        assertTrue(cache.checkPlanCost("SELECT 1").startsWith("预计扫描行数超过"));
+
+        jdbc.plan = List.of(row("o", "ALL", 20_000L), row("s", "ref", 12L));
+        assertNull(cache.checkPlanCost("SELECT 1"));
+
+        jdbc.plan = null;
+        assertNull(cache.checkPlanCost("SELECT 1"), "EXPLAIN 失败不阻断");
+        assertTrue(jdbc.explained.stream().allMatch(sql -> sql.startsWith("EXPLAIN ")));
+    }
+
+    private static Map<String, Object> row(String table, String type, long rows) {
+        return Map.of("table", table, "type", type, "rows", rows);
+    }
+
+    /** 工厂名词典与 EXPLAIN 结果可控的 JdbcTemplate */
+    static final class FakeJdbc extends JdbcTemplate {
+        List<String> factoryNames = List.of();
+        List<Map<String, Object>> plan = List.of();
+        final List<String> explained = new ArrayList<>();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            assertTrue(sql.contains("FROM t_factory WHERE tenant_id = ?"), sql);
+            return Long.valueOf(7L).equals(args[0]) ? (List<T>) factoryNames : List.of();
+        }
+
+        @Override
+        public List<Map<String, Object>> queryForList(String sql, Object... args) {
+            explained.add(sql);
+            if (plan == null) {
+                throw new IllegalStateException("EXPLAIN 语法错误");
+            }
+            return plan;
+        }
+    }
+}
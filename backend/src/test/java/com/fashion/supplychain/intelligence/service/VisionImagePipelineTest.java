@@ -0,0 +1,82 @@
+package com.fashion.supplychain.intelligence.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VisionImagePipelineTest {
+
+    private VisionImagePipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new VisionImagePipeline();
+        ReflectionTestUtils.setField(pipeline, "enabled", true);
+        ReflectionTestUtils.setField(pipeline, "maxEdge", 1024);
+        ReflectionTestUtils.setField(pipeline, "jpegQuality", 0.85f);
+    }
+
+    @Test
+    void decodeStep_rejectsOversizedAndSubsamplesLarge() {
+        assertEquals(0, VisionImagePipeline.decodeStep(0, 100));
+        assertEquals(0, VisionImagePipeline.decodeStep(20000, 10000));
+        assertEquals(1, VisionImagePipeline.decodeStep(4000, 4000));
+        // 4800 万像素手机原图：隔一取一后 1200 万像素
+        assertEquals(2, VisionImagePipeline.decodeStep(8000, 6000));
+        assertEquals(3, VisionImagePipeline.decodeStep(10000, 9000));
+    }
+
+    @Test
+    void prepare_scalesLongEdgeDown() throws Exception {
+        VisionImagePipeline.PreparedImage prepared = pipeline.prepare(dataUri(png(2000, 1500)));
+
+        assertNotNull(prepared);
+        assertEquals(1024, prepared.width());
+        assertEquals(768, prepared.height());
+        assertTrue(prepared.dataUri().startsWith("data:image/jpeg;base64,"));
+    }
+
+    @Test
+    void prepare_rejectsForgedHugeDimensionsWithoutDecoding() throws Exception {
+        byte[] bomb = png(1, 1);
+        // 改写 IHDR 宽高为 30000×30000 并重算 CRC：文件只有几十字节，按声明尺寸解码需要数 GB
+        writeInt(bomb, 16, 30000);
+        writeInt(bomb, 20, 30000);
+        CRC32 crc = new CRC32();
+        crc.update(bomb, 12, 17);
+        writeInt(bomb, 29, (int) crc.getValue());
+
+        assertNull(pipeline.prepare(dataUri(bomb)));
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y += 10) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, x * 255 / width);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static String dataUri(byte[] png) {
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(png);
+    }
+
+    private static void writeInt(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 24);
+        b[off + 1] = (byte) (v >>> 16);
+        b[off + 2] = (byte) (v >>> 8);
+        b[off + 3] = (byte) v;
+    }
+}
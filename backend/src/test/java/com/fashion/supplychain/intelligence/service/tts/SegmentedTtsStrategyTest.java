@@ -0,0 +1,87 @@
+package com.fashion.supplychain.intelligence.service.tts;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedTtsStrategyTest {
+
+    /** 本地假合成器：音频内容即 "[片段文本]"，记录每次合成请求 */
+    static class FakeSynthesizer implements TtsStrategy {
+        final List<String> calls = new CopyOnWriteArrayList<>();
+
+        @Override
+        public byte[] synthesize(String text, String voiceName) {
+            calls.add(text);
+            return ("[" + text + "]").getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String getDefaultVoice() { return "fake-voice"; }
+
+        @Override
+        public String getProviderName() { return "fake"; }
+    }
+
+    @Test
+    void split_keepsTemplatePhrasesStable() {
+        List<String> day1 = TtsPhraseSegmenter.split("早上好，今日新增订单12笔，逾期订单3笔。请及时跟进。");
+        List<String> day2 = TtsPhraseSegmenter.split("早上好，今日新增订单8笔，逾期订单5笔。请及时跟进。");
+        assertEquals(List.of("早上好，", "今日新增订单12笔，", "逾期订单3笔。", "请及时跟进。"), day1);
+        assertEquals(day1.get(0), day2.get(0));
+        assertEquals(day1.get(3), day2.get(3));
+    }
+
+    @Test
+    void split_keepsDigitGroupsAndTimesIntact() {
+        assertEquals(List.of("本周出货12,345件，", "较上周增长3.5%。"),
+                TtsPhraseSegmenter.split("本周出货12,345件，较上周增长3.5%。"));
+        assertEquals(List.of("会议时间10:30，", "交期14：00前。"),
+                TtsPhraseSegmenter.split("会议时间10:30，交期14：00前。"));
+        // 数字与文字之间的半角标点仍是边界
+        assertEquals(List.of("订单数:", "12,完成率:", "98.6%"),
+                TtsPhraseSegmenter.split("订单数:12,完成率:98.6%"));
+        // 全角逗号夹在数字之间照常切分
+        assertEquals(List.of("今日裁剪120，", "360件待入库。"), TtsPhraseSegmenter.split("今日裁剪120，360件待入库。"));
+    }
+
+    @Test
+    void synthesize_onlyMissesAndStitchesInOrder(@TempDir Path dir) {
+        FakeSynthesizer fake = new FakeSynthesizer();
+        TtsAudioCache cache = new TtsAudioCache(true, dir.toString(), 8, false, 30);
+        SegmentedTtsStrategy strategy = new SegmentedTtsStrategy(fake, cache, 2);
+
+        byte[] first = strategy.synthesize("早上好，今日新增订单12笔。请及时跟进。", "v");
+        assertEquals("[早上好，][今日新增订单12笔。][请及时跟进。]", new String(first, StandardCharsets.UTF_8));
+        assertEquals(3, fake.calls.size());
+
+        fake.calls.clear();
+        byte[] second = strategy.synthesize("早上好，今日新增订单8笔。请及时跟进。", "v");
+        assertEquals("[早上好，][今日新增订单8笔。][请及时跟进。]", new String(second, StandardCharsets.UTF_8));
+        assertEquals(List.of("今日新增订单8笔。"), fake.calls);
+
+        // 磁盘层：新的缓存实例（模拟重启）仍能命中
+        fake.calls.clear();
+        SegmentedTtsStrategy restarted = new SegmentedTtsStrategy(fake,
+                new TtsAudioCache(true, dir.toString(), 8, false, 30), 2);
+        restarted.synthesize("早上好，今日新增订单8笔。", "v");
+        assertTrue(fake.calls.isEmpty());
+
+        // 音色不同不共用缓存
+        strategy.synthesize("早上好，", "other");
+        assertEquals(List.of("早上好，"), fake.calls);
+    }
+
+    @Test
+    void id3v2Length_stripsTagHeaderOnly() {
+        byte[] tagged = new byte[]{'I', 'D', '3', 4, 0, 0, 0, 0, 0, 2, 9, 9, 1, 2};
+        assertEquals(12, SegmentedTtsStrategy.id3v2Length(tagged));
+        assertEquals(0, SegmentedTtsStrategy.id3v2Length(new byte[]{(byte) 0xFF, (byte) 0xF3, 1, 2}));
+    }
+}
@@ -0,0 +1,35 @@
+package com.fashion.supplychain.intelligence.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChineseTokenizerTest {
+
+    @Test
+    void tokenize_hanRunsBecomeBigrams() {
+        assertEquals(List.of("面料", "料采", "采购"), ChineseTokenizer.tokenize("面料采购"));
+        assertEquals(List.of("棉"), ChineseTokenizer.tokenize("棉"));
+    }
+
+    @Test
+    void tokenize_asciiWordsLowercasedAndPunctuationSplits() {
+        assertEquals(List.of("po20260101", "发货"), ChineseTokenizer.tokenize("PO20260101，发货"));
+    }
+
+    @Test
+    void tokenizeForIndex_addsEveryHanUnigram() {
+        assertEquals(List.of("纯棉", "棉面", "面料", "纯", "棉", "面", "料"),
+                ChineseTokenizer.tokenizeForIndex("纯棉面料"));
+        // 单字段落与 ASCII 词不重复收录
+        assertEquals(List.of("棉", "t", "恤"), ChineseTokenizer.tokenizeForIndex("棉T恤"));
+    }
+
+    @Test
+    void nullOrEmpty_yieldsNoTokens() {
+        assertTrue(ChineseTokenizer.tokenize(null).isEmpty());
+        assertTrue(ChineseTokenizer.tokenizeForIndex("").isEmpty());
+    }
+}
@@ -0,0 +1,174 @@
+package com.fashion.supplychain.production.helper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CutOrderPlannerTest {
+
+    private static final Map<String, Double> CONSUMPTION = Map.of("S", 1.2, "M", 1.3, "L", 1.4, "XL", 1.5, "XXL", 1.6);
+
+    private final CutOrderPlanner planner = new CutOrderPlanner();
+
+    @Test
+    void enoughRolls_coversDemandWithinOvercutRate() {
+        List<CutOrderPlanner.RollInput> rolls = rolls("R", "LOT-A", 20, 100);
+        CutOrderPlanner.Plan plan = planner.plan(input(
+                List.of(demand("黑", sizes(100, 200, 150), ids(rolls))), rolls), null);
+
+        assertFalse(plan.hasShortage(), () -> "不应缺量：" + plan.warnings());
+        CutOrderPlanner.ColorSummary black = plan.colors().get(0);
+        black.demand().forEach((size, qty) -> {
+            int cut = black.cut().get(size);
+            assertTrue(cut >= qty, size + " 裁剪数不足");
+            assertTrue(cut <= Math.ceil(qty * 1.03), size + " 超裁超过 3%：" + cut);
+        });
+        assertTrue(plan.lays().stream().allMatch(CutOrderPlanner.Lay::rollsAssigned));
+    }
+
+    @Test
+    void colorWithoutMatchingRolls_countsAsShortageWhenRollsManaged() {
+        List<CutOrderPlanner.RollInput> rolls = rolls("R", "LOT-A", 20, 100);
+        CutOrderPlanner.Plan plan = planner.plan(input(List.of(
+                demand("黑", sizes(100, 200, 150), ids(rolls)),
+                demand("红", sizes(50, 60, 40), List.of())), rolls), null);
+
+        assertTrue(plan.hasShortage());
+        CutOrderPlanner.ColorSummary red = summary(plan, "红");
+        assertEquals(red.demand(), red.shortage());
+        assertTrue(summary(plan, "黑").shortage().values().stream().allMatch(q -> q == 0));
+        assertTrue(plan.lays().stream().filter(l -> "红".equals(l.color())).noneMatch(CutOrderPlanner.Lay::rollsAssigned));
+        assertTrue(plan.warnings().stream().anyMatch(w -> w.startsWith("红 没有匹配的在库料卷")), () -> plan.warnings().toString());
+    }
+
+    @Test
+    void rollsManagedWithoutStock_isFullShortage() {
+        CutOrderPlanner.Plan plan = planner.plan(new CutOrderPlanner.PlanInput(
+                List.of(demand("黑", sizes(10, 20, 10), List.of())), List.of(), CONSUMPTION, 0, true), null);
+
+        assertTrue(plan.hasShortage());
+        assertEquals(plan.colors().get(0).demand(), plan.colors().get(0).shortage());
+    }
+
+    @Test
+    void noRollsRegistered_plansLaysWithoutShortage() {
+        CutOrderPlanner.Plan plan = planner.plan(input(
+                List.of(demand("黑", sizes(100, 200, 150), List.of())), List.of()), null);
+
+        assertFalse(plan.hasShortage());
+        assertFalse(plan.lays().isEmpty());
+        assertTrue(plan.lays().stream().noneMatch(CutOrderPlanner.Lay::rollsAssigned));
+        assertTrue(plan.warnings().stream().noneMatch(w -> w.contains("料卷")));
+    }
+
+    @Test
+    void insufficientFabric_reportsShortageAndWarning() {
+        // 需求约 590m，只有 3 卷共 300m
+        List<CutOrderPlanner.RollInput> rolls = rolls("R", "LOT-A", 3, 100);
+        CutOrderPlanner.Plan plan = planner.plan(input(
+                List.of(demand("黑", sizes(100, 200, 150), ids(rolls))), rolls), null);
+
+        assertTrue(plan.hasShortage());
+        assertTrue(plan.warnings().stream().anyMatch(w -> w.contains("面料不足")), () -> plan.warnings().toString());
+        assertTrue(plan.fabricUsed().doubleValue() <= 300 + 1e-6);
+    }
+
+    @Test
+    void eachLay_usesRollsOfItsOwnShadeLot() {
+        List<CutOrderPlanner.RollInput> rolls = new ArrayList<>(rolls("A", "LOT-A", 4, 90));
+        rolls.addAll(rolls("B", "LOT-B", 5, 70));
+        rolls.addAll(rolls("C", "LOT-C", 3, 120));
+        CutOrderPlanner.Plan plan = planner.plan(input(
+                List.of(demand("黑", sizes(100, 200, 150), ids(rolls))), rolls), null);
+
+        assertFalse(plan.lays().isEmpty());
+        for (CutOrderPlanner.Lay lay : plan.lays()) {
+            assertFalse(lay.rolls().isEmpty());
+            assertTrue(lay.rolls().stream().allMatch(r -> lay.shadeLot().equals(r.shadeLot())),
+                    "第 " + lay.layNo() + " 床混用了缸号");
+            assertEquals(lay.plies(), lay.rolls().stream().mapToInt(CutOrderPlanner.RollCut::plies).sum());
+        }
+    }
+
+    @Test
+    void eightThousandPieces_planInUnder100ms() {
+        // 4 色 × 5 码共 8000 件，每色 60 卷分 3 个缸号
+        List<CutOrderPlanner.RollInput> rolls = new ArrayList<>();
+        List<CutOrderPlanner.ColorDemand> demands = new ArrayList<>();
+        String[] colors = {"黑", "白", "灰", "蓝"};
+        for (String color : colors) {
+            List<CutOrderPlanner.RollInput> colorRolls = new ArrayList<>();
+            for (int lot = 0; lot < 3; lot++) {
+                colorRolls.addAll(rolls(color + lot + "-", color + "-LOT" + lot, 20, 80 + lot * 15));
+            }
+            rolls.addAll(colorRolls);
+            Map<String, Integer> qty = new LinkedHashMap<>();
+            qty.put("S", 250);
+            qty.put("M", 550);
+            qty.put("L", 600);
+            qty.put("XL", 400);
+            qty.put("XXL", 200);
+            demands.add(demand(color, qty, ids(colorRolls)));
+        }
+        CutOrderPlanner.PlanInput input = input(demands, rolls);
+        assertEquals(8000, demands.stream().mapToInt(d -> d.sizeQty().values().stream().mapToInt(Integer::intValue).sum()).sum());
+
+        planner.plan(input, null); // 预热
+        CutOrderPlanner.Plan plan = planner.plan(input, null);
+
+        assertTrue(plan.elapsedMs() < 100, "8000 件排床耗时 " + plan.elapsedMs() + "ms");
+        assertFalse(plan.hasShortage(), () -> "不应缺量：" + plan.warnings());
+    }
+
+    @Test
+    void lengthInUnit_convertsLengthUnitsAndRejectsNonLengthRolls() {
+        assertEquals(30.0, CutOrderPlanner.lengthInUnit(30, "米", "米"));
+        assertEquals(30.0, CutOrderPlanner.lengthInUnit(30, " M ", "m"));
+        assertEquals(30.0, CutOrderPlanner.lengthInUnit(30, null, "米"), "未填单位视为与耗用同单位");
+        assertEquals(27.432, CutOrderPlanner.lengthInUnit(30, "码", "米"), 1e-9);
+        assertEquals(0.3, CutOrderPlanner.lengthInUnit(30, "cm", "米"), 1e-9);
+        assertEquals(5.0, CutOrderPlanner.lengthInUnit(5, "kg", "KG"));
+        assertNull(CutOrderPlanner.lengthInUnit(30, "件", "米"));
+        assertNull(CutOrderPlanner.lengthInUnit(30, "kg", "米"));
+    }
+
+    // ──────────────────────────────────────────────────────────────
+
+    private static CutOrderPlanner.PlanInput input(List<CutOrderPlanner.ColorDemand> demands,
+                                                   List<CutOrderPlanner.RollInput> rolls) {
+        return new CutOrderPlanner.PlanInput(demands, rolls, CONSUMPTION, 0);
+    }
+
+    private static CutOrderPlanner.ColorDemand demand(String color, Map<String, Integer> sizeQty, List<String> rollIds) {
+        return new CutOrderPlanner.ColorDemand(color, sizeQty, rollIds);
+    }
+
+    private static Map<String, Integer> sizes(int s, int m, int l) {
+        Map<String, Integer> qty = new LinkedHashMap<>();
+        qty.put("S", s);
+        qty.put("M", m);
+        qty.put("L", l);
+        return qty;
+    }
+
+    private static List<CutOrderPlanner.RollInput> rolls(String prefix, String shadeLot, int count, double length) {
+        List<CutOrderPlanner.RollInput> rolls = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            rolls.add(new CutOrderPlanner.RollInput(prefix + i, "MR-" + prefix + i, shadeLot, length));
+        }
+        return rolls;
+    }
+
+    private static List<String> ids(List<CutOrderPlanner.RollInput> rolls) {
+        return rolls.stream().map(CutOrderPlanner.RollInput::rollId).toList();
+    }
+
+    private static CutOrderPlanner.ColorSummary summary(CutOrderPlanner.Plan plan, String color) {
+        return plan.colors().stream().filter(c -> color.equals(c.color())).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,344 @@
+package com.fashion.supplychain.production.orchestration;
+
+import com.fashion.supplychain.production.dto.response.OrderHealthScoreDTO;
+import com.fashion.supplychain.production.entity.ProductionOrder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderHealthScoreIndexOrchestratorTest {
+
+    private final HealthTables db = new HealthTables();
+
+    private OrderHealthScoreIndexOrchestrator index;
+
+    @BeforeEach
+    void setUp() {
+        index = instance();
+    }
+
+    @Test
+    void nextDeadlineBoundary_returnsDayTheDeadlineBandChanges() {
+        LocalDate today = LocalDate.of(2026, 10, 1);
+        assertEquals(LocalDate.of(2026, 10, 17), OrderHealthScoreIndexOrchestrator.nextDeadlineBoundary(ship(today, 30), today));
+        assertEquals(LocalDate.of(2026, 10, 4), OrderHealthScoreIndexOrchestrator.nextDeadlineBoundary(ship(today, 10), today));
+        assertEquals(LocalDate.of(2026, 10, 3), OrderHealthScoreIndexOrchestrator.nextDeadlineBoundary(ship(today, 5), today));
+        assertEquals(LocalDate.of(2026, 10, 3), OrderHealthScoreIndexOrchestrator.nextDeadlineBoundary(ship(today, 2), today));
+        assertNull(OrderHealthScoreIndexOrchestrator.nextDeadlineBoundary(ship(today, 0), today));
+        assertNull(OrderHealthScoreIndexOrchestrator.nextDeadlineBoundary(ship(today, -3), today));
+        assertNull(OrderHealthScoreIndexOrchestrator.nextDeadlineBoundary(null, today));
+    }
+
+    @Test
+    void topRisk_ranksAllOrdersOfTenantBeyondFormerCap() {
+        // 6000 单（旧实现只取前 5000 单），风险最高的三单 id 排在最后
+        for (int i = 0; i < 6000; i++) {
+            db.order(1L, String.format("O%05d", i), 100);
+        }
+        db.order(1L, "O99997", 0);
+        db.order(1L, "O99998", 10);
+        db.order(1L, "O99999", 20);
+        db.order(2L, "T2-1", 0);
+
+        List<OrderHealthScoreDTO> top = index.topRisk(1L, 3, 50);
+
+        assertEquals(List.of("O99997", "O99998", "O99999"), top.stream().map(OrderHealthScoreDTO::getOrderId).toList());
+        assertEquals(List.of(38, 42, 46), top.stream().map(OrderHealthScoreDTO::getScore).toList());
+        assertEquals("CRITICAL", top.get(0).getLevel());
+        assertEquals(6003, index.listAll(1L).size());
+        assertEquals(Map.of("NORMAL", 6000, "WARNING", 0, "CRITICAL", 3), index.bandHistogram(1L));
+    }
+
+    @Test
+    void unfilledOrder_scoresProcurementFromPersistedFields() {
+        db.order(1L, "A", 0).materialArrivalRate = 40;
+        db.order(1L, "B", 0).procurementManuallyCompleted = 1;
+        db.order(1L, "C", 0);
+
+        Map<String, Integer> procurement = new LinkedHashMap<>();
+        index.listAll(1L).forEach(d -> procurement.put(d.getOrderId(), d.getProcurementScore()));
+
+        assertEquals(Map.of("A", 10, "B", 25, "C", 18), procurement);
+    }
+
+    @Test
+    void onOrderChanged_movesOrderBetweenBandsImmediately() {
+        db.order(1L, "A", 0);
+        db.order(1L, "B", 50);
+        assertEquals(Map.of("NORMAL", 0, "WARNING", 1, "CRITICAL", 1), index.bandHistogram(1L));
+
+        OrderRow a = db.orders.get("A");
+        a.progress = 100;
+        index.onOrderChanged(a.toOrder());
+
+        assertEquals(Map.of("NORMAL", 1, "WARNING", 1, "CRITICAL", 0), index.bandHistogram(1L));
+        assertEquals(List.of("B"), index.topRisk(1L, 10, 75).stream().map(OrderHealthScoreDTO::getOrderId).toList());
+        assertEquals(78, db.scores.get("A").score);
+    }
+
+    @Test
+    void syncIndex_appliesScoresWrittenByAnotherInstance() {
+        db.order(1L, "A", 0);
+        db.order(1L, "B", 50);
+        OrderHealthScoreIndexOrchestrator writer = instance();
+        writer.rescoreChanged();
+        assertEquals(2, index.listAll(1L).size());
+        index.syncIndex();
+
+        db.tick();
+        db.touch("A").progress = 100;
+        db.touch("B").deleteFlag = 1;
+        writer.rescoreChanged();
+        db.tick();
+        index.syncIndex();
+
+        List<OrderHealthScoreDTO> all = index.listAll(1L);
+        assertEquals(List.of("A"), all.stream().map(OrderHealthScoreDTO::getOrderId).toList());
+        assertEquals(78, all.get(0).getScore());
+    }
+
+    @Test
+    void rescoreAll_deactivatesScoresOfPhysicallyDeletedOrders() {
+        db.order(1L, "A", 0);
+        db.order(1L, "B", 50);
+        index.rescoreAll();
+        LocalDateTime unchangedAt = db.scores.get("A").updateTime;
+
+        db.tick();
+        db.orders.remove("B");
+        assertEquals(1, index.rescoreAll());
+
+        assertFalse(db.scores.get("B").active);
+        assertEquals(unchangedAt, db.scores.get("A").updateTime, "得分未变不应刷新 update_time");
+        assertEquals(List.of("A"), index.listAll(1L).stream().map(OrderHealthScoreDTO::getOrderId).toList());
+    }
+
+    private OrderHealthScoreIndexOrchestrator instance() {
+        OrderHealthScoreIndexOrchestrator orchestrator = new OrderHealthScoreIndexOrchestrator();
+        ReflectionTestUtils.setField(orchestrator, "jdbcTemplate", db);
+        ReflectionTestUtils.setField(orchestrator, "scorer", new OrderHealthScoreOrchestrator());
+        return orchestrator;
+    }
+
+    private static LocalDateTime ship(LocalDate today, int days) {
+        return today.plusDays(days).atTime(18, 0);
+    }
+
+    static final class OrderRow {
+        Long tenantId;
+        String id;
+        Integer progress;
+        Integer materialArrivalRate;
+        Integer procurementManuallyCompleted;
+        Integer deleteFlag = 0;
+        LocalDateTime updateTime;
+
+        ProductionOrder toOrder() {
+            ProductionOrder o = new ProductionOrder();
+            o.setId(id);
+            o.setTenantId(tenantId);
+            o.setOrderNo("PO-" + id);
+            o.setProductionProgress(progress);
+            o.setMaterialArrivalRate(materialArrivalRate);
+            o.setProcurementManuallyCompleted(procurementManuallyCompleted);
+            o.setDeleteFlag(deleteFlag);
+            return o;
+        }
+    }
+
+    static final class ScoreRow {
+        Long tenantId;
+        String orderId;
+        String orderNo;
+        int score;
+        int progressScore;
+        int deadlineScore;
+        int procurementScore;
+        boolean active;
+        LocalDateTime updateTime;
+
+        List<Object> values() {
+            return List.of(score, progressScore, deadlineScore, procurementScore, active, Objects.toString(orderNo));
+        }
+    }
+
+    /** 内存版 t_production_order / t_order_health_score：按索引编排器实际发出的几类 SQL 应答 */
+    static final class HealthTables extends JdbcTemplate {
+        final Map<String, OrderRow> orders = new TreeMap<>();
+        final Map<String, ScoreRow> scores = new LinkedHashMap<>();
+        private LocalDateTime now = LocalDateTime.of(2026, 10, 1, 8, 0);
+
+        OrderRow order(Long tenantId, String id, int progress) {
+            OrderRow row = new OrderRow();
+            row.tenantId = tenantId;
+            row.id = id;
+            row.progress = progress;
+            row.updateTime = now;
+            orders.put(id, row);
+            return row;
+        }
+
+        /** 时钟前进 5 分钟（超过水位回看窗口） */
+        void tick() {
+            now = now.plusMinutes(5);
+        }
+
+        OrderRow touch(String id) {
+            OrderRow row = orders.get(id);
+            row.updateTime = now;
+            return row;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T queryForObject(String sql, Class<T> requiredType) {
+            assertEquals("SELECT NOW()", sql);
+            return (T) now;
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            if (sql.contains("FROM t_order_health_score WHERE tenant_id = ? AND active = 1")) {
+                scores.values().stream().filter(s -> s.active && s.tenantId.equals(args[0]))
+                        .forEach(s -> rows.add(scoreColumns(s)));
+            } else if (sql.contains("FROM t_production_order WHERE tenant_id = ?")) {
+                selectOrders(o -> o.tenantId.equals(args[0]), rows);
+            } else if (sql.contains("FROM t_production_order WHERE id > ?")) {
+                int limit = Integer.parseInt(sql.substring(sql.lastIndexOf("LIMIT ") + 6).trim());
+                selectOrders(o -> o.id.compareTo((String) args[0]) > 0, rows);
+                rows.subList(Math.min(limit, rows.size()), rows.size()).clear();
+            } else if (sql.contains("FROM t_production_order WHERE update_time > ? AND update_time <= ?")) {
+                selectOrders(o -> o.updateTime.isAfter((LocalDateTime) args[0]) && !o.updateTime.isAfter((LocalDateTime) args[1]), rows);
+            } else if (sql.contains("FROM t_production_order WHERE id IN")) {
+                Set<Object> ids = new HashSet<>(Arrays.asList(args));
+                selectOrders(o -> ids.contains(o.id), rows);
+            } else {
+                fail("未预期的查询: " + sql);
+            }
+            List<T> out = new ArrayList<>();
+            try {
+                for (Map<String, Object> row : rows) {
+                    out.add(rowMapper.mapRow(resultSet(row), out.size()));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return out;
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+            assertTrue(sql.contains("FROM t_order_health_score WHERE update_time > ? AND update_time <= ?"), sql);
+            try {
+                for (ScoreRow s : scores.values()) {
+                    if (s.updateTime.isAfter((LocalDateTime) args[0]) && !s.updateTime.isAfter((LocalDateTime) args[1])) {
+                        rch.processRow(resultSet(scoreColumns(s)));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            assertTrue(sql.startsWith("INSERT INTO t_order_health_score"), sql);
+            for (Object[] a : batchArgs) {
+                ScoreRow row = new ScoreRow();
+                row.tenantId = (Long) a[0];
+                row.orderId = (String) a[1];
+                row.orderNo = (String) a[2];
+                row.score = (Integer) a[3];
+                row.progressScore = (Integer) a[4];
+                row.deadlineScore = (Integer) a[5];
+                row.procurementScore = (Integer) a[6];
+                row.active = (Integer) a[8] == 1;
+                ScoreRow old = scores.get(row.orderId);
+                // ON DUPLICATE KEY：得分未变时保留原 update_time
+                row.updateTime = old != null && old.values().equals(row.values()) ? old.updateTime : now;
+                scores.put(row.orderId, row);
+            }
+            return new int[batchArgs.size()];
+        }
+
+        @Override
+        public int update(String sql) {
+            assertTrue(sql.contains("LEFT JOIN t_production_order"), sql);
+            int n = 0;
+            for (ScoreRow s : scores.values()) {
+                if (s.active && !orders.containsKey(s.orderId)) {
+                    s.active = false;
+                    s.updateTime = now;
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        private void selectOrders(Predicate<OrderRow> filter, List<Map<String, Object>> rows) {
+            for (OrderRow o : orders.values()) {
+                if (!filter.test(o)) continue;
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("id", o.id);
+                row.put("tenant_id", o.tenantId);
+                row.put("order_no", "PO-" + o.id);
+                row.put("production_progress", o.progress);
+                row.put("expected_ship_date", null);
+                row.put("material_arrival_rate", o.materialArrivalRate);
+                row.put("procurement_manually_completed", o.procurementManuallyCompleted);
+                row.put("delete_flag", o.deleteFlag);
+                rows.add(row);
+            }
+        }
+
+        private static Map<String, Object> scoreColumns(ScoreRow s) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("tenant_id", s.tenantId);
+            row.put("order_id", s.orderId);
+            row.put("order_no", s.orderNo);
+            row.put("score", s.score);
+            row.put("progress_score", s.progressScore);
+            row.put("deadline_score", s.deadlineScore);
+            row.put("procurement_score", s.procurementScore);
+            row.put("active", s.active ? 1 : 0);
+            return row;
+        }
+
+        private static ResultSet resultSet(Map<String, Object> row) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (p, method, args) -> {
+                        Object value = row.get((String) args[0]);
+                        return switch (method.getName()) {
+                            case "getString", "getObject" -> value;
+                            case "getLong" -> value == null ? 0L : ((Number) value).longValue();
+                            case "getInt" -> value == null ? 0 : ((Number) value).intValue();
+                            case "getTimestamp" -> value == null ? null : Timestamp.valueOf((LocalDateTime) value);
+                            default -> throw new UnsupportedOperationException(method.getName());
+                        };
+                    });
+        }
+    }
+}
@@ -0,0 +1,523 @@
+package com.fashion.supplychain.production.service.impl;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.production.entity.MaterialStockReservation;
+import com.fashion.supplychain.production.mapper.MaterialStockReservationMapper;
+import com.fashion.supplychain.production.service.MaterialStockReservationService.AllocationStrategy;
+import com.fashion.supplychain.production.service.MaterialStockReservationService.Allocation;
+import com.fashion.supplychain.production.service.MaterialStockReservationService.ReservationResult;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 预留台账的状态流转测试：映射器用内存版台账模拟各条 SQL 的语义（含事务回滚），
+ * 覆盖并发抢占重分配、不足回滚、调用方回滚释放、过期后确认、确认失败与出库后撤销。
+ */
+class MaterialStockReservationServiceImplTest {
+
+    private final Ledger ledger = new Ledger();
+
+    private MaterialStockReservationServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        if (TableInfoHelper.getTableInfo(MaterialStockReservation.class) == null) {
+            MapperBuilderAssistant assistant = new MapperBuilderAssistant(new MybatisConfiguration(), "");
+            assistant.setCurrentNamespace(MaterialStockReservationMapper.class.getName());
+            TableInfoHelper.initTableInfo(assistant, MaterialStockReservation.class);
+        }
+        UserContext ctx = new UserContext();
+        ctx.setUserId("user-001");
+        ctx.setTenantId(1L);
+        UserContext.set(ctx);
+
+        service = new MaterialStockReservationServiceImpl();
+        ReflectionTestUtils.setField(service, "baseMapper", ledger.mapper());
+        ReflectionTestUtils.setField(service, "transactionManager", ledger);
+        ReflectionTestUtils.setField(service, "ttlHours", 72L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        UserContext.clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void reserve_allocatesAcrossStocksInFifoOrder() {
+        ledger.stock("S1", 30);
+        ledger.stock("S2", 50);
+
+        ReservationResult result = reserve(60, false);
+
+        assertEquals(60, result.reservedQty());
+        assertEquals(List.of(new Allocation("S1", 30), new Allocation("S2", 30)), result.allocations());
+        assertEquals(30, ledger.locked("S1"));
+        assertEquals(30, ledger.locked("S2"));
+    }
+
+    @Test
+    void concurrentReserveOfSameStock_reallocatesConflictsWithoutOverselling() {
+        ledger.stock("S1", 40);
+        ledger.stock("S2", 40);
+        ReservationResult[] other = new ReservationResult[1];
+        // A 的计划生成后、落锁前，B 抢先在 S1 上预留 30
+        ledger.beforeNextApply(() -> other[0] = reserve(30, false));
+
+        ReservationResult first = reserve(50, false);
+
+        assertEquals(30, other[0].reservedQty());
+        assertEquals(50, first.reservedQty());
+        assertEquals(List.of(new Allocation("S2", 40), new Allocation("S1", 10)), first.allocations());
+        assertEquals(40, ledger.locked("S1"));
+        assertEquals(40, ledger.locked("S2"));
+        assertEquals(0, ledger.count(MaterialStockReservation.STATUS_PLANNED), "冲突的计划行已删除");
+    }
+
+    @Test
+    void conflictsEveryRound_stopAfterMaxAttemptsWithShortfall() {
+        ledger.stock("S1", 100);
+        // 每轮落锁前都被其他领料抢走一部分，可用量比计划量少 1，计划行落锁失败
+        ledger.beforeEveryApply(() -> ledger.stocks.get("S1")[1] = ledger.quantity("S1") - (ledger.plannedQty() - 1));
+
+        ReservationResult result = reserve(50, true);
+
+        assertEquals(3, ledger.applyCalls, "最多重新分配 3 轮");
+        assertEquals(0, result.reservedQty());
+        assertTrue(result.allocations().isEmpty());
+        assertEquals(0, ledger.count(MaterialStockReservation.STATUS_PLANNED), "冲突的计划行已删除");
+    }
+
+    @Test
+    void shortfallWithoutPartial_rollsBackAndReservesNothing() {
+        ledger.stock("S1", 20);
+
+        ReservationResult result = reserve(50, false);
+
+        assertEquals(20, result.reservedQty(), "返回当时最多可预留的数量");
+        assertTrue(result.allocations().isEmpty());
+        assertEquals(0, ledger.locked("S1"));
+        assertEquals(0, ledger.rows.size());
+    }
+
+    @Test
+    void shortfallWithPartial_keepsWhatIsAvailable() {
+        ledger.stock("S1", 20);
+
+        ReservationResult result = reserve(50, true);
+
+        assertEquals(20, result.reservedQty());
+        assertEquals(List.of(new Allocation("S1", 20)), result.allocations());
+        assertEquals(20, ledger.locked("S1"));
+    }
+
+    @Test
+    void callerRollback_releasesReservation() {
+        ledger.stock("S1", 50);
+        TransactionSynchronizationManager.initSynchronization();
+
+        ReservationResult result = reserve(30, false);
+        assertEquals(30, ledger.locked("S1"));
+        for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertEquals(0, ledger.locked("S1"));
+        assertEquals(1, ledger.count(MaterialStockReservation.STATUS_RELEASED));
+        assertEquals(30, result.reservedQty());
+    }
+
+    @Test
+    void callerCommit_keepsReservation() {
+        ledger.stock("S1", 50);
+        TransactionSynchronizationManager.initSynchronization();
+
+        reserve(30, false);
+        for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        assertEquals(30, ledger.locked("S1"));
+    }
+
+    @Test
+    void confirm_consumesQuantityAndLock() {
+        ledger.stock("S1", 50);
+        service.bindPicking(reserve(30, false).batchId(), "P1");
+
+        service.consumeForPicking("P1");
+
+        assertEquals(20, ledger.quantity("S1"));
+        assertEquals(0, ledger.locked("S1"));
+        assertEquals(1, ledger.count(MaterialStockReservation.STATUS_CONSUMED));
+    }
+
+    @Test
+    void confirm_failsWhenStockShrankBelowReservation() {
+        ledger.stock("S1", 50);
+        service.bindPicking(reserve(30, false).batchId(), "P1");
+        // 盘点等库外操作把库存改到预留量以下
+        ledger.setQuantity("S1", 10);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> service.consumeForPicking("P1"));
+        assertTrue(e.getMessage().contains("库存不足"));
+        assertEquals(10, ledger.quantity("S1"), "库存行未被扣减");
+    }
+
+    @Test
+    void expiryThenConfirm_consumesFromCurrentAvailability() {
+        ledger.stock("S1", 50);
+        service.bindPicking(reserve(30, false).batchId(), "P1");
+        ledger.expireAll();
+
+        assertEquals(1, service.expireDue());
+        assertEquals(0, ledger.locked("S1"));
+
+        service.consumeForPicking("P1");
+
+        assertEquals(20, ledger.quantity("S1"));
+        assertEquals(0, ledger.locked("S1"));
+        assertEquals(1, ledger.count(MaterialStockReservation.STATUS_CONSUMED));
+    }
+
+    @Test
+    void expiryThenConfirm_failsWhenStockWasReservedByOthers() {
+        ledger.stock("S1", 50);
+        service.bindPicking(reserve(30, false).batchId(), "P1");
+        ledger.expireAll();
+        service.expireDue();
+        // 锁释放后被其他领料占走 40，可用量只剩 10
+        reserve(40, false);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> service.consumeForPicking("P1"));
+        assertTrue(e.getMessage().contains("已过期"));
+        assertEquals(50, ledger.quantity("S1"));
+    }
+
+    @Test
+    void cancelAfterCompletion_restocksOnce() {
+        ledger.stock("S1", 50);
+        service.bindPicking(reserve(30, false).batchId(), "P1");
+        service.consumeForPicking("P1");
+
+        service.releaseForPicking("P1", true);
+        service.releaseForPicking("P1", true);
+
+        assertEquals(50, ledger.quantity("S1"));
+        assertEquals(0, ledger.locked("S1"));
+        assertEquals(1, ledger.count(MaterialStockReservation.STATUS_RETURNED));
+    }
+
+    @Test
+    void cancelBeforeCompletion_releasesLockAndExpiredRows() {
+        ledger.stock("S1", 50);
+        service.bindPicking(reserve(30, false).batchId(), "P1");
+        String expiring = reserve(20, false).batchId();
+        service.bindPicking(expiring, "P2");
+        ledger.expireBatch(expiring);
+        service.expireDue();
+
+        service.releaseForPicking("P1", false);
+        service.releaseForPicking("P2", false);
+
+        assertEquals(0, ledger.locked("S1"));
+        assertEquals(50, ledger.quantity("S1"));
+        assertEquals(2, ledger.count(MaterialStockReservation.STATUS_RELEASED));
+    }
+
+    private ReservationResult reserve(int quantity, boolean allowPartial) {
+        return service.reserve("PO-1", "M001", null, null, quantity, AllocationStrategy.FIFO, null, allowPartial);
+    }
+
+    /**
+     * 内存版 t_material_stock + t_material_stock_reservation：按映射器各条 SQL 的语义实现，
+     * 同时充当事务管理器（事务开始时快照，回滚或仅回滚标记时恢复）。
+     */
+    static final class Ledger implements PlatformTransactionManager {
+        final Map<String, int[]> stocks = new LinkedHashMap<>();
+        final List<MaterialStockReservation> rows = new ArrayList<>();
+        private final Deque<Snapshot> snapshots = new ArrayDeque<>();
+        private Runnable beforeApply;
+        private boolean everyApply;
+        int applyCalls;
+
+        private record Snapshot(Map<String, int[]> stocks, List<MaterialStockReservation> rows) {}
+
+        void stock(String id, int quantity) {
+            stocks.put(id, new int[]{quantity, 0});
+        }
+
+        int quantity(String id) {
+            return stocks.get(id)[0];
+        }
+
+        int locked(String id) {
+            return stocks.get(id)[1];
+        }
+
+        void setQuantity(String id, int quantity) {
+            stocks.get(id)[0] = quantity;
+        }
+
+        void beforeNextApply(Runnable hook) {
+            beforeApply = hook;
+        }
+
+        void beforeEveryApply(Runnable hook) {
+            beforeApply = hook;
+            everyApply = true;
+        }
+
+        int plannedQty() {
+            return rows.stream().filter(r -> MaterialStockReservation.STATUS_PLANNED.equals(r.getStatus()))
+                    .mapToInt(MaterialStockReservation::getQuantity).sum();
+        }
+
+        long count(String status) {
+            return rows.stream().filter(r -> status.equals(r.getStatus())).count();
+        }
+
+        void expireAll() {
+            rows.forEach(r -> r.setExpireTime(LocalDateTime.now().minusMinutes(1)));
+        }
+
+        void expireBatch(String batchId) {
+            rows.stream().filter(r -> batchId.equals(r.getBatchId()))
+                    .forEach(r -> r.setExpireTime(LocalDateTime.now().minusMinutes(1)));
+        }
+
+        MaterialStockReservationMapper mapper() {
+            return (MaterialStockReservationMapper) Proxy.newProxyInstance(
+                    MaterialStockReservationMapper.class.getClassLoader(),
+                    new Class<?>[]{MaterialStockReservationMapper.class},
+                    (p, method, args) -> handle(method.getName(), args));
+        }
+
+        private Object handle(String method, Object[] a) {
+            return switch (method) {
+                case "insertPlan" -> insertPlan((String) a[1], (String) a[3], (Integer) a[6], (Integer) a[9],
+                        (LocalDateTime) a[10]);
+                case "applyPlan" -> applyPlan((String) a[1]);
+                case "deletePlanned" -> removeIf(r -> r.getBatchId().equals(a[1])
+                        && MaterialStockReservation.STATUS_PLANNED.equals(r.getStatus()));
+                case "sumReserved" -> rows.stream().filter(r -> r.getBatchId().equals(a[1])
+                                && MaterialStockReservation.STATUS_RESERVED.equals(r.getStatus()))
+                        .mapToInt(MaterialStockReservation::getQuantity).sum();
+                case "bindPicking" -> update(r -> r.getBatchId().equals(a[1]), r -> {
+                    r.setPickingId((String) a[2]);
+                    r.setExpireTime((LocalDateTime) a[3]);
+                });
+                case "countByPicking" -> (int) rows.stream().filter(r -> Objects.equals(r.getPickingId(), a[1])).count();
+                case "transition" -> transition((String) a[1], (String) a[2], (String) a[3], (String) a[4], (String) a[5]);
+                case "expireDue" -> expireDue((String) a[0], (Integer) a[1]);
+                case "countStocksByToken" -> byToken((String) a[0]).size();
+                case "unlockByToken" -> apply((String) a[0], (s, qty) -> {
+                    s[1] = Math.max(0, s[1] - qty);
+                    return true;
+                });
+                case "consumeReservedByToken" -> apply((String) a[1], (s, qty) -> {
+                    if (s[0] < qty) return false;
+                    s[0] -= qty;
+                    s[1] = Math.max(0, s[1] - qty);
+                    return true;
+                });
+                case "consumeUnlockedByToken" -> apply((String) a[1], (s, qty) -> {
+                    if (s[0] - s[1] < qty) return false;
+                    s[0] -= qty;
+                    return true;
+                });
+                case "restockByToken" -> apply((String) a[1], (s, qty) -> {
+                    s[0] += qty;
+                    return true;
+                });
+                case "selectList" -> selectReserved((AbstractWrapper<?, ?, ?>) a[0]);
+                case "toString" -> "MaterialStockReservationMapper(in-memory)";
+                case "hashCode" -> System.identityHashCode(this);
+                default -> throw new UnsupportedOperationException(method);
+            };
+        }
+
+        /** 按 FIFO 顺序累计可用量，取累计到需求量为止的库存行 */
+        private int insertPlan(String batchId, String materialCode, int qty, int seqBase, LocalDateTime expireTime) {
+            int cum = 0;
+            int rn = 0;
+            for (Map.Entry<String, int[]> e : stocks.entrySet()) {
+                int avail = e.getValue()[0] - e.getValue()[1];
+                if (avail <= 0) continue;
+                if (cum >= qty) break;
+                rn++;
+                MaterialStockReservation r = new MaterialStockReservation();
+                r.setId(UUID.randomUUID().toString());
+                r.setTenantId(1L);
+                r.setBatchId(batchId);
+                r.setStockId(e.getKey());
+                r.setMaterialCode(materialCode);
+                r.setQuantity(Math.min(avail, qty - cum));
+                r.setStatus(MaterialStockReservation.STATUS_PLANNED);
+                r.setSeq(seqBase + rn);
+                r.setExpireTime(expireTime);
+                rows.add(r);
+                cum += avail;
+            }
+            return rn;
+        }
+
+        private int applyPlan(String batchId) {
+            applyCalls++;
+            Runnable hook = beforeApply;
+            if (hook != null) {
+                if (!everyApply) beforeApply = null;
+                hook.run();
+            }
+            int applied = 0;
+            for (MaterialStockReservation r : List.copyOf(rows)) {
+                if (!r.getBatchId().equals(batchId) || !MaterialStockReservation.STATUS_PLANNED.equals(r.getStatus())) {
+                    continue;
+                }
+                int[] s = stocks.get(r.getStockId());
+                if (s[0] - s[1] >= r.getQuantity()) {
+                    s[1] += r.getQuantity();
+                    r.setStatus(MaterialStockReservation.STATUS_RESERVED);
+                    applied++;
+                }
+            }
+            return applied;
+        }
+
+        private int transition(String batchId, String pickingId, String from, String to, String token) {
+            return update(r -> from.equals(r.getStatus()) && (pickingId != null
+                            ? pickingId.equals(r.getPickingId())
+                            : batchId.equals(r.getBatchId()) && r.getPickingId() == null),
+                    r -> {
+                        r.setStatus(to);
+                        r.setOpToken(token);
+                    });
+        }
+
+        private int expireDue(String token, int limit) {
+            int n = 0;
+            for (MaterialStockReservation r : rows) {
+                if (n >= limit) break;
+                if (MaterialStockReservation.STATUS_RESERVED.equals(r.getStatus())
+                        && r.getExpireTime().isBefore(LocalDateTime.now())) {
+                    r.setStatus(MaterialStockReservation.STATUS_EXPIRED);
+                    r.setOpToken(token);
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        private Map<String, Integer> byToken(String token) {
+            Map<String, Integer> qty = new LinkedHashMap<>();
+            rows.stream().filter(r -> token.equals(r.getOpToken()))
+                    .forEach(r -> qty.merge(r.getStockId(), r.getQuantity(), Integer::sum));
+            return qty;
+        }
+
+        @FunctionalInterface
+        interface StockUpdate {
+            boolean apply(int[] stock, int qty);
+        }
+
+        /** 按令牌汇总到库存行后逐行更新，返回满足 WHERE 条件而被更新的行数 */
+        private int apply(String token, StockUpdate update) {
+            int n = 0;
+            for (Map.Entry<String, Integer> e : byToken(token).entrySet()) {
+                if (update.apply(stocks.get(e.getKey()), e.getValue())) n++;
+            }
+            return n;
+        }
+
+        private int update(java.util.function.Predicate<MaterialStockReservation> where,
+                           java.util.function.Consumer<MaterialStockReservation> set) {
+            int n = 0;
+            for (MaterialStockReservation r : rows) {
+                if (where.test(r)) {
+                    set.accept(r);
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        private int removeIf(java.util.function.Predicate<MaterialStockReservation> where) {
+            int before = rows.size();
+            rows.removeIf(where);
+            return before - rows.size();
+        }
+
+        /** loadAllocations 的查询：batch_id = ? AND status = 'RESERVED' ORDER BY seq */
+        private List<MaterialStockReservation> selectReserved(AbstractWrapper<?, ?, ?> wrapper) {
+            Collection<Object> params = wrapper.getParamNameValuePairs().values();
+            return rows.stream()
+                    .filter(r -> params.contains(r.getBatchId())
+                            && MaterialStockReservation.STATUS_RESERVED.equals(r.getStatus()))
+                    .sorted(Comparator.comparing(MaterialStockReservation::getSeq))
+                    .toList();
+        }
+
+        // ── 事务 ──
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            Map<String, int[]> stockCopy = new LinkedHashMap<>();
+            stocks.forEach((k, v) -> stockCopy.put(k, v.clone()));
+            List<MaterialStockReservation> rowCopy = new ArrayList<>();
+            for (MaterialStockReservation r : rows) {
+                MaterialStockReservation c = new MaterialStockReservation();
+                org.springframework.beans.BeanUtils.copyProperties(r, c);
+                rowCopy.add(c);
+            }
+            snapshots.push(new Snapshot(stockCopy, rowCopy));
+            return new SimpleTransactionStatus(true);
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            if (status.isRollbackOnly()) {
+                rollback(status);
+            } else {
+                snapshots.pop();
+            }
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            Snapshot s = snapshots.pop();
+            stocks.clear();
+            stocks.putAll(s.stocks());
+            rows.clear();
+            rows.addAll(s.rows());
+        }
+    }
+}
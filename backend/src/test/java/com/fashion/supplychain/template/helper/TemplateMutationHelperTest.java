@@ -0,0 +1,164 @@
+package com.fashion.supplychain.template.helper;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.service.RedisService;
+import com.fashion.supplychain.template.entity.TemplateLibrary;
+import com.fashion.supplychain.template.mapper.TemplateLibraryMapper;
+import com.fashion.supplychain.template.resolver.TemplateResolver;
+import com.fashion.supplychain.template.service.TemplateLibraryService;
+import com.fashion.supplychain.template.service.TemplateOperationLogService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 模板写入后立即经 TemplateResolver 快照读取，验证各写入路径都使快照失效（读己之写）
+ */
+@ExtendWith(MockitoExtension.class)
+class TemplateMutationHelperTest {
+
+    private static final Long TENANT = 7L;
+    private static final String STYLE = "ST-001";
+
+    @Mock
+    private TemplateLibraryService templateLibraryService;
+
+    @Mock
+    private TemplateOperationLogService templateOperationLogService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TemplateLibraryMapper templateLibraryMapper;
+
+    @Mock
+    private RedisService redisService;
+
+    @InjectMocks
+    private TemplateMutationHelper helper;
+
+    private final TemplateResolver resolver = new TemplateResolver();
+
+    /** 内存版 t_template_library：读写都复制，快照持有的对象不会被后续写入原地修改 */
+    private final Map<String, TemplateLibrary> table = new LinkedHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        UserContext ctx = new UserContext();
+        ctx.setTenantId(TENANT);
+        ctx.setUserId("u-1");
+        ctx.setUsername("主管");
+        ctx.setRole("admin");
+        UserContext.set(ctx);
+
+        ReflectionTestUtils.setField(resolver, "templateLibraryMapper", templateLibraryMapper);
+        ReflectionTestUtils.setField(resolver, "redisService", redisService);
+        ReflectionTestUtils.setField(helper, "templateResolver", resolver);
+
+        lenient().when(templateLibraryMapper.selectList(any(Wrapper.class)))
+                .thenAnswer(inv -> table.values().stream().map(TemplateMutationHelperTest::copy).toList());
+        lenient().when(templateLibraryService.getById(anyString()))
+                .thenAnswer(inv -> copy(table.get(inv.<String>getArgument(0))));
+        lenient().when(templateLibraryService.updateById(any(TemplateLibrary.class))).thenAnswer(inv -> {
+            TemplateLibrary row = inv.getArgument(0);
+            table.put(row.getId(), copy(row));
+            return true;
+        });
+
+        put("tpl-price", "process_price", "款A-工序单价模板", 1);
+        put("tpl-progress", "progress", "款A-进度模板", 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        UserContext.clear();
+    }
+
+    @Test
+    void lockTemplate_isVisibleToNextRead() {
+        table.get("tpl-price").setLocked(0);
+        assertEquals(0, resolver.resolveProcessPriceTemplate(STYLE).getLocked());
+
+        helper.lockTemplate("tpl-price");
+
+        assertEquals(1, resolver.resolveProcessPriceTemplate(STYLE).getLocked());
+    }
+
+    @Test
+    void rollback_isVisibleToNextRead() {
+        assertEquals(1, resolver.resolveProcessPriceTemplate(STYLE).getLocked());
+
+        helper.rollback("tpl-price", "单价录错");
+
+        assertEquals(0, resolver.resolveProcessPriceTemplate(STYLE).getLocked());
+        verify(templateOperationLogService).save(argThat(log -> "ROLLBACK".equals(log.getAction())));
+    }
+
+    @Test
+    void renameSyncedToSiblings_isVisibleEvenIfSnapshotReloadedMidway() {
+        // 兄弟模板改名前，另一请求恰好用改名前的数据重建了快照
+        when(templateLibraryService.list(any(LambdaQueryWrapper.class))).thenAnswer(inv -> {
+            assertEquals("款A-工序单价模板", resolver.resolveProcessPriceTemplate(STYLE).getTemplateName());
+            return table.values().stream().map(TemplateMutationHelperTest::copy).toList();
+        });
+        TemplateLibrary edit = new TemplateLibrary();
+        edit.setId("tpl-progress");
+        edit.setTemplateName("款B-进度模板");
+
+        helper.update(edit);
+
+        assertEquals("款B-工序单价模板", resolver.resolveProcessPriceTemplate(STYLE).getTemplateName());
+        assertEquals("款B-进度模板", resolver.resolveProgressTemplate(STYLE).getTemplateName());
+    }
+
+    private void put(String id, String type, String name, int locked) {
+        TemplateLibrary t = new TemplateLibrary();
+        t.setId(id);
+        t.setTenantId(TENANT);
+        t.setTemplateType(type);
+        t.setTemplateKey("style_" + STYLE);
+        t.setTemplateName(name);
+        t.setTemplateContent("{\"steps\":[]}");
+        t.setSourceStyleNo(STYLE);
+        t.setLocked(locked);
+        t.setUpdateTime(LocalDateTime.of(2026, 10, 1, 8, 0));
+        table.put(id, t);
+    }
+
+    private static TemplateLibrary copy(TemplateLibrary src) {
+        if (src == null) {
+            return null;
+        }
+        TemplateLibrary t = new TemplateLibrary();
+        t.setId(src.getId());
+        t.setTenantId(src.getTenantId());
+        t.setTemplateType(src.getTemplateType());
+        t.setTemplateKey(src.getTemplateKey());
+        t.setTemplateName(src.getTemplateName());
+        t.setTemplateContent(src.getTemplateContent());
+        t.setSourceStyleNo(src.getSourceStyleNo());
+        t.setLocked(src.getLocked());
+        t.setOperatorName(src.getOperatorName());
+        t.setUpdateTime(src.getUpdateTime());
+        t.setCreateTime(src.getCreateTime());
+        return t;
+    }
+}
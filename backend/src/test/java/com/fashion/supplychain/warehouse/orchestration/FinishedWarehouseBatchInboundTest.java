@@ -0,0 +1,225 @@
+package com.fashion.supplychain.warehouse.orchestration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fashion.supplychain.common.UserContext;
+import com.fashion.supplychain.common.serial.DocumentNoService;
+import com.fashion.supplychain.production.entity.ProductWarehousing;
+import com.fashion.supplychain.production.mapper.ProductWarehousingMapper;
+import com.fashion.supplychain.production.service.ProductOutstockService;
+import com.fashion.supplychain.style.entity.ProductSku;
+import com.fashion.supplychain.style.entity.StyleInfo;
+import com.fashion.supplychain.style.service.ProductSkuService;
+import com.fashion.supplychain.style.service.StyleInfoService;
+import com.fashion.supplychain.warehouse.entity.StockChangeLog;
+import com.fashion.supplychain.warehouse.mapper.StockChangeLogMapper;
+import com.fashion.supplychain.warehouse.service.StockChangeLogService;
+import com.fashion.supplychain.warehouse.service.WarehouseAreaService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("FinishedWarehouseOperationOrchestrator - 批量成品入库")
+class FinishedWarehouseBatchInboundTest {
+
+    @Mock private ProductSkuService productSkuService;
+    @Mock private ProductWarehousingMapper productWarehousingMapper;
+    @Mock private ProductOutstockService productOutstockService;
+    @Mock private StyleInfoService styleInfoService;
+    @Mock private WarehouseAreaService warehouseAreaService;
+    @Mock private StockChangeLogService stockChangeLogService;
+    @Mock private StockChangeLogMapper stockChangeLogMapper;
+    @Mock private DocumentNoService documentNoService;
+    @Mock private WarehouseLocationOrchestrator warehouseLocationOrchestrator;
+
+    private FinishedWarehouseOperationOrchestrator orchestrator;
+
+    private final AtomicInteger seq = new AtomicInteger();
+
+    /** insertFreeInboundBatch / insertBatch 每次调用时的分片快照（subList 视图在调用后不再可靠） */
+    private final List<List<ProductWarehousing>> inboundChunks = new ArrayList<>();
+    private final List<List<StockChangeLog>> logChunks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        UserContext ctx = new UserContext();
+        ctx.setUserId("user-001");
+        ctx.setUsername("仓库管理员");
+        ctx.setRole("admin");
+        ctx.setTenantId(1L);
+        UserContext.set(ctx);
+        orchestrator = new FinishedWarehouseOperationOrchestrator(productSkuService, productWarehousingMapper,
+                productOutstockService, styleInfoService, warehouseAreaService, stockChangeLogService,
+                stockChangeLogMapper, documentNoService, warehouseLocationOrchestrator, new ObjectMapper());
+
+        when(documentNoService.nextDailyNo(anyString()))
+                .thenAnswer(inv -> inv.getArgument(0) + "20261019" + String.format("%06d", seq.incrementAndGet()));
+        when(documentNoService.nextGlobalDailyNo(anyString(), anyString(), anyString()))
+                .thenAnswer(inv -> inv.getArgument(0) + "20261019" + String.format("%06d", seq.incrementAndGet()));
+        when(productWarehousingMapper.insertFreeInboundBatch(anyList())).thenAnswer(inv -> {
+            inboundChunks.add(new ArrayList<>(inv.<List<ProductWarehousing>>getArgument(0)));
+            return inboundChunks.get(inboundChunks.size() - 1).size();
+        });
+        when(stockChangeLogMapper.insertBatch(anyList())).thenAnswer(inv -> {
+            logChunks.add(new ArrayList<>(inv.<List<StockChangeLog>>getArgument(0)));
+            return logChunks.get(logChunks.size() - 1).size();
+        });
+        StyleInfo style = new StyleInfo();
+        style.setId(11L);
+        style.setStyleName("春季衬衫");
+        when(styleInfoService.listByIds(anyCollection())).thenReturn(List.of(style));
+    }
+
+    @AfterEach
+    void tearDown() {
+        UserContext.clear();
+    }
+
+    @Test
+    @DisplayName("同一 SKU 多行：一次加锁、一次汇总增量，流水 before/after 按行连续")
+    void aggregatesDeltaPerSkuAndChainsBeforeAfter() {
+        when(productSkuService.lockBySkuCodes(anyCollection()))
+                .thenReturn(List.of(sku("ST01-RED-M", 10), sku("ST01-RED-L", 0)));
+
+        List<ProductWarehousing> result = orchestrator.batchInbound(body(
+                line("ST01-RED-M", 3, null),
+                line("ST01-RED-L", 2, "A-01"),
+                line("st01-red-m", 4, null)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> locked = ArgumentCaptor.forClass(Collection.class);
+        verify(productSkuService, times(1)).lockBySkuCodes(locked.capture());
+        assertThat(locked.getValue()).containsExactly("ST01-RED-L", "ST01-RED-M");
+        verify(productSkuService).batchIncreaseStock(Map.of("ST01-RED-M", 7, "ST01-RED-L", 2));
+        verify(productSkuService, never()).updateStock(anyString(), anyInt());
+
+        assertThat(result).hasSize(3);
+        assertThat(result).extracting(ProductWarehousing::getSkuCode)
+                .containsExactly("ST01-RED-M", "ST01-RED-L", "ST01-RED-M");
+        assertThat(result).extracting(ProductWarehousing::getWarehousingNo).doesNotHaveDuplicates();
+        verify(documentNoService, times(3)).nextGlobalDailyNo("FI", "t_product_warehousing", "warehousing_no");
+        assertThat(result).extracting(ProductWarehousing::getBatchNo).containsOnly(result.get(0).getBatchNo());
+        assertThat(result.get(0).getStyleName()).isEqualTo("春季衬衫");
+
+        assertThat(inboundChunks).hasSize(1);
+        assertThat(logChunks).hasSize(1);
+        List<StockChangeLog> logs = logChunks.get(0);
+        assertThat(logs).extracting(l -> l.getBeforeQuantity().intValue()).containsExactly(10, 0, 13);
+        assertThat(logs).extracting(l -> l.getAfterQuantity().intValue()).containsExactly(13, 2, 17);
+        assertThat(logs).extracting(StockChangeLog::getBizNo)
+                .containsExactlyElementsOf(result.stream().map(ProductWarehousing::getWarehousingNo).toList());
+
+        verify(warehouseLocationOrchestrator).incrementUsedCapacity("默认仓", "FINISHED", 2);
+        verify(warehouseLocationOrchestrator).incrementUsedCapacity("A-01", "FINISHED", 1);
+        verifyNoInteractions(stockChangeLogService);
+    }
+
+    @Test
+    @DisplayName("任一行不合法整单拒绝，不加锁不落库")
+    void invalidLine_rejectsWholeReceipt() {
+        assertThatThrownBy(() -> orchestrator.batchInbound(body(
+                line("ST01-RED-M", 3, null),
+                line("ST01-RED-L", 0, null))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("第2行");
+
+        verify(productSkuService, never()).lockBySkuCodes(anyCollection());
+        verify(productSkuService, never()).batchIncreaseStock(anyMap());
+        verifyNoInteractions(productWarehousingMapper, stockChangeLogMapper, warehouseLocationOrchestrator);
+    }
+
+    @Test
+    @DisplayName("SKU 不存在且未开启自动创建：整单拒绝")
+    void missingSkuWithoutAutoCreate_rejectsBeforeAnyWrite() {
+        when(productSkuService.lockBySkuCodes(anyCollection())).thenReturn(List.of(sku("ST01-RED-M", 10)));
+
+        assertThatThrownBy(() -> orchestrator.batchInbound(body(
+                line("ST01-RED-M", 3, null),
+                line("ST09-BLK-S", 1, null))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("ST09-BLK-S");
+
+        verify(productSkuService, never()).batchIncreaseStock(anyMap());
+        verifyNoInteractions(productWarehousingMapper, stockChangeLogMapper);
+    }
+
+    @Test
+    @DisplayName("超过 500 行按 500 行一条 INSERT 分片")
+    @SuppressWarnings("unchecked")
+    void largeReceipt_insertsInChunksOf500() {
+        when(productSkuService.lockBySkuCodes(anyCollection())).thenReturn(List.of(sku("ST01-RED-M", 0)));
+        Map<String, Object>[] lines = new Map[501];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = line("ST01-RED-M", 1, null);
+        }
+
+        orchestrator.batchInbound(body(lines));
+
+        assertThat(inboundChunks).extracting(List::size).containsExactly(500, 1);
+        assertThat(logChunks).extracting(List::size).containsExactly(500, 1);
+        verify(productSkuService).batchIncreaseStock(Map.of("ST01-RED-M", 501));
+        verify(warehouseLocationOrchestrator).incrementUsedCapacity("默认仓", "FINISHED", 501);
+    }
+
+    @Test
+    @DisplayName("流水写入失败不影响入库")
+    void changeLogFailure_doesNotFailReceipt() {
+        when(productSkuService.lockBySkuCodes(anyCollection())).thenReturn(List.of(sku("ST01-RED-M", 5)));
+        doThrow(new IllegalStateException("log table locked")).when(stockChangeLogMapper).insertBatch(anyList());
+
+        List<ProductWarehousing> result = orchestrator.batchInbound(body(line("ST01-RED-M", 2, null)));
+
+        assertThat(result).hasSize(1);
+        assertThat(inboundChunks).hasSize(1);
+        verify(productSkuService).batchIncreaseStock(Map.of("ST01-RED-M", 2));
+    }
+
+    @SafeVarargs
+    private static Map<String, Object> body(Map<String, Object>... lines) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("items", List.of(lines));
+        return body;
+    }
+
+    private static Map<String, Object> line(String skuCode, int quantity, String location) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("skuCode", skuCode);
+        item.put("quantity", quantity);
+        if (location != null) {
+            item.put("warehouseLocation", location);
+        }
+        return item;
+    }
+
+    private static ProductSku sku(String code, int stock) {
+        ProductSku sku = new ProductSku();
+        sku.setSkuCode(code);
+        sku.setStockQuantity(stock);
+        sku.setStyleId(11L);
+        sku.setStyleNo("ST01");
+        sku.setCostPrice(new BigDecimal("25.00"));
+        sku.setTenantId(1L);
+        return sku;
+    }
+}
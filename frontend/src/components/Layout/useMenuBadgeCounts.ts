@@ -31,7 +31,8 @@ function isToday(ts: number): boolean {
     && d.getDate() === now.getDate();
 }
 
-const POLL_INTERVAL = 30_000;
+/** 计数变更由后端经 WebSocket（type=menu-badge）推送，轮询仅作断线兜底 */
+const POLL_INTERVAL = 300_000;
 const MAX_FAIL_COUNT = 3; // 连续失败3次后停止轮询
 
 export function useMenuBadgeCounts() {
@@ -40,15 +41,19 @@ export function useMenuBadgeCounts() {
   const timerRef = useRef<ReturnType<typeof setInterval> | null>(null);
   const failCountRef = useRef(0);
 
+  const applyCounts = useCallback((data: Record<string, unknown>) => {
+    const normalized: Record<string, number> = {};
+    for (const [k, v] of Object.entries(data)) {
+      normalized[k] = Number(v) || 0;
+    }
+    setBadgeCounts(normalized);
+  }, []);
+
   const fetchBadges = useCallback(async () => {
     try {
       const res = await api.get('/dashboard/menu-badge-counts');
       if (res?.code === 200 && res.data) {
-        const normalized: Record<string, number> = {};
-        for (const [k, v] of Object.entries(res.data)) {
-          normalized[k] = Number(v) || 0;
-        }
-        setBadgeCounts(normalized);
+        applyCounts(res.data);
         failCountRef.current = 0; // 成功后重置失败计数
       }
     } catch {
@@ -59,7 +64,16 @@ export function useMenuBadgeCounts() {
         timerRef.current = null;
       }
     }
-  }, []);
+  }, [applyCounts]);
+
+  useEffect(() => {
+    const onPush = (e: Event) => {
+      const counts = (e as CustomEvent).detail?.counts;
+      if (counts && typeof counts === 'object') applyCounts(counts);
+    };
+    window.addEventListener('ws:menu-badge', onPush);
+    return () => window.removeEventListener('ws:menu-badge', onPush);
+  }, [applyCounts]);
 
   useEffect(() => {
     fetchBadges();
@@ -171,6 +171,20 @@ export function useWebSocket(options: UseWebSocketOptions) {
           return;
         }
 
+        // 带 type 的业务推送（如菜单红点 menu-badge）：按 type 分发，不当作进度消息
+        if (parsed && typeof parsed.type === 'string') {
+          const typed: WsMessage = { type: parsed.type, payload: parsed };
+          handlersRef.current.get(parsed.type)?.forEach(handler => {
+            try {
+              handler(typed);
+            } catch (e) {
+              console.error('[WS] 消息处理失败:', e);
+            }
+          });
+          window.dispatchEvent(new CustomEvent(`ws:${parsed.type}`, { detail: parsed }));
+          return;
+        }
+
         const data = parsed as ProgressMessage;
         progressHandlersRef.current.forEach(handler => {
           try {